@@ -41,6 +41,8 @@ abstract class BaseRowSet implements Comparable<RowSet>, RowSet {
   protected volatile String remoteSlaveServerName;
   private ReadWriteLock lock;
 
+  private volatile RowSetSignal consumerSignal;
+
   public BaseRowSet() {
     // not done putting data into this RowSet
     done = new AtomicBoolean( false );
@@ -127,6 +129,7 @@ abstract class BaseRowSet implements Comparable<RowSet>, RowSet {
   @Override
   public void setDone() {
     done.set( true );
+    signalConsumer();
   }
 
   /*
@@ -293,4 +296,21 @@ abstract class BaseRowSet implements Comparable<RowSet>, RowSet {
     return false;
   }
 
+  @Override
+  public boolean setConsumerSignal( RowSetSignal signal ) {
+    consumerSignal = signal;
+    return true;
+  }
+
+  /**
+   * Raise the signal of the reading step after a row was put in this row set. The row has to be published with a lock
+   * or a volatile write before this call, otherwise the reading step could check this row set without seeing it.
+   */
+  protected void signalConsumer() {
+    RowSetSignal signal = consumerSignal;
+    if ( signal != null ) {
+      signal.raise();
+    }
+  }
+
 }
@@ -71,6 +71,9 @@ public class BlockingListeningRowSet extends BaseRowSet implements Comparable<Ro
       blocking.set( true );
       boolean b = queArray.offer( rowData, time, tu );
       blocking.set( false );
+      if ( b ) {
+        signalConsumer();
+      }
       return b;
     } catch ( InterruptedException e ) {
       blocking.set( false );
@@ -23,6 +23,9 @@ import java.util.regex.Pattern;
 
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.ColumnVector;
+import org.pentaho.di.core.row.RowBatch;
+import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaAndData;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -563,6 +566,182 @@ public class Condition implements Cloneable, XMLInterface {
     return retval;
   }
 
+  /**
+   * Evaluate the condition for all the rows in a batch. Comparisons of integer or number fields with a constant value
+   * (and combinations of those) are evaluated column by column, other conditions are evaluated row by row.
+   *
+   * @param batch
+   *          the rows to evaluate
+   * @param result
+   *          receives the outcome for every row in the batch
+   */
+  public void evaluate( RowBatch batch, boolean[] result ) {
+    RowMetaInterface rowMeta = batch.getRowMeta();
+    if ( isVectorizable( rowMeta ) ) {
+      evaluateVector( batch, result );
+    } else {
+      Object[] row = RowDataUtil.allocateRowData( rowMeta.size() );
+      for ( int i = 0; i < batch.size(); i++ ) {
+        batch.getRow( i, row );
+        result[i] = evaluate( rowMeta, row );
+      }
+    }
+  }
+
+  private boolean isVectorizable( RowMetaInterface rowMeta ) {
+    if ( !isAtomic() ) {
+      for ( Condition condition : list ) {
+        if ( !condition.isVectorizable( rowMeta ) ) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if ( function == FUNC_TRUE ) {
+      return true;
+    }
+    if ( Utils.isEmpty( leftValuename ) ) {
+      return false;
+    }
+    int index = rowMeta.indexOfValue( leftValuename );
+    if ( index < 0 ) {
+      return false;
+    }
+    ValueMetaInterface fieldMeta = rowMeta.getValueMeta( index );
+    int kind = ColumnVector.getKind( fieldMeta );
+    if ( ( kind != ColumnVector.KIND_LONG && kind != ColumnVector.KIND_DOUBLE ) || fieldMeta.isSortedDescending() ) {
+      return false;
+    }
+    switch ( function ) {
+      case FUNC_NULL:
+      case FUNC_NOT_NULL:
+        return true;
+      case FUNC_EQUAL:
+      case FUNC_NOT_EQUAL:
+      case FUNC_SMALLER:
+      case FUNC_SMALLER_EQUAL:
+      case FUNC_LARGER:
+      case FUNC_LARGER_EQUAL:
+        // Only constants of the same data type: no conversions needed
+        //
+        if ( rightExact == null || rightExact.getValueData() == null ) {
+          return false;
+        }
+        ValueMetaInterface rightMeta = rightExact.getValueMeta();
+        return rightMeta.getType() == fieldMeta.getType()
+          && rightMeta.getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL;
+      default:
+        return false;
+    }
+  }
+
+  private void evaluateVector( RowBatch batch, boolean[] result ) {
+    int size = batch.size();
+    if ( isAtomic() ) {
+      evaluateAtomicVector( batch, result );
+    } else {
+      list.get( 0 ).evaluateVector( batch, result );
+      boolean[] right = new boolean[size];
+      for ( int c = 1; c < list.size(); c++ ) {
+        Condition cb = list.get( c );
+        cb.evaluateVector( batch, right );
+        switch ( cb.getOperator() ) {
+          case Condition.OPERATOR_OR:
+            for ( int i = 0; i < size; i++ ) {
+              result[i] = result[i] || right[i];
+            }
+            break;
+          case Condition.OPERATOR_AND:
+            for ( int i = 0; i < size; i++ ) {
+              result[i] = result[i] && right[i];
+            }
+            break;
+          case Condition.OPERATOR_OR_NOT:
+            for ( int i = 0; i < size; i++ ) {
+              result[i] = result[i] || !right[i];
+            }
+            break;
+          case Condition.OPERATOR_AND_NOT:
+            for ( int i = 0; i < size; i++ ) {
+              result[i] = result[i] && !right[i];
+            }
+            break;
+          case Condition.OPERATOR_XOR:
+            for ( int i = 0; i < size; i++ ) {
+              result[i] = result[i] ^ right[i];
+            }
+            break;
+          default:
+            break;
+        }
+      }
+    }
+    if ( isNegated() ) {
+      for ( int i = 0; i < size; i++ ) {
+        result[i] = !result[i];
+      }
+    }
+  }
+
+  private void evaluateAtomicVector( RowBatch batch, boolean[] result ) {
+    int size = batch.size();
+    if ( function == FUNC_TRUE ) {
+      Arrays.fill( result, 0, size, true );
+      return;
+    }
+    ColumnVector column = batch.getColumn( batch.getRowMeta().indexOfValue( leftValuename ) );
+    if ( function == FUNC_NULL || function == FUNC_NOT_NULL ) {
+      boolean wantNull = function == FUNC_NULL;
+      for ( int i = 0; i < size; i++ ) {
+        result[i] = column.isNull( i ) == wantNull;
+      }
+      return;
+    }
+
+    // Same semantics as ValueMetaBase.compare(): null is smaller than any value
+    //
+    boolean nullsAreNotSmaller =
+      "Y".equalsIgnoreCase( System.getProperty( Const.KETTLE_FILTER_TREAT_NULLS_AS_NOT_ZERO, "N" ) );
+    Number right = (Number) rightExact.getValueData();
+    boolean isLong = column.getKind() == ColumnVector.KIND_LONG;
+    long rightLong = right.longValue();
+    double rightDouble = right.doubleValue();
+    for ( int i = 0; i < size; i++ ) {
+      boolean isNull = column.isNull( i );
+      int cmp;
+      if ( isNull ) {
+        cmp = -1;
+      } else if ( isLong ) {
+        cmp = Long.compare( column.getLong( i ), rightLong );
+      } else {
+        cmp = Double.compare( column.getDouble( i ), rightDouble );
+      }
+      switch ( function ) {
+        case FUNC_EQUAL:
+          result[i] = cmp == 0;
+          break;
+        case FUNC_NOT_EQUAL:
+          result[i] = cmp != 0;
+          break;
+        case FUNC_SMALLER:
+          result[i] = !( isNull && nullsAreNotSmaller ) && cmp < 0;
+          break;
+        case FUNC_SMALLER_EQUAL:
+          result[i] = !( isNull && nullsAreNotSmaller ) && cmp <= 0;
+          break;
+        case FUNC_LARGER:
+          result[i] = cmp > 0;
+          break;
+        case FUNC_LARGER_EQUAL:
+          result[i] = cmp >= 0;
+          break;
+        default:
+          result[i] = false;
+          break;
+      }
+    }
+  }
+
   public void addCondition( Condition cb ) {
     if ( isAtomic() && getLeftValuename() != null ) {
       /*
@@ -1065,6 +1065,103 @@ public class Const {
    */
   public static final String KETTLE_BATCHING_ROWSET = "KETTLE_BATCHING_ROWSET";
 
+  /**
+   * Set this variable to N to stop using the lock-free ring buffer row set on hops between exactly one step copy and
+   * exactly one step copy. (default = Y)
+   */
+  public static final String KETTLE_RING_BUFFER_ROWSET = "KETTLE_RING_BUFFER_ROWSET";
+
+  /**
+   * Set this variable to Y to run the step copies of all transformations on virtual threads when the Java runtime
+   * supports them. (default = N)
+   */
+  public static final String KETTLE_VIRTUAL_STEP_THREADS = "KETTLE_VIRTUAL_STEP_THREADS";
+
+  /**
+   * The number of rows per batch for steps that can process rows column by column (Calculator, Filter rows, Select
+   * values, Add constants, Table output). Hops between two of these steps carry the batches as they are. 0 disables
+   * batch processing. (default = 0)
+   */
+  public static final String KETTLE_ROW_BATCH_SIZE = "KETTLE_ROW_BATCH_SIZE";
+
+  /**
+   * The number of rows in a batch when batch processing is requested without specifying a size.
+   */
+  public static final int DEFAULT_ROW_BATCH_SIZE = 1024;
+
+  /**
+   * The amount of off-heap memory in MB that the steps of a transformation can use together to buffer rows (Sort rows,
+   * Blocking step, Group by). Rows are kept on the Java heap when this is 0 or not set. (default = 0)
+   */
+  public static final String KETTLE_OFF_HEAP_ROW_BUFFER_MB = "KETTLE_OFF_HEAP_ROW_BUFFER_MB";
+
+  /**
+   * The amount of heap memory in MB that the steps of a transformation can reserve together for their row buffers and
+   * caches (Sort rows, Memory group by, Stream lookup, Database lookup, Join rows). Steps decide on their own based on
+   * the free memory when this is 0 or not set. (default = 0)
+   */
+  public static final String KETTLE_TRANS_MEMORY_LIMIT_MB = "KETTLE_TRANS_MEMORY_LIMIT_MB";
+
+  /**
+   * Set this variable to Y to convert strings to and from dates and numbers without SimpleDateFormat and DecimalFormat
+   * for the common masks. The results are the same, values that the fast converters can't handle exactly like the
+   * formats still go through the formats. As a system property it applies to all value metadata, as a variable it
+   * switches the Text file input, CSV file input and Text file output steps. (default = N)
+   */
+  public static final String KETTLE_FAST_VALUE_CONVERSION = "KETTLE_FAST_VALUE_CONVERSION";
+
+  /**
+   * Set this variable to Y to hand the input row metadata to the steps as an immutable copy that can be read without
+   * locking. Steps or plugins that modify the row metadata of their input will fail with this option. (default = N)
+   */
+  public static final String KETTLE_FREEZE_ROW_META = "KETTLE_FREEZE_ROW_META";
+
+  /**
+   * Set this variable to Y to let all the copies of a Database lookup step share one cache, with an eviction policy
+   * that keeps the frequently used keys. Only applies when all key conditions are equalities and the table isn't
+   * loaded into the cache at startup. (default = N)
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_SHARED_CACHE = "KETTLE_DATABASE_LOOKUP_SHARED_CACHE";
+
+  /**
+   * The number of input rows the Database lookup and Dimension lookup steps collect to look up their keys with a single
+   * query on a cache miss. Only applies to lookups on equal keys, the Dimension lookup step only does it in lookup
+   * mode without pre-loaded cache. (default = 0, look up row by row)
+   */
+  public static final String KETTLE_LOOKUP_BATCH_SIZE = "KETTLE_LOOKUP_BATCH_SIZE";
+
+  /**
+   * The maximum time in milliseconds a row waits in a lookup batch for the batch to fill up, see
+   * KETTLE_LOOKUP_BATCH_SIZE. (default = 100)
+   */
+  public static final String KETTLE_LOOKUP_BATCH_MAX_LATENCY = "KETTLE_LOOKUP_BATCH_MAX_LATENCY";
+
+  /**
+   * The number of threads a CSV file input step copy uses to memory map and parse a local file. Only applies to single
+   * byte delimiters and enclosures in a single byte or UTF-8 encoding, without new lines in unenclosed fields and when
+   * the step isn't running in parallel. (default = 0, read the file on the step thread)
+   */
+  public static final String KETTLE_CSV_INPUT_SCAN_THREADS = "KETTLE_CSV_INPUT_SCAN_THREADS";
+
+  /**
+   * The number of bytes of a file one CSV file input scan thread parses at once, see KETTLE_CSV_INPUT_SCAN_THREADS.
+   * (default = 8388608)
+   */
+  public static final String KETTLE_CSV_INPUT_SCAN_CHUNK_SIZE = "KETTLE_CSV_INPUT_SCAN_CHUNK_SIZE";
+
+  /**
+   * Set this variable to Y to let input steps like CSV file input skip the conversion of fields that no step after them
+   * reads, and to keep fields that are only written to a text file as raw bytes. (default = N)
+   */
+  public static final String KETTLE_LAZY_CONVERSION_PUSHDOWN = "KETTLE_LAZY_CONVERSION_PUSHDOWN";
+
+  /**
+   * The number of threads the text file input steps decompress compressed files on, ahead of reading them. Files made
+   * of independently compressed blocks, like bgzip files and zstd files with several frames, are decompressed on all
+   * of them at once. (default = 0, decompress on the step thread)
+   */
+  public static final String KETTLE_DECOMPRESSION_THREADS = "KETTLE_DECOMPRESSION_THREADS";
+
   /**
    * Set this variable to limit max number of files the Text File Output step can have open at one time.
    */
@@ -1075,6 +1172,44 @@ public class Const {
    */
   public static final String KETTLE_FILE_OUTPUT_MAX_STREAM_LIFE = "KETTLE_FILE_OUTPUT_MAX_STREAM_LIFE";
 
+  /**
+   * The number of buffers the Text File Output step swaps with a separate writer thread. Rows are formatted into one
+   * buffer while the writer thread compresses and writes the others. (default = 0, write on the step thread)
+   */
+  public static final String KETTLE_FILE_OUTPUT_ASYNC_BUFFERS = "KETTLE_FILE_OUTPUT_ASYNC_BUFFERS";
+
+  /**
+   * Set this variable to Y to let the writer thread of the Text File Output step write local files through a file
+   * channel instead of through VFS. Only used together with KETTLE_FILE_OUTPUT_ASYNC_BUFFERS. (default = N)
+   */
+  public static final String KETTLE_FILE_OUTPUT_DIRECT_WRITE = "KETTLE_FILE_OUTPUT_DIRECT_WRITE";
+
+  /**
+   * Set this variable to Y to let Sort rows, Sorted merge, Merge join, Unique rows, Group by and Stream lookup compare
+   * and hash their key fields with a class generated for the data types and sort directions of the keys, instead of
+   * going through the row metadata for every field of every row. (default = N)
+   */
+  public static final String KETTLE_COMPILED_ROW_COMPARATORS = "KETTLE_COMPILED_ROW_COMPARATORS";
+
+  /**
+   * Set this variable to Y on a clustered transformation to let the remote steps and the socket writers and readers
+   * created by the transformation splitter exchange rows in compressed column blocks with credit based flow control,
+   * instead of one serialized row at a time. (default = N)
+   */
+  public static final String KETTLE_COLUMNAR_SOCKET_STREAMS = "KETTLE_COLUMNAR_SOCKET_STREAMS";
+
+  /**
+   * The maximum number of rows in a block of a columnar socket stream. (default = 1000)
+   */
+  public static final String KETTLE_COLUMNAR_SOCKET_BLOCK_SIZE = "KETTLE_COLUMNAR_SOCKET_BLOCK_SIZE";
+
+  /**
+   * Set this variable to Y on a clustered transformation to let all the remote step streams between two Carte servers
+   * share a single NIO connection per direction, instead of opening a server socket and a connection for every remote
+   * step copy. Streams are not encrypted in this mode. (default = N)
+   */
+  public static final String KETTLE_MULTIPLEXED_SOCKET_STREAMS = "KETTLE_MULTIPLEXED_SOCKET_STREAMS";
+
   /**
    * Set this variable to Y to disable standard Kettle logging to the console. (stdout)
    */
@@ -70,4 +70,11 @@ public class QueueRowSet extends BaseRowSet implements Comparable<RowSet>, RowSe
     done.set( false );
   }
 
+  /**
+   * This row set isn't shared between threads, there is nothing to signal.
+   */
+  @Override
+  public boolean setConsumerSignal( RowSetSignal signal ) {
+    return false;
+  }
 }
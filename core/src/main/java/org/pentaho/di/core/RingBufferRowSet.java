@@ -0,0 +1,267 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A lock-free row set for hops that connect exactly one producing step copy with exactly one consuming step copy.
+ * <p>
+ * Rows are kept in a ring buffer. The producer only ever writes the put index and the consumer only ever writes the
+ * take index, so no locks or CAS loops are needed: each side publishes its progress with an ordered store. Both indexes
+ * live in the same array, padded far enough apart to end up on different cache lines, which keeps the two threads from
+ * invalidating each other's cache line on every row.
+ * <p>
+ * A side that has to wait for the other spins briefly, then yields, then parks. The other side unparks a parked waiter
+ * once it made progress. Parking is done in short slices so a missed wake-up only ever costs a fraction of a millisecond
+ * instead of the full timeout.
+ * <p>
+ * This row set must not be shared by more than one writing or more than one reading thread. Trans only uses it for 1:1
+ * hops.
+ *
+ * @since 11.1
+ */
+public class RingBufferRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  /** Number of longs between the two indexes: 16 longs = 128 bytes, enough to cover adjacent line prefetching. */
+  private static final int PAD = 16;
+  private static final int PUT_INDEX = PAD;
+  private static final int TAKE_INDEX = PAD * 2;
+
+  private static final int SPIN_TRIES = 128;
+  private static final int YIELD_TRIES = 16;
+  private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos( 200 );
+
+  private final AtomicReferenceArray<Object[]> buffer;
+  private final int mask;
+  private final int capacity;
+
+  private final AtomicLongArray indexes = new AtomicLongArray( PAD * 3 );
+
+  // Only touched by the producer thread
+  private long cachedTakeIndex;
+
+  // Only touched by the consumer thread
+  private long cachedPutIndex;
+
+  private volatile Thread waitingProducer;
+  private volatile Thread waitingConsumer;
+
+  // Only fence the puts once the reading step relies on the consumer signal
+  private volatile boolean signalled;
+
+  private int timeoutPut;
+  private int timeoutGet;
+
+  /**
+   * Create a new ring buffer row set holding up to maxSize rows.
+   *
+   * @param maxSize
+   *          the maximum number of rows in transit
+   */
+  public RingBufferRowSet( int maxSize ) {
+    super();
+
+    capacity = Math.max( 1, maxSize );
+    int length = Integer.highestOneBit( capacity );
+    if ( length < capacity ) {
+      length <<= 1;
+    }
+    buffer = new AtomicReferenceArray<Object[]>( length );
+    mask = length - 1;
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    this.rowMeta = rowMeta;
+    if ( rowData == null ) {
+      // Same behavior as the blocking queue based row set
+      return false;
+    }
+
+    long putIndex = indexes.get( PUT_INDEX );
+    if ( putIndex - cachedTakeIndex >= capacity ) {
+      cachedTakeIndex = indexes.get( TAKE_INDEX );
+      if ( putIndex - cachedTakeIndex >= capacity && !waitForSpace( putIndex, tu.toNanos( time ) ) ) {
+        return false;
+      }
+    }
+
+    buffer.lazySet( (int) putIndex & mask, rowData );
+    indexes.lazySet( PUT_INDEX, putIndex + 1 );
+
+    Thread consumer = waitingConsumer;
+    if ( consumer != null ) {
+      LockSupport.unpark( consumer );
+    }
+    if ( signalled ) {
+      // The lazy set of the put index doesn't order it before the read of the signal's waiter
+      VarHandle.fullFence();
+      signalConsumer();
+    }
+    return true;
+  }
+
+  private boolean waitForSpace( long putIndex, long timeoutNanos ) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    int tries = 0;
+    while ( true ) {
+      if ( tries < SPIN_TRIES ) {
+        Thread.onSpinWait();
+      } else if ( tries < SPIN_TRIES + YIELD_TRIES ) {
+        Thread.yield();
+      } else {
+        long remaining = deadline - System.nanoTime();
+        if ( remaining <= 0 || Thread.currentThread().isInterrupted() ) {
+          return false;
+        }
+        waitingProducer = Thread.currentThread();
+        cachedTakeIndex = indexes.get( TAKE_INDEX );
+        if ( putIndex - cachedTakeIndex < capacity ) {
+          waitingProducer = null;
+          return true;
+        }
+        LockSupport.parkNanos( this, Math.min( remaining, MAX_PARK_NANOS ) );
+        waitingProducer = null;
+      }
+      tries++;
+      cachedTakeIndex = indexes.get( TAKE_INDEX );
+      if ( putIndex - cachedTakeIndex < capacity ) {
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    long takeIndex = indexes.get( TAKE_INDEX );
+    if ( takeIndex >= cachedPutIndex ) {
+      cachedPutIndex = indexes.get( PUT_INDEX );
+      if ( takeIndex >= cachedPutIndex ) {
+        return null;
+      }
+    }
+    return take( takeIndex );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    long takeIndex = indexes.get( TAKE_INDEX );
+    if ( takeIndex >= cachedPutIndex ) {
+      cachedPutIndex = indexes.get( PUT_INDEX );
+      if ( takeIndex >= cachedPutIndex && !waitForRow( takeIndex, tu.toNanos( timeout ) ) ) {
+        return null;
+      }
+    }
+    return take( takeIndex );
+  }
+
+  private Object[] take( long takeIndex ) {
+    int slot = (int) takeIndex & mask;
+    Object[] row = buffer.get( slot );
+    buffer.lazySet( slot, null ); // prevent any hold-up to GC
+    indexes.lazySet( TAKE_INDEX, takeIndex + 1 );
+
+    Thread producer = waitingProducer;
+    if ( producer != null ) {
+      LockSupport.unpark( producer );
+    }
+    return row;
+  }
+
+  private boolean waitForRow( long takeIndex, long timeoutNanos ) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    int tries = 0;
+    while ( true ) {
+      if ( tries < SPIN_TRIES ) {
+        Thread.onSpinWait();
+      } else if ( tries < SPIN_TRIES + YIELD_TRIES ) {
+        Thread.yield();
+      } else {
+        long remaining = deadline - System.nanoTime();
+        if ( remaining <= 0 || isDone() || Thread.currentThread().isInterrupted() ) {
+          return false;
+        }
+        waitingConsumer = Thread.currentThread();
+        cachedPutIndex = indexes.get( PUT_INDEX );
+        if ( takeIndex < cachedPutIndex ) {
+          waitingConsumer = null;
+          return true;
+        }
+        LockSupport.parkNanos( this, Math.min( remaining, MAX_PARK_NANOS ) );
+        waitingConsumer = null;
+      }
+      tries++;
+      cachedPutIndex = indexes.get( PUT_INDEX );
+      if ( takeIndex < cachedPutIndex ) {
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public void setDone() {
+    super.setDone();
+    Thread consumer = waitingConsumer;
+    if ( consumer != null ) {
+      LockSupport.unpark( consumer );
+    }
+  }
+
+  @Override
+  public boolean setConsumerSignal( RowSetSignal signal ) {
+    signalled = signal != null;
+    return super.setConsumerSignal( signal );
+  }
+
+  @Override
+  public int size() {
+    // Read the take index first so that a concurrent take can never make the result negative
+    long takeIndex = indexes.get( TAKE_INDEX );
+    long putIndex = indexes.get( PUT_INDEX );
+    return (int) Math.max( 0, Math.min( capacity, putIndex - takeIndex ) );
+  }
+
+  @Override
+  public void clear() {
+    for ( int i = 0; i < buffer.length(); i++ ) {
+      buffer.set( i, null );
+    }
+    long putIndex = indexes.get( PUT_INDEX );
+    indexes.set( TAKE_INDEX, putIndex );
+    cachedTakeIndex = putIndex;
+    cachedPutIndex = putIndex;
+    done.set( false );
+  }
+
+}
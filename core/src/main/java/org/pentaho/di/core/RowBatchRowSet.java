@@ -0,0 +1,275 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.pentaho.di.core.row.RowBatch;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A row set that carries whole {@link RowBatch}es from one step copy to the next, so that a chain of steps processing
+ * rows column by column never has to materialize the rows in between.
+ * <p>
+ * Single rows can be put in and taken out as well: a batch is handed out row by row to a reader that asks for rows,
+ * and consecutive single rows are gathered in a new batch for a reader that asks for batches. The order of the rows is
+ * always preserved. A batch belongs to the row set once it is put, the writer must not touch it anymore.
+ * <p>
+ * The size of this row set is counted in rows. A writer waits as long as the row set holds the maximum number of rows
+ * or more, so a single batch can always be put in an empty row set, whatever its size.
+ *
+ * @since 11.1
+ */
+public class RowBatchRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  private final ArrayDeque<Object> queue = new ArrayDeque<Object>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final int maxRows;
+
+  // The number of rows already handed out from the batch at the head of the queue
+  private int headIndex;
+  private volatile int nrRows;
+
+  private int timeoutPut;
+  private int timeoutGet;
+
+  /**
+   * Create a new row set for batches
+   *
+   * @param maxRows
+   *          the number of rows in transit after which writers have to wait
+   */
+  public RowBatchRowSet( int maxRows ) {
+    super();
+    this.maxRows = Math.max( 1, maxRows );
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    return offer( rowMeta, rowData, 1, time, tu );
+  }
+
+  /**
+   * Put a batch of rows in this row set, wait for room if needed.
+   *
+   * @param rowMeta
+   *          the description of the rows
+   * @param batch
+   *          the rows, owned by this row set from now on
+   * @return true if the batch was put, false if there was no room in time
+   */
+  public boolean putRowBatch( RowMetaInterface rowMeta, RowBatch batch ) {
+    return putRowBatchWait( rowMeta, batch, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  /**
+   * Put a batch of rows in this row set, wait at most the given time for room.
+   *
+   * @return true if the batch was put, false if there was no room in time
+   */
+  public boolean putRowBatchWait( RowMetaInterface rowMeta, RowBatch batch, long time, TimeUnit tu ) {
+    if ( batch.isEmpty() ) {
+      this.rowMeta = rowMeta;
+      return true;
+    }
+    return offer( rowMeta, batch, batch.size(), time, tu );
+  }
+
+  private boolean offer( RowMetaInterface rowMeta, Object element, int size, long time, TimeUnit tu ) {
+    this.rowMeta = rowMeta;
+    long nanos = tu.toNanos( time );
+    try {
+      lock.lockInterruptibly();
+    } catch ( InterruptedException e ) {
+      return false;
+    }
+    try {
+      while ( nrRows >= maxRows ) {
+        if ( nanos <= 0L ) {
+          return false;
+        }
+        nanos = notFull.awaitNanos( nanos );
+      }
+      queue.addLast( element );
+      nrRows += size;
+      notEmpty.signal();
+    } catch ( InterruptedException e ) {
+      return false;
+    } finally {
+      lock.unlock();
+    }
+    signalConsumer();
+    return true;
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    return getRowWait( 0L, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    try {
+      lock.lockInterruptibly();
+    } catch ( InterruptedException e ) {
+      return null;
+    }
+    try {
+      if ( !awaitNotEmpty( tu.toNanos( timeout ) ) ) {
+        return null;
+      }
+      Object head = queue.peekFirst();
+      Object[] row;
+      if ( head instanceof RowBatch ) {
+        RowBatch batch = (RowBatch) head;
+        row = batch.getRow( headIndex++ );
+        if ( headIndex >= batch.size() ) {
+          queue.pollFirst();
+          headIndex = 0;
+        }
+      } else {
+        row = (Object[]) queue.pollFirst();
+      }
+      nrRows--;
+      notFull.signal();
+      return row;
+    } catch ( InterruptedException e ) {
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the next batch of rows or null if there is none right now
+   */
+  public RowBatch getRowBatchImmediate() {
+    return getRowBatchWait( 0L, TimeUnit.MILLISECONDS );
+  }
+
+  /**
+   * Get the next batch of rows, wait at most the given time for one. Single rows that were put in this row set are
+   * gathered in a new batch.
+   *
+   * @return the next batch or null if there was none in time
+   */
+  public RowBatch getRowBatchWait( long timeout, TimeUnit tu ) {
+    try {
+      lock.lockInterruptibly();
+    } catch ( InterruptedException e ) {
+      return null;
+    }
+    try {
+      if ( !awaitNotEmpty( tu.toNanos( timeout ) ) ) {
+        return null;
+      }
+      RowBatch batch;
+      Object head = queue.peekFirst();
+      if ( head instanceof RowBatch && headIndex == 0 ) {
+        batch = (RowBatch) queue.pollFirst();
+      } else if ( head instanceof RowBatch ) {
+        // The rest of a batch that was partly read row by row
+        //
+        RowBatch rest = (RowBatch) queue.pollFirst();
+        batch = new RowBatch( rest.getRowMeta(), rest.size() - headIndex );
+        while ( headIndex < rest.size() ) {
+          batch.addRow( rest.getRow( headIndex++ ) );
+        }
+        headIndex = 0;
+      } else {
+        int count = 0;
+        for ( Object element : queue ) {
+          if ( element instanceof RowBatch ) {
+            break;
+          }
+          count++;
+        }
+        batch = new RowBatch( rowMeta, count );
+        for ( int i = 0; i < count; i++ ) {
+          batch.addRow( (Object[]) queue.pollFirst() );
+        }
+      }
+      nrRows -= batch.size();
+      notFull.signalAll();
+      return batch;
+    } catch ( InterruptedException e ) {
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean awaitNotEmpty( long nanos ) throws InterruptedException {
+    while ( queue.isEmpty() ) {
+      if ( nanos <= 0L || done.get() ) {
+        return false;
+      }
+      nanos = notEmpty.awaitNanos( nanos );
+    }
+    return true;
+  }
+
+  /**
+   * Also wakes up a reader waiting for rows: there won't be any more.
+   */
+  @Override
+  public void setDone() {
+    super.setDone();
+    lock.lock();
+    try {
+      notEmpty.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of rows in this row set
+   */
+  @Override
+  public int size() {
+    return nrRows;
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      queue.clear();
+      headIndex = 0;
+      nrRows = 0;
+      done.set( false );
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -145,4 +145,15 @@ public interface RowSet {
    * Clear this rowset: remove all rows and remove the "done" flag.
    */
   void clear();
+
+  /**
+   * Let this row set raise the signal of the step that reads from it whenever a row is put in it or when it is done.
+   *
+   * @param signal
+   *          the signal of the reading step
+   * @return false if this row set cannot raise the signal, the reading step has to poll it then
+   */
+  default boolean setConsumerSignal( RowSetSignal signal ) {
+    return false;
+  }
 }
@@ -0,0 +1,65 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wakes up a step thread that waits for rows from its input row sets. The row sets raise the signal of the step that
+ * reads from them when a row is put in them or when they are done, so the step can park until any of its row sets has
+ * something for it instead of polling them in turn.
+ * <p>
+ * The waiting thread arms the signal, checks its row sets and only then awaits the signal. A row that is put between
+ * the check and the wait unparks the thread right away.
+ *
+ * @since 11.1
+ */
+public class RowSetSignal {
+
+  private volatile Thread waiter;
+
+  /**
+   * Register the current thread as the one to wake up. The row sets must be checked after this call, before
+   * {@link #await(long, TimeUnit)}.
+   */
+  public void arm() {
+    waiter = Thread.currentThread();
+  }
+
+  /**
+   * Stop waking up the thread that armed this signal.
+   */
+  public void disarm() {
+    waiter = null;
+  }
+
+  /**
+   * Park the current thread until the signal is raised or the time is up. The thread can also wake up for no reason,
+   * so the row sets have to be checked again either way.
+   */
+  public void await( long timeout, TimeUnit unit ) {
+    LockSupport.parkNanos( this, unit.toNanos( timeout ) );
+  }
+
+  /**
+   * Wake up the thread that armed this signal, if any.
+   */
+  public void raise() {
+    Thread thread = waiter;
+    if ( thread != null ) {
+      LockSupport.unpark( thread );
+    }
+  }
+}
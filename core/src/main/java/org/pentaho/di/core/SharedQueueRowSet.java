@@ -0,0 +1,164 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A row set that shares its buffer with the row sets from the same source step copy to the other copies of a target
+ * step. Whichever target copy asks for a row first gets the next one: idle copies take over the rows that would
+ * otherwise be queued up for a copy that is still busy, for example with a slow web service call or a lookup miss.
+ * <p>
+ * The rows put in any row set of a group end up in the shared buffer, so the row order between the target copies isn't
+ * preserved, which is never the case anyway when rows are distributed. Every row set of a group counts the rows its
+ * own target copy took out of the shared buffer.
+ *
+ * @since 11.1
+ */
+public class SharedQueueRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  private final Group group;
+
+  // Only incremented by the thread of the target step copy
+  private volatile long rowsTaken;
+
+  private SharedQueueRowSet( Group group ) {
+    super();
+    this.group = group;
+  }
+
+  /**
+   * Create the row sets from one source step copy to all copies of a target step.
+   *
+   * @param nrCopies
+   *          the number of target step copies
+   * @param maxSize
+   *          the maximum number of rows in the shared buffer
+   * @return one row set per target copy, all sharing the same buffer
+   */
+  public static List<SharedQueueRowSet> createGroup( int nrCopies, int maxSize ) {
+    Group group = new Group( maxSize );
+    List<SharedQueueRowSet> rowSets = new ArrayList<SharedQueueRowSet>( nrCopies );
+    for ( int i = 0; i < nrCopies; i++ ) {
+      rowSets.add( new SharedQueueRowSet( group ) );
+    }
+    group.members.addAll( rowSets );
+    return rowSets;
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, group.timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    group.rowMeta = rowMeta;
+    try {
+      if ( !group.queue.offer( rowData, time, tu ) ) {
+        return false;
+      }
+    } catch ( InterruptedException e ) {
+      return false;
+    } catch ( NullPointerException e ) {
+      return false;
+    }
+    // Any of the target copies can take the row, the ones that don't get it simply wait again
+    for ( SharedQueueRowSet member : group.members ) {
+      member.signalConsumer();
+    }
+    return true;
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( group.timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    return taken( group.queue.poll() );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    try {
+      return taken( group.queue.poll( timeout, tu ) );
+    } catch ( InterruptedException e ) {
+      return null;
+    }
+  }
+
+  private Object[] taken( Object[] row ) {
+    if ( row != null ) {
+      rowsTaken++;
+    }
+    return row;
+  }
+
+  /**
+   * The row metadata is shared by the group: the target copies need it no matter which row set the source step copy
+   * used to put the rows.
+   */
+  @Override
+  public RowMetaInterface getRowMeta() {
+    return group.rowMeta;
+  }
+
+  @Override
+  public void setRowMeta( RowMetaInterface rowMeta ) {
+    group.rowMeta = rowMeta;
+  }
+
+  /**
+   * @return the number of rows in the shared buffer
+   */
+  @Override
+  public int size() {
+    return group.queue.size();
+  }
+
+  /**
+   * @return the number of rows the target step copy of this row set took out of the shared buffer
+   */
+  public long getRowsTaken() {
+    return rowsTaken;
+  }
+
+  @Override
+  public void clear() {
+    group.queue.clear();
+    done.set( false );
+  }
+
+  private static class Group {
+    private final BlockingQueue<Object[]> queue;
+    private final int timeoutPut;
+    private final int timeoutGet;
+    private volatile RowMetaInterface rowMeta;
+    private final List<SharedQueueRowSet> members = new ArrayList<SharedQueueRowSet>();
+
+    Group( int maxSize ) {
+      queue = new ArrayBlockingQueue<Object[]>( Math.max( 1, maxSize ), false );
+      timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+      timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+    }
+  }
+}
@@ -66,4 +66,11 @@ public class SingleRowRowSet extends BaseRowSet implements Comparable<RowSet>, R
     done.set( false );
   }
 
+  /**
+   * This row set isn't shared between threads, there is nothing to signal.
+   */
+  @Override
+  public boolean setConsumerSignal( RowSetSignal signal ) {
+    return false;
+  }
 }
@@ -4160,6 +4160,17 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     return rowMeta;
   }
 
+  /**
+   * Put back the row metadata of an earlier query, for example to keep using the lookup statement prepared with
+   * setLookup() after running another query on this connection.
+   *
+   * @param rowMeta
+   *          the row metadata returned by getReturnRowMeta() before the other query, null to determine it again
+   */
+  public void setReturnRowMeta( RowMetaInterface rowMeta ) {
+    this.rowMeta = rowMeta;
+  }
+
   public String[] getTableTypes() throws KettleDatabaseException {
     try {
       ArrayList<String> types = new ArrayList<>();
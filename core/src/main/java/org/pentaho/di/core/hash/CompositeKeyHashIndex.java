@@ -0,0 +1,247 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.hash;
+
+import java.util.Arrays;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowKeyComparator;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * An open addressing hash index for keys made up of several values, described by row metadata.
+ * <p>
+ * The key values of all entries are kept next to each other in one flat Object[], together with an int[] holding the
+ * hash code of every entry. Compared to a map keyed on RowMetaAndData this saves the key wrapper, the key array and the
+ * map entry for every element, and a lookup with an Object[] key doesn't allocate anything.
+ * <p>
+ * Keys are equal when all their values compare as equal with the value metadata, just like RowMetaAndData keys. Null
+ * values can't be stored, a null value marks an empty slot. A {@link RowKeyComparator} over the key metadata can take
+ * over the hashing and comparing of the keys.
+ *
+ * @param <V>
+ *          the type of the values
+ * @since 11.1
+ */
+public class CompositeKeyHashIndex<V> {
+
+  private static final int STANDARD_INDEX_SIZE = 512;
+  private static final float STANDARD_LOAD_FACTOR = 0.75f;
+
+  private final ValueMetaInterface[] keyMetas;
+  private final RowKeyComparator keyComparator;
+  private final int width;
+
+  private Object[] keys;
+  private int[] hashCodes;
+  private Object[] values;
+  private int mask;
+  private int size;
+  private int resizeThresHold;
+
+  /**
+   * Create a new composite key hash index
+   *
+   * @param keyMeta
+   *          the description of the key values, in normal storage
+   * @param size
+   *          the initial size of the hash index
+   */
+  public CompositeKeyHashIndex( RowMetaInterface keyMeta, int size ) {
+    this( keyMeta, null, size );
+  }
+
+  /**
+   * Create a new composite key hash index
+   *
+   * @param keyMeta
+   *          the description of the key values, in normal storage
+   * @param keyComparator
+   *          compares and hashes all the values of the keys, null to go through the key metadata
+   * @param size
+   *          the initial size of the hash index
+   */
+  public CompositeKeyHashIndex( RowMetaInterface keyMeta, RowKeyComparator keyComparator, int size ) {
+    this.keyMetas = keyMeta.getValueMetaList().toArray( new ValueMetaInterface[keyMeta.size()] );
+    this.keyComparator = keyComparator;
+    this.width = keyMetas.length;
+
+    // Find a suitable capacity being a factor of 2:
+    int factor2Size = 2;
+    while ( factor2Size < size ) {
+      factor2Size <<= 1; // Multiply by 2
+    }
+    allocate( factor2Size );
+  }
+
+  /**
+   * Create a new composite key hash index
+   *
+   * @param keyMeta
+   *          the description of the key values, in normal storage
+   */
+  public CompositeKeyHashIndex( RowMetaInterface keyMeta ) {
+    this( keyMeta, STANDARD_INDEX_SIZE );
+  }
+
+  /**
+   * Create a new composite key hash index
+   *
+   * @param keyMeta
+   *          the description of the key values, in normal storage
+   * @param keyComparator
+   *          compares and hashes all the values of the keys, null to go through the key metadata
+   */
+  public CompositeKeyHashIndex( RowMetaInterface keyMeta, RowKeyComparator keyComparator ) {
+    this( keyMeta, keyComparator, STANDARD_INDEX_SIZE );
+  }
+
+  private void allocate( int capacity ) {
+    keys = new Object[capacity * width];
+    hashCodes = new int[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    resizeThresHold = (int) ( capacity * STANDARD_LOAD_FACTOR );
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @param keyData
+   *          the key values, at least as many as described by the key metadata
+   * @return the value stored for the key or null if there is none
+   * @throws KettleValueException
+   *           in case the key values can't be compared
+   */
+  @SuppressWarnings( "unchecked" )
+  public V get( Object[] keyData ) throws KettleValueException {
+    int hashCode = hashCode( keyData );
+    int slot = hashCode & mask;
+    Object value;
+    while ( ( value = values[slot] ) != null ) {
+      if ( hashCodes[slot] == hashCode && equalsKey( slot, keyData ) ) {
+        return (V) value;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Store a value for a key, replacing any value that was stored before. The key values are copied.
+   *
+   * @param keyData
+   *          the key values
+   * @param value
+   *          the value, not null
+   * @return the value previously stored for the key or null if there was none
+   * @throws KettleValueException
+   *           in case the key values can't be compared
+   */
+  @SuppressWarnings( "unchecked" )
+  public V put( Object[] keyData, V value ) throws KettleValueException {
+    if ( value == null ) {
+      throw new IllegalArgumentException( "Null values can't be stored in a composite key hash index" );
+    }
+    int hashCode = hashCode( keyData );
+    int slot = hashCode & mask;
+    Object check;
+    while ( ( check = values[slot] ) != null ) {
+      if ( hashCodes[slot] == hashCode && equalsKey( slot, keyData ) ) {
+        values[slot] = value;
+        return (V) check;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    System.arraycopy( keyData, 0, keys, slot * width, width );
+    hashCodes[slot] = hashCode;
+    values[slot] = value;
+
+    if ( ++size >= resizeThresHold ) {
+      resize();
+    }
+    return null;
+  }
+
+  private int hashCode( Object[] keyData ) throws KettleValueException {
+    if ( keyComparator == null ) {
+      return generateHashCode( keyData, width );
+    }
+    int hashCode = keyComparator.hashCode( keyData );
+    return hashCode ^ ( hashCode >>> 16 );
+  }
+
+  private boolean equalsKey( int slot, Object[] keyData ) throws KettleValueException {
+    int offset = slot * width;
+    if ( keyComparator != null ) {
+      return keyComparator.compare( keys, offset, keyData, 0 ) == 0;
+    }
+    for ( int i = 0; i < width; i++ ) {
+      if ( keyMetas[i].compare( keys[offset + i], keyData[i] ) != 0 ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void resize() {
+    Object[] oldKeys = keys;
+    int[] oldHashCodes = hashCodes;
+    Object[] oldValues = values;
+
+    // Double the size to keep the size of the index a factor of 2...
+    //
+    allocate( oldValues.length * 2 );
+
+    for ( int i = 0; i < oldValues.length; i++ ) {
+      if ( oldValues[i] != null ) {
+        int slot = oldHashCodes[i] & mask;
+        while ( values[slot] != null ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        System.arraycopy( oldKeys, i * width, keys, slot * width, width );
+        hashCodes[slot] = oldHashCodes[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * Calculate the hash code of the first width values of the key, the same way as Arrays.deepHashCode() does. The
+   * result is spread so that the low bits can be used as the slot number.
+   */
+  public static int generateHashCode( Object[] keyData, int width ) {
+    int hashCode = 1;
+    for ( int i = 0; i < width; i++ ) {
+      Object value = keyData[i];
+      int valueHashCode;
+      if ( value == null ) {
+        valueHashCode = 0;
+      } else if ( value instanceof byte[] ) {
+        valueHashCode = Arrays.hashCode( (byte[]) value );
+      } else {
+        valueHashCode = value.hashCode();
+      }
+      hashCode = 31 * hashCode + valueHashCode;
+    }
+    return hashCode ^ ( hashCode >>> 16 );
+  }
+}
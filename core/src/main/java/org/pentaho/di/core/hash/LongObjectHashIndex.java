@@ -0,0 +1,156 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.hash;
+
+/**
+ * An open addressing hash index with primitive long keys and object values.
+ * <p>
+ * Keys are kept in a long[] and values in a parallel Object[]: there are no entry objects and no boxed keys, and a
+ * lookup doesn't allocate anything. Collisions are resolved with linear probing. An empty slot is marked by a null
+ * value, so null values can't be stored.
+ *
+ * @param <V>
+ *          the type of the values
+ * @since 11.1
+ */
+public class LongObjectHashIndex<V> {
+
+  private static final int STANDARD_INDEX_SIZE = 512;
+  private static final float STANDARD_LOAD_FACTOR = 0.75f;
+
+  private long[] keys;
+  private Object[] values;
+  private int mask;
+  private int size;
+  private int resizeThresHold;
+
+  /**
+   * Create a new long/object hash index
+   *
+   * @param size
+   *          the initial size of the hash index
+   */
+  public LongObjectHashIndex( int size ) {
+    // Find a suitable capacity being a factor of 2:
+    int factor2Size = 2;
+    while ( factor2Size < size ) {
+      factor2Size <<= 1; // Multiply by 2
+    }
+    allocate( factor2Size );
+  }
+
+  /**
+   * Create a new long/object hash index
+   */
+  public LongObjectHashIndex() {
+    this( STANDARD_INDEX_SIZE );
+  }
+
+  private void allocate( int capacity ) {
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    resizeThresHold = (int) ( capacity * STANDARD_LOAD_FACTOR );
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @param key
+   *          the key to look up
+   * @return the value stored for the key or null if there is none
+   */
+  @SuppressWarnings( "unchecked" )
+  public V get( long key ) {
+    int slot = generateHashCode( key ) & mask;
+    Object value;
+    while ( ( value = values[slot] ) != null ) {
+      if ( keys[slot] == key ) {
+        return (V) value;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Store a value for a key, replacing any value that was stored before.
+   *
+   * @param key
+   *          the key
+   * @param value
+   *          the value, not null
+   * @return the value previously stored for the key or null if there was none
+   */
+  @SuppressWarnings( "unchecked" )
+  public V put( long key, V value ) {
+    if ( value == null ) {
+      throw new IllegalArgumentException( "Null values can't be stored in a long/object hash index" );
+    }
+    int slot = generateHashCode( key ) & mask;
+    Object check;
+    while ( ( check = values[slot] ) != null ) {
+      if ( keys[slot] == key ) {
+        values[slot] = value;
+        return (V) check;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+
+    if ( ++size >= resizeThresHold ) {
+      resize();
+    }
+    return null;
+  }
+
+  private void resize() {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+
+    // Double the size to keep the size of the index a factor of 2...
+    //
+    allocate( oldKeys.length * 2 );
+
+    for ( int i = 0; i < oldKeys.length; i++ ) {
+      if ( oldValues[i] != null ) {
+        int slot = generateHashCode( oldKeys[i] ) & mask;
+        while ( values[slot] != null ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * Spread the bits of the key over the hash code. Without this, keys that only differ in their high bits (or that are
+   * all multiples of a power of 2) would end up in long runs of adjacent slots.
+   */
+  public static int generateHashCode( long key ) {
+    long hash = key;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return (int) hash;
+  }
+}
@@ -0,0 +1,184 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.memory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The memory reserved by one consumer, typically a step copy, from a {@link MemoryManager}.
+ * <p>
+ * A grant is used by the thread of its consumer. The manager only ever flags a spill request from other threads, the
+ * consumer acts on it at a point where it is safe to do so and calls {@link #spilled()} afterwards.
+ *
+ * @since 11.1
+ */
+public class MemoryGrant {
+  private final MemoryManager manager;
+  private final String owner;
+  private final boolean spillable;
+
+  private final AtomicLong reserved = new AtomicLong();
+  private final AtomicLong peak = new AtomicLong();
+  private final AtomicLong spills = new AtomicLong();
+  private volatile boolean spillRequested;
+  private volatile boolean closed;
+
+  MemoryGrant( MemoryManager manager, String owner, boolean spillable ) {
+    this.manager = manager;
+    this.owner = owner;
+    this.spillable = spillable;
+  }
+
+  /**
+   * Reserve memory.
+   *
+   * @param bytes
+   *          the number of bytes about to be used
+   * @return false if the memory isn't available, nothing is reserved in that case and the consumer should make room
+   *         before using more memory
+   */
+  public boolean reserve( long bytes ) {
+    if ( closed || !manager.reserve( this, bytes ) ) {
+      return false;
+    }
+    updatePeak( reserved.addAndGet( bytes ) );
+    return true;
+  }
+
+  /**
+   * Reserve memory that is needed regardless of the limit, for example to hold a lookup table that can't be spilled.
+   * The memory is accounted for so that other consumers get asked to make room.
+   *
+   * @param bytes
+   *          the number of bytes used
+   */
+  public void forceReserve( long bytes ) {
+    if ( closed ) {
+      return;
+    }
+    manager.forceReserve( this, bytes );
+    updatePeak( reserved.addAndGet( bytes ) );
+  }
+
+  private void updatePeak( long current ) {
+    long max = peak.get();
+    while ( current > max && !peak.compareAndSet( max, current ) ) {
+      max = peak.get();
+    }
+  }
+
+  /**
+   * Give back memory obtained from this grant.
+   *
+   * @param bytes
+   *          the number of bytes no longer used
+   */
+  public void release( long bytes ) {
+    long current = reserved.get();
+    long toRelease = Math.min( current, bytes );
+    while ( toRelease > 0 && !reserved.compareAndSet( current, current - toRelease ) ) {
+      current = reserved.get();
+      toRelease = Math.min( current, bytes );
+    }
+    if ( toRelease > 0 ) {
+      manager.release( toRelease );
+    }
+  }
+
+  /**
+   * Give back all the memory reserved by this grant.
+   */
+  public void releaseAll() {
+    long bytes = reserved.getAndSet( 0L );
+    if ( bytes > 0 ) {
+      manager.release( bytes );
+    }
+  }
+
+  /**
+   * Release everything and unregister from the manager. The grant can't be used anymore afterwards.
+   */
+  public void close() {
+    closed = true;
+    releaseAll();
+    spillRequested = false;
+    manager.unregister( this );
+  }
+
+  boolean requestSpill() {
+    if ( closed || spillRequested ) {
+      return false;
+    }
+    spillRequested = true;
+    return true;
+  }
+
+  /**
+   * @return true if the manager asked this consumer to give back memory
+   */
+  public boolean isSpillRequested() {
+    return spillRequested;
+  }
+
+  /**
+   * Signal that the consumer gave back memory, typically by writing its buffer to disk. This also clears a pending
+   * spill request.
+   */
+  public void spilled() {
+    spillRequested = false;
+    spills.incrementAndGet();
+  }
+
+  /**
+   * @return the name of the consumer
+   */
+  public String getOwner() {
+    return owner;
+  }
+
+  /**
+   * @return true if the consumer can give back memory on request
+   */
+  public boolean isSpillable() {
+    return spillable;
+  }
+
+  /**
+   * @return the number of bytes reserved at the moment
+   */
+  public long getReserved() {
+    return reserved.get();
+  }
+
+  /**
+   * @return the highest number of bytes reserved at any one time
+   */
+  public long getPeak() {
+    return peak.get();
+  }
+
+  /**
+   * @return the number of times the consumer gave back memory
+   */
+  public long getSpills() {
+    return spills.get();
+  }
+
+  /**
+   * @return the manager this grant reserves memory from
+   */
+  public MemoryManager getManager() {
+    return manager;
+  }
+}
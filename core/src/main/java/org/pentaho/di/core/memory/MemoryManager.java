@@ -0,0 +1,264 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.memory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the memory used by the buffers and caches of the steps of a transformation within a fixed limit.
+ * <p>
+ * Steps don't look at the free heap memory on their own anymore, they reserve what they are about to use through a
+ * {@link MemoryGrant} and give it back when done. When a reservation is refused, the step has to make room itself
+ * (dump to disk, stop caching, ...) before buffering more. The steps holding the largest spillable grants are asked
+ * to spill as well so that the memory doesn't stay with the step that happened to come first.
+ * <p>
+ * Managers can be nested: the managers of the transformations running on a Carte server have the manager of the
+ * server as parent, so a reservation has to fit in both limits. That way transformations sharing a JVM don't
+ * overcommit together.
+ *
+ * @since 11.1
+ */
+public class MemoryManager {
+
+  /** Object header + compressed reference size, used to estimate heap usage */
+  private static final int OBJECT_HEADER = 16;
+  private static final int REFERENCE = 4;
+
+  private final String name;
+  private final long limit;
+  private final MemoryManager parent;
+  private final AtomicLong used = new AtomicLong();
+
+  private final List<MemoryGrant> grants = new CopyOnWriteArrayList<>();
+  private final List<MemoryManager> children = new CopyOnWriteArrayList<>();
+
+  /**
+   * Create a top level memory manager.
+   *
+   * @param name
+   *          the name to report in logging
+   * @param limit
+   *          the maximum number of bytes that can be reserved
+   */
+  public MemoryManager( String name, long limit ) {
+    this( name, limit, null );
+  }
+
+  /**
+   * Create a memory manager that also reserves all memory from a parent manager.
+   *
+   * @param name
+   *          the name to report in logging
+   * @param limit
+   *          the maximum number of bytes that can be reserved, use Long.MAX_VALUE to only be limited by the parent
+   * @param parent
+   *          the parent manager or null
+   */
+  public MemoryManager( String name, long limit, MemoryManager parent ) {
+    this.name = name;
+    this.limit = limit;
+    this.parent = parent;
+    if ( parent != null ) {
+      parent.children.add( this );
+    }
+  }
+
+  /**
+   * Register a new memory consumer.
+   *
+   * @param owner
+   *          the name of the consumer, usually the step name and copy number
+   * @param spillable
+   *          true if the consumer can give back memory when asked to, see {@link MemoryGrant#isSpillRequested()}
+   * @return the new grant, nothing is reserved yet
+   */
+  public MemoryGrant createGrant( String owner, boolean spillable ) {
+    MemoryGrant grant = new MemoryGrant( this, owner, spillable );
+    grants.add( grant );
+    return grant;
+  }
+
+  void unregister( MemoryGrant grant ) {
+    grants.remove( grant );
+  }
+
+  /**
+   * Stop using this manager: it is detached from its parent. The grants still registered are released.
+   */
+  public void close() {
+    for ( MemoryGrant grant : grants ) {
+      grant.close();
+    }
+    if ( parent != null ) {
+      parent.children.remove( this );
+    }
+  }
+
+  boolean reserve( MemoryGrant requester, long bytes ) {
+    if ( !tryReserve( bytes ) ) {
+      requestSpill( requester, bytes );
+      return false;
+    }
+    if ( parent != null && !parent.reserve( requester, bytes ) ) {
+      used.addAndGet( -bytes );
+      return false;
+    }
+    return true;
+  }
+
+  void forceReserve( MemoryGrant requester, long bytes ) {
+    if ( used.addAndGet( bytes ) > limit ) {
+      requestSpill( requester, bytes );
+    }
+    if ( parent != null ) {
+      parent.forceReserve( requester, bytes );
+    }
+  }
+
+  void release( long bytes ) {
+    used.addAndGet( -bytes );
+    if ( parent != null ) {
+      parent.release( bytes );
+    }
+  }
+
+  private boolean tryReserve( long bytes ) {
+    while ( true ) {
+      long current = used.get();
+      long next = current + bytes;
+      if ( next > limit ) {
+        return false;
+      }
+      if ( used.compareAndSet( current, next ) ) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Ask the largest spillable consumers under this manager to give back memory until, once they did, the requested
+   * amount would fit. The requester itself is left alone: it already knows its reservation was refused.
+   */
+  private void requestSpill( MemoryGrant requester, long bytes ) {
+    List<MemoryGrant> candidates = new ArrayList<>();
+    collectSpillable( candidates, requester );
+    Collections.sort( candidates, Comparator.comparingLong( MemoryGrant::getReserved ).reversed() );
+
+    long needed = used.get() + bytes - limit;
+    for ( MemoryGrant grant : candidates ) {
+      if ( needed <= 0 ) {
+        break;
+      }
+      if ( grant.requestSpill() ) {
+        needed -= grant.getReserved();
+      }
+    }
+  }
+
+  private void collectSpillable( List<MemoryGrant> candidates, MemoryGrant requester ) {
+    for ( MemoryGrant grant : grants ) {
+      if ( grant != requester && grant.isSpillable() && grant.getReserved() > 0 ) {
+        candidates.add( grant );
+      }
+    }
+    for ( MemoryManager child : children ) {
+      child.collectSpillable( candidates, requester );
+    }
+  }
+
+  /**
+   * @return the name to report in logging
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the maximum number of bytes that can be reserved
+   */
+  public long getLimit() {
+    return limit;
+  }
+
+  /**
+   * @return the number of bytes reserved at the moment, including the reservations of nested managers
+   */
+  public long getUsed() {
+    return used.get();
+  }
+
+  /**
+   * @return the parent manager or null
+   */
+  public MemoryManager getParent() {
+    return parent;
+  }
+
+  /**
+   * @return the grants currently registered with this manager
+   */
+  public List<MemoryGrant> getGrants() {
+    return Collections.unmodifiableList( grants );
+  }
+
+  /**
+   * Estimate the number of bytes a row takes on the heap. This is only meant to be in the right ballpark, cheap
+   * enough to call for every row.
+   *
+   * @param row
+   *          the row data
+   * @return the estimated size in bytes
+   */
+  public static long estimateRowSize( Object[] row ) {
+    if ( row == null ) {
+      return 0;
+    }
+    long size = OBJECT_HEADER + (long) REFERENCE * row.length;
+    for ( Object value : row ) {
+      size += estimateValueSize( value );
+    }
+    return size;
+  }
+
+  /**
+   * @param value
+   *          a value of a row
+   * @return the estimated size in bytes on the heap
+   */
+  public static long estimateValueSize( Object value ) {
+    if ( value == null || value instanceof Boolean ) {
+      return 0; // Nothing or a shared instance
+    }
+    if ( value instanceof String ) {
+      // String object + array, assume 2 bytes per character to be on the safe side
+      return OBJECT_HEADER * 3 + 2L * ( (String) value ).length();
+    }
+    if ( value instanceof byte[] ) {
+      return OBJECT_HEADER + ( (byte[]) value ).length;
+    }
+    if ( value instanceof Long || value instanceof Double ) {
+      return OBJECT_HEADER + 8;
+    }
+    if ( value instanceof BigDecimal ) {
+      return OBJECT_HEADER * 3 + ( (BigDecimal) value ).precision() / 2;
+    }
+    return OBJECT_HEADER * 2;
+  }
+}
@@ -0,0 +1,381 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.util.Arrays;
+
+/**
+ * The values of one field for all the rows in a {@link RowBatch}.
+ * <p>
+ * Integers, numbers and booleans in normal storage are kept in primitive arrays, everything else (strings, dates, big
+ * numbers, lazy converted binary strings, ...) is kept as-is in an object array. Null values are tracked in a bitmap
+ * so that primitive columns don't need boxed values to represent them.
+ * <p>
+ * A repeating vector holds a single value which is the value for every row in the batch. That way constant values can
+ * be added to a batch without copying them for every row.
+ *
+ * @since 11.1
+ */
+public class ColumnVector {
+
+  /** The values are stored in a long[] */
+  public static final int KIND_LONG = 0;
+
+  /** The values are stored in a double[] */
+  public static final int KIND_DOUBLE = 1;
+
+  /** The values are stored in a boolean[] */
+  public static final int KIND_BOOLEAN = 2;
+
+  /** The values are stored as-is in an Object[] */
+  public static final int KIND_OBJECT = 3;
+
+  private final ValueMetaInterface valueMeta;
+  private final int kind;
+  private final boolean repeating;
+
+  private long[] longs;
+  private double[] doubles;
+  private boolean[] booleans;
+  private Object[] objects;
+
+  private long[] nulls;
+  private boolean hasNulls;
+  private int capacity;
+
+  /**
+   * Create a new empty column vector for values described by the given value metadata.
+   *
+   * @param valueMeta
+   *          the description of the values
+   * @param capacity
+   *          the number of values to allocate room for
+   */
+  public ColumnVector( ValueMetaInterface valueMeta, int capacity ) {
+    this( valueMeta, capacity, false );
+  }
+
+  private ColumnVector( ValueMetaInterface valueMeta, int capacity, boolean repeating ) {
+    this.valueMeta = valueMeta;
+    this.kind = getKind( valueMeta );
+    this.repeating = repeating;
+    allocate( repeating ? 1 : Math.max( 1, capacity ) );
+  }
+
+  /**
+   * Create a vector that has the same value for every row.
+   *
+   * @param valueMeta
+   *          the description of the value
+   * @param value
+   *          the value (in the storage format described by valueMeta), null is allowed
+   * @return the new repeating vector
+   */
+  public static ColumnVector repeating( ValueMetaInterface valueMeta, Object value ) {
+    ColumnVector vector = new ColumnVector( valueMeta, 1, true );
+    vector.setObject( 0, value );
+    return vector;
+  }
+
+  /**
+   * Determine how the values of the given value metadata are kept in a vector.
+   *
+   * @param valueMeta
+   *          the value metadata
+   * @return one of the KIND_ constants
+   */
+  public static int getKind( ValueMetaInterface valueMeta ) {
+    if ( valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+      return KIND_OBJECT;
+    }
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return KIND_LONG;
+      case ValueMetaInterface.TYPE_NUMBER:
+        return KIND_DOUBLE;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return KIND_BOOLEAN;
+      default:
+        return KIND_OBJECT;
+    }
+  }
+
+  private void allocate( int capacity ) {
+    switch ( kind ) {
+      case KIND_LONG:
+        longs = new long[capacity];
+        break;
+      case KIND_DOUBLE:
+        doubles = new double[capacity];
+        break;
+      case KIND_BOOLEAN:
+        booleans = new boolean[capacity];
+        break;
+      default:
+        objects = new Object[capacity];
+        break;
+    }
+    nulls = new long[( capacity + 63 ) >>> 6];
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return the description of the values in this vector
+   */
+  public ValueMetaInterface getValueMeta() {
+    return valueMeta;
+  }
+
+  /**
+   * @return one of the KIND_ constants
+   */
+  public int getKind() {
+    return kind;
+  }
+
+  /**
+   * @return true if this vector holds the same value for every row
+   */
+  public boolean isRepeating() {
+    return repeating;
+  }
+
+  /**
+   * @return the number of values this vector can hold without growing
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Make sure this vector can hold at least the given number of values.
+   *
+   * @param capacity
+   *          the required capacity
+   */
+  public void ensureCapacity( int capacity ) {
+    if ( repeating ) {
+      return;
+    }
+    if ( this.capacity >= capacity ) {
+      return;
+    }
+    int newCapacity = Math.max( capacity, this.capacity * 2 );
+    switch ( kind ) {
+      case KIND_LONG:
+        longs = Arrays.copyOf( longs, newCapacity );
+        break;
+      case KIND_DOUBLE:
+        doubles = Arrays.copyOf( doubles, newCapacity );
+        break;
+      case KIND_BOOLEAN:
+        booleans = Arrays.copyOf( booleans, newCapacity );
+        break;
+      default:
+        objects = Arrays.copyOf( objects, newCapacity );
+        break;
+    }
+    nulls = Arrays.copyOf( nulls, ( newCapacity + 63 ) >>> 6 );
+    this.capacity = newCapacity;
+  }
+
+  private int index( int row ) {
+    return repeating ? 0 : row;
+  }
+
+  /**
+   * @return true if at least one value in this vector is null
+   */
+  public boolean hasNulls() {
+    return hasNulls;
+  }
+
+  public boolean isNull( int row ) {
+    int i = index( row );
+    return hasNulls && ( nulls[i >>> 6] & ( 1L << i ) ) != 0;
+  }
+
+  public void setNull( int row ) {
+    int i = index( row );
+    nulls[i >>> 6] |= 1L << i;
+    hasNulls = true;
+    if ( kind == KIND_OBJECT ) {
+      objects[i] = null;
+    }
+  }
+
+  private void setNotNull( int i ) {
+    if ( hasNulls ) {
+      nulls[i >>> 6] &= ~( 1L << i );
+    }
+  }
+
+  public long getLong( int row ) {
+    return longs[index( row )];
+  }
+
+  public void setLong( int row, long value ) {
+    int i = index( row );
+    longs[i] = value;
+    setNotNull( i );
+  }
+
+  public double getDouble( int row ) {
+    return doubles[index( row )];
+  }
+
+  public void setDouble( int row, double value ) {
+    int i = index( row );
+    doubles[i] = value;
+    setNotNull( i );
+  }
+
+  public boolean getBoolean( int row ) {
+    return booleans[index( row )];
+  }
+
+  public void setBoolean( int row, boolean value ) {
+    int i = index( row );
+    booleans[i] = value;
+    setNotNull( i );
+  }
+
+  /**
+   * Get a value in the row format: primitive values are boxed.
+   *
+   * @param row
+   *          the row number in the batch
+   * @return the value or null
+   */
+  public Object getObject( int row ) {
+    int i = index( row );
+    if ( hasNulls && ( nulls[i >>> 6] & ( 1L << i ) ) != 0 ) {
+      return null;
+    }
+    switch ( kind ) {
+      case KIND_LONG:
+        return Long.valueOf( longs[i] );
+      case KIND_DOUBLE:
+        return Double.valueOf( doubles[i] );
+      case KIND_BOOLEAN:
+        return Boolean.valueOf( booleans[i] );
+      default:
+        return objects[i];
+    }
+  }
+
+  /**
+   * Set a value in the row format: primitive values are unboxed.
+   *
+   * @param row
+   *          the row number in the batch
+   * @param value
+   *          the value or null
+   */
+  public void setObject( int row, Object value ) {
+    if ( value == null ) {
+      setNull( row );
+      return;
+    }
+    switch ( kind ) {
+      case KIND_LONG:
+        setLong( row, ( (Number) value ).longValue() );
+        break;
+      case KIND_DOUBLE:
+        setDouble( row, ( (Number) value ).doubleValue() );
+        break;
+      case KIND_BOOLEAN:
+        setBoolean( row, ( (Boolean) value ).booleanValue() );
+        break;
+      default:
+        int i = index( row );
+        objects[i] = value;
+        setNotNull( i );
+        break;
+    }
+  }
+
+  /**
+   * Copy the value of one row to another row in the same vector.
+   */
+  void move( int from, int to ) {
+    if ( repeating || from == to ) {
+      return;
+    }
+    if ( isNull( from ) ) {
+      setNull( to );
+      return;
+    }
+    switch ( kind ) {
+      case KIND_LONG:
+        setLong( to, longs[from] );
+        break;
+      case KIND_DOUBLE:
+        setDouble( to, doubles[from] );
+        break;
+      case KIND_BOOLEAN:
+        setBoolean( to, booleans[from] );
+        break;
+      default:
+        objects[to] = objects[from];
+        setNotNull( to );
+        break;
+    }
+  }
+
+  /**
+   * Create a copy of the first size values of this vector. Object values are not cloned.
+   *
+   * @param size
+   *          the number of values to copy
+   * @return the copy
+   */
+  public ColumnVector copy( int size ) {
+    ColumnVector copy = new ColumnVector( valueMeta, repeating ? 1 : size, repeating );
+    int length = repeating ? 1 : size;
+    switch ( kind ) {
+      case KIND_LONG:
+        System.arraycopy( longs, 0, copy.longs, 0, length );
+        break;
+      case KIND_DOUBLE:
+        System.arraycopy( doubles, 0, copy.doubles, 0, length );
+        break;
+      case KIND_BOOLEAN:
+        System.arraycopy( booleans, 0, copy.booleans, 0, length );
+        break;
+      default:
+        System.arraycopy( objects, 0, copy.objects, 0, length );
+        break;
+    }
+    System.arraycopy( nulls, 0, copy.nulls, 0, Math.min( nulls.length, copy.nulls.length ) );
+    copy.hasNulls = hasNulls;
+    return copy;
+  }
+
+  /**
+   * Forget about all values, keep the allocated memory.
+   */
+  public void reset() {
+    if ( repeating ) {
+      return;
+    }
+    if ( hasNulls ) {
+      Arrays.fill( nulls, 0L );
+      hasNulls = false;
+    }
+    if ( objects != null ) {
+      Arrays.fill( objects, null ); // prevent any hold-up to GC
+    }
+  }
+}
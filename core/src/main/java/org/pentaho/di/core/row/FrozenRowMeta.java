@@ -0,0 +1,313 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * An immutable snapshot of row metadata for use while rows are flowing.
+ * <p>
+ * {@link RowMeta} guards every access with a read-write lock, and looking up a field by name even takes the write lock
+ * to maintain its name cache. Steps call these methods per row and per field, so on hosts with many cores the lock
+ * traffic shows up high in profiles. This class keeps the value metadata in a plain array and precomputes the name to
+ * index mapping, so reads need no locking at all.
+ * <p>
+ * The list of fields can't be changed: all methods that would add, remove or replace value metadata throw an
+ * UnsupportedOperationException. The value metadata objects themselves are shared with the original row metadata, as
+ * before. Use {@link #clone()} to get a regular, modifiable copy.
+ *
+ * @since 11.1
+ */
+public class FrozenRowMeta extends RowMeta {
+
+  private final ValueMetaInterface[] valueMetas;
+  private final List<ValueMetaInterface> valueMetaListView;
+  private final Map<String, Integer> lowerCaseIndexes;
+  private final int[] needRealCloneIndexes;
+
+  /**
+   * Take a snapshot of the given row metadata.
+   *
+   * @param rowMeta
+   *          the row metadata to copy
+   */
+  public FrozenRowMeta( RowMetaInterface rowMeta ) {
+    super();
+    List<ValueMetaInterface> list = new ArrayList<>( rowMeta.getValueMetaList() );
+
+    // Also initialize the regular row metadata, for clone() and the methods that aren't used per row
+    //
+    super.setValueMetaList( list );
+
+    valueMetas = list.toArray( new ValueMetaInterface[0] );
+    valueMetaListView = Collections.unmodifiableList( Arrays.asList( valueMetas ) );
+    lowerCaseIndexes = new HashMap<>( valueMetas.length * 2 );
+    int nrRealClone = 0;
+    int[] realClone = new int[valueMetas.length];
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      String name = valueMetas[i].getName();
+      if ( name != null && !name.isEmpty() ) {
+        // Names are case insensitive and the first field with a name wins, same as in RowMeta
+        lowerCaseIndexes.putIfAbsent( name.toLowerCase(), i );
+      }
+      if ( valueMetas[i].requiresRealClone() ) {
+        realClone[nrRealClone++] = i;
+      }
+    }
+    needRealCloneIndexes = Arrays.copyOf( realClone, nrRealClone );
+  }
+
+  /**
+   * Get an immutable version of the given row metadata.
+   *
+   * @param rowMeta
+   *          the row metadata, can be null
+   * @return the same object if it is frozen already, a frozen snapshot otherwise or null
+   */
+  public static FrozenRowMeta freeze( RowMetaInterface rowMeta ) {
+    if ( rowMeta == null || rowMeta instanceof FrozenRowMeta ) {
+      return (FrozenRowMeta) rowMeta;
+    }
+    return new FrozenRowMeta( rowMeta );
+  }
+
+  @Override
+  public int size() {
+    return valueMetas.length;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return valueMetas.length == 0;
+  }
+
+  @Override
+  public ValueMetaInterface getValueMeta( int index ) {
+    if ( index >= 0 && index < valueMetas.length ) {
+      return valueMetas[index];
+    }
+    return null;
+  }
+
+  @Override
+  public List<ValueMetaInterface> getValueMetaList() {
+    return valueMetaListView;
+  }
+
+  @Override
+  public int indexOfValue( String valueName ) {
+    if ( valueName == null ) {
+      return -1;
+    }
+    Integer index = lowerCaseIndexes.get( valueName.toLowerCase() );
+    if ( index != null && valueName.equalsIgnoreCase( valueMetas[index].getName() ) ) {
+      return index;
+    }
+
+    // A value metadata could have been renamed since the snapshot was taken
+    //
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      if ( valueName.equalsIgnoreCase( valueMetas[i].getName() ) ) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public ValueMetaInterface searchValueMeta( String valueName ) {
+    int index = indexOfValue( valueName );
+    return index < 0 ? null : valueMetas[index];
+  }
+
+  @Override
+  public String[] getFieldNames() {
+    String[] fieldNames = new String[valueMetas.length];
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      String valueName = valueMetas[i].getName();
+      fieldNames[i] = valueName == null ? "" : valueName;
+    }
+    return fieldNames;
+  }
+
+  @Override
+  public Object[] cloneRow( Object[] objects, Object[] newObjects ) throws KettleValueException {
+    for ( int i : needRealCloneIndexes ) {
+      newObjects[i] = valueMetas[i].cloneValueData( objects[i] );
+    }
+    return newObjects;
+  }
+
+  @Override
+  public void writeData( DataOutputStream outputStream, Object[] data ) throws KettleFileException {
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      valueMetas[i].writeData( outputStream, data[i] );
+    }
+
+    // Same marker flag as RowMeta to detect an EOF on the other end
+    //
+    if ( valueMetas.length == 0 ) {
+      try {
+        outputStream.writeBoolean( true );
+      } catch ( IOException e ) {
+        throw new KettleFileException( "Error writing marker flag", e );
+      }
+    }
+  }
+
+  @Override
+  public Object[] readData( DataInputStream inputStream ) throws KettleFileException, SocketTimeoutException {
+    Object[] data = new Object[valueMetas.length];
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      data[i] = valueMetas[i].readData( inputStream );
+    }
+    if ( valueMetas.length == 0 ) {
+      try {
+        inputStream.readBoolean();
+      } catch ( EOFException e ) {
+        throw new KettleEOFException( e );
+      } catch ( SocketTimeoutException e ) {
+        throw e;
+      } catch ( IOException e ) {
+        throw new KettleFileException( toString() + " : Unable to read the marker flag data from input stream", e );
+      }
+    }
+    return data;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2, int[] fieldnrs ) throws KettleValueException {
+    for ( int fieldnr : fieldnrs ) {
+      int cmp = getValueMeta( fieldnr ).compare( rowData1[fieldnr], rowData2[fieldnr] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public boolean equals( Object[] rowData1, Object[] rowData2, int[] fieldnrs ) throws KettleValueException {
+    return compare( rowData1, rowData2, fieldnrs ) == 0;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2, int[] fieldnrs1, int[] fieldnrs2 )
+    throws KettleValueException {
+    int len = Math.min( fieldnrs1.length, fieldnrs2.length );
+    for ( int i = 0; i < len; i++ ) {
+      int cmp = getValueMeta( fieldnrs1[i] ).compare( rowData1[fieldnrs1[i]], rowData2[fieldnrs2[i]] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, RowMetaInterface rowMeta2, Object[] rowData2, int[] fieldnrs1,
+                      int[] fieldnrs2 ) throws KettleValueException {
+    int len = Math.min( fieldnrs1.length, fieldnrs2.length );
+    for ( int i = 0; i < len; i++ ) {
+      ValueMetaInterface valueMeta2 = rowMeta2.getValueMeta( fieldnrs2[i] );
+      int cmp = getValueMeta( fieldnrs1[i] ).compare( rowData1[fieldnrs1[i]], valueMeta2, rowData2[fieldnrs2[i]] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2 ) throws KettleValueException {
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      int cmp = valueMetas[i].compare( rowData1[i], rowData2[i] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  // The list of fields can't change
+  //
+
+  private static UnsupportedOperationException frozen() {
+    return new UnsupportedOperationException( "This row metadata cannot be modified, clone it first" );
+  }
+
+  @Override
+  public void setValueMetaList( List<ValueMetaInterface> valueMetaList ) {
+    throw frozen();
+  }
+
+  @Override
+  public void addValueMeta( ValueMetaInterface meta ) {
+    throw frozen();
+  }
+
+  @Override
+  public void addValueMeta( int index, ValueMetaInterface meta ) {
+    throw frozen();
+  }
+
+  @Override
+  public void setValueMeta( int index, ValueMetaInterface valueMeta ) {
+    throw frozen();
+  }
+
+  @Override
+  public void addRowMeta( RowMetaInterface rowMeta ) {
+    throw frozen();
+  }
+
+  @Override
+  public void mergeRowMeta( RowMetaInterface r ) {
+    throw frozen();
+  }
+
+  @Override
+  public void mergeRowMeta( RowMetaInterface r, String originStepName ) {
+    throw frozen();
+  }
+
+  @Override
+  public void removeValueMeta( String valueName ) throws KettleValueException {
+    throw frozen();
+  }
+
+  @Override
+  public void removeValueMeta( int index ) {
+    throw frozen();
+  }
+
+  @Override
+  public void clear() {
+    throw frozen();
+  }
+}
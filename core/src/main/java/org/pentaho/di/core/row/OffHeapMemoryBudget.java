@@ -0,0 +1,79 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the off-heap memory used by the row arenas of a transformation, so that the arenas of all the steps
+ * together stay within a fixed limit.
+ *
+ * @since 11.1
+ */
+public class OffHeapMemoryBudget {
+  private final long limit;
+  private final AtomicLong used = new AtomicLong();
+
+  /**
+   * @param limit
+   *          the maximum number of bytes that can be reserved
+   */
+  public OffHeapMemoryBudget( long limit ) {
+    this.limit = limit;
+  }
+
+  /**
+   * Reserve memory.
+   *
+   * @param bytes
+   *          the number of bytes to reserve
+   * @return false if the reservation would exceed the limit, nothing is reserved in that case
+   */
+  public boolean reserve( long bytes ) {
+    while ( true ) {
+      long current = used.get();
+      long next = current + bytes;
+      if ( next > limit ) {
+        return false;
+      }
+      if ( used.compareAndSet( current, next ) ) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Give back memory obtained with {@link #reserve(long)}.
+   *
+   * @param bytes
+   *          the number of bytes to release
+   */
+  public void release( long bytes ) {
+    used.addAndGet( -bytes );
+  }
+
+  /**
+   * @return the number of bytes reserved at the moment
+   */
+  public long getUsed() {
+    return used.get();
+  }
+
+  /**
+   * @return the maximum number of bytes that can be reserved
+   */
+  public long getLimit() {
+    return limit;
+  }
+}
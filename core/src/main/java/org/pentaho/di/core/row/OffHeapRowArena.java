@@ -0,0 +1,458 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.value.NormalizedKey;
+
+/**
+ * A {@link RowStore} that keeps its rows outside of the Java heap, so that buffering millions of rows doesn't make the
+ * garbage collector scan them over and over again.
+ * <p>
+ * Rows are serialized with {@link RowMetaInterface#writeData(DataOutputStream, Object[])} into direct byte buffers
+ * (slabs). The only thing kept on the heap is a pointer per row (slab number and offset) and, if requested, a
+ * normalized key prefix per row. Sorting only moves those pointers around. Rows are deserialized straight from the
+ * slabs when they are read back, and they are copied to temporary files without deserializing them at all.
+ * <p>
+ * Slabs are reserved from an {@link OffHeapMemoryBudget}, usually the one of the transformation. When the budget is
+ * used up, {@link #add(Object[])} returns false and the step should spill to disk. Slabs are kept when the arena is
+ * cleared and returned to the budget when it is closed.
+ * <p>
+ * An arena is not thread safe.
+ *
+ * @since 11.1
+ */
+public class OffHeapRowArena implements RowStore {
+
+  /** The default size of a slab: 4MB */
+  public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+  private static final int LENGTH_BYTES = 4;
+
+  private final RowMetaInterface rowMeta;
+  private final OffHeapMemoryBudget budget;
+  private final int slabSize;
+
+  private final List<ByteBuffer> slabs = new ArrayList<>();
+  private int currentSlab;
+  private long reserved;
+
+  private long[] pointers = new long[1024];
+  private long[] prefixes;
+  private ValueMetaInterface prefixMeta;
+  private int prefixIndex = -1;
+  private int size;
+
+  private final ScratchOutputStream scratch = new ScratchOutputStream();
+  private final DataOutputStream scratchOutput = new DataOutputStream( scratch );
+  private final SlabInputStream slabInput = new SlabInputStream();
+  private final DataInputStream slabDataInput = new DataInputStream( slabInput );
+
+  /**
+   * Create an arena with slabs of the default size.
+   *
+   * @param rowMeta
+   *          the description of the rows
+   * @param budget
+   *          the budget to reserve the slabs from, null for no limit
+   */
+  public OffHeapRowArena( RowMetaInterface rowMeta, OffHeapMemoryBudget budget ) {
+    this( rowMeta, budget, DEFAULT_SLAB_SIZE );
+  }
+
+  /**
+   * @param rowMeta
+   *          the description of the rows
+   * @param budget
+   *          the budget to reserve the slabs from, null for no limit
+   * @param slabSize
+   *          the size of the slabs in bytes. Rows larger than a slab get a slab of their own.
+   */
+  public OffHeapRowArena( RowMetaInterface rowMeta, OffHeapMemoryBudget budget, int slabSize ) {
+    this.rowMeta = rowMeta;
+    this.budget = budget;
+    this.slabSize = Math.max( 1024, slabSize );
+  }
+
+  /**
+   * Keep a normalized key prefix of a field for every row. Sorting on that field first then compares the prefixes and
+   * only deserializes the rows when the prefixes are equal. Nothing happens if the type of the field doesn't support
+   * prefixes (see {@link NormalizedKey#isSupported(ValueMetaInterface)}).
+   *
+   * @param fieldIndex
+   *          the index of the first sort key
+   */
+  public void setPrefixField( int fieldIndex ) {
+    if ( size > 0 ) {
+      throw new IllegalStateException( "The prefix field can only be set on an empty arena" );
+    }
+    ValueMetaInterface valueMeta = fieldIndex < 0 ? null : rowMeta.getValueMeta( fieldIndex );
+    if ( NormalizedKey.isSupported( valueMeta ) ) {
+      prefixMeta = valueMeta;
+      prefixIndex = fieldIndex;
+      prefixes = new long[pointers.length];
+    } else {
+      prefixMeta = null;
+      prefixIndex = -1;
+      prefixes = null;
+    }
+  }
+
+  /**
+   * @return true if a normalized key prefix is kept for every row
+   */
+  public boolean isUsingPrefixes() {
+    return prefixes != null;
+  }
+
+  @Override
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  @Override
+  public boolean add( Object[] row ) throws KettleValueException {
+    long prefix = prefixMeta == null ? 0L : NormalizedKey.getPrefix( prefixMeta, row[prefixIndex] );
+
+    scratch.reset();
+    try {
+      rowMeta.writeData( scratchOutput, row );
+    } catch ( KettleFileException e ) {
+      throw new KettleValueException( "Unable to serialize a row in the row arena", e );
+    }
+    int length = scratch.size();
+
+    ByteBuffer slab = getSlab( LENGTH_BYTES + length );
+    if ( slab == null ) {
+      return false;
+    }
+
+    if ( size == pointers.length ) {
+      pointers = Arrays.copyOf( pointers, size * 2 );
+      if ( prefixes != null ) {
+        prefixes = Arrays.copyOf( prefixes, size * 2 );
+      }
+    }
+    pointers[size] = ( (long) currentSlab << 32 ) | slab.position();
+    if ( prefixes != null ) {
+      prefixes[size] = prefix;
+    }
+    size++;
+
+    slab.putInt( length );
+    slab.put( scratch.getBuffer(), 0, length );
+    return true;
+  }
+
+  /**
+   * Find a slab with room for the given number of bytes, allocate a new one if needed.
+   *
+   * @return the slab or null if the budget doesn't allow for a new slab
+   */
+  private ByteBuffer getSlab( int bytes ) {
+    while ( currentSlab < slabs.size() ) {
+      ByteBuffer slab = slabs.get( currentSlab );
+      if ( slab.remaining() >= bytes ) {
+        return slab;
+      }
+      if ( currentSlab == slabs.size() - 1 ) {
+        break;
+      }
+      currentSlab++;
+    }
+
+    int capacity = Math.max( slabSize, bytes );
+    if ( budget != null && !budget.reserve( capacity ) ) {
+      return null;
+    }
+    ByteBuffer slab;
+    try {
+      slab = ByteBuffer.allocateDirect( capacity );
+    } catch ( OutOfMemoryError e ) {
+      // Out of direct memory: handle it like an exhausted budget, the caller can spill to disk.
+      if ( budget != null ) {
+        budget.release( capacity );
+      }
+      return null;
+    }
+    reserved += capacity;
+    slabs.add( slab );
+    currentSlab = slabs.size() - 1;
+    return slab;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Object[] get( int index ) throws KettleValueException {
+    if ( index < 0 || index >= size ) {
+      throw new IndexOutOfBoundsException( "Row " + index + " requested from an arena with " + size + " rows" );
+    }
+    long pointer = pointers[index];
+    ByteBuffer slab = slabs.get( (int) ( pointer >>> 32 ) );
+    int offset = (int) pointer;
+    int length = slab.getInt( offset );
+
+    slabInput.setRange( slab, offset + LENGTH_BYTES, length );
+    try {
+      return rowMeta.readData( slabDataInput );
+    } catch ( KettleFileException | IOException e ) {
+      throw new KettleValueException( "Unable to read back a row from the row arena", e );
+    }
+  }
+
+  @Override
+  public void writeRow( int index, DataOutputStream outputStream ) throws KettleFileException {
+    long pointer = pointers[index];
+    ByteBuffer slab = slabs.get( (int) ( pointer >>> 32 ) );
+    int offset = (int) pointer;
+    int length = slab.getInt( offset );
+
+    // Copy the serialized row as-is, it's already in the writeData() format
+    byte[] buffer = scratch.getBuffer( length );
+    slab.get( offset + LENGTH_BYTES, buffer, 0, length );
+    try {
+      outputStream.write( buffer, 0, length );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write a row from the row arena", e );
+    }
+  }
+
+  @Override
+  public void sort( Comparator<Object[]> comparator ) throws KettleValueException {
+    if ( size < 2 ) {
+      return;
+    }
+    int[] order = new int[size];
+    for ( int i = 0; i < size; i++ ) {
+      order[i] = i;
+    }
+
+    RowCache cache = new RowCache();
+    try {
+      mergeSort( order, order.clone(), 0, size, ( a, b ) -> {
+        if ( prefixes != null && prefixes[a] != prefixes[b] ) {
+          return prefixes[a] < prefixes[b] ? -1 : 1;
+        }
+        return comparator.compare( cache.get( a ), cache.get( b ) );
+      } );
+    } catch ( ArenaException e ) {
+      throw e.getCause();
+    }
+
+    long[] sortedPointers = new long[pointers.length];
+    long[] sortedPrefixes = prefixes == null ? null : new long[prefixes.length];
+    for ( int i = 0; i < size; i++ ) {
+      sortedPointers[i] = pointers[order[i]];
+      if ( sortedPrefixes != null ) {
+        sortedPrefixes[i] = prefixes[order[i]];
+      }
+    }
+    pointers = sortedPointers;
+    prefixes = sortedPrefixes;
+  }
+
+  /**
+   * Stable top-down merge sort of array[from, to) using the same range of buffer as scratch space.
+   */
+  private static void mergeSort( int[] array, int[] buffer, int from, int to, IndexComparator comparator ) {
+    if ( to - from < 16 ) {
+      // Insertion sort for the small ranges
+      for ( int i = from + 1; i < to; i++ ) {
+        int value = array[i];
+        int j = i - 1;
+        while ( j >= from && comparator.compare( array[j], value ) > 0 ) {
+          array[j + 1] = array[j];
+          j--;
+        }
+        array[j + 1] = value;
+      }
+      return;
+    }
+    int middle = ( from + to ) >>> 1;
+    mergeSort( array, buffer, from, middle, comparator );
+    mergeSort( array, buffer, middle, to, comparator );
+    if ( comparator.compare( array[middle - 1], array[middle] ) <= 0 ) {
+      return; // Already in order
+    }
+    int left = from;
+    int right = middle;
+    int target = from;
+    while ( left < middle && right < to ) {
+      // Take from the left on equal keys to keep the sort stable
+      buffer[target++] = comparator.compare( array[right], array[left] ) < 0 ? array[right++] : array[left++];
+    }
+    while ( left < middle ) {
+      buffer[target++] = array[left++];
+    }
+    while ( right < to ) {
+      buffer[target++] = array[right++];
+    }
+    System.arraycopy( buffer, from, array, from, to - from );
+  }
+
+  @Override
+  public long getMemoryUsage() {
+    return reserved;
+  }
+
+  @Override
+  public void clear() {
+    for ( ByteBuffer slab : slabs ) {
+      slab.clear();
+    }
+    currentSlab = 0;
+    size = 0;
+  }
+
+  @Override
+  public void close() {
+    clear();
+    slabs.clear();
+    if ( budget != null ) {
+      budget.release( reserved );
+    }
+    reserved = 0L;
+    pointers = new long[1024];
+    if ( prefixes != null ) {
+      prefixes = new long[1024];
+    }
+  }
+
+  @FunctionalInterface
+  private interface IndexComparator {
+    int compare( int a, int b );
+  }
+
+  /**
+   * Carries a deserialization error out of the sort.
+   */
+  private static class ArenaException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    ArenaException( KettleValueException cause ) {
+      super( cause );
+    }
+
+    @Override
+    public synchronized KettleValueException getCause() {
+      return (KettleValueException) super.getCause();
+    }
+  }
+
+  /**
+   * Remembers the last two rows read during a sort: a merge compares the same row against several others in a row.
+   */
+  private class RowCache {
+    private final int[] indexes = { -1, -1 };
+    private final Object[][] rows = new Object[2][];
+    private int next;
+
+    Object[] get( int index ) {
+      if ( indexes[0] == index ) {
+        return rows[0];
+      }
+      if ( indexes[1] == index ) {
+        return rows[1];
+      }
+      Object[] row;
+      try {
+        row = OffHeapRowArena.this.get( index );
+      } catch ( KettleValueException e ) {
+        throw new ArenaException( e );
+      }
+      indexes[next] = index;
+      rows[next] = row;
+      next ^= 1;
+      return row;
+    }
+  }
+
+  /**
+   * A ByteArrayOutputStream that gives access to its buffer.
+   */
+  private static class ScratchOutputStream extends ByteArrayOutputStream {
+    ScratchOutputStream() {
+      super( 1024 );
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+
+    byte[] getBuffer( int length ) {
+      if ( buf.length < length ) {
+        buf = new byte[Math.max( length, buf.length * 2 )];
+      }
+      return buf;
+    }
+  }
+
+  /**
+   * Reads a range of a slab without copying it.
+   */
+  private static class SlabInputStream extends InputStream {
+    private ByteBuffer slab;
+    private int position;
+    private int limit;
+
+    void setRange( ByteBuffer slab, int offset, int length ) {
+      this.slab = slab;
+      this.position = offset;
+      this.limit = offset + length;
+    }
+
+    @Override
+    public int read() {
+      if ( position >= limit ) {
+        return -1;
+      }
+      return slab.get( position++ ) & 0xff;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) {
+      if ( len == 0 ) {
+        return 0;
+      }
+      if ( position >= limit ) {
+        return -1;
+      }
+      int n = Math.min( len, limit - position );
+      slab.get( position, b, off, n );
+      position += n;
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return limit - position;
+    }
+  }
+}
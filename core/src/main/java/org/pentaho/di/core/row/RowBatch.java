@@ -0,0 +1,251 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+/**
+ * A batch of rows stored column by column: one {@link ColumnVector} per field of the row metadata.
+ * <p>
+ * Steps with a batch processing path can work on whole columns at once instead of on one Object[] at a time. Adding
+ * or selecting columns doesn't copy any data, the vectors are shared between the original and the derived batch.
+ *
+ * @since 11.1
+ */
+public class RowBatch {
+  private final RowMetaInterface rowMeta;
+  private final ColumnVector[] columns;
+  private final int capacity;
+  private int size;
+
+  /**
+   * Create a new empty batch.
+   *
+   * @param rowMeta
+   *          the description of the rows in the batch
+   * @param capacity
+   *          the maximum number of rows in the batch
+   */
+  public RowBatch( RowMetaInterface rowMeta, int capacity ) {
+    this.rowMeta = rowMeta;
+    this.capacity = Math.max( 1, capacity );
+    this.columns = new ColumnVector[rowMeta.size()];
+    for ( int i = 0; i < columns.length; i++ ) {
+      columns[i] = new ColumnVector( rowMeta.getValueMeta( i ), this.capacity );
+    }
+  }
+
+  private RowBatch( RowMetaInterface rowMeta, ColumnVector[] columns, int size, int capacity ) {
+    this.rowMeta = rowMeta;
+    this.columns = columns;
+    this.size = size;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Create a batch out of existing column vectors.
+   *
+   * @param rowMeta
+   *          the description of the rows, one value per column
+   * @param columns
+   *          the columns
+   * @param size
+   *          the number of rows in the columns
+   * @return the new batch
+   */
+  public static RowBatch of( RowMetaInterface rowMeta, ColumnVector[] columns, int size ) {
+    if ( rowMeta.size() != columns.length ) {
+      throw new IllegalArgumentException( "The row metadata describes " + rowMeta.size() + " fields but "
+        + columns.length + " columns were given" );
+    }
+    return new RowBatch( rowMeta, columns, size, Math.max( 1, size ) );
+  }
+
+  /**
+   * @return the description of the rows in this batch
+   */
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * @return the number of rows in this batch
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the maximum number of rows in this batch
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean isFull() {
+    return size >= capacity;
+  }
+
+  /**
+   * @param index
+   *          the field index in the row metadata
+   * @return the column vector for that field
+   */
+  public ColumnVector getColumn( int index ) {
+    return columns[index];
+  }
+
+  /**
+   * @return the number of columns
+   */
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /**
+   * Add a row at the end of this batch. Primitive values are unboxed.
+   *
+   * @param row
+   *          the row data, described by the row metadata of this batch
+   * @return false if the batch is full and the row wasn't added
+   */
+  public boolean addRow( Object[] row ) {
+    if ( size >= capacity ) {
+      return false;
+    }
+    for ( int c = 0; c < columns.length; c++ ) {
+      columns[c].setObject( size, c < row.length ? row[c] : null );
+    }
+    size++;
+    return true;
+  }
+
+  /**
+   * Materialize a row of this batch. Primitive values are boxed.
+   *
+   * @param index
+   *          the row number in this batch
+   * @return a new row
+   */
+  public Object[] getRow( int index ) {
+    Object[] row = RowDataUtil.allocateRowData( columns.length );
+    getRow( index, row );
+    return row;
+  }
+
+  /**
+   * Materialize a row of this batch into an existing array.
+   *
+   * @param index
+   *          the row number in this batch
+   * @param row
+   *          the target array, at least as long as the number of columns
+   */
+  public void getRow( int index, Object[] row ) {
+    for ( int c = 0; c < columns.length; c++ ) {
+      row[c] = columns[c].getObject( index );
+    }
+  }
+
+  /**
+   * Create a batch with extra columns at the end. The existing columns are shared with this batch.
+   *
+   * @param outputRowMeta
+   *          the description of the resulting rows
+   * @param extra
+   *          the columns to add
+   * @return the new batch with the same number of rows
+   */
+  public RowBatch addColumns( RowMetaInterface outputRowMeta, ColumnVector... extra ) {
+    ColumnVector[] all = new ColumnVector[columns.length + extra.length];
+    System.arraycopy( columns, 0, all, 0, columns.length );
+    System.arraycopy( extra, 0, all, columns.length, extra.length );
+    return new RowBatch( outputRowMeta, all, size, capacity );
+  }
+
+  /**
+   * Create a batch with a selection of the columns of this batch, in the given order. Columns are shared with this
+   * batch, except for columns that are selected more than once: those get their own copy.
+   *
+   * @param outputRowMeta
+   *          the description of the resulting rows
+   * @param indexes
+   *          the indexes of the columns to select
+   * @return the new batch with the same number of rows
+   */
+  public RowBatch selectColumns( RowMetaInterface outputRowMeta, int[] indexes ) {
+    ColumnVector[] selected = new ColumnVector[indexes.length];
+    boolean[] used = new boolean[columns.length];
+    for ( int i = 0; i < indexes.length; i++ ) {
+      int index = indexes[i];
+      if ( used[index] ) {
+        selected[i] = columns[index].copy( size );
+      } else {
+        selected[i] = columns[index];
+        used[index] = true;
+      }
+    }
+    return new RowBatch( outputRowMeta, selected, size, capacity );
+  }
+
+  /**
+   * Only keep the rows that are flagged in the selection, in their original order. This compacts the columns in place,
+   * so it also affects batches sharing columns with this one.
+   *
+   * @param selection
+   *          true for every row to keep
+   * @return the number of rows kept
+   */
+  public int retain( boolean[] selection ) {
+    // A vector can be used for more than one column (a copied field for example), only compact it once
+    //
+    ColumnVector[] distinct = new ColumnVector[columns.length];
+    int nrDistinct = 0;
+    for ( ColumnVector column : columns ) {
+      boolean seen = false;
+      for ( int d = 0; d < nrDistinct && !seen; d++ ) {
+        seen = distinct[d] == column;
+      }
+      if ( !seen ) {
+        distinct[nrDistinct++] = column;
+      }
+    }
+
+    int kept = 0;
+    for ( int i = 0; i < size; i++ ) {
+      if ( selection[i] ) {
+        if ( kept != i ) {
+          for ( int d = 0; d < nrDistinct; d++ ) {
+            distinct[d].move( i, kept );
+          }
+        }
+        kept++;
+      }
+    }
+    size = kept;
+    return kept;
+  }
+
+  /**
+   * Remove all rows from this batch, keep the allocated column memory.
+   */
+  public void reset() {
+    for ( ColumnVector column : columns ) {
+      column.reset();
+    }
+    size = 0;
+  }
+}
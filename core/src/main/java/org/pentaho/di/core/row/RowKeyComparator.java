@@ -0,0 +1,71 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * Compares and hashes the key fields of rows, the same way as the compare methods of {@link RowMetaInterface} do:
+ * field by field, following the sort direction and the other comparison options of the value metadata.
+ * <p>
+ * A key comparator can compare rows of two different layouts, for example the rows of the two inputs of a join. The
+ * key fields of the first row are described by the first row metadata, those of the second row by the second.
+ *
+ * @since 11.1
+ */
+public interface RowKeyComparator {
+
+  /**
+   * Compare the key fields of two rows.
+   *
+   * @param row1
+   *          the first row
+   * @param row2
+   *          the second row
+   * @return 0 if the keys are equal, a negative number if the first row comes first, a positive number otherwise
+   * @throws KettleValueException
+   *           in case the values can't be compared
+   */
+  int compare( Object[] row1, Object[] row2 ) throws KettleValueException;
+
+  /**
+   * Compare the key fields of two rows stored in larger arrays, like a hash index keeping all its keys in one array.
+   * The value of a key field is found at the offset plus the index of the field in the row.
+   *
+   * @param data1
+   *          the array holding the first row
+   * @param offset1
+   *          the position of the first row in the array
+   * @param data2
+   *          the array holding the second row
+   * @param offset2
+   *          the position of the second row in the array
+   * @return 0 if the keys are equal, a negative number if the first row comes first, a positive number otherwise
+   * @throws KettleValueException
+   *           in case the values can't be compared
+   */
+  int compare( Object[] data1, int offset1, Object[] data2, int offset2 ) throws KettleValueException;
+
+  /**
+   * Calculate the hash code of the key fields of a row laid out like the first row metadata. The result is the same as
+   * {@link java.util.Arrays#deepHashCode(Object[])} of the key values.
+   *
+   * @param row
+   *          the row
+   * @return the hash code
+   * @throws KettleValueException
+   *           in case of a data conversion error
+   */
+  int hashCode( Object[] row ) throws KettleValueException;
+}
@@ -0,0 +1,127 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.util.Arrays;
+
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * A key comparator that goes through the row and value metadata for every row, just like the steps did before there
+ * were key comparators.
+ *
+ * @since 11.1
+ */
+public class RowMetaKeyComparator implements RowKeyComparator {
+
+  private final RowMetaInterface rowMeta1;
+  private final int[] keys1;
+  private final RowMetaInterface rowMeta2;
+  private final int[] keys2;
+  private final int[] fieldnrs1;
+  private final int[] fieldnrs2;
+
+  /**
+   * Compare rows of the same layout.
+   *
+   * @param rowMeta
+   *          the description of the rows
+   * @param keys
+   *          the indexes of the key fields or null to compare all fields
+   */
+  public RowMetaKeyComparator( RowMetaInterface rowMeta, int[] keys ) {
+    this( rowMeta, keys, rowMeta, keys );
+  }
+
+  /**
+   * Compare rows of two different layouts.
+   *
+   * @param rowMeta1
+   *          the description of the first rows
+   * @param keys1
+   *          the indexes of the key fields in the first rows
+   * @param rowMeta2
+   *          the description of the second rows
+   * @param keys2
+   *          the indexes of the key fields in the second rows, as many as in the first rows
+   */
+  public RowMetaKeyComparator( RowMetaInterface rowMeta1, int[] keys1, RowMetaInterface rowMeta2, int[] keys2 ) {
+    this.rowMeta1 = rowMeta1;
+    this.keys1 = keys1;
+    this.rowMeta2 = rowMeta2;
+    this.keys2 = keys2;
+    this.fieldnrs1 = keys1 != null ? keys1 : allFields( rowMeta1 );
+    this.fieldnrs2 = keys2 != null ? keys2 : allFields( rowMeta2 );
+  }
+
+  @Override
+  public int compare( Object[] row1, Object[] row2 ) throws KettleValueException {
+    if ( rowMeta1 != rowMeta2 ) {
+      return rowMeta1.compare( row1, rowMeta2, row2, fieldnrs1, fieldnrs2 );
+    }
+    if ( keys1 == null ) {
+      return rowMeta1.compare( row1, row2 );
+    }
+    if ( keys1 == keys2 ) {
+      return rowMeta1.compare( row1, row2, keys1 );
+    }
+    return rowMeta1.compare( row1, row2, keys1, keys2 );
+  }
+
+  @Override
+  public int compare( Object[] data1, int offset1, Object[] data2, int offset2 ) throws KettleValueException {
+    for ( int i = 0; i < fieldnrs1.length; i++ ) {
+      ValueMetaInterface valueMeta1 = rowMeta1.getValueMeta( fieldnrs1[i] );
+      Object value1 = data1[offset1 + fieldnrs1[i]];
+      Object value2 = data2[offset2 + fieldnrs2[i]];
+      int cmp = rowMeta1 == rowMeta2 ? valueMeta1.compare( value1, value2 )
+        : valueMeta1.compare( value1, rowMeta2.getValueMeta( fieldnrs2[i] ), value2 );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int hashCode( Object[] row ) throws KettleValueException {
+    int hashCode = 1;
+    for ( int fieldnr : fieldnrs1 ) {
+      Object value = row[fieldnr];
+      int valueHashCode;
+      if ( value == null ) {
+        valueHashCode = 0;
+      } else if ( value instanceof byte[] ) {
+        valueHashCode = Arrays.hashCode( (byte[]) value );
+      } else {
+        valueHashCode = value.hashCode();
+      }
+      hashCode = 31 * hashCode + valueHashCode;
+    }
+    return hashCode;
+  }
+
+  /**
+   * @param rowMeta
+   *          the row metadata
+   * @return the indexes of all the fields of the row metadata
+   */
+  public static int[] allFields( RowMetaInterface rowMeta ) {
+    int[] fieldnrs = new int[rowMeta.size()];
+    for ( int i = 0; i < fieldnrs.length; i++ ) {
+      fieldnrs[i] = i;
+    }
+    return fieldnrs;
+  }
+}
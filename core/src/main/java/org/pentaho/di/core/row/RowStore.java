@@ -0,0 +1,105 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.io.DataOutputStream;
+import java.util.Comparator;
+
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * A growing buffer of rows as used by steps that need to hold on to many rows at once: Sort rows, Blocking step, Group
+ * by, ...
+ * <p>
+ * Rows are appended, optionally sorted and read back by position. Implementations don't need to be thread safe.
+ *
+ * @since 11.1
+ */
+public interface RowStore {
+
+  /**
+   * @return the description of the rows in this store
+   */
+  RowMetaInterface getRowMeta();
+
+  /**
+   * Add a row at the end of the store.
+   *
+   * @param row
+   *          the row to add
+   * @return false if there is no room left for the row. The row is not added in that case, the caller is expected to
+   *         free up room (for example by spilling the rows to disk and clearing the store) and try again.
+   * @throws KettleValueException
+   *           in case the row can't be stored
+   */
+  boolean add( Object[] row ) throws KettleValueException;
+
+  /**
+   * @return the number of rows in the store
+   */
+  int size();
+
+  default boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Get a row from the store.
+   *
+   * @param index
+   *          the position of the row, between 0 and size()
+   * @return the row
+   * @throws KettleValueException
+   *           in case the row can't be read back
+   */
+  Object[] get( int index ) throws KettleValueException;
+
+  /**
+   * Sort the rows in the store. The sort is stable.
+   *
+   * @param comparator
+   *          the row comparator
+   * @throws KettleValueException
+   *           in case rows can't be compared
+   */
+  void sort( Comparator<Object[]> comparator ) throws KettleValueException;
+
+  /**
+   * Write a row in the format of {@link RowMetaInterface#writeData(DataOutputStream, Object[])}.
+   *
+   * @param index
+   *          the position of the row
+   * @param outputStream
+   *          the stream to write to
+   * @throws KettleFileException
+   *           in case of a write error
+   */
+  void writeRow( int index, DataOutputStream outputStream ) throws KettleFileException;
+
+  /**
+   * @return the number of bytes held by this store
+   */
+  long getMemoryUsage();
+
+  /**
+   * Remove all rows. The store can be used again afterwards.
+   */
+  void clear();
+
+  /**
+   * Remove all rows and free the memory held by this store.
+   */
+  void close();
+}
@@ -0,0 +1,485 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Converts between strings and dates for the common numeric date masks (yyyy, MM, dd, HH, mm, ss and SSS separated by
+ * literals) without going through {@link SimpleDateFormat}.
+ * <p>
+ * A converter is compiled from the SimpleDateFormat that the value metadata uses and only takes care of the values
+ * for which it gives exactly the same result: strings where every field has its full width and a valid value, and
+ * dates in the years 1901 to 2036 at an unambiguous local time. For everything else {@link #parse(String)} and
+ * {@link #format(Date)} return null and the caller falls back to the SimpleDateFormat, so error messages, lenient
+ * parsing and all other corner cases don't change. Calendar and time zone arithmetic is done with java.time, the
+ * local date and offset of the last day that was converted is cached.
+ * <p>
+ * A converter is not thread-safe, just like the SimpleDateFormat it replaces.
+ *
+ * @since 11.1
+ */
+public class FastDateConverter {
+
+  private static final int LITERAL = -1;
+  private static final int YEAR = 0;
+  private static final int MONTH = 1;
+  private static final int DAY = 2;
+  private static final int HOUR = 3;
+  private static final int MINUTE = 4;
+  private static final int SECOND = 5;
+  private static final int MILLISECOND = 6;
+
+  private static final int[] WIDTHS = { 4, 2, 2, 2, 2, 2, 3 };
+
+  // java.util.TimeZone doesn't have the local mean time offsets of java.time up to 1900, and from 2037 on it only knows
+  // the last yearly daylight saving time rule of a zone
+  private static final int MIN_YEAR = 1901;
+  private static final int MAX_YEAR = 2036;
+
+  private static final long MILLIS_PER_DAY = 86400000L;
+
+  private final SimpleDateFormat format;
+  private final boolean supported;
+
+  private int[] fields;
+  private String[] literals;
+  private int length;
+  private boolean asciiLiterals;
+  private char[] scratch;
+  private ZoneRules rules;
+
+  // The last day that was converted, only cached when there's no offset change during that day
+  //
+  private long dayStart = Long.MAX_VALUE;
+  private long dayEnd = Long.MIN_VALUE;
+  private int dayYear;
+  private int dayMonth;
+  private int dayOfMonth;
+
+  /**
+   * Compile a converter for the given date format.
+   *
+   * @param format
+   *          the date format used by the value metadata
+   */
+  public FastDateConverter( SimpleDateFormat format ) {
+    this.format = format;
+    this.supported = format != null && compile( format );
+  }
+
+  private boolean compile( SimpleDateFormat format ) {
+    if ( !hasCompatibleCalendar( format ) ) {
+      return false;
+    }
+    TimeZone timeZone = format.getTimeZone();
+    ZoneId zone;
+    try {
+      zone = timeZone.toZoneId();
+    } catch ( Exception e ) {
+      return false;
+    }
+    if ( !timeZone.hasSameRules( TimeZone.getTimeZone( zone ) ) ) {
+      return false;
+    }
+    rules = zone.getRules();
+
+    String pattern = format.toPattern();
+    int[] parsedFields = new int[pattern.length()];
+    String[] parsedLiterals = new String[pattern.length()];
+    boolean[] seen = new boolean[WIDTHS.length];
+    int count = 0;
+    int total = 0;
+    StringBuilder literal = new StringBuilder();
+
+    int i = 0;
+    while ( i < pattern.length() ) {
+      char c = pattern.charAt( i );
+      if ( c == '\'' ) {
+        // Quoted text, two single quotes are a single quote
+        //
+        int end = i + 1;
+        if ( end < pattern.length() && pattern.charAt( end ) == '\'' ) {
+          literal.append( '\'' );
+          i += 2;
+          continue;
+        }
+        while ( true ) {
+          if ( end >= pattern.length() ) {
+            return false;
+          }
+          if ( pattern.charAt( end ) == '\'' ) {
+            if ( end + 1 < pattern.length() && pattern.charAt( end + 1 ) == '\'' ) {
+              literal.append( '\'' );
+              end += 2;
+              continue;
+            }
+            break;
+          }
+          literal.append( pattern.charAt( end ) );
+          end++;
+        }
+        i = end + 1;
+      } else if ( ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) ) {
+        int end = i;
+        while ( end < pattern.length() && pattern.charAt( end ) == c ) {
+          end++;
+        }
+        int field = getField( c );
+        if ( field == LITERAL || end - i != WIDTHS[field] || seen[field] ) {
+          return false;
+        }
+        seen[field] = true;
+        if ( literal.length() > 0 ) {
+          parsedFields[count] = LITERAL;
+          parsedLiterals[count++] = literal.toString();
+          total += literal.length();
+          literal.setLength( 0 );
+        }
+        parsedFields[count++] = field;
+        total += WIDTHS[field];
+        i = end;
+      } else {
+        literal.append( c );
+        i++;
+      }
+    }
+    if ( literal.length() > 0 ) {
+      parsedFields[count] = LITERAL;
+      parsedLiterals[count++] = literal.toString();
+      total += literal.length();
+    }
+
+    // Digits in literals would be picked up by the numeric fields of SimpleDateFormat
+    //
+    for ( int f = 0; f < count; f++ ) {
+      if ( parsedFields[f] == LITERAL ) {
+        for ( char c : parsedLiterals[f].toCharArray() ) {
+          if ( Character.isDigit( c ) ) {
+            return false;
+          }
+        }
+      }
+    }
+    if ( count == 0 ) {
+      return false;
+    }
+
+    fields = new int[count];
+    literals = new String[count];
+    System.arraycopy( parsedFields, 0, fields, 0, count );
+    System.arraycopy( parsedLiterals, 0, literals, 0, count );
+    length = total;
+    asciiLiterals = true;
+    for ( String text : literals ) {
+      for ( int c = 0; text != null && c < text.length(); c++ ) {
+        asciiLiterals &= text.charAt( c ) < 0x80;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasCompatibleCalendar( SimpleDateFormat format ) {
+    Calendar calendar = format.getCalendar();
+    if ( !( calendar instanceof GregorianCalendar ) ) {
+      return false;
+    }
+    if ( ( (GregorianCalendar) calendar ).getGregorianChange().getTime()
+      != new GregorianCalendar().getGregorianChange().getTime() ) {
+      return false;
+    }
+    NumberFormat numberFormat = format.getNumberFormat();
+    return numberFormat instanceof DecimalFormat
+      && ( (DecimalFormat) numberFormat ).getDecimalFormatSymbols().getZeroDigit() == '0';
+  }
+
+  private static int getField( char c ) {
+    switch ( c ) {
+      case 'y':
+        return YEAR;
+      case 'M':
+        return MONTH;
+      case 'd':
+        return DAY;
+      case 'H':
+        return HOUR;
+      case 'm':
+        return MINUTE;
+      case 's':
+        return SECOND;
+      case 'S':
+        return MILLISECOND;
+      default:
+        return LITERAL;
+    }
+  }
+
+  /**
+   * @return the date format this converter was compiled from
+   */
+  public SimpleDateFormat getFormat() {
+    return format;
+  }
+
+  /**
+   * @return true if the mask of the date format can be handled by this converter
+   */
+  public boolean isSupported() {
+    return supported;
+  }
+
+  /**
+   * Parse a string the same way the date format does.
+   *
+   * @param string
+   *          the string to parse
+   * @return the date or null if the string has to be parsed by the date format
+   */
+  public Date parse( String string ) {
+    if ( !supported || string.length() != length ) {
+      return null;
+    }
+    int year = 1970;
+    int month = 1;
+    int day = 1;
+    int hour = 0;
+    int minute = 0;
+    int second = 0;
+    int millisecond = 0;
+
+    int position = 0;
+    for ( int f = 0; f < fields.length; f++ ) {
+      int field = fields[f];
+      if ( field == LITERAL ) {
+        if ( !string.startsWith( literals[f], position ) ) {
+          return null;
+        }
+        position += literals[f].length();
+        continue;
+      }
+      int value = 0;
+      for ( int end = position + WIDTHS[field]; position < end; position++ ) {
+        int digit = string.charAt( position ) - '0';
+        if ( digit < 0 || digit > 9 ) {
+          return null;
+        }
+        value = value * 10 + digit;
+      }
+      switch ( field ) {
+        case YEAR:
+          year = value;
+          break;
+        case MONTH:
+          month = value;
+          break;
+        case DAY:
+          day = value;
+          break;
+        case HOUR:
+          hour = value;
+          break;
+        case MINUTE:
+          minute = value;
+          break;
+        case SECOND:
+          second = value;
+          break;
+        default:
+          millisecond = value;
+          break;
+      }
+    }
+
+    // Out of range values are rejected or rolled over depending on the leniency, leave that to the date format
+    //
+    if ( year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12 || day < 1 || hour > 23 || minute > 59
+      || second > 59 ) {
+      return null;
+    }
+    if ( day > 28 && day > LocalDate.of( year, month, 1 ).lengthOfMonth() ) {
+      return null;
+    }
+
+    long millisOfDay = hour * 3600000L + minute * 60000L + second * 1000L + millisecond;
+    if ( year != dayYear || month != dayMonth || day != dayOfMonth ) {
+      cacheDay( LocalDate.of( year, month, day ) );
+    }
+    if ( year == dayYear && month == dayMonth && day == dayOfMonth ) {
+      return new Date( dayStart + millisOfDay );
+    }
+
+    // This day has an offset change: only convert unambiguous local times
+    //
+    LocalDateTime dateTime = LocalDateTime.of( year, month, day, hour, minute, second, millisecond * 1000000 );
+    List<ZoneOffset> offsets = rules.getValidOffsets( dateTime );
+    if ( offsets.size() != 1 ) {
+      return null;
+    }
+    return new Date( dateTime.toEpochSecond( offsets.get( 0 ) ) * 1000L + millisecond );
+  }
+
+  /**
+   * Format a date the same way the date format does.
+   *
+   * @param date
+   *          the date to format
+   * @return the string or null if the date has to be formatted by the date format
+   */
+  public String format( Date date ) {
+    if ( !supported ) {
+      return null;
+    }
+    char[] chars = new char[length];
+    return fill( date, chars ) ? new String( chars ) : null;
+  }
+
+  /**
+   * Format a date the same way the date format does, straight into a byte buffer. Only masks without non-ASCII literals
+   * are supported, the bytes are the same in every ASCII compatible encoding.
+   *
+   * @param date
+   *          the date to format
+   * @param bytes
+   *          the buffer to format into, needs room for {@link #getLength()} bytes after the offset
+   * @param offset
+   *          the position in the buffer to start at
+   * @return the position after the formatted date or -1 if the date has to be formatted by the date format
+   */
+  public int format( Date date, byte[] bytes, int offset ) {
+    if ( !supported || !asciiLiterals ) {
+      return -1;
+    }
+    if ( scratch == null ) {
+      scratch = new char[length];
+    }
+    if ( !fill( date, scratch ) ) {
+      return -1;
+    }
+    for ( int i = 0; i < length; i++ ) {
+      bytes[offset + i] = (byte) scratch[i];
+    }
+    return offset + length;
+  }
+
+  /**
+   * @return the length of every formatted date
+   */
+  public int getLength() {
+    return length;
+  }
+
+  private boolean fill( Date date, char[] chars ) {
+    long millis = date.getTime();
+    if ( millis < dayStart || millis >= dayEnd ) {
+      LocalDateTime dateTime =
+        LocalDateTime.ofEpochSecond( Math.floorDiv( millis, 1000L ), (int) Math.floorMod( millis, 1000L ) * 1000000,
+          rules.getOffset( Instant.ofEpochMilli( millis ) ) );
+      if ( dateTime.getYear() < MIN_YEAR || dateTime.getYear() > MAX_YEAR ) {
+        return false;
+      }
+      if ( !cacheDay( dateTime.toLocalDate() ) || millis < dayStart || millis >= dayEnd ) {
+        fill( dateTime.getYear(), dateTime.getMonthValue(), dateTime.getDayOfMonth(),
+          dateTime.toLocalTime().toNanoOfDay() / 1000000L, chars );
+        return true;
+      }
+    }
+    fill( dayYear, dayMonth, dayOfMonth, millis - dayStart, chars );
+    return true;
+  }
+
+  private void fill( int year, int month, int day, long millisOfDay, char[] chars ) {
+    int position = 0;
+    for ( int f = 0; f < fields.length; f++ ) {
+      int field = fields[f];
+      int value;
+      switch ( field ) {
+        case LITERAL:
+          String literal = literals[f];
+          literal.getChars( 0, literal.length(), chars, position );
+          position += literal.length();
+          continue;
+        case YEAR:
+          value = year;
+          break;
+        case MONTH:
+          value = month;
+          break;
+        case DAY:
+          value = day;
+          break;
+        case HOUR:
+          value = (int) ( millisOfDay / 3600000L );
+          break;
+        case MINUTE:
+          value = (int) ( millisOfDay / 60000L % 60 );
+          break;
+        case SECOND:
+          value = (int) ( millisOfDay / 1000L % 60 );
+          break;
+        default:
+          value = (int) ( millisOfDay % 1000L );
+          break;
+      }
+      for ( int p = position + WIDTHS[field] - 1; p >= position; p-- ) {
+        chars[p] = (char) ( '0' + value % 10 );
+        value /= 10;
+      }
+      position += WIDTHS[field];
+    }
+  }
+
+  /**
+   * Remember the start and end of the given local day if the offset doesn't change during that day or right at the end
+   * of it.
+   *
+   * @return true if the day is cached
+   */
+  private boolean cacheDay( LocalDate date ) {
+    dayYear = 0;
+    dayStart = Long.MAX_VALUE;
+    dayEnd = Long.MIN_VALUE;
+
+    LocalDateTime midnight = date.atStartOfDay();
+    List<ZoneOffset> offsets = rules.getValidOffsets( midnight );
+    if ( offsets.size() != 1 ) {
+      return false;
+    }
+    long start = midnight.toEpochSecond( offsets.get( 0 ) ) * 1000L;
+    long end = start + MILLIS_PER_DAY;
+    ZoneOffsetTransition transition = rules.nextTransition( Instant.ofEpochMilli( start ) );
+    if ( transition != null && transition.toEpochSecond() * 1000L <= end ) {
+      return false;
+    }
+    dayYear = date.getYear();
+    dayMonth = date.getMonthValue();
+    dayOfMonth = date.getDayOfMonth();
+    dayStart = start;
+    dayEnd = end;
+    return true;
+  }
+}
@@ -0,0 +1,321 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Parses plain numbers and formats integers and short decimal numbers without going through {@link DecimalFormat}.
+ * <p>
+ * A converter is compiled from the DecimalFormat that the value metadata uses. It only handles the values for which it
+ * gives exactly the same result as the DecimalFormat: strings made of an optional minus sign, digits and an optional
+ * decimal separator followed by digits, and integers when the mask doesn't add grouping, padding, fraction digits, a
+ * prefix or a suffix. For everything else the methods return null and the caller falls back to the DecimalFormat, so
+ * error messages and lenient parsing don't change.
+ * <p>
+ * Numbers are only formatted when they are the closest double to a decimal of at most 15 significant digits that
+ * fits in the maximum number of fraction digits of the mask: the DecimalFormat doesn't round those, so its rounding
+ * rules don't come into play. Any other number is left to the DecimalFormat.
+ *
+ * @since 11.1
+ */
+public class FastNumberConverter {
+
+  /** Up to 15 significant digits a decimal string converts to the correctly rounded double with a single division. */
+  private static final int MAX_EXACT_DIGITS = 15;
+
+  /** The maximum number of bytes written by {@link #formatInteger(long, byte[], int)} and the number equivalent */
+  public static final int MAX_FORMATTED_LENGTH = 2 + 2 * MAX_EXACT_DIGITS;
+
+  private static final long[] LONG_POWERS_OF_TEN = {
+    1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L, 10000000000L,
+    100000000000L, 1000000000000L, 10000000000000L, 100000000000000L, 1000000000000000L };
+
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+    1e20, 1e21, 1e22 };
+
+  private final DecimalFormat format;
+  private final boolean parseSupported;
+  private final boolean formatIntegerSupported;
+  private final boolean formatNumberSupported;
+  private final char decimalSeparator;
+
+  /**
+   * Compile a converter for the given decimal format.
+   *
+   * @param format
+   *          the decimal format used by the value metadata
+   */
+  public FastNumberConverter( DecimalFormat format ) {
+    this.format = format;
+    if ( format == null ) {
+      parseSupported = false;
+      formatIntegerSupported = false;
+      formatNumberSupported = false;
+      decimalSeparator = '.';
+      return;
+    }
+    DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+    decimalSeparator = symbols.getDecimalSeparator();
+
+    String minus = String.valueOf( symbols.getMinusSign() );
+    boolean plain = symbols.getZeroDigit() == '0'
+      && symbols.getMinusSign() == '-'
+      && format.getMultiplier() == 1
+      && format.getPositivePrefix().isEmpty()
+      && format.getPositiveSuffix().isEmpty()
+      && minus.equals( format.getNegativePrefix() )
+      && format.getNegativeSuffix().isEmpty();
+
+    parseSupported = plain
+      && !format.isParseIntegerOnly()
+      && !Character.isDigit( decimalSeparator )
+      && decimalSeparator != '-'
+      && ( !format.isGroupingUsed() || symbols.getGroupingSeparator() != decimalSeparator );
+
+    formatIntegerSupported = plain
+      && ( !format.isGroupingUsed() || format.getGroupingSize() == 0 )
+      && format.getMinimumIntegerDigits() <= 1
+      && format.getMaximumIntegerDigits() >= 19
+      && format.getMinimumFractionDigits() == 0
+      && !format.isDecimalSeparatorAlwaysShown();
+
+    formatNumberSupported = plain
+      && ( !format.isGroupingUsed() || format.getGroupingSize() == 0 )
+      && format.getMinimumIntegerDigits() <= 1
+      && format.getMaximumIntegerDigits() >= 19
+      && !format.isDecimalSeparatorAlwaysShown()
+      && decimalSeparator < 0x80;
+  }
+
+  /**
+   * @return the decimal format this converter was compiled from
+   */
+  public DecimalFormat getFormat() {
+    return format;
+  }
+
+  /**
+   * Parse a string to a number the same way the decimal format does.
+   *
+   * @param string
+   *          the string to parse
+   * @return the number or null if the string has to be parsed by the decimal format
+   */
+  public Double parseNumber( String string ) {
+    if ( !parseSupported ) {
+      return null;
+    }
+    int length = string.length();
+    if ( length == 0 || length > 40 ) {
+      return null;
+    }
+    int position = 0;
+    boolean negative = string.charAt( 0 ) == '-';
+    if ( negative ) {
+      position++;
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = 0;
+    int separator = -1;
+    for ( ; position < length; position++ ) {
+      char c = string.charAt( position );
+      if ( c >= '0' && c <= '9' ) {
+        if ( mantissa != 0 || c != '0' ) {
+          digits++;
+        }
+        if ( digits <= MAX_EXACT_DIGITS ) {
+          mantissa = mantissa * 10 + ( c - '0' );
+        }
+        if ( separator >= 0 ) {
+          fractionDigits++;
+        }
+      } else if ( c == decimalSeparator && separator < 0 ) {
+        separator = position;
+      } else {
+        return null;
+      }
+    }
+    int integerStart = negative ? 1 : 0;
+    if ( separator == integerStart || separator == length - 1 || length == integerStart ) {
+      // ".5", "5." or "-": left to the decimal format
+      return null;
+    }
+
+    if ( negative && digits == 0 ) {
+      // Negative zero depends on the big decimal parsing setting of the decimal format
+      return null;
+    }
+
+    double value;
+    if ( digits <= MAX_EXACT_DIGITS && fractionDigits < POWERS_OF_TEN.length ) {
+      value = fractionDigits == 0 ? (double) mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+    } else {
+      String plain = separator < 0 || decimalSeparator == '.' ? string : string.replace( decimalSeparator, '.' );
+      value = Math.abs( Double.parseDouble( plain ) );
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parse a string to an integer the same way the decimal format does, for strings without a decimal part.
+   *
+   * @param string
+   *          the string to parse
+   * @return the integer or null if the string has to be parsed by the decimal format
+   */
+  public Long parseInteger( String string ) {
+    if ( !parseSupported ) {
+      return null;
+    }
+    int length = string.length();
+    int position = string.startsWith( "-" ) ? 1 : 0;
+    if ( length == position || length - position > 18 ) {
+      return null;
+    }
+    long value = 0;
+    for ( ; position < length; position++ ) {
+      int digit = string.charAt( position ) - '0';
+      if ( digit < 0 || digit > 9 ) {
+        return null;
+      }
+      value = value * 10 + digit;
+    }
+    return string.charAt( 0 ) == '-' ? -value : value;
+  }
+
+  /**
+   * Format an integer the same way the decimal format does.
+   *
+   * @param value
+   *          the integer to format
+   * @return the string or null if the integer has to be formatted by the decimal format
+   */
+  public String formatInteger( long value ) {
+    return formatIntegerSupported ? Long.toString( value ) : null;
+  }
+
+  /**
+   * Format an integer the same way the decimal format does, straight into a byte buffer. The bytes are the same in
+   * every ASCII compatible encoding.
+   *
+   * @param value
+   *          the integer to format
+   * @param bytes
+   *          the buffer to format into, needs room for {@link #MAX_FORMATTED_LENGTH} bytes after the offset
+   * @param offset
+   *          the position in the buffer to start at
+   * @return the position after the formatted integer or -1 if the integer has to be formatted by the decimal format
+   */
+  public int formatInteger( long value, byte[] bytes, int offset ) {
+    if ( !formatIntegerSupported ) {
+      return -1;
+    }
+    int position = offset;
+    if ( value < 0 ) {
+      bytes[position++] = '-';
+    }
+    return writeDigits( value, bytes, position, 1 );
+  }
+
+  /**
+   * Format a number the same way the decimal format does, straight into a byte buffer. The bytes are the same in every
+   * ASCII compatible encoding.
+   *
+   * @param value
+   *          the number to format
+   * @param bytes
+   *          the buffer to format into, needs room for {@link #MAX_FORMATTED_LENGTH} bytes after the offset
+   * @param offset
+   *          the position in the buffer to start at
+   * @return the position after the formatted number or -1 if the number has to be formatted by the decimal format
+   */
+  public int formatNumber( double value, byte[] bytes, int offset ) {
+    if ( !formatNumberSupported || Double.isNaN( value ) || Double.isInfinite( value ) ) {
+      return -1;
+    }
+    if ( value == 0.0 && Double.doubleToRawLongBits( value ) != 0L ) {
+      // Negative zero is formatted with a minus sign
+      return -1;
+    }
+    int maximumFractionDigits = Math.min( format.getMaximumFractionDigits(), MAX_EXACT_DIGITS );
+    int minimumFractionDigits = format.getMinimumFractionDigits();
+    if ( minimumFractionDigits > MAX_EXACT_DIGITS ) {
+      return -1;
+    }
+
+    // Find the shortest decimal that converts back to this number, without rounding
+    //
+    double abs = Math.abs( value );
+    long mantissa = -1L;
+    int fractionDigits = 0;
+    for ( int digits = 0; digits <= maximumFractionDigits; digits++ ) {
+      double scaled = abs * POWERS_OF_TEN[digits];
+      if ( scaled >= POWERS_OF_TEN[MAX_EXACT_DIGITS] ) {
+        return -1;
+      }
+      long candidate = Math.round( scaled );
+      if ( candidate / POWERS_OF_TEN[digits] == abs ) {
+        mantissa = candidate;
+        fractionDigits = digits;
+        break;
+      }
+    }
+    if ( mantissa < 0 ) {
+      return -1;
+    }
+
+    int position = offset;
+    if ( value < 0 ) {
+      bytes[position++] = '-';
+    }
+    long integerPart = mantissa / LONG_POWERS_OF_TEN[fractionDigits];
+    long fraction = mantissa - integerPart * LONG_POWERS_OF_TEN[fractionDigits];
+    boolean hasFraction = fractionDigits > 0 || minimumFractionDigits > 0;
+    if ( integerPart != 0 || format.getMinimumIntegerDigits() > 0 || !hasFraction ) {
+      position = writeDigits( integerPart, bytes, position, 1 );
+    }
+    if ( hasFraction ) {
+      bytes[position++] = (byte) decimalSeparator;
+      if ( fractionDigits > 0 ) {
+        position = writeDigits( fraction, bytes, position, fractionDigits );
+      }
+      for ( int i = fractionDigits; i < minimumFractionDigits; i++ ) {
+        bytes[position++] = '0';
+      }
+    }
+    return position;
+  }
+
+  /**
+   * Write the digits of the absolute value, padded with zeros to the given width.
+   */
+  private static int writeDigits( long value, byte[] bytes, int position, int width ) {
+    int digits = 1;
+    for ( long rest = value / 10; rest != 0; rest /= 10 ) {
+      digits++;
+    }
+    digits = Math.max( digits, width );
+    long rest = value;
+    for ( int p = position + digits - 1; p >= position; p-- ) {
+      bytes[p] = (byte) ( '0' + Math.abs( rest % 10 ) );
+      rest /= 10;
+    }
+    return position + digits;
+  }
+}
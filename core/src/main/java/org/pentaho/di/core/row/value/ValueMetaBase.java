@@ -152,6 +152,10 @@ public class ValueMetaBase implements ValueMetaInterface {
   protected DecimalFormat decimalFormat;
   protected boolean decimalFormatChanged;
 
+  protected boolean fastConversion;
+  protected FastDateConverter fastDateConverter;
+  protected FastNumberConverter fastNumberConverter;
+
   protected ValueMetaInterface storageMetadata;
   protected boolean identicalFormat;
 
@@ -241,6 +245,8 @@ public class ValueMetaBase implements ValueMetaInterface {
       "Y".equalsIgnoreCase( System.getProperty( Const.KETTLE_EMPTY_STRING_DIFFERS_FROM_NULL, "N" ) );
     this.ignoreOutOfRange =
       "Y".equalsIgnoreCase( System.getProperty( Const.KETTLE_IGNORE_OUT_OF_RANGE_EXCEPTION, "N" ) );
+    this.fastConversion =
+      "Y".equalsIgnoreCase( System.getProperty( Const.KETTLE_FAST_VALUE_CONVERSION, "N" ) );
 
 
     this.comparator = comparator;
@@ -432,6 +438,8 @@ public class ValueMetaBase implements ValueMetaInterface {
       ValueMetaBase valueMeta = (ValueMetaBase) super.clone();
       valueMeta.dateFormat = null;
       valueMeta.decimalFormat = null;
+      valueMeta.fastDateConverter = null;
+      valueMeta.fastNumberConverter = null;
       if ( dateFormatLocale != null ) {
         valueMeta.dateFormatLocale = (Locale) dateFormatLocale.clone();
       }
@@ -898,7 +906,14 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
-    return getDateFormat().format( date );
+    SimpleDateFormat format = getDateFormat();
+    if ( fastConversion ) {
+      String string = getFastDateConverter( format ).format( date );
+      if ( string != null ) {
+        return string;
+      }
+    }
+    return format.format( date );
   }
 
   protected static SimpleDateFormat compatibleDateFormat = new SimpleDateFormat( COMPATIBLE_DATE_FORMAT_PATTERN );
@@ -920,8 +935,15 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
 
     try {
+      SimpleDateFormat format = getDateFormat( TYPE_DATE );
+      if ( fastConversion ) {
+        Date date = getFastDateConverter( format ).parse( string );
+        if ( date != null ) {
+          return date;
+        }
+      }
       ParsePosition pp = new ParsePosition( 0 );
-      Date result = getDateFormat( TYPE_DATE ).parse( string, pp );
+      Date result = format.parse( string, pp );
       if ( pp.getErrorIndex() >= 0 ) {
         // error happen
         throw new ParseException( string, pp.getErrorIndex() );
@@ -1017,6 +1039,12 @@ public class ValueMetaBase implements ValueMetaInterface {
 
     try {
       DecimalFormat format = getDecimalFormat( false );
+      if ( fastConversion ) {
+        Double value = getFastNumberConverter( format ).parseNumber( string );
+        if ( value != null ) {
+          return value;
+        }
+      }
       Number number;
       if ( lenientStringToNumber ) {
         number = format.parse( string );
@@ -1096,6 +1124,58 @@ public class ValueMetaBase implements ValueMetaInterface {
     return getDecimalFormat( false );
   }
 
+  /**
+   * @return the fast date converter compiled from the given date format, compiled again when the format changes.
+   */
+  private FastDateConverter getFastDateConverter( SimpleDateFormat format ) {
+    if ( fastDateConverter == null || fastDateConverter.getFormat() != format ) {
+      fastDateConverter = new FastDateConverter( format );
+    }
+    return fastDateConverter;
+  }
+
+  /**
+   * @return the fast number converter compiled from the given decimal format, compiled again when the format changes.
+   */
+  private FastNumberConverter getFastNumberConverter( DecimalFormat format ) {
+    if ( fastNumberConverter == null || fastNumberConverter.getFormat() != format ) {
+      fastNumberConverter = new FastNumberConverter( format );
+    }
+    return fastNumberConverter;
+  }
+
+  /**
+   * @return true if strings are converted to and from dates and numbers with the fast converters when the masks allow
+   *         it, see the KETTLE_FAST_VALUE_CONVERSION variable.
+   */
+  public boolean isFastConversion() {
+    return fastConversion;
+  }
+
+  /**
+   * @param fastConversion
+   *          true to convert strings to and from dates and numbers with the fast converters when the masks allow it.
+   *          The results are the same as with the date and decimal formats.
+   */
+  public void setFastConversion( boolean fastConversion ) {
+    this.fastConversion = fastConversion;
+  }
+
+  /**
+   * @return the comparator given at construction time that replaces the comparison of the data type, or null
+   */
+  public Comparator<Object> getComparator() {
+    return comparator;
+  }
+
+  /**
+   * @return true if an empty string is a value of its own, false if it is considered to be null, see the
+   *         KETTLE_EMPTY_STRING_DIFFERS_FROM_NULL system property.
+   */
+  public boolean isEmptyStringAndNullAreDifferent() {
+    return emptyStringAndNullAreDifferent;
+  }
+
   @Override
   public synchronized DecimalFormat getDecimalFormat( boolean useBigDecimal ) {
     // If we have an Integer that is represented as a String
@@ -1306,7 +1386,14 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
 
     try {
-      return getDecimalFormat( false ).format( integer );
+      DecimalFormat format = getDecimalFormat( false );
+      if ( fastConversion ) {
+        String string = getFastNumberConverter( format ).formatInteger( integer );
+        if ( string != null ) {
+          return string;
+        }
+      }
+      return format.format( integer );
     } catch ( Exception e ) {
       throw new KettleValueException( toString() + " : couldn't convert Long to String ", e );
     }
@@ -1329,6 +1416,12 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
 
     try {
+      if ( fastConversion ) {
+        Long value = getFastNumberConverter( getDecimalFormat( false ) ).parseInteger( string );
+        if ( value != null ) {
+          return value;
+        }
+      }
       Number number;
       if ( lenientStringToNumber ) {
         number = getDecimalFormat( false ).parse( string );
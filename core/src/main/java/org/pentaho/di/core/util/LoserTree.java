@@ -0,0 +1,132 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A tournament tree of losers to merge k sorted sources.
+ * <p>
+ * Every internal node remembers the source that lost the match played at that node, the overall winner is kept
+ * separately. Replacing the value of the winning source only replays the matches on the path from its leaf to the
+ * root: log2(k) comparisons per value, compared to about 2*log2(k) for a binary heap.
+ * <p>
+ * A source without values left is represented by a null value and loses every match. On equal values the source with
+ * the lowest number wins, so merging sorted runs in their original order is stable.
+ *
+ * @param <T>
+ *          the type of the values to merge
+ * @since 11.1
+ */
+public class LoserTree<T> {
+  private final Comparator<? super T> comparator;
+  private final int size;
+  private final Object[] values;
+  private final int[] tree;
+
+  /**
+   * Build a tree with the first value of every source.
+   *
+   * @param heads
+   *          the first value of each source, null for an empty source
+   * @param comparator
+   *          the order of the values
+   */
+  public LoserTree( List<? extends T> heads, Comparator<? super T> comparator ) {
+    this.comparator = comparator;
+    this.size = heads.size();
+    this.values = heads.toArray();
+    this.tree = new int[Math.max( 1, size )];
+
+    if ( size == 0 ) {
+      return;
+    }
+
+    // Leaves are nodes size..2*size-1, play all the matches bottom-up
+    //
+    int[] winners = new int[size * 2];
+    for ( int i = 0; i < size; i++ ) {
+      winners[size + i] = i;
+    }
+    for ( int node = size - 1; node >= 1; node-- ) {
+      int left = winners[node * 2];
+      int right = winners[node * 2 + 1];
+      if ( beats( right, left ) ) {
+        winners[node] = right;
+        tree[node] = left;
+      } else {
+        winners[node] = left;
+        tree[node] = right;
+      }
+    }
+    tree[0] = size == 1 ? 0 : winners[1];
+  }
+
+  private boolean beats( int a, int b ) {
+    @SuppressWarnings( "unchecked" )
+    T valueA = (T) values[a];
+    @SuppressWarnings( "unchecked" )
+    T valueB = (T) values[b];
+    if ( valueA == null ) {
+      return false;
+    }
+    if ( valueB == null ) {
+      return true;
+    }
+    int cmp = comparator.compare( valueA, valueB );
+    return cmp < 0 || ( cmp == 0 && a < b );
+  }
+
+  /**
+   * @return true if all the sources are exhausted
+   */
+  public boolean isEmpty() {
+    return size == 0 || values[tree[0]] == null;
+  }
+
+  /**
+   * @return the number of the source holding the smallest value
+   */
+  public int getWinner() {
+    return tree[0];
+  }
+
+  /**
+   * @return the smallest value or null if all the sources are exhausted
+   */
+  @SuppressWarnings( "unchecked" )
+  public T peek() {
+    return size == 0 ? null : (T) values[tree[0]];
+  }
+
+  /**
+   * Replace the smallest value with the next value of the same source and find the new winner.
+   *
+   * @param value
+   *          the next value of the winning source or null if it is exhausted
+   */
+  public void replaceWinner( T value ) {
+    int winner = tree[0];
+    values[winner] = value;
+    for ( int node = ( winner + size ) >>> 1; node >= 1; node >>>= 1 ) {
+      if ( beats( tree[node], winner ) ) {
+        int loser = winner;
+        winner = tree[node];
+        tree[node] = loser;
+      }
+    }
+    tree[0] = winner;
+  }
+}
@@ -0,0 +1,105 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Creates virtual threads when the Java runtime has them (Java 21 and later) without requiring that runtime to compile
+ * or to run Kettle. On older runtimes {@link #isSupported()} returns false and {@link #newThread(Runnable)} creates a
+ * normal platform thread.
+ * <p>
+ * Virtual threads are cheap to create and park: a blocked step copy doesn't hold on to an operating system thread and
+ * its stack while it waits for rows.
+ *
+ * @since 11.1
+ */
+public final class VirtualThreads {
+
+  private static final Method OF_VIRTUAL;
+  private static final Method UNSTARTED;
+  private static final Method IS_VIRTUAL;
+
+  static {
+    Method ofVirtual = null;
+    Method unstarted = null;
+    Method isVirtual = null;
+    try {
+      isVirtual = Thread.class.getMethod( "isVirtual" );
+      ofVirtual = Thread.class.getMethod( "ofVirtual" );
+      unstarted = Class.forName( "java.lang.Thread$Builder" ).getMethod( "unstarted", Runnable.class );
+      // Fails with an UnsupportedOperationException on a runtime where virtual threads are a preview feature
+      unstarted.invoke( ofVirtual.invoke( null ), new Runnable() {
+        @Override
+        public void run() {
+          // Never started
+        }
+      } );
+    } catch ( Exception e ) {
+      ofVirtual = null;
+      unstarted = null;
+      isVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    UNSTARTED = unstarted;
+    IS_VIRTUAL = isVirtual;
+  }
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * @return true if the Java runtime can create virtual threads
+   */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * @param thread
+   *          the thread to check
+   * @return true if the thread is a virtual thread
+   */
+  public static boolean isVirtual( Thread thread ) {
+    if ( IS_VIRTUAL == null ) {
+      return false;
+    }
+    try {
+      return (Boolean) IS_VIRTUAL.invoke( thread );
+    } catch ( Exception e ) {
+      return false;
+    }
+  }
+
+  /**
+   * Create a new virtual thread, or a platform thread if virtual threads are not supported. The thread isn't started.
+   *
+   * @param runnable
+   *          the code to run in the thread
+   * @return the new thread
+   */
+  public static Thread newThread( Runnable runnable ) {
+    if ( OF_VIRTUAL == null ) {
+      return new Thread( runnable );
+    }
+    try {
+      return (Thread) UNSTARTED.invoke( OF_VIRTUAL.invoke( null ), runnable );
+    } catch ( IllegalAccessException e ) {
+      throw new IllegalStateException( e );
+    } catch ( InvocationTargetException e ) {
+      throw new IllegalStateException( e.getCause() );
+    }
+  }
+}
@@ -15,6 +15,7 @@ package org.pentaho.di.core;
 
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaAndData;
@@ -357,4 +358,44 @@ public class ConditionTest {
     assertTrue( c.isEmpty() );
   }
 
+  @Test
+  public void testEvaluateRowBatchMatchesRowByRow() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+
+    RowBatch batch = new RowBatch( rowMeta, 10 );
+    Object[][] rows = {
+      { 1L, 1.5 }, { 5L, null }, { null, 7.5 }, { 10L, 10.0 }, { -3L, -2.0 } };
+    for ( Object[] row : rows ) {
+      batch.addRow( row );
+    }
+
+    Condition composite = new Condition( "id", Condition.FUNC_LARGER_EQUAL, null,
+      new ValueMetaAndData( new ValueMetaInteger( "constant" ), 5L ) );
+    Condition second = new Condition( "amount", Condition.FUNC_SMALLER, null,
+      new ValueMetaAndData( new ValueMetaNumber( "constant" ), 8.0 ) );
+    second.setOperator( Condition.OPERATOR_OR );
+    Condition outer = new Condition();
+    outer.addCondition( composite );
+    outer.addCondition( second );
+
+    List<Condition> conditions = Arrays.asList(
+      new Condition( "id", Condition.FUNC_EQUAL, null, new ValueMetaAndData( new ValueMetaInteger( "c" ), 5L ) ),
+      new Condition( "id", Condition.FUNC_SMALLER, null, new ValueMetaAndData( new ValueMetaInteger( "c" ), 5L ) ),
+      new Condition( "amount", Condition.FUNC_NOT_NULL, null, null ),
+      new Condition( true, "amount", Condition.FUNC_LARGER, null,
+        new ValueMetaAndData( new ValueMetaNumber( "c" ), 1.5 ) ),
+      new Condition( "id", Condition.FUNC_EQUAL, "amount", null ),
+      outer );
+
+    for ( Condition condition : conditions ) {
+      boolean[] result = new boolean[batch.size()];
+      condition.evaluate( batch, result );
+      for ( int i = 0; i < rows.length; i++ ) {
+        assertEquals( condition.toString() + " row " + i, condition.evaluate( rowMeta, rows[i] ), result[i] );
+      }
+    }
+  }
+
 }
@@ -0,0 +1,150 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEnvironment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferRowSetTest {
+  @ClassRule public static RestorePDIEnvironment env = new RestorePDIEnvironment();
+
+  private RowMetaInterface createRowMetaInterface() {
+    RowMetaInterface rm = new RowMeta();
+    rm.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+    return rm;
+  }
+
+  @Test
+  public void testBasicCreation() {
+    RowSet set = new RingBufferRowSet( 10 );
+
+    assertFalse( set.isDone() );
+    assertEquals( 0, set.size() );
+    assertNull( set.getRowImmediate() );
+    assertNull( set.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testPutAndGetInOrder() {
+    RowSet set = new RingBufferRowSet( 10 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    for ( int i = 0; i < 5; i++ ) {
+      assertTrue( set.putRow( rm, new Object[] { (long) i } ) );
+    }
+    assertEquals( 5, set.size() );
+    assertEquals( rm, set.getRowMeta() );
+
+    set.setDone();
+    assertTrue( set.isDone() );
+
+    for ( int i = 0; i < 5; i++ ) {
+      assertArrayEquals( new Object[] { (long) i }, set.getRow() );
+    }
+    assertEquals( 0, set.size() );
+    assertNull( set.getRow() );
+  }
+
+  @Test
+  public void testFullBufferTimesOut() {
+    RowSet set = new RingBufferRowSet( 3 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    for ( int i = 0; i < 3; i++ ) {
+      assertTrue( set.putRowWait( rm, new Object[] { (long) i }, 1, TimeUnit.MILLISECONDS ) );
+    }
+    assertEquals( 3, set.size() );
+    assertFalse( set.putRowWait( rm, new Object[] { 3L }, 1, TimeUnit.MILLISECONDS ) );
+
+    // Freeing up one slot makes room again, also when wrapping around the end of the buffer
+    assertArrayEquals( new Object[] { 0L }, set.getRowImmediate() );
+    assertTrue( set.putRowWait( rm, new Object[] { 3L }, 1, TimeUnit.MILLISECONDS ) );
+    assertEquals( 3, set.size() );
+  }
+
+  @Test
+  public void testNullRowIsRejected() {
+    RowSet set = new RingBufferRowSet( 3 );
+    assertFalse( set.putRow( createRowMetaInterface(), null ) );
+    assertEquals( 0, set.size() );
+  }
+
+  @Test
+  public void testClear() {
+    RowSet set = new RingBufferRowSet( 3 );
+    RowMetaInterface rm = createRowMetaInterface();
+    set.putRow( rm, new Object[] { 1L } );
+    set.setDone();
+
+    set.clear();
+
+    assertFalse( set.isDone() );
+    assertEquals( 0, set.size() );
+    assertNull( set.getRowImmediate() );
+    assertTrue( set.putRow( rm, new Object[] { 2L } ) );
+    assertArrayEquals( new Object[] { 2L }, set.getRowImmediate() );
+  }
+
+  @Test( timeout = 30000 )
+  public void testConcurrentProducerAndConsumer() throws Exception {
+    final RowSet set = new RingBufferRowSet( 16 );
+    final RowMetaInterface rm = createRowMetaInterface();
+    final int nrRows = 200000;
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    Thread producer = new Thread( () -> {
+      try {
+        for ( long i = 0; i < nrRows; i++ ) {
+          Object[] row = new Object[] { i };
+          while ( !set.putRow( rm, row ) ) {
+            // retry, the consumer is slow
+          }
+        }
+        set.setDone();
+      } catch ( Throwable t ) {
+        failure.set( t );
+      }
+    } );
+    producer.start();
+
+    long expected = 0;
+    Object[] row = set.getRow();
+    while ( row != null || !set.isDone() ) {
+      if ( row != null ) {
+        assertEquals( expected++, row[0] );
+      }
+      row = set.getRow();
+      if ( row == null && set.isDone() ) {
+        row = set.getRowImmediate();
+      }
+    }
+    producer.join();
+
+    assertNull( failure.get() );
+    assertEquals( nrRows, expected );
+  }
+}
@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowBatch;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RowBatchRowSetTest {
+  @ClassRule public static RestorePDIEnvironment env = new RestorePDIEnvironment();
+
+  private RowMetaInterface createRowMetaInterface() {
+    RowMetaInterface rm = new RowMeta();
+    rm.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+    return rm;
+  }
+
+  private RowBatch createBatch( RowMetaInterface rm, long from, int count ) {
+    RowBatch batch = new RowBatch( rm, count );
+    for ( int i = 0; i < count; i++ ) {
+      batch.addRow( new Object[] { from + i } );
+    }
+    return batch;
+  }
+
+  @Test
+  public void testBatchesAreHandedOverAsTheyAre() {
+    RowBatchRowSet rowSet = new RowBatchRowSet( 10 );
+    RowMetaInterface rm = createRowMetaInterface();
+    RowBatch batch = createBatch( rm, 0L, 4 );
+
+    assertTrue( rowSet.putRowBatch( rm, batch ) );
+    assertEquals( 4, rowSet.size() );
+    assertSame( rm, rowSet.getRowMeta() );
+    assertSame( batch, rowSet.getRowBatchImmediate() );
+    assertEquals( 0, rowSet.size() );
+    assertNull( rowSet.getRowBatchImmediate() );
+  }
+
+  @Test
+  public void testRowsAndBatchesKeepTheirOrder() {
+    RowBatchRowSet rowSet = new RowBatchRowSet( 100 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    rowSet.putRowBatch( rm, createBatch( rm, 0L, 3 ) );
+    rowSet.putRow( rm, new Object[] { 3L } );
+    rowSet.putRow( rm, new Object[] { 4L } );
+    rowSet.putRowBatch( rm, createBatch( rm, 5L, 2 ) );
+    rowSet.setDone();
+    assertEquals( 7, rowSet.size() );
+
+    // A batch read row by row
+    assertEquals( 0L, rowSet.getRow()[0] );
+
+    // The rest of the batch, then the single rows gathered in a batch, then the last batch
+    RowBatch rest = rowSet.getRowBatchImmediate();
+    assertEquals( 2, rest.size() );
+    assertEquals( 1L, rest.getRow( 0 )[0] );
+    assertEquals( 2L, rest.getRow( 1 )[0] );
+
+    RowBatch gathered = rowSet.getRowBatchImmediate();
+    assertEquals( 2, gathered.size() );
+    assertEquals( 3L, gathered.getRow( 0 )[0] );
+    assertEquals( 4L, gathered.getRow( 1 )[0] );
+
+    assertEquals( 5L, rowSet.getRowImmediate()[0] );
+    assertEquals( 6L, rowSet.getRowWait( 1, TimeUnit.MILLISECONDS )[0] );
+    assertEquals( 0, rowSet.size() );
+    assertNull( rowSet.getRowBatchWait( 1, TimeUnit.MILLISECONDS ) );
+    assertTrue( rowSet.isDone() );
+  }
+
+  @Test
+  public void testWriterWaitsForRoom() {
+    RowBatchRowSet rowSet = new RowBatchRowSet( 3 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    // A batch larger than the row set still fits in an empty row set
+    assertTrue( rowSet.putRowBatchWait( rm, createBatch( rm, 0L, 5 ), 1, TimeUnit.MILLISECONDS ) );
+    assertFalse( rowSet.putRowWait( rm, new Object[] { 5L }, 1, TimeUnit.MILLISECONDS ) );
+    assertFalse( rowSet.putRowBatchWait( rm, createBatch( rm, 5L, 1 ), 1, TimeUnit.MILLISECONDS ) );
+
+    assertEquals( 5, rowSet.getRowBatchImmediate().size() );
+    assertTrue( rowSet.putRowWait( rm, new Object[] { 5L }, 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testEmptyBatchOnlySetsTheRowMeta() {
+    RowBatchRowSet rowSet = new RowBatchRowSet( 10 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    assertTrue( rowSet.putRowBatch( rm, new RowBatch( rm, 4 ) ) );
+    assertSame( rm, rowSet.getRowMeta() );
+    assertEquals( 0, rowSet.size() );
+    assertNull( rowSet.getRowBatchImmediate() );
+  }
+
+  @Test
+  public void testDoneWakesUpWaitingReader() throws Exception {
+    RowBatchRowSet rowSet = new RowBatchRowSet( 10 );
+    Thread reader = new Thread( () -> assertNull( rowSet.getRowBatchWait( 1, TimeUnit.MINUTES ) ) );
+    reader.start();
+    Thread.sleep( 10 );
+    rowSet.setDone();
+    reader.join( 5000 );
+    assertFalse( reader.isAlive() );
+  }
+}
@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+/**
+ * Measures the throughput of a single producer / single consumer hop for the row set implementations used by Trans.
+ * This is not a unit test, run it with the main method or through the JMH runner.
+ */
+@State( Scope.Group )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 2 )
+public class RowSetBenchmark {
+
+  @Param( { "blocking", "batching", "ringbuffer" } )
+  public String rowSetType;
+
+  @Param( { "10000" } )
+  public int rowSetSize;
+
+  private RowSet rowSet;
+  private RowMetaInterface rowMeta;
+  private Object[] row;
+
+  @Setup( Level.Iteration )
+  public void setUp() {
+    switch ( rowSetType ) {
+      case "batching":
+        rowSet = new BlockingBatchingRowSet( rowSetSize );
+        break;
+      case "ringbuffer":
+        rowSet = new RingBufferRowSet( rowSetSize );
+        break;
+      default:
+        rowSet = new BlockingRowSet( rowSetSize );
+        break;
+    }
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    row = new Object[] { 1L };
+  }
+
+  @Benchmark
+  @Group( "hop" )
+  @GroupThreads( 1 )
+  public boolean putRow( Control control ) {
+    while ( !control.stopMeasurement ) {
+      if ( rowSet.putRow( rowMeta, row ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Benchmark
+  @Group( "hop" )
+  @GroupThreads( 1 )
+  public Object[] getRow( Control control ) {
+    while ( !control.stopMeasurement ) {
+      Object[] r = rowSet.getRow();
+      if ( r != null ) {
+        return r;
+      }
+    }
+    return null;
+  }
+
+  public static void main( String[] args ) throws RunnerException {
+    new Runner( new OptionsBuilder().include( RowSetBenchmark.class.getSimpleName() ).build() ).run();
+  }
+}
@@ -0,0 +1,128 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RowSetSignalTest {
+  @ClassRule public static RestorePDIEnvironment env = new RestorePDIEnvironment();
+
+  private RowMetaInterface createRowMetaInterface() {
+    RowMetaInterface rm = new RowMeta();
+    rm.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+    return rm;
+  }
+
+  @Test
+  public void testPutAndDoneRaiseTheSignal() {
+    RowMetaInterface rm = createRowMetaInterface();
+    List<RowSet> rowSets = Arrays.asList( new BlockingRowSet( 2 ), new BlockingListeningRowSet( 2 ),
+      new RingBufferRowSet( 2 ), new RowBatchRowSet( 2 ) );
+    for ( RowSet rowSet : rowSets ) {
+      String name = rowSet.getClass().getSimpleName();
+      CountingSignal signal = new CountingSignal();
+      assertTrue( name, rowSet.setConsumerSignal( signal ) );
+
+      assertTrue( name, rowSet.putRow( rm, new Object[] { 1L } ) );
+      assertTrue( name, rowSet.putRowWait( rm, new Object[] { 2L }, 1, TimeUnit.MILLISECONDS ) );
+      assertEquals( name, 2, signal.raised );
+
+      // A row that doesn't fit isn't signalled
+      assertFalse( name, rowSet.putRowWait( rm, new Object[] { 3L }, 1, TimeUnit.MILLISECONDS ) );
+      assertEquals( name, 2, signal.raised );
+
+      rowSet.setDone();
+      assertEquals( name, 3, signal.raised );
+    }
+  }
+
+  @Test
+  public void testBatchingRowSetRaisesTheSignalPerBatch() {
+    RowMetaInterface rm = createRowMetaInterface();
+    BlockingBatchingRowSet rowSet = new BlockingBatchingRowSet( 4 );
+    CountingSignal signal = new CountingSignal();
+    assertTrue( rowSet.setConsumerSignal( signal ) );
+
+    rowSet.putRow( rm, new Object[] { 1L } );
+    assertEquals( 0, signal.raised );
+    rowSet.putRow( rm, new Object[] { 2L } );
+    assertEquals( 1, signal.raised );
+
+    // The last partial batch is handed over when the row set is done
+    rowSet.putRow( rm, new Object[] { 3L } );
+    rowSet.setDone();
+    assertEquals( 3, signal.raised );
+  }
+
+  @Test
+  public void testSharedQueueRaisesTheSignalOfAllTargetCopies() {
+    List<SharedQueueRowSet> group = SharedQueueRowSet.createGroup( 2, 10 );
+    CountingSignal first = new CountingSignal();
+    CountingSignal second = new CountingSignal();
+    assertTrue( group.get( 0 ).setConsumerSignal( first ) );
+    assertTrue( group.get( 1 ).setConsumerSignal( second ) );
+
+    group.get( 0 ).putRow( createRowMetaInterface(), new Object[] { 1L } );
+    assertEquals( 1, first.raised );
+    assertEquals( 1, second.raised );
+  }
+
+  @Test
+  public void testSingleThreadedRowSetsDoNotSignal() {
+    assertFalse( new QueueRowSet().setConsumerSignal( new RowSetSignal() ) );
+    assertFalse( new SingleRowRowSet().setConsumerSignal( new RowSetSignal() ) );
+  }
+
+  @Test( timeout = 10000 )
+  public void testPutWakesUpTheArmedThread() throws Exception {
+    RowSetSignal signal = new RowSetSignal();
+    RowSet rowSet = new BlockingRowSet( 1 );
+    rowSet.setConsumerSignal( signal );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    signal.arm();
+    Thread producer = new Thread( () -> rowSet.putRow( rm, new Object[] { 1L } ) );
+    producer.start();
+    // Without the signal this would park for a minute and hit the test timeout
+    while ( rowSet.size() == 0 ) {
+      signal.await( 1, TimeUnit.MINUTES );
+    }
+    signal.disarm();
+    producer.join();
+    assertEquals( 1, rowSet.size() );
+  }
+
+  private static class CountingSignal extends RowSetSignal {
+    private int raised;
+
+    @Override
+    public void raise() {
+      raised++;
+      super.raise();
+    }
+  }
+}
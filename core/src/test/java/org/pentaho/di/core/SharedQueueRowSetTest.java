@@ -0,0 +1,136 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEnvironment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SharedQueueRowSetTest {
+  @ClassRule public static RestorePDIEnvironment env = new RestorePDIEnvironment();
+
+  private RowMetaInterface createRowMetaInterface() {
+    RowMetaInterface rm = new RowMeta();
+    rm.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+    return rm;
+  }
+
+  @Test
+  public void testRowsAreSharedByTheGroup() {
+    List<SharedQueueRowSet> group = SharedQueueRowSet.createGroup( 3, 10 );
+    assertEquals( 3, group.size() );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    // Everything goes through the first row set, every copy can take the rows
+    for ( int i = 0; i < 6; i++ ) {
+      assertTrue( group.get( 0 ).putRow( rm, new Object[] { (long) i } ) );
+    }
+    assertEquals( 6, group.get( 2 ).size() );
+    assertSame( rm, group.get( 1 ).getRowMeta() );
+    assertSame( rm, group.get( 2 ).getRowMeta() );
+
+    assertArrayEquals( new Object[] { 0L }, group.get( 2 ).getRow() );
+    assertArrayEquals( new Object[] { 1L }, group.get( 2 ).getRowImmediate() );
+    assertArrayEquals( new Object[] { 2L }, group.get( 1 ).getRowWait( 1, TimeUnit.MILLISECONDS ) );
+    assertEquals( 3, group.get( 0 ).size() );
+
+    assertEquals( 0, group.get( 0 ).getRowsTaken() );
+    assertEquals( 1, group.get( 1 ).getRowsTaken() );
+    assertEquals( 2, group.get( 2 ).getRowsTaken() );
+
+    for ( SharedQueueRowSet rowSet : group ) {
+      rowSet.setDone();
+    }
+    assertArrayEquals( new Object[] { 3L }, group.get( 0 ).getRow() );
+    assertArrayEquals( new Object[] { 4L }, group.get( 0 ).getRow() );
+    assertArrayEquals( new Object[] { 5L }, group.get( 1 ).getRow() );
+    assertNull( group.get( 2 ).getRowImmediate() );
+    assertTrue( group.get( 2 ).isDone() );
+    assertEquals( 2, group.get( 0 ).getRowsTaken() );
+  }
+
+  @Test
+  public void testFullBufferTimesOut() {
+    List<SharedQueueRowSet> group = SharedQueueRowSet.createGroup( 2, 2 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    assertTrue( group.get( 0 ).putRowWait( rm, new Object[] { 0L }, 1, TimeUnit.MILLISECONDS ) );
+    assertTrue( group.get( 1 ).putRowWait( rm, new Object[] { 1L }, 1, TimeUnit.MILLISECONDS ) );
+    assertFalse( group.get( 0 ).putRowWait( rm, new Object[] { 2L }, 1, TimeUnit.MILLISECONDS ) );
+    assertFalse( group.get( 1 ).putRowWait( rm, new Object[] { 2L }, 1, TimeUnit.MILLISECONDS ) );
+
+    group.get( 1 ).getRow();
+    assertTrue( group.get( 0 ).putRowWait( rm, new Object[] { 2L }, 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testIdleCopiesTakeOverTheRows() throws Exception {
+    final List<SharedQueueRowSet> group = SharedQueueRowSet.createGroup( 2, 100 );
+    final RowMetaInterface rm = createRowMetaInterface();
+    final int nrRows = 10000;
+
+    Thread producer = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        for ( int i = 0; i < nrRows; i++ ) {
+          // Round robin, like the default distribution
+          while ( !group.get( i % 2 ).putRow( rm, new Object[] { (long) i } ) ) {
+            // try again
+          }
+        }
+        for ( SharedQueueRowSet rowSet : group ) {
+          rowSet.setDone();
+        }
+      }
+    } );
+    Thread slow = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        SharedQueueRowSet rowSet = group.get( 1 );
+        while ( rowSet.getRowWait( 1, TimeUnit.MILLISECONDS ) != null || !rowSet.isDone() ) {
+          try {
+            Thread.sleep( 1 );
+          } catch ( InterruptedException e ) {
+            return;
+          }
+        }
+      }
+    } );
+    producer.start();
+    slow.start();
+
+    SharedQueueRowSet fast = group.get( 0 );
+    while ( fast.getRowWait( 1, TimeUnit.MILLISECONDS ) != null || !fast.isDone() ) {
+      // keep on taking rows
+    }
+    producer.join();
+    slow.join();
+
+    assertEquals( nrRows, group.get( 0 ).getRowsTaken() + group.get( 1 ).getRowsTaken() );
+    assertTrue( group.get( 0 ).getRowsTaken() > nrRows / 2 );
+  }
+}
@@ -0,0 +1,79 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class CompositeKeyHashIndexTest {
+
+  private RowMetaInterface createKeyMeta() {
+    RowMetaInterface keyMeta = new RowMeta();
+    keyMeta.addValueMeta( new ValueMetaString( "code" ) );
+    keyMeta.addValueMeta( new ValueMetaInteger( "version" ) );
+    keyMeta.addValueMeta( new ValueMetaDate( "valid_from" ) );
+    return keyMeta;
+  }
+
+  @Test
+  public void testPutAndGet() throws KettleValueException {
+    CompositeKeyHashIndex<Object[]> index = new CompositeKeyHashIndex<>( createKeyMeta() );
+    Date date = new Date( 1000L );
+    index.put( new Object[] { "A", 1L, date }, new Object[] { "first" } );
+    index.put( new Object[] { "A", 2L, date }, new Object[] { "second" } );
+    index.put( new Object[] { null, null, null }, new Object[] { "nulls" } );
+
+    assertEquals( 3, index.getSize() );
+    assertArrayEquals( new Object[] { "first" }, index.get( new Object[] { "A", 1L, new Date( 1000L ) } ) );
+    assertArrayEquals( new Object[] { "second" }, index.get( new Object[] { "A", 2L, date } ) );
+    assertArrayEquals( new Object[] { "nulls" }, index.get( new Object[] { null, null, null } ) );
+    assertNull( index.get( new Object[] { "B", 1L, date } ) );
+    assertNull( index.get( new Object[] { "A", null, date } ) );
+  }
+
+  @Test
+  public void testKeyIsCopiedAndValueReplaced() throws KettleValueException {
+    CompositeKeyHashIndex<String> index = new CompositeKeyHashIndex<>( createKeyMeta() );
+    Object[] key = new Object[] { "A", 1L, null };
+    index.put( key, "first" );
+    key[0] = "B";
+
+    assertNull( index.get( key ) );
+    assertEquals( "first", index.put( new Object[] { "A", 1L, null }, "second" ) );
+    assertEquals( 1, index.getSize() );
+  }
+
+  @Test
+  public void testResize() throws KettleValueException {
+    CompositeKeyHashIndex<Long> index = new CompositeKeyHashIndex<>( createKeyMeta(), 0 );
+    for ( long i = 0; i < 50000; i++ ) {
+      index.put( new Object[] { "code" + ( i % 100 ), i, null }, i );
+    }
+    assertEquals( 50000, index.getSize() );
+    for ( long i = 0; i < 50000; i++ ) {
+      assertEquals( Long.valueOf( i ), index.get( new Object[] { "code" + ( i % 100 ), i, null } ) );
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LongObjectHashIndexTest {
+
+  @Test
+  public void testPutAndGet() {
+    LongObjectHashIndex<String> index = new LongObjectHashIndex<>();
+    assertTrue( index.isEmpty() );
+    assertNull( index.put( 1L, "one" ) );
+    assertNull( index.put( -1L, "minus one" ) );
+    assertNull( index.put( 0L, "zero" ) );
+
+    assertEquals( 3, index.getSize() );
+    assertEquals( "one", index.get( 1L ) );
+    assertEquals( "minus one", index.get( -1L ) );
+    assertEquals( "zero", index.get( 0L ) );
+    assertNull( index.get( 2L ) );
+  }
+
+  @Test
+  public void testReplaceValue() {
+    LongObjectHashIndex<String> index = new LongObjectHashIndex<>();
+    index.put( 42L, "first" );
+    assertEquals( "first", index.put( 42L, "second" ) );
+    assertEquals( 1, index.getSize() );
+    assertEquals( "second", index.get( 42L ) );
+  }
+
+  @Test
+  public void testResize() {
+    LongObjectHashIndex<Long> index = new LongObjectHashIndex<>( 0 );
+    // Multiples of a power of 2 used to all land in the same bucket
+    for ( long i = 0; i < 100000; i++ ) {
+      index.put( i << 20, i );
+    }
+    assertEquals( 100000, index.getSize() );
+    for ( long i = 0; i < 100000; i++ ) {
+      assertEquals( Long.valueOf( i ), index.get( i << 20 ) );
+    }
+    assertNull( index.get( 1L ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testNullValueIsRejected() {
+    new LongObjectHashIndex<String>().put( 1L, null );
+  }
+}
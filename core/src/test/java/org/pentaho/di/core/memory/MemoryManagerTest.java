@@ -0,0 +1,123 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.memory;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryManagerTest {
+
+  @Test
+  public void testReserveAndRelease() {
+    MemoryManager manager = new MemoryManager( "trans", 1000 );
+    MemoryGrant grant = manager.createGrant( "sort.0", true );
+
+    assertTrue( grant.reserve( 600 ) );
+    assertTrue( grant.reserve( 400 ) );
+    assertFalse( grant.reserve( 1 ) );
+    assertEquals( 1000, manager.getUsed() );
+    assertEquals( 1000, grant.getReserved() );
+
+    grant.release( 300 );
+    assertEquals( 700, manager.getUsed() );
+    assertTrue( grant.reserve( 300 ) );
+
+    // Never release more than was reserved
+    grant.release( 5000 );
+    assertEquals( 0, grant.getReserved() );
+    assertEquals( 0, manager.getUsed() );
+    assertEquals( 1000, grant.getPeak() );
+  }
+
+  @Test
+  public void testRefusalRequestsSpillFromLargestConsumers() {
+    MemoryManager manager = new MemoryManager( "trans", 1000 );
+    MemoryGrant small = manager.createGrant( "small", true );
+    MemoryGrant large = manager.createGrant( "large", true );
+    MemoryGrant lookup = manager.createGrant( "lookup", false );
+    MemoryGrant requester = manager.createGrant( "requester", true );
+
+    assertTrue( small.reserve( 100 ) );
+    assertTrue( large.reserve( 500 ) );
+    assertTrue( lookup.reserve( 300 ) );
+    assertTrue( requester.reserve( 50 ) );
+
+    assertFalse( requester.reserve( 200 ) );
+
+    // Freeing up the largest one is enough, a consumer that can't spill is never asked
+    assertTrue( large.isSpillRequested() );
+    assertFalse( small.isSpillRequested() );
+    assertFalse( lookup.isSpillRequested() );
+    assertFalse( requester.isSpillRequested() );
+
+    large.releaseAll();
+    large.spilled();
+    assertFalse( large.isSpillRequested() );
+    assertEquals( 1, large.getSpills() );
+    assertTrue( requester.reserve( 200 ) );
+  }
+
+  @Test
+  public void testForceReserveExceedsLimit() {
+    MemoryManager manager = new MemoryManager( "trans", 1000 );
+    MemoryGrant sort = manager.createGrant( "sort", true );
+    MemoryGrant lookup = manager.createGrant( "lookup", false );
+
+    assertTrue( sort.reserve( 800 ) );
+    lookup.forceReserve( 500 );
+
+    assertEquals( 1300, manager.getUsed() );
+    assertTrue( sort.isSpillRequested() );
+    assertFalse( sort.reserve( 1 ) );
+  }
+
+  @Test
+  public void testNestedManagersShareTheParentLimit() {
+    MemoryManager server = new MemoryManager( "server", 1000 );
+    MemoryManager trans1 = new MemoryManager( "trans1", Long.MAX_VALUE, server );
+    MemoryManager trans2 = new MemoryManager( "trans2", 800, server );
+    MemoryGrant grant1 = trans1.createGrant( "sort", true );
+    MemoryGrant grant2 = trans2.createGrant( "group by", true );
+
+    assertTrue( grant1.reserve( 700 ) );
+    assertFalse( grant2.reserve( 400 ) );
+
+    // The other transformation is asked to make room, nothing is left reserved by the refused request
+    assertTrue( grant1.isSpillRequested() );
+    assertEquals( 0, trans2.getUsed() );
+    assertEquals( 700, server.getUsed() );
+
+    assertTrue( grant2.reserve( 300 ) );
+    assertEquals( 1000, server.getUsed() );
+
+    // Closing a transformation gives back everything it still holds
+    trans1.close();
+    assertEquals( 0, grant1.getReserved() );
+    assertEquals( 300, server.getUsed() );
+    assertFalse( grant1.reserve( 1 ) );
+    assertTrue( grant2.reserve( 500 ) );
+  }
+
+  @Test
+  public void testEstimateRowSize() {
+    assertEquals( 0, MemoryManager.estimateRowSize( null ) );
+    long empty = MemoryManager.estimateRowSize( new Object[ 2 ] );
+    assertTrue( empty > 0 );
+    assertTrue( MemoryManager.estimateRowSize( new Object[] { "abcdefghij", null } ) > empty + 20 );
+    assertTrue( MemoryManager.estimateRowSize( new Object[] { 1L, new byte[ 100 ] } ) > empty + 100 );
+  }
+}
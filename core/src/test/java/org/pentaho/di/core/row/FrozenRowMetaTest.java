@@ -0,0 +1,184 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEnvironment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FrozenRowMetaTest {
+  @ClassRule public static RestorePDIEnvironment env = new RestorePDIEnvironment();
+
+  private RowMetaInterface rowMeta;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "Birth_Date" ) );
+  }
+
+  @Test
+  public void testSameFieldsAsSource() {
+    FrozenRowMeta frozen = FrozenRowMeta.freeze( rowMeta );
+
+    assertEquals( 3, frozen.size() );
+    assertFalse( frozen.isEmpty() );
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      assertSame( rowMeta.getValueMeta( i ), frozen.getValueMeta( i ) );
+    }
+    assertNull( frozen.getValueMeta( 3 ) );
+    assertNull( frozen.getValueMeta( -1 ) );
+    assertArrayEquals( rowMeta.getFieldNames(), frozen.getFieldNames() );
+    assertEquals( rowMeta.getValueMetaList(), frozen.getValueMetaList() );
+    assertEquals( rowMeta.toString(), frozen.toString() );
+  }
+
+  @Test
+  public void testFreezeIsIdempotent() {
+    FrozenRowMeta frozen = FrozenRowMeta.freeze( rowMeta );
+    assertSame( frozen, FrozenRowMeta.freeze( frozen ) );
+    assertNull( FrozenRowMeta.freeze( null ) );
+  }
+
+  @Test
+  public void testIndexOfValueIsCaseInsensitive() {
+    rowMeta.addValueMeta( new ValueMetaString( "ID" ) );
+    FrozenRowMeta frozen = FrozenRowMeta.freeze( rowMeta );
+
+    assertEquals( 0, frozen.indexOfValue( "name" ) );
+    assertEquals( 2, frozen.indexOfValue( "birth_date" ) );
+    assertEquals( rowMeta.indexOfValue( "ID" ), frozen.indexOfValue( "ID" ) );
+    assertEquals( 1, frozen.indexOfValue( "ID" ) );
+    assertEquals( -1, frozen.indexOfValue( "unknown" ) );
+    assertEquals( -1, frozen.indexOfValue( null ) );
+    assertSame( rowMeta.getValueMeta( 2 ), frozen.searchValueMeta( "BIRTH_DATE" ) );
+    assertNull( frozen.searchValueMeta( "unknown" ) );
+  }
+
+  @Test
+  public void testIndexOfValueAfterRename() {
+    FrozenRowMeta frozen = FrozenRowMeta.freeze( rowMeta );
+    frozen.getValueMeta( 1 ).setName( "key" );
+
+    assertEquals( 1, frozen.indexOfValue( "key" ) );
+    assertEquals( -1, frozen.indexOfValue( "id" ) );
+  }
+
+  @Test
+  public void testModificationsAreRejected() throws Exception {
+    FrozenRowMeta frozen = FrozenRowMeta.freeze( rowMeta );
+    try {
+      frozen.addValueMeta( new ValueMetaString( "extra" ) );
+      fail( "Frozen row metadata can't be modified" );
+    } catch ( UnsupportedOperationException e ) {
+      // expected
+    }
+    try {
+      frozen.removeValueMeta( 0 );
+      fail( "Frozen row metadata can't be modified" );
+    } catch ( UnsupportedOperationException e ) {
+      // expected
+    }
+    try {
+      frozen.getValueMetaList().clear();
+      fail( "Frozen row metadata can't be modified" );
+    } catch ( UnsupportedOperationException e ) {
+      // expected
+    }
+    assertEquals( 3, frozen.size() );
+
+    // The source isn't affected by the snapshot
+    rowMeta.addValueMeta( new ValueMetaString( "extra" ) );
+    assertEquals( 3, frozen.size() );
+  }
+
+  @Test
+  public void testCloneIsModifiable() {
+    FrozenRowMeta frozen = FrozenRowMeta.freeze( rowMeta );
+    RowMetaInterface clone = frozen.clone();
+
+    assertFalse( clone instanceof FrozenRowMeta );
+    clone.addValueMeta( new ValueMetaString( "extra" ) );
+    assertEquals( 4, clone.size() );
+    assertEquals( 3, frozen.size() );
+    assertNotSame( frozen.getValueMeta( 0 ), clone.getValueMeta( 0 ) );
+  }
+
+  @Test
+  public void testRowOperations() throws Exception {
+    FrozenRowMeta frozen = FrozenRowMeta.freeze( rowMeta );
+    Date date = new Date( 0L );
+    Object[] row1 = new Object[] { "a", 1L, date };
+    Object[] row2 = new Object[] { "a", 2L, date };
+
+    assertEquals( rowMeta.compare( row1, row2 ), frozen.compare( row1, row2 ) );
+    assertEquals( 0, frozen.compare( row1, row2, new int[] { 0, 2 } ) );
+    assertTrue( frozen.equals( row1, row2, new int[] { 0 } ) );
+    assertFalse( frozen.equals( row1, row2, new int[] { 1 } ) );
+    assertEquals( rowMeta.compare( row1, row2, new int[] { 1 }, new int[] { 1 } ),
+      frozen.compare( row1, row2, new int[] { 1 }, new int[] { 1 } ) );
+    assertEquals( rowMeta.getString( row1 ), frozen.getString( row1 ) );
+
+    Object[] clone = frozen.cloneRow( row1 );
+    assertNotSame( row1, clone );
+    assertArrayEquals( row1, clone );
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    frozen.writeData( new DataOutputStream( bytes ), row1 );
+    Object[] read = frozen.readData( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) );
+    assertArrayEquals( row1, read );
+  }
+
+  @Test
+  public void testCloneRowCopiesBinaries() throws Exception {
+    rowMeta.addValueMeta( new ValueMetaBinary( "data" ) );
+    FrozenRowMeta frozen = FrozenRowMeta.freeze( rowMeta );
+    byte[] data = new byte[] { 1, 2, 3 };
+    Object[] row = new Object[] { "a", 1L, null, data };
+
+    Object[] clone = frozen.cloneRow( row );
+    assertNotSame( data, clone[3] );
+    assertArrayEquals( data, (byte[]) clone[3] );
+    assertSame( row[0], clone[0] );
+  }
+}
@@ -0,0 +1,193 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapRowArenaTest {
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "flag" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    return rowMeta;
+  }
+
+  private Object[] createRow( long id, String name ) {
+    return new Object[] { id, id * 1.5, id % 2 == 0, name, new Date( id * 1000L ) };
+  }
+
+  private Comparator<Object[]> comparator( RowMetaInterface rowMeta, int... fieldNrs ) {
+    return ( o1, o2 ) -> {
+      try {
+        return rowMeta.compare( o1, o2, fieldNrs );
+      } catch ( KettleValueException e ) {
+        throw new RuntimeException( e );
+      }
+    };
+  }
+
+  @Test
+  public void testAddAndGetRowsAcrossSlabs() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    OffHeapRowArena arena = new OffHeapRowArena( rowMeta, null, 1024 );
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < 1000; i++ ) {
+      Object[] row = createRow( i, i % 10 == 0 ? null : "name " + i );
+      rows.add( row );
+      assertTrue( arena.add( row ) );
+    }
+
+    assertEquals( 1000, arena.size() );
+    assertTrue( arena.getMemoryUsage() > 1024 );
+    for ( int i = 0; i < rows.size(); i++ ) {
+      assertArrayEquals( rows.get( i ), arena.get( i ) );
+    }
+  }
+
+  @Test
+  public void testRowLargerThanSlab() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    OffHeapRowArena arena = new OffHeapRowArena( rowMeta, null, 1024 );
+    StringBuilder name = new StringBuilder();
+    for ( int i = 0; i < 5000; i++ ) {
+      name.append( (char) ( 'a' + i % 26 ) );
+    }
+    Object[] small = createRow( 1, "small" );
+    Object[] large = createRow( 2, name.toString() );
+
+    assertTrue( arena.add( small ) );
+    assertTrue( arena.add( large ) );
+    assertTrue( arena.add( small ) );
+
+    assertArrayEquals( small, arena.get( 0 ) );
+    assertArrayEquals( large, arena.get( 1 ) );
+    assertArrayEquals( small, arena.get( 2 ) );
+  }
+
+  @Test
+  public void testBudget() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    OffHeapMemoryBudget budget = new OffHeapMemoryBudget( 4096 );
+    OffHeapRowArena arena = new OffHeapRowArena( rowMeta, budget, 2048 );
+
+    int added = 0;
+    while ( arena.add( createRow( added, "row " + added ) ) ) {
+      added++;
+    }
+    assertTrue( added > 0 );
+    assertEquals( added, arena.size() );
+    assertEquals( 4096, budget.getUsed() );
+
+    // A second arena can't get anything while the first one holds on to the budget
+    OffHeapRowArena other = new OffHeapRowArena( rowMeta, budget, 2048 );
+    assertFalse( other.add( createRow( 0, "other" ) ) );
+
+    // Clearing keeps the slabs, so the same number of rows fits again
+    arena.clear();
+    assertEquals( 0, arena.size() );
+    assertEquals( 4096, budget.getUsed() );
+    for ( int i = 0; i < added; i++ ) {
+      assertTrue( arena.add( createRow( i, "row " + i ) ) );
+    }
+    assertArrayEquals( createRow( added - 1, "row " + ( added - 1 ) ), arena.get( added - 1 ) );
+
+    arena.close();
+    assertEquals( 0, budget.getUsed() );
+    assertTrue( other.add( createRow( 0, "other" ) ) );
+  }
+
+  @Test
+  public void testWriteRowMatchesWriteData() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    OffHeapRowArena arena = new OffHeapRowArena( rowMeta, null );
+    Object[] row = createRow( 42, "forty-two" );
+    arena.add( row );
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    rowMeta.writeData( new DataOutputStream( expected ), row );
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    arena.writeRow( 0, new DataOutputStream( actual ) );
+
+    assertArrayEquals( expected.toByteArray(), actual.toByteArray() );
+  }
+
+  @Test
+  public void testSortWithAndWithoutPrefixes() throws Exception {
+    Random random = new Random( 7 );
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < 5000; i++ ) {
+      // Few distinct names with a long common start: lots of equal prefixes to break ties on
+      rows.add( createRow( i, random.nextInt( 20 ) == 0 ? null : "same start " + random.nextInt( 50 ) ) );
+    }
+
+    for ( boolean descending : new boolean[] { false, true } ) {
+      for ( boolean prefix : new boolean[] { false, true } ) {
+        RowMetaInterface rowMeta = createRowMeta();
+        rowMeta.getValueMeta( 3 ).setSortedDescending( descending );
+        Comparator<Object[]> comparator = comparator( rowMeta, 3 );
+
+        OffHeapRowArena arena = new OffHeapRowArena( rowMeta, null, 4096 );
+        if ( prefix ) {
+          arena.setPrefixField( 3 );
+        }
+        assertEquals( prefix, arena.isUsingPrefixes() );
+        for ( Object[] row : rows ) {
+          arena.add( row );
+        }
+        arena.sort( comparator );
+
+        // The sort is stable: compare with the list sort, which is stable as well
+        List<Object[]> expected = new ArrayList<>( rows );
+        expected.sort( comparator );
+        for ( int i = 0; i < expected.size(); i++ ) {
+          assertArrayEquals( expected.get( i ), arena.get( i ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPrefixFieldIsIgnoredForUnsupportedTypes() {
+    RowMetaInterface rowMeta = createRowMeta();
+    rowMeta.getValueMeta( 3 ).setCaseInsensitive( true );
+    OffHeapRowArena arena = new OffHeapRowArena( rowMeta, null );
+    arena.setPrefixField( 3 );
+    assertFalse( arena.isUsingPrefixes() );
+    arena.setPrefixField( 0 );
+    assertTrue( arena.isUsingPrefixes() );
+  }
+}
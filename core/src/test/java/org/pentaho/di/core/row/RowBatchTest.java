@@ -0,0 +1,183 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RowBatchTest {
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "flag" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    return rowMeta;
+  }
+
+  @Test
+  public void testColumnKinds() {
+    RowMetaInterface rowMeta = createRowMeta();
+    assertEquals( ColumnVector.KIND_LONG, ColumnVector.getKind( rowMeta.getValueMeta( 0 ) ) );
+    assertEquals( ColumnVector.KIND_DOUBLE, ColumnVector.getKind( rowMeta.getValueMeta( 1 ) ) );
+    assertEquals( ColumnVector.KIND_BOOLEAN, ColumnVector.getKind( rowMeta.getValueMeta( 2 ) ) );
+    assertEquals( ColumnVector.KIND_OBJECT, ColumnVector.getKind( rowMeta.getValueMeta( 3 ) ) );
+    assertEquals( ColumnVector.KIND_OBJECT, ColumnVector.getKind( rowMeta.getValueMeta( 4 ) ) );
+
+    ValueMetaInterface lazy = new ValueMetaInteger( "lazy" );
+    lazy.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    assertEquals( ColumnVector.KIND_OBJECT, ColumnVector.getKind( lazy ) );
+  }
+
+  @Test
+  public void testAddAndGetRows() {
+    RowMetaInterface rowMeta = createRowMeta();
+    RowBatch batch = new RowBatch( rowMeta, 2 );
+    Date date = new Date();
+
+    assertTrue( batch.isEmpty() );
+    assertTrue( batch.addRow( new Object[] { 1L, 2.5, true, "one", date } ) );
+    assertTrue( batch.addRow( new Object[] { null, null, null, null, null } ) );
+    assertTrue( batch.isFull() );
+    assertFalse( batch.addRow( new Object[] { 3L, 3.5, false, "three", date } ) );
+    assertEquals( 2, batch.size() );
+
+    Object[] row = batch.getRow( 0 );
+    assertEquals( 1L, row[0] );
+    assertEquals( 2.5, row[1] );
+    assertEquals( Boolean.TRUE, row[2] );
+    assertEquals( "one", row[3] );
+    assertSame( date, row[4] );
+
+    row = batch.getRow( 1 );
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      assertNull( row[i] );
+    }
+    assertTrue( batch.getColumn( 0 ).hasNulls() );
+
+    batch.reset();
+    assertEquals( 0, batch.size() );
+    assertTrue( batch.addRow( new Object[] { 4L, 4.5, false, "four", date } ) );
+    assertEquals( 4L, batch.getRow( 0 )[0] );
+    assertFalse( batch.getColumn( 0 ).isNull( 1 ) );
+  }
+
+  @Test
+  public void testAddColumnsWithRepeatingVector() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowBatch batch = new RowBatch( rowMeta, 10 );
+    for ( long i = 0; i < 3; i++ ) {
+      batch.addRow( new Object[] { i } );
+    }
+
+    RowMetaInterface outputRowMeta = rowMeta.clone();
+    outputRowMeta.addValueMeta( new ValueMetaString( "constant" ) );
+    RowBatch output = batch.addColumns( outputRowMeta,
+      ColumnVector.repeating( outputRowMeta.getValueMeta( 1 ), "value" ) );
+
+    assertEquals( 3, output.size() );
+    assertSame( batch.getColumn( 0 ), output.getColumn( 0 ) );
+    for ( int i = 0; i < 3; i++ ) {
+      Object[] row = output.getRow( i );
+      assertEquals( (long) i, row[0] );
+      assertEquals( "value", row[1] );
+    }
+  }
+
+  @Test
+  public void testSelectColumns() {
+    RowMetaInterface rowMeta = createRowMeta();
+    RowBatch batch = new RowBatch( rowMeta, 10 );
+    batch.addRow( new Object[] { 1L, 2.5, true, "one", null } );
+
+    RowMetaInterface outputRowMeta = new RowMeta();
+    outputRowMeta.addValueMeta( rowMeta.getValueMeta( 3 ) );
+    outputRowMeta.addValueMeta( rowMeta.getValueMeta( 0 ) );
+    outputRowMeta.addValueMeta( rowMeta.getValueMeta( 0 ) );
+    RowBatch output = batch.selectColumns( outputRowMeta, new int[] { 3, 0, 0 } );
+
+    assertSame( batch.getColumn( 3 ), output.getColumn( 0 ) );
+    assertSame( batch.getColumn( 0 ), output.getColumn( 1 ) );
+    assertFalse( batch.getColumn( 0 ) == output.getColumn( 2 ) );
+    Object[] row = output.getRow( 0 );
+    assertEquals( "one", row[0] );
+    assertEquals( 1L, row[1] );
+    assertEquals( 1L, row[2] );
+  }
+
+  @Test
+  public void testRetain() {
+    RowMetaInterface rowMeta = createRowMeta();
+    RowBatch batch = new RowBatch( rowMeta, 10 );
+    for ( long i = 0; i < 5; i++ ) {
+      batch.addRow( new Object[] { i, i % 2 == 0 ? null : 1.5 * i, i % 2 == 0, "row" + i, null } );
+    }
+
+    assertEquals( 2, batch.retain( new boolean[] { false, true, false, true, false } ) );
+    assertEquals( 2, batch.size() );
+    Object[] row = batch.getRow( 0 );
+    assertEquals( 1L, row[0] );
+    assertEquals( 1.5, row[1] );
+    assertEquals( Boolean.FALSE, row[2] );
+    assertEquals( "row1", row[3] );
+    row = batch.getRow( 1 );
+    assertEquals( 3L, row[0] );
+    assertEquals( 4.5, row[1] );
+    assertEquals( "row3", row[3] );
+  }
+
+  @Test
+  public void testRetainWithSharedColumn() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "copy" ) );
+    ColumnVector shared = new ColumnVector( rowMeta.getValueMeta( 0 ), 10 );
+    for ( int i = 0; i < 4; i++ ) {
+      shared.setLong( i, i );
+    }
+    RowBatch batch = RowBatch.of( rowMeta, new ColumnVector[] { shared, shared }, 4 );
+
+    assertEquals( 2, batch.retain( new boolean[] { false, true, false, true } ) );
+    assertEquals( 1L, batch.getRow( 0 )[0] );
+    assertEquals( 1L, batch.getRow( 0 )[1] );
+    assertEquals( 3L, batch.getRow( 1 )[0] );
+    assertEquals( 3L, batch.getRow( 1 )[1] );
+  }
+
+  @Test
+  public void testGrowVector() {
+    ColumnVector vector = new ColumnVector( new ValueMetaInteger( "id" ), 2 );
+    vector.setNull( 1 );
+    vector.ensureCapacity( 100 );
+    assertTrue( vector.capacity() >= 100 );
+    vector.setLong( 99, 42L );
+    assertTrue( vector.isNull( 1 ) );
+    assertEquals( 42L, vector.getObject( 99 ) );
+  }
+}
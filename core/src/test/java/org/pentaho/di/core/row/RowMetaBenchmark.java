@@ -0,0 +1,95 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * Measures the cost of per field access to shared row metadata from several step threads at once, for the locking
+ * {@link RowMeta} and the {@link FrozenRowMeta} handed to steps with KETTLE_FREEZE_ROW_META=Y. This is not a unit test,
+ * run it with the main method or through the JMH runner.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 2 )
+@Threads( 4 )
+public class RowMetaBenchmark {
+
+  @Param( { "locking", "frozen" } )
+  public String rowMetaType;
+
+  @Param( { "20" } )
+  public int nrFields;
+
+  private RowMetaInterface rowMeta;
+  private String[] names;
+
+  @Setup( Level.Trial )
+  public void setUp() {
+    RowMetaInterface source = new RowMeta();
+    names = new String[nrFields];
+    for ( int i = 0; i < nrFields; i++ ) {
+      names[i] = "field" + i;
+      source.addValueMeta( i % 2 == 0 ? new ValueMetaString( names[i] ) : new ValueMetaInteger( names[i] ) );
+    }
+    rowMeta = "frozen".equals( rowMetaType ) ? FrozenRowMeta.freeze( source ) : source;
+  }
+
+  /**
+   * What a step does for every row: look at the metadata of every field.
+   */
+  @Benchmark
+  public void getValueMeta( Blackhole blackhole ) {
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      blackhole.consume( rowMeta.getValueMeta( i ) );
+    }
+  }
+
+  /**
+   * What steps that don't cache field indexes do for every row.
+   */
+  @Benchmark
+  public void indexOfValue( Blackhole blackhole ) {
+    for ( String name : names ) {
+      blackhole.consume( rowMeta.indexOfValue( name ) );
+    }
+  }
+
+  public static void main( String[] args ) throws RunnerException {
+    new Runner( new OptionsBuilder().include( RowMetaBenchmark.class.getSimpleName() ).build() ).run();
+  }
+}
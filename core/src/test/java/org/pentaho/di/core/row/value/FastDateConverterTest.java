@@ -0,0 +1,147 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FastDateConverterTest {
+
+  private static final String[] MASKS = {
+    "yyyy/MM/dd HH:mm:ss.SSS", "yyyy-MM-dd", "yyyyMMdd", "yyyy-MM-dd'T'HH:mm:ss", "dd.MM.yyyy HH:mm", "HH:mm:ss",
+    "yyyyMMddHHmmssSSS" };
+
+  private static final String[] ZONES = {
+    "UTC", "Europe/Amsterdam", "America/New_York", "America/Sao_Paulo", "Australia/Lord_Howe", "Asia/Kolkata",
+    "Africa/Casablanca", "GMT+05:30" };
+
+  private static SimpleDateFormat createFormat( String mask, String zone, boolean lenient ) {
+    SimpleDateFormat format = new SimpleDateFormat( mask );
+    format.setTimeZone( TimeZone.getTimeZone( zone ) );
+    format.setLenient( lenient );
+    return format;
+  }
+
+  @Test
+  public void testSupportedMasks() {
+    for ( String mask : MASKS ) {
+      assertTrue( mask, new FastDateConverter( createFormat( mask, "UTC", false ) ).isSupported() );
+    }
+    assertFalse( new FastDateConverter( createFormat( "yy-MM-dd", "UTC", false ) ).isSupported() );
+    assertFalse( new FastDateConverter( createFormat( "yyyy-M-d", "UTC", false ) ).isSupported() );
+    assertFalse( new FastDateConverter( createFormat( "MMM dd yyyy", "UTC", false ) ).isSupported() );
+    assertFalse( new FastDateConverter( createFormat( "hh:mm a", "UTC", false ) ).isSupported() );
+    assertFalse( new FastDateConverter( createFormat( "yyyy'1'MM", "UTC", false ) ).isSupported() );
+    assertFalse( new FastDateConverter( new SimpleDateFormat( "yyyy-MM-dd", new Locale( "th", "TH", "TH" ) ) )
+      .isSupported() );
+    assertFalse( new FastDateConverter( null ).isSupported() );
+  }
+
+  @Test
+  public void testLeavesCornerCasesToTheFormat() {
+    FastDateConverter converter = new FastDateConverter( createFormat( "yyyy-MM-dd HH:mm", "Europe/Amsterdam", true ) );
+
+    assertNotNull( converter.parse( "2024-03-30 12:00" ) );
+    // Short fields, trailing text, out of range values and invalid dates
+    assertNull( converter.parse( "2024-3-30 12:00" ) );
+    assertNull( converter.parse( "2024-03-30 12:00:00" ) );
+    assertNull( converter.parse( "2024-13-30 12:00" ) );
+    assertNull( converter.parse( "2023-02-29 12:00" ) );
+    assertNull( converter.parse( "2024-03-30 24:00" ) );
+    assertNull( converter.parse( "2024-03-30T12:00" ) );
+    // A local time that doesn't exist (daylight saving time gap) or exists twice
+    assertNull( converter.parse( "2024-03-31 02:30" ) );
+    assertNull( converter.parse( "2024-10-27 02:30" ) );
+    // Years with a different calendar or zone history in java.util and java.time
+    assertNull( converter.parse( "1850-01-01 12:00" ) );
+    assertNull( converter.parse( "2050-01-01 12:00" ) );
+    assertNull( converter.format( new Date( -5000000000000L ) ) );
+  }
+
+  @Test
+  public void testSameResultsAsSimpleDateFormat() {
+    Random random = new Random( 1234 );
+    for ( String zone : ZONES ) {
+      for ( String mask : MASKS ) {
+        for ( boolean lenient : new boolean[] { true, false } ) {
+          SimpleDateFormat format = createFormat( mask, zone, lenient );
+          FastDateConverter converter = new FastDateConverter( format );
+          byte[] bytes = new byte[converter.getLength() + 1];
+          for ( int i = 0; i < 2000; i++ ) {
+            Date date = new Date( randomMillis( random, i ) );
+            String expected = format.format( date );
+            String formatted = converter.format( date );
+            if ( formatted != null ) {
+              assertEquals( zone + " " + mask + " " + date.getTime(), expected, formatted );
+            }
+            int end = converter.format( date, bytes, 1 );
+            if ( end >= 0 ) {
+              assertEquals( zone + " " + mask + " " + date.getTime(), expected,
+                new String( bytes, 1, end - 1, StandardCharsets.ISO_8859_1 ) );
+            }
+            assertSameParse( format, converter, expected );
+            assertSameParse( format, converter, mutate( expected, random ) );
+          }
+        }
+      }
+    }
+  }
+
+  private static void assertSameParse( SimpleDateFormat format, FastDateConverter converter, String string ) {
+    Date parsed = converter.parse( string );
+    if ( parsed == null ) {
+      return;
+    }
+    ParsePosition position = new ParsePosition( 0 );
+    Date expected = format.parse( string, position );
+    assertTrue( format.toPattern() + " [" + string + "]", position.getErrorIndex() < 0 );
+    assertEquals( format.toPattern() + " " + format.getTimeZone().getID() + " [" + string + "]",
+      expected.getTime(), parsed.getTime() );
+  }
+
+  private static long randomMillis( Random random, int i ) {
+    switch ( i % 3 ) {
+      case 0:
+        // Around the European daylight saving time changes of 2024
+        return ( i % 2 == 0 ? 1711846800000L : 1729990800000L ) + random.nextInt( 14400000 ) - 7200000;
+      case 1:
+        // Around midnight, where some zones change their offset
+        return ( random.nextInt( 50000 ) - 25000 ) * 86400000L + random.nextInt( 7200000 ) - 3600000;
+      default:
+        return (long) ( ( random.nextDouble() - 0.5 ) * 6e12 );
+    }
+  }
+
+  private static String mutate( String string, Random random ) {
+    char[] chars = string.toCharArray();
+    int position = random.nextInt( chars.length );
+    if ( Character.isDigit( chars[position] ) ) {
+      chars[position] = (char) ( '0' + random.nextInt( 10 ) );
+    }
+    return new String( chars );
+  }
+}
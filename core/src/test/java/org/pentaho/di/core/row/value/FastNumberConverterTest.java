@@ -0,0 +1,170 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FastNumberConverterTest {
+
+  private static final String[] MASKS = {
+    "####0;-####0", "####0.0#########;-####0.0#########", "######0.0###################;-######0.0###################",
+    "#,##0.00", "#", "0.###", "0000", "#,##0", "#%", "$#,##0.00" };
+
+  private static DecimalFormat createFormat( String mask, Locale locale, boolean parseBigDecimal ) {
+    DecimalFormat format = (DecimalFormat) NumberFormat.getInstance( locale );
+    format.setParseBigDecimal( parseBigDecimal );
+    format.applyPattern( mask );
+    return format;
+  }
+
+  @Test
+  public void testParse() {
+    FastNumberConverter converter = new FastNumberConverter( createFormat( "#.#", Locale.US, false ) );
+    assertEquals( Double.valueOf( 12.5 ), converter.parseNumber( "12.5" ) );
+    assertEquals( Double.valueOf( -0.001 ), converter.parseNumber( "-0.001" ) );
+    assertEquals( Double.valueOf( 123456789.123456789 ), converter.parseNumber( "123456789.123456789" ) );
+    assertEquals( Long.valueOf( -42L ), converter.parseInteger( "-42" ) );
+
+    // Left to the decimal format
+    assertNull( converter.parseNumber( "1,000.5" ) );
+    assertNull( converter.parseNumber( ".5" ) );
+    assertNull( converter.parseNumber( "5." ) );
+    assertNull( converter.parseNumber( "-0" ) );
+    assertNull( converter.parseNumber( "1e5" ) );
+    assertNull( converter.parseNumber( "12a" ) );
+    assertNull( converter.parseInteger( "12.5" ) );
+    assertNull( converter.parseInteger( "1234567890123456789" ) );
+    assertNull( converter.parseInteger( "-" ) );
+
+    FastNumberConverter german = new FastNumberConverter( createFormat( "#.#", Locale.GERMANY, false ) );
+    assertEquals( Double.valueOf( 12.5 ), german.parseNumber( "12,5" ) );
+    assertNull( german.parseNumber( "12.5" ) );
+
+    assertNull( new FastNumberConverter( createFormat( "#%", Locale.US, false ) ).parseNumber( "12" ) );
+  }
+
+  @Test
+  public void testFormatInteger() {
+    assertEquals( "-1234", new FastNumberConverter( createFormat( "####0;-####0", Locale.US, false ) )
+      .formatInteger( -1234L ) );
+    assertNotNull( new FastNumberConverter( createFormat( "#", Locale.US, false ) ).formatInteger( 0L ) );
+    assertNull( new FastNumberConverter( createFormat( "#,##0", Locale.US, false ) ).formatInteger( 1234L ) );
+    assertNull( new FastNumberConverter( createFormat( "0000", Locale.US, false ) ).formatInteger( 12L ) );
+    assertNull( new FastNumberConverter( createFormat( "0.00", Locale.US, false ) ).formatInteger( 12L ) );
+  }
+
+  @Test
+  public void testFormatNumberToBytes() throws Exception {
+    byte[] bytes = new byte[FastNumberConverter.MAX_FORMATTED_LENGTH + 2];
+    FastNumberConverter converter = new FastNumberConverter( createFormat( "0.00", Locale.GERMANY, false ) );
+    int end = converter.formatNumber( -12.5, bytes, 2 );
+    assertEquals( "-12,50", new String( bytes, 2, end - 2, "US-ASCII" ) );
+
+    converter = new FastNumberConverter( createFormat( "#.##", Locale.US, false ) );
+    end = converter.formatNumber( 0.25, bytes, 0 );
+    assertEquals( "0.25", new String( bytes, 0, end, "US-ASCII" ) );
+    end = converter.formatInteger( Long.MIN_VALUE, bytes, 0 );
+    assertEquals( Long.toString( Long.MIN_VALUE ), new String( bytes, 0, end, "US-ASCII" ) );
+
+    // Left to the decimal format: rounding, negative zero, grouping
+    assertEquals( -1, converter.formatNumber( 0.125, bytes, 0 ) );
+    assertEquals( -1, converter.formatNumber( -0.0, bytes, 0 ) );
+    assertEquals( -1, converter.formatNumber( 1e20, bytes, 0 ) );
+    assertEquals( -1, new FastNumberConverter( createFormat( "#,##0.00", Locale.US, false ) )
+      .formatNumber( 1.5, bytes, 0 ) );
+  }
+
+  @Test
+  public void testSameResultsAsDecimalFormat() {
+    Random random = new Random( 1234 );
+    for ( Locale locale : new Locale[] { Locale.US, Locale.GERMANY, Locale.FRANCE } ) {
+      for ( String mask : MASKS ) {
+        for ( boolean parseBigDecimal : new boolean[] { false, true } ) {
+          DecimalFormat format = createFormat( mask, locale, parseBigDecimal );
+          FastNumberConverter converter = new FastNumberConverter( format );
+          char decimalSeparator = format.getDecimalFormatSymbols().getDecimalSeparator();
+          byte[] bytes = new byte[FastNumberConverter.MAX_FORMATTED_LENGTH];
+          for ( int i = 0; i < 5000; i++ ) {
+            String string = randomNumber( random, decimalSeparator );
+
+            Double number = converter.parseNumber( string );
+            if ( number != null ) {
+              Number expected = parse( format, string );
+              assertEquals( mask + " [" + string + "]", Double.doubleToLongBits( expected.doubleValue() ),
+                Double.doubleToLongBits( number ) );
+            }
+            Long integer = converter.parseInteger( string );
+            if ( integer != null ) {
+              assertEquals( mask + " [" + string + "]", parse( format, string ).longValue(), integer.longValue() );
+            }
+
+            long value = i % 2 == 0 ? random.nextLong() : random.nextInt( 2000 ) - 1000;
+            String formatted = converter.formatInteger( value );
+            if ( formatted != null ) {
+              assertEquals( mask + " " + value, format.format( value ), formatted );
+            }
+
+            double decimal = random.nextInt( 2000000 ) / Math.pow( 10, random.nextInt( 8 ) ) - 1000;
+            int end = converter.formatNumber( decimal, bytes, 0 );
+            if ( end >= 0 ) {
+              assertEquals( mask + " " + decimal, format.format( decimal ),
+                new String( bytes, 0, end, StandardCharsets.ISO_8859_1 ) );
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static Number parse( DecimalFormat format, String string ) {
+    ParsePosition position = new ParsePosition( 0 );
+    Number number = format.parse( string, position );
+    assertTrue( format.toPattern() + " [" + string + "]", number != null && position.getIndex() == string.length() );
+    return number;
+  }
+
+  private static String randomNumber( Random random, char decimalSeparator ) {
+    StringBuilder number = new StringBuilder();
+    if ( random.nextInt( 3 ) == 0 ) {
+      number.append( '-' );
+    }
+    int digits = random.nextInt( 22 );
+    for ( int i = 0; i < digits; i++ ) {
+      number.append( (char) ( '0' + random.nextInt( 10 ) ) );
+    }
+    if ( random.nextBoolean() ) {
+      number.append( random.nextInt( 4 ) == 0 ? ',' : decimalSeparator );
+      int fractionDigits = random.nextInt( 22 );
+      for ( int i = 0; i < fractionDigits; i++ ) {
+        number.append( (char) ( '0' + random.nextInt( 10 ) ) );
+      }
+    }
+    if ( random.nextInt( 20 ) == 0 ) {
+      number.append( 'x' );
+    }
+    return number.toString();
+  }
+}
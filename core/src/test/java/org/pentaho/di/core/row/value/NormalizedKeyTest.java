@@ -0,0 +1,143 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NormalizedKeyTest {
+
+  @Test
+  public void testSupportedTypes() {
+    assertTrue( NormalizedKey.isSupported( new ValueMetaInteger( "i" ) ) );
+    assertTrue( NormalizedKey.isSupported( new ValueMetaNumber( "n" ) ) );
+    assertTrue( NormalizedKey.isSupported( new ValueMetaDate( "d" ) ) );
+    assertTrue( NormalizedKey.isSupported( new ValueMetaBoolean( "b" ) ) );
+    assertTrue( NormalizedKey.isSupported( new ValueMetaString( "s" ) ) );
+    assertFalse( NormalizedKey.isSupported( new ValueMetaBigNumber( "bn" ) ) );
+    assertFalse( NormalizedKey.isSupported( new ValueMetaTimestamp( "ts" ) ) );
+
+    ValueMetaString caseInsensitive = new ValueMetaString( "s" );
+    caseInsensitive.setCaseInsensitive( true );
+    assertFalse( NormalizedKey.isSupported( caseInsensitive ) );
+
+    ValueMetaString collated = new ValueMetaString( "s" );
+    collated.setCollatorDisabled( false );
+    assertFalse( NormalizedKey.isSupported( collated ) );
+
+    ValueMetaInteger binary = new ValueMetaInteger( "i" );
+    binary.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    assertFalse( NormalizedKey.isSupported( binary ) );
+  }
+
+  @Test
+  public void testIntegerPrefixOrder() throws Exception {
+    Random random = new Random( 1 );
+    List<Object> values = new ArrayList<>();
+    values.add( null );
+    values.add( Long.MIN_VALUE );
+    values.add( Long.MAX_VALUE );
+    for ( int i = 0; i < 200; i++ ) {
+      values.add( random.nextLong() );
+    }
+    assertPrefixOrder( new ValueMetaInteger( "i" ), values );
+  }
+
+  @Test
+  public void testNumberPrefixOrder() throws Exception {
+    Random random = new Random( 2 );
+    List<Object> values = new ArrayList<>();
+    values.add( null );
+    values.add( 0.0 );
+    values.add( -0.0 );
+    values.add( Double.MAX_VALUE );
+    values.add( -Double.MAX_VALUE );
+    for ( int i = 0; i < 200; i++ ) {
+      values.add( ( random.nextDouble() - 0.5 ) * Math.pow( 10, random.nextInt( 20 ) ) );
+    }
+    assertPrefixOrder( new ValueMetaNumber( "n" ), values );
+  }
+
+  @Test
+  public void testStringPrefixOrder() throws Exception {
+    Random random = new Random( 3 );
+    List<Object> values = new ArrayList<>();
+    values.add( null );
+    values.add( "" );
+    values.add( "a" );
+    values.add( "ab" );
+    values.add( "abc" );
+    values.add( "abcd" );
+    values.add( "abce" );
+    values.add( "\u0000" );
+    values.add( "\uffff\uffff\uffff" );
+    for ( int i = 0; i < 200; i++ ) {
+      StringBuilder string = new StringBuilder();
+      int length = random.nextInt( 6 );
+      for ( int c = 0; c < length; c++ ) {
+        string.append( (char) ( 'a' + random.nextInt( 4 ) ) );
+      }
+      values.add( string.toString() );
+    }
+    assertPrefixOrder( new ValueMetaString( "s" ), values );
+  }
+
+  @Test
+  public void testDateAndBooleanPrefixOrder() throws Exception {
+    Random random = new Random( 4 );
+    List<Object> dates = new ArrayList<>();
+    dates.add( null );
+    for ( int i = 0; i < 100; i++ ) {
+      dates.add( new Date( random.nextLong() >> 20 ) );
+    }
+    assertPrefixOrder( new ValueMetaDate( "d" ), dates );
+
+    List<Object> booleans = new ArrayList<>();
+    booleans.add( null );
+    booleans.add( Boolean.TRUE );
+    booleans.add( Boolean.FALSE );
+    assertPrefixOrder( new ValueMetaBoolean( "b" ), booleans );
+  }
+
+  /**
+   * A smaller prefix must mean a smaller value and a smaller value must never have a larger prefix, in both sort
+   * directions.
+   */
+  private void assertPrefixOrder( ValueMetaInterface valueMeta, List<Object> values ) throws KettleValueException {
+    for ( boolean descending : new boolean[] { false, true } ) {
+      valueMeta.setSortedDescending( descending );
+      for ( Object a : values ) {
+        long prefixA = NormalizedKey.getPrefix( valueMeta, a );
+        for ( Object b : values ) {
+          long prefixB = NormalizedKey.getPrefix( valueMeta, b );
+          int compare = valueMeta.compare( a, b );
+          if ( prefixA < prefixB ) {
+            assertTrue( a + " vs " + b + " descending=" + descending, compare < 0 );
+          } else if ( prefixA > prefixB ) {
+            assertTrue( a + " vs " + b + " descending=" + descending, compare > 0 );
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the fast conversion engine with the regular SimpleDateFormat and DecimalFormat based conversions.
+ */
+public class ValueMetaBaseFastConversionTest {
+
+  private interface Conversion<T> {
+    Object convert( T valueMeta, String string ) throws KettleValueException;
+  }
+
+  private static <T extends ValueMetaBase> void assertSameConversion( T legacy, T fast, Conversion<T> conversion,
+                                                                      String... strings ) {
+    assertFalse( legacy.isFastConversion() );
+    assertTrue( fast.isFastConversion() );
+    for ( String string : strings ) {
+      Object expected;
+      try {
+        expected = conversion.convert( legacy, string );
+      } catch ( KettleValueException e ) {
+        expected = KettleValueException.class;
+      }
+      Object actual;
+      try {
+        actual = conversion.convert( fast, string );
+      } catch ( KettleValueException e ) {
+        actual = KettleValueException.class;
+      }
+      assertEquals( legacy.getConversionMask() + " [" + string + "]", expected, actual );
+    }
+  }
+
+  private static <T extends ValueMetaBase> T withFastConversion( T valueMeta, boolean fastConversion ) {
+    valueMeta.setFastConversion( fastConversion );
+    return valueMeta;
+  }
+
+  private static ValueMetaDate createDate( String mask, boolean lenient, boolean fastConversion ) {
+    ValueMetaDate valueMeta = withFastConversion( new ValueMetaDate( "date" ), fastConversion );
+    valueMeta.setConversionMask( mask );
+    valueMeta.setDateFormatLenient( lenient );
+    valueMeta.setDateFormatTimeZone( TimeZone.getTimeZone( "Europe/Amsterdam" ) );
+    return valueMeta;
+  }
+
+  @Test
+  public void testStringToDate() {
+    String[] strings = {
+      "2024/03/30 12:34:56.789", "2024/03/31 02:30:00.000", "2024/10/27 02:30:00.000", "2024/02/30 12:00:00.000",
+      "2024/13/01 00:00:00.000", "2024/3/1 12:00:00.000", "2024/03/30 12:34:56.789xyz", "abc", "", null,
+      " 2024/03/30 12:34:56.789", "1850/01/01 00:00:00.000", "2099/01/01 00:00:00.000" };
+    for ( boolean lenient : new boolean[] { true, false } ) {
+      assertSameConversion( createDate( "yyyy/MM/dd HH:mm:ss.SSS", lenient, false ),
+        createDate( "yyyy/MM/dd HH:mm:ss.SSS", lenient, true ), ValueMetaBase::convertStringToDate, strings );
+    }
+  }
+
+  @Test
+  public void testDateToString() {
+    ValueMetaDate legacy = createDate( "yyyy-MM-dd'T'HH:mm:ss", false, false );
+    ValueMetaDate fast = createDate( "yyyy-MM-dd'T'HH:mm:ss", false, true );
+    for ( long millis = -3000000000000L; millis < 3000000000000L; millis += 7777777777L ) {
+      Date date = new Date( millis );
+      assertEquals( legacy.convertDateToString( date ), fast.convertDateToString( date ) );
+    }
+    assertNull( fast.convertDateToString( null ) );
+  }
+
+  @Test
+  public void testMaskChange() throws Exception {
+    ValueMetaDate fast = createDate( "yyyy-MM-dd", false, true );
+    Date date = fast.convertStringToDate( "2024-03-30" );
+    assertEquals( "2024-03-30", fast.convertDateToString( date ) );
+
+    fast.setConversionMask( "dd/MM/yyyy" );
+    assertEquals( "30/03/2024", fast.convertDateToString( date ) );
+    assertEquals( date, fast.convertStringToDate( "30/03/2024" ) );
+  }
+
+  @Test
+  public void testStringToNumber() {
+    String[] strings = {
+      "12.5", "-12.5", "0", "-0", "1234567890.0123456789", "1,234.5", "12.5x", "1e5", ".5", "5.", "", null, "abc" };
+    for ( String mask : new String[] { null, "#.#", "#,##0.00" } ) {
+      ValueMetaNumber legacy = withFastConversion( new ValueMetaNumber( "number" ), false );
+      ValueMetaNumber fast = withFastConversion( new ValueMetaNumber( "number" ), true );
+      legacy.setConversionMask( mask );
+      fast.setConversionMask( mask );
+      assertSameConversion( legacy, fast, ValueMetaBase::convertStringToNumber, strings );
+    }
+  }
+
+  @Test
+  public void testStringToInteger() {
+    String[] strings = { "12", "-12", "007", "-0", "12.5", "1,234", "123456789012345678901", "12x", "", null };
+    ValueMetaInteger legacy = withFastConversion( new ValueMetaInteger( "integer" ), false );
+    ValueMetaInteger fast = withFastConversion( new ValueMetaInteger( "integer" ), true );
+    assertSameConversion( legacy, fast, ValueMetaBase::convertStringToInteger, strings );
+  }
+
+  @Test
+  public void testIntegerToString() throws Exception {
+    ValueMetaInteger legacy = withFastConversion( new ValueMetaInteger( "integer" ), false );
+    ValueMetaInteger fast = withFastConversion( new ValueMetaInteger( "integer" ), true );
+    for ( long value : new long[] { 0L, -1L, 42L, Long.MAX_VALUE, Long.MIN_VALUE } ) {
+      assertEquals( legacy.convertIntegerToString( value ), fast.convertIntegerToString( value ) );
+    }
+
+    legacy.setConversionMask( "#,##0" );
+    fast.setConversionMask( "#,##0" );
+    assertEquals( legacy.convertIntegerToString( 1234567L ), fast.convertIntegerToString( 1234567L ) );
+  }
+
+  @Test
+  public void testCloneHasItsOwnConverters() throws Exception {
+    ValueMetaDate fast = createDate( "yyyy-MM-dd", false, true );
+    Date date = fast.convertStringToDate( "2024-03-30" );
+
+    ValueMetaDate clone = (ValueMetaDate) fast.clone();
+    assertTrue( clone.isFastConversion() );
+    clone.setConversionMask( "yyyyMMdd" );
+    assertEquals( "20240330", clone.convertDateToString( date ) );
+    assertEquals( "2024-03-30", fast.convertDateToString( date ) );
+  }
+}
@@ -0,0 +1,110 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LoserTreeTest {
+
+  @Test
+  public void testEmpty() {
+    LoserTree<Integer> tree = new LoserTree<>( Collections.<Integer>emptyList(), Comparator.naturalOrder() );
+    assertTrue( tree.isEmpty() );
+    assertNull( tree.peek() );
+
+    tree = new LoserTree<>( Arrays.<Integer>asList( null, null, null ), Comparator.naturalOrder() );
+    assertTrue( tree.isEmpty() );
+  }
+
+  @Test
+  public void testMergeSortedSources() {
+    Random random = new Random( 42 );
+    for ( int k = 1; k <= 17; k++ ) {
+      List<List<Integer>> sources = new ArrayList<>();
+      List<Integer> expected = new ArrayList<>();
+      for ( int s = 0; s < k; s++ ) {
+        List<Integer> source = new ArrayList<>();
+        int length = random.nextInt( 50 ); // some sources are empty
+        for ( int i = 0; i < length; i++ ) {
+          source.add( random.nextInt( 100 ) );
+        }
+        Collections.sort( source );
+        sources.add( source );
+        expected.addAll( source );
+      }
+      Collections.sort( expected );
+
+      assertEquals( "k=" + k, expected, merge( sources ) );
+    }
+  }
+
+  @Test
+  public void testTiesGoToTheLowestSource() {
+    // Values are compared on the first element only, the second element is the source number
+    List<List<int[]>> sources = new ArrayList<>();
+    for ( int s = 0; s < 5; s++ ) {
+      sources.add( Arrays.asList( new int[] { 1, s }, new int[] { 2, s } ) );
+    }
+    List<Iterator<int[]>> iterators = new ArrayList<>();
+    List<int[]> heads = new ArrayList<>();
+    for ( List<int[]> source : sources ) {
+      Iterator<int[]> iterator = source.iterator();
+      iterators.add( iterator );
+      heads.add( iterator.next() );
+    }
+    LoserTree<int[]> tree = new LoserTree<>( heads, Comparator.comparingInt( v -> v[0] ) );
+
+    int[] previous = null;
+    while ( !tree.isEmpty() ) {
+      int[] value = tree.peek();
+      assertEquals( value[1], tree.getWinner() );
+      if ( previous != null && previous[0] == value[0] ) {
+        assertTrue( previous[1] < value[1] );
+      }
+      previous = value;
+      Iterator<int[]> iterator = iterators.get( tree.getWinner() );
+      tree.replaceWinner( iterator.hasNext() ? iterator.next() : null );
+    }
+  }
+
+  private static List<Integer> merge( List<List<Integer>> sources ) {
+    List<Iterator<Integer>> iterators = new ArrayList<>();
+    List<Integer> heads = new ArrayList<>();
+    for ( List<Integer> source : sources ) {
+      Iterator<Integer> iterator = source.iterator();
+      iterators.add( iterator );
+      heads.add( iterator.hasNext() ? iterator.next() : null );
+    }
+    LoserTree<Integer> tree = new LoserTree<>( heads, Comparator.naturalOrder() );
+    List<Integer> merged = new ArrayList<>();
+    while ( !tree.isEmpty() ) {
+      merged.add( tree.peek() );
+      Iterator<Integer> iterator = iterators.get( tree.getWinner() );
+      tree.replaceWinner( iterator.hasNext() ? iterator.next() : null );
+    }
+    return merged;
+  }
+}
@@ -0,0 +1,47 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadsTest {
+
+  @Test
+  public void testNewThread() throws Exception {
+    final AtomicBoolean ran = new AtomicBoolean();
+    final AtomicBoolean virtual = new AtomicBoolean();
+    Thread thread = VirtualThreads.newThread( new Runnable() {
+      @Override
+      public void run() {
+        ran.set( true );
+        virtual.set( VirtualThreads.isVirtual( Thread.currentThread() ) );
+      }
+    } );
+    assertEquals( Thread.State.NEW, thread.getState() );
+    thread.setName( "step" );
+    thread.start();
+    thread.join();
+
+    assertTrue( ran.get() );
+    assertEquals( VirtualThreads.isSupported(), virtual.get() );
+    assertEquals( VirtualThreads.isSupported(), VirtualThreads.isVirtual( thread ) );
+    assertFalse( VirtualThreads.isVirtual( Thread.currentThread() ) );
+  }
+}
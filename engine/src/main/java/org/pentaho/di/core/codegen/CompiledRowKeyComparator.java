@@ -0,0 +1,58 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.codegen;
+
+import java.util.Arrays;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowKeyComparator;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * The base class of the key comparators generated by {@link RowKeyComparatorCompiler}. The generated code compares the
+ * values of the common data types inline and calls the value metadata for all other key fields.
+ *
+ * @since 11.1
+ */
+public abstract class CompiledRowKeyComparator implements RowKeyComparator {
+
+  /** The value metadata of the key fields of the first rows, in key order */
+  protected final ValueMetaInterface[] keyMetas1;
+
+  /** The value metadata of the key fields of the second rows, in key order */
+  protected final ValueMetaInterface[] keyMetas2;
+
+  protected CompiledRowKeyComparator( ValueMetaInterface[] keyMetas1, ValueMetaInterface[] keyMetas2 ) {
+    this.keyMetas1 = keyMetas1;
+    this.keyMetas2 = keyMetas2;
+  }
+
+  @Override
+  public int compare( Object[] row1, Object[] row2 ) throws KettleValueException {
+    return compare( row1, 0, row2, 0 );
+  }
+
+  /**
+   * @return the hash code of a single value, as used by {@link Arrays#deepHashCode(Object[])}
+   */
+  protected static int valueHashCode( Object value ) {
+    if ( value == null ) {
+      return 0;
+    }
+    if ( value instanceof byte[] ) {
+      return Arrays.hashCode( (byte[]) value );
+    }
+    return value.hashCode();
+  }
+}
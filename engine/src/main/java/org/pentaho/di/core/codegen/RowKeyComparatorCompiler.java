@@ -0,0 +1,346 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.codegen;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.janino.SimpleCompiler;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowKeyComparator;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.RowMetaKeyComparator;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.variables.VariableSpace;
+
+/**
+ * Generates a {@link RowKeyComparator} class for the key fields of a row layout, compiled at runtime with Janino.
+ * <p>
+ * Integers, numbers, strings, dates, booleans and big numbers in normal storage without a custom comparator or
+ * collator are compared inline, with the sort direction, the case sensitivity and the position of every key fixed in
+ * the code. All other key fields are compared by their value metadata, exactly like {@link RowMetaInterface} does. The
+ * generated classes are cached on the shape of the keys, so steps with the same key types share the same class.
+ *
+ * @since 11.1
+ */
+public class RowKeyComparatorCompiler {
+
+  static final int COMPARE_VALUE_META = 0;
+  static final int COMPARE_CONVERTED = 1;
+  static final int COMPARE_LONG = 2;
+  static final int COMPARE_DOUBLE = 3;
+  static final int COMPARE_STRING = 4;
+  static final int COMPARE_STRING_IGNORE_CASE = 5;
+  static final int COMPARE_DATE = 6;
+  static final int COMPARE_BOOLEAN = 7;
+  static final int COMPARE_BIG_NUMBER = 8;
+
+  private static final String[] JAVA_TYPES = {
+    null, null, "Long", "Double", "String", "String", "java.util.Date", "Boolean", "java.math.BigDecimal" };
+
+  private static final Map<String, Class<?>> classCache = new ConcurrentHashMap<>();
+  private static final AtomicInteger classNr = new AtomicInteger();
+
+  private RowKeyComparatorCompiler() {
+  }
+
+  /**
+   * Create a comparator for rows of the same layout. The comparator is compiled when the
+   * KETTLE_COMPILED_ROW_COMPARATORS variable is set to Y, otherwise it goes through the row metadata.
+   *
+   * @param space
+   *          the variables to look at
+   * @param log
+   *          the log channel to report compilation errors on
+   * @param rowMeta
+   *          the description of the rows
+   * @param keys
+   *          the indexes of the key fields or null to compare all fields
+   * @return the comparator
+   */
+  public static RowKeyComparator create( VariableSpace space, LogChannelInterface log, RowMetaInterface rowMeta,
+                                         int[] keys ) {
+    return create( space, log, rowMeta, keys, rowMeta, keys );
+  }
+
+  /**
+   * Create a comparator for rows of two layouts. The comparator is compiled when the KETTLE_COMPILED_ROW_COMPARATORS
+   * variable is set to Y, otherwise it goes through the row metadata.
+   *
+   * @param space
+   *          the variables to look at
+   * @param log
+   *          the log channel to report compilation errors on
+   * @param rowMeta1
+   *          the description of the first rows
+   * @param keys1
+   *          the indexes of the key fields in the first rows
+   * @param rowMeta2
+   *          the description of the second rows
+   * @param keys2
+   *          the indexes of the key fields in the second rows
+   * @return the comparator
+   */
+  public static RowKeyComparator create( VariableSpace space, LogChannelInterface log, RowMetaInterface rowMeta1,
+                                         int[] keys1, RowMetaInterface rowMeta2, int[] keys2 ) {
+    if ( "Y".equalsIgnoreCase( space.getVariable( Const.KETTLE_COMPILED_ROW_COMPARATORS, "N" ) ) ) {
+      try {
+        return compile( rowMeta1, keys1, rowMeta2, keys2 );
+      } catch ( KettleException e ) {
+        log.logError( "Unable to compile the row comparator, comparing through the row metadata instead", e );
+      }
+    }
+    return new RowMetaKeyComparator( rowMeta1, keys1, rowMeta2, keys2 );
+  }
+
+  /**
+   * Compile a comparator for rows of two layouts, or reuse the class compiled before for keys of the same shape. The
+   * value metadata is looked at once, changing it afterwards doesn't change the comparator.
+   *
+   * @param rowMeta1
+   *          the description of the first rows
+   * @param keys1
+   *          the indexes of the key fields in the first rows or null to compare all fields
+   * @param rowMeta2
+   *          the description of the second rows, the same as rowMeta1 for rows of the same layout
+   * @param keys2
+   *          the indexes of the key fields in the second rows or null to compare all fields
+   * @return the compiled comparator
+   * @throws KettleException
+   *           in case the generated code can't be compiled
+   */
+  public static RowKeyComparator compile( RowMetaInterface rowMeta1, int[] keys1, RowMetaInterface rowMeta2,
+                                          int[] keys2 ) throws KettleException {
+    int[] fieldnrs1 = keys1 != null ? keys1 : RowMetaKeyComparator.allFields( rowMeta1 );
+    int[] fieldnrs2 = keys2 != null ? keys2 : RowMetaKeyComparator.allFields( rowMeta2 );
+    int nrKeys = Math.min( fieldnrs1.length, fieldnrs2.length );
+
+    ValueMetaInterface[] keyMetas1 = new ValueMetaInterface[nrKeys];
+    ValueMetaInterface[] keyMetas2 = new ValueMetaInterface[nrKeys];
+    int[] compareTypes = new int[nrKeys];
+    boolean[] descending = new boolean[nrKeys];
+    boolean[] emptyStringIsNull = new boolean[nrKeys];
+    StringBuilder shape = new StringBuilder();
+    for ( int i = 0; i < nrKeys; i++ ) {
+      keyMetas1[i] = rowMeta1.getValueMeta( fieldnrs1[i] );
+      keyMetas2[i] = rowMeta2.getValueMeta( fieldnrs2[i] );
+      compareTypes[i] = getCompareType( keyMetas1[i], rowMeta1 == rowMeta2 ? keyMetas1[i] : keyMetas2[i] );
+      descending[i] = keyMetas1[i].isSortedDescending();
+      emptyStringIsNull[i] = keyMetas1[i] instanceof ValueMetaBase
+        && !( (ValueMetaBase) keyMetas1[i] ).isEmptyStringAndNullAreDifferent();
+      shape.append( compareTypes[i] ).append( descending[i] ? 'D' : 'A' ).append( emptyStringIsNull[i] ? 'N' : 'E' )
+        .append( fieldnrs1[i] ).append( ':' ).append( fieldnrs2[i] ).append( ';' );
+    }
+
+    Class<?> comparatorClass = classCache.get( shape.toString() );
+    if ( comparatorClass == null ) {
+      String className = "RowKeyComparator" + classNr.incrementAndGet();
+      String source =
+        generateSource( className, compareTypes, descending, emptyStringIsNull, fieldnrs1, fieldnrs2, nrKeys );
+      try {
+        SimpleCompiler compiler = new SimpleCompiler();
+        compiler.setParentClassLoader( CompiledRowKeyComparator.class.getClassLoader() );
+        compiler.cook( source );
+        comparatorClass = compiler.getClassLoader().loadClass( getPackageName() + "." + className );
+      } catch ( Exception e ) {
+        throw new KettleException( "Unable to compile the row comparator for keys " + shape + Const.CR + source, e );
+      }
+      Class<?> existing = classCache.putIfAbsent( shape.toString(), comparatorClass );
+      if ( existing != null ) {
+        comparatorClass = existing;
+      }
+    }
+
+    try {
+      return (RowKeyComparator) comparatorClass
+        .getConstructor( ValueMetaInterface[].class, ValueMetaInterface[].class ).newInstance( keyMetas1, keyMetas2 );
+    } catch ( Exception e ) {
+      throw new KettleException( "Unable to create the row comparator for keys " + shape, e );
+    }
+  }
+
+  /**
+   * Determine how a key field gets compared.
+   *
+   * @param valueMeta1
+   *          the value metadata of the key field in the first rows
+   * @param valueMeta2
+   *          the value metadata of the key field in the second rows, the same object for rows of the same layout
+   * @return one of the COMPARE_ constants
+   */
+  static int getCompareType( ValueMetaInterface valueMeta1, ValueMetaInterface valueMeta2 ) {
+    boolean sameType = valueMeta1 == valueMeta2 || ( valueMeta1.getType() == valueMeta2.getType()
+      && valueMeta1.getStorageType() == valueMeta2.getStorageType() );
+    if ( !sameType ) {
+      return COMPARE_CONVERTED;
+    }
+    if ( valueMeta1.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL
+      || !( valueMeta1 instanceof ValueMetaBase ) || ( (ValueMetaBase) valueMeta1 ).getComparator() != null ) {
+      return COMPARE_VALUE_META;
+    }
+    Class<?> valueMetaClass = valueMeta1.getClass();
+    if ( valueMetaClass == ValueMetaInteger.class ) {
+      return COMPARE_LONG;
+    }
+    if ( valueMetaClass == ValueMetaNumber.class ) {
+      return COMPARE_DOUBLE;
+    }
+    if ( valueMetaClass == ValueMetaDate.class ) {
+      return COMPARE_DATE;
+    }
+    if ( valueMetaClass == ValueMetaBoolean.class ) {
+      return COMPARE_BOOLEAN;
+    }
+    if ( valueMetaClass == ValueMetaBigNumber.class ) {
+      return COMPARE_BIG_NUMBER;
+    }
+    if ( valueMetaClass == ValueMetaString.class && valueMeta1.isCollatorDisabled()
+      && !( (ValueMetaBase) valueMeta1 ).isIgnoreWhitespace()
+      && valueMeta1.getTrimType() == ValueMetaInterface.TRIM_TYPE_NONE ) {
+      return valueMeta1.isCaseInsensitive() ? COMPARE_STRING_IGNORE_CASE : COMPARE_STRING;
+    }
+    return COMPARE_VALUE_META;
+  }
+
+  private static String getPackageName() {
+    String className = CompiledRowKeyComparator.class.getName();
+    return className.substring( 0, className.lastIndexOf( '.' ) );
+  }
+
+  /**
+   * Generate the source code of a comparator class.
+   */
+  static String generateSource( String className, int[] compareTypes, boolean[] descending,
+                                boolean[] emptyStringIsNull, int[] fieldnrs1, int[] fieldnrs2, int nrKeys ) {
+    StringBuilder source = new StringBuilder();
+    source.append( "package " ).append( getPackageName() ).append( ";\n\n" );
+    source.append( "import org.pentaho.di.core.exception.KettleValueException;\n" );
+    source.append( "import org.pentaho.di.core.row.ValueMetaInterface;\n\n" );
+    source.append( "public final class " ).append( className ).append( " extends CompiledRowKeyComparator {\n\n" );
+    source.append( "  public " ).append( className )
+      .append( "( ValueMetaInterface[] keyMetas1, ValueMetaInterface[] keyMetas2 ) {\n" );
+    source.append( "    super( keyMetas1, keyMetas2 );\n" );
+    source.append( "  }\n\n" );
+
+    source.append( "  public int compare( Object[] data1, int offset1, Object[] data2, int offset2 )"
+      + " throws KettleValueException {\n" );
+    source.append( "    Object value1;\n" );
+    source.append( "    Object value2;\n" );
+    source.append( "    int cmp;\n" );
+    for ( int i = 0; i < nrKeys; i++ ) {
+      source.append( "\n    value1 = data1[offset1 + " ).append( fieldnrs1[i] ).append( "];\n" );
+      source.append( "    value2 = data2[offset2 + " ).append( fieldnrs2[i] ).append( "];\n" );
+      appendCompare( source, i, compareTypes[i], descending[i], emptyStringIsNull[i] );
+    }
+    source.append( "    return 0;\n" );
+    source.append( "  }\n\n" );
+
+    source.append( "  public int hashCode( Object[] row ) {\n" );
+    source.append( "    int hashCode = 1;\n" );
+    source.append( "    Object value;\n" );
+    for ( int i = 0; i < nrKeys; i++ ) {
+      source.append( "    value = row[" ).append( fieldnrs1[i] ).append( "];\n" );
+      String javaType = JAVA_TYPES[compareTypes[i]];
+      if ( javaType == null ) {
+        source.append( "    hashCode = 31 * hashCode + valueHashCode( value );\n" );
+      } else {
+        source.append( "    hashCode = 31 * hashCode + ( value == null ? 0 : ( (" ).append( javaType )
+          .append( ") value ).hashCode() );\n" );
+      }
+    }
+    source.append( "    return hashCode;\n" );
+    source.append( "  }\n" );
+    source.append( "}\n" );
+    return source.toString();
+  }
+
+  private static void appendCompare( StringBuilder source, int key, int compareType, boolean descending,
+                                     boolean emptyStringIsNull ) {
+    switch ( compareType ) {
+      case COMPARE_VALUE_META:
+        // The value metadata takes care of nulls and the sort direction
+        source.append( "    cmp = keyMetas1[" ).append( key ).append( "].compare( value1, value2 );\n" );
+        source.append( "    if ( cmp != 0 ) {\n" );
+        source.append( "      return cmp;\n" );
+        source.append( "    }\n" );
+        return;
+      case COMPARE_CONVERTED:
+        source.append( "    cmp = keyMetas1[" ).append( key ).append( "].compare( value1, keyMetas2[" ).append( key )
+          .append( "], value2 );\n" );
+        source.append( "    if ( cmp != 0 ) {\n" );
+        source.append( "      return cmp;\n" );
+        source.append( "    }\n" );
+        return;
+      default:
+        break;
+    }
+
+    String javaType = JAVA_TYPES[compareType];
+    String null1 = "value1 == null";
+    String null2 = "value2 == null";
+    String notNull2 = "value2 != null";
+    if ( javaType.equals( "String" ) && emptyStringIsNull ) {
+      null1 = "value1 == null || ( (String) value1 ).length() == 0";
+      null2 = "value2 == null || ( (String) value2 ).length() == 0";
+      notNull2 = "value2 != null && ( (String) value2 ).length() != 0";
+    }
+    String a = "( (" + javaType + ") value1 )";
+    String b = "( (" + javaType + ") value2 )";
+    String compare;
+    switch ( compareType ) {
+      case COMPARE_LONG:
+        compare = "Long.compare( " + a + ".longValue(), " + b + ".longValue() )";
+        break;
+      case COMPARE_DOUBLE:
+        compare = "Double.compare( " + a + ".doubleValue(), " + b + ".doubleValue() )";
+        break;
+      case COMPARE_STRING_IGNORE_CASE:
+        compare = a + ".compareToIgnoreCase( " + b + " )";
+        break;
+      case COMPARE_DATE:
+        compare = "Long.compare( " + a + ".getTime(), " + b + ".getTime() )";
+        break;
+      case COMPARE_BOOLEAN:
+        compare = "Boolean.compare( " + a + ".booleanValue(), " + b + ".booleanValue() )";
+        break;
+      default:
+        compare = a + ".compareTo( " + b + " )";
+        break;
+    }
+
+    // Nulls come first in ascending order, last in descending order
+    source.append( "    if ( " ).append( null1 ).append( " ) {\n" );
+    source.append( "      if ( " ).append( notNull2 ).append( " ) {\n" );
+    source.append( "        return " ).append( descending ? "1" : "-1" ).append( ";\n" );
+    source.append( "      }\n" );
+    source.append( "    } else if ( " ).append( null2 ).append( " ) {\n" );
+    source.append( "      return " ).append( descending ? "-1" : "1" ).append( ";\n" );
+    source.append( "    } else {\n" );
+    source.append( "      cmp = " ).append( compare ).append( ";\n" );
+    source.append( "      if ( cmp != 0 ) {\n" );
+    source.append( "        return " ).append( descending ? "-cmp" : "cmp" ).append( ";\n" );
+    source.append( "      }\n" );
+    source.append( "    }\n" );
+  }
+}
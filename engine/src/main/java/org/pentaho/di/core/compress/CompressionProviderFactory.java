@@ -13,9 +13,13 @@
 
 package org.pentaho.di.core.compress;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.pentaho.di.core.plugins.PluginInterface;
 import org.pentaho.di.core.plugins.PluginRegistry;
@@ -24,6 +28,15 @@ public class CompressionProviderFactory implements CompressionProviderFactoryInt
 
   protected static CompressionProviderFactory INSTANCE = new CompressionProviderFactory();
 
+  /** The threads decompressing data ahead of the readers, created on first use */
+  private static class DecompressionExecutor {
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool( runnable -> {
+      Thread thread = new Thread( runnable, "Kettle decompression" );
+      thread.setDaemon( true );
+      return thread;
+    } );
+  }
+
   private CompressionProviderFactory() {
   }
 
@@ -111,6 +124,33 @@ public class CompressionProviderFactory implements CompressionProviderFactoryInt
     return foundProvider;
   }
 
+  /**
+   * Creates an input stream that decompresses the data on background threads, ahead of the reader. Data that is made of
+   * independently compressed blocks, see {@link ParallelDecompressionProvider}, is decompressed on several threads at
+   * once.
+   *
+   * @param provider
+   *          the compression provider of the data
+   * @param in
+   *          the compressed data
+   * @param threads
+   *          the number of blocks to decompress at once, 0 to decompress on the reading thread
+   * @return a CompressionInputStream object that decompresses incoming data
+   * @throws IOException
+   */
+  public CompressionInputStream createInputStream( CompressionProvider provider, InputStream in, int threads )
+    throws IOException {
+    if ( threads <= 0 || provider instanceof NoneCompressionProvider ) {
+      return provider.createInputStream( in );
+    }
+    if ( provider instanceof ParallelDecompressionProvider ) {
+      return ( (ParallelDecompressionProvider) provider ).createParallelInputStream( in,
+        DecompressionExecutor.EXECUTOR, threads );
+    }
+    return new ReadAheadCompressionInputStream( provider.createInputStream( in ), provider,
+      DecompressionExecutor.EXECUTOR, threads * 2 );
+  }
+
   protected List<PluginInterface> getPlugins() {
     return PluginRegistry.getInstance().getPlugins( CompressionPluginType.class );
   }
@@ -0,0 +1,206 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Decompresses data that is made of independently compressed blocks on a number of threads at once. The reading thread
+ * splits the compressed data into blocks, which is cheap, and hands them to the thread pool. The decompressed blocks
+ * are returned in their original order.
+ * <p>
+ * Once a part of the data turns out not to be splittable, the rest of the data is decompressed by the stream given to
+ * {@link #setTail(InputStream)}, ahead of the reader on a single thread.
+ *
+ * @since 11.1
+ */
+public abstract class ParallelDecompressionInputStream extends CompressionInputStream {
+
+  private final ExecutorService executor;
+  private final int maxBlocksInFlight;
+  private final Deque<Future<byte[]>> blocksInFlight = new ArrayDeque<>();
+  private boolean endOfBlocks;
+  private InputStream tail;
+
+  private byte[] block;
+  private int position;
+
+  /**
+   * @param in
+   *          the compressed data
+   * @param provider
+   *          the compression provider of the data
+   * @param executor
+   *          the threads to decompress on
+   * @param threads
+   *          the number of blocks to decompress at once
+   */
+  protected ParallelDecompressionInputStream( InputStream in, CompressionProvider provider, ExecutorService executor,
+                                              int threads ) {
+    super( in, provider );
+    this.executor = executor;
+    this.maxBlocksInFlight = Math.max( 1, threads ) * 2;
+  }
+
+  /**
+   * Read the next compressed block from the delegate. Call {@link #setTail(InputStream)} and return null when the rest
+   * of the data can't be split.
+   *
+   * @return the compressed block or null when there are no more blocks
+   * @throws IOException
+   *           when the data cannot be read
+   */
+  protected abstract byte[] readBlock() throws IOException;
+
+  /**
+   * Decompress a block, this is called on the threads of the pool.
+   *
+   * @param block
+   *          a block returned by {@link #readBlock()}
+   * @return the decompressed data
+   * @throws IOException
+   *           when the block is corrupt
+   */
+  protected abstract byte[] decompressBlock( byte[] block ) throws IOException;
+
+  /**
+   * @param stream
+   *          the stream that decompresses the rest of the data, after the blocks read so far
+   */
+  protected void setTail( InputStream stream ) {
+    tail = new ReadAheadCompressionInputStream( stream, getCompressionProvider(), executor, maxBlocksInFlight );
+  }
+
+  /**
+   * Read exactly len bytes, unless the end of the data is reached first.
+   *
+   * @return the number of bytes read, only less than len at the end of the data
+   */
+  protected static int readFully( InputStream in, byte[] b, int off, int len ) throws IOException {
+    int total = 0;
+    while ( total < len ) {
+      int n = in.read( b, off + total, len - total );
+      if ( n < 0 ) {
+        break;
+      }
+      total += n;
+    }
+    return total;
+  }
+
+  /**
+   * Read exactly len bytes.
+   *
+   * @throws EOFException
+   *           when the data ends before that
+   */
+  protected static void readExactly( InputStream in, byte[] b, int off, int len ) throws IOException {
+    if ( readFully( in, b, off, len ) < len ) {
+      throw new EOFException( "Unexpected end of compressed data" );
+    }
+  }
+
+  private boolean nextBlock() throws IOException {
+    while ( true ) {
+      while ( !endOfBlocks && blocksInFlight.size() < maxBlocksInFlight ) {
+        final byte[] compressed = readBlock();
+        if ( compressed == null ) {
+          endOfBlocks = true;
+        } else {
+          blocksInFlight.add( executor.submit( () -> decompressBlock( compressed ) ) );
+        }
+      }
+      Future<byte[]> next = blocksInFlight.poll();
+      if ( next == null ) {
+        return false;
+      }
+      try {
+        block = next.get();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      } catch ( ExecutionException e ) {
+        if ( e.getCause() instanceof IOException ) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException( e.getCause() );
+      }
+      position = 0;
+      if ( block.length > 0 ) {
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if ( block == null || position >= block.length ) {
+      if ( !nextBlock() ) {
+        return tail == null ? -1 : tail.read();
+      }
+    }
+    return block[position++] & 0xFF;
+  }
+
+  @Override
+  public int read( byte[] b ) throws IOException {
+    return read( b, 0, b.length );
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    if ( len == 0 ) {
+      return 0;
+    }
+    if ( block == null || position >= block.length ) {
+      if ( !nextBlock() ) {
+        return tail == null ? -1 : tail.read( b, off, len );
+      }
+    }
+    int n = Math.min( len, block.length - position );
+    System.arraycopy( block, position, b, off, n );
+    position += n;
+    return n;
+  }
+
+  @Override
+  public int available() throws IOException {
+    if ( block != null && position < block.length ) {
+      return block.length - position;
+    }
+    return tail == null ? 0 : tail.available();
+  }
+
+  @Override
+  public void close() throws IOException {
+    for ( Future<byte[]> future : blocksInFlight ) {
+      future.cancel( false );
+    }
+    blocksInFlight.clear();
+    block = null;
+    if ( tail != null ) {
+      tail.close();
+    } else {
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Implemented by compression providers for formats that are made of independently compressed blocks, so that the
+ * blocks can be decompressed on several threads at once.
+ *
+ * @since 11.1
+ */
+public interface ParallelDecompressionProvider {
+
+  /**
+   * Creates an input stream that decompresses a number of blocks of the data at once. Data that can't be split into
+   * blocks is decompressed ahead of the reader on a single thread.
+   *
+   * @param in
+   *          An existing input stream to wrap
+   * @param executor
+   *          the threads to decompress on
+   * @param threads
+   *          the number of blocks to decompress at once
+   * @return a CompressionInputStream object that decompresses incoming data
+   * @throws IOException
+   */
+  CompressionInputStream createParallelInputStream( InputStream in, ExecutorService executor, int threads )
+    throws IOException;
+}
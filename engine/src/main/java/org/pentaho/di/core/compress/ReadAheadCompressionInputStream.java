@@ -0,0 +1,230 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a decompressing input stream on a background thread into a bounded number of buffers, so that the reader
+ * doesn't have to wait for the decompression. Reading ahead stops at the end of an entry, {@link #nextEntry()} moves to
+ * the next entry of the wrapped stream.
+ *
+ * @since 11.1
+ */
+public class ReadAheadCompressionInputStream extends CompressionInputStream {
+
+  /** The size of the buffers the data is read ahead into */
+  public static final int BUFFER_SIZE = 256 * 1024;
+
+  private static final long PUT_WAIT_MILLIS = 10L;
+
+  private static final class Buffer {
+    private final byte[] data = new byte[BUFFER_SIZE];
+    private int length;
+    private IOException error;
+    private boolean end;
+  }
+
+  private final ExecutorService executor;
+  private final BlockingQueue<Buffer> filled;
+  private final BlockingQueue<Buffer> free;
+
+  private volatile boolean stopped;
+  private CountDownLatch readerDone;
+  private boolean endOfEntry;
+
+  private Buffer current;
+  private int position;
+
+  /**
+   * @param in
+   *          the decompressing input stream to read ahead
+   * @param provider
+   *          the compression provider of the data
+   * @param executor
+   *          the thread pool to read ahead on
+   * @param nrBuffers
+   *          the maximum number of buffers read ahead
+   */
+  public ReadAheadCompressionInputStream( InputStream in, CompressionProvider provider, ExecutorService executor,
+                                          int nrBuffers ) {
+    super( in, provider );
+    this.executor = executor;
+    int size = Math.max( 2, nrBuffers );
+    filled = new ArrayBlockingQueue<>( size + 1 );
+    free = new ArrayBlockingQueue<>( size + 1 );
+  }
+
+  private void start() {
+    stopped = false;
+    final CountDownLatch done = new CountDownLatch( 1 );
+    readerDone = done;
+    executor.execute( () -> {
+      try {
+        readAhead();
+      } finally {
+        done.countDown();
+      }
+    } );
+  }
+
+  private void readAhead() {
+    try {
+      while ( !stopped ) {
+        Buffer buffer = free.poll();
+        if ( buffer == null ) {
+          buffer = new Buffer();
+        }
+        buffer.length = 0;
+        int n = 0;
+        while ( buffer.length < buffer.data.length
+          && ( n = delegate.read( buffer.data, buffer.length, buffer.data.length - buffer.length ) ) >= 0 ) {
+          buffer.length += n;
+        }
+        buffer.end = n < 0;
+        put( buffer );
+        if ( buffer.end ) {
+          return;
+        }
+      }
+    } catch ( IOException e ) {
+      Buffer buffer = new Buffer();
+      buffer.error = e;
+      put( buffer );
+    } catch ( RuntimeException e ) {
+      Buffer buffer = new Buffer();
+      buffer.error = new IOException( e );
+      put( buffer );
+    }
+  }
+
+  private void put( Buffer buffer ) {
+    try {
+      while ( !stopped && !filled.offer( buffer, PUT_WAIT_MILLIS, TimeUnit.MILLISECONDS ) ) {
+        // The reader is busy, wait for room
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean nextBuffer() throws IOException {
+    if ( current != null ) {
+      free.offer( current );
+      current = null;
+    }
+    if ( endOfEntry ) {
+      return false;
+    }
+    if ( readerDone == null ) {
+      start();
+    }
+    Buffer next;
+    try {
+      next = filled.take();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    if ( next.error != null ) {
+      endOfEntry = true;
+      throw next.error;
+    }
+    if ( next.length == 0 && next.end ) {
+      endOfEntry = true;
+      return false;
+    }
+    endOfEntry = next.end;
+    current = next;
+    position = 0;
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    while ( current == null || position >= current.length ) {
+      if ( !nextBuffer() ) {
+        return -1;
+      }
+    }
+    return current.data[position++] & 0xFF;
+  }
+
+  @Override
+  public int read( byte[] b ) throws IOException {
+    return read( b, 0, b.length );
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    if ( len == 0 ) {
+      return 0;
+    }
+    while ( current == null || position >= current.length ) {
+      if ( !nextBuffer() ) {
+        return -1;
+      }
+    }
+    int n = Math.min( len, current.length - position );
+    System.arraycopy( current.data, position, b, off, n );
+    position += n;
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return current == null ? 0 : current.length - position;
+  }
+
+  /**
+   * Stop reading ahead and wait for the background thread to let go of the wrapped stream.
+   */
+  private void stop() throws IOException {
+    stopped = true;
+    if ( readerDone != null ) {
+      filled.clear();
+      try {
+        readerDone.await();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      readerDone = null;
+    }
+    filled.clear();
+    current = null;
+    position = 0;
+  }
+
+  @Override
+  public Object nextEntry() throws IOException {
+    stop();
+    endOfEntry = false;
+    return delegate instanceof CompressionInputStream ? ( (CompressionInputStream) delegate ).nextEntry() : null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    stop();
+    endOfEntry = true;
+    delegate.close();
+  }
+}
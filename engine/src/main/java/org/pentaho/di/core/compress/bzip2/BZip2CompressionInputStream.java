@@ -0,0 +1,58 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.bzip2;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.pentaho.di.core.compress.CompressionInputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+/**
+ * Reads all the concatenated streams of a file, like the ones written by parallel bzip2 tools.
+ *
+ * @since 11.1
+ */
+public class BZip2CompressionInputStream extends CompressionInputStream {
+
+  public BZip2CompressionInputStream( InputStream in, CompressionProvider provider ) throws IOException {
+    super( getDelegate( in ), provider );
+  }
+
+  protected static BZip2CompressorInputStream getDelegate( InputStream in ) throws IOException {
+    BZip2CompressorInputStream delegate = null;
+    if ( in instanceof BZip2CompressorInputStream ) {
+      delegate = (BZip2CompressorInputStream) in;
+    } else {
+      delegate = new BZip2CompressorInputStream( in, true );
+    }
+    return delegate;
+  }
+
+  @Override
+  public void close() throws IOException {
+    ( (BZip2CompressorInputStream) delegate ).close();
+  }
+
+  @Override
+  public int read() throws IOException {
+    return ( (BZip2CompressorInputStream) delegate ).read();
+  }
+
+  @Override
+  public Object nextEntry() throws IOException {
+    return null;
+  }
+}
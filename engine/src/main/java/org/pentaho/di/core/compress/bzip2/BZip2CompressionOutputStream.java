@@ -0,0 +1,46 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.bzip2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.pentaho.di.core.compress.CompressionOutputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+/**
+ * @since 11.1
+ */
+public class BZip2CompressionOutputStream extends CompressionOutputStream {
+
+  public BZip2CompressionOutputStream( OutputStream out, CompressionProvider provider ) throws IOException {
+    super( getDelegate( out ), provider );
+  }
+
+  protected static BZip2CompressorOutputStream getDelegate( OutputStream out ) throws IOException {
+    BZip2CompressorOutputStream delegate = null;
+    if ( out instanceof BZip2CompressorOutputStream ) {
+      delegate = (BZip2CompressorOutputStream) out;
+    } else {
+      delegate = new BZip2CompressorOutputStream( out );
+    }
+    return delegate;
+  }
+
+  @Override
+  public void close() throws IOException {
+    ( (BZip2CompressorOutputStream) delegate ).close();
+  }
+}
@@ -16,16 +16,24 @@ package org.pentaho.di.core.compress.gzip;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
 
 import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.compress.ParallelDecompressionProvider;
 
-public class GZIPCompressionProvider implements CompressionProvider {
+public class GZIPCompressionProvider implements CompressionProvider, ParallelDecompressionProvider {
 
   @Override
   public GZIPCompressionInputStream createInputStream( InputStream in ) throws IOException {
     return new GZIPCompressionInputStream( in, this );
   }
 
+  @Override
+  public ParallelGZIPCompressionInputStream createParallelInputStream( InputStream in, ExecutorService executor,
+                                                                       int threads ) {
+    return new ParallelGZIPCompressionInputStream( in, this, executor, threads );
+  }
+
   @Override
   public boolean supportsInput() {
     return true;
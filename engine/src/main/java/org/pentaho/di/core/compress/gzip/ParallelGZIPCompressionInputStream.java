@@ -0,0 +1,141 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.gzip;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.compress.ParallelDecompressionInputStream;
+
+/**
+ * Decompresses the blocks of a blocked gzip (BGZF) file, as written by bgzip, on a number of threads at once. Every
+ * block is a complete gzip member that holds its own compressed size in the extra field of its header. Gzip data
+ * without that extra field is decompressed on a single thread.
+ *
+ * @since 11.1
+ */
+public class ParallelGZIPCompressionInputStream extends ParallelDecompressionInputStream {
+
+  /** The fixed part of the header, up to and including the length of the extra field */
+  private static final int HEADER_SIZE = 12;
+  private static final int TRAILER_SIZE = 8;
+  private static final int FLAG_EXTRA = 4;
+  private static final int MAX_BLOCK_DATA = 65536;
+
+  public ParallelGZIPCompressionInputStream( InputStream in, CompressionProvider provider, ExecutorService executor,
+                                             int threads ) {
+    super( in, provider, executor, threads );
+  }
+
+  @Override
+  protected byte[] readBlock() throws IOException {
+    byte[] header = new byte[HEADER_SIZE];
+    int n = readFully( delegate, header, 0, HEADER_SIZE );
+    if ( n == 0 ) {
+      return null;
+    }
+    if ( n < HEADER_SIZE || ( header[0] & 0xFF ) != 31 || ( header[1] & 0xFF ) != 139 || header[2] != 8
+      || header[3] != FLAG_EXTRA ) {
+      return readRest( header, n );
+    }
+    int extraLength = uint16( header, 10 );
+    byte[] extra = new byte[HEADER_SIZE + extraLength];
+    System.arraycopy( header, 0, extra, 0, HEADER_SIZE );
+    n = HEADER_SIZE + readFully( delegate, extra, HEADER_SIZE, extraLength );
+    int blockSize = n == extra.length ? getBlockSize( extra ) : -1;
+    if ( blockSize < extra.length + TRAILER_SIZE ) {
+      return readRest( extra, n );
+    }
+    byte[] block = new byte[blockSize];
+    System.arraycopy( extra, 0, block, 0, extra.length );
+    readExactly( delegate, block, extra.length, blockSize - extra.length );
+    return block;
+  }
+
+  /**
+   * @return the total size of the block from the BC subfield of the extra field or -1 if there is none
+   */
+  private static int getBlockSize( byte[] header ) {
+    int i = HEADER_SIZE;
+    while ( i + 4 <= header.length ) {
+      int length = uint16( header, i + 2 );
+      if ( header[i] == 'B' && header[i + 1] == 'C' && length == 2 && i + 6 <= header.length ) {
+        return uint16( header, i + 4 ) + 1;
+      }
+      i += 4 + length;
+    }
+    return -1;
+  }
+
+  private byte[] readRest( byte[] read, int length ) throws IOException {
+    setTail( new GZIPInputStream( new SequenceInputStream( new ByteArrayInputStream( read, 0, length ), delegate ) ) );
+    return null;
+  }
+
+  @Override
+  protected byte[] decompressBlock( byte[] block ) throws IOException {
+    int dataStart = HEADER_SIZE + uint16( block, 10 );
+    int dataLength = block.length - TRAILER_SIZE - dataStart;
+    int expectedCrc = int32( block, block.length - TRAILER_SIZE );
+    int size = int32( block, block.length - 4 );
+    if ( dataLength < 0 || size < 0 || size > MAX_BLOCK_DATA ) {
+      throw new ZipException( "Corrupt BGZF block" );
+    }
+
+    byte[] data = new byte[size];
+    Inflater inflater = new Inflater( true );
+    try {
+      inflater.setInput( block, dataStart, dataLength );
+      int n = 0;
+      while ( n < size ) {
+        int inflated = inflater.inflate( data, n, size - n );
+        if ( inflated == 0 && ( inflater.finished() || inflater.needsInput() || inflater.needsDictionary() ) ) {
+          break;
+        }
+        n += inflated;
+      }
+      if ( n != size ) {
+        throw new ZipException( "Corrupt BGZF block: expected " + size + " bytes but got " + n );
+      }
+    } catch ( DataFormatException e ) {
+      throw new ZipException( e.getMessage() );
+    } finally {
+      inflater.end();
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update( data, 0, size );
+    if ( (int) crc.getValue() != expectedCrc ) {
+      throw new ZipException( "Corrupt GZIP trailer" );
+    }
+    return data;
+  }
+
+  private static int uint16( byte[] b, int offset ) {
+    return ( b[offset] & 0xFF ) | ( ( b[offset + 1] & 0xFF ) << 8 );
+  }
+
+  private static int int32( byte[] b, int offset ) {
+    return uint16( b, offset ) | ( uint16( b, offset + 2 ) << 16 );
+  }
+}
@@ -0,0 +1,214 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.zstd;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.concurrent.ExecutorService;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdException;
+import com.github.luben.zstd.ZstdInputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.compress.ParallelDecompressionInputStream;
+
+/**
+ * Decompresses the frames of a zstd file, like the ones written with several threads, on a number of threads at once.
+ * The compressed size of a frame follows from the headers of its blocks. Frames that don't record their content size
+ * or that are too large to keep in memory are decompressed, together with the rest of the file, on a single thread.
+ *
+ * @since 11.1
+ */
+public class ParallelZstdCompressionInputStream extends ParallelDecompressionInputStream {
+
+  private static final int MAGIC = 0xFD2FB528;
+  private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+  private static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+  private static final int[] DICTIONARY_ID_SIZES = { 0, 1, 2, 4 };
+  private static final int BLOCK_HEADER_SIZE = 3;
+  private static final int CHECKSUM_SIZE = 4;
+  private static final int BLOCK_TYPE_RLE = 1;
+  private static final int BLOCK_TYPE_RESERVED = 3;
+
+  /** The maximum compressed and decompressed size of a frame to decompress in parallel */
+  private static final int MAX_FRAME_SIZE = 32 * 1024 * 1024;
+
+  public ParallelZstdCompressionInputStream( InputStream in, CompressionProvider provider, ExecutorService executor,
+                                             int threads ) {
+    super( in, provider, executor, threads );
+  }
+
+  @Override
+  protected byte[] readBlock() throws IOException {
+    while ( true ) {
+      byte[] magic = new byte[4];
+      int n = readFully( delegate, magic, 0, magic.length );
+      if ( n == 0 ) {
+        return null;
+      }
+      if ( n < magic.length ) {
+        return readRest( magic, n );
+      }
+      int value = int32( magic, 0 );
+      if ( ( value & SKIPPABLE_MAGIC_MASK ) == SKIPPABLE_MAGIC ) {
+        byte[] size = new byte[4];
+        readExactly( delegate, size, 0, size.length );
+        skipExactly( int32( size, 0 ) & 0xFFFFFFFFL );
+        continue;
+      }
+      if ( value != MAGIC ) {
+        return readRest( magic, n );
+      }
+      return readFrame( magic );
+    }
+  }
+
+  private byte[] readFrame( byte[] magic ) throws IOException {
+    ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    frame.write( magic );
+
+    int descriptor = delegate.read();
+    if ( descriptor < 0 ) {
+      return readRest( frame );
+    }
+    frame.write( descriptor );
+    byte[] header = new byte[getHeaderSize( descriptor )];
+    if ( !copy( frame, header ) ) {
+      return readRest( frame );
+    }
+    long contentSize = getContentSize( frame.toByteArray() );
+    if ( contentSize < 0 || contentSize > MAX_FRAME_SIZE ) {
+      return readRest( frame );
+    }
+
+    byte[] blockHeader = new byte[BLOCK_HEADER_SIZE];
+    boolean last = false;
+    while ( !last ) {
+      if ( !copy( frame, blockHeader ) ) {
+        return readRest( frame );
+      }
+      int value = ( blockHeader[0] & 0xFF ) | ( ( blockHeader[1] & 0xFF ) << 8 ) | ( ( blockHeader[2] & 0xFF ) << 16 );
+      last = ( value & 1 ) != 0;
+      int type = ( value >>> 1 ) & 3;
+      int size = type == BLOCK_TYPE_RLE ? 1 : value >>> 3;
+      if ( type == BLOCK_TYPE_RESERVED || frame.size() + size > MAX_FRAME_SIZE ) {
+        return readRest( frame );
+      }
+      if ( !copy( frame, new byte[size] ) ) {
+        return readRest( frame );
+      }
+    }
+    if ( ( descriptor & 4 ) != 0 && !copy( frame, new byte[CHECKSUM_SIZE] ) ) {
+      return readRest( frame );
+    }
+    return frame.toByteArray();
+  }
+
+  /**
+   * Read the size of the buffer from the delegate and add it to the frame.
+   *
+   * @return false if the data ended first
+   */
+  private boolean copy( ByteArrayOutputStream frame, byte[] buffer ) throws IOException {
+    int n = readFully( delegate, buffer, 0, buffer.length );
+    frame.write( buffer, 0, n );
+    return n == buffer.length;
+  }
+
+  private void skipExactly( long length ) throws IOException {
+    byte[] buffer = new byte[8192];
+    long left = length;
+    while ( left > 0 ) {
+      int n = (int) Math.min( buffer.length, left );
+      readExactly( delegate, buffer, 0, n );
+      left -= n;
+    }
+  }
+
+  private byte[] readRest( ByteArrayOutputStream frame ) throws IOException {
+    byte[] read = frame.toByteArray();
+    return readRest( read, read.length );
+  }
+
+  private byte[] readRest( byte[] read, int length ) throws IOException {
+    setTail( new ZstdInputStream( new SequenceInputStream( new ByteArrayInputStream( read, 0, length ), delegate ) ) );
+    return null;
+  }
+
+  /**
+   * @return the size of the frame header after the descriptor: window descriptor, dictionary id and content size
+   */
+  private static int getHeaderSize( int descriptor ) {
+    boolean singleSegment = ( descriptor & 0x20 ) != 0;
+    return ( singleSegment ? 0 : 1 ) + DICTIONARY_ID_SIZES[descriptor & 3]
+      + getContentSizeFieldSize( descriptor );
+  }
+
+  private static int getContentSizeFieldSize( int descriptor ) {
+    switch ( ( descriptor >>> 6 ) & 3 ) {
+      case 0:
+        return ( descriptor & 0x20 ) != 0 ? 1 : 0;
+      case 1:
+        return 2;
+      case 2:
+        return 4;
+      default:
+        return 8;
+    }
+  }
+
+  /**
+   * @param frame
+   *          the frame, starting with the magic number and including at least the complete frame header
+   * @return the decompressed size of the frame or -1 if it is not recorded
+   */
+  private static long getContentSize( byte[] frame ) {
+    int descriptor = frame[4] & 0xFF;
+    int fieldSize = getContentSizeFieldSize( descriptor );
+    if ( fieldSize == 0 ) {
+      return -1;
+    }
+    int offset = 5 + getHeaderSize( descriptor ) - fieldSize;
+    long size = 0;
+    for ( int i = fieldSize - 1; i >= 0; i-- ) {
+      size = ( size << 8 ) | ( frame[offset + i] & 0xFF );
+    }
+    return fieldSize == 2 ? size + 256 : size;
+  }
+
+  @Override
+  protected byte[] decompressBlock( byte[] frame ) throws IOException {
+    int size = (int) getContentSize( frame );
+    if ( size == 0 ) {
+      return new byte[0];
+    }
+    try {
+      byte[] data = Zstd.decompress( frame, size );
+      if ( data.length != size ) {
+        throw new IOException( "Corrupt zstd frame: expected " + size + " bytes but got " + data.length );
+      }
+      return data;
+    } catch ( ZstdException e ) {
+      throw new IOException( "Corrupt zstd frame", e );
+    }
+  }
+
+  private static int int32( byte[] b, int offset ) {
+    return ( b[offset] & 0xFF ) | ( ( b[offset + 1] & 0xFF ) << 8 ) | ( ( b[offset + 2] & 0xFF ) << 16 )
+      | ( ( b[offset + 3] & 0xFF ) << 24 );
+  }
+}
@@ -0,0 +1,56 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.zstd;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.github.luben.zstd.ZstdInputStream;
+import org.pentaho.di.core.compress.CompressionInputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+/**
+ * @since 11.1
+ */
+public class ZstdCompressionInputStream extends CompressionInputStream {
+
+  public ZstdCompressionInputStream( InputStream in, CompressionProvider provider ) throws IOException {
+    super( getDelegate( in ), provider );
+  }
+
+  protected static ZstdInputStream getDelegate( InputStream in ) throws IOException {
+    ZstdInputStream delegate = null;
+    if ( in instanceof ZstdInputStream ) {
+      delegate = (ZstdInputStream) in;
+    } else {
+      delegate = new ZstdInputStream( in );
+    }
+    return delegate;
+  }
+
+  @Override
+  public void close() throws IOException {
+    ( (ZstdInputStream) delegate ).close();
+  }
+
+  @Override
+  public int read() throws IOException {
+    return ( (ZstdInputStream) delegate ).read();
+  }
+
+  @Override
+  public Object nextEntry() throws IOException {
+    return null;
+  }
+}
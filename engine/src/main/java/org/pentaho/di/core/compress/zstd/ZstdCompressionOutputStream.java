@@ -0,0 +1,46 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.zstd;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.pentaho.di.core.compress.CompressionOutputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+/**
+ * @since 11.1
+ */
+public class ZstdCompressionOutputStream extends CompressionOutputStream {
+
+  public ZstdCompressionOutputStream( OutputStream out, CompressionProvider provider ) throws IOException {
+    super( getDelegate( out ), provider );
+  }
+
+  protected static ZstdOutputStream getDelegate( OutputStream out ) throws IOException {
+    ZstdOutputStream delegate = null;
+    if ( out instanceof ZstdOutputStream ) {
+      delegate = (ZstdOutputStream) out;
+    } else {
+      delegate = new ZstdOutputStream( out );
+    }
+    return delegate;
+  }
+
+  @Override
+  public void close() throws IOException {
+    ( (ZstdOutputStream) delegate ).close();
+  }
+}
@@ -0,0 +1,69 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.zstd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.compress.ParallelDecompressionProvider;
+
+/**
+ * @since 11.1
+ */
+public class ZstdCompressionProvider implements CompressionProvider, ParallelDecompressionProvider {
+
+  @Override
+  public ZstdCompressionInputStream createInputStream( InputStream in ) throws IOException {
+    return new ZstdCompressionInputStream( in, this );
+  }
+
+  @Override
+  public ParallelZstdCompressionInputStream createParallelInputStream( InputStream in, ExecutorService executor,
+                                                                       int threads ) {
+    return new ParallelZstdCompressionInputStream( in, this, executor, threads );
+  }
+
+  @Override
+  public boolean supportsInput() {
+    return true;
+  }
+
+  @Override
+  public ZstdCompressionOutputStream createOutputStream( OutputStream out ) throws IOException {
+    return new ZstdCompressionOutputStream( out, this );
+  }
+
+  @Override
+  public boolean supportsOutput() {
+    return true;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Zstandard compression";
+  }
+
+  @Override
+  public String getName() {
+    return "Zstd";
+  }
+
+  @Override
+  public String getDefaultExtension() {
+    return "zst";
+  }
+}
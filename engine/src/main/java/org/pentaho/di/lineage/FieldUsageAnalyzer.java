@@ -0,0 +1,144 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.lineage;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.trans.ModPartitioner;
+import org.pentaho.di.trans.Partitioner;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.FieldUsageInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.step.StepPartitioningMeta;
+
+/**
+ * Determines which output fields of a step are used by the steps after it. A field is followed through the steps that
+ * pass their input fields on, see {@link FieldUsageInterface}, including renames. The highest usage found on any path
+ * counts. Any step that can't tell how it uses its input fields is considered to read all of them, so the result is
+ * never lower than the real usage. The same goes for the field a step partitions its rows on and for the fields that
+ * reach any step without next steps: its rows can still be picked up by whoever runs the transformation.
+ *
+ * @since 11.1
+ */
+public class FieldUsageAnalyzer {
+  private final TransMeta transMeta;
+  private final VariableSpace space;
+
+  /**
+   * @param transMeta
+   *          the transformation to analyze
+   * @param space
+   *          the variables to resolve the step options with
+   */
+  public FieldUsageAnalyzer( TransMeta transMeta, VariableSpace space ) {
+    this.transMeta = transMeta;
+    this.space = space;
+  }
+
+  /**
+   * Determine how the steps after the given step use its output fields.
+   *
+   * @param stepMeta
+   *          the step
+   * @return the usage of every output field by name, one of the FieldUsageInterface.USAGE_ constants
+   * @throws KettleStepException
+   *           when the output fields of the step cannot be determined
+   */
+  public Map<String, Integer> getDownstreamFieldUsage( StepMeta stepMeta ) throws KettleStepException {
+    RowMetaInterface fields = transMeta.getStepFields( stepMeta );
+    Map<String, Integer> usage = new HashMap<>();
+    for ( ValueMetaInterface valueMeta : fields.getValueMetaList() ) {
+      usage.put( valueMeta.getName(), getUsageAfter( stepMeta, valueMeta.getName(), new HashSet<String>() ) );
+    }
+    return usage;
+  }
+
+  private int getUsageAfter( StepMeta stepMeta, String fieldName, Set<String> visited ) {
+    if ( isPartitioningField( stepMeta.getTargetStepPartitioningMeta(), fieldName ) ) {
+      return FieldUsageInterface.USAGE_READ;
+    }
+    // The rows of a step without next steps can still be read by whoever runs the transformation
+    //
+    List<StepMeta> nextSteps = transMeta.findNextSteps( stepMeta );
+    if ( nextSteps.isEmpty() ) {
+      return FieldUsageInterface.USAGE_READ;
+    }
+    int usage = FieldUsageInterface.USAGE_NONE;
+    for ( StepMeta nextStep : nextSteps ) {
+      // The rows are distributed over the copies of a partitioned step on the partitioning field
+      //
+      if ( isPartitioningField( nextStep.getStepPartitioningMeta(), fieldName ) ) {
+        return FieldUsageInterface.USAGE_READ;
+      }
+      usage = Math.max( usage, getUsage( nextStep, fieldName, visited ) );
+      if ( usage == FieldUsageInterface.USAGE_READ ) {
+        break;
+      }
+    }
+    return usage;
+  }
+
+  private int getUsage( StepMeta stepMeta, String fieldName, Set<String> visited ) {
+    // A step reached over more than one path uses the field the same way every time
+    //
+    if ( !visited.add( stepMeta.getName() + "/" + fieldName.toUpperCase() ) ) {
+      return FieldUsageInterface.USAGE_NONE;
+    }
+    StepMetaInterface meta = stepMeta.getStepMetaInterface();
+    if ( !( meta instanceof FieldUsageInterface ) ) {
+      return FieldUsageInterface.USAGE_READ;
+    }
+    FieldUsageInterface fieldUsage = (FieldUsageInterface) meta;
+    int usage = fieldUsage.getFieldUsage( fieldName, space );
+    if ( usage < FieldUsageInterface.USAGE_READ && fieldUsage.isPassingInputFields() ) {
+      usage = Math.max( usage, getUsageAfter( stepMeta, fieldName, visited ) );
+
+      // The same value can leave the step under other names as well
+      //
+      List<FieldnameLineage> lineages = fieldUsage.getFieldnameLineage();
+      if ( lineages != null ) {
+        for ( FieldnameLineage lineage : lineages ) {
+          if ( usage < FieldUsageInterface.USAGE_READ && fieldName.equalsIgnoreCase( lineage.getInputFieldname() ) ) {
+            usage = Math.max( usage, getUsageAfter( stepMeta, lineage.getOutputFieldname(), visited ) );
+          }
+        }
+      }
+    }
+    return usage;
+  }
+
+  /**
+   * @return true if the rows are partitioned on the given field or with a partitioner that doesn't tell which field it
+   *         uses
+   */
+  private boolean isPartitioningField( StepPartitioningMeta partitioningMeta, String fieldName ) {
+    if ( partitioningMeta == null || !partitioningMeta.isPartitioned() || partitioningMeta.isMethodMirror() ) {
+      return false;
+    }
+    Partitioner partitioner = partitioningMeta.getPartitioner();
+    if ( !( partitioner instanceof ModPartitioner ) ) {
+      return true;
+    }
+    return fieldName.equalsIgnoreCase( space.environmentSubstitute( ( (ModPartitioner) partitioner ).getFieldName() ) );
+  }
+}
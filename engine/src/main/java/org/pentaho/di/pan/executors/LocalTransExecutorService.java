@@ -70,6 +70,7 @@ public class LocalTransExecutorService implements TransExecutorService {
     trans.setLogLevel( executionConfiguration.getLogLevel() );
     trans.setSafeModeEnabled( executionConfiguration.isSafeModeEnabled() );
     trans.setGatheringMetrics( executionConfiguration.isGatheringMetrics() );
+    trans.setUsingVirtualThreads( executionConfiguration.isUsingVirtualThreads() );
 
     // Apply variables from execution configuration
     Map<String, String> variables = executionConfiguration.getVariables();
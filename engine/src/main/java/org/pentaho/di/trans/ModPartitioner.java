@@ -54,6 +54,30 @@ public class ModPartitioner extends BasePartitioner {
   public int getPartition( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
     init( rowMeta );
 
+    long value = getPartitionValue( rowMeta, row );
+
+    /*
+     * value = rowMeta.getInteger(row, partitionColumnIndex);
+     */
+
+    int targetLocation = (int) ( Math.abs( value ) % nrPartitions );
+
+    return targetLocation;
+  }
+
+  /**
+   * Calculate the number the partition is derived from: the value of an integer partitioning field, the hash code of the
+   * value otherwise.
+   *
+   * @param rowMeta
+   *          the row metadata
+   * @param row
+   *          the row
+   * @return the number to take the remainder of
+   * @throws KettleException
+   *           in case the partitioning field cannot be found or its value cannot be read
+   */
+  protected long getPartitionValue( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
     if ( partitionColumnIndex < 0 ) {
       partitionColumnIndex = rowMeta.indexOfValue( fieldName );
       if ( partitionColumnIndex < 0 ) {
@@ -80,13 +104,7 @@ public class ModPartitioner extends BasePartitioner {
         value = valueMeta.hashCode( valueData );
     }
 
-    /*
-     * value = rowMeta.getInteger(row, partitionColumnIndex);
-     */
-
-    int targetLocation = (int) ( Math.abs( value ) % nrPartitions );
-
-    return targetLocation;
+    return value;
   }
 
   public String getDescription() {
@@ -0,0 +1,240 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.w3c.dom.Node;
+
+/**
+ * A mod partitioner that spreads heavy hitters over several partitions.
+ * <p>
+ * The first rows (the sample size) are partitioned like the {@link ModPartitioner} does while the key frequencies are
+ * counted with a bounded number of counters. Once the sample is complete, every key that got more rows than its fair
+ * share of a partition (scaled by the skew threshold) is considered hot. From then on the rows of a hot key are sent
+ * round robin to its own partition and the partitions following it, as many as its share of the sample requires.
+ * <p>
+ * The rows of a hot key end up in more than one step copy, so the receiving steps need to be able to work on a part of
+ * the key: for example a Group By followed by a second Group By that combines the partial aggregates, see
+ * {@link org.pentaho.di.trans.step.PartialAggregatesCombinable}.
+ *
+ * @since 11.1
+ */
+public class SkewAwarePartitioner extends ModPartitioner {
+
+  public static final int DEFAULT_SAMPLE_SIZE = 10000;
+  public static final int DEFAULT_SKEW_THRESHOLD = 100;
+
+  /** The number of counters kept per partition while sampling */
+  private static final int COUNTERS_PER_PARTITION = 8;
+
+  private int sampleSize = DEFAULT_SAMPLE_SIZE;
+  private int skewThreshold = DEFAULT_SKEW_THRESHOLD;
+
+  private final Object sampleLock = new Object();
+  private Map<Long, long[]> counters;
+  private long sampled;
+  private volatile Map<Long, HotKey> hotKeys;
+
+  public SkewAwarePartitioner() {
+    super();
+  }
+
+  public Partitioner getInstance() {
+    Partitioner partitioner = new SkewAwarePartitioner();
+    partitioner.setId( getId() );
+    partitioner.setDescription( getDescription() );
+    return partitioner;
+  }
+
+  public SkewAwarePartitioner clone() {
+    SkewAwarePartitioner partitioner = (SkewAwarePartitioner) super.clone();
+    partitioner.sampleSize = sampleSize;
+    partitioner.skewThreshold = skewThreshold;
+
+    return partitioner;
+  }
+
+  public int getPartition( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
+    init( rowMeta );
+
+    long value = getPartitionValue( rowMeta, row );
+    int targetLocation = (int) ( Math.abs( value ) % nrPartitions );
+
+    Map<Long, HotKey> hot = hotKeys;
+    if ( hot == null ) {
+      hot = sample( value );
+      if ( hot == null ) {
+        return targetLocation;
+      }
+    }
+    HotKey hotKey = hot.get( value );
+    if ( hotKey == null ) {
+      return targetLocation;
+    }
+    return hotKey.next( targetLocation, nrPartitions );
+  }
+
+  /**
+   * Count the value and decide on the hot keys once the sample is complete. The counting is the Misra-Gries frequent
+   * items algorithm: the counts are underestimated by at most sampleSize / number of counters.
+   *
+   * @return the hot keys or null if the sample isn't complete yet
+   */
+  private Map<Long, HotKey> sample( long value ) {
+    synchronized ( sampleLock ) {
+      if ( hotKeys != null ) {
+        return hotKeys;
+      }
+      if ( nrPartitions < 2 || sampleSize <= 0 ) {
+        hotKeys = Collections.emptyMap();
+        return hotKeys;
+      }
+      if ( counters == null ) {
+        counters = new HashMap<Long, long[]>();
+      }
+      long[] count = counters.get( value );
+      if ( count != null ) {
+        count[0]++;
+      } else if ( counters.size() < nrPartitions * COUNTERS_PER_PARTITION ) {
+        counters.put( value, new long[] { 1L } );
+      } else {
+        Iterator<long[]> iterator = counters.values().iterator();
+        while ( iterator.hasNext() ) {
+          if ( --iterator.next()[0] == 0 ) {
+            iterator.remove();
+          }
+        }
+      }
+
+      if ( ++sampled < sampleSize ) {
+        return null;
+      }
+
+      double fairShare = (double) sampled / nrPartitions;
+      double threshold = fairShare * skewThreshold / 100;
+      Map<Long, HotKey> hot = new HashMap<Long, HotKey>();
+      for ( Map.Entry<Long, long[]> entry : counters.entrySet() ) {
+        long rows = entry.getValue()[0];
+        if ( rows > threshold ) {
+          int splits = (int) Math.min( nrPartitions, Math.ceil( rows / fairShare ) );
+          if ( splits > 1 ) {
+            hot.put( entry.getKey(), new HotKey( splits ) );
+          }
+        }
+      }
+      counters = null;
+      hotKeys = hot;
+      return hot;
+    }
+  }
+
+  /**
+   * @return the number of keys that are spread over several partitions, -1 while sampling
+   */
+  public int getNrHotKeys() {
+    Map<Long, HotKey> hot = hotKeys;
+    return hot == null ? -1 : hot.size();
+  }
+
+  public String getDescription() {
+    String description = "Skew aware partitioner";
+    if ( !Utils.isEmpty( getFieldName() ) ) {
+      description += "(" + getFieldName() + ")";
+    }
+    return description;
+  }
+
+  public String getXML() {
+    StringBuilder xml = new StringBuilder( 250 );
+    xml.append( super.getXML() );
+    xml.append( "           " ).append( XMLHandler.addTagValue( "sample_size", sampleSize ) );
+    xml.append( "           " ).append( XMLHandler.addTagValue( "skew_threshold", skewThreshold ) );
+    return xml.toString();
+  }
+
+  public void loadXML( Node partitioningMethodNode ) throws KettleXMLException {
+    super.loadXML( partitioningMethodNode );
+    sampleSize =
+      Const.toInt( XMLHandler.getTagValue( partitioningMethodNode, "sample_size" ), DEFAULT_SAMPLE_SIZE );
+    skewThreshold =
+      Const.toInt( XMLHandler.getTagValue( partitioningMethodNode, "skew_threshold" ), DEFAULT_SKEW_THRESHOLD );
+  }
+
+  public void saveRep( Repository rep, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
+    super.saveRep( rep, id_transformation, id_step );
+    rep.saveStepAttribute( id_transformation, id_step, "PARTITIONING_SAMPLE_SIZE", sampleSize );
+    rep.saveStepAttribute( id_transformation, id_step, "PARTITIONING_SKEW_THRESHOLD", skewThreshold );
+  }
+
+  public void loadRep( Repository rep, ObjectId id_step ) throws KettleException {
+    super.loadRep( rep, id_step );
+    // A missing attribute reads as 0, which would quietly turn off the skew detection
+    //
+    long repSampleSize = rep.getStepAttributeInteger( id_step, "PARTITIONING_SAMPLE_SIZE" );
+    sampleSize = repSampleSize > 0 ? (int) repSampleSize : DEFAULT_SAMPLE_SIZE;
+    long repSkewThreshold = rep.getStepAttributeInteger( id_step, "PARTITIONING_SKEW_THRESHOLD" );
+    skewThreshold = repSkewThreshold > 0 ? (int) repSkewThreshold : DEFAULT_SKEW_THRESHOLD;
+  }
+
+  /**
+   * @return the number of rows to count the key frequencies on before hot keys are spread
+   */
+  public int getSampleSize() {
+    return sampleSize;
+  }
+
+  public void setSampleSize( int sampleSize ) {
+    this.sampleSize = sampleSize;
+  }
+
+  /**
+   * @return the percentage of the fair share of a partition a key needs to exceed in the sample to be spread
+   */
+  public int getSkewThreshold() {
+    return skewThreshold;
+  }
+
+  public void setSkewThreshold( int skewThreshold ) {
+    this.skewThreshold = skewThreshold;
+  }
+
+  /**
+   * The partitions a hot key is spread over: its own partition and the next ones.
+   */
+  private static class HotKey {
+    private final int splits;
+    private final AtomicInteger salt = new AtomicInteger();
+
+    HotKey( int splits ) {
+      this.splits = splits;
+    }
+
+    int next( int partition, int nrPartitions ) {
+      return ( partition + Math.floorMod( salt.getAndIncrement(), splits ) ) % nrPartitions;
+    }
+  }
+}
@@ -27,8 +27,11 @@ import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.RingBufferRowSet;
+import org.pentaho.di.core.RowBatchRowSet;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.SharedQueueRowSet;
 import org.pentaho.di.core.SingleRowRowSet;
 import org.pentaho.di.core.bowl.Bowl;
 import org.pentaho.di.core.bowl.DefaultBowl;
@@ -39,6 +42,7 @@ import org.pentaho.di.core.database.map.DatabaseConnectionMap;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleTransException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.extension.ExtensionPointHandler;
@@ -61,6 +65,7 @@ import org.pentaho.di.core.logging.MetricsRegistry;
 import org.pentaho.di.core.logging.PerformanceLogTable;
 import org.pentaho.di.core.logging.StepLogTable;
 import org.pentaho.di.core.logging.TransLogTable;
+import org.pentaho.di.core.memory.MemoryManager;
 import org.pentaho.di.core.metrics.MetricsDuration;
 import org.pentaho.di.core.metrics.MetricsSnapshotInterface;
 import org.pentaho.di.core.metrics.MetricsUtil;
@@ -68,11 +73,13 @@ import org.pentaho.di.core.parameters.DuplicateParamException;
 import org.pentaho.di.core.parameters.NamedParams;
 import org.pentaho.di.core.parameters.NamedParamsDefault;
 import org.pentaho.di.core.parameters.UnknownParamException;
+import org.pentaho.di.core.row.OffHeapMemoryBudget;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.util.ConnectionUtil;
 import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.util.VirtualThreads;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
 import org.pentaho.di.core.vfs.KettleVFS;
@@ -80,6 +87,7 @@ import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.job.DelegationListener;
 import org.pentaho.di.job.Job;
+import org.pentaho.di.lineage.FieldUsageAnalyzer;
 import org.pentaho.di.partition.PartitionSchema;
 import org.pentaho.di.repository.ObjectId;
 import org.pentaho.di.repository.ObjectRevision;
@@ -91,6 +99,7 @@ import org.pentaho.di.trans.cluster.TransSplitter;
 import org.pentaho.di.trans.performance.StepPerformanceSnapShot;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
+import org.pentaho.di.trans.step.RowBatchCapable;
 import org.pentaho.di.trans.step.RunThread;
 import org.pentaho.di.trans.step.StepAdapter;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -100,6 +109,7 @@ import org.pentaho.di.trans.step.StepListener;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaDataCombi;
 import org.pentaho.di.trans.step.StepPartitioningMeta;
+import org.pentaho.di.trans.step.WorkStealingRowDistribution;
 import org.pentaho.di.trans.steps.mappinginput.MappingInput;
 import org.pentaho.di.trans.steps.mappingoutput.MappingOutput;
 import org.pentaho.di.www.CarteSingleton;
@@ -380,6 +390,11 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   private boolean safeModeEnabled;
 
+  /**
+   * Whether the step copies run on virtual threads.
+   */
+  private boolean usingVirtualThreads;
+
   /**
    * The thread name.
    */
@@ -554,6 +569,20 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
   private boolean executingClustered;
 
+  /** The off-heap memory shared by the row buffers of the steps, created on first use */
+  private OffHeapMemoryBudget offHeapMemoryBudget;
+  private boolean offHeapMemoryBudgetInitialized;
+
+  /** The heap memory shared by the row buffers and caches of the steps, created on first use */
+  private MemoryManager memoryManager;
+  private boolean memoryManagerInitialized;
+
+  /** How the steps after a step use its output fields, for the steps that asked for it */
+  private Map<String, Map<String, Integer>> downstreamFieldUsage = new HashMap<>();
+
+  /** The memory manager of the server running this transformation, if any */
+  private MemoryManager parentMemoryManager;
+
   private static final int TRANS_FINISHED_BLOCKING_QUEUE_SIZE =
     Integer.parseInt( System.getProperty( Const.KETTLE_TRANS_FINISHED_BLOCKING_QUEUE_SIZE, "200" ) );
 
@@ -965,9 +994,21 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
           nrCopies = nextCopies;
         } // Allocate a rowset for each destination step
 
+        // With a work stealing distribution the copies of the next step share the rows of a source step copy
+        //
+        boolean workStealing =
+          thisStep.isDistributes() && thisStep.getRowDistribution() instanceof WorkStealingRowDistribution
+            && !nextStep.isPartitioned() && transMeta.getTransformationType() == TransMeta.TransformationType.Normal;
+
+        // Between two steps processing row batches the batches go over the hop as they are
+        //
+        boolean rowBatchHop = dispatchType == TYPE_DISP_1_1 && isRowBatchHop( thisStep, nextStep, nrTargets );
+
         // Allocate the rowsets
         //
         if ( dispatchType != TYPE_DISP_N_M ) {
+          List<SharedQueueRowSet> sharedRowSets = workStealing && dispatchType == TYPE_DISP_1_N
+            ? SharedQueueRowSet.createGroup( nrCopies, transMeta.getSizeRowset() * nrCopies ) : null;
           for ( int c = 0; c < nrCopies; c++ ) {
             RowSet rowSet;
             switch ( transMeta.getTransformationType() ) {
@@ -979,8 +1020,18 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
                 //
                 Boolean batchingRowSet =
                   ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_BATCHING_ROWSET ) );
-                if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
+                Boolean ringBufferRowSet =
+                  ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_RING_BUFFER_ROWSET ) );
+                if ( sharedRowSets != null ) {
+                  rowSet = sharedRowSets.get( c );
+                } else if ( rowBatchHop ) {
+                  rowSet = new RowBatchRowSet( transMeta.getSizeRowset() );
+                } else if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
                   rowSet = new BlockingBatchingRowSet( transMeta.getSizeRowset() );
+                } else if ( dispatchType == TYPE_DISP_1_1 && ( ringBufferRowSet == null || ringBufferRowSet ) ) {
+                  // Exactly one writing and one reading thread: no need for locking
+                  //
+                  rowSet = new RingBufferRowSet( transMeta.getSizeRowset() );
                 } else {
                   rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
                 }
@@ -1027,8 +1078,11 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
           // This allows maximum flexibility for re-partitioning,
           // distribution...
           for ( int s = 0; s < thisCopies; s++ ) {
+            List<SharedQueueRowSet> sharedRowSets = workStealing
+              ? SharedQueueRowSet.createGroup( nextCopies, transMeta.getSizeRowset() * nextCopies ) : null;
             for ( int t = 0; t < nextCopies; t++ ) {
-              BlockingRowSet rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
+              RowSet rowSet = sharedRowSets != null ? sharedRowSets.get( t )
+                : new BlockingRowSet( transMeta.getSizeRowset() );
               rowSet.setThreadNameFromToCopy( thisStep.getName(), s, nextStep.getName(), t );
               rowsets.add( rowSet );
               if ( log.isDetailed() ) {
@@ -1145,6 +1199,10 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       }
     }
 
+    // Let the steps that can skip the conversion of fields know which fields the steps after them actually use
+    //
+    calculateDownstreamFieldUsage();
+
     // Now (optionally) write start log record!
     // Make sure we synchronize appropriately to avoid duplicate batch IDs.
     //
@@ -1363,6 +1421,28 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     }
   }
 
+  /**
+   * A hop carries row batches when row batches are enabled, the source step writes them and the target step reads
+   * them, and nothing else is going on: no other targets or sources, no partitioning and no error handling.
+   */
+  private boolean isRowBatchHop( StepMeta thisStep, StepMeta nextStep, int nrTargets ) {
+    if ( transMeta.getTransformationType() != TransMeta.TransformationType.Normal
+      || Const.toInt( getVariable( Const.KETTLE_ROW_BATCH_SIZE ), 0 ) <= 0 ) {
+      return false;
+    }
+    if ( !( thisStep.getStepMetaInterface() instanceof RowBatchCapable )
+      || !( nextStep.getStepMetaInterface() instanceof RowBatchCapable ) ) {
+      return false;
+    }
+    if ( !( (RowBatchCapable) thisStep.getStepMetaInterface() ).isWritingRowBatches()
+      || !( (RowBatchCapable) nextStep.getStepMetaInterface() ).isReadingRowBatches() ) {
+      return false;
+    }
+    return nrTargets == 1 && transMeta.findPreviousSteps( nextStep ).size() == 1
+      && !thisStep.isPartitioned() && !nextStep.isPartitioned()
+      && !thisStep.isDoingErrorHandling() && !nextStep.isDoingErrorHandling();
+  }
+
   /**
    * Starts the threads prepared by prepareThreads(). Before you start the threads, you can add RowListeners to them.
    *
@@ -1548,12 +1628,26 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     switch ( transMeta.getTransformationType() ) {
       case Normal:
 
+        boolean virtualThreads = isUsingVirtualThreads();
+        if ( virtualThreads && !VirtualThreads.isSupported() ) {
+          log.logBasic( BaseMessages.getString( PKG, "Trans.Log.VirtualThreadsNotSupported" ) );
+          virtualThreads = false;
+        }
+
         // Now start all the threads...
         //
         for ( int i = 0; i < steps.size(); i++ ) {
           final StepMetaDataCombi combi = steps.get( i );
           RunThread runThread = new RunThread( combi );
-          Thread thread = new Thread( runThread );
+          Thread thread;
+          if ( virtualThreads ) {
+            // Waiting for rows parks a virtual thread, no need to throttle the buffers with short sleeps
+            //
+            combi.step.setUsingThreadPriorityManagment( false );
+            thread = VirtualThreads.newThread( runThread );
+          } else {
+            thread = new Thread( runThread );
+          }
           thread.setName( getName() + " - " + combi.stepname );
           ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeStart.id, combi );
           // Call an extension point at the end of the step
@@ -1663,6 +1757,8 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    * @throws KettleException if any errors occur during notification
    */
   protected void fireTransFinishedListeners() throws KettleException {
+    closeMemoryManager();
+
     // PDI-5229 sync added
     synchronized ( transListeners ) {
       if ( transListeners.size() == 0 ) {
@@ -3439,6 +3535,26 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     return safeModeEnabled;
   }
 
+  /**
+   * Run the step copies on virtual threads instead of platform threads. Lots of step copies, in one transformation or
+   * in many transformations running side by side on a Carte server, then don't need an operating system thread each.
+   * Setting the KETTLE_VIRTUAL_STEP_THREADS variable to Y does the same for every transformation. This only applies to
+   * normal transformations and only if the Java runtime supports virtual threads.
+   *
+   * @param usingVirtualThreads true to run the step copies on virtual threads
+   */
+  public void setUsingVirtualThreads( boolean usingVirtualThreads ) {
+    this.usingVirtualThreads = usingVirtualThreads;
+  }
+
+  /**
+   * @return true if the step copies are to run on virtual threads
+   */
+  public boolean isUsingVirtualThreads() {
+    return usingVirtualThreads
+      || "Y".equalsIgnoreCase( getVariable( Const.KETTLE_VIRTUAL_STEP_THREADS ) );
+  }
+
   /**
    * This adds a row producer to the transformation that just got set up. It is preferable to run this BEFORE execute()
    * but after prepareExecution()
@@ -5797,11 +5913,115 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     return this.transMeta != null && StringUtils.startsWith( transMeta.getFilename(), ConnectionFileProvider.ROOT_URI );
   }
 
+  private void calculateDownstreamFieldUsage() {
+    downstreamFieldUsage.clear();
+    // A preview shows the rows of the steps themselves so nothing can be left out
+    //
+    if ( isPreview() || !"Y".equalsIgnoreCase( getVariable( Const.KETTLE_LAZY_CONVERSION_PUSHDOWN ) ) ) {
+      return;
+    }
+    FieldUsageAnalyzer analyzer = new FieldUsageAnalyzer( transMeta, this );
+    for ( StepMeta stepMeta : transMeta.getSteps() ) {
+      if ( stepMeta.getStepMetaInterface().isUsingDownstreamFieldUsage() ) {
+        try {
+          Map<String, Integer> usage = analyzer.getDownstreamFieldUsage( stepMeta );
+          downstreamFieldUsage.put( stepMeta.getName(), usage );
+          if ( log.isDetailed() ) {
+            log.logDetailed( BaseMessages.getString( PKG, "Trans.Log.DownstreamFieldUsage", stepMeta.getName(),
+              usage.toString() ) );
+          }
+        } catch ( KettleStepException e ) {
+          // Not knowing the usage only means that the step converts all its fields, as always
+          log.logDetailed( BaseMessages.getString( PKG, "Trans.Log.DownstreamFieldUsageUnknown", stepMeta.getName(),
+            e.getMessage() ) );
+        }
+      }
+    }
+  }
+
+  /**
+   * Get how the steps after the given step use its output fields. This is only calculated for steps that ask for it,
+   * see StepMetaInterface.isUsingDownstreamFieldUsage(), when the KETTLE_LAZY_CONVERSION_PUSHDOWN variable is set to Y.
+   *
+   * @param stepname
+   *          the name of the step
+   * @return the FieldUsageInterface.USAGE_ constant for every output field by name, or null if not known
+   */
+  public Map<String, Integer> getDownstreamFieldUsage( String stepname ) {
+    return downstreamFieldUsage.get( stepname );
+  }
+
   @Override
   public Map<String, Object> getExtensionDataMap() {
     return extensionDataMap;
   }
 
+  /**
+   * Get the budget for the off-heap row buffers of the steps of this transformation. Its size is set with the
+   * KETTLE_OFF_HEAP_ROW_BUFFER_MB variable.
+   *
+   * @return the budget or null if rows should be buffered on the heap
+   */
+  public synchronized OffHeapMemoryBudget getOffHeapMemoryBudget() {
+    if ( !offHeapMemoryBudgetInitialized ) {
+      long megabytes = Const.toLong( getVariable( Const.KETTLE_OFF_HEAP_ROW_BUFFER_MB ), 0L );
+      if ( megabytes > 0 ) {
+        offHeapMemoryBudget = new OffHeapMemoryBudget( megabytes * 1024 * 1024 );
+      }
+      offHeapMemoryBudgetInitialized = true;
+    }
+    return offHeapMemoryBudget;
+  }
+
+  /**
+   * Get the memory manager the steps of this transformation reserve heap memory from for their row buffers and caches.
+   * Its limit is set with the KETTLE_TRANS_MEMORY_LIMIT_MB variable. The memory is reserved from the manager of the
+   * parent transformation or of the server as well, if there is one.
+   *
+   * @return the memory manager or null if the steps should decide based on the free memory
+   */
+  public synchronized MemoryManager getMemoryManager() {
+    if ( !memoryManagerInitialized ) {
+      long megabytes = Const.toLong( getVariable( Const.KETTLE_TRANS_MEMORY_LIMIT_MB ), 0L );
+      MemoryManager parent = parentMemoryManager;
+      if ( parent == null && parentTrans != null ) {
+        parent = parentTrans.getMemoryManager();
+      }
+      if ( megabytes > 0 || parent != null ) {
+        memoryManager = new MemoryManager( getName(), megabytes > 0 ? megabytes * 1024 * 1024 : Long.MAX_VALUE,
+          parent );
+      }
+      memoryManagerInitialized = true;
+    }
+    return memoryManager;
+  }
+
+  /**
+   * @param parentMemoryManager
+   *          the memory manager of the server running this transformation, the steps reserve memory from it as well
+   */
+  public void setParentMemoryManager( MemoryManager parentMemoryManager ) {
+    this.parentMemoryManager = parentMemoryManager;
+  }
+
+  /**
+   * @return the memory manager of the server running this transformation or null
+   */
+  public MemoryManager getParentMemoryManager() {
+    return parentMemoryManager;
+  }
+
+  /**
+   * Detach the memory manager from the server or parent transformation, any memory still reserved is given back.
+   */
+  private synchronized void closeMemoryManager() {
+    if ( memoryManager != null ) {
+      memoryManager.close();
+      memoryManager = null;
+    }
+    memoryManagerInitialized = false;
+  }
+
   protected ExecutorService startHeartbeat( final long intervalInSeconds ) {
 
     ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
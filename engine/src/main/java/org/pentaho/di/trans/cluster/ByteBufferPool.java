@@ -0,0 +1,84 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.cluster;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A pool of equally sized direct byte buffers. Direct buffers can be handed to a socket channel without the extra
+ * copy the JDK makes for heap buffers, but they are expensive to allocate, so they are kept around for re-use. Larger
+ * requests get a buffer of their own that is not pooled.
+ * <p>
+ * This class is not thread-safe, it's meant to be used by a single I/O thread.
+ *
+ * @since 11.1
+ */
+class ByteBufferPool {
+
+  static final int DEFAULT_BUFFER_SIZE = 128 * 1024;
+
+  static final int DEFAULT_MAX_POOLED = 32;
+
+  private final int bufferSize;
+  private final int maxPooled;
+  private final Deque<ByteBuffer> pool = new ArrayDeque<>();
+
+  ByteBufferPool() {
+    this( DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED );
+  }
+
+  ByteBufferPool( int bufferSize, int maxPooled ) {
+    this.bufferSize = bufferSize;
+    this.maxPooled = maxPooled;
+  }
+
+  /**
+   * @param size
+   *          the number of bytes needed
+   * @return an empty buffer with room for at least size bytes, its limit set to size
+   */
+  ByteBuffer acquire( int size ) {
+    if ( size > bufferSize ) {
+      return ByteBuffer.allocate( size );
+    }
+    ByteBuffer buffer = pool.poll();
+    if ( buffer == null ) {
+      buffer = ByteBuffer.allocateDirect( bufferSize );
+    }
+    buffer.clear();
+    buffer.limit( size );
+    return buffer;
+  }
+
+  /**
+   * Hand a buffer back once it's no longer used. Buffers that didn't come out of the pool are simply dropped.
+   *
+   * @param buffer
+   *          the buffer to re-use
+   */
+  void release( ByteBuffer buffer ) {
+    if ( buffer.isDirect() && buffer.capacity() == bufferSize && pool.size() < maxPooled ) {
+      pool.push( buffer );
+    }
+  }
+
+  /**
+   * @return the number of buffers waiting to be re-used
+   */
+  int getPooledCount() {
+    return pool.size();
+  }
+}
@@ -0,0 +1,422 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Encodes a block of rows column by column, for the columnar socket streams between clustered steps.
+ * <p>
+ * Every column starts with its null bitmap, followed by the non-null values in an encoding chosen for the data type:
+ * delta varints for integers and dates, dictionaries for strings with few distinct values, bitmaps for booleans.
+ * Values of other types or in another storage type are written by their value metadata, exactly like
+ * {@link RowMetaInterface#writeData(DataOutputStream, Object[])} does.
+ *
+ * @since 11.1
+ */
+public class ColumnBlockCodec {
+
+  static final int ENCODING_VALUE_META = 0;
+  static final int ENCODING_LONG_DELTA = 1;
+  static final int ENCODING_DOUBLE = 2;
+  static final int ENCODING_STRING_PLAIN = 3;
+  static final int ENCODING_STRING_DICTIONARY = 4;
+  static final int ENCODING_DATE_DELTA = 5;
+  static final int ENCODING_BOOLEAN = 6;
+  static final int ENCODING_BIG_NUMBER = 7;
+
+  private ColumnBlockCodec() {
+  }
+
+  /**
+   * Write a block of rows.
+   *
+   * @param rowMeta
+   *          the description of the rows
+   * @param rows
+   *          the rows, only the first nrRows are written
+   * @param nrRows
+   *          the number of rows in the block
+   * @param out
+   *          the stream to write to
+   * @throws IOException
+   *           in case the data can't be written
+   * @throws KettleFileException
+   *           in case a value can't be serialized by its value metadata
+   */
+  public static void writeBlock( RowMetaInterface rowMeta, Object[][] rows, int nrRows, DataOutputStream out )
+    throws IOException, KettleFileException {
+    boolean[] nulls = new boolean[nrRows];
+    for ( int column = 0; column < rowMeta.size(); column++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( column );
+      boolean hasNulls = false;
+      for ( int i = 0; i < nrRows; i++ ) {
+        nulls[i] = column >= rows[i].length || rows[i][column] == null;
+        hasNulls |= nulls[i];
+      }
+      int encoding = getEncoding( valueMeta, rows, nrRows, column, nulls );
+      out.writeByte( encoding );
+      out.writeBoolean( hasNulls );
+      if ( hasNulls ) {
+        writeBits( out, nulls, nrRows );
+      }
+
+      switch ( encoding ) {
+        case ENCODING_LONG_DELTA:
+          long previousLong = 0L;
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              long value = (Long) rows[i][column];
+              writeVarLong( out, zigZag( value - previousLong ) );
+              previousLong = value;
+            }
+          }
+          break;
+        case ENCODING_DATE_DELTA:
+          long previousTime = 0L;
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              long time = ( (Date) rows[i][column] ).getTime();
+              writeVarLong( out, zigZag( time - previousTime ) );
+              previousTime = time;
+            }
+          }
+          break;
+        case ENCODING_DOUBLE:
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              out.writeDouble( (Double) rows[i][column] );
+            }
+          }
+          break;
+        case ENCODING_BOOLEAN:
+          boolean[] values = new boolean[nrRows];
+          for ( int i = 0; i < nrRows; i++ ) {
+            values[i] = !nulls[i] && (Boolean) rows[i][column];
+          }
+          writeBits( out, values, nrRows );
+          break;
+        case ENCODING_BIG_NUMBER:
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              BigDecimal value = (BigDecimal) rows[i][column];
+              writeVarLong( out, zigZag( value.scale() ) );
+              writeBytes( out, value.unscaledValue().toByteArray() );
+            }
+          }
+          break;
+        case ENCODING_STRING_PLAIN:
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              writeBytes( out, ( (String) rows[i][column] ).getBytes( StandardCharsets.UTF_8 ) );
+            }
+          }
+          break;
+        case ENCODING_STRING_DICTIONARY:
+          writeDictionary( out, rows, nrRows, column, nulls );
+          break;
+        default:
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              valueMeta.writeData( out, rows[i][column] );
+            }
+          }
+          break;
+      }
+    }
+  }
+
+  /**
+   * Read a block of rows written by {@link #writeBlock(RowMetaInterface, Object[][], int, DataOutputStream)}.
+   *
+   * @param rowMeta
+   *          the description of the rows
+   * @param nrRows
+   *          the number of rows in the block
+   * @param in
+   *          the stream to read from
+   * @return the rows
+   * @throws IOException
+   *           in case the data can't be read
+   * @throws KettleFileException
+   *           in case a value can't be read by its value metadata
+   */
+  public static Object[][] readBlock( RowMetaInterface rowMeta, int nrRows, DataInputStream in )
+    throws IOException, KettleFileException {
+    Object[][] rows = new Object[nrRows][];
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows[i] = RowDataUtil.allocateRowData( rowMeta.size() );
+    }
+    boolean[] nulls = new boolean[nrRows];
+    for ( int column = 0; column < rowMeta.size(); column++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( column );
+      int encoding = in.readUnsignedByte();
+      if ( in.readBoolean() ) {
+        readBits( in, nulls, nrRows );
+      } else {
+        Arrays.fill( nulls, false );
+      }
+
+      switch ( encoding ) {
+        case ENCODING_LONG_DELTA:
+          long previousLong = 0L;
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              previousLong += unZigZag( readVarLong( in ) );
+              rows[i][column] = previousLong;
+            }
+          }
+          break;
+        case ENCODING_DATE_DELTA:
+          long previousTime = 0L;
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              previousTime += unZigZag( readVarLong( in ) );
+              rows[i][column] = new Date( previousTime );
+            }
+          }
+          break;
+        case ENCODING_DOUBLE:
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              rows[i][column] = in.readDouble();
+            }
+          }
+          break;
+        case ENCODING_BOOLEAN:
+          boolean[] values = new boolean[nrRows];
+          readBits( in, values, nrRows );
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              rows[i][column] = Boolean.valueOf( values[i] );
+            }
+          }
+          break;
+        case ENCODING_BIG_NUMBER:
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              int scale = (int) unZigZag( readVarLong( in ) );
+              rows[i][column] = new BigDecimal( new BigInteger( readBytes( in ) ), scale );
+            }
+          }
+          break;
+        case ENCODING_STRING_PLAIN:
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              rows[i][column] = new String( readBytes( in ), StandardCharsets.UTF_8 );
+            }
+          }
+          break;
+        case ENCODING_STRING_DICTIONARY:
+          String[] dictionary = new String[(int) readVarLong( in )];
+          for ( int d = 0; d < dictionary.length; d++ ) {
+            dictionary[d] = new String( readBytes( in ), StandardCharsets.UTF_8 );
+          }
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              rows[i][column] = dictionary[(int) readVarLong( in )];
+            }
+          }
+          break;
+        case ENCODING_VALUE_META:
+          for ( int i = 0; i < nrRows; i++ ) {
+            if ( !nulls[i] ) {
+              rows[i][column] = valueMeta.readData( in );
+            }
+          }
+          break;
+        default:
+          throw new IOException( "Unknown encoding " + encoding + " for column " + valueMeta.getName() );
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Pick the encoding of a column. Only columns in normal storage with values of the class the value metadata expects
+   * get a specialized encoding, everything else goes through the value metadata.
+   */
+  static int getEncoding( ValueMetaInterface valueMeta, Object[][] rows, int nrRows, int column, boolean[] nulls ) {
+    if ( valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+      return ENCODING_VALUE_META;
+    }
+    int encoding;
+    Class<?> valueClass;
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        encoding = ENCODING_LONG_DELTA;
+        valueClass = Long.class;
+        break;
+      case ValueMetaInterface.TYPE_NUMBER:
+        encoding = ENCODING_DOUBLE;
+        valueClass = Double.class;
+        break;
+      case ValueMetaInterface.TYPE_STRING:
+        encoding = ENCODING_STRING_PLAIN;
+        valueClass = String.class;
+        break;
+      case ValueMetaInterface.TYPE_DATE:
+        encoding = ENCODING_DATE_DELTA;
+        valueClass = Date.class;
+        break;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        encoding = ENCODING_BOOLEAN;
+        valueClass = Boolean.class;
+        break;
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        encoding = ENCODING_BIG_NUMBER;
+        valueClass = BigDecimal.class;
+        break;
+      default:
+        return ENCODING_VALUE_META;
+    }
+    for ( int i = 0; i < nrRows; i++ ) {
+      if ( !nulls[i] && !valueClass.isInstance( rows[i][column] ) ) {
+        return ENCODING_VALUE_META;
+      }
+    }
+    if ( encoding == ENCODING_STRING_PLAIN && isDictionaryWorthIt( rows, nrRows, column, nulls ) ) {
+      return ENCODING_STRING_DICTIONARY;
+    }
+    return encoding;
+  }
+
+  /**
+   * A dictionary pays off when at most half of the strings in the block are distinct.
+   */
+  private static boolean isDictionaryWorthIt( Object[][] rows, int nrRows, int column, boolean[] nulls ) {
+    int nrValues = 0;
+    for ( int i = 0; i < nrRows; i++ ) {
+      if ( !nulls[i] ) {
+        nrValues++;
+      }
+    }
+    int maxDistinct = nrValues / 2;
+    if ( maxDistinct == 0 ) {
+      return false;
+    }
+    Map<String, Boolean> distinct = new HashMap<>();
+    for ( int i = 0; i < nrRows; i++ ) {
+      if ( !nulls[i] && distinct.put( (String) rows[i][column], Boolean.TRUE ) == null
+        && distinct.size() > maxDistinct ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeDictionary( DataOutputStream out, Object[][] rows, int nrRows, int column,
+                                       boolean[] nulls ) throws IOException {
+    Map<String, Integer> dictionary = new HashMap<>();
+    int[] indexes = new int[nrRows];
+    for ( int i = 0; i < nrRows; i++ ) {
+      if ( !nulls[i] ) {
+        String value = (String) rows[i][column];
+        Integer index = dictionary.get( value );
+        if ( index == null ) {
+          index = dictionary.size();
+          dictionary.put( value, index );
+        }
+        indexes[i] = index;
+      }
+    }
+    String[] entries = new String[dictionary.size()];
+    for ( Map.Entry<String, Integer> entry : dictionary.entrySet() ) {
+      entries[entry.getValue()] = entry.getKey();
+    }
+    writeVarLong( out, entries.length );
+    for ( String entry : entries ) {
+      writeBytes( out, entry.getBytes( StandardCharsets.UTF_8 ) );
+    }
+    for ( int i = 0; i < nrRows; i++ ) {
+      if ( !nulls[i] ) {
+        writeVarLong( out, indexes[i] );
+      }
+    }
+  }
+
+  private static void writeBits( DataOutputStream out, boolean[] bits, int length ) throws IOException {
+    for ( int i = 0; i < length; i += 8 ) {
+      int b = 0;
+      for ( int j = 0; j < 8 && i + j < length; j++ ) {
+        if ( bits[i + j] ) {
+          b |= 1 << j;
+        }
+      }
+      out.writeByte( b );
+    }
+  }
+
+  private static void readBits( DataInputStream in, boolean[] bits, int length ) throws IOException {
+    for ( int i = 0; i < length; i += 8 ) {
+      int b = in.readUnsignedByte();
+      for ( int j = 0; j < 8 && i + j < length; j++ ) {
+        bits[i + j] = ( b & ( 1 << j ) ) != 0;
+      }
+    }
+  }
+
+  private static void writeBytes( DataOutputStream out, byte[] bytes ) throws IOException {
+    writeVarLong( out, bytes.length );
+    out.write( bytes );
+  }
+
+  private static byte[] readBytes( DataInputStream in ) throws IOException {
+    byte[] bytes = new byte[(int) readVarLong( in )];
+    in.readFully( bytes );
+    return bytes;
+  }
+
+  static long zigZag( long value ) {
+    return ( value << 1 ) ^ ( value >> 63 );
+  }
+
+  static long unZigZag( long value ) {
+    return ( value >>> 1 ) ^ -( value & 1 );
+  }
+
+  static void writeVarLong( DataOutputStream out, long value ) throws IOException {
+    while ( ( value & ~0x7FL ) != 0 ) {
+      out.writeByte( (int) ( ( value & 0x7F ) | 0x80 ) );
+      value >>>= 7;
+    }
+    out.writeByte( (int) value );
+  }
+
+  static long readVarLong( DataInputStream in ) throws IOException {
+    long value = 0L;
+    for ( int shift = 0; shift < 64; shift += 7 ) {
+      int b = in.readUnsignedByte();
+      value |= (long) ( b & 0x7F ) << shift;
+      if ( ( b & 0x80 ) == 0 ) {
+        return value;
+      }
+    }
+    throw new IOException( "Malformed variable length number" );
+  }
+}
@@ -0,0 +1,170 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+
+import com.github.luben.zstd.Zstd;
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * The receiving side of a columnar socket stream sent by a {@link ColumnarRowWriter}. A credit is handed back to the
+ * writer every time all the rows of a block have been taken, so the writer never runs more than the initial number of
+ * credits ahead of the reader.
+ *
+ * @since 11.1
+ */
+public class ColumnarRowReader {
+
+  public static final int DEFAULT_CREDITS = 4;
+
+  private final DataInputStream in;
+  private final OutputStream controlOut;
+  private final int credits;
+
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+  private int index;
+  private boolean finished;
+
+  /**
+   * @param in
+   *          the stream coming from the writing side
+   * @param controlOut
+   *          the stream going to the writing side, carrying the handshake and the credits
+   * @param credits
+   *          the number of blocks the writer may send ahead
+   */
+  public ColumnarRowReader( DataInputStream in, OutputStream controlOut, int credits ) {
+    this.in = in;
+    this.controlOut = controlOut;
+    this.credits = Math.max( 1, credits );
+  }
+
+  /**
+   * Open the conversation with the writing side.
+   *
+   * @param compress
+   *          true to accept compressed blocks
+   * @throws IOException
+   *           in case the handshake can't be sent
+   */
+  public void writeHandshake( boolean compress ) throws IOException {
+    DataOutputStream out = new DataOutputStream( controlOut );
+    out.writeInt( ColumnarRowWriter.MAGIC );
+    out.writeInt( ColumnarRowWriter.VERSION );
+    int codecs = 1 << ColumnarRowWriter.CODEC_NONE;
+    if ( compress ) {
+      codecs |= 1 << ColumnarRowWriter.CODEC_ZSTD;
+    }
+    out.writeInt( codecs );
+    out.writeInt( credits );
+    out.flush();
+  }
+
+  /**
+   * Read the answer to the handshake and the row metadata.
+   *
+   * @return the description of the rows
+   * @throws KettleEOFException
+   *           in case the writing side finished without sending any rows
+   * @throws KettleFileException
+   *           in case the stream can't be read
+   */
+  public RowMetaInterface readMeta() throws KettleFileException {
+    try {
+      if ( in.readInt() != ColumnarRowWriter.MAGIC ) {
+        throw new KettleFileException( "The writing side did not answer with a columnar socket stream" );
+      }
+      in.readInt(); // version
+      in.readInt(); // codec, every block says how it's compressed
+    } catch ( EOFException e ) {
+      throw new KettleEOFException( "End of stream while reading the columnar socket stream handshake", e );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to read the columnar socket stream handshake", e );
+    }
+    try {
+      rowMeta = new RowMeta( in );
+    } catch ( SocketTimeoutException e ) {
+      throw new KettleFileException( "Timeout while reading the row metadata of the columnar socket stream", e );
+    }
+    return rowMeta;
+  }
+
+  /**
+   * @return the next row
+   * @throws KettleEOFException
+   *           once all rows have been read
+   * @throws KettleFileException
+   *           in case the stream can't be read
+   */
+  public Object[] getRow() throws KettleFileException {
+    if ( rows == null || index >= rows.length ) {
+      if ( finished ) {
+        throw new KettleEOFException( "All rows of the columnar socket stream have been read" );
+      }
+      if ( rows != null ) {
+        sendCredit();
+      }
+      readBlock();
+    }
+    Object[] row = rows[index];
+    rows[index++] = null;
+    return row;
+  }
+
+  private void readBlock() throws KettleFileException {
+    try {
+      int nrRows = in.readInt();
+      if ( nrRows == 0 ) {
+        finished = true;
+        throw new KettleEOFException( "All rows of the columnar socket stream have been read" );
+      }
+      int codec = in.readUnsignedByte();
+      int rawLength = in.readInt();
+      byte[] data = new byte[in.readInt()];
+      in.readFully( data );
+      if ( codec == ColumnarRowWriter.CODEC_ZSTD ) {
+        data = Zstd.decompress( data, rawLength );
+      } else if ( codec != ColumnarRowWriter.CODEC_NONE ) {
+        throw new KettleFileException( "Unknown codec " + codec + " in the columnar socket stream" );
+      }
+      rows = ColumnBlockCodec.readBlock( rowMeta, nrRows, new DataInputStream( new ByteArrayInputStream( data ) ) );
+      index = 0;
+    } catch ( EOFException e ) {
+      finished = true;
+      throw new KettleEOFException( "Unexpected end of the columnar socket stream", e );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to read a block of rows from the columnar socket stream", e );
+    }
+  }
+
+  private void sendCredit() {
+    try {
+      controlOut.write( 1 );
+      controlOut.flush();
+    } catch ( IOException e ) {
+      // The writer is done with the connection, the data stream tells whether all rows came through
+    }
+  }
+}
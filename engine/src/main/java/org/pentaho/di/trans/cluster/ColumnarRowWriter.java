@@ -0,0 +1,253 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+
+import com.github.luben.zstd.Zstd;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.StepInterface;
+
+/**
+ * The sending side of a columnar socket stream between clustered steps.
+ * <p>
+ * The reading side opens the conversation with a handshake: the protocol version, the block codecs it accepts and the
+ * number of blocks it is willing to buffer (its credits). The writer answers with the codec it picked, then sends the
+ * row metadata followed by blocks of rows encoded by {@link ColumnBlockCodec}. Every block costs one credit, the reader
+ * hands out a new credit every time it's done with a block. A block is sent when it's full or when the caller flushes
+ * it, typically because no more rows are waiting.
+ *
+ * @since 11.1
+ */
+public class ColumnarRowWriter {
+
+  /** "KCB1", starts both sides of the handshake */
+  static final int MAGIC = 0x4B434231;
+
+  static final int VERSION = 1;
+
+  static final int CODEC_NONE = 0;
+  static final int CODEC_ZSTD = 1;
+
+  public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+  private static final int ZSTD_LEVEL = 1;
+
+  private final InputStream controlIn;
+  private final DataOutputStream out;
+  private final int blockSize;
+  private final boolean compress;
+  private final StepInterface step;
+
+  private final BlockBuffer buffer = new BlockBuffer();
+  private final DataOutputStream bufferOut = new DataOutputStream( buffer );
+
+  private int codec = CODEC_NONE;
+  private int credits;
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+  private int nrRows;
+
+  /**
+   * @param controlIn
+   *          the stream coming from the reading side, carrying the handshake and the credits
+   * @param out
+   *          the stream going to the reading side
+   * @param blockSize
+   *          the maximum number of rows in a block
+   * @param compress
+   *          true to compress the blocks, if the reading side accepts it
+   * @param step
+   *          the step sending the rows, no more credits are waited for once it's stopped
+   */
+  public ColumnarRowWriter( InputStream controlIn, DataOutputStream out, int blockSize, boolean compress,
+                            StepInterface step ) {
+    this.controlIn = controlIn;
+    this.out = out;
+    this.blockSize = Math.max( 1, blockSize );
+    this.compress = compress;
+    this.step = step;
+  }
+
+  /**
+   * Read the handshake of the reading side and answer it.
+   *
+   * @throws IOException
+   *           in case the reading side doesn't speak the columnar protocol or the connection fails
+   */
+  public void readHandshake() throws IOException {
+    DataInputStream in = new DataInputStream( controlIn );
+    int magic = in.readInt();
+    if ( magic != MAGIC ) {
+      throw new IOException( "The reading side did not open a columnar socket stream, make sure both sides of the "
+        + "connection use the same socket stream format" );
+    }
+    int version = in.readInt();
+    if ( version < VERSION ) {
+      throw new IOException( "The reading side uses version " + version + " of the columnar socket stream, version "
+        + VERSION + " is required" );
+    }
+    int codecs = in.readInt();
+    credits = in.readInt();
+
+    codec = compress && ( codecs & ( 1 << CODEC_ZSTD ) ) != 0 ? CODEC_ZSTD : CODEC_NONE;
+    out.writeInt( MAGIC );
+    out.writeInt( VERSION );
+    out.writeInt( codec );
+    out.flush();
+  }
+
+  /**
+   * Send the row metadata, before the first row.
+   *
+   * @param rowMeta
+   *          the description of the rows to send
+   * @throws KettleFileException
+   *           in case the metadata can't be written
+   */
+  public void writeMeta( RowMetaInterface rowMeta ) throws KettleFileException {
+    this.rowMeta = rowMeta;
+    this.rows = new Object[blockSize][];
+    rowMeta.writeMeta( out );
+  }
+
+  /**
+   * Add a row to the current block, the block is sent once it's full.
+   *
+   * @param row
+   *          the row to send, it's kept until the block is sent
+   * @throws IOException
+   *           in case the block can't be sent
+   * @throws KettleFileException
+   *           in case a value can't be serialized
+   */
+  public void putRow( Object[] row ) throws IOException, KettleFileException {
+    rows[nrRows++] = row;
+    if ( nrRows >= blockSize ) {
+      flush();
+    }
+  }
+
+  /**
+   * Send the rows of the current block, if any. Blocks until the reading side has a credit left for it.
+   *
+   * @throws IOException
+   *           in case the block can't be sent
+   * @throws KettleFileException
+   *           in case a value can't be serialized
+   */
+  public void flush() throws IOException, KettleFileException {
+    if ( nrRows == 0 ) {
+      return;
+    }
+    buffer.reset();
+    ColumnBlockCodec.writeBlock( rowMeta, rows, nrRows, bufferOut );
+
+    if ( waitForCredit() ) {
+      byte[] compressed = null;
+      if ( codec == CODEC_ZSTD ) {
+        compressed = Zstd.compress( Arrays.copyOf( buffer.getBuffer(), buffer.size() ), ZSTD_LEVEL );
+        if ( compressed.length >= buffer.size() ) {
+          compressed = null; // not worth it
+        }
+      }
+      out.writeInt( nrRows );
+      if ( compressed != null ) {
+        out.writeByte( CODEC_ZSTD );
+        out.writeInt( buffer.size() );
+        out.writeInt( compressed.length );
+        out.write( compressed );
+      } else {
+        out.writeByte( CODEC_NONE );
+        out.writeInt( buffer.size() );
+        out.writeInt( buffer.size() );
+        out.write( buffer.getBuffer(), 0, buffer.size() );
+      }
+      out.flush();
+      credits--;
+    }
+
+    Arrays.fill( rows, 0, nrRows, null );
+    nrRows = 0;
+  }
+
+  /**
+   * Send the last rows and tell the reading side that there are no more.
+   *
+   * @throws IOException
+   *           in case the data can't be sent
+   * @throws KettleFileException
+   *           in case a value can't be serialized
+   */
+  public void finish() throws IOException, KettleFileException {
+    if ( rowMeta == null ) {
+      // No rows at all: the reading side sees the end of the stream instead of the metadata
+      out.flush();
+      return;
+    }
+    flush();
+    out.writeInt( 0 );
+    out.flush();
+  }
+
+  /**
+   * @return false if the step was stopped before the reading side handed out a credit
+   */
+  private boolean waitForCredit() throws IOException {
+    while ( credits <= 0 ) {
+      if ( step.isStopped() ) {
+        return false;
+      }
+      int credit;
+      try {
+        credit = controlIn.read();
+      } catch ( SocketTimeoutException e ) {
+        continue; // check if we're stopped and try again
+      }
+      if ( credit < 0 ) {
+        throw new EOFException( "The reading side closed the connection while rows were still being sent" );
+      }
+      credits += credit;
+    }
+    return true;
+  }
+
+  /**
+   * @return the codec picked during the handshake
+   */
+  int getCodec() {
+    return codec;
+  }
+
+  /**
+   * Gives access to the bytes written without copying them.
+   */
+  private static class BlockBuffer extends ByteArrayOutputStream {
+    BlockBuffer() {
+      super( 65536 );
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+}
@@ -0,0 +1,908 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.github.luben.zstd.Zstd;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.BaseStep;
+
+/**
+ * Carries the rows of all the remote step streams between Carte servers over a few shared NIO connections.
+ * <p>
+ * Instead of a server socket and a connection for every remote step copy, a Carte server listens on a single port per
+ * clustered run and a reading server opens a single connection to every writing server. The port that the
+ * transformation splitter allocated for a remote step is only used as the id of its stream on that connection. Every
+ * frame starts with a 9 byte header: the frame type, the stream id and the length of the payload.
+ * <p>
+ * The reading side opens a stream with a number of credits, counted in rows. The writing side sends the row metadata
+ * followed by blocks of rows encoded by {@link ColumnBlockCodec}, never more rows than it has credits for, and the
+ * reading side hands out new credits as its row set drains. All the socket work is done by one selector thread per
+ * transport, so there is no longer a thread blocked on a socket for every remote step copy.
+ *
+ * @since 11.1
+ */
+public class MultiplexedTransport {
+
+  /** Reader to writer: open a stream, payload is the number of initial credits */
+  static final byte FRAME_OPEN = 1;
+
+  /** Reader to writer: payload is the number of extra credits */
+  static final byte FRAME_CREDIT = 2;
+
+  /** Writer to reader: payload is the row metadata */
+  static final byte FRAME_META = 3;
+
+  /** Writer to reader: payload is the codec, the number of rows, the raw length and the encoded block */
+  static final byte FRAME_DATA = 4;
+
+  /** Writer to reader: no more rows on this stream */
+  static final byte FRAME_CLOSE = 5;
+
+  static final int HEADER_SIZE = 9;
+
+  /** The codec, the number of rows and the raw length in front of the block in a data frame */
+  static final int DATA_HEADER_SIZE = 9;
+
+  private static final long SELECT_TIMEOUT_MS = 10;
+  private static final long CONNECT_TIMEOUT_MS = 30000;
+  private static final int ZSTD_LEVEL = 1;
+
+  /**
+   * A stream of rows between a remote step on this server and one on another server.
+   */
+  public interface Stream {
+
+    /**
+     * Stop the stream if it's still running. The rows that were not sent or received yet are dropped.
+     */
+    void close();
+  }
+
+  private final LogChannelInterface log;
+  private final ByteBufferPool bufferPool = new ByteBufferPool();
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+  /** Guarded by this transport */
+  private final Map<Integer, Listener> listeners = new HashMap<>();
+
+  /** Guarded by this map */
+  private final Map<String, Connection> clientConnections = new HashMap<>();
+
+  // The fields below are only used by the selector thread
+  //
+  private final Map<String, OutboundStream> outboundStreams = new HashMap<>();
+  private final Map<String, Integer> pendingCredits = new HashMap<>();
+  private final Map<String, Connection> pendingConnections = new HashMap<>();
+  private final List<StreamBase> streams = new ArrayList<>();
+  private final BlockBuffer blockBuffer = new BlockBuffer();
+  private final DataOutputStream blockOut = new DataOutputStream( blockBuffer );
+
+  private Selector selector;
+  private Thread thread;
+  private volatile boolean closed;
+
+  public MultiplexedTransport( LogChannelInterface log ) {
+    this.log = log;
+  }
+
+  /**
+   * Start accepting connections on a port. Every call must be matched by a call to {@link #release(int)}, the port is
+   * closed once nobody listens on it anymore.
+   *
+   * @param port
+   *          the port to listen on
+   * @throws IOException
+   *           in case the port cannot be bound
+   */
+  public synchronized void listen( int port ) throws IOException {
+    Listener listener = listeners.get( port );
+    if ( listener != null ) {
+      listener.refs++;
+      return;
+    }
+    start();
+    final ServerSocketChannel channel = ServerSocketChannel.open();
+    try {
+      channel.socket().setReuseAddress( true );
+      channel.socket().bind( new InetSocketAddress( port ) );
+      channel.configureBlocking( false );
+    } catch ( IOException e ) {
+      channel.close();
+      throw e;
+    }
+    final Listener newListener = new Listener( port, channel );
+    listeners.put( port, newListener );
+    execute( new Runnable() {
+      public void run() {
+        try {
+          channel.register( selector, SelectionKey.OP_ACCEPT, newListener );
+        } catch ( IOException e ) {
+          log.logError( "Unable to accept multiplexed connections on port " + newListener.port, e );
+        }
+      }
+    } );
+  }
+
+  /**
+   * @param port
+   *          a port passed to {@link #listen(int)} before
+   */
+  public synchronized void release( int port ) {
+    final Listener listener = listeners.get( port );
+    if ( listener == null || --listener.refs > 0 ) {
+      return;
+    }
+    listeners.remove( port );
+    execute( new Runnable() {
+      public void run() {
+        closeQuietly( listener.channel );
+      }
+    } );
+  }
+
+  /**
+   * Send the rows written to a row set to a remote step on another server, once that server opens the stream.
+   *
+   * @param port
+   *          the port on which this server listens, see {@link #listen(int)}
+   * @param streamId
+   *          the id of the stream, the port that was allocated for the remote step
+   * @param rowSet
+   *          the row set to read the rows from
+   * @param step
+   *          the step writing to the row set
+   * @param compress
+   *          true to compress the blocks of rows
+   * @param blockSize
+   *          the maximum number of rows in a block
+   * @return the stream
+   */
+  public Stream openOutputStream( int port, int streamId, RowSet rowSet, BaseStep step, boolean compress,
+    int blockSize ) {
+    final OutboundStream stream =
+      new OutboundStream( port + "/" + streamId, streamId, rowSet, step, compress, Math.max( 1, blockSize ) );
+    start();
+    execute( new Runnable() {
+      public void run() {
+        registerOutboundStream( stream );
+      }
+    } );
+    return stream;
+  }
+
+  /**
+   * Receive the rows of a remote step on another server into a row set. The connection to that server is shared with
+   * all the other streams coming from it.
+   *
+   * @param hostname
+   *          the host name of the writing server
+   * @param port
+   *          the port on which the writing server listens
+   * @param streamId
+   *          the id of the stream, the port that was allocated for the remote step
+   * @param rowSet
+   *          the row set to put the rows in, it's flagged as done at the end of the stream
+   * @param step
+   *          the step receiving the rows
+   * @param capacity
+   *          the maximum number of rows in the row set
+   * @return the stream
+   * @throws KettleException
+   *           in case no connection could be made to the writing server
+   */
+  public Stream openInputStream( String hostname, int port, int streamId, RowSet rowSet, BaseStep step,
+    int capacity ) throws KettleException {
+    start();
+    final Connection connection = connect( hostname, port, step );
+    final InboundStream stream = new InboundStream( streamId, rowSet, step, Math.max( 1, capacity ) );
+    execute( new Runnable() {
+      public void run() {
+        stream.open( connection );
+      }
+    } );
+    return stream;
+  }
+
+  /**
+   * @return the number of connections opened to other servers that are still in use
+   */
+  int getClientConnectionCount() {
+    synchronized ( clientConnections ) {
+      return clientConnections.size();
+    }
+  }
+
+  /**
+   * Close all connections and stop the selector thread.
+   */
+  public synchronized void close() {
+    closed = true;
+    if ( selector != null ) {
+      selector.wakeup();
+    }
+  }
+
+  private synchronized void start() {
+    if ( thread != null ) {
+      return;
+    }
+    try {
+      selector = Selector.open();
+    } catch ( IOException e ) {
+      throw new IllegalStateException( "Unable to open a selector for the multiplexed socket streams", e );
+    }
+    thread = new Thread( new Runnable() {
+      public void run() {
+        loop();
+      }
+    }, "Multiplexed socket streams" );
+    thread.setDaemon( true );
+    thread.start();
+  }
+
+  private void execute( Runnable task ) {
+    tasks.add( task );
+    selector.wakeup();
+  }
+
+  private Connection connect( String hostname, int port, BaseStep step ) throws KettleException {
+    String address = hostname + ":" + port;
+    synchronized ( clientConnections ) {
+      Connection connection = clientConnections.get( address );
+      if ( connection != null ) {
+        connection.refs++;
+        return connection;
+      }
+    }
+
+    // The writing server may not be listening yet, retry for a while
+    //
+    long startTime = System.currentTimeMillis();
+    SocketChannel channel = null;
+    IOException lastException = null;
+    while ( channel == null && System.currentTimeMillis() - startTime < CONNECT_TIMEOUT_MS && !step.isStopped() ) {
+      try {
+        channel = SocketChannel.open();
+        channel.socket().connect( new InetSocketAddress( hostname, port ), 5000 );
+      } catch ( IOException e ) {
+        closeQuietly( channel );
+        channel = null;
+        lastException = e;
+        try {
+          Thread.sleep( 250 );
+        } catch ( InterruptedException ie ) {
+          throw new KettleException( "Interrupted while trying to connect to server " + address, ie );
+        }
+      }
+    }
+    if ( channel == null ) {
+      throw new KettleException( "Unable to open a multiplexed connection to server " + address, lastException );
+    }
+
+    try {
+      channel.socket().setTcpNoDelay( true );
+      channel.configureBlocking( false );
+    } catch ( IOException e ) {
+      closeQuietly( channel );
+      throw new KettleException( "Unable to configure the multiplexed connection to server " + address, e );
+    }
+
+    synchronized ( clientConnections ) {
+      Connection connection = clientConnections.get( address );
+      if ( connection != null ) {
+        // Somebody else was faster
+        closeQuietly( channel );
+        connection.refs++;
+        return connection;
+      }
+      final Connection newConnection = new Connection( channel, address, -1 );
+      newConnection.refs++;
+      clientConnections.put( address, newConnection );
+      execute( new Runnable() {
+        public void run() {
+          register( newConnection );
+        }
+      } );
+      if ( log.isDetailed() ) {
+        log.logDetailed( "Opened a multiplexed connection to server " + address );
+      }
+      return newConnection;
+    }
+  }
+
+  private void loop() {
+    try {
+      while ( !closed ) {
+        selector.select( SELECT_TIMEOUT_MS );
+
+        Runnable task;
+        while ( ( task = tasks.poll() ) != null ) {
+          try {
+            task.run();
+          } catch ( RuntimeException e ) {
+            log.logError( "Error in the multiplexed socket streams", e );
+          }
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while ( keys.hasNext() ) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if ( !key.isValid() ) {
+            continue;
+          }
+          if ( key.attachment() instanceof Listener ) {
+            accept( (Listener) key.attachment() );
+          } else {
+            Connection connection = (Connection) key.attachment();
+            try {
+              if ( key.isReadable() ) {
+                connection.read();
+              }
+              if ( key.isValid() && key.isWritable() ) {
+                connection.flush();
+              }
+            } catch ( Exception e ) {
+              connectionLost( connection, e );
+            }
+          }
+        }
+
+        for ( int i = 0; i < streams.size(); i++ ) {
+          StreamBase stream = streams.get( i );
+          try {
+            stream.service();
+          } catch ( Exception e ) {
+            stream.fail( e );
+          }
+          if ( stream.finished ) {
+            streams.remove( i-- );
+          }
+        }
+      }
+    } catch ( Throwable e ) {
+      log.logError( "Unexpected error in the multiplexed socket streams", e );
+    } finally {
+      for ( SelectionKey key : selector.keys() ) {
+        closeQuietly( key.channel() );
+      }
+      closeQuietly( selector );
+    }
+  }
+
+  private void accept( Listener listener ) {
+    SocketChannel channel = null;
+    try {
+      channel = listener.channel.accept();
+      if ( channel == null ) {
+        return;
+      }
+      channel.socket().setTcpNoDelay( true );
+      channel.configureBlocking( false );
+      register( new Connection( channel, null, listener.port ) );
+    } catch ( IOException e ) {
+      closeQuietly( channel );
+      log.logError( "Unable to accept a multiplexed connection on port " + listener.port, e );
+    }
+  }
+
+  private void register( Connection connection ) {
+    try {
+      connection.key = connection.channel.register( selector, SelectionKey.OP_READ, connection );
+      connection.updateInterest();
+    } catch ( IOException e ) {
+      connectionLost( connection, e );
+    }
+  }
+
+  private void registerOutboundStream( OutboundStream stream ) {
+    streams.add( stream );
+    outboundStreams.put( stream.name, stream );
+    Connection connection = pendingConnections.remove( stream.name );
+    if ( connection != null ) {
+      stream.open( connection, pendingCredits.remove( stream.name ) );
+    }
+  }
+
+  private void handleFrame( Connection connection, byte type, int streamId, ByteBuffer payload ) throws Exception {
+    if ( type == FRAME_OPEN ) {
+      // The remote step on this side may not have started yet
+      String name = connection.listenerPort + "/" + streamId;
+      OutboundStream stream = outboundStreams.get( name );
+      if ( stream != null ) {
+        stream.open( connection, payload.getInt() );
+      } else {
+        pendingConnections.put( name, connection );
+        pendingCredits.put( name, payload.getInt() );
+      }
+      return;
+    }
+    StreamBase stream = connection.streams.get( streamId );
+    if ( stream == null ) {
+      // A stream that was closed on this side already
+      return;
+    }
+    try {
+      stream.onFrame( type, payload );
+    } catch ( Exception e ) {
+      stream.fail( e );
+    }
+  }
+
+  private void connectionLost( Connection connection, Exception cause ) {
+    connection.close();
+    if ( connection.address != null ) {
+      synchronized ( clientConnections ) {
+        if ( clientConnections.get( connection.address ) == connection ) {
+          clientConnections.remove( connection.address );
+        }
+      }
+    }
+    for ( Iterator<Connection> iterator = pendingConnections.values().iterator(); iterator.hasNext(); ) {
+      if ( iterator.next() == connection ) {
+        iterator.remove();
+      }
+    }
+    for ( StreamBase stream : new ArrayList<>( connection.streams.values() ) ) {
+      if ( stream.step.isStopped() ) {
+        stream.finish();
+      } else {
+        stream.fail( new KettleException( "Lost the multiplexed connection to the remote step", cause ) );
+      }
+    }
+  }
+
+  private void releaseConnection( Connection connection ) {
+    synchronized ( clientConnections ) {
+      if ( --connection.refs > 0 ) {
+        return;
+      }
+      if ( clientConnections.get( connection.address ) == connection ) {
+        clientConnections.remove( connection.address );
+      }
+    }
+    connection.close();
+  }
+
+  private static void closeQuietly( Closeable closeable ) {
+    if ( closeable != null ) {
+      try {
+        closeable.close();
+      } catch ( IOException e ) {
+        // Ignore errors
+      }
+    }
+  }
+
+  private static class Listener {
+    private final int port;
+    private final ServerSocketChannel channel;
+    private int refs = 1;
+
+    Listener( int port, ServerSocketChannel channel ) {
+      this.port = port;
+      this.channel = channel;
+    }
+  }
+
+  /**
+   * One end of a shared connection: frames to send wait in a queue of pooled buffers until the channel accepts them.
+   */
+  private class Connection {
+    private final SocketChannel channel;
+    private final String address;
+    private final int listenerPort;
+    private final Map<Integer, StreamBase> streams = new HashMap<>();
+    private final Deque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private ByteBuffer readBuffer = ByteBuffer.allocate( ByteBufferPool.DEFAULT_BUFFER_SIZE );
+    private SelectionKey key;
+    private int refs;
+    private boolean closed;
+
+    Connection( SocketChannel channel, String address, int listenerPort ) {
+      this.channel = channel;
+      this.address = address;
+      this.listenerPort = listenerPort;
+    }
+
+    void send( byte type, int streamId, byte[] payload, int offset, int length ) throws IOException {
+      ByteBuffer frame = bufferPool.acquire( HEADER_SIZE + length );
+      frame.put( type ).putInt( streamId ).putInt( length );
+      frame.put( payload, offset, length );
+      frame.flip();
+      writeQueue.add( frame );
+      flush();
+    }
+
+    void send( byte type, int streamId, int value ) throws IOException {
+      ByteBuffer frame = bufferPool.acquire( HEADER_SIZE + 4 );
+      frame.put( type ).putInt( streamId ).putInt( 4 ).putInt( value );
+      frame.flip();
+      writeQueue.add( frame );
+      flush();
+    }
+
+    void flush() throws IOException {
+      if ( closed ) {
+        return;
+      }
+      while ( !writeQueue.isEmpty() ) {
+        ByteBuffer frame = writeQueue.peek();
+        channel.write( frame );
+        if ( frame.hasRemaining() ) {
+          break;
+        }
+        bufferPool.release( writeQueue.poll() );
+      }
+      updateInterest();
+    }
+
+    void updateInterest() {
+      if ( key != null && key.isValid() ) {
+        int ops = SelectionKey.OP_READ;
+        if ( !writeQueue.isEmpty() ) {
+          ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps( ops );
+      }
+    }
+
+    void read() throws Exception {
+      if ( channel.read( readBuffer ) < 0 ) {
+        connectionLost( this, new IOException( "The connection was closed by the remote server" ) );
+        return;
+      }
+      readBuffer.flip();
+      while ( !closed && readBuffer.remaining() >= HEADER_SIZE ) {
+        int start = readBuffer.position();
+        byte type = readBuffer.get();
+        int streamId = readBuffer.getInt();
+        int length = readBuffer.getInt();
+        if ( readBuffer.remaining() < length ) {
+          readBuffer.position( start );
+          if ( HEADER_SIZE + length > readBuffer.capacity() ) {
+            ByteBuffer larger = ByteBuffer.allocate( HEADER_SIZE + length );
+            larger.put( readBuffer );
+            larger.flip();
+            readBuffer = larger;
+          }
+          break;
+        }
+        ByteBuffer payload = readBuffer.slice();
+        payload.limit( length );
+        readBuffer.position( readBuffer.position() + length );
+        handleFrame( this, type, streamId, payload );
+      }
+      readBuffer.compact();
+    }
+
+    void close() {
+      if ( closed ) {
+        return;
+      }
+      closed = true;
+      if ( key != null ) {
+        key.cancel();
+      }
+      closeQuietly( channel );
+      while ( !writeQueue.isEmpty() ) {
+        bufferPool.release( writeQueue.poll() );
+      }
+    }
+  }
+
+  private abstract class StreamBase implements Stream {
+    protected final int streamId;
+    protected final RowSet rowSet;
+    protected final BaseStep step;
+    protected Connection connection;
+    protected volatile boolean closeRequested;
+    protected boolean finished;
+
+    StreamBase( int streamId, RowSet rowSet, BaseStep step ) {
+      this.streamId = streamId;
+      this.rowSet = rowSet;
+      this.step = step;
+    }
+
+    public void close() {
+      closeRequested = true;
+    }
+
+    abstract void onFrame( byte type, ByteBuffer payload ) throws Exception;
+
+    abstract void service() throws Exception;
+
+    void finish() {
+      if ( finished ) {
+        return;
+      }
+      finished = true;
+      if ( connection != null ) {
+        connection.streams.remove( streamId );
+      }
+    }
+
+    void fail( Exception e ) {
+      if ( finished ) {
+        return;
+      }
+      step.logError( "Error in the multiplexed stream to remote step", e );
+      step.setErrors( 1 );
+      step.stopAll();
+      finish();
+    }
+  }
+
+  /**
+   * Sends the rows of an output row set of a step on this server.
+   */
+  private class OutboundStream extends StreamBase {
+    private final String name;
+    private final boolean compress;
+    private final Object[][] rows;
+    private long credits;
+    private boolean metaSent;
+
+    OutboundStream( String name, int streamId, RowSet rowSet, BaseStep step, boolean compress, int blockSize ) {
+      super( streamId, rowSet, step );
+      this.name = name;
+      this.compress = compress;
+      this.rows = new Object[blockSize][];
+    }
+
+    void open( Connection connection, int credits ) {
+      this.connection = connection;
+      this.credits = credits;
+      connection.streams.put( streamId, this );
+    }
+
+    @Override
+    void onFrame( byte type, ByteBuffer payload ) {
+      if ( type == FRAME_CREDIT ) {
+        credits += payload.getInt();
+      }
+    }
+
+    @Override
+    void service() throws Exception {
+      if ( connection == null ) {
+        if ( closeRequested ) {
+          finish();
+        }
+        return;
+      }
+      if ( step.isStopped() || closeRequested ) {
+        connection.send( FRAME_CLOSE, streamId, new byte[0], 0, 0 );
+        finish();
+        return;
+      }
+
+      while ( credits > 0 ) {
+        int max = (int) Math.min( credits, rows.length );
+        int nrRows = 0;
+        Object[] row;
+        while ( nrRows < max && ( row = rowSet.getRowImmediate() ) != null ) {
+          rows[nrRows++] = row;
+        }
+        if ( nrRows == 0 ) {
+          break;
+        }
+        if ( !metaSent ) {
+          blockBuffer.reset();
+          rowSet.getRowMeta().writeMeta( blockOut );
+          blockOut.flush();
+          connection.send( FRAME_META, streamId, blockBuffer.getBuffer(), 0, blockBuffer.size() );
+          metaSent = true;
+        }
+        sendBlock( nrRows );
+        credits -= nrRows;
+        for ( int i = 0; i < nrRows; i++ ) {
+          step.decrementLinesWritten();
+          step.incrementLinesOutput();
+        }
+        Arrays.fill( rows, 0, nrRows, null );
+      }
+
+      // The row set is flagged as done after the last row was written to it
+      //
+      if ( rowSet.isDone() && rowSet.size() == 0 ) {
+        connection.send( FRAME_CLOSE, streamId, new byte[0], 0, 0 );
+        finish();
+      }
+    }
+
+    private void sendBlock( int nrRows ) throws Exception {
+      blockBuffer.reset();
+      blockOut.writeByte( 0 ); // codec, patched below
+      blockOut.writeInt( nrRows );
+      blockOut.writeInt( 0 ); // raw length, patched below
+      ColumnBlockCodec.writeBlock( rowSet.getRowMeta(), rows, nrRows, blockOut );
+      blockOut.flush();
+
+      byte[] buffer = blockBuffer.getBuffer();
+      int rawLength = blockBuffer.size() - DATA_HEADER_SIZE;
+      int codec = ColumnarRowWriter.CODEC_NONE;
+      byte[] compressed = null;
+      if ( compress ) {
+        compressed = Zstd.compress( Arrays.copyOfRange( buffer, DATA_HEADER_SIZE, blockBuffer.size() ), ZSTD_LEVEL );
+        if ( compressed.length < rawLength ) {
+          codec = ColumnarRowWriter.CODEC_ZSTD;
+        }
+      }
+      buffer[0] = (byte) codec;
+      ByteBuffer.wrap( buffer, 5, 4 ).putInt( rawLength );
+      if ( codec == ColumnarRowWriter.CODEC_ZSTD ) {
+        System.arraycopy( compressed, 0, buffer, DATA_HEADER_SIZE, compressed.length );
+        connection.send( FRAME_DATA, streamId, buffer, 0, DATA_HEADER_SIZE + compressed.length );
+      } else {
+        connection.send( FRAME_DATA, streamId, buffer, 0, blockBuffer.size() );
+      }
+    }
+
+    @Override
+    void finish() {
+      super.finish();
+      outboundStreams.remove( name );
+    }
+  }
+
+  /**
+   * Receives rows for an input row set of a step on this server.
+   */
+  private class InboundStream extends StreamBase {
+    private final int capacity;
+    private final Deque<Object[]> pending = new ArrayDeque<>();
+    private RowMetaInterface rowMeta;
+    private long outstanding;
+    private boolean closeReceived;
+
+    InboundStream( int streamId, RowSet rowSet, BaseStep step, int capacity ) {
+      super( streamId, rowSet, step );
+      this.capacity = capacity;
+    }
+
+    void open( Connection connection ) {
+      this.connection = connection;
+      streams.add( this );
+      if ( connection.closed ) {
+        fail( new KettleException( "The multiplexed connection to the remote step was closed" ) );
+        return;
+      }
+      connection.streams.put( streamId, this );
+      try {
+        outstanding = capacity;
+        connection.send( FRAME_OPEN, streamId, capacity );
+      } catch ( IOException e ) {
+        connectionLost( connection, e );
+      }
+    }
+
+    @Override
+    void onFrame( byte type, ByteBuffer payload ) throws Exception {
+      switch ( type ) {
+        case FRAME_META:
+          rowMeta = new RowMeta( new DataInputStream( inputStream( payload, payload.remaining() ) ) );
+          break;
+        case FRAME_DATA:
+          int codec = payload.get();
+          int nrRows = payload.getInt();
+          int rawLength = payload.getInt();
+          DataInputStream in;
+          if ( codec == ColumnarRowWriter.CODEC_ZSTD ) {
+            byte[] compressed = new byte[payload.remaining()];
+            payload.get( compressed );
+            in = new DataInputStream( new ByteArrayInputStream( Zstd.decompress( compressed, rawLength ) ) );
+          } else {
+            in = new DataInputStream( inputStream( payload, rawLength ) );
+          }
+          Object[][] block = ColumnBlockCodec.readBlock( rowMeta, nrRows, in );
+          for ( int i = 0; i < nrRows; i++ ) {
+            pending.add( block[i] );
+          }
+          outstanding -= nrRows;
+          break;
+        case FRAME_CLOSE:
+          closeReceived = true;
+          break;
+        default:
+          throw new KettleException( "Unexpected frame type " + type + " on multiplexed stream " + streamId );
+      }
+    }
+
+    @Override
+    void service() throws Exception {
+      if ( step.isStopped() || closeRequested ) {
+        finish();
+        return;
+      }
+
+      // Rows are only handed over while the step isn't paused, that way the selector thread never stalls
+      //
+      while ( !pending.isEmpty() && !step.isPaused() && rowSet.size() < capacity ) {
+        Object[] row = pending.poll();
+        step.incrementLinesInput();
+        step.decrementLinesRead();
+        if ( step.isDebug() ) {
+          step.logDebug( "Received row from remote step: " + rowMeta.getString( row ) );
+        }
+        step.putRowTo( rowMeta, row, rowSet );
+        step.decrementLinesWritten();
+      }
+
+      if ( closeReceived && pending.isEmpty() ) {
+        finish();
+        return;
+      }
+
+      long free = capacity - rowSet.size() - pending.size() - outstanding;
+      if ( free >= Math.max( 1, capacity / 4 ) ) {
+        outstanding += free;
+        connection.send( FRAME_CREDIT, streamId, (int) free );
+      }
+    }
+
+    @Override
+    void finish() {
+      if ( finished ) {
+        return;
+      }
+      super.finish();
+      pending.clear();
+      rowSet.setDone();
+      releaseConnection( connection );
+    }
+  }
+
+  private static ByteArrayInputStream inputStream( ByteBuffer payload, int length ) {
+    return new ByteArrayInputStream( payload.array(), payload.arrayOffset() + payload.position(), length );
+  }
+
+  private static class BlockBuffer extends ByteArrayOutputStream {
+    BlockBuffer() {
+      super( ByteBufferPool.DEFAULT_BUFFER_SIZE );
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+}
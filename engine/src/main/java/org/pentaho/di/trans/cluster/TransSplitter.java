@@ -66,6 +66,9 @@ public class TransSplitter {
   private static final int FANOUT = 30;
   private static final int SPLIT = 120;
 
+  /** The pseudo step name under which the port of the multiplexed connections of a server is allocated */
+  private static final String MULTIPLEXED_STREAMS = "Multiplexed socket streams";
+
   private TransMeta originalTransformation;
   private Map<SlaveServer, TransMeta> slaveTransMap;
   private TransMeta masterTransMeta;
@@ -81,6 +84,14 @@ public class TransSplitter {
     new SlaveStepCopyPartitionDistribution();
   private int socketsBufferSize;
   private boolean compressingSocketStreams;
+  private boolean columnarSocketStreams;
+  private boolean multiplexedSocketStreams;
+
+  /** True when the remote streams of this run share the multiplexed connections of their writing servers */
+  private boolean multiplexingStreams;
+
+  /** The last id handed out to a multiplexed stream of this run */
+  private int lastStreamId;
 
   private Map<String, Integer> portCache;
 
@@ -96,6 +107,7 @@ public class TransSplitter {
     slaveTransMap = new Hashtable<SlaveServer, TransMeta>();
     slaveStepPartitionFlag = new Hashtable<TransMeta, Map<StepMeta, String>>();
     portCache = new Hashtable<String, Integer>();
+    lastStreamId = 0;
     carteObjectMap = new Hashtable<TransMeta, String>();
 
     clusteredRunId = UUID.randomUUID().toString();
@@ -186,6 +198,10 @@ public class TransSplitter {
           Const.toInt(
             originalTransformation.environmentSubstitute( clusterSchema.getSocketsBufferSize() ), 50000 );
         compressingSocketStreams = clusterSchema.isSocketsCompressed();
+        columnarSocketStreams =
+          "Y".equalsIgnoreCase( originalTransformation.getVariable( Const.KETTLE_COLUMNAR_SOCKET_STREAMS, "N" ) );
+        multiplexedSocketStreams =
+          "Y".equalsIgnoreCase( originalTransformation.getVariable( Const.KETTLE_MULTIPLEXED_SOCKET_STREAMS, "N" ) );
 
         // Validate the number of slaves. We need at least one to have a valid cluster
         //
@@ -238,6 +254,9 @@ public class TransSplitter {
    * If a port was allocated, that is returned, otherwise a new one is allocated. We need to verify that the port wasn't
    * already used on the same host with perhaps several Carte instances on it. In order
    *
+   * When the streams are multiplexed, a remote step doesn't get a port of its own. It gets an id, unique in this run,
+   * of its stream on the shared connections of the writing server instead.
+   *
    * @param clusterSchema
    *          The cluster schema to use
    *
@@ -255,6 +274,12 @@ public class TransSplitter {
       return portNumber.intValue();
     }
 
+    if ( multiplexingStreams && !MULTIPLEXED_STREAMS.equals( sourceStepName ) ) {
+      int streamId = ++lastStreamId;
+      portCache.put( portCacheKey, streamId );
+      return streamId;
+    }
+
     String realHostname = sourceSlave.environmentSubstitute( sourceSlave.getHostname() );
 
     int port =
@@ -269,6 +294,35 @@ public class TransSplitter {
     return port;
   }
 
+  /**
+   * Point every remote step to the port on which its writing server accepts the multiplexed connections of this run.
+   * This is the only port allocated per server, the port of the remote step itself is the id of its stream.
+   *
+   * @param clusterSchema
+   *          The cluster schema to use
+   */
+  private void assignMultiplexedPorts( ClusterSchema clusterSchema ) throws Exception {
+    List<TransMeta> transMetas = new ArrayList<>( slaveTransMap.values() );
+    transMetas.add( masterTransMeta );
+    for ( TransMeta transMeta : transMetas ) {
+      for ( StepMeta stepMeta : transMeta.getSteps() ) {
+        List<RemoteStep> remoteSteps = new ArrayList<>( stepMeta.getRemoteInputSteps() );
+        remoteSteps.addAll( stepMeta.getRemoteOutputSteps() );
+        for ( RemoteStep remoteStep : remoteSteps ) {
+          // The source slave server of a remote step is the one writing the rows, it owns the port
+          //
+          SlaveServer writer = clusterSchema.findSlaveServer( remoteStep.getSourceSlaveServerName() );
+          if ( writer == null ) {
+            throw new KettleException( "Unable to find slave server [" + remoteStep.getSourceSlaveServerName()
+              + "] of remote step " + remoteStep + " in cluster schema [" + clusterSchema + "]" );
+          }
+          int port = getPort( clusterSchema, writer, MULTIPLEXED_STREAMS, 0, writer, MULTIPLEXED_STREAMS, 0 );
+          remoteStep.setMultiplexedPort( Integer.toString( port ) );
+        }
+      }
+    }
+  }
+
   public String createPortCacheKey( SlaveServer sourceSlave, String sourceStepName, int sourceStepCopy,
     SlaveServer targetSlave, String targetStepName, int targetStepCopy ) {
     return clusteredRunId
@@ -481,6 +535,10 @@ public class TransSplitter {
         }
       }
 
+      // The encrypted streams keep a socket of their own
+      //
+      multiplexingStreams = multiplexedSocketStreams && !encrypt;
+
       for ( int r = 0; r < referenceSteps.length; r++ ) {
         StepMeta referenceStep = referenceSteps[r];
         List<StepMeta> prevSteps = originalTransformation.findPreviousSteps( referenceStep );
@@ -598,6 +656,7 @@ public class TransSplitter {
                         socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteMasterStep.setEncryptingStreams( encrypt );
+                    remoteMasterStep.setColumnarStreams( columnarSocketStreams );
                     remoteMasterStep.setKey( transformationKey );
                     masterStep.getRemoteInputSteps().add( remoteMasterStep );
 
@@ -609,6 +668,7 @@ public class TransSplitter {
                         socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteSlaveStep.setEncryptingStreams( encrypt );
+                    remoteSlaveStep.setColumnarStreams( columnarSocketStreams );
                     remoteSlaveStep.setKey( transformationKey );
                     slaveStep.getRemoteOutputSteps().add( remoteSlaveStep );
 
@@ -744,6 +804,7 @@ public class TransSplitter {
                           .getName(), socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteMasterStep.setEncryptingStreams( encrypt );
+                    remoteMasterStep.setColumnarStreams( columnarSocketStreams );
                     remoteMasterStep.setKey( transformationKey );
                     sourceStep.getRemoteOutputSteps().add( remoteMasterStep );
 
@@ -755,6 +816,7 @@ public class TransSplitter {
                           .getName(), socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteSlaveStep.setEncryptingStreams( encrypt );
+                    remoteSlaveStep.setColumnarStreams( columnarSocketStreams );
                     remoteSlaveStep.setKey( transformationKey );
                     targetStep.getRemoteInputSteps().add( remoteSlaveStep );
 
@@ -958,6 +1020,7 @@ public class TransSplitter {
                                     .getName(), socketsBufferSize, compressingSocketStreams,
                                   originalTransformation.getStepFields( previousStep ) );
                               remoteOutputStep.setEncryptingStreams( encrypt );
+                              remoteOutputStep.setColumnarStreams( columnarSocketStreams );
                               remoteOutputStep.setKey( transformationKey );
                               sourceStep.getRemoteOutputSteps().add( remoteOutputStep );
 
@@ -976,6 +1039,7 @@ public class TransSplitter {
                                     .getName(), socketsBufferSize, compressingSocketStreams,
                                   originalTransformation.getStepFields( previousStep ) );
                               remoteInputStep.setEncryptingStreams( encrypt );
+                              remoteInputStep.setColumnarStreams( columnarSocketStreams );
                               remoteInputStep.setKey( transformationKey );
                               targetStep.getRemoteInputSteps().add( remoteInputStep );
                             }
@@ -1144,6 +1208,7 @@ public class TransSplitter {
                     socketWriterMeta.setBufferSize( clusterSchema.getSocketsBufferSize() );
                     socketWriterMeta.setFlushInterval( clusterSchema.getSocketsFlushInterval() );
                     socketWriterMeta.setCompressed( clusterSchema.isSocketsCompressed() );
+                    socketWriterMeta.setColumnar( columnarSocketStreams );
 
                     StepMeta writerStep =
                       new StepMeta( getWriterName(
@@ -1168,6 +1233,7 @@ public class TransSplitter {
                     socketReaderMeta.setPort( "" + port );
                     socketReaderMeta.setBufferSize( clusterSchema.getSocketsBufferSize() );
                     socketReaderMeta.setCompressed( clusterSchema.isSocketsCompressed() );
+                    socketReaderMeta.setColumnar( columnarSocketStreams );
 
                     StepMeta readerStep =
                       new StepMeta( getReaderName(
@@ -1246,6 +1312,7 @@ public class TransSplitter {
                     socketWriterMeta.setBufferSize( clusterSchema.getSocketsBufferSize() );
                     socketWriterMeta.setFlushInterval( clusterSchema.getSocketsFlushInterval() );
                     socketWriterMeta.setCompressed( clusterSchema.isSocketsCompressed() );
+                    socketWriterMeta.setColumnar( columnarSocketStreams );
 
                     StepMeta writerStep =
                       new StepMeta( getWriterName(
@@ -1279,6 +1346,7 @@ public class TransSplitter {
                         originalStep.getName(), 0 ) );
                     socketReaderMeta.setBufferSize( clusterSchema.getSocketsBufferSize() );
                     socketReaderMeta.setCompressed( clusterSchema.isSocketsCompressed() );
+                    socketReaderMeta.setColumnar( columnarSocketStreams );
 
                     StepMeta readerStep =
                       new StepMeta( getReaderName(
@@ -1364,6 +1432,12 @@ public class TransSplitter {
       // ", copynr="+slaveStepCopy.getStepCopyNr()+" ---> partition="+partition);
       // }
 
+      // Let all the remote streams written by the same server share its multiplexed connections.
+      //
+      if ( multiplexingStreams ) {
+        assignMultiplexedPorts( clusterSchema );
+      }
+
       // Get a hold of all the slave transformations & the master...
       // Assign the SAME slave-step-copy-partition distribution to all of them.
       // That way the slave transformations can figure out where to send data.
@@ -27,6 +27,8 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -44,7 +46,10 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.ExtensionDataInterface;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.RowBatchRowSet;
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.RowSetSignal;
+import org.pentaho.di.core.SharedQueueRowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleRowException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -54,14 +59,22 @@ import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.logging.LoggingObjectType;
+import org.pentaho.di.core.memory.MemoryGrant;
+import org.pentaho.di.core.memory.MemoryManager;
+import org.pentaho.di.core.row.FrozenRowMeta;
+import org.pentaho.di.core.row.OffHeapMemoryBudget;
+import org.pentaho.di.core.row.OffHeapRowArena;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaDate;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.util.VirtualThreads;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
 import org.pentaho.di.i18n.BaseMessages;
@@ -144,6 +157,20 @@ import org.pentaho.metastore.api.IMetaStore;
 public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInterface, ExtensionDataInterface {
   private static Class<?> PKG = BaseStep.class; // for i18n purposes, needed by Translator2!!
 
+  /** Step metrics: the heap memory reserved from the memory manager of the transformation, see {@link MemoryGrant} */
+  public static final String METRIC_MEMORY_RESERVED = "memoryReservedBytes";
+  public static final String METRIC_MEMORY_PEAK = "memoryPeakBytes";
+  public static final String METRIC_MEMORY_SPILLS = "memorySpills";
+
+  /** Step metrics: the rows sent to a partition of the next step, the name ends with the partition number */
+  public static final String METRIC_PARTITION_ROWS = "partitionRows.";
+
+  /**
+   * Step metrics: the rows a copy of the next step took from a buffer shared by all copies, the name ends with the next
+   * step name and the copy number, see {@link SharedQueueRowSet}
+   */
+  public static final String METRIC_PULLED_ROWS = "pulledRows.";
+
   protected VariableSpace variables = new Variables();
 
   private TransMeta transMeta;
@@ -158,6 +185,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private Trans trans;
 
+  /** The memory reserved by this step copy, created on first use */
+  private MemoryGrant memoryGrant;
+
   private final Object statusCountersLock = new Object();
 
   /**
@@ -331,11 +361,42 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private RowMetaInterface inputRowMeta;
 
+  /**
+   * The batch handed out by getRowBatch(), reused as long as the input row metadata doesn't change
+   */
+  private RowBatch inputRowBatch;
+
+  /**
+   * A row read by getRowBatch() that didn't fit the previous batch because its metadata was different
+   */
+  private Object[] pendingBatchRow;
+  private RowMetaInterface pendingBatchRowMeta;
+
+  /**
+   * The number of rows per batch, -1 if not yet determined
+   */
+  private int rowBatchSize = -1;
+
+  /**
+   * Whether the input row metadata is handed out frozen, null if not yet determined
+   */
+  private Boolean freezeRowMeta;
+
+  /**
+   * The frozen copy of the last row metadata received from each input row set
+   */
+  private Map<RowSet, FrozenInputRowMeta> frozenRowMetas;
+
   /**
    * step partitioning information of the NEXT step
    */
   private StepPartitioningMeta nextStepPartitioningMeta;
 
+  /**
+   * The number of rows sent to every partition of the next step, null if the rows aren't partitioned
+   */
+  private volatile long[] partitionRows;
+
   /**
    * The metadata information of the error output row. There is only one per step so we cache it
    */
@@ -368,6 +429,11 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private int blockPointer;
 
+  /**
+   * Raised by the input row sets when rows arrive or when they are done, and when the step is stopped
+   */
+  private final RowSetSignal inputSignal = new RowSetSignal();
+
   /**
    * A flag to indicate that clustered partitioning was not yet initialized
    */
@@ -811,6 +877,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    if ( memoryGrant != null ) {
+      memoryGrant.close();
+    }
     sdi.setStatus( StepExecutionStatus.STATUS_DISPOSED );
   }
 
@@ -1378,6 +1447,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       throw new KettleStepException(
         "Unable to convert a value to integer while calculating the partition number", e );
     }
+    countPartitionRow( partitionNr );
 
     RowSet selectedRowSet = null;
 
@@ -1499,6 +1569,18 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
   }
 
+  private void countPartitionRow( int partitionNr ) {
+    if ( partitionNr < 0 ) {
+      return;
+    }
+    long[] rows = partitionRows;
+    if ( rows == null || partitionNr >= rows.length ) {
+      rows = rows == null ? new long[ partitionNr + 1 ] : Arrays.copyOf( rows, partitionNr + 1 );
+      partitionRows = rows;
+    }
+    rows[ partitionNr ]++;
+  }
+
   private void noPartitioning( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
     if ( distributed ) {
       if ( rowDistribution != null ) {
@@ -1763,6 +1845,81 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
   }
 
+  /**
+   * Get a row from an input row set, or wait for rows to arrive in any of the input row sets. On a virtual thread the
+   * input row sets raise the signal of this step when they receive a row or when they are done, so the step parks until
+   * then instead of polling its row sets in turn. On a platform thread, or with row sets that cannot raise the signal,
+   * the row set is polled every millisecond.
+   *
+   * @return the row, null if the row set has no row now: the caller moves on to the next input row set
+   */
+  private Object[] waitForRow( RowSet rowSet ) {
+    Object[] row = rowSet.getRowImmediate();
+    if ( row == null ) {
+      if ( isParkingOnInputSignal() && registerInputSignal() ) {
+        awaitInput();
+        row = rowSet.getRowImmediate();
+      } else {
+        row = rowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
+      }
+    }
+    return row;
+  }
+
+  /**
+   * @return true if this step runs on a virtual thread, see {@link Trans#isUsingVirtualThreads()}.
+   *         A platform thread keeps polling its input row sets, they then never raise a signal.
+   */
+  private boolean isParkingOnInputSignal() {
+    return VirtualThreads.isVirtual( Thread.currentThread() );
+  }
+
+  /**
+   * @return false if one of the input row sets cannot raise the input signal
+   */
+  private boolean registerInputSignal() {
+    inputRowSetsLock.readLock().lock();
+    try {
+      for ( RowSet rowSet : inputRowSets ) {
+        if ( !rowSet.setConsumerSignal( inputSignal ) ) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      inputRowSetsLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Park until an input row set has rows or is done, or until the step is stopped. The wait is limited all the same,
+   * like the waits of the row sets themselves.
+   */
+  private void awaitInput() {
+    inputSignal.arm();
+    try {
+      if ( !isInputReady() && !isStopped() ) {
+        inputSignal.await( Const.TIMEOUT_GET_MILLIS, TimeUnit.MILLISECONDS );
+      }
+    } finally {
+      inputSignal.disarm();
+    }
+  }
+
+  private boolean isInputReady() {
+    inputRowSetsLock.readLock().lock();
+    try {
+      for ( RowSet rowSet : inputRowSets ) {
+        if ( rowSet.size() > 0 || rowSet.isDone() ) {
+          return true;
+        }
+      }
+      return inputRowSets.isEmpty();
+    } finally {
+      inputRowSetsLock.readLock().unlock();
+    }
+  }
+
   /**
    * Find the next not-finished input-stream... in_handling says which one...
    */
@@ -1818,6 +1975,389 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     return getRowHandler().getRow();
   }
 
+  /**
+   * Get the rows that are readily available from the input row sets as a batch. When the only input row set carries
+   * row batches (see {@link RowBatchRowSet}) the batches are taken over as they are. Otherwise this waits for the first
+   * row like {@link #getRow()} does, then adds rows as long as the input row sets have rows waiting and the batch isn't
+   * full. All rows go through {@link #getRow()} so that counters, row listeners and the row handler keep working as
+   * usual.
+   */
+  @Override
+  public RowBatch getRowBatch() throws KettleException {
+    RowBatchRowSet batchRowSet = getInputRowBatchRowSet();
+    if ( batchRowSet != null ) {
+      return getRowBatchFrom( batchRowSet );
+    }
+
+    Object[] row;
+    RowMetaInterface rowMeta;
+    if ( pendingBatchRow != null ) {
+      row = pendingBatchRow;
+      rowMeta = pendingBatchRowMeta;
+      pendingBatchRow = null;
+      pendingBatchRowMeta = null;
+    } else {
+      row = getRow();
+      if ( row == null ) {
+        return null;
+      }
+      rowMeta = getInputRowMeta();
+    }
+
+    if ( inputRowBatch == null || inputRowBatch.getRowMeta() != rowMeta || getOutputRowBatchRowSet() != null ) {
+      // A batch handed to the next step over a batch row set belongs to that step: start a new one
+      //
+      inputRowBatch = new RowBatch( rowMeta, getRowBatchSize() );
+    } else {
+      inputRowBatch.reset();
+    }
+    inputRowBatch.addRow( row );
+
+    while ( !inputRowBatch.isFull() && rowsetInputSize() > 0 ) {
+      row = getRow();
+      if ( row == null ) {
+        break;
+      }
+      if ( getInputRowMeta() != rowMeta ) {
+        // Rows from another input stream: keep them for the next batch
+        //
+        pendingBatchRow = row;
+        pendingBatchRowMeta = getInputRowMeta();
+        break;
+      }
+      inputRowBatch.addRow( row );
+    }
+    return inputRowBatch;
+  }
+
+  /**
+   * Put a batch of rows on the output row sets. When the only output row set carries row batches (see
+   * {@link RowBatchRowSet}) the batch is handed over as it is and the step must not touch it anymore. Otherwise the rows
+   * are handed over one by one through {@link #putRow(RowMetaInterface, Object[])} so that distribution, partitioning
+   * and row listeners keep working.
+   */
+  @Override
+  public void putRowBatch( RowMetaInterface rowMeta, RowBatch batch ) throws KettleStepException {
+    RowBatchRowSet batchRowSet = getOutputRowBatchRowSet();
+    if ( batchRowSet != null ) {
+      putRowBatchTo( batchRowSet, rowMeta, batch );
+      return;
+    }
+    int size = batch.size();
+    for ( int i = 0; i < size; i++ ) {
+      putRow( rowMeta, batch.getRow( i ) );
+    }
+  }
+
+  /**
+   * @return the input row set if it is the only one and it carries row batches, null otherwise
+   */
+  private RowBatchRowSet getInputRowBatchRowSet() {
+    if ( !( getRowHandler() instanceof DefaultRowHandler ) ) {
+      return null;
+    }
+    inputRowSetsLock.readLock().lock();
+    try {
+      if ( inputRowSets.size() == 1 && inputRowSets.get( 0 ) instanceof RowBatchRowSet ) {
+        return (RowBatchRowSet) inputRowSets.get( 0 );
+      }
+      return null;
+    } finally {
+      inputRowSetsLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the output row set if it is the only one and it carries row batches, null otherwise
+   */
+  private RowBatchRowSet getOutputRowBatchRowSet() {
+    if ( !( getRowHandler() instanceof DefaultRowHandler ) ) {
+      return null;
+    }
+    outputRowSetsLock.readLock().lock();
+    try {
+      if ( outputRowSets.size() == 1 && outputRowSets.get( 0 ) instanceof RowBatchRowSet ) {
+        return (RowBatchRowSet) outputRowSets.get( 0 );
+      }
+      return null;
+    } finally {
+      outputRowSetsLock.readLock().unlock();
+    }
+  }
+
+  private RowBatch getRowBatchFrom( RowBatchRowSet rowSet ) throws KettleException {
+    // Are we pausing the step? If so, stall forever...
+    //
+    while ( paused.get() && !stopped.get() ) {
+      try {
+        Thread.sleep( 100 );
+      } catch ( InterruptedException e ) {
+        throw new KettleStepException( e );
+      }
+    }
+    if ( stopped.get() ) {
+      if ( log.isDebug() ) {
+        logDebug( BaseMessages.getString( PKG, "BaseStep.Log.StopLookingForMoreRows" ) );
+      }
+      stopAll();
+      return null;
+    }
+    waitUntilTransformationIsStarted();
+
+    RowBatch batch = null;
+    while ( batch == null && !isStopped() ) {
+      batch = rowSet.getRowBatchImmediate();
+      if ( batch == null ) {
+        if ( isParkingOnInputSignal() && registerInputSignal() ) {
+          awaitInput();
+          batch = rowSet.getRowBatchImmediate();
+        } else {
+          batch = rowSet.getRowBatchWait( 1, TimeUnit.MILLISECONDS );
+        }
+      }
+      if ( batch == null ) {
+        if ( rowSet.isDone() ) {
+          batch = rowSet.getRowBatchImmediate();
+          if ( batch == null ) {
+            inputRowSetsLock.writeLock().lock();
+            try {
+              inputRowSets.remove( rowSet );
+              forgetFrozenRowMeta( rowSet );
+            } finally {
+              inputRowSetsLock.writeLock().unlock();
+            }
+            return null;
+          }
+        }
+      }
+    }
+    if ( batch == null ) {
+      return null;
+    }
+
+    if ( inputRowMeta == null ) {
+      inputRowMeta = freezeRowMeta( rowSet );
+    }
+    synchronized ( statusCountersLock ) {
+      linesRead += batch.size();
+    }
+    if ( !rowListeners.isEmpty() ) {
+      for ( int i = 0; i < batch.size(); i++ ) {
+        Object[] row = batch.getRow( i );
+        for ( RowListener listener : rowListeners ) {
+          listener.rowReadEvent( inputRowMeta, row );
+        }
+      }
+    }
+    verifyRejectionRates();
+    return batch;
+  }
+
+  private void putRowBatchTo( RowBatchRowSet rowSet, RowMetaInterface rowMeta, RowBatch batch )
+    throws KettleStepException {
+    // Are we pausing the step? If so, stall forever...
+    //
+    while ( paused.get() && !stopped.get() ) {
+      try {
+        Thread.sleep( 1 );
+      } catch ( InterruptedException e ) {
+        throw new KettleStepException( e );
+      }
+    }
+    if ( stopped.get() && !safeStopped.get() ) {
+      if ( log.isDebug() ) {
+        logDebug( BaseMessages.getString( PKG, "BaseStep.Log.StopPuttingARow" ) );
+      }
+      stopAll();
+      return;
+    }
+    waitUntilTransformationIsStarted();
+
+    if ( !rowListeners.isEmpty() ) {
+      for ( int i = 0; i < batch.size(); i++ ) {
+        Object[] row = batch.getRow( i );
+        for ( RowListener listener : rowListeners ) {
+          listener.rowWrittenEvent( rowMeta, row );
+        }
+      }
+    }
+
+    int size = batch.size();
+    RowMetaInterface toBeSent = rowSet.getRowMeta() == null ? rowMeta.clone() : rowSet.getRowMeta();
+    while ( !rowSet.putRowBatch( toBeSent, batch ) ) {
+      if ( isStopped() && !safeStopped.get() ) {
+        return;
+      }
+    }
+    synchronized ( statusCountersLock ) {
+      linesWritten += size;
+    }
+  }
+
+  /**
+   * @return true if row batches are enabled with the KETTLE_ROW_BATCH_SIZE variable.
+   */
+  public boolean isRowBatchEnabled() {
+    if ( rowBatchSize < 0 ) {
+      rowBatchSize = Math.max( 0, Const.toInt( getVariable( Const.KETTLE_ROW_BATCH_SIZE ), 0 ) );
+    }
+    return rowBatchSize > 0;
+  }
+
+  /**
+   * @return true if the input row metadata is handed out as an immutable {@link FrozenRowMeta}, see the
+   *         KETTLE_FREEZE_ROW_META variable.
+   */
+  public boolean isFreezeRowMetaEnabled() {
+    if ( freezeRowMeta == null ) {
+      freezeRowMeta = "Y".equalsIgnoreCase( getVariable( Const.KETTLE_FREEZE_ROW_META, "N" ) );
+    }
+    return freezeRowMeta;
+  }
+
+  /**
+   * Get the row metadata of an input row set the way it is handed to the step. When enabled, this is a frozen copy.
+   * Only the copy of the last row metadata object seen on each row set is kept, so the copy is made again only when the
+   * row set hands out another instance.
+   *
+   * @param rowSet
+   *          the input row set
+   * @return the frozen copy or the row metadata of the row set itself
+   */
+  protected RowMetaInterface freezeRowMeta( RowSet rowSet ) {
+    RowMetaInterface rowMeta = rowSet.getRowMeta();
+    if ( rowMeta == null || !isFreezeRowMetaEnabled() ) {
+      return rowMeta;
+    }
+    if ( frozenRowMetas == null ) {
+      frozenRowMetas = new IdentityHashMap<>();
+    }
+    FrozenInputRowMeta frozen = frozenRowMetas.get( rowSet );
+    if ( frozen == null || frozen.source != rowMeta ) {
+      frozen = new FrozenInputRowMeta( rowMeta );
+      frozenRowMetas.put( rowSet, frozen );
+    }
+    return frozen.frozen;
+  }
+
+  /**
+   * Forget the frozen row metadata of an input row set that was removed from the step.
+   *
+   * @param rowSet
+   *          the removed input row set
+   */
+  private void forgetFrozenRowMeta( RowSet rowSet ) {
+    if ( frozenRowMetas != null ) {
+      frozenRowMetas.remove( rowSet );
+    }
+  }
+
+  /**
+   * The last row metadata object received from an input row set and its frozen copy.
+   */
+  private static final class FrozenInputRowMeta {
+    private final RowMetaInterface source;
+    private final FrozenRowMeta frozen;
+
+    private FrozenInputRowMeta( RowMetaInterface source ) {
+      this.source = source;
+      this.frozen = FrozenRowMeta.freeze( source );
+    }
+  }
+
+  /**
+   * Switch the fast conversion of strings to and from dates and numbers on or off for the given row metadata, as set
+   * for this step with the KETTLE_FAST_VALUE_CONVERSION variable. The value metadata keep the system wide default when
+   * the variable isn't set.
+   *
+   * @param rowMeta
+   *          the row metadata to update, can be null
+   */
+  protected void applyFastValueConversion( RowMetaInterface rowMeta ) {
+    String fastConversion = getVariable( Const.KETTLE_FAST_VALUE_CONVERSION );
+    if ( rowMeta == null || Utils.isEmpty( fastConversion ) ) {
+      return;
+    }
+    boolean enabled = "Y".equalsIgnoreCase( fastConversion );
+    for ( ValueMetaInterface valueMeta : rowMeta.getValueMetaList() ) {
+      if ( valueMeta instanceof ValueMetaBase ) {
+        ( (ValueMetaBase) valueMeta ).setFastConversion( enabled );
+      }
+    }
+  }
+
+  /**
+   * @return the maximum number of rows in a batch returned by {@link #getRowBatch()}
+   */
+  public int getRowBatchSize() {
+    return isRowBatchEnabled() ? rowBatchSize : Const.DEFAULT_ROW_BATCH_SIZE;
+  }
+
+  /**
+   * Create an arena to buffer rows outside of the Java heap, reserving its memory from the budget of the
+   * transformation (see {@link Trans#getOffHeapMemoryBudget()}).
+   *
+   * @param rowMeta
+   *          the description of the rows to buffer
+   * @return the arena or null if the transformation has no off-heap budget and rows should be buffered on the heap
+   */
+  protected OffHeapRowArena createOffHeapRowArena( RowMetaInterface rowMeta ) {
+    OffHeapMemoryBudget budget = trans == null ? null : trans.getOffHeapMemoryBudget();
+    return budget == null ? null : new OffHeapRowArena( rowMeta, budget );
+  }
+
+  /**
+   * Get the grant this step copy reserves heap memory with for its row buffers and caches, from the memory manager of
+   * the transformation (see {@link Trans#getMemoryManager()}). The grant is released when the step is disposed.
+   *
+   * @param spillable
+   *          true if the step can give back memory when asked to, see {@link MemoryGrant#isSpillRequested()}
+   * @return the grant or null if the transformation has no memory manager and the step should decide on its own
+   */
+  protected MemoryGrant getMemoryGrant( boolean spillable ) {
+    if ( memoryGrant == null && trans != null ) {
+      MemoryManager memoryManager = trans.getMemoryManager();
+      if ( memoryManager != null ) {
+        memoryGrant = memoryManager.createGrant( getStepname() + "." + getCopy(), spillable );
+      }
+    }
+    return memoryGrant;
+  }
+
+  /**
+   * Reports the memory reserved through {@link #getMemoryGrant(boolean)}, if any, the number of rows sent to every
+   * partition of the next step when the output is partitioned and the number of rows every copy of the next step
+   * pulled when the output rows are shared by those copies.
+   */
+  @Override
+  public Map<String, Long> getStepMetrics() {
+    Map<String, Long> metrics = new LinkedHashMap<String, Long>();
+    if ( memoryGrant != null ) {
+      metrics.put( METRIC_MEMORY_RESERVED, memoryGrant.getReserved() );
+      metrics.put( METRIC_MEMORY_PEAK, memoryGrant.getPeak() );
+      metrics.put( METRIC_MEMORY_SPILLS, memoryGrant.getSpills() );
+    }
+    long[] rows = partitionRows;
+    if ( rows != null ) {
+      for ( int i = 0; i < rows.length; i++ ) {
+        metrics.put( METRIC_PARTITION_ROWS + i, rows[ i ] );
+      }
+    }
+    if ( outputRowSets != null ) {
+      outputRowSetsLock.readLock().lock();
+      try {
+        for ( RowSet rowSet : outputRowSets ) {
+          if ( rowSet instanceof SharedQueueRowSet ) {
+            metrics.put( METRIC_PULLED_ROWS + rowSet.getDestinationStepName() + "." + rowSet.getDestinationStepCopy(),
+              ( (SharedQueueRowSet) rowSet ).getRowsTaken() );
+          }
+        }
+      } finally {
+        outputRowSetsLock.readLock().unlock();
+      }
+    }
+    return metrics.isEmpty() ? Collections.<String, Long>emptyMap() : metrics;
+  }
 
   private Object[] handleGetRow() throws KettleException {
 
@@ -1909,7 +2449,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         // Timeout immediately if nothing is there to read.
         // We will then switch to the next row set to read from...
         //
-        row = inputRowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
+        row = waitForRow( inputRowSet );
         if ( row != null ) {
           incrementLinesRead();
           blockPointer++;
@@ -1934,6 +2474,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
               inputRowSetsLock.writeLock().lock();
               try {
                 inputRowSets.remove( inputRowSet );
+                forgetFrozenRowMeta( inputRowSet );
                 if ( inputRowSets.isEmpty() ) {
                   return null; // We're completely done.
                 }
@@ -1973,7 +2514,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     // Also set the meta data on the first occurrence.
     // or if prevSteps.length > 1 inputRowMeta can be changed
     if ( inputRowMeta == null || prevSteps.length > 1 ) {
-      inputRowMeta = inputRowSet.getRowMeta();
+      inputRowMeta = freezeRowMeta( inputRowSet );
     }
 
     if ( row != null ) {
@@ -2300,6 +2841,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         inputRowSetsLock.writeLock().lock();
         try {
           inputRowSets.remove( rowSet );
+          forgetFrozenRowMeta( rowSet );
 
           // Downgrade to read lock by restoring to the previous state before releasing the write lock
           for ( int i = 0; i < holdCount; i++ ) {
@@ -3042,6 +3584,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   @Override
   public void setStopped( boolean stopped ) {
     this.stopped.set( stopped );
+    if ( stopped ) {
+      inputSignal.raise();
+    }
   }
 
   @Override
@@ -3730,6 +4275,20 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       && ( lines % getTransMeta().getFeedbackSize() ) == 0;
   }
 
+  /**
+   * Check feedback after processing a batch of rows: the line counter advanced by several rows at once.
+   *
+   * @param lines     the number of lines after the batch
+   * @param batchSize the number of rows in the batch
+   * @return true if a feedback boundary was passed in the batch
+   */
+  protected boolean checkFeedback( long lines, int batchSize ) {
+    long feedbackSize = getTransMeta().getFeedbackSize();
+    return getTransMeta().isFeedbackShown()
+      && ( lines > 0 ) && ( feedbackSize > 0 ) && batchSize > 0
+      && ( lines / feedbackSize ) != ( ( lines - batchSize ) / feedbackSize );
+  }
+
   /**
    * @return the rowMeta
    */
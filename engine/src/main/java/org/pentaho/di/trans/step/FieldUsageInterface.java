@@ -0,0 +1,62 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.util.List;
+
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.lineage.FieldnameLineage;
+
+/**
+ * Implemented by the metadata of steps that can tell which of their input fields they actually look at. A step that
+ * reads a wide input row but only uses a few of its fields lets the steps in front of it skip the conversion of the
+ * other fields, see {@link org.pentaho.di.lineage.FieldUsageAnalyzer}.
+ * <p>
+ * Steps that don't implement this interface are considered to use every field of their input.
+ *
+ * @since 11.1
+ */
+public interface FieldUsageInterface {
+
+  /** The step doesn't look at the field */
+  int USAGE_NONE = 0;
+
+  /** The step only copies the value, for example to a file, a lazy converted binary string is just as good */
+  int USAGE_COPY = 1;
+
+  /** The step needs the value of the field */
+  int USAGE_READ = 2;
+
+  /**
+   * Determine how this step uses an input field, not counting the steps after it.
+   *
+   * @param fieldName
+   *          the name of the input field
+   * @param space
+   *          the variables to resolve the step options with
+   * @return one of the USAGE_ constants
+   */
+  int getFieldUsage( String fieldName, VariableSpace space );
+
+  /**
+   * @return true if the input fields are passed on to the next steps, possibly renamed as described by
+   *         {@link #getFieldnameLineage()}
+   */
+  boolean isPassingInputFields();
+
+  /**
+   * @return the input fields that are renamed in the output of this step
+   */
+  List<FieldnameLineage> getFieldnameLineage();
+}
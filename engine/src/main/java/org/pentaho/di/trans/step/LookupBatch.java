@@ -0,0 +1,248 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+
+/**
+ * Buffers the input rows of a lookup step so that the keys of many rows can be looked up with a single query instead
+ * of one query per row. This saves a database round trip for every row, which is what limits a lookup against a
+ * remote database.
+ * <p>
+ * A batch is due when it holds the configured number of rows, when its first row waits longer than the maximum
+ * latency, or when no more input rows are waiting: a step that is faster than the steps in front of it doesn't hold
+ * back rows to fill a batch.
+ * <p>
+ * Batching is switched on with the KETTLE_LOOKUP_BATCH_SIZE variable, see {@link #create(VariableSpace)}.
+ *
+ * @since 11.1
+ */
+public class LookupBatch {
+
+  /** Some databases refuse more than 1000 values in a list, a query never has more parameters than this */
+  public static final int MAX_PARAMETERS = 1000;
+
+  /** The default maximum time in milliseconds that a row is held back to fill a batch */
+  public static final long DEFAULT_MAX_LATENCY = 100L;
+
+  private final int size;
+  private final long maxLatency;
+  private final List<Object[]> rows;
+  private long firstRowTime;
+
+  /**
+   * @param size
+   *          the number of rows in a full batch
+   * @param maxLatency
+   *          the maximum time in milliseconds that a row is held back to fill a batch
+   */
+  public LookupBatch( int size, long maxLatency ) {
+    this.size = Math.max( 1, size );
+    this.maxLatency = Math.max( 0L, maxLatency );
+    this.rows = new ArrayList<>( this.size );
+  }
+
+  /**
+   * Create a batch as configured with the KETTLE_LOOKUP_BATCH_SIZE and KETTLE_LOOKUP_BATCH_MAX_LATENCY variables.
+   *
+   * @param space
+   *          the variables of the step
+   * @return the batch or null if the rows should be looked up one by one
+   */
+  public static LookupBatch create( VariableSpace space ) {
+    int size = Const.toInt( space.getVariable( Const.KETTLE_LOOKUP_BATCH_SIZE ), 0 );
+    if ( size <= 1 ) {
+      return null;
+    }
+    long maxLatency = Const.toLong( space.getVariable( Const.KETTLE_LOOKUP_BATCH_MAX_LATENCY ), DEFAULT_MAX_LATENCY );
+    return new LookupBatch( size, maxLatency );
+  }
+
+  /**
+   * Add a row at the end of the batch.
+   *
+   * @param row
+   *          the input row
+   */
+  public void add( Object[] row ) {
+    if ( rows.isEmpty() ) {
+      firstRowTime = System.currentTimeMillis();
+    }
+    rows.add( row );
+  }
+
+  /**
+   * @param inputRowSets
+   *          the input row sets of the step
+   * @return true if the rows of the batch should be looked up now
+   */
+  public boolean isDue( List<RowSet> inputRowSets ) {
+    if ( rows.isEmpty() ) {
+      return false;
+    }
+    if ( rows.size() >= size || System.currentTimeMillis() - firstRowTime >= maxLatency ) {
+      return true;
+    }
+    for ( RowSet rowSet : inputRowSets ) {
+      if ( rowSet.size() > 0 ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the rows of the batch in the order they were added
+   */
+  public List<Object[]> getRows() {
+    return rows;
+  }
+
+  public boolean isEmpty() {
+    return rows.isEmpty();
+  }
+
+  /**
+   * Remove all rows from the batch.
+   */
+  public void clear() {
+    rows.clear();
+  }
+
+  /**
+   * @return the number of rows in a full batch
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return the maximum time in milliseconds that a row is held back to fill a batch
+   */
+  public long getMaxLatency() {
+    return maxLatency;
+  }
+
+  /**
+   * Determine the number of keys for the next query. This is the number of keys left rounded up to a power of two, up
+   * to the number of parameters a query can have. A step only uses a few distinct query texts that way and the
+   * database doesn't have to parse a new one for every batch.
+   *
+   * @param nrKeysLeft
+   *          the number of keys that still need to be looked up
+   * @param nrKeyFields
+   *          the number of fields in a key
+   * @return the number of keys to put in the query, the last key is repeated to fill the query when needed
+   */
+  public static int getKeysInQuery( int nrKeysLeft, int nrKeyFields ) {
+    int maxKeys = Math.max( 1, MAX_PARAMETERS / Math.max( 1, nrKeyFields ) );
+    if ( nrKeysLeft >= maxKeys ) {
+      return maxKeys;
+    }
+    int nrKeys = Integer.highestOneBit( Math.max( 1, nrKeysLeft ) );
+    if ( nrKeys < nrKeysLeft ) {
+      nrKeys <<= 1;
+    }
+    return Math.min( nrKeys, maxKeys );
+  }
+
+  /**
+   * Append a condition matching any of the given number of keys: {@code key IN ( ?, ? )} for a single key field and
+   * {@code ( ( key1 = ? AND key2 = ? ) OR ( key1 = ? AND key2 = ? ) )} otherwise.
+   *
+   * @param sql
+   *          the query to append the condition to
+   * @param databaseMeta
+   *          the database to quote the field names for
+   * @param keyFields
+   *          the key fields in the table
+   * @param nrKeys
+   *          the number of keys to match
+   */
+  public static void appendKeyCondition( StringBuilder sql, DatabaseMeta databaseMeta, String[] keyFields,
+                                         int nrKeys ) {
+    if ( keyFields.length == 1 ) {
+      sql.append( databaseMeta.quoteField( keyFields[0] ) ).append( " IN ( " );
+      for ( int k = 0; k < nrKeys; k++ ) {
+        sql.append( k == 0 ? "?" : ", ?" );
+      }
+      sql.append( " )" );
+      return;
+    }
+    sql.append( "( " );
+    for ( int k = 0; k < nrKeys; k++ ) {
+      if ( k > 0 ) {
+        sql.append( " OR " );
+      }
+      sql.append( "( " );
+      for ( int i = 0; i < keyFields.length; i++ ) {
+        if ( i > 0 ) {
+          sql.append( " AND " );
+        }
+        sql.append( databaseMeta.quoteField( keyFields[i] ) ).append( " = ?" );
+      }
+      sql.append( " )" );
+    }
+    sql.append( " )" );
+  }
+
+  /**
+   * @param keyMeta
+   *          the description of one key
+   * @param nrKeys
+   *          the number of keys in the query
+   * @return the description of the parameters of the condition made by
+   *         {@link #appendKeyCondition(StringBuilder, DatabaseMeta, String[], int)}
+   */
+  public static RowMetaInterface getParameterMeta( RowMetaInterface keyMeta, int nrKeys ) {
+    RowMetaInterface parameterMeta = new RowMeta();
+    for ( int k = 0; k < nrKeys; k++ ) {
+      for ( int i = 0; i < keyMeta.size(); i++ ) {
+        parameterMeta.addValueMeta( keyMeta.getValueMeta( i ) );
+      }
+    }
+    return parameterMeta;
+  }
+
+  /**
+   * Get the parameter values for a number of keys. When there are fewer keys left than the query takes, the last key
+   * is repeated, see {@link #getKeysInQuery(int, int)}.
+   *
+   * @param keys
+   *          all the keys to look up, each one a row described by the key metadata
+   * @param from
+   *          the index of the first key for this query
+   * @param nrKeys
+   *          the number of keys in the query
+   * @param nrKeyFields
+   *          the number of fields in a key
+   * @return the parameter values
+   */
+  public static Object[] getParameterData( List<Object[]> keys, int from, int nrKeys, int nrKeyFields ) {
+    Object[] parameters = new Object[nrKeys * nrKeyFields];
+    for ( int k = 0; k < nrKeys; k++ ) {
+      Object[] key = keys.get( Math.min( from + k, keys.size() - 1 ) );
+      System.arraycopy( key, 0, parameters, k * nrKeyFields, nrKeyFields );
+    }
+    return parameters;
+  }
+}
@@ -0,0 +1,51 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import org.pentaho.di.core.exception.KettleStepException;
+
+/**
+ * Implemented by aggregating steps that can merge partial aggregates.
+ * <p>
+ * When the rows of one key are spread over several step copies (for example by the
+ * {@link org.pentaho.di.trans.SkewAwarePartitioner}) every copy only calculates an aggregate over part of the key. A
+ * second step with the same settings and the combine flag enabled merges those partial results: sums and counts are
+ * summed, minimums and maximums are taken again, and so on. Aggregates that can't be merged from their partial results
+ * alone (averages, medians, distinct counts, ...) are refused.
+ *
+ * @since 11.1
+ */
+public interface PartialAggregatesCombinable {
+
+  /**
+   * @return true if the step receives partial aggregates and combines them
+   */
+  boolean isCombiningPartialAggregates();
+
+  /**
+   * @param combiningPartialAggregates
+   *          true if the step receives partial aggregates and combines them
+   */
+  void setCombiningPartialAggregates( boolean combiningPartialAggregates );
+
+  /**
+   * Create the metadata that merges the partial aggregates calculated with this metadata: the subjects are the
+   * aggregate fields and the aggregation types are the ones combining the partial results.
+   *
+   * @return the combining metadata, without the combine flag
+   * @throws KettleStepException
+   *           in case one of the aggregation types can't be combined
+   */
+  StepMetaInterface createCombiningMeta() throws KettleStepException;
+}
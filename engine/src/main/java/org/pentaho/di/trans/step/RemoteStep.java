@@ -43,8 +43,12 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.core.xml.XMLInterface;
+import org.pentaho.di.trans.cluster.ColumnarRowReader;
+import org.pentaho.di.trans.cluster.ColumnarRowWriter;
+import org.pentaho.di.trans.cluster.MultiplexedTransport;
 import org.pentaho.di.www.SocketRepository;
 import org.w3c.dom.Node;
 
@@ -74,6 +78,12 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
   /** The target or source port number for the data socket */
   private String port;
 
+  /**
+   * The port on which the writing server accepts the multiplexed connections, empty for a socket per remote step. When
+   * set, the port above is only used as the id of the stream.
+   */
+  private String multiplexedPort;
+
   private ServerSocket serverSocket;
   private Socket socket;
 
@@ -96,6 +106,9 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
   private int bufferSize;
   private boolean compressingStreams;
 
+  /** Exchange the rows in compressed column blocks instead of one serialized row at a time */
+  private boolean columnarStreams;
+
   private boolean encryptingStreams;
   private byte[] key;
   private CipherInputStream cipherInputStream;
@@ -109,6 +122,12 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
   private BufferedInputStream bufferedInputStream;
 
+  private ColumnarRowReader columnarReader;
+
+  private MultiplexedTransport multiplexedTransport;
+  private int multiplexedListenerPort;
+  private MultiplexedTransport.Stream multiplexedStream;
+
   protected BufferedOutputStream bufferedOutputStream;
 
   protected RowMetaInterface rowMeta;
@@ -169,8 +188,10 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     xml.append( XMLHandler.addTagValue( "hostname", hostname, false ) );
     xml.append( XMLHandler.addTagValue( "remote_hostname", remoteHostname, false ) );
     xml.append( XMLHandler.addTagValue( "port", port, false ) );
+    xml.append( XMLHandler.addTagValue( "multiplexed_port", multiplexedPort, false ) );
     xml.append( XMLHandler.addTagValue( "buffer_size", bufferSize, false ) );
     xml.append( XMLHandler.addTagValue( "compressed_streams", compressingStreams, false ) );
+    xml.append( XMLHandler.addTagValue( "columnar_streams", columnarStreams, false ) );
 
     xml.append( XMLHandler.addTagValue( "source_step_name", sourceStep, false ) );
     xml.append( XMLHandler.addTagValue( "source_step_copy", sourceStepCopyNr, false ) );
@@ -202,8 +223,10 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     hostname = XMLHandler.getTagValue( node, "hostname" );
     remoteHostname = XMLHandler.getTagValue( node, "remote_hostname" );
     port = XMLHandler.getTagValue( node, "port" );
+    multiplexedPort = XMLHandler.getTagValue( node, "multiplexed_port" );
     bufferSize = Integer.parseInt( XMLHandler.getTagValue( node, "buffer_size" ) );
     compressingStreams = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "compressed_streams" ) );
+    columnarStreams = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "columnar_streams" ) );
 
     sourceStep = XMLHandler.getTagValue( node, "source_step_name" );
     sourceStepCopyNr = Integer.parseInt( XMLHandler.getTagValue( node, "source_step_copy" ) );
@@ -276,8 +299,35 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     this.port = port;
   }
 
+  /**
+   * @return the port on which the writing server accepts the multiplexed connections, empty for a socket per remote
+   *         step
+   */
+  public String getMultiplexedPort() {
+    return multiplexedPort;
+  }
+
+  /**
+   * @param multiplexedPort
+   *          the port on which the writing server accepts the multiplexed connections, empty for a socket per remote
+   *          step
+   */
+  public void setMultiplexedPort( String multiplexedPort ) {
+    this.multiplexedPort = multiplexedPort;
+  }
+
   public synchronized void openServerSocket( BaseStep baseStep ) throws IOException {
     this.baseStep = baseStep;
+
+    // All the streams written by this server share the listener of the multiplexed transport
+    //
+    if ( !Utils.isEmpty( multiplexedPort ) ) {
+      multiplexedListenerPort = Integer.parseInt( baseStep.environmentSubstitute( multiplexedPort ) );
+      multiplexedTransport = baseStep.getSocketRepository().getMultiplexedTransport();
+      multiplexedTransport.listen( multiplexedListenerPort );
+      return;
+    }
+
     int portNumber = Integer.parseInt( baseStep.environmentSubstitute( port ) );
 
     SocketRepository socketRepository = baseStep.getSocketRepository();
@@ -332,6 +382,14 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     rowSet.setThreadNameFromToCopy( sourceStep, sourceStepCopyNr, targetStep, targetStepCopyNr );
     rowSet.setRemoteSlaveServerName( targetSlaveServerName );
 
+    if ( multiplexedTransport != null ) {
+      multiplexedStream = multiplexedTransport.openOutputStream( multiplexedListenerPort,
+        Integer.parseInt( baseStep.environmentSubstitute( port ) ), rowSet, baseStep, compressingStreams,
+        Const.toInt( baseStep.getVariable( Const.KETTLE_COLUMNAR_SOCKET_BLOCK_SIZE ),
+          ColumnarRowWriter.DEFAULT_BLOCK_SIZE ) );
+      return rowSet;
+    }
+
     // Start a thread that will read out the output row set and send the data over the wire...
     // This will make everything else transparent, copying, distributing, including partitioning, etc.
     //
@@ -347,7 +405,8 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
           // Create the output stream...
           OutputStream socketOut = socket.getOutputStream();
 
-          if ( compressingStreams ) {
+          // Columnar streams compress block by block
+          if ( compressingStreams && !columnarStreams ) {
             gzipOutputStream = new GZIPOutputStream( socketOut, 50000 );
             bufferedOutputStream = new BufferedOutputStream( gzipOutputStream, bufferSize );
           } else {
@@ -379,13 +438,28 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
           }
           outputStream = new DataOutputStream( socketOut );
 
+          ColumnarRowWriter columnarWriter = null;
+          if ( columnarStreams ) {
+            columnarWriter = new ColumnarRowWriter( socket.getInputStream(), outputStream, Const.toInt(
+              baseStep.getVariable( Const.KETTLE_COLUMNAR_SOCKET_BLOCK_SIZE ), ColumnarRowWriter.DEFAULT_BLOCK_SIZE ),
+              compressingStreams, baseStep );
+            columnarWriter.readHandshake();
+
+            // Don't wait for credits forever when the transformation is stopped
+            socket.setSoTimeout( 1000 );
+          }
+
           baseStep.logBasic( "Server socket accepted for port ["
             + port + "], reading from server " + targetSlaveServerName );
 
           // get a row of data...
           Object[] rowData = baseStep.getRowFrom( rowSet );
           if ( rowData != null ) {
-            rowSet.getRowMeta().writeMeta( outputStream );
+            if ( columnarWriter != null ) {
+              columnarWriter.writeMeta( rowSet.getRowMeta() );
+            } else {
+              rowSet.getRowMeta().writeMeta( outputStream );
+            }
           }
 
           // Send that row to the remote step
@@ -397,7 +471,15 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
             // Write the row to the remote step via the output stream....
             //
-            rowSet.getRowMeta().writeData( outputStream, rowData );
+            if ( columnarWriter != null ) {
+              columnarWriter.putRow( rowData );
+              if ( rowSet.size() == 0 ) {
+                // Nothing else is waiting, don't hold back the rows we have
+                columnarWriter.flush();
+              }
+            } else {
+              rowSet.getRowMeta().writeData( outputStream, rowData );
+            }
             baseStep.incrementLinesOutput();
 
             if ( baseStep.log.isDebug() ) {
@@ -406,7 +488,9 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
             rowData = baseStep.getRowFrom( rowSet );
           }
 
-          if ( compressingStreams ) {
+          if ( columnarWriter != null ) {
+            columnarWriter.finish();
+          } else if ( compressingStreams ) {
             outputStream.flush();
             gzipOutputStream.finish();
           } else {
@@ -471,6 +555,14 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
    * Close left-over sockets, streams and so on.
    */
   public void cleanup() {
+    if ( multiplexedStream != null ) {
+      multiplexedStream.close();
+      multiplexedStream = null;
+    }
+    if ( multiplexedTransport != null ) {
+      multiplexedTransport.release( multiplexedListenerPort );
+      multiplexedTransport = null;
+    }
     if ( socket != null && socket.isConnected() && !socket.isClosed() ) {
       try {
         if ( socket != null && !socket.isOutputShutdown() ) {
@@ -526,7 +618,11 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
     while ( !baseStep.isStopped() && rowData == null ) {
       try {
-        rowData = rowMeta.readData( inputStream );
+        if ( columnarReader != null ) {
+          rowData = columnarReader.getRow();
+        } else {
+          rowData = rowMeta.readData( inputStream );
+        }
       } catch ( SocketTimeoutException e ) {
         rowData = null; // try again.
       }
@@ -550,6 +646,13 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     final int portNumber = Integer.parseInt( baseStep.environmentSubstitute( port ) );
     final String realHostname = baseStep.environmentSubstitute( hostname );
 
+    if ( !Utils.isEmpty( multiplexedPort ) ) {
+      multiplexedStream = baseStep.getSocketRepository().getMultiplexedTransport().openInputStream( realHostname,
+        Integer.parseInt( baseStep.environmentSubstitute( multiplexedPort ) ), portNumber, rowSet, baseStep,
+        baseStep.getTransMeta().getSizeRowset() );
+      return rowSet;
+    }
+
     // Connect to the server socket (started during BaseStep.init())
     // Because the accept() call on the server socket can be called after we
     // reached this code
@@ -574,7 +677,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
         connected = true;
 
         InputStream socketStream = socket.getInputStream();
-        if ( compressingStreams ) {
+        if ( compressingStreams && !columnarStreams ) {
           gzipInputStream = new GZIPInputStream( socketStream );
           bufferedInputStream = new BufferedInputStream( gzipInputStream, bufferSize );
         } else {
@@ -607,6 +710,12 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
         }
         inputStream = new DataInputStream( socketStream );
 
+        if ( columnarStreams ) {
+          columnarReader =
+            new ColumnarRowReader( inputStream, socket.getOutputStream(), ColumnarRowReader.DEFAULT_CREDITS );
+          columnarReader.writeHandshake( compressingStreams );
+        }
+
         lastException = null;
       } catch ( Exception e ) {
         lastException =
@@ -667,7 +776,11 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
           RowMetaInterface rowMeta = null;
           while ( !baseStep.isStopped() && rowMeta == null ) {
             try {
-              rowMeta = new RowMeta( inputStream );
+              if ( columnarReader != null ) {
+                rowMeta = columnarReader.readMeta();
+              } else {
+                rowMeta = new RowMeta( inputStream );
+              }
             } catch ( SocketTimeoutException e ) {
               rowMeta = null;
             }
@@ -882,6 +995,22 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     this.compressingStreams = compressingStreams;
   }
 
+  /**
+   * @return true if the rows are exchanged in compressed column blocks with credit based flow control
+   */
+  public boolean isColumnarStreams() {
+    return columnarStreams;
+  }
+
+  /**
+   * @param columnarStreams
+   *          true to exchange the rows in compressed column blocks with credit based flow control, both sides need the
+   *          same setting
+   */
+  public void setColumnarStreams( boolean columnarStreams ) {
+    this.columnarStreams = columnarStreams;
+  }
+
   /**
    * @return the remoteHostname
    */
@@ -0,0 +1,37 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+/**
+ * Implemented by the metadata of steps that process rows column by column with {@link StepInterface#getRowBatch()}
+ * and {@link StepInterface#putRowBatch(org.pentaho.di.core.row.RowMetaInterface, org.pentaho.di.core.row.RowBatch)}.
+ * <p>
+ * When row batches are enabled (see the KETTLE_ROW_BATCH_SIZE variable) a hop from a step writing row batches to a
+ * step reading row batches carries the batches as they are, see {@link org.pentaho.di.core.RowBatchRowSet}. Only
+ * hops between a single step copy with a single output and a single step copy with a single input qualify.
+ *
+ * @since 11.1
+ */
+public interface RowBatchCapable {
+
+  /**
+   * @return true if the step reads its input as row batches
+   */
+  boolean isReadingRowBatches();
+
+  /**
+   * @return true if the step sends its output to the next step as row batches
+   */
+  boolean isWritingRowBatches();
+}
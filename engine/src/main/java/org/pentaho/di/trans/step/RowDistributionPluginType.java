@@ -14,6 +14,7 @@
 package org.pentaho.di.trans.step;
 
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
 import java.util.Map;
 
 import org.pentaho.di.core.exception.KettlePluginException;
@@ -50,7 +51,9 @@ public class RowDistributionPluginType extends BasePluginType implements PluginT
    */
   @Override
   protected void registerNatives() throws KettlePluginException {
-    // None at this moment
+    Class<?> clazz = WorkStealingRowDistribution.class;
+    handlePluginAnnotation( clazz, clazz.getAnnotation( RowDistributionPlugin.class ), new ArrayList<String>(), true,
+      null );
   }
 
   @Override
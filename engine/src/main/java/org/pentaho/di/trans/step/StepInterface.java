@@ -25,7 +25,10 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.logging.HasLogChannelInterface;
 import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowBatch;
+import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaNone;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
@@ -292,6 +295,52 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
    */
   Object[] getRow() throws KettleException;
 
+  /**
+   * Put a batch of rows on the destination rowsets. By default the rows are materialized and handed over one by one
+   * through {@link #putRow(RowMetaInterface, Object[])}.
+   *
+   * @param rowMeta
+   *          The description of the rows in the batch
+   * @param batch
+   *          The rows to send to the destination steps
+   */
+  default void putRowBatch( RowMetaInterface rowMeta, RowBatch batch ) throws KettleException {
+    for ( int i = 0; i < batch.size(); i++ ) {
+      putRow( rowMeta, batch.getRow( i ) );
+    }
+  }
+
+  /**
+   * Get the rows that are available from the source step(s) as a batch. The batch holds at least one row and the
+   * returned instance can be reused by the next call. By default every row from {@link #getRow()} is handed out as a
+   * batch of its own, described by the row metadata of the input row set it came from.
+   *
+   * @return a batch of rows from the source step(s) or null if no more rows are to be expected.
+   */
+  default RowBatch getRowBatch() throws KettleException {
+    Object[] row = getRow();
+    if ( row == null ) {
+      return null;
+    }
+    RowMetaInterface rowMeta = null;
+    List<RowSet> inputRowSets = getInputRowSets();
+    int current = getCurrentInputRowSetNr();
+    if ( inputRowSets != null && current >= 0 && current < inputRowSets.size() ) {
+      rowMeta = inputRowSets.get( current ).getRowMeta();
+    }
+    if ( rowMeta == null ) {
+      // Nothing is known about the values: keep them as they are
+      //
+      rowMeta = new RowMeta();
+      for ( int i = 0; i < row.length; i++ ) {
+        rowMeta.addValueMeta( new ValueMetaNone( "field" + ( i + 1 ) ) );
+      }
+    }
+    RowBatch batch = new RowBatch( rowMeta, 1 );
+    batch.addRow( row );
+    return batch;
+  }
+
   /**
    * Signal output done to destination steps
    */
@@ -500,6 +549,18 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
     return Collections.emptyList();
   }
 
+  /**
+   * Step specific counters, reported in the step status next to the standard line counters. For example the number of
+   * batches a step sent to a database and the time that took. When the status of several step copies or executions is
+   * combined, the counters with the same name are added up.
+   *
+   * @return the counters by name, empty by default
+   * @since 11.1
+   */
+  default Map<String, Long> getStepMetrics() {
+    return Collections.emptyMap();
+  }
+
   default void addRowSetToInputRowSets( RowSet rowSet ) {
     getInputRowSets().add( rowSet );
   }
@@ -914,6 +914,16 @@ public interface StepMetaInterface {
     return null; // default
   }
 
+  /**
+   * True if the step can make use of the knowledge of which of its output fields the steps after it use, for example
+   * to skip the conversion of unused fields. See Trans.getDownstreamFieldUsage(String).
+   *
+   * @return true if Trans should determine the usage of the output fields of this step
+   */
+  default boolean isUsingDownstreamFieldUsage() {
+    return false;
+  }
+
   default StepHelperInterface getStepHelperInterface() {
     return null; // default
   }
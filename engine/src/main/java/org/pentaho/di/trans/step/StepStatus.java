@@ -15,10 +15,13 @@ package org.pentaho.di.trans.step;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import jakarta.xml.bind.annotation.XmlRootElement;
 
@@ -53,6 +56,9 @@ public class StepStatus {
   private boolean paused;
   private long accumlatedRuntime;
 
+  /** Step specific counters, see {@link StepInterface#getStepMetrics()} */
+  private Map<String, Long> stepMetrics = new LinkedHashMap<String, Long>();
+
   private RowMetaInterface sampleRowMeta;
   private List<Object[]> sampleRows;
   private final DecimalFormat speedDf = new DecimalFormat( "#,###,###,###,##0" );
@@ -100,6 +106,11 @@ public class StepStatus {
       baseStep.isRunning() ? "   " + baseStep.rowsetInputSize() + "/" + baseStep.rowsetOutputSize() : "-";
     this.stopped = baseStep.isStopped();
     this.paused = baseStep.isPaused();
+
+    for ( Map.Entry<String, Long> metric : baseStep.getStepMetrics().entrySet() ) {
+      Long value = stepMetrics.get( metric.getKey() );
+      stepMetrics.put( metric.getKey(), value == null ? metric.getValue() : value + metric.getValue() );
+    }
   }
 
   public String getHTMLTableRow( boolean urlInStepname ) {
@@ -133,6 +144,17 @@ public class StepStatus {
       xml.append( XMLHandler.addTagValue( "stopped", stopped, false ) );
       xml.append( XMLHandler.addTagValue( "paused", paused, false ) );
 
+      if ( !stepMetrics.isEmpty() ) {
+        xml.append( XMLHandler.openTag( "metrics" ) );
+        for ( Map.Entry<String, Long> metric : stepMetrics.entrySet() ) {
+          xml.append( XMLHandler.openTag( "metric" ) );
+          xml.append( XMLHandler.addTagValue( "name", metric.getKey(), false ) );
+          xml.append( XMLHandler.addTagValue( "value", metric.getValue().longValue(), false ) );
+          xml.append( XMLHandler.closeTag( "metric" ) );
+        }
+        xml.append( XMLHandler.closeTag( "metrics" ) );
+      }
+
       if ( sampleRowMeta != null ) {
         xml.append( XMLHandler.openTag( "samples" ) );
         xml.append( sampleRowMeta.getMetaXML() );
@@ -174,6 +196,14 @@ public class StepStatus {
     stopped = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "stopped" ) );
     paused = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "paused" ) );
 
+    Node metricsNode = XMLHandler.getSubNode( node, "metrics" );
+    if ( metricsNode != null ) {
+      for ( Node metricNode : XMLHandler.getNodes( metricsNode, "metric" ) ) {
+        stepMetrics.put( XMLHandler.getTagValue( metricNode, "name" ),
+          Long.parseLong( XMLHandler.getTagValue( metricNode, "value" ) ) );
+      }
+    }
+
     Node samplesNode = XMLHandler.getSubNode( node, "samples" );
     if ( samplesNode != null ) {
       Node rowMetaNode = XMLHandler.getSubNode( samplesNode, RowMeta.XML_META_TAG );
@@ -491,6 +521,42 @@ public class StepStatus {
     this.sampleRowMeta = sampleRowMeta;
   }
 
+  /**
+   * @return the step specific counters by name
+   */
+  public Map<String, Long> getStepMetrics() {
+    return stepMetrics;
+  }
+
+  /**
+   * @param stepMetrics
+   *          the step specific counters by name
+   */
+  public void setStepMetrics( Map<String, Long> stepMetrics ) {
+    this.stepMetrics = stepMetrics;
+  }
+
+  /**
+   * @return the number of rows sent to every partition of the next step, an empty array if the output isn't
+   *         partitioned
+   */
+  public long[] getPartitionRows() {
+    String prefix = BaseStep.METRIC_PARTITION_ROWS;
+    long[] rows = new long[0];
+    for ( Map.Entry<String, Long> metric : stepMetrics.entrySet() ) {
+      if ( metric.getKey().startsWith( prefix ) ) {
+        int partitionNr = Const.toInt( metric.getKey().substring( prefix.length() ), -1 );
+        if ( partitionNr >= 0 ) {
+          if ( partitionNr >= rows.length ) {
+            rows = Arrays.copyOf( rows, partitionNr + 1 );
+          }
+          rows[ partitionNr ] = metric.getValue();
+        }
+      }
+    }
+    return rows;
+  }
+
   public List<Object[]> getSampleRows() {
     return sampleRows;
   }
@@ -0,0 +1,90 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.gui.PrimitiveGCInterface.EImage;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Distributes rows over the copies of the next step through a buffer shared by all those copies, see
+ * {@link org.pentaho.di.core.SharedQueueRowSet}. The copies pull the rows when they are ready for them, so a copy that
+ * is slowed down by a remote call or a cache miss doesn't build up a queue while the other copies are idle. Only use it
+ * for steps where the order of the rows doesn't matter.
+ * <p>
+ * Trans allocates the shared row sets for hops from a step with this distribution. When the row sets aren't shared (a
+ * partitioned target step for example) every row goes to the first row set that has room for it.
+ *
+ * @since 11.1
+ */
+@RowDistributionPlugin( code = WorkStealingRowDistribution.CODE, name = "Work stealing",
+  description = "Idle step copies take the next row from a buffer shared by all copies" )
+public class WorkStealingRowDistribution implements RowDistributionInterface {
+
+  public static final String CODE = "WorkStealing";
+
+  @Override
+  public String getCode() {
+    return CODE;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Work stealing";
+  }
+
+  @Override
+  public void distributeRow( RowMetaInterface rowMeta, Object[] row, StepInterface stepInterface )
+    throws KettleStepException {
+    List<RowSet> rowSets = stepInterface.getOutputRowSets();
+    int nrRowSets = rowSets.size();
+    if ( nrRowSets == 0 ) {
+      return;
+    }
+
+    // Start at a different row set for every row: this is stateless as the distribution is shared by all step copies
+    //
+    int start = (int) ( stepInterface.getLinesWritten() % nrRowSets );
+    for ( int i = 0; i < nrRowSets; i++ ) {
+      RowSet rowSet = rowSets.get( ( start + i ) % nrRowSets );
+      if ( rowSet.putRowWait( getRowMeta( rowSet, rowMeta ), row, 0, TimeUnit.MILLISECONDS ) ) {
+        return;
+      }
+    }
+
+    // Everything is full, wait for room
+    //
+    RowSet rowSet = rowSets.get( start );
+    RowMetaInterface toBeSent = getRowMeta( rowSet, rowMeta );
+    while ( !rowSet.putRow( toBeSent, row ) ) {
+      if ( stepInterface.isStopped() ) {
+        return;
+      }
+    }
+  }
+
+  private static RowMetaInterface getRowMeta( RowSet rowSet, RowMetaInterface rowMeta ) {
+    RowMetaInterface metaFromRowSet = rowSet.getRowMeta();
+    return metaFromRowSet == null ? rowMeta.clone() : metaFromRowSet;
+  }
+
+  @Override
+  public EImage getDistributionImage() {
+    return EImage.LOAD_BALANCE;
+  }
+}
@@ -19,6 +19,8 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileNotFoundException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ColumnVector;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueDataUtil;
@@ -62,6 +64,10 @@ public class Calculator extends BaseStep implements StepInterface {
     meta = (CalculatorMeta) smi;
     data = (CalculatorData) sdi;
 
+    if ( isRowBatchEnabled() ) {
+      return processRowBatch();
+    }
+
     Object[] r = getRow(); // get row, set busy!
     if ( r == null ) { // no more input to be expected...
       setOutputDone();
@@ -71,92 +77,294 @@ public class Calculator extends BaseStep implements StepInterface {
 
     if ( first ) {
       first = false;
-      data.setOutputRowMeta( getInputRowMeta().clone() );
-      meta.getFields( getTransMeta().getBowl(), data.getOutputRowMeta(), getStepname(), null, null, this, repository,
-        metaStore );
-
-      // get all metadata, including source rows and temporary fields.
-      data.setCalcRowMeta( meta.getAllFields( getInputRowMeta() ) );
-
-      data.setFieldIndexes( new FieldIndexes[meta.getCalculation().length] );
-      List<Integer> tempIndexes = new ArrayList<Integer>();
-
-      // Calculate the indexes of the values and arguments in the target data or temporary data
-      // We do this in advance to save time later on.
-      //
-      //CHECKSTYLE:Indentation:OFF
-      for ( int i = 0; i < meta.getCalculation().length; i++ ) {
-        CalculatorMetaFunction function = meta.getCalculation()[i];
-        data.getFieldIndexes()[i] = new FieldIndexes();
-
-        if ( !Utils.isEmpty( function.getFieldName() ) ) {
-          data.getFieldIndexes()[i].indexName = data.getCalcRowMeta().indexOfValue( function.getFieldName() );
-          if ( data.getFieldIndexes()[i].indexName < 0 ) {
-            // Nope: throw an exception
-            throw new KettleStepException( BaseMessages.getString(
-              PKG, "Calculator.Error.UnableFindField", function.getFieldName(), "" + ( i + 1 ) ) );
+      initCalculation();
+    }
+
+    if ( log.isRowLevel() ) {
+      logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
+        + getLinesRead() + " : " + getInputRowMeta().getString( r ) );
+    }
+
+    return calcAndPutRow( getInputRowMeta(), r );
+  }
+
+  /**
+   * Calculates the new fields for a whole batch of rows. Copies and additions, subtractions and multiplications of
+   * integers or numbers are done column by column. Any other calculation makes the step fall back to calculating the
+   * rows one by one.
+   */
+  private boolean processRowBatch() throws KettleException {
+    RowBatch batch = getRowBatch();
+    if ( batch == null ) { // no more input to be expected...
+      setOutputDone();
+      data.clearValuesMetaMapping();
+      return false;
+    }
+
+    if ( first ) {
+      first = false;
+      initCalculation();
+      data.setVectorized( isVectorizable() );
+      if ( data.isVectorized() ) {
+        boolean[] removed = new boolean[data.getCalcRowMeta().size()];
+        for ( int index : data.getTempIndexes() ) {
+          removed[index] = true;
+        }
+        int[] outputIndexes = new int[removed.length - data.getTempIndexes().length];
+        for ( int i = 0, o = 0; i < removed.length; i++ ) {
+          if ( !removed[i] ) {
+            outputIndexes[o++] = i;
           }
-        } else {
-          throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.Error.NoNameField", ""
-            + ( i + 1 ) ) );
         }
+        data.setOutputIndexes( outputIndexes );
+      }
+    }
 
-        if ( !Utils.isEmpty( function.getFieldA() ) ) {
-          if ( function.getCalcType() != CalculatorMetaFunction.CALC_CONSTANT ) {
-            data.getFieldIndexes()[i].indexA = data.getCalcRowMeta().indexOfValue( function.getFieldA() );
-            if ( data.getFieldIndexes()[i].indexA < 0 ) {
-              // Nope: throw an exception
-              throw new KettleStepException( "Unable to find the first argument field '"
-                + function.getFieldName() + " for calculation #" + ( i + 1 ) );
-            }
-          } else {
-            data.getFieldIndexes()[i].indexA = -1;
-          }
-        } else {
-          throw new KettleStepException( "There is no first argument specified for calculated field #" + ( i + 1 ) );
+    if ( !data.isVectorized() ) {
+      for ( int i = 0; i < batch.size(); i++ ) {
+        if ( !calcAndPutRow( batch.getRowMeta(), batch.getRow( i ) ) ) {
+          return false;
         }
+      }
+      return true;
+    }
 
-        if ( !Utils.isEmpty( function.getFieldB() ) ) {
-          data.getFieldIndexes()[i].indexB = data.getCalcRowMeta().indexOfValue( function.getFieldB() );
-          if ( data.getFieldIndexes()[i].indexB < 0 ) {
-            // Nope: throw an exception
-            throw new KettleStepException( "Unable to find the second argument field '"
-              + function.getFieldName() + " for calculation #" + ( i + 1 ) );
+    putRowBatch( data.getOutputRowMeta(), calcBatch( batch ) );
+
+    if ( checkFeedback( getLinesRead(), batch.size() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if every calculation is a copy or integer/number arithmetic that gives the same result when it's done
+   *         on column vectors.
+   */
+  private boolean isVectorizable() {
+    RowMetaInterface calcRowMeta = data.getCalcRowMeta();
+    int inputSize = getInputRowMeta().size();
+
+    for ( int i = 0; i < meta.getCalculation().length; i++ ) {
+      CalculatorMetaFunction fn = meta.getCalculation()[i];
+      FieldIndexes indexes = data.getFieldIndexes()[i];
+      if ( indexes.indexA < 0 ) {
+        return false;
+      }
+      ValueMetaInterface targetMeta = calcRowMeta.getValueMeta( inputSize + i );
+      ValueMetaInterface metaA = calcRowMeta.getValueMeta( indexes.indexA );
+      if ( metaA.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL
+        || metaA.getType() != targetMeta.getType() ) {
+        return false;
+      }
+
+      switch ( fn.getCalcType() ) {
+        case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+          break;
+        case CalculatorMetaFunction.CALC_ADD:
+        case CalculatorMetaFunction.CALC_SUBTRACT:
+        case CalculatorMetaFunction.CALC_MULTIPLY:
+          if ( indexes.indexB < 0 ) {
+            return false;
+          }
+          int kind = ColumnVector.getKind( metaA );
+          ValueMetaInterface metaB = calcRowMeta.getValueMeta( indexes.indexB );
+          if ( ( kind != ColumnVector.KIND_LONG && kind != ColumnVector.KIND_DOUBLE )
+            || metaB.getType() != metaA.getType() || ColumnVector.getKind( metaB ) != kind
+            || ColumnVector.getKind( targetMeta ) != kind ) {
+            return false;
+          }
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Does the calculations on the columns of a batch. Calculations can use the results of earlier calculations as
+   * arguments, so the new columns are kept in the same layout as the calculation row metadata.
+   */
+  private RowBatch calcBatch( RowBatch batch ) {
+    int inputSize = batch.getColumnCount();
+    int size = batch.size();
+
+    ColumnVector[] calcColumns = new ColumnVector[data.getCalcRowMeta().size()];
+    for ( int c = 0; c < inputSize; c++ ) {
+      calcColumns[c] = batch.getColumn( c );
+    }
+
+    for ( int i = 0; i < meta.getCalculation().length; i++ ) {
+      CalculatorMetaFunction fn = meta.getCalculation()[i];
+      FieldIndexes indexes = data.getFieldIndexes()[i];
+      ColumnVector columnA = calcColumns[indexes.indexA];
+
+      if ( fn.getCalcType() == CalculatorMetaFunction.CALC_COPY_OF_FIELD ) {
+        calcColumns[inputSize + i] = columnA;
+      } else {
+        calcColumns[inputSize + i] = calcArithmetic( fn.getCalcType(),
+          data.getCalcRowMeta().getValueMeta( inputSize + i ), columnA, calcColumns[indexes.indexB], size );
+      }
+    }
+
+    int[] outputIndexes = data.getOutputIndexes();
+    ColumnVector[] outputColumns = new ColumnVector[outputIndexes.length];
+    for ( int i = 0; i < outputIndexes.length; i++ ) {
+      outputColumns[i] = calcColumns[outputIndexes[i]];
+    }
+    return RowBatch.of( data.getOutputRowMeta(), outputColumns, size );
+  }
+
+  /**
+   * A + B, A - B or A * B on two integer or two number columns. Just like ValueDataUtil, the result is null if one of
+   * the arguments is null.
+   */
+  private static ColumnVector calcArithmetic( int calcType, ValueMetaInterface targetMeta, ColumnVector a,
+    ColumnVector b, int size ) {
+    ColumnVector result = new ColumnVector( targetMeta, size );
+
+    if ( result.getKind() == ColumnVector.KIND_LONG ) {
+      switch ( calcType ) {
+        case CalculatorMetaFunction.CALC_ADD:
+          for ( int r = 0; r < size; r++ ) {
+            result.setLong( r, a.getLong( r ) + b.getLong( r ) );
+          }
+          break;
+        case CalculatorMetaFunction.CALC_SUBTRACT:
+          for ( int r = 0; r < size; r++ ) {
+            result.setLong( r, a.getLong( r ) - b.getLong( r ) );
           }
+          break;
+        default:
+          for ( int r = 0; r < size; r++ ) {
+            result.setLong( r, a.getLong( r ) * b.getLong( r ) );
+          }
+          break;
+      }
+    } else {
+      switch ( calcType ) {
+        case CalculatorMetaFunction.CALC_ADD:
+          for ( int r = 0; r < size; r++ ) {
+            result.setDouble( r, a.getDouble( r ) + b.getDouble( r ) );
+          }
+          break;
+        case CalculatorMetaFunction.CALC_SUBTRACT:
+          for ( int r = 0; r < size; r++ ) {
+            result.setDouble( r, a.getDouble( r ) - b.getDouble( r ) );
+          }
+          break;
+        default:
+          for ( int r = 0; r < size; r++ ) {
+            result.setDouble( r, a.getDouble( r ) * b.getDouble( r ) );
+          }
+          break;
+      }
+    }
+
+    if ( a.hasNulls() || b.hasNulls() ) {
+      for ( int r = 0; r < size; r++ ) {
+        if ( a.isNull( r ) || b.isNull( r ) ) {
+          result.setNull( r );
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Determines the output and calculation row metadata and the indexes of the values and arguments.
+   */
+  private void initCalculation() throws KettleStepException {
+    data.setOutputRowMeta( getInputRowMeta().clone() );
+    meta.getFields( getTransMeta().getBowl(), data.getOutputRowMeta(), getStepname(), null, null, this, repository,
+      metaStore );
+
+    // get all metadata, including source rows and temporary fields.
+    data.setCalcRowMeta( meta.getAllFields( getInputRowMeta() ) );
+
+    data.setFieldIndexes( new FieldIndexes[meta.getCalculation().length] );
+    List<Integer> tempIndexes = new ArrayList<Integer>();
+
+    // Calculate the indexes of the values and arguments in the target data or temporary data
+    // We do this in advance to save time later on.
+    //
+    //CHECKSTYLE:Indentation:OFF
+    for ( int i = 0; i < meta.getCalculation().length; i++ ) {
+      CalculatorMetaFunction function = meta.getCalculation()[i];
+      data.getFieldIndexes()[i] = new FieldIndexes();
+
+      if ( !Utils.isEmpty( function.getFieldName() ) ) {
+        data.getFieldIndexes()[i].indexName = data.getCalcRowMeta().indexOfValue( function.getFieldName() );
+        if ( data.getFieldIndexes()[i].indexName < 0 ) {
+          // Nope: throw an exception
+          throw new KettleStepException( BaseMessages.getString(
+            PKG, "Calculator.Error.UnableFindField", function.getFieldName(), "" + ( i + 1 ) ) );
         }
-        data.getFieldIndexes()[i].indexC = -1;
-        if ( !Utils.isEmpty( function.getFieldC() ) ) {
-          data.getFieldIndexes()[i].indexC = data.getCalcRowMeta().indexOfValue( function.getFieldC() );
-          if ( data.getFieldIndexes()[i].indexC < 0 ) {
+      } else {
+        throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.Error.NoNameField", ""
+          + ( i + 1 ) ) );
+      }
+
+      if ( !Utils.isEmpty( function.getFieldA() ) ) {
+        if ( function.getCalcType() != CalculatorMetaFunction.CALC_CONSTANT ) {
+          data.getFieldIndexes()[i].indexA = data.getCalcRowMeta().indexOfValue( function.getFieldA() );
+          if ( data.getFieldIndexes()[i].indexA < 0 ) {
             // Nope: throw an exception
-            throw new KettleStepException( "Unable to find the third argument field '"
+            throw new KettleStepException( "Unable to find the first argument field '"
               + function.getFieldName() + " for calculation #" + ( i + 1 ) );
           }
+        } else {
+          data.getFieldIndexes()[i].indexA = -1;
         }
+      } else {
+        throw new KettleStepException( "There is no first argument specified for calculated field #" + ( i + 1 ) );
+      }
 
-        if ( function.isRemovedFromResult() ) {
-          tempIndexes.add( getInputRowMeta().size() + i );
+      if ( !Utils.isEmpty( function.getFieldB() ) ) {
+        data.getFieldIndexes()[i].indexB = data.getCalcRowMeta().indexOfValue( function.getFieldB() );
+        if ( data.getFieldIndexes()[i].indexB < 0 ) {
+          // Nope: throw an exception
+          throw new KettleStepException( "Unable to find the second argument field '"
+            + function.getFieldName() + " for calculation #" + ( i + 1 ) );
+        }
+      }
+      data.getFieldIndexes()[i].indexC = -1;
+      if ( !Utils.isEmpty( function.getFieldC() ) ) {
+        data.getFieldIndexes()[i].indexC = data.getCalcRowMeta().indexOfValue( function.getFieldC() );
+        if ( data.getFieldIndexes()[i].indexC < 0 ) {
+          // Nope: throw an exception
+          throw new KettleStepException( "Unable to find the third argument field '"
+            + function.getFieldName() + " for calculation #" + ( i + 1 ) );
         }
       }
 
-      // Convert temp indexes to int[]
-      data.setTempIndexes( new int[tempIndexes.size()] );
-      for ( int i = 0; i < data.getTempIndexes().length; i++ ) {
-        data.getTempIndexes()[i] = tempIndexes.get( i );
+      if ( function.isRemovedFromResult() ) {
+        tempIndexes.add( getInputRowMeta().size() + i );
       }
     }
 
-    if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
-        + getLinesRead() + " : " + getInputRowMeta().getString( r ) );
+    // Convert temp indexes to int[]
+    data.setTempIndexes( new int[tempIndexes.size()] );
+    for ( int i = 0; i < data.getTempIndexes().length; i++ ) {
+      data.getTempIndexes()[i] = tempIndexes.get( i );
     }
+  }
 
+  /**
+   * Calculates the new fields of a single row and passes the result on.
+   *
+   * @return false if the step has to stop
+   */
+  private boolean calcAndPutRow( RowMetaInterface inputRowMeta, Object[] r ) throws KettleException {
     try {
-      Object[] row = calcFields( getInputRowMeta(), r );
+      Object[] row = calcFields( inputRowMeta, r );
       putRow( data.getOutputRowMeta(), row ); // copy row to possible alternate rowset(s).
 
       if ( log.isRowLevel() ) {
-        logRowlevel( "Wrote row #" + getLinesWritten() + " : " + getInputRowMeta().getString( r ) );
+        logRowlevel( "Wrote row #" + getLinesWritten() + " : " + inputRowMeta.getString( r ) );
       }
       if ( checkFeedback( getLinesRead() ) ) {
         if ( log.isBasic() ) {
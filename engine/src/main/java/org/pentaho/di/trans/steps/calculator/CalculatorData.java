@@ -35,6 +35,12 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
 
   private int[] tempIndexes;
 
+  /** True if all calculations can be done on whole columns of a row batch */
+  private boolean vectorized;
+
+  /** The indexes of the calculation fields that end up in the output, used when processing row batches */
+  private int[] outputIndexes;
+
   private final Map<Integer, ValueMetaInterface> resultMetaMapping;
 
   public CalculatorData() {
@@ -74,6 +80,22 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
     this.tempIndexes = tempIndexes;
   }
 
+  public boolean isVectorized() {
+    return vectorized;
+  }
+
+  public void setVectorized( boolean vectorized ) {
+    this.vectorized = vectorized;
+  }
+
+  public int[] getOutputIndexes() {
+    return outputIndexes;
+  }
+
+  public void setOutputIndexes( int[] outputIndexes ) {
+    this.outputIndexes = outputIndexes;
+  }
+
   public ValueMetaInterface getValueMetaFor( int resultType, String name ) throws KettlePluginException {
     // don't need any synchronization as data instance belongs only to one step instance
     ValueMetaInterface meta = resultMetaMapping.get( resultType );
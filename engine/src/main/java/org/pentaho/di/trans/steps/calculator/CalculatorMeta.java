@@ -35,6 +35,7 @@ import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.RowBatchCapable;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepHelperInterface;
 import org.pentaho.di.trans.step.StepInterface;
@@ -48,7 +49,7 @@ import org.w3c.dom.Node;
  *
  * @since 08 september 2005
  */
-public class CalculatorMeta extends BaseStepMeta implements StepMetaInterface {
+public class CalculatorMeta extends BaseStepMeta implements StepMetaInterface, RowBatchCapable {
   private static Class<?> PKG = CalculatorMeta.class; // for i18n purposes, needed by Translator2!!
 
   /** The calculations to be performed */
@@ -257,4 +258,14 @@ public class CalculatorMeta extends BaseStepMeta implements StepMetaInterface {
   public StepHelperInterface getStepHelperInterface() {
     return new CalculatorHelper();
   }
+
+  @Override
+  public boolean isReadingRowBatches() {
+    return true;
+  }
+
+  @Override
+  public boolean isWritingRowBatches() {
+    return true;
+  }
 }
@@ -23,6 +23,8 @@ import org.pentaho.di.core.CheckResult;
 import org.pentaho.di.core.CheckResultInterface;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.ColumnVector;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -224,6 +226,10 @@ public class Constant extends BaseStep implements StepInterface {
 
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    if ( isRowBatchEnabled() ) {
+      return processRowBatch();
+    }
+
     Object[] r = null;
     r = getRow();
 
@@ -261,6 +267,41 @@ public class Constant extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Adds the constants to a whole batch of rows: every constant becomes a repeating column so nothing is copied per row.
+   */
+  private boolean processRowBatch() throws KettleException {
+    RowBatch batch = getRowBatch();
+    if ( batch == null ) { // no more rows to be expected from the previous step(s)
+      setOutputDone();
+      return false;
+    }
+
+    if ( data.firstRow ) {
+      data.firstRow = false;
+      data.outputMeta = getInputRowMeta().clone();
+      meta.getFields( getTransMeta().getBowl(), data.outputMeta, getStepname(), null, null, this, repository,
+        metaStore );
+
+      RowMetaInterface constantsMeta = data.getConstants().getRowMeta();
+      Object[] constantsData = data.getConstants().getData();
+      data.constantColumns = new ColumnVector[constantsMeta.size()];
+      for ( int i = 0; i < data.constantColumns.length; i++ ) {
+        data.constantColumns[i] = ColumnVector.repeating( constantsMeta.getValueMeta( i ), constantsData[i] );
+      }
+    }
+
+    putRowBatch( data.outputMeta, batch.addColumns( data.outputMeta, data.constantColumns ) );
+
+    if ( checkFeedback( getLinesWritten(), batch.size() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "Constant.Log.LineNr", Long.toString( getLinesWritten() ) ) );
+      }
+    }
+
+    return true;
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (ConstantMeta) smi;
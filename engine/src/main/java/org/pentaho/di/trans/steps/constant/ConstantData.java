@@ -20,6 +20,7 @@ import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 
 import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.ColumnVector;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -37,6 +38,9 @@ public class ConstantData extends BaseStepData implements StepDataInterface {
   public RowMetaAndData constants;
   RowMetaInterface outputMeta;
 
+  /** The constants as repeating column vectors, used when processing row batches */
+  ColumnVector[] constantColumns;
+
   public boolean firstRow;
 
   public ConstantData() {
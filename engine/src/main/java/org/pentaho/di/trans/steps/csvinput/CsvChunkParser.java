@@ -0,0 +1,301 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits the rows of a single byte encoded CSV file into fields, scanning 8 bytes at a time for the delimiter,
+ * enclosure and line end characters instead of testing every byte on its own.
+ * <p>
+ * Every byte of a long is compared with the searched character at once (SIMD within a register): XOR-ing the long with
+ * the character repeated 8 times turns matching bytes into zero bytes, and the classic "has zero byte" bit trick flags
+ * those. The lowest flagged byte is the first match, the other flags can be false positives which are never used.
+ * <p>
+ * The rows are split the same way the regular Csv input reader does it: enclosures are only recognized at the start of
+ * a field, doubled enclosures inside an enclosed field are escaped, a line ends at CR, LF or CR LF and fields after the
+ * last expected field are skipped. Line ends inside enclosed fields are kept in the field.
+ *
+ * @since 11.1
+ */
+public class CsvChunkParser {
+
+  /** Returned by {@link #parseRow(ByteBuffer, int, int, boolean, byte[][])} when the row doesn't end before the limit */
+  public static final int INCOMPLETE = -1;
+
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+
+  private final byte delimiter;
+  private final boolean enclosed;
+  private final byte enclosure;
+  private final int nrFields;
+
+  private final long delimiterPattern;
+  private final long enclosurePattern;
+  private final long crPattern;
+  private final long lfPattern;
+
+  private boolean[] skippedFields;
+
+  /**
+   * @param delimiter
+   *          the single byte field delimiter
+   * @param enclosure
+   *          the single byte enclosure or null if fields are not enclosed
+   * @param nrFields
+   *          the number of fields to read per row
+   */
+  public CsvChunkParser( byte delimiter, byte[] enclosure, int nrFields ) {
+    this.delimiter = delimiter;
+    this.enclosed = enclosure != null && enclosure.length > 0;
+    this.enclosure = enclosed ? enclosure[0] : 0;
+    this.nrFields = nrFields;
+
+    delimiterPattern = pattern( delimiter );
+    enclosurePattern = pattern( this.enclosure );
+    crPattern = pattern( CR );
+    lfPattern = pattern( LF );
+  }
+
+  /**
+   * @param delimiter
+   *          the field delimiter in the file encoding
+   * @param enclosure
+   *          the enclosure in the file encoding, null if there is none
+   * @param bytesPerCharacter
+   *          the number of bytes per character of the file encoding
+   * @return true if files with this format can be split by this parser
+   */
+  public static boolean isSupported( byte[] delimiter, byte[] enclosure, int bytesPerCharacter ) {
+    return bytesPerCharacter == 1 && delimiter != null && delimiter.length == 1
+      && ( enclosure == null || enclosure.length <= 1 );
+  }
+
+  public int getNrFields() {
+    return nrFields;
+  }
+
+  /**
+   * @param skippedFields
+   *          true for the fields that are never used: they are returned as null without copying them. Null to copy all
+   *          the fields. Set this before the parser is shared between threads.
+   */
+  public void setSkippedFields( boolean[] skippedFields ) {
+    this.skippedFields = skippedFields;
+  }
+
+  private boolean isSkipped( int fieldIndex ) {
+    return skippedFields != null && fieldIndex < skippedFields.length && skippedFields[fieldIndex];
+  }
+
+  private static long pattern( byte b ) {
+    return ( b & 0xFFL ) * ONES;
+  }
+
+  /**
+   * @return a long with the high bit set in every byte of the word that is zero, the lowest one is exact
+   */
+  private static long zeroBytes( long word ) {
+    return ( word - ONES ) & ~word & HIGH_BITS;
+  }
+
+  /**
+   * Find the first byte in the given range that matches one of the given patterns. The buffer has to be in little
+   * endian order so that the lowest byte of a long is the first one in the buffer.
+   *
+   * @return the position of the first match or limit if nothing matches
+   */
+  static int indexOf( ByteBuffer buffer, int from, int limit, long p1, long p2, long p3 ) {
+    int i = from;
+    while ( i + Long.BYTES <= limit ) {
+      long word = buffer.getLong( i );
+      long found = zeroBytes( word ^ p1 ) | zeroBytes( word ^ p2 ) | zeroBytes( word ^ p3 );
+      if ( found != 0 ) {
+        return i + ( Long.numberOfTrailingZeros( found ) >>> 3 );
+      }
+      i += Long.BYTES;
+    }
+    for ( ; i < limit; i++ ) {
+      long b = buffer.get( i ) & 0xFFL;
+      if ( b == ( p1 & 0xFF ) || b == ( p2 & 0xFF ) || b == ( p3 & 0xFF ) ) {
+        return i;
+      }
+    }
+    return limit;
+  }
+
+  /**
+   * Find the position right after the first line end at or after the given position.
+   *
+   * @return the position after the line end, limit if there is no line end before the limit and it is the end of the
+   *         data or {@link #INCOMPLETE} if more data is needed to tell.
+   */
+  public int skipLine( ByteBuffer buffer, int from, int limit, boolean endOfData ) {
+    int lineEnd = indexOf( buffer, from, limit, crPattern, lfPattern, lfPattern );
+    if ( lineEnd >= limit ) {
+      return endOfData ? limit : INCOMPLETE;
+    }
+    return skipLineEnd( buffer, lineEnd, limit, endOfData );
+  }
+
+  private static int skipLineEnd( ByteBuffer buffer, int lineEnd, int limit, boolean endOfData ) {
+    if ( buffer.get( lineEnd ) == CR ) {
+      if ( lineEnd + 1 >= limit ) {
+        return endOfData ? limit : INCOMPLETE;
+      }
+      if ( buffer.get( lineEnd + 1 ) == LF ) {
+        return lineEnd + 2;
+      }
+    }
+    return lineEnd + 1;
+  }
+
+  /**
+   * Split the row that starts at the given position into fields.
+   *
+   * @param buffer
+   *          the data, in little endian order
+   * @param pos
+   *          the position of the first byte of the row
+   * @param limit
+   *          the position after the last available byte
+   * @param endOfData
+   *          true if there is no more data after the limit
+   * @param fields
+   *          receives the fields of the row, at least as long as the number of fields. Missing fields are set to null.
+   * @return the position of the next row or {@link #INCOMPLETE} if the row doesn't end before the limit
+   */
+  public int parseRow( ByteBuffer buffer, int pos, int limit, boolean endOfData, byte[][] fields ) {
+    ByteBuffer view = buffer.duplicate(); // for bulk copies without touching the position of the shared buffer
+    int fieldIndex = 0;
+    int p = pos;
+    while ( fieldIndex < nrFields ) {
+      if ( p >= limit ) {
+        if ( !endOfData ) {
+          return INCOMPLETE;
+        }
+        // A delimiter right before the end of the file: no more fields
+        clear( fields, fieldIndex );
+        return limit;
+      }
+
+      int end;
+      byte[] field;
+      if ( enclosed && buffer.get( p ) == enclosure ) {
+        int closing = p + 1;
+        int escaped = 0;
+        while ( true ) {
+          closing = indexOf( buffer, closing, limit, enclosurePattern, enclosurePattern, enclosurePattern );
+          if ( closing >= limit ) {
+            break;
+          }
+          if ( closing + 1 >= limit ) {
+            if ( !endOfData ) {
+              return INCOMPLETE;
+            }
+            break;
+          }
+          if ( buffer.get( closing + 1 ) != enclosure ) {
+            break;
+          }
+          escaped++;
+          closing += 2;
+        }
+        if ( closing >= limit ) {
+          if ( !endOfData ) {
+            return INCOMPLETE;
+          }
+          // Enclosure without end: keep everything that is left, as-is
+          fields[fieldIndex] = isSkipped( fieldIndex ) ? null : copy( view, p, limit );
+          clear( fields, fieldIndex + 1 );
+          return limit;
+        }
+        // Anything between the closing enclosure and the delimiter is kept, like the regular reader does
+        end = indexOf( buffer, closing + 1, limit, delimiterPattern, crPattern, lfPattern );
+        if ( end >= limit && !endOfData ) {
+          return INCOMPLETE;
+        }
+        if ( isSkipped( fieldIndex ) ) {
+          field = null;
+        } else {
+          field = copy( view, p + 1, end - 1 );
+          if ( escaped > 0 ) {
+            field = removeEscapedEnclosures( field, escaped );
+          }
+        }
+      } else {
+        end = indexOf( buffer, p, limit, delimiterPattern, crPattern, lfPattern );
+        if ( end >= limit && !endOfData ) {
+          return INCOMPLETE;
+        }
+        field = isSkipped( fieldIndex ) ? null : copy( view, p, end );
+      }
+      fields[fieldIndex++] = field;
+
+      if ( end >= limit ) {
+        clear( fields, fieldIndex );
+        return limit;
+      }
+      if ( buffer.get( end ) != delimiter ) {
+        clear( fields, fieldIndex );
+        return skipLineEnd( buffer, end, limit, endOfData );
+      }
+      p = end + 1;
+    }
+
+    // Skip the fields we don't need and the line end, including the empty lines right after it
+    int next = skipLine( buffer, p, limit, endOfData );
+    while ( next != INCOMPLETE && next < limit ) {
+      byte b = buffer.get( next );
+      if ( b != CR && b != LF ) {
+        break;
+      }
+      next++;
+    }
+    if ( next >= limit && !endOfData ) {
+      return INCOMPLETE;
+    }
+    return next;
+  }
+
+  private static void clear( byte[][] fields, int from ) {
+    for ( int i = from; i < fields.length; i++ ) {
+      fields[i] = null;
+    }
+  }
+
+  private static byte[] copy( ByteBuffer view, int from, int to ) {
+    int length = Math.max( 0, to - from );
+    byte[] bytes = new byte[length];
+    view.position( from );
+    view.get( bytes );
+    return bytes;
+  }
+
+  private byte[] removeEscapedEnclosures( byte[] field, int nrEscaped ) {
+    byte[] result = new byte[field.length - nrEscaped];
+    int resultIndex = 0;
+    for ( int i = 0; i < field.length && resultIndex < result.length; i++ ) {
+      result[resultIndex++] = field[i];
+      if ( field[i] == enclosure && i + 1 < field.length && field[i + 1] == enclosure ) {
+        i++;
+      }
+    }
+    return result;
+  }
+}
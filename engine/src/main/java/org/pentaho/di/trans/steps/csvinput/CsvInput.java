@@ -21,6 +21,8 @@ import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.input.BOMInputStream;
@@ -44,6 +46,7 @@ import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.FieldUsageInterface;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
@@ -93,6 +96,20 @@ public class CsvInput extends BaseStep implements StepInterface {
       //
       data.parallel = meta.isRunningInParallel() && data.totalNumberOfSteps > 1;
 
+      // Optionally parse the files on a number of threads
+      //
+      data.scanThreads = getScanThreads();
+      if ( data.scanThreads > 0 ) {
+        data.scanChunkSize =
+          Const.toLong( getVariable( Const.KETTLE_CSV_INPUT_SCAN_CHUNK_SIZE ), MappedCsvReader.DEFAULT_CHUNK_SIZE );
+        final String threadName = getStepname() + "." + getCopy() + " scan";
+        data.scanExecutor = Executors.newFixedThreadPool( data.scanThreads, runnable -> {
+          Thread thread = new Thread( runnable, threadName );
+          thread.setDaemon( true );
+          return thread;
+        } );
+      }
+
       // The conversion logic for when the lazy conversion is turned of is simple:
       // Pretend it's a lazy conversion object anyway and get the native type during conversion.
       //
@@ -100,6 +117,9 @@ public class CsvInput extends BaseStep implements StepInterface {
       for ( ValueMetaInterface valueMeta : data.convertRowMeta.getValueMetaList() ) {
         valueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
       }
+      applyDownstreamFieldUsage();
+      applyFastValueConversion( data.outputRowMeta );
+      applyFastValueConversion( data.convertRowMeta );
 
       // Calculate the indexes for the filename and row number fields
       //
@@ -142,7 +162,8 @@ public class CsvInput extends BaseStep implements StepInterface {
     }
 
     try {
-      Object[] outputRowData = readOneRow( false, false ); // get row, set busy!
+      Object[] outputRowData =
+        data.mappedReader != null ? readMappedRow() : readOneRow( false, false ); // get row, set busy!
       // no more input to be expected...
       if ( outputRowData == null ) {
         if ( openNextFile() ) {
@@ -185,6 +206,70 @@ public class CsvInput extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Don't read the fields that none of the next steps uses and keep the fields that are only copied, to a file for
+   * example, as binary strings. Conversion errors have to be sent to the error handling of this step so nothing is
+   * changed when the step handles errors. Row listeners see all the fields of the rows this step writes, so nothing is
+   * changed either when they are attached.
+   */
+  private void applyDownstreamFieldUsage() {
+    data.skippedFields = null;
+    data.binaryFields = null;
+    Map<String, Integer> usage = getTrans() == null ? null : getTrans().getDownstreamFieldUsage( getStepname() );
+    if ( usage == null || getStepMeta().isDoingErrorHandling() || !getRowListeners().isEmpty() ) {
+      return;
+    }
+    int nrSkipped = 0;
+    int nrBinary = 0;
+    boolean[] skipped = new boolean[data.outputRowMeta.size()];
+    boolean[] binary = new boolean[data.outputRowMeta.size()];
+    for ( int i = 0; i < meta.getInputFields().length; i++ ) {
+      ValueMetaInterface valueMeta = data.outputRowMeta.getValueMeta( i );
+      Integer fieldUsage = usage.get( valueMeta.getName() );
+      if ( fieldUsage == null ) {
+        continue;
+      }
+      if ( fieldUsage == FieldUsageInterface.USAGE_NONE ) {
+        skipped[i] = true;
+        nrSkipped++;
+      } else if ( fieldUsage == FieldUsageInterface.USAGE_COPY && !meta.isLazyConversionActive() ) {
+        valueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+        binary[i] = true;
+        nrBinary++;
+      }
+    }
+    if ( nrSkipped > 0 ) {
+      data.skippedFields = skipped;
+    }
+    if ( nrBinary > 0 ) {
+      data.binaryFields = binary;
+    }
+    if ( log.isDetailed() && nrSkipped + nrBinary > 0 ) {
+      logDetailed( nrSkipped + " fields are not used by the next steps and are not read, " + nrBinary
+        + " fields are only copied and are not converted" );
+    }
+  }
+
+  /**
+   * @return the number of threads to parse the files with or 0 if the files are read on the step thread
+   */
+  private int getScanThreads() {
+    int threads = Const.toInt( getVariable( Const.KETTLE_CSV_INPUT_SCAN_THREADS ), 0 );
+    if ( threads <= 0 ) {
+      return 0;
+    }
+    if ( data.parallel || meta.isNewlinePossibleInFields()
+      || meta.getFileFormatTypeNr() == TextFileInputMeta.FILE_FORMAT_DOS
+      || !CsvChunkParser.isSupported( data.delimiter, data.enclosure, data.encodingType.getLength() ) ) {
+      if ( log.isDetailed() ) {
+        logDetailed( "The file format or the step options do not allow parsing on multiple threads, reading the file "
+          + "on the step thread" );
+      }
+      return 0;
+    }
+    return threads;
+  }
+
   private void prepareToRunInParallel() throws KettleException {
     try {
       // At this point it doesn't matter if we have 1 or more files.
@@ -308,6 +393,19 @@ public class CsvInput extends BaseStep implements StepInterface {
       logError( "Error closing file input stream", e );
     }
 
+    try {
+      if ( data.mappedReader != null ) {
+        data.mappedReader.close();
+        data.mappedReader = null;
+      }
+    } catch ( Exception e ) {
+      logError( "Error closing memory mapped file", e );
+    }
+    if ( data.scanExecutor != null ) {
+      data.scanExecutor.shutdownNow();
+      data.scanExecutor = null;
+    }
+
     super.dispose( smi, sdi );
   }
 
@@ -341,13 +439,31 @@ public class CsvInput extends BaseStep implements StepInterface {
 
       int bomSize = getBOMSize( vfsFilename );
 
-      data.fis = new FileInputStream( vfsFilename );
-      if ( 0 != bomSize ) {
-        data.fis.skip( bomSize );
-      }
+      if ( data.scanThreads > 0 ) {
+        // The header row is skipped by the reader
+        //
+        CsvChunkParser parser = new CsvChunkParser( data.delimiter[ 0 ], data.enclosure, data.fieldsMapping.size() );
+        if ( data.skippedFields != null ) {
+          boolean[] skippedFileFields = new boolean[data.fieldsMapping.size()];
+          for ( int i = 0; i < skippedFileFields.length; i++ ) {
+            int fieldIndex = data.fieldsMapping.fieldMetaIndex( i );
+            skippedFileFields[i] = fieldIndex == FieldsMapping.FIELD_DOES_NOT_EXIST || data.skippedFields[fieldIndex];
+          }
+          parser.setSkippedFields( skippedFileFields );
+        }
+        data.mappedReader = new MappedCsvReader( vfsFilename, bomSize, meta.isHeaderPresent(), parser,
+          data.fieldsMapping, meta.isLazyConversionActive() ? null : data.convertRowMeta, data.outputRowMeta.size(),
+          data.scanExecutor, data.scanThreads, data.scanChunkSize );
+        data.mappedReader.setBinaryFields( data.binaryFields );
+      } else {
+        data.fis = new FileInputStream( vfsFilename );
+        if ( 0 != bomSize ) {
+          data.fis.skip( bomSize );
+        }
 
-      data.fc = data.fis.getChannel();
-      data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
+        data.fc = data.fis.getChannel();
+        data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
+      }
 
       // If we are running in parallel and we need to skip bytes in the first file, let's do so here.
       //
@@ -395,7 +511,9 @@ public class CsvInput extends BaseStep implements StepInterface {
       if ( meta.isHeaderPresent() ) {
         // Standard flat file : skip header
         if ( !data.parallel || data.bytesToSkipInFirstFile <= 0 ) {
-          readOneRow( true, false ); // skip this row.
+          if ( data.mappedReader == null ) {
+            readOneRow( true, false ); // skip this row.
+          }
           logBasic( BaseMessages.getString( PKG, "CsvInput.Log.HeaderRowSkipped", data.filenames[ data.filenr - 1 ] ) );
           if ( data.fieldsMapping.size() == 0 ) {
             return false;
@@ -549,6 +667,48 @@ public class CsvInput extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Get the next row parsed by the scan threads.
+   *
+   * @return the row or null when all the rows of the file were read
+   * @throws KettleException
+   */
+  private Object[] readMappedRow() throws KettleException {
+    Object[] outputRowData = data.mappedReader.nextRow();
+    if ( outputRowData == null ) {
+      if ( log.isDetailed() && data.mappedReader.getChunksParsedAgain() > 0 ) {
+        logDetailed( data.mappedReader.getChunksParsedAgain()
+          + " chunks were parsed again because fields contain new lines" );
+      }
+      return null;
+    }
+
+    // Optionally add the current filename to the mix as well...
+    //
+    if ( meta.isIncludingFilename() && !Utils.isEmpty( meta.getFilenameField() ) ) {
+      if ( meta.isLazyConversionActive() ) {
+        outputRowData[ data.filenameFieldIndex ] = data.binaryFilename;
+      } else {
+        outputRowData[ data.filenameFieldIndex ] = data.filenames[ data.filenr - 1 ];
+      }
+    }
+
+    if ( data.isAddingRowNumber ) {
+      outputRowData[ data.rownumFieldIndex ] = data.rowNumber++;
+    }
+
+    incrementLinesInput();
+
+    List<Exception> conversionExceptions = data.mappedReader.getConversionErrors();
+    if ( conversionExceptions != null ) {
+      throw new KettleConversionException(
+        "There were " + conversionExceptions.size() + " conversion errors on line " + getLinesInput(),
+        conversionExceptions, data.mappedReader.getConversionErrorFields(), outputRowData );
+    }
+
+    return outputRowData;
+  }
+
   /**
    * Read a single row of data from the file...
    *
@@ -715,22 +875,23 @@ public class CsvInput extends BaseStep implements StepInterface {
         // data.byteBuffer[data.startBuffer]
         //
 
-        byte[] field = data.getField( delimiterFound, enclosureFound, newLineFound, endOfBuffer );
-
-        // Did we have any escaped characters in there?
-        //
-        if ( escapedEnclosureFound > 0 ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Escaped enclosures found in " + new String( field ) );
-          }
-          field = data.removeEscapedEnclosures( field, escapedEnclosureFound );
-        }
-
         final int currentFieldIndex = outputIndex++;
         final int actualFieldIndex = data.fieldsMapping.fieldMetaIndex( currentFieldIndex );
         if ( actualFieldIndex != FieldsMapping.FIELD_DOES_NOT_EXIST ) {
-          if ( !skipRow ) {
-            if ( meta.isLazyConversionActive() ) {
+          if ( !skipRow && ( data.skippedFields == null || !data.skippedFields[actualFieldIndex] ) ) {
+            byte[] field = data.getField( delimiterFound, enclosureFound, newLineFound, endOfBuffer );
+
+            // Did we have any escaped characters in there?
+            //
+            if ( escapedEnclosureFound > 0 ) {
+              if ( log.isRowLevel() ) {
+                logRowlevel( "Escaped enclosures found in " + new String( field ) );
+              }
+              field = data.removeEscapedEnclosures( field, escapedEnclosureFound );
+            }
+
+            if ( meta.isLazyConversionActive()
+              || ( data.binaryFields != null && data.binaryFields[actualFieldIndex] ) ) {
               outputRowData[actualFieldIndex] = field;
             } else {
               // We're not lazy so we convert the data right here and now.
@@ -755,7 +916,7 @@ public class CsvInput extends BaseStep implements StepInterface {
               }
             }
           } else {
-            outputRowData[actualFieldIndex] = null; // nothing for the header, no conversions here.
+            outputRowData[actualFieldIndex] = null; // nothing for the header or unused fields, no conversions here.
           }
         }
 
@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -74,6 +75,18 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
 
   public FieldsMapping fieldsMapping;
 
+  /** The number of threads parsing a memory mapped file, 0 if the file is read on the step thread */
+  public int scanThreads;
+  public long scanChunkSize;
+  public ExecutorService scanExecutor;
+  public MappedCsvReader mappedReader;
+
+  /** The fields no next step uses, by output field index. They are not read from the file. Null if there are none */
+  public boolean[] skippedFields;
+
+  /** The fields the next steps only copy, by output field index. They are kept as binary strings. Null if none */
+  public boolean[] binaryFields;
+
   /**
    * Data class for CsvInput step
    *
@@ -265,6 +278,10 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
       if ( fis != null ) {
         fis.close();
       }
+      if ( mappedReader != null ) {
+        mappedReader.close();
+        mappedReader = null;
+      }
     } catch ( IOException e ) {
       throw new KettleException( "Unable to close file channel for file '" + filenames[filenr - 1], e );
     }
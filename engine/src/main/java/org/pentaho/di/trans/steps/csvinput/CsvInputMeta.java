@@ -451,6 +451,15 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
     return new CsvInputData();
   }
 
+  /**
+   * The fields that no next step uses are not read and the fields that are only copied are not converted, see
+   * Const.KETTLE_LAZY_CONVERSION_PUSHDOWN.
+   */
+  @Override
+  public boolean isUsingDownstreamFieldUsage() {
+    return true;
+  }
+
   /**
    * @return the delimiter
    */
@@ -0,0 +1,412 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Reads the rows of a local CSV file by memory mapping it and splitting it into chunks that are parsed by a pool of
+ * worker threads. The rows are handed out in file order.
+ * <p>
+ * A worker doesn't know where the rows of its chunk start, it assumes the first row starts right after the first line
+ * end in the chunk and parses every row that starts before the end of the chunk. The reader checks that guess against
+ * the end of the previous chunk when the chunk is handed out. The guess is only wrong when a line end is enclosed in a
+ * field. In that case the chunk is parsed again, starting where the previous chunk really ended.
+ * <p>
+ * A chunk is mapped on its own so files larger than 2GB are not a problem. Rows are converted to their native types
+ * by the workers as well, every worker uses its own copy of the conversion metadata.
+ *
+ * @since 11.1
+ */
+public class MappedCsvReader implements Closeable {
+
+  /** The default number of bytes per chunk */
+  public static final long DEFAULT_CHUNK_SIZE = 8L * 1024 * 1024;
+
+  /** Extra bytes mapped after the end of a chunk, to finish the last row without mapping again */
+  private static final int ROW_OVERHANG = 64 * 1024;
+
+  private static final long MAX_MAPPING = Integer.MAX_VALUE - 8L;
+
+  private final FileChannel channel;
+  private final long dataStart;
+  private final long fileSize;
+  private final long chunkSize;
+  private final int nrChunks;
+  private final boolean skipHeader;
+
+  private final CsvChunkParser parser;
+  private final FieldsMapping fieldsMapping;
+  private final RowMetaInterface convertRowMeta;
+  private boolean[] binaryFields;
+  private final int rowSize;
+
+  private final ExecutorService executor;
+  private final int maxChunksInFlight;
+  private final Deque<Future<Chunk>> chunksInFlight = new ArrayDeque<>();
+  private final ConcurrentLinkedQueue<RowMetaInterface> convertRowMetas = new ConcurrentLinkedQueue<>();
+  private int nextChunkToSubmit;
+
+  private Chunk chunk;
+  private int rowIndex;
+  private long expectedStart;
+  private long chunksParsedAgain;
+
+  /**
+   * A row that couldn't be converted to its native types, see {@link MappedCsvReader#getConversionErrors()}.
+   */
+  private static class ConversionErrors {
+    private final List<Exception> causes = new ArrayList<>();
+    private final List<ValueMetaInterface> fields = new ArrayList<>();
+  }
+
+  /**
+   * The rows parsed from one chunk.
+   */
+  private static class Chunk {
+    private final int index;
+    private long start;
+    private long end;
+    private final List<Object[]> rows = new ArrayList<>();
+    private List<ConversionErrors> errors;
+
+    Chunk( int index ) {
+      this.index = index;
+    }
+  }
+
+  /**
+   * Open a file.
+   *
+   * @param filename
+   *          the local file to read
+   * @param dataStart
+   *          the offset of the data in the file, after the byte order mark
+   * @param skipHeader
+   *          true if the first row is a header row that is skipped
+   * @param parser
+   *          splits the rows into fields
+   * @param fieldsMapping
+   *          maps the fields in the file to the fields in the row
+   * @param convertRowMeta
+   *          the binary string metadata used to convert the fields to their native type, null to keep the fields as
+   *          binary strings (lazy conversion)
+   * @param rowSize
+   *          the size of the rows to create
+   * @param executor
+   *          the worker threads
+   * @param nrThreads
+   *          the number of worker threads
+   * @param chunkSize
+   *          the number of bytes a worker parses at once
+   * @throws IOException
+   *           when the file cannot be opened
+   */
+  public MappedCsvReader( String filename, long dataStart, boolean skipHeader, CsvChunkParser parser,
+                          FieldsMapping fieldsMapping, RowMetaInterface convertRowMeta, int rowSize,
+                          ExecutorService executor, int nrThreads, long chunkSize ) throws IOException {
+    this.channel = FileChannel.open( Paths.get( filename ), StandardOpenOption.READ );
+    this.fileSize = channel.size();
+    this.dataStart = Math.min( dataStart, fileSize );
+    this.skipHeader = skipHeader;
+    this.parser = parser;
+    this.fieldsMapping = fieldsMapping;
+    this.convertRowMeta = convertRowMeta;
+    this.rowSize = rowSize;
+    this.executor = executor;
+    this.maxChunksInFlight = Math.max( 1, nrThreads ) * 2;
+    this.chunkSize = Math.max( 1L, Math.min( chunkSize, MAX_MAPPING - ROW_OVERHANG ) );
+    long chunks = ( fileSize - this.dataStart + this.chunkSize - 1 ) / this.chunkSize;
+    if ( chunks > Integer.MAX_VALUE ) {
+      channel.close();
+      throw new IOException( "The chunk size " + chunkSize + " is too small for file '" + filename + "'" );
+    }
+    this.nrChunks = (int) chunks;
+    this.expectedStart = this.dataStart;
+  }
+
+  /**
+   * @param binaryFields
+   *          true for the fields, by row index, that are kept as binary strings instead of being converted. Null to
+   *          convert all the fields. Set this before reading the first row.
+   */
+  public void setBinaryFields( boolean[] binaryFields ) {
+    this.binaryFields = binaryFields;
+  }
+
+  /**
+   * Get the next row of the file. When the fields of the row couldn't be converted, the row is returned with null for
+   * those fields and the errors are available from {@link #getConversionErrors()}.
+   *
+   * @return the next row or null when all rows were read
+   * @throws KettleException
+   *           when the file couldn't be read
+   */
+  public Object[] nextRow() throws KettleException {
+    while ( chunk == null || rowIndex >= chunk.rows.size() ) {
+      chunk = nextChunk();
+      rowIndex = 0;
+      if ( chunk == null ) {
+        return null;
+      }
+    }
+    return chunk.rows.get( rowIndex++ );
+  }
+
+  /**
+   * @return the causes of the conversion errors of the last row returned by {@link #nextRow()}, null if there were
+   *         none
+   */
+  public List<Exception> getConversionErrors() {
+    ConversionErrors errors = getLastRowErrors();
+    return errors == null ? null : errors.causes;
+  }
+
+  /**
+   * @return the fields that couldn't be converted in the last row returned by {@link #nextRow()}, null if there were
+   *         none
+   */
+  public List<ValueMetaInterface> getConversionErrorFields() {
+    ConversionErrors errors = getLastRowErrors();
+    return errors == null ? null : errors.fields;
+  }
+
+  private ConversionErrors getLastRowErrors() {
+    if ( chunk == null || chunk.errors == null || rowIndex == 0 ) {
+      return null;
+    }
+    return chunk.errors.get( rowIndex - 1 );
+  }
+
+  /**
+   * @return the number of chunks that had to be parsed again because a field contained a line end
+   */
+  public long getChunksParsedAgain() {
+    return chunksParsedAgain;
+  }
+
+  private Chunk nextChunk() throws KettleException {
+    while ( nextChunkToSubmit < nrChunks && chunksInFlight.size() < maxChunksInFlight ) {
+      final int index = nextChunkToSubmit++;
+      chunksInFlight.add( executor.submit( new Callable<Chunk>() {
+        @Override
+        public Chunk call() throws Exception {
+          return parseChunk( index, -1L );
+        }
+      } ) );
+    }
+    Future<Chunk> future = chunksInFlight.poll();
+    if ( future == null ) {
+      return null;
+    }
+    Chunk next;
+    try {
+      next = future.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( "Interrupted while reading a chunk of the file", e );
+    } catch ( ExecutionException e ) {
+      throw new KettleFileException( "Unable to read a chunk of the file", e.getCause() );
+    }
+
+    if ( next.start != expectedStart ) {
+      // The previous chunk ended somewhere else than guessed: a line end was part of an enclosed field
+      //
+      try {
+        next = parseChunk( next.index, expectedStart );
+      } catch ( IOException e ) {
+        throw new KettleFileException( "Unable to read a chunk of the file", e );
+      }
+      chunksParsedAgain++;
+    }
+    expectedStart = next.end;
+    return next;
+  }
+
+  /**
+   * Parse the rows that start in the given chunk.
+   *
+   * @param index
+   *          the chunk number
+   * @param start
+   *          the position of the first row in the chunk, -1 to look for it
+   */
+  private Chunk parseChunk( int index, long start ) throws IOException, KettleException {
+    long chunkStart = dataStart + index * chunkSize;
+    long chunkEnd = Math.min( fileSize, chunkStart + chunkSize );
+    Chunk result = new Chunk( index );
+
+    long windowStart = start >= 0 ? start : Math.max( dataStart, chunkStart - 1 );
+    Window window =
+      new Window( windowStart, Math.max( windowStart, Math.min( fileSize, chunkEnd + ROW_OVERHANG ) ) );
+    long pos;
+    if ( start >= 0 ) {
+      pos = start;
+    } else if ( chunkStart == dataStart ) {
+      pos = dataStart;
+    } else {
+      // The row right after the first line end, looking at the last byte of the previous chunk as well in case the
+      // chunk starts right after a line end
+      pos = chunkStart - 1;
+      int next;
+      while ( ( next = parser.skipLine( window.buffer, window.offset( pos ), window.limit(), window.isEnd() ) )
+        == CsvChunkParser.INCOMPLETE ) {
+        window = window.grow( pos );
+      }
+      pos = window.position( next );
+    }
+    result.start = pos;
+
+    RowMetaInterface rowMeta = convertRowMeta == null ? null : convertRowMetas.poll();
+    if ( convertRowMeta != null && rowMeta == null ) {
+      rowMeta = convertRowMeta.clone();
+    }
+    try {
+      byte[][] fields = new byte[parser.getNrFields()][];
+      boolean header = skipHeader && pos == dataStart;
+      while ( pos < chunkEnd || header && pos < fileSize ) {
+        int next;
+        while ( ( next = parser.parseRow( window.buffer, window.offset( pos ), window.limit(), window.isEnd(),
+          fields ) ) == CsvChunkParser.INCOMPLETE ) {
+          window = window.grow( pos );
+        }
+        pos = window.position( next );
+        if ( header ) {
+          header = false;
+        } else {
+          addRow( result, fields, rowMeta );
+        }
+      }
+    } finally {
+      if ( rowMeta != null ) {
+        convertRowMetas.add( rowMeta );
+      }
+    }
+    result.end = Math.max( pos, result.start );
+    return result;
+  }
+
+  private void addRow( Chunk chunk, byte[][] fields, RowMetaInterface rowMeta ) {
+    Object[] row = RowDataUtil.allocateRowData( rowSize );
+    ConversionErrors errors = null;
+    for ( int i = 0; i < fields.length; i++ ) {
+      int fieldIndex = fieldsMapping.fieldMetaIndex( i );
+      if ( fieldIndex == FieldsMapping.FIELD_DOES_NOT_EXIST ) {
+        continue;
+      }
+      if ( rowMeta == null || fields[i] == null || ( binaryFields != null && binaryFields[fieldIndex] ) ) {
+        row[fieldIndex] = fields[i];
+        continue;
+      }
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( fieldIndex );
+      try {
+        row[fieldIndex] = valueMeta.convertBinaryStringToNativeType( fields[i] );
+      } catch ( KettleValueException e ) {
+        if ( errors == null ) {
+          errors = new ConversionErrors();
+        }
+        errors.causes.add( e );
+        errors.fields.add( valueMeta );
+      }
+    }
+    if ( errors != null && chunk.errors == null ) {
+      chunk.errors = new ArrayList<>();
+      for ( int i = 0; i < chunk.rows.size(); i++ ) {
+        chunk.errors.add( null );
+      }
+    }
+    chunk.rows.add( row );
+    if ( chunk.errors != null ) {
+      chunk.errors.add( errors );
+    }
+  }
+
+  /**
+   * A mapped part of the file.
+   */
+  private class Window {
+    private final long start;
+    private final long end;
+    private final MappedByteBuffer buffer;
+
+    Window( long start, long end ) throws IOException {
+      this.start = start;
+      this.end = end;
+      this.buffer = channel.map( FileChannel.MapMode.READ_ONLY, start, end - start );
+      this.buffer.order( ByteOrder.LITTLE_ENDIAN );
+    }
+
+    int offset( long position ) {
+      return (int) ( position - start );
+    }
+
+    long position( int offset ) {
+      return start + offset;
+    }
+
+    int limit() {
+      return (int) ( end - start );
+    }
+
+    boolean isEnd() {
+      return end >= fileSize;
+    }
+
+    /**
+     * Map a larger part of the file, starting at the given position, because a row doesn't fit.
+     */
+    Window grow( long from ) throws IOException, KettleException {
+      long length = Math.min( MAX_MAPPING, Math.max( end - start, chunkSize ) * 2 );
+      if ( end - from >= MAX_MAPPING ) {
+        throw new KettleFileException( "A row in the file is longer than " + MAX_MAPPING + " bytes" );
+      }
+      return new Window( from, Math.min( fileSize, from + length ) );
+    }
+  }
+
+  /**
+   * Stop parsing and close the file.
+   */
+  @Override
+  public void close() throws IOException {
+    for ( Future<Chunk> future : chunksInFlight ) {
+      future.cancel( false );
+    }
+    chunksInFlight.clear();
+    chunk = null;
+    channel.close();
+  }
+}
@@ -0,0 +1,390 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.memory.MemoryGrant;
+import org.pentaho.di.core.memory.MemoryManager;
+
+/**
+ * A bounded, thread safe lookup cache with a frequency aware eviction policy.
+ * <p>
+ * Lookups are lock-free reads of a concurrent hash map. Evictions follow the W-TinyLFU policy: new entries go to a
+ * small LRU window. Entries leaving the window compete with the least recently used entry of the main area and the
+ * one that was requested more often lately stays. The request frequencies are estimated with a count-min sketch that
+ * halves all counts every so often, so that old popularity fades. The main area is a segmented LRU: an entry that is
+ * hit again after making it in is protected from being pushed out by keys that are only used once. This keeps the
+ * frequently used keys in the cache where a plain LRU lets a run of new keys flush them out.
+ * <p>
+ * The bookkeeping of the policy is done under a lock. A hit only does it when the lock is free: readers never wait, a
+ * hit that isn't recorded only makes the policy slightly less precise.
+ * <p>
+ * When a memory grant is given, the estimated size of every entry is reserved from it. An entry is not added when the
+ * memory is refused and all entries are dropped when the memory manager asks for memory back.
+ *
+ * @since 11.1
+ */
+public class ConcurrentLookupCache {
+
+  /** The share of the capacity used for the admission window */
+  private static final double WINDOW_SHARE = 0.01;
+
+  /** The share of the main area used for entries that were hit after their admission */
+  private static final double PROTECTED_SHARE = 0.8;
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+  private static final int REMOVED = 3;
+
+  private final ConcurrentHashMap<RowMetaAndData, Node> map;
+  private final int capacity;
+  private final int windowCapacity;
+  private final int mainCapacity;
+  private final int protectedCapacity;
+  private final MemoryGrant grant;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AccessList window = new AccessList();
+  private final AccessList probation = new AccessList();
+  private final AccessList protectedList = new AccessList();
+  private final FrequencySketch sketch;
+
+  /**
+   * @param capacity
+   *          the maximum number of entries, 0 or less for no limit
+   * @param grant
+   *          the grant to reserve the memory of the entries from or null
+   */
+  public ConcurrentLookupCache( int capacity, MemoryGrant grant ) {
+    this.capacity = Math.max( 0, capacity );
+    this.grant = grant;
+    this.map = new ConcurrentHashMap<>( this.capacity > 0 ? Math.min( this.capacity, 1 << 16 ) : 16 );
+    this.windowCapacity = Math.max( 1, (int) ( this.capacity * WINDOW_SHARE ) );
+    this.mainCapacity = Math.max( 0, this.capacity - windowCapacity );
+    this.protectedCapacity = (int) ( mainCapacity * PROTECTED_SHARE );
+    this.sketch = this.capacity > 0 ? new FrequencySketch( this.capacity ) : null;
+  }
+
+  /**
+   * @param key
+   *          the lookup key
+   * @return the cached row or null if the key isn't in the cache
+   */
+  public Object[] get( RowMetaAndData key ) {
+    Node node = map.get( key );
+    if ( node == null ) {
+      return null;
+    }
+    if ( sketch != null && lock.tryLock() ) {
+      try {
+        onHit( node );
+      } finally {
+        lock.unlock();
+      }
+    }
+    return node.value;
+  }
+
+  /**
+   * Add an entry to the cache. An existing entry for the same key is kept.
+   *
+   * @param key
+   *          the lookup key
+   * @param value
+   *          the row to return for the key
+   * @return the number of entries evicted to make room
+   */
+  public int put( RowMetaAndData key, Object[] value ) {
+    if ( map.containsKey( key ) ) {
+      return 0;
+    }
+    long weight = grant == null ? 0L : MemoryManager.estimateRowSize( key.getData() )
+      + MemoryManager.estimateRowSize( value );
+    lock.lock();
+    try {
+      if ( grant != null ) {
+        if ( grant.isSpillRequested() ) {
+          clearEntries();
+          grant.spilled();
+        }
+        if ( !grant.reserve( weight ) ) {
+          return 0;
+        }
+      }
+      Node node = new Node( key, value, weight );
+      if ( map.putIfAbsent( key, node ) != null ) {
+        release( weight );
+        return 0;
+      }
+      if ( sketch == null ) {
+        return 0;
+      }
+      sketch.increment( node.hash );
+      node.queue = WINDOW;
+      window.addLast( node );
+      return evict();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void onHit( Node node ) {
+    switch ( node.queue ) {
+      case WINDOW:
+        window.moveToLast( node );
+        break;
+      case PROBATION:
+        probation.remove( node );
+        node.queue = PROTECTED;
+        protectedList.addLast( node );
+        while ( protectedList.size > protectedCapacity ) {
+          Node demoted = protectedList.removeFirst();
+          demoted.queue = PROBATION;
+          probation.addLast( demoted );
+        }
+        break;
+      case PROTECTED:
+        protectedList.moveToLast( node );
+        break;
+      default:
+        // Evicted in the mean time
+        return;
+    }
+    sketch.increment( node.hash );
+  }
+
+  private int evict() {
+    // The least recently used entries of the window become candidates for the main area
+    while ( window.size > windowCapacity ) {
+      Node candidate = window.removeFirst();
+      candidate.queue = PROBATION;
+      probation.addLast( candidate );
+    }
+
+    // The latest candidate and the least recently used entry of the main area compete for the space
+    int evicted = 0;
+    while ( probation.size + protectedList.size > mainCapacity ) {
+      Node victim = probation.head != null ? probation.head : protectedList.head;
+      Node candidate = probation.tail;
+      Node loser;
+      if ( candidate == null || candidate == victim ) {
+        loser = victim;
+      } else {
+        loser = sketch.frequency( candidate.hash ) > sketch.frequency( victim.hash ) ? victim : candidate;
+      }
+      ( loser.queue == PROTECTED ? protectedList : probation ).remove( loser );
+      loser.queue = REMOVED;
+      map.remove( loser.key, loser );
+      release( loser.weight );
+      evicted++;
+    }
+    return evicted;
+  }
+
+  private void release( long weight ) {
+    if ( grant != null && weight > 0 ) {
+      grant.release( weight );
+    }
+  }
+
+  private void clearEntries() {
+    for ( AccessList list : new AccessList[] { window, probation, protectedList } ) {
+      for ( Node node = list.head; node != null; node = node.next ) {
+        node.queue = REMOVED;
+      }
+      list.clear();
+    }
+    map.clear();
+    if ( grant != null ) {
+      grant.releaseAll();
+    }
+  }
+
+  /**
+   * Remove all entries and give back their memory.
+   */
+  public void clear() {
+    lock.lock();
+    try {
+      clearEntries();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Remove all entries and close the memory grant. The cache shouldn't be used afterwards.
+   */
+  public void close() {
+    clear();
+    if ( grant != null ) {
+      grant.close();
+    }
+  }
+
+  /**
+   * @return the number of entries in the cache
+   */
+  public int size() {
+    return map.size();
+  }
+
+  /**
+   * @return the maximum number of entries, 0 for no limit
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  private static final class Node {
+    private final RowMetaAndData key;
+    private final Object[] value;
+    private final long weight;
+    private final int hash;
+    private int queue;
+    private Node prev;
+    private Node next;
+
+    private Node( RowMetaAndData key, Object[] value, long weight ) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.hash = key.hashCode();
+    }
+  }
+
+  /**
+   * A doubly linked list of nodes in access order, the least recently used node first.
+   */
+  private static final class AccessList {
+    private Node head;
+    private Node tail;
+    private int size;
+
+    private void addLast( Node node ) {
+      node.prev = tail;
+      node.next = null;
+      if ( tail == null ) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      size++;
+    }
+
+    private void remove( Node node ) {
+      if ( node.prev == null ) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if ( node.next == null ) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      size--;
+    }
+
+    private Node removeFirst() {
+      Node node = head;
+      remove( node );
+      return node;
+    }
+
+    private void moveToLast( Node node ) {
+      if ( node != tail ) {
+        remove( node );
+        addLast( node );
+      }
+    }
+
+    private void clear() {
+      head = null;
+      tail = null;
+      size = 0;
+    }
+  }
+
+  /**
+   * A count-min sketch with four 4-bit counters per key. All counters are halved once the number of increments reaches
+   * ten times the cache capacity.
+   */
+  static final class FrequencySketch {
+    private static final long[] SEEDS = {
+      0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch( int capacity ) {
+      int size = Integer.highestOneBit( Math.max( 16, Math.min( capacity, 1 << 24 ) ) - 1 ) << 1;
+      table = new long[size];
+      mask = size - 1;
+      sampleSize = (int) Math.min( Integer.MAX_VALUE, 10L * Math.max( 16, capacity ) );
+    }
+
+    int frequency( int hash ) {
+      int frequency = 15;
+      for ( int i = 0; i < SEEDS.length; i++ ) {
+        long h = spread( hash, i );
+        int count = (int) ( ( table[index( h )] >>> offset( h ) ) & 0xFL );
+        frequency = Math.min( frequency, count );
+      }
+      return frequency;
+    }
+
+    void increment( int hash ) {
+      boolean added = false;
+      for ( int i = 0; i < SEEDS.length; i++ ) {
+        long h = spread( hash, i );
+        int index = index( h );
+        int offset = offset( h );
+        if ( ( ( table[index] >>> offset ) & 0xFL ) != 0xFL ) {
+          table[index] += 1L << offset;
+          added = true;
+        }
+      }
+      if ( added && ++additions >= sampleSize ) {
+        for ( int i = 0; i < table.length; i++ ) {
+          table[i] = ( table[i] >>> 1 ) & RESET_MASK;
+        }
+        additions >>>= 1;
+      }
+    }
+
+    private static long spread( int hash, int i ) {
+      long h = ( hash + SEEDS[i] ) * SEEDS[i];
+      return h ^ ( h >>> 31 );
+    }
+
+    private int index( long h ) {
+      return (int) h & mask;
+    }
+
+    private static int offset( long h ) {
+      return ( (int) ( h >>> 60 ) ) << 2;
+    }
+  }
+}
@@ -13,19 +13,27 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.memory.MemoryGrant;
+import org.pentaho.di.core.memory.MemoryManager;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -38,6 +46,7 @@ import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.LookupBatch;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
@@ -53,6 +62,13 @@ import org.pentaho.di.trans.steps.databaselookup.readallcache.ReadAllCache;
 public class DatabaseLookup extends BaseStep implements StepInterface {
   private static Class<?> PKG = DatabaseLookupMeta.class; // for i18n purposes, needed by Translator2!!
 
+  public static final String METRIC_CACHE_HITS = "cacheHits";
+  public static final String METRIC_CACHE_MISSES = "cacheMisses";
+  public static final String METRIC_CACHE_EVICTIONS = "cacheEvictions";
+
+  /** Marks a key of a batch for which more than one row was found */
+  static final Object[] MULTIPLE_RESULTS = new Object[ 0 ];
+
   private DatabaseLookupMeta meta;
   private DatabaseLookupData data;
 
@@ -62,16 +78,14 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
   }
 
   /**
-   * Performs the lookup based on the meta-data and the input row.
+   * Assemble the key values of an input row, converted to the data types of the key fields in the table.
    *
-   * @param row The row to use as lookup data and the row to add the returned lookup fields to
-   * @return the resulting row after the lookup values where added
-   * @throws KettleException In case something goes wrong.
+   * @param inputRowMeta The description of the input row
+   * @param row The input row
+   * @return the values to look up, described by the lookup metadata
+   * @throws KettleException In case a key value can't be converted.
    */
-  @VisibleForTesting
-  synchronized Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
-    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
-
+  private Object[] createLookupRow( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
     Object[] lookupRow = new Object[ data.lookupMeta.size() ];
     int lookupIndex = 0;
 
@@ -110,16 +124,35 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         lookupIndex++;
       }
     }
+    return lookupRow;
+  }
+
+  /**
+   * Performs the lookup based on the meta-data and the input row.
+   *
+   * @param row The row to use as lookup data and the row to add the returned lookup fields to
+   * @return the resulting row after the lookup values where added
+   * @throws KettleException In case something goes wrong.
+   */
+  @VisibleForTesting
+  synchronized Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
+    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
+
+    Object[] lookupRow = createLookupRow( inputRowMeta, row );
 
     Object[] add;
     boolean cacheNow = false;
     boolean cacheHit = false;
+    boolean prefetched = false;
 
     // First, check if we looked up before
     if ( meta.isCached() ) {
       add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
       if ( add != null ) {
         cacheHit = true;
+        data.cacheHits++;
+      } else {
+        data.cacheMisses++;
       }
     } else {
       add = null;
@@ -134,8 +167,19 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
           + data.lookupMeta.getString( lookupRow ) );
       }
 
-      data.db.setValuesLookup( data.lookupMeta, lookupRow );
-      add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+      RowMetaAndData batchKey = data.batchResults == null ? null : new RowMetaAndData( data.lookupMeta, lookupRow );
+      if ( batchKey != null && data.batchResults.containsKey( batchKey ) ) {
+        // Looked up together with the other rows of the batch
+        add = data.batchResults.get( batchKey );
+        if ( add == MULTIPLE_RESULTS ) {
+          throw new KettleDatabaseException(
+            "Only 1 row was expected as a result of a lookup, and at least 2 were found!" );
+        }
+        prefetched = true;
+      } else {
+        data.db.setValuesLookup( data.lookupMeta, lookupRow );
+        add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+      }
       cacheNow = true;
     }
 
@@ -170,9 +214,11 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       }
 
       // Only verify the data types if the data comes from the DB, NOT when we have a cache hit
-      // In that case, we already know the data type is OK.
+      // In that case, we already know the data type is OK. The same goes for rows looked up in a batch.
       if ( !cacheHit ) {
         incrementLines();
+      }
+      if ( !cacheHit && !prefetched ) {
         int[] types = meta.getReturnValueDefaultType();
 
         // The assumption here is that the types are in the same order
@@ -194,7 +240,8 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     // Store in cache if we need to!
     // If we already loaded all data into the cache, storing more makes no sense.
     //
-    if ( meta.isCached() && cacheNow && !meta.isLoadingAllDataInCache() && data.allEquals ) {
+    if ( meta.isCached() && cacheNow && !meta.isLoadingAllDataInCache() && data.allEquals
+      && reserveCacheMemory( lookupRow, add ) ) {
       data.cache.storeRowInCache( meta, data.lookupMeta, lookupRow, add );
     }
 
@@ -346,6 +393,9 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.lookupBatch != null && !data.lookupBatch.isEmpty() && !processLookupBatch() ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
@@ -404,7 +454,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       }
 
       if ( meta.isCached() ) {
-        data.cache = DefaultCache.newCache( data, meta.getCacheSize() );
+        data.cache = newCache();
       }
 
       determineFieldsTypesQueryingDb();
@@ -420,6 +470,8 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       if ( meta.isCached() && meta.isLoadingAllDataInCache() ) {
         loadAllTableDataIntoTheCache();
       }
+
+      data.lookupBatch = isBatchingPossible() ? LookupBatch.create( this ) : null;
     }
 
     if ( log.isRowLevel() ) {
@@ -427,6 +479,18 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         + getInputRowMeta().getString( r ) );
     }
 
+    if ( data.lookupBatch != null ) {
+      data.lookupBatch.add( r );
+      if ( data.lookupBatch.isDue( getInputRowSets() ) ) {
+        return processLookupBatch();
+      }
+      return true;
+    }
+
+    return processLookupRow( r );
+  }
+
+  private boolean processLookupRow( Object[] r ) throws KettleException {
     try {
       // add new lookup values to the row
       Object[] outputRow = lookupValues( getInputRowMeta(), r );
@@ -461,6 +525,173 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * @return true if the keys of several rows can be looked up with one query: all conditions compare keys for equality
+   *         and the table isn't loaded into the cache at startup.
+   */
+  private boolean isBatchingPossible() {
+    if ( meta.isCached() && meta.isLoadingAllDataInCache() ) {
+      return false;
+    }
+    for ( int i = 0; i < data.conditions.length; i++ ) {
+      if ( data.conditions[ i ] != DatabaseLookupMeta.CONDITION_EQ || data.keynrs[ i ] < 0 ) {
+        return false;
+      }
+    }
+    return data.conditions.length > 0;
+  }
+
+  /**
+   * Look up the distinct keys of the rows in the batch that are not in the cache with as few queries as possible, then
+   * process the rows in their original order.
+   *
+   * @return false if the step has to stop
+   */
+  private boolean processLookupBatch() throws KettleException {
+    try {
+      try {
+        data.batchResults = lookupBatchKeys( data.lookupBatch.getRows() );
+      } catch ( KettleException e ) {
+        // Look up the rows one by one, that way errors are handled for each row like without batching
+        if ( log.isDetailed() ) {
+          logDetailed( "Unable to look up a batch of keys, continuing row by row: " + e.getMessage() );
+        }
+        data.batchResults = null;
+      }
+      for ( Object[] row : data.lookupBatch.getRows() ) {
+        if ( !processLookupRow( row ) ) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      data.batchResults = null;
+      data.lookupBatch.clear();
+    }
+  }
+
+  /**
+   * Query the database for the keys of the given rows that are not in the cache.
+   *
+   * @return the result for every key looked up: the return values, null if nothing was found or
+   *         {@link #MULTIPLE_RESULTS} if more than one row was found and that is an error.
+   */
+  private Map<RowMetaAndData, Object[]> lookupBatchKeys( List<Object[]> rows ) throws KettleException {
+    Map<RowMetaAndData, Object[]> results = new HashMap<>();
+    List<Object[]> keys = new ArrayList<>();
+    for ( Object[] row : rows ) {
+      Object[] lookupRow;
+      try {
+        lookupRow = createLookupRow( getInputRowMeta(), row );
+      } catch ( KettleException e ) {
+        continue; // reported when the row itself is processed
+      }
+      RowMetaAndData key = new RowMetaAndData( data.lookupMeta, lookupRow );
+      if ( results.containsKey( key )
+        || ( meta.isCached() && data.cache.getRowFromCache( data.lookupMeta, lookupRow ) != null ) ) {
+        continue;
+      }
+      results.put( key, null );
+      if ( !hasNullValue( lookupRow ) ) {
+        // A null never equals anything, there's no need to ask the database for those
+        keys.add( lookupRow );
+      }
+    }
+
+    DatabaseMeta dbMeta = meta.getDatabaseMeta();
+    int nrKeyFields = data.lookupMeta.size();
+    int nrReturnFields = data.returnMeta.size();
+    int[] types = meta.getReturnValueDefaultType();
+
+    RowMetaInterface lookupReturnMeta = data.db.getReturnRowMeta();
+    try {
+      int from = 0;
+      while ( from < keys.size() ) {
+        int nrKeys = LookupBatch.getKeysInQuery( keys.size() - from, nrKeyFields );
+        StringBuilder sql = new StringBuilder( getBatchSelect() );
+        LookupBatch.appendKeyCondition( sql, dbMeta, meta.getTableKeyField(), nrKeys );
+        if ( !Utils.isEmpty( meta.getOrderByClause() ) ) {
+          sql.append( " ORDER BY " ).append( meta.getOrderByClause() );
+        }
+        List<Object[]> found = data.db.getRows( sql.toString(),
+          LookupBatch.getParameterMeta( data.lookupMeta, nrKeys ),
+          LookupBatch.getParameterData( keys, from, nrKeys, nrKeyFields ), ResultSet.FETCH_FORWARD, false, 0, null );
+        RowMetaInterface foundMeta = data.db.getReturnRowMeta();
+
+        for ( Object[] foundRow : found ) {
+          Object[] keyData = new Object[ nrKeyFields ];
+          for ( int i = 0; i < nrKeyFields; i++ ) {
+            keyData[ i ] = data.lookupMeta.getValueMeta( i ).convertData( foundMeta.getValueMeta( i ), foundRow[ i ] );
+          }
+          RowMetaAndData key = new RowMetaAndData( data.lookupMeta, keyData );
+          if ( !results.containsKey( key ) ) {
+            continue;
+          }
+          if ( results.get( key ) != null ) {
+            // Like a lookup of a single key, only the first row counts
+            if ( meta.isFailingOnMultipleResults() ) {
+              results.put( key, MULTIPLE_RESULTS );
+            }
+            continue;
+          }
+
+          Object[] add = new Object[ nrReturnFields ];
+          System.arraycopy( foundRow, nrKeyFields, add, 0, nrReturnFields );
+          for ( int i = 0; i < types.length && i < nrReturnFields; i++ ) {
+            ValueMetaInterface returned = foundMeta.getValueMeta( nrKeyFields + i );
+            if ( returned != null && types[ i ] > 0 && types[ i ] != returned.getType() ) {
+              add[ i ] = data.returnMeta.getValueMeta( i ).convertData( returned, add[ i ] );
+            }
+          }
+          results.put( key, add );
+        }
+        from += nrKeys;
+      }
+    } finally {
+      // Keep using the lookup statement for single keys
+      data.db.setReturnRowMeta( lookupReturnMeta );
+    }
+    return results;
+  }
+
+  private static boolean hasNullValue( Object[] row ) {
+    for ( Object value : row ) {
+      if ( value == null ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the start of the query looking up a batch of keys: the key fields followed by the return fields
+   */
+  private String getBatchSelect() {
+    if ( data.batchSelect == null ) {
+      DatabaseMeta dbMeta = meta.getDatabaseMeta();
+      StringBuilder sql = new StringBuilder( "SELECT " );
+      for ( int i = 0; i < meta.getTableKeyField().length; i++ ) {
+        sql.append( dbMeta.quoteField( meta.getTableKeyField()[ i ] ) ).append( ", " );
+      }
+      String[] gets = meta.getReturnValueField();
+      String[] rename = meta.getReturnValueNewName();
+      for ( int i = 0; i < gets.length; i++ ) {
+        if ( i > 0 ) {
+          sql.append( ", " );
+        }
+        sql.append( dbMeta.quoteField( gets[ i ] ) );
+        if ( rename != null && rename[ i ] != null && !gets[ i ].equalsIgnoreCase( rename[ i ] ) ) {
+          sql.append( " AS " ).append( dbMeta.quoteField( rename[ i ] ) );
+        }
+      }
+      sql.append( " FROM " ).append( dbMeta.getQuotedSchemaTableCombination(
+        environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ) ) );
+      sql.append( " WHERE " );
+      data.batchSelect = sql.toString();
+    }
+    return data.batchSelect;
+  }
+
   private void loadAllTableDataIntoTheCache() throws KettleException {
     DatabaseMeta dbMeta = meta.getDatabaseMeta();
 
@@ -507,6 +738,61 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Create the cache of this step copy. When the KETTLE_DATABASE_LOOKUP_SHARED_CACHE variable is set and only the
+   * lookups themselves fill the cache, all the copies of the step share it.
+   */
+  private DatabaseLookupData.Cache newCache() {
+    if ( data.allEquals && !meta.isLoadingAllDataInCache() && getTrans() != null
+      && "Y".equalsIgnoreCase( getVariable( Const.KETTLE_DATABASE_LOOKUP_SHARED_CACHE, "N" ) ) ) {
+      return SharedCache.acquire( getTrans(), getStepname(), data, meta.getCacheSize() );
+    }
+    return DefaultCache.newCache( data, meta.getCacheSize() );
+  }
+
+  /**
+   * Reserve memory for a new entry of the lookup cache, when the transformation has a memory limit. Without memory the
+   * row is simply not cached. When asked to give back memory the cache is emptied.
+   *
+   * @return true if the row can be cached
+   */
+  private boolean reserveCacheMemory( Object[] lookupRow, Object[] add ) {
+    if ( data.cache instanceof SharedCache ) {
+      // The shared cache accounts for the memory of all the copies itself
+      return true;
+    }
+    MemoryGrant grant = getMemoryGrant( true );
+    if ( grant == null ) {
+      return true;
+    }
+    if ( grant.isSpillRequested() ) {
+      data.cache = DefaultCache.newCache( data, meta.getCacheSize() );
+      data.cachedRows = 0;
+      grant.releaseAll();
+      grant.spilled();
+    }
+    if ( meta.getCacheSize() > 0 && data.cachedRows >= meta.getCacheSize() ) {
+      // An old entry makes way for the new one
+      return true;
+    }
+    if ( !grant.reserve( MemoryManager.estimateRowSize( lookupRow ) + MemoryManager.estimateRowSize( add ) ) ) {
+      return false;
+    }
+    data.cachedRows++;
+    return true;
+  }
+
+  /**
+   * Account for the memory of a row loaded in the cache at startup, when the transformation has a memory limit. All
+   * rows are needed so the memory can't be refused.
+   */
+  private void accountCacheMemory( Object[] keyData, Object[] valueData ) {
+    MemoryGrant grant = getMemoryGrant( false );
+    if ( grant != null ) {
+      grant.forceReserve( MemoryManager.estimateRowSize( keyData ) + MemoryManager.estimateRowSize( valueData ) );
+    }
+  }
+
   private void putToDefaultCache( Database db, String sql ) throws KettleDatabaseException {
     final int keysAmount = meta.getStreamKeyField1().length;
     AtomicReference<RowMetaInterface> prototype = new AtomicReference<>();
@@ -539,6 +825,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     // Store the data...
     //
     data.cache.storeRowInCache( meta, keyMeta, keyData, valueData );
+    accountCacheMemory( keyData, valueData );
     incrementLinesInput();
   }
 
@@ -572,6 +859,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       System.arraycopy( row, keysAmount, valueData, 0, valuesAmount );
 
       cacheBuilder.add( keyData, valueData );
+      accountCacheMemory( keyData, valueData );
       incrementLinesInput();
     }
     data.cache = cacheBuilder.build();
@@ -647,11 +935,30 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
 
     // Recover memory immediately, allow in-memory data to be garbage collected
     //
+    if ( data.cache instanceof SharedCache ) {
+      ( (SharedCache) data.cache ).release( getTrans(), getStepname() );
+    }
     data.cache = null;
 
     super.dispose( smi, sdi );
   }
 
+  /**
+   * Adds the cache hits, misses and evictions of this step copy to the memory metrics.
+   */
+  @Override
+  public Map<String, Long> getStepMetrics() {
+    DatabaseLookupData stepData = data;
+    if ( stepData == null || stepData.cacheHits + stepData.cacheMisses == 0 ) {
+      return super.getStepMetrics();
+    }
+    Map<String, Long> metrics = new LinkedHashMap<String, Long>( super.getStepMetrics() );
+    metrics.put( METRIC_CACHE_HITS, stepData.cacheHits );
+    metrics.put( METRIC_CACHE_MISSES, stepData.cacheMisses );
+    metrics.put( METRIC_CACHE_EVICTIONS, stepData.cacheEvictions );
+    return metrics;
+  }
+
   /*
    * this method is required in order to
    * provide ability for unit tests to
@@ -13,10 +13,14 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.util.Map;
+
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.LookupBatch;
 import org.pentaho.di.trans.step.StepDataInterface;
 
 /**
@@ -40,6 +44,27 @@ public class DatabaseLookupData extends BaseStepData implements StepDataInterfac
   public int[] conditions;
   public boolean hasDBCondition;
 
+  /** The number of rows added to the cache since it was created, to account for their memory */
+  public int cachedRows;
+
+  /** The number of lookups answered by the cache */
+  public long cacheHits;
+
+  /** The number of lookups not found in the cache */
+  public long cacheMisses;
+
+  /** The number of entries this step copy pushed out of the cache */
+  public long cacheEvictions;
+
+  /** The rows waiting to be looked up together, null when looking up row by row */
+  public LookupBatch lookupBatch;
+
+  /** The results of the keys looked up for the current batch */
+  public Map<RowMetaAndData, Object[]> batchResults;
+
+  /** The start of the query looking up a batch of keys */
+  public String batchSelect;
+
   public DatabaseLookupData() {
     super();
 
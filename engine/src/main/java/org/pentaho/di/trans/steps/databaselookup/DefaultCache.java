@@ -131,6 +131,7 @@ public class DefaultCache implements DatabaseLookupData.Cache {
     // method would throw out entries if the previous cache size wasn't big enough.
     if ( !meta.isLoadingAllDataInCache() && meta.getCacheSize() > 0 && map.size() > meta.getCacheSize() ) {
       map.remove( map.entrySet().iterator().next().getKey() );
+      data.cacheEvictions++;
     }
   }
 }
@@ -0,0 +1,121 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.util.Map;
+
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.memory.MemoryGrant;
+import org.pentaho.di.core.memory.MemoryManager;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.Trans;
+
+/**
+ * The cache of one copy of a Database lookup step when all the copies of the step in a transformation share a single
+ * {@link ConcurrentLookupCache}: a key looked up by one copy is a cache hit for the others. Only used when all the key
+ * conditions are equalities and the table isn't loaded at startup.
+ * <p>
+ * The shared cache is kept in the extension data of the transformation and is closed when the last copy using it is
+ * disposed.
+ *
+ * @since 11.1
+ */
+public class SharedCache implements DatabaseLookupData.Cache {
+
+  static final String EXTENSION_DATA_KEY_PREFIX = "DatabaseLookup.SharedCache.";
+
+  private final DatabaseLookupData data;
+  private final ConcurrentLookupCache cache;
+
+  SharedCache( DatabaseLookupData data, ConcurrentLookupCache cache ) {
+    this.data = data;
+    this.cache = cache;
+  }
+
+  /**
+   * Get the cache shared by the copies of a step, create it for the first copy.
+   *
+   * @param trans
+   *          the transformation running the step
+   * @param stepname
+   *          the name of the step
+   * @param data
+   *          the data of the step copy, the evictions it causes are counted there
+   * @param cacheSize
+   *          the maximum number of entries, 0 for no limit
+   * @return the cache for the step copy, hand it back with {@link #release(Trans, String)}
+   */
+  public static SharedCache acquire( Trans trans, String stepname, DatabaseLookupData data, int cacheSize ) {
+    Map<String, Object> extensionData = trans.getExtensionDataMap();
+    synchronized ( extensionData ) {
+      String key = EXTENSION_DATA_KEY_PREFIX + stepname;
+      Users users = (Users) extensionData.get( key );
+      if ( users == null ) {
+        MemoryManager memoryManager = trans.getMemoryManager();
+        MemoryGrant grant = memoryManager == null ? null : memoryManager.createGrant( stepname + ".sharedCache", true );
+        users = new Users( new ConcurrentLookupCache( cacheSize, grant ) );
+        extensionData.put( key, users );
+      }
+      users.count++;
+      return new SharedCache( data, users.cache );
+    }
+  }
+
+  /**
+   * Hand back the cache of a step copy. The shared cache is closed when no copy uses it anymore.
+   *
+   * @param trans
+   *          the transformation running the step
+   * @param stepname
+   *          the name of the step
+   */
+  public void release( Trans trans, String stepname ) {
+    Map<String, Object> extensionData = trans.getExtensionDataMap();
+    synchronized ( extensionData ) {
+      String key = EXTENSION_DATA_KEY_PREFIX + stepname;
+      Users users = (Users) extensionData.get( key );
+      if ( users != null && users.cache == cache && --users.count <= 0 ) {
+        extensionData.remove( key );
+        cache.close();
+      }
+    }
+  }
+
+  @Override
+  public Object[] getRowFromCache( RowMetaInterface lookupMeta, Object[] lookupRow ) {
+    return cache.get( new RowMetaAndData( lookupMeta, lookupRow ) );
+  }
+
+  @Override
+  public void storeRowInCache( DatabaseLookupMeta meta, RowMetaInterface lookupMeta, Object[] lookupRow,
+                               Object[] add ) {
+    data.cacheEvictions += cache.put( new RowMetaAndData( lookupMeta, lookupRow ), add );
+  }
+
+  /**
+   * @return the cache shared by the copies of the step
+   */
+  public ConcurrentLookupCache getSharedCache() {
+    return cache;
+  }
+
+  private static final class Users {
+    private final ConcurrentLookupCache cache;
+    private int count;
+
+    private Users( ConcurrentLookupCache cache ) {
+      this.cache = cache;
+    }
+  }
+}
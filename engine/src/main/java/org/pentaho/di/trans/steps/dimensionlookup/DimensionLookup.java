@@ -13,13 +13,16 @@
 
 package org.pentaho.di.trans.steps.dimensionlookup;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
@@ -102,6 +105,9 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
 
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.lookupBatch != null && !data.lookupBatch.isEmpty() && !processLookupBatch() ) {
+        return false;
+      }
 
       setOutputDone(); // signal end to receiver(s)
       return false;
@@ -206,6 +212,10 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       }
 
       setDimLookup( data.outputRowMeta );
+
+      // Only look up keys in batches when the dimension isn't updated along the way
+      //
+      data.lookupBatch = !meta.isUpdate() && !meta.isPreloadingCache() ? LookupBatch.create( this ) : null;
     }
 
     // convert row to normal storage...
@@ -215,6 +225,18 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       r[ lazyFieldIndex ] = valueMeta.convertToNormalStorageType( r[ lazyFieldIndex ] );
     }
 
+    if ( data.lookupBatch != null ) {
+      data.lookupBatch.add( r );
+      if ( data.lookupBatch.isDue( getInputRowSets() ) ) {
+        return processLookupBatch();
+      }
+      return true;
+    }
+
+    return processLookupRow( r );
+  }
+
+  private boolean processLookupRow( Object[] r ) throws KettleException {
     try {
       Object[] outputRow = lookupValues( data.inputRowMeta, r ); // add new values to the row in rowset[0].
       putRow( data.outputRowMeta, outputRow ); // copy row to output rowset(s);
@@ -236,6 +258,128 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Look up the versions of the distinct natural keys of the rows in the batch with as few queries as possible, then
+   * process the rows in their original order.
+   *
+   * @return false if the step has to stop
+   */
+  private boolean processLookupBatch() throws KettleException {
+    try {
+      try {
+        data.batchVersions = lookupBatchKeys( data.lookupBatch.getRows() );
+      } catch ( KettleException e ) {
+        // Look up the rows one by one, that way errors are reported for the row like without batching
+        if ( log.isDetailed() ) {
+          logDetailed( "Unable to look up a batch of keys, continuing row by row: " + e.getMessage() );
+        }
+        data.batchVersions = null;
+      }
+      for ( Object[] row : data.lookupBatch.getRows() ) {
+        if ( !processLookupRow( row ) ) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      data.batchVersions = null;
+      data.lookupBatch.clear();
+    }
+  }
+
+  /**
+   * Query all the versions of the natural keys of the given rows that can't be found in the cache. The right version
+   * for the date of a row is picked when the row is processed.
+   *
+   * @return the versions for every natural key looked up, an empty list if there are none
+   */
+  private Map<RowMetaAndData, List<Object[]>> lookupBatchKeys( List<Object[]> rows ) throws KettleException {
+    int nrKeyFields = data.keynrs.length;
+    Map<RowMetaAndData, List<Object[]>> versions = new HashMap<>();
+    List<Object[]> keys = new ArrayList<>();
+    for ( Object[] row : rows ) {
+      Object[] keyData = new Object[ nrKeyFields ];
+      boolean hasNull = false;
+      for ( int i = 0; i < nrKeyFields; i++ ) {
+        keyData[ i ] = row[ data.keynrs[ i ] ];
+        hasNull |= keyData[ i ] == null;
+      }
+      RowMetaAndData key = new RowMetaAndData( data.batchKeyMeta, keyData );
+      if ( versions.containsKey( key ) ) {
+        continue;
+      }
+      if ( meta.getCacheSize() >= 0 ) {
+        try {
+          if ( getFromCache( keyData, determineDimensionUpdatedDate( row ) ) != null ) {
+            continue;
+          }
+        } catch ( KettleException e ) {
+          continue; // reported when the row itself is processed
+        }
+      }
+      versions.put( key, new ArrayList<Object[]>() );
+      if ( !hasNull ) {
+        // A null never equals anything, there's no need to ask the database for those
+        keys.add( keyData );
+      }
+    }
+
+    DatabaseMeta databaseMeta = meta.getDatabaseMeta();
+    int from = 0;
+    while ( from < keys.size() ) {
+      int nrKeys = LookupBatch.getKeysInQuery( keys.size() - from, nrKeyFields );
+      StringBuilder sql = new StringBuilder( data.batchSelect );
+      LookupBatch.appendKeyCondition( sql, databaseMeta, meta.getKeyLookup(), nrKeys );
+      List<Object[]> found = data.db.getRows( sql.toString(),
+        LookupBatch.getParameterMeta( data.batchKeyMeta, nrKeys ),
+        LookupBatch.getParameterData( keys, from, nrKeys, nrKeyFields ), ResultSet.FETCH_FORWARD, false, 0, null );
+      RowMetaInterface foundMeta = data.db.getReturnRowMeta();
+      if ( data.batchVersionMeta == null ) {
+        data.batchVersionMeta = foundMeta;
+        data.batchReturnRowMeta = new RowMeta();
+        for ( int i = 0; i < data.lookupColumnCount; i++ ) {
+          data.batchReturnRowMeta.addValueMeta( foundMeta.getValueMeta( i ) );
+        }
+      }
+
+      // The natural key follows the columns of a single lookup and the date range
+      //
+      int keyIndex = data.lookupColumnCount + 2;
+      for ( Object[] version : found ) {
+        Object[] keyData = new Object[ nrKeyFields ];
+        for ( int i = 0; i < nrKeyFields; i++ ) {
+          keyData[ i ] =
+            data.batchKeyMeta.getValueMeta( i ).convertData( foundMeta.getValueMeta( keyIndex + i ),
+              version[ keyIndex + i ] );
+        }
+        List<Object[]> keyVersions = versions.get( new RowMetaAndData( data.batchKeyMeta, keyData ) );
+        if ( keyVersions != null ) {
+          keyVersions.add( version );
+        }
+      }
+      from += nrKeys;
+    }
+    return versions;
+  }
+
+  /**
+   * Pick the version that is valid at the given date, the same way the lookup query does.
+   *
+   * @return the columns of a single lookup for that version or null if no version is valid at that date
+   */
+  private Object[] findBatchVersion( List<Object[]> versions, Date valueDate ) throws KettleValueException {
+    long time = valueDate.getTime();
+    for ( Object[] version : versions ) {
+      Date dateFrom = data.batchVersionMeta.getDate( version, data.lookupColumnCount );
+      Date dateTo = data.batchVersionMeta.getDate( version, data.lookupColumnCount + 1 );
+      boolean afterFrom = dateFrom == null ? data.lookupNullStartDate : dateFrom.getTime() <= time;
+      if ( afterFrom && dateTo != null && time < dateTo.getTime() ) {
+        return Arrays.copyOf( version, data.lookupColumnCount );
+      }
+    }
+    return null;
+  }
+
   private Date determineDimensionUpdatedDate( Object[] row ) throws KettleException {
     if ( data.datefieldnr < 0 ) {
       return getTrans().getCurrentDate(); // start of transformation...
@@ -432,9 +576,18 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       // Perform the lookup in the database...
       //
       if ( returnRow == null ) {
-        data.db.setValues( data.lookupRowMeta, lookupRow, data.prepStatementLookup );
-        returnRow = data.db.getLookup( data.prepStatementLookup );
-        data.returnRowMeta = data.db.getReturnRowMeta();
+        List<Object[]> versions = data.batchVersions == null ? null
+          : data.batchVersions.get( new RowMetaAndData( data.batchKeyMeta,
+            Arrays.copyOf( lookupRow, meta.getKeyStream().length ) ) );
+        if ( versions != null && data.batchReturnRowMeta != null ) {
+          // Looked up together with the other rows of the batch
+          returnRow = versions.isEmpty() ? null : findBatchVersion( versions, valueDate );
+          data.returnRowMeta = data.batchReturnRowMeta;
+        } else {
+          data.db.setValues( data.lookupRowMeta, lookupRow, data.prepStatementLookup );
+          returnRow = data.db.getLookup( data.prepStatementLookup );
+          data.returnRowMeta = data.db.getReturnRowMeta();
+        }
 
         incrementLinesInput();
 
@@ -839,6 +992,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       "SELECT "
         + databaseMeta.quoteField( meta.getKeyField() ) + ", "
         + databaseMeta.quoteField( meta.getVersionField() );
+    int nrColumns = 2;
 
     if ( !Utils.isEmpty( meta.getFieldLookup() ) ) {
       for ( int i = 0; i < meta.getFieldLookup().length; i++ ) {
@@ -851,13 +1005,32 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
             && !meta.getFieldLookup()[ i ].equals( meta.getFieldStream()[ i ] ) ) {
             sql += " AS " + databaseMeta.quoteField( meta.getFieldStream()[ i ] );
           }
+          nrColumns++;
         }
       }
     }
     if ( meta.getCacheSize() >= 0 ) {
       sql +=
         ", " + databaseMeta.quoteField( meta.getDateFrom() ) + ", " + databaseMeta.quoteField( meta.getDateTo() );
+      nrColumns += 2;
+    }
+
+    // A batch of keys is looked up with the same columns, followed by the date range and the natural key so the
+    // versions can be matched with the rows afterwards.
+    //
+    StringBuilder batchSelect = new StringBuilder( sql );
+    batchSelect.append( ", " ).append( databaseMeta.quoteField( meta.getDateFrom() ) );
+    batchSelect.append( ", " ).append( databaseMeta.quoteField( meta.getDateTo() ) );
+    data.batchKeyMeta = new RowMeta();
+    for ( int i = 0; i < meta.getKeyLookup().length; i++ ) {
+      batchSelect.append( ", " ).append( databaseMeta.quoteField( meta.getKeyLookup()[ i ] ) );
+      data.batchKeyMeta.addValueMeta( data.inputRowMeta.getValueMeta( data.keynrs[ i ] ) );
     }
+    batchSelect.append( " FROM " ).append( data.schemaTable ).append( " WHERE " );
+    data.batchSelect = batchSelect.toString();
+    data.lookupColumnCount = nrColumns;
+    data.batchVersionMeta = null;
+    data.batchReturnRowMeta = null;
 
     sql += " FROM " + data.schemaTable + " WHERE ";
 
@@ -877,6 +1050,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       || ( meta.getStartDateAlternative() == DimensionLookupMeta.START_DATE_ALTERNATIVE_COLUMN_VALUE ) ) {
       // Null as a start date is possible...
       //
+      data.lookupNullStartDate = true;
       sql += " AND ( " + dateFromField + " IS NULL OR " + dateFromField + " <= ? )" + Const.CR;
       sql += " AND " + dateToField + " > ?" + Const.CR;
 
@@ -885,6 +1059,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     } else {
       // Null as a start date is NOT possible
       //
+      data.lookupNullStartDate = false;
       sql += " AND ? >= " + dateFromField + Const.CR;
       sql += " AND ? < " + dateToField + Const.CR;
 
@@ -16,12 +16,15 @@ package org.pentaho.di.trans.steps.dimensionlookup;
 import java.sql.PreparedStatement;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.hash.ByteArrayHashMap;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseDatabaseStepData;
 import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.LookupBatch;
 import org.pentaho.di.trans.step.StepDataInterface;
 
 /**
@@ -89,6 +92,23 @@ public class DimensionLookupData extends BaseDatabaseStepData implements StepDat
    */
   public RowMetaInterface inputRowMeta;
 
+  /** The rows waiting to be looked up together, null if every row is looked up on its own */
+  public LookupBatch lookupBatch;
+
+  /** All the versions found for the natural keys of the current batch */
+  public Map<RowMetaAndData, List<Object[]>> batchVersions;
+
+  public RowMetaInterface batchKeyMeta;
+  public RowMetaInterface batchVersionMeta;
+  public RowMetaInterface batchReturnRowMeta;
+
+  public String batchSelect;
+
+  /** The number of columns returned by the lookup of a single key */
+  public int lookupColumnCount;
+
+  public boolean lookupNullStartDate;
+
   public DimensionLookupData() {
     super();
 
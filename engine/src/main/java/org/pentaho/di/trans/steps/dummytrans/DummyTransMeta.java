@@ -13,6 +13,7 @@
 
 package org.pentaho.di.trans.steps.dummytrans;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.pentaho.di.core.bowl.Bowl;
@@ -25,11 +26,13 @@ import org.pentaho.di.core.exception.KettleXMLException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.lineage.FieldnameLineage;
 import org.pentaho.di.repository.ObjectId;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.FieldUsageInterface;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
@@ -42,7 +45,7 @@ import org.w3c.dom.Node;
  *
  */
 
-public class DummyTransMeta extends BaseStepMeta implements StepMetaInterface {
+public class DummyTransMeta extends BaseStepMeta implements StepMetaInterface, FieldUsageInterface {
   private static Class<?> PKG = DummyTransMeta.class; // for i18n purposes, needed by Translator2!!
 
   public DummyTransMeta() {
@@ -115,4 +118,19 @@ public class DummyTransMeta extends BaseStepMeta implements StepMetaInterface {
     return new DummyTransData();
   }
 
+  @Override
+  public int getFieldUsage( String fieldName, VariableSpace space ) {
+    return USAGE_NONE;
+  }
+
+  @Override
+  public boolean isPassingInputFields() {
+    return true;
+  }
+
+  @Override
+  public List<FieldnameLineage> getFieldnameLineage() {
+    return Collections.emptyList();
+  }
+
 }
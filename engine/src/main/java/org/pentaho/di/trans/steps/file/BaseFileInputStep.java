@@ -245,6 +245,8 @@ public abstract class BaseFileInputStep<M extends BaseFileInputMeta<?, ?, ?>, D
     // Create convert meta-data objects that will contain Date & Number formatters
     //
     data.convertRowMeta = data.outputRowMeta.cloneToType( ValueMetaInterface.TYPE_STRING );
+    applyFastValueConversion( data.outputRowMeta );
+    applyFastValueConversion( data.convertRowMeta );
 
     BaseFileInputStepUtils.handleMissingFiles( data.files, log, meta.errorHandling.errorIgnored,
         data.dataErrorLineHandler );
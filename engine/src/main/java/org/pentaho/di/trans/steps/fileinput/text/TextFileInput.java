@@ -16,6 +16,7 @@ package org.pentaho.di.trans.steps.fileinput.text;
 import java.util.Date;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.playlist.FilePlayListAll;
 import org.pentaho.di.core.playlist.FilePlayListReplay;
 import org.pentaho.di.i18n.BaseMessages;
@@ -67,6 +68,8 @@ public class TextFileInput extends BaseFileInputStep<TextFileInputMeta, TextFile
     // calculate the file type in advance CSV or Fixed?
     data.fileType = meta.getFileTypeNr();
 
+    data.decompressionThreads = Const.toInt( getVariable( Const.KETTLE_DECOMPRESSION_THREADS ), 0 );
+
     // Handle the possibility of a variable substitution
     data.separator = environmentSubstitute( meta.content.separator );
     data.enclosure = environmentSubstitute( meta.content.enclosure );
@@ -62,6 +62,9 @@ public class TextFileInputData extends BaseFileInputStepData {
 
   public EncodingType encodingType;
 
+  /** The number of threads to decompress the files on, 0 to decompress on the step thread */
+  public int decompressionThreads;
+
   public TextFileInputData() {
     // linked list is better, as usually .remove(0) is applied to this list
     lineBuffer = new LinkedList<TextFileLine>();
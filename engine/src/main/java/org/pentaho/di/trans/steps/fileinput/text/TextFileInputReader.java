@@ -69,7 +69,8 @@ public class TextFileInputReader implements IBaseFileInputReader {
       log.logDetailed( "This is a compressed file being handled by the " + provider.getName() + " provider" );
     }
 
-    in = provider.createInputStream( KettleVFS.getInputStream( file ) );
+    in = CompressionProviderFactory.getInstance().createInputStream( provider, KettleVFS.getInputStream( file ),
+      data.decompressionThreads );
 
     in.nextEntry();
 
@@ -16,8 +16,10 @@ package org.pentaho.di.trans.steps.filterrows;
 import java.util.List;
 
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -59,10 +61,26 @@ public class FilterRows extends BaseStep implements StepInterface {
     }
   }
 
+  private synchronized void keepRows( RowBatch batch, boolean[] keep ) throws KettleException {
+    try {
+      meta.getCondition().evaluate( batch, keep );
+    } catch ( Exception e ) {
+      String message =
+        BaseMessages.getString( PKG, "FilterRows.Exception.UnexpectedErrorFoundInEvaluationFuction" );
+      logError( message );
+      logError( Const.getStackTracker( e ) );
+      throw new KettleException( message, e );
+    }
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     meta = (FilterRowsMeta) smi;
     data = (FilterRowsData) sdi;
 
+    if ( isRowBatchEnabled() ) {
+      return processRowBatch();
+    }
+
     boolean keep;
 
     Object[] r = getRow(); // Get next usable row from input rowset(s)!
@@ -74,38 +92,7 @@ public class FilterRows extends BaseStep implements StepInterface {
 
     if ( first ) {
       first = false;
-
-      data.outputRowMeta = getInputRowMeta().clone();
-      meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
-        metaStore );
-
-      // if filter refers to non-existing fields, throw exception
-      checkNonExistingFields();
-
-      // Cache the position of the RowSet for the output.
-      //
-      if ( data.chosesTargetSteps ) {
-        List<StreamInterface> targetStreams = meta.getStepIOMeta().getTargetStreams();
-        if ( !Utils.isEmpty( targetStreams.get( 0 ).getStepname() ) ) {
-          data.trueRowSet = findOutputRowSet( getStepname(), getCopy(), targetStreams.get( 0 ).getStepname(), 0 );
-          if ( data.trueRowSet == null ) {
-            throw new KettleException( BaseMessages.getString(
-              PKG, "FilterRows.Log.TargetStepInvalid", targetStreams.get( 0 ).getStepname() ) );
-          }
-        } else {
-          data.trueRowSet = null;
-        }
-
-        if ( !Utils.isEmpty( targetStreams.get( 1 ).getStepname() ) ) {
-          data.falseRowSet = findOutputRowSet( getStepname(), getCopy(), targetStreams.get( 1 ).getStepname(), 0 );
-          if ( data.falseRowSet == null ) {
-            throw new KettleException( BaseMessages.getString(
-              PKG, "FilterRows.Log.TargetStepInvalid", targetStreams.get( 1 ).getStepname() ) );
-          }
-        } else {
-          data.falseRowSet = null;
-        }
-      }
+      initOutput();
     }
 
     keep = keepRow( getInputRowMeta(), r ); // Keep this row?
@@ -140,6 +127,86 @@ public class FilterRows extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Determine the output row metadata and look up the target row sets, done once for the first row.
+   */
+  private void initOutput() throws KettleException {
+    data.outputRowMeta = getInputRowMeta().clone();
+    meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
+      metaStore );
+
+    // if filter refers to non-existing fields, throw exception
+    checkNonExistingFields();
+
+    // Cache the position of the RowSet for the output.
+    //
+    if ( data.chosesTargetSteps ) {
+      List<StreamInterface> targetStreams = meta.getStepIOMeta().getTargetStreams();
+      if ( !Utils.isEmpty( targetStreams.get( 0 ).getStepname() ) ) {
+        data.trueRowSet = findOutputRowSet( getStepname(), getCopy(), targetStreams.get( 0 ).getStepname(), 0 );
+        if ( data.trueRowSet == null ) {
+          throw new KettleException( BaseMessages.getString(
+            PKG, "FilterRows.Log.TargetStepInvalid", targetStreams.get( 0 ).getStepname() ) );
+        }
+      } else {
+        data.trueRowSet = null;
+      }
+
+      if ( !Utils.isEmpty( targetStreams.get( 1 ).getStepname() ) ) {
+        data.falseRowSet = findOutputRowSet( getStepname(), getCopy(), targetStreams.get( 1 ).getStepname(), 0 );
+        if ( data.falseRowSet == null ) {
+          throw new KettleException( BaseMessages.getString(
+            PKG, "FilterRows.Log.TargetStepInvalid", targetStreams.get( 1 ).getStepname() ) );
+        }
+      } else {
+        data.falseRowSet = null;
+      }
+    }
+  }
+
+  /**
+   * Evaluates the condition for a whole batch of rows at once. Without target steps the rows that don't match are
+   * simply dropped from the batch, otherwise every row is sent to the true or false row set.
+   */
+  private boolean processRowBatch() throws KettleException {
+    RowBatch batch = getRowBatch();
+    if ( batch == null ) { // no more input to be expected...
+      setOutputDone();
+      return false;
+    }
+
+    if ( first ) {
+      first = false;
+      initOutput();
+    }
+
+    int size = batch.size();
+    if ( data.keep == null || data.keep.length < size ) {
+      data.keep = new boolean[batch.capacity()];
+    }
+    keepRows( batch, data.keep );
+
+    if ( !data.chosesTargetSteps ) {
+      batch.retain( data.keep );
+      putRowBatch( data.outputRowMeta, batch );
+    } else {
+      for ( int i = 0; i < size; i++ ) {
+        RowSet target = data.keep[i] ? data.trueRowSet : data.falseRowSet;
+        if ( target != null ) {
+          putRowTo( data.outputRowMeta, batch.getRow( i ), target );
+        }
+      }
+    }
+
+    if ( checkFeedback( getLinesRead(), size ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "FilterRows.Log.LineNumber" ) + getLinesRead() );
+      }
+    }
+
+    return true;
+  }
+
   /**
    * @see StepInterface#init(org.pentaho.di.trans.step.StepMetaInterface , org.pentaho.di.trans.step.StepDataInterface)
    */
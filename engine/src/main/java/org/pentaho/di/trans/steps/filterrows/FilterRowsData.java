@@ -32,6 +32,9 @@ public class FilterRowsData extends BaseStepData implements StepDataInterface {
   public String trueStepname;
   public String falseStepname;
 
+  /** The outcome of the condition for every row of the current batch */
+  public boolean[] keep;
+
   public FilterRowsData() {
     super();
   }
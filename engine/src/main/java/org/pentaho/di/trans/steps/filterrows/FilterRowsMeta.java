@@ -32,11 +32,14 @@ import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.lineage.FieldnameLineage;
 import org.pentaho.di.repository.ObjectId;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.FieldUsageInterface;
+import org.pentaho.di.trans.step.RowBatchCapable;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepIOMeta;
 import org.pentaho.di.trans.step.StepIOMetaInterface;
@@ -51,6 +54,7 @@ import org.pentaho.metastore.api.IMetaStore;
 import org.w3c.dom.Node;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -60,7 +64,7 @@ import java.util.Optional;
  *
  */
 @InjectionSupported( localizationPrefix = "FilterRowsMeta.Injection." )
-public class FilterRowsMeta extends BaseStepMeta implements StepMetaInterface {
+public class FilterRowsMeta extends BaseStepMeta implements StepMetaInterface, FieldUsageInterface, RowBatchCapable {
   private static Class<?> PKG = FilterRowsMeta.class; // for i18n purposes, needed by Translator2!!
 
   /**
@@ -457,4 +461,39 @@ public class FilterRowsMeta extends BaseStepMeta implements StepMetaInterface {
       log.logError( e.getMessage() );
     }
   }
+
+  @Override
+  public int getFieldUsage( String fieldName, VariableSpace space ) {
+    if ( condition != null ) {
+      for ( String usedField : condition.getUsedFields() ) {
+        if ( fieldName.equalsIgnoreCase( usedField ) ) {
+          return USAGE_READ;
+        }
+      }
+    }
+    return USAGE_NONE;
+  }
+
+  @Override
+  public boolean isPassingInputFields() {
+    return true;
+  }
+
+  @Override
+  public List<FieldnameLineage> getFieldnameLineage() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public boolean isReadingRowBatches() {
+    return true;
+  }
+
+  /**
+   * Rows sent to chosen true and false steps go out one by one.
+   */
+  @Override
+  public boolean isWritingRowBatches() {
+    return getTrueStepname() == null && getFalseStepname() == null;
+  }
 }
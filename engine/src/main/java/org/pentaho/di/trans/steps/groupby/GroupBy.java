@@ -29,9 +29,11 @@ import java.util.TreeSet;
 import org.apache.commons.math.stat.descriptive.rank.Percentile;
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.codegen.RowKeyComparatorCompiler;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettlePluginException;
+import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
@@ -83,6 +85,9 @@ public class GroupBy extends BaseStep implements StepInterface {
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     meta = (GroupByMeta) smi;
     data = (GroupByData) sdi;
+    if ( data.combiningMeta != null ) {
+      meta = data.combiningMeta;
+    }
 
     Object[] r = getRow(); // get row!
 
@@ -106,6 +111,9 @@ public class GroupBy extends BaseStep implements StepInterface {
       }
 
       data.outputRowMeta = data.inputRowMeta.clone();
+      if ( meta.passAllRows() ) {
+        data.bufferArena = createOffHeapRowArena( data.inputRowMeta );
+      }
       meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
          metaStore );
 
@@ -167,6 +175,9 @@ public class GroupBy extends BaseStep implements StepInterface {
           return false;
         }
       }
+      if ( r != null ) {
+        data.groupComparator = RowKeyComparatorCompiler.create( this, log, data.inputRowMeta, data.groupnrs );
+      }
 
       // Create a metadata value for the counter Integers
       //
@@ -401,7 +412,7 @@ public class GroupBy extends BaseStep implements StepInterface {
 
   // Is the row r of the same group as previous?
   boolean sameGroup( Object[] previous, Object[] r ) throws KettleValueException {
-    return data.inputRowMeta.compare( previous, r, data.groupnrs ) == 0;
+    return data.groupComparator.compare( previous, r ) == 0;
   }
 
   /**
@@ -778,23 +789,13 @@ public class GroupBy extends BaseStep implements StepInterface {
 
   // Method is defined as package-protected in order to be accessible by unit tests
   void addToBuffer( Object[] row ) throws KettleFileException {
+    if ( data.bufferArena != null ) {
+      addToArena( row );
+      return;
+    }
     data.bufferList.add( row );
     if ( data.bufferList.size() > 5000 && data.rowsOnFile == 0 ) {
-      String pathToTmp = environmentSubstitute( getMeta().getDirectory() );
-      try {
-        File ioFile = new File( pathToTmp );
-        if ( !ioFile.exists() ) {
-          // try to resolve as Apache VFS file
-          pathToTmp = retrieveVfsPath( pathToTmp );
-        }
-        data.tempFile = File.createTempFile( getMeta().getPrefix(), ".tmp", new File( pathToTmp ) );
-        data.fosToTempFile = new FileOutputStream( data.tempFile );
-        data.dosToTempFile = new DataOutputStream( data.fosToTempFile );
-        data.firstRead = true;
-      } catch ( IOException e ) {
-        throw new KettleFileException( BaseMessages.getString( PKG, "GroupBy.Exception.UnableToCreateTemporaryFile" ),
-            e );
-      }
+      openTempFile();
       // OK, save the oldest rows to disk!
       Object[] oldest = data.bufferList.get( 0 );
       data.inputRowMeta.writeData( data.dosToTempFile, oldest );
@@ -803,6 +804,56 @@ public class GroupBy extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Buffer a row off-heap. When the off-heap budget is used up, the buffered rows are appended to the temporary file:
+   * the rows on file are always older than the ones in the arena.
+   */
+  private void addToArena( Object[] row ) throws KettleFileException {
+    try {
+      if ( data.bufferArena.add( row ) ) {
+        return;
+      }
+      if ( data.rowsOnFile == 0 ) {
+        // Start a new file, the previous one was read back completely
+        closeOutput();
+        if ( data.tempFile != null ) {
+          data.tempFile.delete();
+        }
+        openTempFile();
+      }
+      for ( int i = 0; i < data.bufferArena.size(); i++ ) {
+        // The rows are already serialized, copy them as-is
+        data.bufferArena.writeRow( i, data.dosToTempFile );
+      }
+      data.rowsOnFile += data.bufferArena.size();
+      data.bufferArena.clear();
+
+      if ( !data.bufferArena.add( row ) ) {
+        throw new KettleFileException( BaseMessages.getString( PKG, "GroupBy.Exception.RowDoesNotFitOffHeapBudget" ) );
+      }
+    } catch ( KettleValueException e ) {
+      throw new KettleFileException( e );
+    }
+  }
+
+  private void openTempFile() throws KettleFileException {
+    String pathToTmp = environmentSubstitute( getMeta().getDirectory() );
+    try {
+      File ioFile = new File( pathToTmp );
+      if ( !ioFile.exists() ) {
+        // try to resolve as Apache VFS file
+        pathToTmp = retrieveVfsPath( pathToTmp );
+      }
+      data.tempFile = File.createTempFile( getMeta().getPrefix(), ".tmp", new File( pathToTmp ) );
+      data.fosToTempFile = new FileOutputStream( data.tempFile );
+      data.dosToTempFile = new DataOutputStream( data.fosToTempFile );
+      data.firstRead = true;
+    } catch ( IOException e ) {
+      throw new KettleFileException( BaseMessages.getString( PKG, "GroupBy.Exception.UnableToCreateTemporaryFile" ),
+          e );
+    }
+  }
+
   // Method is defined as public in order to be accessible by unit tests
   public String retrieveVfsPath( String pathToTmp ) throws KettleFileException {
     FileObject vfsFile = KettleVFS.getInstance( getTransMeta().getBowl() ).getFileObject( pathToTmp );
@@ -834,6 +885,19 @@ public class GroupBy extends BaseStep implements StepInterface {
       data.rowsOnFile--;
 
       return row;
+    } else if ( data.bufferArena != null ) {
+      if ( data.bufferArenaIndex < data.bufferArena.size() ) {
+        try {
+          return data.bufferArena.get( data.bufferArenaIndex++ );
+        } catch ( KettleValueException e ) {
+          throw new KettleFileException( e );
+        }
+      } else {
+        // Nothing left: start over for the next group
+        data.bufferArena.clear();
+        data.bufferArenaIndex = 0;
+        return null;
+      }
     } else {
       if ( data.bufferList.size() > 0 ) {
         Object[] row = data.bufferList.get( 0 );
@@ -888,6 +952,15 @@ public class GroupBy extends BaseStep implements StepInterface {
 
       data.rowsOnFile = 0;
 
+      if ( meta.isCombiningPartialAggregates() ) {
+        try {
+          data.combiningMeta = meta.createCombiningMeta();
+        } catch ( KettleStepException e ) {
+          logError( e.getMessage() );
+          return false;
+        }
+      }
+
       return true;
     }
     return false;
@@ -895,6 +968,10 @@ public class GroupBy extends BaseStep implements StepInterface {
 
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    if ( data.bufferArena != null ) {
+      data.bufferArena.close();
+      data.bufferArena = null;
+    }
     if ( data.tempFile != null ) {
       try {
         closeInput();
@@ -22,6 +22,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import org.pentaho.di.core.row.OffHeapRowArena;
+import org.pentaho.di.core.row.RowKeyComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -43,6 +45,7 @@ public class GroupByData extends BaseStepData implements StepDataInterface {
   public RowMetaInterface groupMeta;
   public RowMetaInterface groupAggMeta; // for speed: groupMeta+aggMeta
   public int[] groupnrs;
+  public RowKeyComparator groupComparator;
   /**
    * array, length is equal to aggMeta value
    * meta list size and metadata subject fields length. Values corresponds to input
@@ -55,6 +58,11 @@ public class GroupByData extends BaseStepData implements StepDataInterface {
 
   public ArrayList<Object[]> bufferList;
 
+  /** Used instead of the buffer list when the transformation has an off-heap budget, null otherwise */
+  public OffHeapRowArena bufferArena;
+  /** The next row to read from the buffer arena */
+  public int bufferArenaIndex;
+
   public File tempFile;
 
   public FileOutputStream fosToTempFile;
@@ -94,6 +102,9 @@ public class GroupByData extends BaseStepData implements StepDataInterface {
 
   public boolean newBatch;
 
+  /** The metadata that merges the partial aggregates, null unless partial aggregates are combined */
+  public GroupByMeta combiningMeta;
+
   public GroupByData() {
     super();
 
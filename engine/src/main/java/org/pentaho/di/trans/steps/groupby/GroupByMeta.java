@@ -23,6 +23,7 @@ import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettlePluginException;
+import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleXMLException;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -38,6 +39,7 @@ import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.PartialAggregatesCombinable;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepHelperInterface;
 import org.pentaho.di.trans.step.StepInterface;
@@ -51,7 +53,7 @@ import org.w3c.dom.Node;
  * Created on 02-jun-2003
  */
 
-public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
+public class GroupByMeta extends BaseStepMeta implements StepMetaInterface, PartialAggregatesCombinable {
   private static Class<?> PKG = GroupByMeta.class; // for i18n purposes, needed by Translator2!!
 
   public static final int TYPE_GROUP_NONE = 0;
@@ -191,6 +193,11 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
    */
   private boolean alwaysGivingBackOneRow;
 
+  /**
+   * Flag to indicate that the input rows are partial aggregates calculated with the same settings, to be combined.
+   */
+  private boolean combiningPartialAggregates;
+
   public GroupByMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -393,6 +400,9 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
       } else {
         alwaysGivingBackOneRow = "Y".equalsIgnoreCase( giveBackRow );
       }
+
+      combiningPartialAggregates =
+        "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "combine_partial_aggregates" ) );
     } catch ( Exception e ) {
       throw new KettleXMLException( BaseMessages.getString(
         PKG, "GroupByMeta.Exception.UnableToLoadStepInfoFromXML" ), e );
@@ -420,6 +430,30 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
     return typeGroupCode[ i ];
   }
 
+  /**
+   * Get the aggregation type that combines partial aggregates of the given type into the aggregate over all rows.
+   *
+   * @param type
+   *          the aggregation type of the partial aggregates
+   * @return the combining aggregation type or -1 if partial aggregates of this type can't be combined
+   */
+  public static final int getCombiningType( int type ) {
+    switch ( type ) {
+      case TYPE_GROUP_NONE:
+      case TYPE_GROUP_SUM:
+      case TYPE_GROUP_MIN:
+      case TYPE_GROUP_MAX:
+      case TYPE_GROUP_CONCAT_COMMA:
+      case TYPE_GROUP_CONCAT_STRING:
+        return type;
+      case TYPE_GROUP_COUNT_ALL:
+      case TYPE_GROUP_COUNT_ANY:
+        return TYPE_GROUP_SUM;
+      default:
+        return -1;
+    }
+  }
+
   public static final String getTypeDescLong( int i ) {
     if ( i < 0 || i >= typeGroupLongDesc.length ) {
       return null;
@@ -435,6 +469,7 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
     passAllRows = false;
     aggregateIgnored = false;
     aggregateIgnoredField = null;
+    combiningPartialAggregates = false;
 
     int sizeGroup = 0;
     int numberOfFields = 0;
@@ -445,6 +480,15 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
   @Override
   public void getFields( Bowl bowl, RowMetaInterface rowMeta, String origin, RowMetaInterface[] info, StepMeta nextStep,
                          VariableSpace space, Repository repository, IMetaStore metaStore ) {
+    if ( combiningPartialAggregates ) {
+      try {
+        createCombiningMeta().getFields( bowl, rowMeta, origin, info, nextStep, space, repository, metaStore );
+        return;
+      } catch ( KettleStepException e ) {
+        // Reported by check(), describe the output of the partial aggregates
+      }
+    }
+
     // re-assemble a new row of metadata
     //
     RowMetaInterface fields = new RowMeta();
@@ -577,6 +621,8 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
     retval.append( "      " ).append( XMLHandler.addTagValue( "add_linenr", addingLineNrInGroup ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "linenr_fieldname", lineNrInGroupField ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "give_back_row", alwaysGivingBackOneRow ) );
+    retval.append( "      " ).append(
+      XMLHandler.addTagValue( "combine_partial_aggregates", combiningPartialAggregates ) );
 
     retval.append( "      <group>" ).append( Const.CR );
     for ( int i = 0; i < groupField.length; i++ ) {
@@ -635,6 +681,7 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
       }
 
       alwaysGivingBackOneRow = rep.getStepAttributeBoolean( id_step, 0, "give_back_row", hasNumberOfValues );
+      combiningPartialAggregates = rep.getStepAttributeBoolean( id_step, "combine_partial_aggregates" );
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString(
         PKG, "GroupByMeta.Exception.UnexpectedErrorInReadingStepInfoFromRepository" ), e );
@@ -653,6 +700,7 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
       rep.saveStepAttribute( id_transformation, id_step, "add_linenr", addingLineNrInGroup );
       rep.saveStepAttribute( id_transformation, id_step, "linenr_fieldname", lineNrInGroupField );
       rep.saveStepAttribute( id_transformation, id_step, "give_back_row", alwaysGivingBackOneRow );
+      rep.saveStepAttribute( id_transformation, id_step, "combine_partial_aggregates", combiningPartialAggregates );
 
       for ( int i = 0; i < groupField.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "group_name", groupField[ i ] );
@@ -688,6 +736,14 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
           PKG, "GroupByMeta.CheckResult.NoInputError" ), stepMeta );
       remarks.add( cr );
     }
+
+    if ( combiningPartialAggregates ) {
+      try {
+        createCombiningMeta();
+      } catch ( KettleStepException e ) {
+        remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, e.getMessage(), stepMeta ) );
+      }
+    }
   }
 
   @Override
@@ -771,6 +827,39 @@ public class GroupByMeta extends BaseStepMeta implements StepMetaInterface {
     this.alwaysGivingBackOneRow = alwaysGivingBackOneRow;
   }
 
+  @Override
+  public boolean isCombiningPartialAggregates() {
+    return combiningPartialAggregates;
+  }
+
+  @Override
+  public void setCombiningPartialAggregates( boolean combiningPartialAggregates ) {
+    this.combiningPartialAggregates = combiningPartialAggregates;
+  }
+
+  /**
+   * Create the metadata that merges the partial aggregates calculated with this metadata. First and last values are
+   * refused as well: which partial aggregate holds the first value of a key is not known.
+   */
+  @Override
+  public GroupByMeta createCombiningMeta() throws KettleStepException {
+    if ( passAllRows ) {
+      throw new KettleStepException( BaseMessages.getString( PKG, "GroupByMeta.Exception.CannotCombineAllRows" ) );
+    }
+    GroupByMeta combining = (GroupByMeta) clone();
+    combining.combiningPartialAggregates = false;
+    for ( int i = 0; i < aggregateType.length; i++ ) {
+      int type = getCombiningType( aggregateType[ i ] );
+      if ( type < 0 ) {
+        throw new KettleStepException( BaseMessages.getString( PKG, "GroupByMeta.Exception.CannotCombineAggregate",
+          aggregateField[ i ], getTypeDescLong( aggregateType[ i ] ) ) );
+      }
+      combining.subjectField[ i ] = aggregateField[ i ];
+      combining.aggregateType[ i ] = type;
+    }
+    return combining;
+  }
+
   @Override
   public StepMetaInjectionInterface getStepMetaInjectionInterface() {
     return new GroupByMetaInjection( this );
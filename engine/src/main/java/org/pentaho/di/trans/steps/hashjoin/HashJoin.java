@@ -0,0 +1,567 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.hash.CompositeKeyHashIndex;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinData.Bucket;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinData.SpillFile;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinData.SpillPartition;
+
+/**
+ * Join rows from 2 unsorted streams on equal keys.
+ * <p>
+ * All the rows of the build side are read into a hash table on their key first. Then every row of the probe side is
+ * looked up and joined with all the build rows having the same key. Build rows that didn't match any probe row are sent
+ * to the output at the end for outer joins on the build side. As with Merge Join, null keys match each other.
+ * <p>
+ * If the build side holds more rows than the configured maximum, both sides are partitioned on the hash of their key
+ * over temporary files (grace hash join). Every partition is then joined on its own, partitions that are still too
+ * large are split up again using other bits of the hash code.
+ *
+ * @since 11.1
+ */
+public class HashJoin extends BaseStep implements StepInterface {
+  private static Class<?> PKG = HashJoinMeta.class; // for i18n purposes, needed by Translator2!!
+
+  /** Every spill level splits the rows over 2^SPILL_PARTITION_BITS partitions */
+  static final int SPILL_PARTITION_BITS = 4;
+  static final int SPILL_PARTITIONS = 1 << SPILL_PARTITION_BITS;
+
+  /** Once all the hash code bits are used up, partitioning doesn't split keys anymore */
+  static final int MAX_SPILL_LEVEL = Integer.SIZE / SPILL_PARTITION_BITS;
+
+  private HashJoinMeta meta;
+  private HashJoinData data;
+
+  public HashJoin( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
+    Trans trans ) {
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    meta = (HashJoinMeta) smi;
+    data = (HashJoinData) sdi;
+
+    if ( first ) {
+      first = false;
+
+      Object[] buildRow = initialize();
+
+      // Read the complete build side
+      //
+      while ( buildRow != null && !isStopped() ) {
+        addBuildRow( buildRow );
+        buildRow = getRowFrom( data.buildRowSet );
+      }
+      if ( isStopped() ) {
+        return false;
+      }
+
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "HashJoin.Log.BuildSideRead", data.buckets.size() ) );
+      }
+
+      if ( data.spillPartitions != null ) {
+        // The build side didn't fit in memory: partition the probe side as well and join partition by partition
+        //
+        Object[] probeRow = data.probeRow;
+        data.probeRow = null;
+        while ( probeRow != null && !isStopped() ) {
+          spillProbeRow( probeRow );
+          probeRow = getRowFrom( data.probeRowSet );
+        }
+        joinSpilledPartitions();
+
+        setOutputDone();
+        return false;
+      }
+    }
+
+    Object[] probeRow;
+    if ( data.probeRow != null ) {
+      probeRow = data.probeRow;
+      data.probeRow = null;
+    } else {
+      probeRow = getRowFrom( data.probeRowSet );
+    }
+
+    if ( probeRow == null ) {
+      putUnmatchedBuildRows();
+      data.clearHashTable();
+
+      setOutputDone();
+      return false;
+    }
+
+    probe( probeRow );
+
+    if ( checkFeedback( getLinesRead() ) ) {
+      logBasic( BaseMessages.getString( PKG, "HashJoin.LineNumber" ) + getLinesRead() );
+    }
+    return true;
+  }
+
+  /**
+   * Find the input streams and the key fields, read the first row of both sides.
+   *
+   * @return the first build row or null if the build side is empty
+   */
+  private Object[] initialize() throws KettleException {
+    List<StreamInterface> infoStreams = meta.getStepIOMeta().getInfoStreams();
+    StreamInterface buildStream = infoStreams.get( data.buildFirst ? 0 : 1 );
+    StreamInterface probeStream = infoStreams.get( data.buildFirst ? 1 : 0 );
+
+    data.buildRowSet = findInputRowSet( buildStream.getStepname() );
+    if ( data.buildRowSet == null ) {
+      throw new KettleException( BaseMessages.getString(
+        PKG, "HashJoin.Exception.UnableToFindSpecifiedStep", buildStream.getStepname() ) );
+    }
+    data.probeRowSet = findInputRowSet( probeStream.getStepname() );
+    if ( data.probeRowSet == null ) {
+      throw new KettleException( BaseMessages.getString(
+        PKG, "HashJoin.Exception.UnableToFindSpecifiedStep", probeStream.getStepname() ) );
+    }
+
+    Object[] buildRow = getRowFrom( data.buildRowSet );
+    if ( buildRow != null ) {
+      data.buildMeta = data.buildRowSet.getRowMeta();
+    } else {
+      data.buildMeta = getTransMeta().getStepFields( buildStream.getStepname() );
+    }
+    data.probeRow = getRowFrom( data.probeRowSet );
+    if ( data.probeRow != null ) {
+      data.probeMeta = data.probeRowSet.getRowMeta();
+    } else {
+      data.probeMeta = getTransMeta().getStepFields( probeStream.getStepname() );
+    }
+
+    // First stream + second stream
+    //
+    data.outputRowMeta = new RowMeta();
+    data.outputRowMeta.mergeRowMeta( ( data.buildFirst ? data.buildMeta : data.probeMeta ).clone() );
+    data.outputRowMeta.mergeRowMeta( ( data.buildFirst ? data.probeMeta : data.buildMeta ).clone() );
+
+    String[] keyFields1 = meta.getKeyFields1();
+    String[] keyFields2 = meta.getKeyFields2();
+    if ( keyFields1.length != keyFields2.length ) {
+      throw new KettleStepException( BaseMessages.getString( PKG, "HashJoin.Exception.KeysMismatch",
+        String.valueOf( keyFields1.length ), String.valueOf( keyFields2.length ) ) );
+    }
+    data.buildKeyNrs = findKeys( data.buildMeta, data.buildFirst ? keyFields1 : keyFields2 );
+    data.probeKeyNrs = findKeys( data.probeMeta, data.buildFirst ? keyFields2 : keyFields1 );
+
+    // The hash table compares keys in their normal storage type, the keys of both sides have to be of the same type
+    //
+    data.keyMeta = new RowMeta();
+    for ( int i = 0; i < data.buildKeyNrs.length; i++ ) {
+      ValueMetaInterface buildKeyMeta = data.buildMeta.getValueMeta( data.buildKeyNrs[i] );
+      ValueMetaInterface probeKeyMeta = data.probeMeta.getValueMeta( data.probeKeyNrs[i] );
+      if ( buildKeyMeta.getType() != probeKeyMeta.getType() ) {
+        throw new KettleStepException( BaseMessages.getString( PKG, "HashJoin.Exception.InvalidKeyLayoutDetected" ) );
+      }
+      ValueMetaInterface keyMeta = buildKeyMeta.clone();
+      keyMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+      data.keyMeta.addValueMeta( keyMeta );
+    }
+    data.keyBuffer = new Object[data.buildKeyNrs.length];
+    data.clearHashTable();
+
+    return buildRow;
+  }
+
+  private int[] findKeys( RowMetaInterface rowMeta, String[] keyFields ) throws KettleStepException {
+    int[] keyNrs = new int[keyFields.length];
+    for ( int i = 0; i < keyNrs.length; i++ ) {
+      keyNrs[i] = rowMeta.indexOfValue( keyFields[i] );
+      if ( keyNrs[i] < 0 ) {
+        String message =
+          BaseMessages.getString( PKG, "HashJoin.Exception.UnableToFindFieldInReferenceStream", keyFields[i] );
+        logError( message );
+        throw new KettleStepException( message );
+      }
+    }
+    return keyNrs;
+  }
+
+  /**
+   * Copy the key of a row in normal storage into the key buffer.
+   */
+  private void fillKey( RowMetaInterface rowMeta, int[] keyNrs, Object[] row ) throws KettleException {
+    for ( int i = 0; i < keyNrs.length; i++ ) {
+      data.keyBuffer[i] = rowMeta.getValueMeta( keyNrs[i] ).convertToNormalStorageType( row[keyNrs[i]] );
+    }
+  }
+
+  private void addBuildRow( Object[] row ) throws KettleException {
+    fillKey( data.buildMeta, data.buildKeyNrs, row );
+
+    if ( data.spillPartitions != null ) {
+      spillRow( row, true );
+      return;
+    }
+
+    Bucket bucket = data.index.get( data.keyBuffer );
+    if ( bucket == null ) {
+      bucket = new Bucket();
+      data.index.put( data.keyBuffer, bucket );
+      data.buckets.add( bucket );
+    }
+    bucket.rows.add( row );
+    data.nrBuildRows++;
+
+    if ( data.maxBuildRows > 0 && data.nrBuildRows > data.maxBuildRows && data.spillLevel < MAX_SPILL_LEVEL ) {
+      // No more room, move the build rows to temporary files
+      //
+      for ( Bucket spilled : data.buckets ) {
+        for ( Object[] spilledRow : spilled.rows ) {
+          fillKey( data.buildMeta, data.buildKeyNrs, spilledRow );
+          spillRow( spilledRow, true );
+        }
+      }
+      data.clearHashTable();
+    }
+  }
+
+  private void probe( Object[] probeRow ) throws KettleException {
+    fillKey( data.probeMeta, data.probeKeyNrs, probeRow );
+    Bucket bucket = data.index.get( data.keyBuffer );
+    if ( bucket != null ) {
+      bucket.matched = true;
+      for ( Object[] buildRow : bucket.rows ) {
+        putJoinedRow( buildRow, probeRow );
+      }
+    } else if ( data.probeOuter ) {
+      putJoinedRow( null, probeRow );
+    }
+  }
+
+  private void putUnmatchedBuildRows() throws KettleException {
+    if ( !data.buildOuter ) {
+      return;
+    }
+    for ( Bucket bucket : data.buckets ) {
+      if ( !bucket.matched ) {
+        for ( Object[] buildRow : bucket.rows ) {
+          putJoinedRow( buildRow, null );
+        }
+      }
+    }
+  }
+
+  /**
+   * Send the fields of the first stream followed by the fields of the second stream to the output. A missing row is
+   * replaced by null values.
+   */
+  private void putJoinedRow( Object[] buildRow, Object[] probeRow ) throws KettleStepException {
+    Object[] firstRow = data.buildFirst ? buildRow : probeRow;
+    Object[] secondRow = data.buildFirst ? probeRow : buildRow;
+    int firstSize = ( data.buildFirst ? data.buildMeta : data.probeMeta ).size();
+    int secondSize = ( data.buildFirst ? data.probeMeta : data.buildMeta ).size();
+
+    Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+    if ( firstRow != null ) {
+      System.arraycopy( firstRow, 0, outputRowData, 0, firstSize );
+    }
+    if ( secondRow != null ) {
+      System.arraycopy( secondRow, 0, outputRowData, firstSize, secondSize );
+    }
+    putRow( data.outputRowMeta, outputRowData );
+  }
+
+  private void spillProbeRow( Object[] row ) throws KettleException {
+    fillKey( data.probeMeta, data.probeKeyNrs, row );
+    int partitionNr = getSpillPartition(
+      CompositeKeyHashIndex.generateHashCode( data.keyBuffer, data.keyBuffer.length ), data.spillLevel );
+    if ( data.spillPartitions[partitionNr] == null ) {
+      // Not a single build row in this partition, the probe row can't match
+      //
+      if ( data.probeOuter ) {
+        putJoinedRow( null, row );
+      }
+      return;
+    }
+    spillRow( row, false );
+  }
+
+  /**
+   * Write a row to the partition of the key in the key buffer.
+   */
+  private void spillRow( Object[] row, boolean build ) throws KettleException {
+    if ( data.spillPartitions == null ) {
+      data.spillPartitions = new SpillPartition[SPILL_PARTITIONS];
+    }
+    int partitionNr = getSpillPartition(
+      CompositeKeyHashIndex.generateHashCode( data.keyBuffer, data.keyBuffer.length ), data.spillLevel );
+    SpillPartition partition = data.spillPartitions[partitionNr];
+    if ( partition == null ) {
+      partition = new SpillPartition( data.spillLevel );
+      data.spillPartitions[partitionNr] = partition;
+    }
+    SpillFile file = build ? partition.build : partition.probe;
+    if ( file == null ) {
+      file = createSpillFile();
+      if ( build ) {
+        partition.build = file;
+      } else {
+        partition.probe = file;
+      }
+    }
+    ( build ? data.buildMeta : data.probeMeta ).writeData( file.outputStream, row );
+    file.nrRows++;
+  }
+
+  private SpillFile createSpillFile() throws KettleException {
+    try {
+      FileObject fileObject = KettleVFS.getInstance( getTransMeta().getBowl() )
+        .createTempFile( environmentSubstitute( meta.getPrefix() ), ".tmp",
+          environmentSubstitute( meta.getDirectory() ), this );
+      OutputStream outputStream = KettleVFS.getInstance( getTransMeta().getBowl() )
+        .getOutputStream( fileObject, false );
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "HashJoin.Detailed.SpillingToFile",
+          KettleVFS.getFilename( fileObject ) ) );
+      }
+      return new SpillFile( fileObject, new DataOutputStream( new BufferedOutputStream( outputStream, 50000 ) ) );
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HashJoin.Exception.UnableToCreateTemporaryFile" ), e );
+    }
+  }
+
+  /**
+   * Join the spilled partitions one by one. The build and probe rows of a key always end up in the same partition. If
+   * the build rows of a partition still don't fit in memory, the partition is split up further using the next bits of
+   * the hash code.
+   */
+  private void joinSpilledPartitions() throws KettleException {
+    closeSpillPartitions();
+
+    while ( !data.spilledPartitions.isEmpty() && !isStopped() ) {
+      SpillPartition partition = data.spilledPartitions.removeFirst();
+      data.clearHashTable();
+      data.spillLevel = partition.level + 1;
+
+      if ( partition.probe == null ) {
+        // Nothing can match, the build rows are only needed as unmatched rows
+        //
+        readSpillFile( partition.build, true, true );
+        continue;
+      }
+
+      // Load the build rows, this can spill again on the next level
+      //
+      readSpillFile( partition.build, true, false );
+      readSpillFile( partition.probe, false, false );
+
+      if ( data.spillPartitions != null ) {
+        // Split up further, the probe rows went to the new partitions as well
+        //
+        closeSpillPartitions();
+      } else {
+        putUnmatchedBuildRows();
+      }
+    }
+
+    data.clearHashTable();
+    data.spillLevel = 0;
+  }
+
+  /**
+   * Read back the rows of a temporary file and delete it. Build rows are added to the hash table, or sent to the output
+   * as unmatched rows. Probe rows are joined, or partitioned again if the build rows were.
+   */
+  private void readSpillFile( SpillFile file, boolean build, boolean unmatched ) throws KettleException {
+    if ( build && unmatched && !data.buildOuter ) {
+      deleteSpillFile( file );
+      return;
+    }
+    RowMetaInterface rowMeta = build ? data.buildMeta : data.probeMeta;
+    DataInputStream di = null;
+    try {
+      di = new DataInputStream( new BufferedInputStream( KettleVFS.getInputStream( file.fileObject ), 50000 ) );
+      for ( long i = 0; i < file.nrRows && !isStopped(); i++ ) {
+        Object[] row = rowMeta.readData( di );
+        if ( build && unmatched ) {
+          putJoinedRow( row, null );
+        } else if ( build ) {
+          addBuildRow( row );
+        } else if ( data.spillPartitions != null ) {
+          spillProbeRow( row );
+        } else {
+          probe( row );
+        }
+      }
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString(
+        PKG, "HashJoin.Exception.UnableToReadBackRowFromTemporaryFile" ), e );
+    } finally {
+      closeQuietly( di );
+    }
+    deleteSpillFile( file );
+  }
+
+  /**
+   * Close the partition files of the current spill level and queue them up to be joined.
+   */
+  private void closeSpillPartitions() throws KettleException {
+    if ( data.spillPartitions == null ) {
+      return;
+    }
+    for ( SpillPartition partition : data.spillPartitions ) {
+      if ( partition != null ) {
+        closeSpillFile( partition.build );
+        closeSpillFile( partition.probe );
+        data.spilledPartitions.addLast( partition );
+      }
+    }
+    data.spillPartitions = null;
+  }
+
+  private void closeSpillFile( SpillFile file ) throws KettleException {
+    if ( file == null || file.outputStream == null ) {
+      return;
+    }
+    try {
+      file.outputStream.close();
+      file.outputStream = null;
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HashJoin.Exception.UnableToCloseTemporaryFile" ), e );
+    }
+  }
+
+  private void deleteSpillFile( SpillFile file ) {
+    if ( file == null ) {
+      return;
+    }
+    closeQuietly( file.outputStream );
+    file.outputStream = null;
+    try {
+      file.fileObject.delete();
+    } catch ( Exception e ) {
+      logError( BaseMessages.getString( PKG, "HashJoin.Exception.UnableToDeleteTemporaryFile",
+        KettleVFS.getFilename( file.fileObject ) ), e );
+    }
+  }
+
+  /**
+   * Determine the spill partition of a key. Every level uses different bits of the (re-mixed) hash code so that a
+   * partition that is too large can be split up again.
+   *
+   * @param hashCode
+   *          the hash code of the key
+   * @param level
+   *          the spill level
+   * @return the partition number, between 0 and SPILL_PARTITIONS - 1
+   */
+  static int getSpillPartition( int hashCode, int level ) {
+    int h = hashCode;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return ( h >>> ( level * SPILL_PARTITION_BITS ) ) & ( SPILL_PARTITIONS - 1 );
+  }
+
+  /**
+   * @see StepInterface#init(org.pentaho.di.trans.step.StepMetaInterface , org.pentaho.di.trans.step.StepDataInterface)
+   */
+  public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
+    meta = (HashJoinMeta) smi;
+    data = (HashJoinData) sdi;
+
+    if ( super.init( smi, sdi ) ) {
+      List<StreamInterface> infoStreams = meta.getStepIOMeta().getInfoStreams();
+      if ( infoStreams.get( 0 ).getStepMeta() == null || infoStreams.get( 1 ).getStepMeta() == null ) {
+        logError( BaseMessages.getString( PKG, "HashJoin.Log.BothStreamsNeeded" ) );
+        return false;
+      }
+
+      data.buildFirst = meta.isBuildingFirst();
+      data.maxBuildRows = 0;
+      data.spillLevel = 0;
+      if ( meta.isSpillingToDisk() ) {
+        data.maxBuildRows = Math.max( 1, Const.toLong( environmentSubstitute( meta.getMaxBuildRows() ),
+          Long.parseLong( HashJoinMeta.DEFAULT_MAX_BUILD_ROWS ) ) );
+      }
+
+      String joinType = meta.getJoinType();
+      for ( int i = 0; i < HashJoinMeta.join_types.length; ++i ) {
+        if ( HashJoinMeta.join_types[i].equalsIgnoreCase( joinType ) ) {
+          // one_optional: the first stream can be missing, so unmatched rows of the second stream are kept
+          //
+          boolean keepFirst = HashJoinMeta.two_optionals[i];
+          boolean keepSecond = HashJoinMeta.one_optionals[i];
+          data.buildOuter = data.buildFirst ? keepFirst : keepSecond;
+          data.probeOuter = data.buildFirst ? keepSecond : keepFirst;
+          return true;
+        }
+      }
+      logError( BaseMessages.getString( PKG, "HashJoin.Log.InvalidJoinType", joinType ) );
+      return false;
+    }
+    return false;
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    HashJoinData joinData = (HashJoinData) sdi;
+
+    // Remove the temporary files left behind when the transformation was stopped or failed
+    //
+    if ( joinData.spillPartitions != null ) {
+      for ( SpillPartition partition : joinData.spillPartitions ) {
+        if ( partition != null ) {
+          deleteSpillFile( partition.build );
+          deleteSpillFile( partition.probe );
+        }
+      }
+      joinData.spillPartitions = null;
+    }
+    while ( !joinData.spilledPartitions.isEmpty() ) {
+      SpillPartition partition = joinData.spilledPartitions.removeFirst();
+      deleteSpillFile( partition.build );
+      deleteSpillFile( partition.probe );
+    }
+    joinData.index = null;
+    joinData.buckets.clear();
+
+    super.dispose( smi, sdi );
+  }
+}
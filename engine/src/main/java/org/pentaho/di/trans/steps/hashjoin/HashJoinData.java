@@ -0,0 +1,110 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import java.io.DataOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.hash.CompositeKeyHashIndex;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.StepDataInterface;
+
+/**
+ * @since 11.1
+ */
+public class HashJoinData extends BaseStepData implements StepDataInterface {
+
+  /**
+   * The build rows with the same key.
+   */
+  static class Bucket {
+    final List<Object[]> rows = new ArrayList<Object[]>( 1 );
+    boolean matched;
+  }
+
+  /**
+   * A temporary file holding the rows of one side of a partition.
+   */
+  static class SpillFile {
+    FileObject fileObject;
+    DataOutputStream outputStream;
+    long nrRows;
+
+    SpillFile( FileObject fileObject, DataOutputStream outputStream ) {
+      this.fileObject = fileObject;
+      this.outputStream = outputStream;
+    }
+  }
+
+  /**
+   * The build and probe rows of which the key hashes to the same partition number. A partition can be joined on its
+   * own.
+   */
+  static class SpillPartition {
+    final int level;
+    SpillFile build;
+    SpillFile probe;
+
+    SpillPartition( int level ) {
+      this.level = level;
+    }
+  }
+
+  public RowSet buildRowSet;
+  public RowSet probeRowSet;
+  public RowMetaInterface buildMeta;
+  public RowMetaInterface probeMeta;
+  public RowMetaInterface outputRowMeta; // first stream + second stream
+  public RowMetaInterface keyMeta;
+  public int[] buildKeyNrs;
+  public int[] probeKeyNrs;
+
+  /** The build side is the first stream */
+  public boolean buildFirst;
+  /** Unmatched build rows are sent to the output */
+  public boolean buildOuter;
+  /** Unmatched probe rows are sent to the output */
+  public boolean probeOuter;
+
+  /** The first probe row, read up front to learn the layout of the probe side */
+  public Object[] probeRow;
+
+  CompositeKeyHashIndex<Bucket> index;
+  List<Bucket> buckets;
+  Object[] keyBuffer;
+  long nrBuildRows;
+  long maxBuildRows;
+
+  int spillLevel;
+  SpillPartition[] spillPartitions;
+  Deque<SpillPartition> spilledPartitions;
+
+  public HashJoinData() {
+    super();
+    buckets = new ArrayList<Bucket>();
+    spilledPartitions = new ArrayDeque<SpillPartition>();
+  }
+
+  void clearHashTable() {
+    index = new CompositeKeyHashIndex<Bucket>( keyMeta );
+    buckets.clear();
+    nrBuildRows = 0;
+  }
+}
@@ -27,6 +27,8 @@ import java.util.List;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.memory.MemoryGrant;
+import org.pentaho.di.core.memory.MemoryManager;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.i18n.BaseMessages;
@@ -86,6 +88,7 @@ public class JoinRows extends BaseStep implements StepInterface {
       data.joinrow = new Object[rowSetsSize][];
       data.rs = new RowSet[rowSetsSize];
       data.cache = new List[rowSetsSize];
+      data.cacheDropped = new boolean[rowSetsSize];
       data.position = new int[rowSetsSize];
       data.fileOutputStream = new FileOutputStream[rowSetsSize];
       data.dataOutputStream = new DataOutputStream[rowSetsSize];
@@ -329,6 +332,38 @@ public class JoinRows extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Reserve memory to cache a row when the transformation has a memory limit. Without memory, or when asked to give
+   * back memory, the rows are read back from the temporary files instead.
+   *
+   * @return true if the row can be cached
+   */
+  private boolean reserveCacheMemory( Object[] rowData ) {
+    if ( data.cacheDropped[data.filenr] ) {
+      return false;
+    }
+    MemoryGrant memoryGrant = getMemoryGrant( true );
+    if ( memoryGrant == null ) {
+      return true;
+    }
+    if ( memoryGrant.isSpillRequested() ) {
+      // Nothing was read back yet, every row is on disk as well
+      for ( int i = 0; i < data.cache.length; i++ ) {
+        if ( data.cache[i] != null ) {
+          data.cache[i] = null;
+          data.cacheDropped[i] = true;
+        }
+      }
+      memoryGrant.releaseAll();
+      memoryGrant.spilled();
+    } else if ( memoryGrant.reserve( MemoryManager.estimateRowSize( rowData ) ) ) {
+      return true;
+    }
+    data.cache[data.filenr] = null;
+    data.cacheDropped[data.filenr] = true;
+    return false;
+  }
+
   private boolean cacheInputRow() throws KettleException {
     // /////////////////////////////
     // Read from input channels //
@@ -383,7 +418,7 @@ public class JoinRows extends BaseStep implements StepInterface {
       //
       // Perhaps we want to cache this data??
       //
-      if ( data.size[data.filenr] <= meta.getCacheSize() ) {
+      if ( data.size[data.filenr] <= meta.getCacheSize() && reserveCacheMemory( rowData ) ) {
         if ( data.cache[data.filenr] == null ) {
           data.cache[data.filenr] = new ArrayList<Object[]>();
         }
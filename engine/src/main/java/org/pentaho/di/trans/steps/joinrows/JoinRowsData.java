@@ -42,6 +42,9 @@ public class JoinRowsData extends BaseStepData implements StepDataInterface {
   public RowSet[] rs;
   public List<Object[]>[] cache;
 
+  /** The cache was dropped to give back memory: the rows are only read from the temporary file */
+  public boolean[] cacheDropped;
+
   public boolean caching;
 
   public FileOutputStream[] fileOutputStream;
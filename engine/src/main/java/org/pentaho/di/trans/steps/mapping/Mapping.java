@@ -514,6 +514,10 @@ public class Mapping extends BaseStep implements StepInterface {
     //
     getData().getMappingTrans().setGatheringMetrics( getTrans().isGatheringMetrics() );
 
+    // Run the mapping steps on the same kind of threads
+    //
+    getData().getMappingTrans().setUsingVirtualThreads( getTrans().isUsingVirtualThreads() );
+
     // Also set the name of this step in the mapping transformation for logging
     // purposes
     //
@@ -13,6 +13,12 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -21,10 +27,13 @@ import java.util.TreeSet;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.math.stat.descriptive.rank.Percentile;
+import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.memory.MemoryManager;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -34,6 +43,7 @@ import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -43,6 +53,7 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.SpillPartition;
 
 /**
  * Groups information based on aggregation rules. (sum, count, ...)
@@ -53,6 +64,16 @@ import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
 public class MemoryGroupBy extends BaseStep implements StepInterface {
   private static Class<?> PKG = MemoryGroupByMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /** The estimated number of bytes taken by a group besides its key: hash entry, aggregate object and values */
+  private static final long GROUP_OVERHEAD = 32;
+
+  /** Every spill level splits the groups that don't fit in memory over 2^SPILL_PARTITION_BITS temporary files */
+  static final int SPILL_PARTITION_BITS = 4;
+  static final int SPILL_PARTITIONS = 1 << SPILL_PARTITION_BITS;
+
+  /** Once all the hash code bits are used up, partitioning doesn't split groups anymore */
+  static final int MAX_SPILL_LEVEL = Integer.SIZE / SPILL_PARTITION_BITS;
+
   private MemoryGroupByMeta meta;
 
   private MemoryGroupByData data;
@@ -73,6 +94,9 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     meta = (MemoryGroupByMeta) smi;
     data = (MemoryGroupByData) sdi;
+    if ( data.combiningMeta != null ) {
+      meta = data.combiningMeta;
+    }
 
     Object[] r = getRow(); // get row!
 
@@ -150,6 +174,19 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       //
       initGroupMeta( data.inputRowMeta );
 
+      // Hybrid hash aggregation: beyond this number of groups, the rows of new groups go to temporary files
+      //
+      data.maxGroupsInMemory = 0;
+      data.spillLevel = 0;
+      if ( meta.isSpillingToDisk() ) {
+        data.maxGroupsInMemory = Math.max( 1, Const.toInt( environmentSubstitute( meta.getMaxGroupsInMemory() ),
+          Integer.parseInt( MemoryGroupByMeta.DEFAULT_MAX_GROUPS_IN_MEMORY ) ) );
+      }
+
+      // With a memory limit on the transformation the groups are accounted for as well
+      //
+      data.memoryGrant = getMemoryGrant( meta.isSpillingToDisk() );
+      data.mapFull = false;
     }
 
     if ( first ) {
@@ -192,27 +229,22 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   }
 
   private void handleLastOfGroup() throws KettleException {
+    boolean hasGroups = !data.map.isEmpty();
+
     // Dump the content of the map...
     //
-    for ( HashEntry entry : data.map.keySet() ) {
-      Aggregate aggregate = data.map.get( entry );
-      Object[] aggregateResult = getAggregateResult( aggregate );
+    putGroups();
 
-      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
-      int index = 0;
-      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
-        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
-      }
-      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
-        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
-      }
-      putRow( data.outputRowMeta, outputRowData );
+    // Then aggregate the groups that didn't fit in memory, one temporary file at a time
+    //
+    if ( data.spillPartitions != null ) {
+      aggregateSpilledPartitions();
     }
 
     // What if we always need to give back one row?
     // This means we give back 0 for count all, count distinct, null for everything else
     //
-    if ( data.map.isEmpty() && meta.isAlwaysGivingBackOneRow() ) {
+    if ( !hasGroups && meta.isAlwaysGivingBackOneRow() ) {
       Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
       int index = 0;
       for ( int i = 0; i < data.groupMeta.size(); i++ ) {
@@ -231,6 +263,180 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     }
   }
 
+  private void putGroups() throws KettleException {
+    for ( HashEntry entry : data.map.keySet() ) {
+      Aggregate aggregate = data.map.get( entry );
+      Object[] aggregateResult = getAggregateResult( aggregate );
+
+      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      int index = 0;
+      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
+        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
+      }
+      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
+        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
+      }
+      putRow( data.outputRowMeta, outputRowData );
+    }
+  }
+
+  /**
+   * Aggregate the spilled partitions one by one. All the rows of a group end up in the same partition, in the order in
+   * which they were read, so every partition can be aggregated on its own. If a partition still holds too many groups,
+   * it is split up further using the next bits of the hash code.
+   */
+  private void aggregateSpilledPartitions() throws KettleException {
+    closeSpillPartitions();
+
+    while ( !data.spilledPartitions.isEmpty() && !isStopped() ) {
+      SpillPartition partition = data.spilledPartitions.removeFirst();
+      clearGroups();
+      data.spillLevel = partition.level + 1;
+
+      DataInputStream di = null;
+      try {
+        di = new DataInputStream( new BufferedInputStream( KettleVFS.getInputStream( partition.fileObject ), 50000 ) );
+        for ( long i = 0; i < partition.nrRows; i++ ) {
+          addToAggregate( data.inputRowMeta.readData( di ) );
+        }
+      } catch ( IOException e ) {
+        throw new KettleException( BaseMessages.getString(
+          PKG, "MemoryGroupBy.Exception.UnableToReadBackRowFromTemporaryFile" ), e );
+      } finally {
+        closeQuietly( di );
+      }
+      deleteSpillFile( partition );
+
+      putGroups();
+      closeSpillPartitions();
+    }
+
+    clearGroups();
+    data.spillLevel = 0;
+  }
+
+  /**
+   * Decide whether a new group can be kept in memory. Without a memory manager only the maximum number of groups counts,
+   * with one the memory for the group has to be available as well.
+   */
+  private boolean hasRoomForGroup( Object[] groupData ) {
+    boolean canSpill = data.maxGroupsInMemory > 0 && data.spillLevel < MAX_SPILL_LEVEL;
+    if ( canSpill && ( data.mapFull || data.map.size() >= data.maxGroupsInMemory ) ) {
+      return false;
+    }
+    if ( data.memoryGrant != null ) {
+      long groupSize = MemoryManager.estimateRowSize( groupData ) + GROUP_OVERHEAD * ( data.subjectnrs.length + 1 );
+      if ( !canSpill ) {
+        // Nowhere else to go: account for the memory so that other steps make room
+        data.memoryGrant.forceReserve( groupSize );
+      } else if ( data.memoryGrant.isSpillRequested() || !data.memoryGrant.reserve( groupSize ) ) {
+        // From now on the rows of new groups go to disk, until the groups in memory are written out
+        data.mapFull = true;
+        data.memoryGrant.spilled();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Forget about the groups in memory and give back their memory.
+   */
+  private void clearGroups() {
+    data.map.clear();
+    data.mapFull = false;
+    if ( data.memoryGrant != null ) {
+      data.memoryGrant.releaseAll();
+    }
+  }
+
+  private void spillRow( HashEntry entry, Object[] r ) throws KettleException {
+    if ( data.spillPartitions == null ) {
+      data.spillPartitions = new SpillPartition[SPILL_PARTITIONS];
+    }
+    int partitionNr = getSpillPartition( entry.hashCode(), data.spillLevel );
+    SpillPartition partition = data.spillPartitions[partitionNr];
+    if ( partition == null ) {
+      partition = createSpillPartition( data.spillLevel );
+      data.spillPartitions[partitionNr] = partition;
+    }
+    data.inputRowMeta.writeData( partition.outputStream, r );
+    partition.nrRows++;
+  }
+
+  private SpillPartition createSpillPartition( int level ) throws KettleException {
+    try {
+      FileObject fileObject = KettleVFS.getInstance( getTransMeta().getBowl() )
+        .createTempFile( environmentSubstitute( meta.getPrefix() ), ".tmp",
+          environmentSubstitute( meta.getDirectory() ), this );
+      OutputStream outputStream = KettleVFS.getInstance( getTransMeta().getBowl() )
+        .getOutputStream( fileObject, false );
+      SpillPartition partition = new SpillPartition( fileObject,
+        new DataOutputStream( new BufferedOutputStream( outputStream, 50000 ) ), level );
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Detailed.SpillingToFile",
+          KettleVFS.getFilename( fileObject ) ) );
+      }
+      return partition;
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString(
+        PKG, "MemoryGroupBy.Exception.UnableToCreateTemporaryFile" ), e );
+    }
+  }
+
+  /**
+   * Close the partition files of the current spill level and queue them up for aggregation.
+   */
+  private void closeSpillPartitions() throws KettleException {
+    if ( data.spillPartitions == null ) {
+      return;
+    }
+    for ( SpillPartition partition : data.spillPartitions ) {
+      if ( partition != null ) {
+        try {
+          partition.outputStream.close();
+          partition.outputStream = null;
+        } catch ( IOException e ) {
+          throw new KettleException( BaseMessages.getString(
+            PKG, "MemoryGroupBy.Exception.UnableToCloseTemporaryFile" ), e );
+        }
+        data.spilledPartitions.addLast( partition );
+      }
+    }
+    data.spillPartitions = null;
+  }
+
+  private void deleteSpillFile( SpillPartition partition ) {
+    closeQuietly( partition.outputStream );
+    partition.outputStream = null;
+    try {
+      partition.fileObject.delete();
+    } catch ( Exception e ) {
+      logError( BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToDeleteTemporaryFile",
+        KettleVFS.getFilename( partition.fileObject ) ), e );
+    }
+  }
+
+  /**
+   * Determine the spill partition of a group. Every level uses different bits of the (re-mixed) hash code so that a
+   * partition that is too large can be split up again.
+   *
+   * @param hashCode
+   *          the hash code of the group
+   * @param level
+   *          the spill level
+   * @return the partition number, between 0 and SPILL_PARTITIONS - 1
+   */
+  static int getSpillPartition( int hashCode, int level ) {
+    int h = hashCode;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return ( h >>> ( level * SPILL_PARTITION_BITS ) ) & ( SPILL_PARTITIONS - 1 );
+  }
+
   @VisibleForTesting
   void updateValueMeta() throws KettleException {
 
@@ -262,6 +468,13 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     Aggregate aggregate = data.map.get( entry );
     if ( aggregate == null ) {
+      if ( !hasRoomForGroup( groupData ) ) {
+        // No room for another group, aggregate it later on from a temporary file
+        //
+        spillRow( entry, r );
+        return;
+      }
+
       // Create a new value...
       //
       aggregate = new Aggregate();
@@ -575,6 +788,15 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     if ( super.init( smi, sdi ) ) {
       data.map = new HashMap<HashEntry, Aggregate>( 5000 );
+
+      if ( meta.isCombiningPartialAggregates() ) {
+        try {
+          data.combiningMeta = meta.createCombiningMeta();
+        } catch ( KettleStepException e ) {
+          logError( e.getMessage() );
+          return false;
+        }
+      }
       return true;
     }
     return false;
@@ -583,7 +805,22 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     super.dispose( smi, sdi );
-    ( (MemoryGroupByData) sdi ).clear();
+
+    // Remove the temporary files left behind when the transformation was stopped or failed
+    //
+    MemoryGroupByData groupByData = (MemoryGroupByData) sdi;
+    if ( groupByData.spillPartitions != null ) {
+      for ( SpillPartition partition : groupByData.spillPartitions ) {
+        if ( partition != null ) {
+          deleteSpillFile( partition );
+        }
+      }
+      groupByData.spillPartitions = null;
+    }
+    while ( !groupByData.spilledPartitions.isEmpty() ) {
+      deleteSpillFile( groupByData.spilledPartitions.removeFirst() );
+    }
+    groupByData.clear();
   }
 
   @Override
@@ -594,7 +831,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     // Clear the complete cache...
     //
-    data.map.clear();
+    clearGroups();
 
     data.newBatch = true;
   }
@@ -13,9 +13,14 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.io.DataOutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 
+import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.memory.MemoryGrant;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -66,8 +71,42 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
     }
   }
 
+  /**
+   * A temporary file holding the input rows of the groups that didn't fit in memory and hash to the same partition.
+   */
+  public static class SpillPartition {
+    public FileObject fileObject;
+    public DataOutputStream outputStream;
+    public int level;
+    public long nrRows;
+
+    public SpillPartition( FileObject fileObject, DataOutputStream outputStream, int level ) {
+      this.fileObject = fileObject;
+      this.outputStream = outputStream;
+      this.level = level;
+    }
+  }
+
   public HashMap<HashEntry, Aggregate> map;
 
+  /** The maximum number of groups in the map, 0 means no limit */
+  public int maxGroupsInMemory;
+
+  /** The memory reserved for the groups in the map, null without a memory limit on the transformation */
+  public MemoryGrant memoryGrant;
+
+  /** No memory left for new groups, the rows of new groups go to disk until the map is emptied */
+  public boolean mapFull;
+
+  /** The partitioning level of the files new groups are currently spilled to */
+  public int spillLevel;
+
+  /** The partition files new groups are currently spilled to, null if nothing was spilled at this level yet */
+  public SpillPartition[] spillPartitions;
+
+  /** The partition files that still need to be aggregated */
+  public Deque<SpillPartition> spilledPartitions = new ArrayDeque<SpillPartition>();
+
   public RowMetaInterface aggMeta;
   public RowMetaInterface groupMeta;
   public RowMetaInterface entryMeta;
@@ -90,6 +129,9 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
 
   public boolean newBatch;
 
+  /** The metadata that merges the partial aggregates, null unless partial aggregates are combined */
+  public MemoryGroupByMeta combiningMeta;
+
   public MemoryGroupByData() {
     super();
 
@@ -24,6 +24,7 @@ import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettlePluginException;
+import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleXMLException;
 import org.pentaho.di.core.injection.Injection;
 import org.pentaho.di.core.injection.InjectionSupported;
@@ -41,6 +42,7 @@ import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.PartialAggregatesCombinable;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
@@ -54,7 +56,7 @@ import org.w3c.dom.Node;
  */
 
 @InjectionSupported( localizationPrefix = "MemoryGroupBy.Injection.", groups = { "FIELDS", "AGGREGATES" } )
-public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface {
+public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface, PartialAggregatesCombinable {
   private static Class<?> PKG = MemoryGroupByMeta.class; // for i18n purposes, needed by Translator2!!
 
   public static final int TYPE_GROUP_NONE = 0;
@@ -91,6 +93,13 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
 
   public static final int TYPE_GROUP_COUNT_ANY = 16;
 
+  /** The default number of groups to keep in memory before spilling to disk */
+  public static final String DEFAULT_MAX_GROUPS_IN_MEMORY = "1000000";
+
+  public static final String DEFAULT_DIRECTORY = "%%java.io.tmpdir%%";
+
+  public static final String DEFAULT_PREFIX = "grp";
+
   public static final String[] typeGroupCode = /* WARNING: DO NOT TRANSLATE THIS. WE ARE SERIOUS, DON'T TRANSLATE! */
   {
     "-", "SUM", "AVERAGE", "MEDIAN", "PERCENTILE", "MIN", "MAX", "COUNT_ALL", "CONCAT_COMMA", "FIRST", "LAST",
@@ -138,6 +147,26 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   /** Flag to indicate that we always give back one row. Defaults to true for existing transformations. */
   private boolean alwaysGivingBackOneRow;
 
+  @Injection( name = "SPILL_TO_DISK" )
+  /** Flag to indicate that groups which don't fit in memory are written to temporary files */
+  private boolean spillingToDisk;
+
+  @Injection( name = "MAX_GROUPS_IN_MEMORY" )
+  /** The maximum number of groups to keep in memory before spilling to disk */
+  private String maxGroupsInMemory;
+
+  @Injection( name = "SPILL_DIRECTORY" )
+  /** Directory to store the temporary files */
+  private String directory;
+
+  @Injection( name = "SPILL_FILE_PREFIX" )
+  /** Temporary file prefix */
+  private String prefix;
+
+  @Injection( name = "COMBINE_PARTIAL_AGGREGATES" )
+  /** Flag to indicate that the input rows are partial aggregates calculated with the same settings, to be combined */
+  private boolean combiningPartialAggregates;
+
   public MemoryGroupByMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -281,6 +310,14 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
       } else {
         alwaysGivingBackOneRow = "Y".equalsIgnoreCase( giveBackRow );
       }
+
+      spillingToDisk = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "spill_to_disk" ) );
+      maxGroupsInMemory = Const.NVL( XMLHandler.getTagValue( stepnode, "max_groups_in_memory" ),
+        DEFAULT_MAX_GROUPS_IN_MEMORY );
+      directory = Const.NVL( XMLHandler.getTagValue( stepnode, "directory" ), DEFAULT_DIRECTORY );
+      prefix = Const.NVL( XMLHandler.getTagValue( stepnode, "prefix" ), DEFAULT_PREFIX );
+      combiningPartialAggregates =
+        "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "combine_partial_aggregates" ) );
     } catch ( Exception e ) {
       throw new KettleXMLException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnableToLoadStepInfoFromXML" ), e );
@@ -308,6 +345,30 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     return typeGroupCode[i];
   }
 
+  /**
+   * Get the aggregation type that combines partial aggregates of the given type into the aggregate over all rows.
+   *
+   * @param type
+   *          the aggregation type of the partial aggregates
+   * @return the combining aggregation type or -1 if partial aggregates of this type can't be combined
+   */
+  public static final int getCombiningType( int type ) {
+    switch ( type ) {
+      case TYPE_GROUP_NONE:
+      case TYPE_GROUP_SUM:
+      case TYPE_GROUP_MIN:
+      case TYPE_GROUP_MAX:
+      case TYPE_GROUP_CONCAT_COMMA:
+      case TYPE_GROUP_CONCAT_STRING:
+        return type;
+      case TYPE_GROUP_COUNT_ALL:
+      case TYPE_GROUP_COUNT_ANY:
+        return TYPE_GROUP_SUM;
+      default:
+        return -1;
+    }
+  }
+
   public static final String getTypeDescLong( int i ) {
     if ( i < 0 || i >= typeGroupLongDesc.length ) {
       return null;
@@ -321,11 +382,26 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     int nrfields = 0;
 
     allocate( sizegroup, nrfields );
+
+    spillingToDisk = false;
+    maxGroupsInMemory = DEFAULT_MAX_GROUPS_IN_MEMORY;
+    directory = DEFAULT_DIRECTORY;
+    prefix = DEFAULT_PREFIX;
+    combiningPartialAggregates = false;
   }
 
   @Override
   public void getFields( Bowl bowl, RowMetaInterface r, String origin, RowMetaInterface[] info, StepMeta nextStep,
     VariableSpace space, Repository repository, IMetaStore metaStore ) {
+    if ( combiningPartialAggregates ) {
+      try {
+        createCombiningMeta().getFields( bowl, r, origin, info, nextStep, space, repository, metaStore );
+        return;
+      } catch ( KettleStepException e ) {
+        // Reported by check(), describe the output of the partial aggregates
+      }
+    }
+
     // Check compatibility mode
     boolean compatibilityMode = ValueMetaBase.convertStringToBoolean(
       space.getVariable( Const.KETTLE_COMPATIBILITY_MEMORY_GROUP_BY_SUM_AVERAGE_RETURN_NUMBER_TYPE, "N" ) );
@@ -437,6 +513,12 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     StringBuilder retval = new StringBuilder( 500 );
 
     retval.append( "      " ).append( XMLHandler.addTagValue( "give_back_row", alwaysGivingBackOneRow ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "spill_to_disk", spillingToDisk ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "max_groups_in_memory", maxGroupsInMemory ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "directory", directory ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "prefix", prefix ) );
+    retval.append( "      " ).append(
+      XMLHandler.addTagValue( "combine_partial_aggregates", combiningPartialAggregates ) );
 
     retval.append( "      <group>" ).append( Const.CR );
     for ( int i = 0; i < groupField.length; i++ ) {
@@ -486,6 +568,13 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
       }
 
       alwaysGivingBackOneRow = rep.getStepAttributeBoolean( id_step, 0, "give_back_row", hasNumberOfValues );
+
+      spillingToDisk = rep.getStepAttributeBoolean( id_step, "spill_to_disk" );
+      maxGroupsInMemory = Const.NVL( rep.getStepAttributeString( id_step, "max_groups_in_memory" ),
+        DEFAULT_MAX_GROUPS_IN_MEMORY );
+      directory = Const.NVL( rep.getStepAttributeString( id_step, "directory" ), DEFAULT_DIRECTORY );
+      prefix = Const.NVL( rep.getStepAttributeString( id_step, "prefix" ), DEFAULT_PREFIX );
+      combiningPartialAggregates = rep.getStepAttributeBoolean( id_step, "combine_partial_aggregates" );
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnexpectedErrorInReadingStepInfoFromRepository" ), e );
@@ -496,6 +585,11 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
     try {
       rep.saveStepAttribute( id_transformation, id_step, "give_back_row", alwaysGivingBackOneRow );
+      rep.saveStepAttribute( id_transformation, id_step, "spill_to_disk", spillingToDisk );
+      rep.saveStepAttribute( id_transformation, id_step, "max_groups_in_memory", maxGroupsInMemory );
+      rep.saveStepAttribute( id_transformation, id_step, "directory", directory );
+      rep.saveStepAttribute( id_transformation, id_step, "prefix", prefix );
+      rep.saveStepAttribute( id_transformation, id_step, "combine_partial_aggregates", combiningPartialAggregates );
 
       for ( int i = 0; i < groupField.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "group_name", groupField[i] );
@@ -531,6 +625,14 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
           PKG, "MemoryGroupByMeta.CheckResult.NoInputError" ), stepMeta );
       remarks.add( cr );
     }
+
+    if ( combiningPartialAggregates ) {
+      try {
+        createCombiningMeta();
+      } catch ( KettleStepException e ) {
+        remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, e.getMessage(), stepMeta ) );
+      }
+    }
   }
 
   @Override
@@ -559,6 +661,97 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     this.alwaysGivingBackOneRow = alwaysGivingBackOneRow;
   }
 
+  /**
+   * @return true if groups that don't fit in memory are spilled to temporary files
+   */
+  public boolean isSpillingToDisk() {
+    return spillingToDisk;
+  }
+
+  /**
+   * @param spillingToDisk
+   *          true to spill groups that don't fit in memory to temporary files
+   */
+  public void setSpillingToDisk( boolean spillingToDisk ) {
+    this.spillingToDisk = spillingToDisk;
+  }
+
+  /**
+   * @return the maximum number of groups to keep in memory before spilling to disk
+   */
+  public String getMaxGroupsInMemory() {
+    return maxGroupsInMemory;
+  }
+
+  /**
+   * @param maxGroupsInMemory
+   *          the maximum number of groups to keep in memory before spilling to disk
+   */
+  public void setMaxGroupsInMemory( String maxGroupsInMemory ) {
+    this.maxGroupsInMemory = maxGroupsInMemory;
+  }
+
+  /**
+   * @return the directory to store the temporary files in
+   */
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @param directory
+   *          the directory to store the temporary files in
+   */
+  public void setDirectory( String directory ) {
+    this.directory = directory;
+  }
+
+  /**
+   * @return the prefix of the temporary files
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * @param prefix
+   *          the prefix of the temporary files
+   */
+  public void setPrefix( String prefix ) {
+    this.prefix = prefix;
+  }
+
+  @Override
+  public boolean isCombiningPartialAggregates() {
+    return combiningPartialAggregates;
+  }
+
+  @Override
+  public void setCombiningPartialAggregates( boolean combiningPartialAggregates ) {
+    this.combiningPartialAggregates = combiningPartialAggregates;
+  }
+
+  /**
+   * Create the metadata that merges the partial aggregates calculated with this metadata. First and last values are
+   * refused as well: which partial aggregate holds the first value of a key is not known.
+   */
+  @Override
+  public MemoryGroupByMeta createCombiningMeta() throws KettleStepException {
+    MemoryGroupByMeta combining = (MemoryGroupByMeta) clone();
+    combining.combiningPartialAggregates = false;
+    for ( int i = 0; i < aggregateType.length; i++ ) {
+      int type = getCombiningType( aggregateType[i] );
+      if ( type < 0 ) {
+        throw new KettleStepException( BaseMessages.getString( PKG,
+          "MemoryGroupByMeta.Exception.CannotCombineAggregate", aggregateField[i],
+          getTypeDescLong( aggregateType[i] ) ) );
+      }
+      combining.subjectField[i] = aggregateField[i];
+      combining.aggregateType[i] = type;
+    }
+    return combining;
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import org.pentaho.di.core.codegen.RowKeyComparatorCompiler;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.row.RowDataUtil;
@@ -134,6 +135,19 @@ public class MergeJoin extends BaseStep implements StepInterface {
         }
       }
 
+      // Compare the keys of the two streams, and the keys within each stream to detect duplicates
+      //
+      if ( data.one != null ) {
+        data.oneKeyComparator = RowKeyComparatorCompiler.create( this, log, data.oneMeta, data.keyNrs1 );
+      }
+      if ( data.two != null ) {
+        data.twoKeyComparator = RowKeyComparatorCompiler.create( this, log, data.twoMeta, data.keyNrs2 );
+      }
+      if ( data.one != null && data.two != null ) {
+        data.keyComparator =
+          RowKeyComparatorCompiler.create( this, log, data.oneMeta, data.keyNrs1, data.twoMeta, data.keyNrs2 );
+      }
+
       // Calculate one_dummy... defaults to null
       data.one_dummy = RowDataUtil.allocateRowData( data.oneMeta.size() + data.twoMeta.size() );
 
@@ -173,7 +187,7 @@ public class MergeJoin extends BaseStep implements StepInterface {
       if ( data.two == null ) {
         compare = 1;
       } else {
-        int cmp = data.oneMeta.compare( data.one, data.twoMeta, data.two, data.keyNrs1, data.keyNrs2 );
+        int cmp = data.keyComparator.compare( data.one, data.two );
         compare = cmp > 0 ? 1 : cmp < 0 ? -1 : 0;
       }
     }
@@ -190,11 +204,9 @@ public class MergeJoin extends BaseStep implements StepInterface {
         data.two_next = getRowFrom( data.twoRowSet );
 
         int compare1 =
-          ( data.one_next == null ) ? -1 : data.oneMeta.compare(
-            data.one, data.one_next, data.keyNrs1, data.keyNrs1 );
+          ( data.one_next == null ) ? -1 : data.oneKeyComparator.compare( data.one, data.one_next );
         int compare2 =
-          ( data.two_next == null ) ? -1 : data.twoMeta.compare(
-            data.two, data.two_next, data.keyNrs2, data.keyNrs2 );
+          ( data.two_next == null ) ? -1 : data.twoKeyComparator.compare( data.two, data.two_next );
         if ( compare1 == 0 || compare2 == 0 ) { // Duplicate keys
 
           if ( data.ones == null ) {
@@ -214,8 +226,8 @@ public class MergeJoin extends BaseStep implements StepInterface {
             data.ones.add( data.one_next );
             for ( ; !isStopped(); ) {
               data.one_next = getRowFrom( data.oneRowSet );
-              if ( 0 != ( ( data.one_next == null ) ? -1 : data.oneMeta.compare(
-                data.one, data.one_next, data.keyNrs1, data.keyNrs1 ) ) ) {
+              if ( 0 != ( ( data.one_next == null ) ? -1
+                : data.oneKeyComparator.compare( data.one, data.one_next ) ) ) {
                 break;
               }
               data.ones.add( data.one_next );
@@ -230,8 +242,8 @@ public class MergeJoin extends BaseStep implements StepInterface {
             data.twos.add( data.two_next );
             for ( ; !isStopped(); ) {
               data.two_next = getRowFrom( data.twoRowSet );
-              if ( 0 != ( ( data.two_next == null ) ? -1 : data.twoMeta.compare(
-                data.two, data.two_next, data.keyNrs2, data.keyNrs2 ) ) ) {
+              if ( 0 != ( ( data.two_next == null ) ? -1
+                : data.twoKeyComparator.compare( data.two, data.two_next ) ) ) {
                 break;
               }
               data.twos.add( data.two_next );
@@ -16,6 +16,7 @@ package org.pentaho.di.trans.steps.mergejoin;
 import java.util.List;
 
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.row.RowKeyComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -37,6 +38,11 @@ public class MergeJoinData extends BaseStepData implements StepDataInterface {
   public int[] keyNrs1;
   public int[] keyNrs2;
 
+  /** Compares the keys of a row of the first stream with the keys of a row of the second stream */
+  public RowKeyComparator keyComparator;
+  public RowKeyComparator oneKeyComparator;
+  public RowKeyComparator twoKeyComparator;
+
   public RowSet oneRowSet;
   public RowSet twoRowSet;
 
@@ -19,7 +19,10 @@ import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.compress.CompressionProviderFactory;
+import org.pentaho.di.core.compress.gzip.GZIPCompressionProvider;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.row.RowDataUtil;
@@ -279,7 +282,12 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
         data.binaryFilename = data.filenames[data.filenr].getBytes();
       }
 
-      data.gzis = new GZIPInputStream( data.fis, data.bufferSize );
+      if ( data.decompressionThreads > 0 ) {
+        data.gzis = CompressionProviderFactory.getInstance().createInputStream( new GZIPCompressionProvider(),
+          data.fis, data.decompressionThreads );
+      } else {
+        data.gzis = new GZIPInputStream( data.fis, data.bufferSize );
+      }
 
       clearBuffer();
       data.fileReadPosition = 0L;
@@ -684,6 +692,7 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
     if ( super.init( smi, sdi ) ) {
 
       data.bufferSize = Integer.parseInt( environmentSubstitute( meta.getBufferSize() ) );
+      data.decompressionThreads = Const.toInt( getVariable( Const.KETTLE_DECOMPRESSION_THREADS ), 0 );
       data.byteBuffer = new byte[] {}; // empty
 
       // If the step doesn't have any previous steps, we just get the filename.
@@ -15,7 +15,6 @@ package org.pentaho.di.trans.steps.parallelgzipcsv;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.GZIPInputStream;
 
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -46,7 +45,8 @@ public class ParGzipCsvInputData extends BaseStepData implements StepDataInterfa
   public boolean parallel;
   public int filenameFieldIndex;
   public int rownumFieldIndex;
-  public GZIPInputStream gzis;
+  public InputStream gzis;
+  public int decompressionThreads;
   public int bufferSize;
   public byte[] delimiter;
   public byte[] enclosure;
@@ -23,6 +23,7 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleConversionException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -331,6 +332,10 @@ public class SelectValues extends BaseStep implements StepInterface {
     meta = (SelectValuesMeta) smi;
     data = (SelectValuesData) sdi;
 
+    if ( isRowBatchEnabled() && !data.metadata && !getStepMeta().isDoingErrorHandling() ) {
+      return processRowBatch();
+    }
+
     Object[] rowData = getRow(); // get row from rowset, wait for our turn, indicate busy!
     if ( rowData == null ) { // no more input to be expected...
 
@@ -350,13 +355,7 @@ public class SelectValues extends BaseStep implements StepInterface {
 
     if ( first ) {
       first = false;
-
-      data.selectRowMeta = getInputRowMeta().clone();
-      meta.getSelectFields( data.selectRowMeta, getStepname() );
-      data.deselectRowMeta = data.selectRowMeta.clone();
-      meta.getDeleteFields( data.deselectRowMeta );
-      data.metadataRowMeta = data.deselectRowMeta.clone();
-      meta.getMetadataFields( data.metadataRowMeta, getStepname(), this );
+      initRowMetas();
     }
 
     try {
@@ -407,6 +406,89 @@ public class SelectValues extends BaseStep implements StepInterface {
     return true;
   }
 
+  private void initRowMetas() throws KettleException {
+    data.selectRowMeta = getInputRowMeta().clone();
+    meta.getSelectFields( data.selectRowMeta, getStepname() );
+    data.deselectRowMeta = data.selectRowMeta.clone();
+    meta.getDeleteFields( data.deselectRowMeta );
+    data.metadataRowMeta = data.deselectRowMeta.clone();
+    meta.getMetadataFields( data.metadataRowMeta, getStepname(), this );
+  }
+
+  /**
+   * Selecting and removing fields only moves values around, so for a batch of rows this comes down to picking the
+   * right columns. Metadata changes and error handling need the row by row path.
+   */
+  private boolean processRowBatch() throws KettleException {
+    RowBatch batch = getRowBatch();
+    if ( batch == null ) { // no more input to be expected...
+      setOutputDone();
+      return false;
+    }
+
+    if ( first ) {
+      first = false;
+      initRowMetas();
+    }
+
+    if ( data.projection == null ) {
+      // Run the first row through the row based code: that resolves and validates the field indexes
+      //
+      Object[] probe = batch.getRow( 0 );
+      if ( data.select ) {
+        probe = selectValues( getInputRowMeta(), probe );
+      }
+      if ( probe != null && data.deselect ) {
+        probe = removeValues( data.selectRowMeta, probe );
+      }
+      if ( probe == null ) {
+        setOutputDone(); // signal end to receiver(s)
+        return false;
+      }
+      data.projection = buildProjection( getInputRowMeta().size() );
+    }
+
+    putRowBatch( data.metadataRowMeta, batch.selectColumns( data.metadataRowMeta, data.projection ) );
+
+    if ( checkFeedback( getLinesRead(), batch.size() ) ) {
+      logBasic( BaseMessages.getString( PKG, "SelectValues.Log.LineNumber" ) + getLinesRead() );
+    }
+
+    return true;
+  }
+
+  /**
+   * @return for every output field the index of the input field it comes from
+   */
+  private int[] buildProjection( int inputSize ) {
+    List<Integer> projection = new ArrayList<>();
+    if ( data.select ) {
+      for ( int idx : data.fieldnrs ) {
+        if ( idx < inputSize ) {
+          projection.add( idx );
+        }
+      }
+      for ( int idx : data.extraFieldnrs ) {
+        projection.add( idx );
+      }
+    } else {
+      for ( int idx = 0; idx < inputSize; idx++ ) {
+        projection.add( idx );
+      }
+    }
+    if ( data.deselect ) {
+      // removenrs is sorted ascending, remove from the back so the positions stay valid
+      for ( int i = data.removenrs.length - 1; i >= 0; i-- ) {
+        projection.remove( data.removenrs[ i ] );
+      }
+    }
+    int[] result = new int[ projection.size() ];
+    for ( int i = 0; i < result.length; i++ ) {
+      result[ i ] = projection.get( i );
+    }
+    return result;
+  }
+
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (SelectValuesMeta) smi;
     data = (SelectValuesData) sdi;
@@ -27,6 +27,9 @@ public class SelectValuesData extends BaseStepData implements StepDataInterface
   public int[] removenrs;
   public int[] metanrs;
 
+  /** The input field index for every output field, used when processing row batches */
+  public int[] projection;
+
   public boolean firstselect;
   public boolean firstdeselect;
   public boolean firstmetadata;
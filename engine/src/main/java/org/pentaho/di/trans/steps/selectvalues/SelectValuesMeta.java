@@ -47,6 +47,8 @@ import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.FieldUsageInterface;
+import org.pentaho.di.trans.step.RowBatchCapable;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepHelperInterface;
 import org.pentaho.di.trans.step.StepInterface;
@@ -61,7 +63,8 @@ import org.w3c.dom.Node;
  * Created on 02-jun-2003
  */
 @InjectionSupported( localizationPrefix = "SelectValues.Injection.", groups = { "FIELDS", "REMOVES", "METAS" } )
-public class SelectValuesMeta extends BaseStepMeta implements StepMetaInterface {
+public class SelectValuesMeta extends BaseStepMeta implements StepMetaInterface, FieldUsageInterface,
+  RowBatchCapable {
   private static Class<?> PKG = SelectValuesMeta.class; // for i18n purposes, needed by Translator2!!
 
   public static final int UNDEFINED = -2;
@@ -853,11 +856,37 @@ public class SelectValuesMeta extends BaseStepMeta implements StepMetaInterface
     this.selectFields = selectFields == null ? new SelectField[0] : selectFields;
   }
 
+  /**
+   * Only the fields changed in the metadata tab are looked at, selected, renamed and removed fields are passed on as
+   * they are.
+   */
+  @Override
+  public int getFieldUsage( String fieldName, VariableSpace space ) {
+    for ( SelectMetadataChange change : getMeta() ) {
+      if ( fieldName.equalsIgnoreCase( change.getName() ) ) {
+        return USAGE_READ;
+      }
+      for ( SelectField selectField : selectFields ) {
+        String output = Utils.isEmpty( selectField.getRename() ) ? selectField.getName() : selectField.getRename();
+        if ( fieldName.equalsIgnoreCase( selectField.getName() ) && output.equalsIgnoreCase( change.getName() ) ) {
+          return USAGE_READ;
+        }
+      }
+    }
+    return USAGE_NONE;
+  }
+
+  @Override
+  public boolean isPassingInputFields() {
+    return true;
+  }
+
   /**
    * We will describe in which way the field names change between input and output in this step.
    *
    * @return The list of field name lineage objects
    */
+  @Override
   public List<FieldnameLineage> getFieldnameLineage() {
     List<FieldnameLineage> lineages = new ArrayList<>();
 
@@ -969,4 +998,17 @@ public class SelectValuesMeta extends BaseStepMeta implements StepMetaInterface
       }
     }
   }
+
+  /**
+   * Only selecting and removing fields is done on row batches, metadata changes are applied row by row.
+   */
+  @Override
+  public boolean isReadingRowBatches() {
+    return getMeta() == null || getMeta().length == 0;
+  }
+
+  @Override
+  public boolean isWritingRowBatches() {
+    return isReadingRowBatches();
+  }
 }
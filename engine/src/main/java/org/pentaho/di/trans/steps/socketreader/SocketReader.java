@@ -29,6 +29,7 @@ import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.cluster.ColumnarRowReader;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
@@ -81,7 +82,8 @@ public class SocketReader extends BaseStep implements StepInterface {
             data.socket = new Socket( environmentSubstitute( meta.getHostname() ), port );
             connected = true;
 
-            if ( meta.isCompressed() ) {
+            // Columnar streams compress block by block
+            if ( meta.isCompressed() && !meta.isColumnar() ) {
               data.outputStream =
                 new DataOutputStream( new BufferedOutputStream( new GZIPOutputStream( data.socket
                   .getOutputStream() ), bufferSize ) );
@@ -127,10 +129,21 @@ public class SocketReader extends BaseStep implements StepInterface {
           }
         }
 
-        data.rowMeta = new RowMeta( data.inputStream ); // This is the metadata
+        if ( meta.isColumnar() ) {
+          data.columnarReader =
+            new ColumnarRowReader( data.inputStream, data.outputStream, ColumnarRowReader.DEFAULT_CREDITS );
+          data.columnarReader.writeHandshake( meta.isCompressed() );
+          data.rowMeta = data.columnarReader.readMeta();
+        } else {
+          data.rowMeta = new RowMeta( data.inputStream ); // This is the metadata
+        }
         first = false;
       }
-      r = data.rowMeta.readData( data.inputStream );
+      if ( data.columnarReader != null ) {
+        r = data.columnarReader.getRow();
+      } else {
+        r = data.rowMeta.readData( data.inputStream );
+      }
 
       incrementLinesInput();
 
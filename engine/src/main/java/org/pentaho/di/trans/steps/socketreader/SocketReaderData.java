@@ -18,6 +18,7 @@ import java.io.DataOutputStream;
 import java.net.Socket;
 
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.cluster.ColumnarRowReader;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
@@ -32,6 +33,7 @@ public class SocketReaderData extends BaseStepData implements StepDataInterface
   public DataOutputStream outputStream;
   public DataInputStream inputStream;
   public RowMetaInterface rowMeta;
+  public ColumnarRowReader columnarReader;
 
   public SocketReaderData() {
     super();
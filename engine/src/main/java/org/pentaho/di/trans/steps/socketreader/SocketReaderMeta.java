@@ -50,6 +50,7 @@ public class SocketReaderMeta extends BaseStepMeta implements StepMetaInterface
   private String port;
   private String bufferSize;
   private boolean compressed;
+  private boolean columnar;
 
   public SocketReaderMeta() {
     super(); // allocate BaseStepMeta
@@ -71,6 +72,7 @@ public class SocketReaderMeta extends BaseStepMeta implements StepMetaInterface
     xml.append( "     " + XMLHandler.addTagValue( "port", port ) );
     xml.append( "     " + XMLHandler.addTagValue( "buffer_size", bufferSize ) );
     xml.append( "     " + XMLHandler.addTagValue( "compressed", compressed ) );
+    xml.append( "     " + XMLHandler.addTagValue( "columnar", columnar ) );
 
     return xml.toString();
   }
@@ -80,11 +82,13 @@ public class SocketReaderMeta extends BaseStepMeta implements StepMetaInterface
     port = XMLHandler.getTagValue( stepnode, "port" );
     bufferSize = XMLHandler.getTagValue( stepnode, "buffer_size" );
     compressed = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "compressed" ) );
+    columnar = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "columnar" ) );
   }
 
   public void setDefault() {
     bufferSize = "3000";
     compressed = true;
+    columnar = false;
   }
 
   public void readRep( Repository rep, IMetaStore metaStore, ObjectId id_step, List<DatabaseMeta> databases ) throws KettleException {
@@ -92,6 +96,7 @@ public class SocketReaderMeta extends BaseStepMeta implements StepMetaInterface
     port = rep.getStepAttributeString( id_step, "port" );
     bufferSize = rep.getStepAttributeString( id_step, "buffer_size" );
     compressed = rep.getStepAttributeBoolean( id_step, "compressed" );
+    columnar = rep.getStepAttributeBoolean( id_step, "columnar" );
   }
 
   public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
@@ -99,6 +104,7 @@ public class SocketReaderMeta extends BaseStepMeta implements StepMetaInterface
     rep.saveStepAttribute( id_transformation, id_step, "port", port );
     rep.saveStepAttribute( id_transformation, id_step, "buffer_size", bufferSize );
     rep.saveStepAttribute( id_transformation, id_step, "compressed", compressed );
+    rep.saveStepAttribute( id_transformation, id_step, "columnar", columnar );
   }
 
   @Override
@@ -198,4 +204,19 @@ public class SocketReaderMeta extends BaseStepMeta implements StepMetaInterface
   public void setCompressed( boolean compressed ) {
     this.compressed = compressed;
   }
+
+  /**
+   * @return true if the rows are exchanged in compressed column blocks with credit based flow control
+   */
+  public boolean isColumnar() {
+    return columnar;
+  }
+
+  /**
+   * @param columnar
+   *          true to exchange the rows in compressed column blocks, the socket writer and reader need the same setting
+   */
+  public void setColumnar( boolean columnar ) {
+    this.columnar = columnar;
+  }
 }
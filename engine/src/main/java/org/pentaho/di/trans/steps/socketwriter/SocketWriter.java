@@ -23,6 +23,7 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.cluster.ColumnarRowWriter;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
@@ -59,7 +60,8 @@ public class SocketWriter extends BaseStep implements StepInterface {
 
         data.clientSocket = data.serverSocket.accept();
 
-        if ( meta.isCompressed() ) {
+        // Columnar streams compress block by block
+        if ( meta.isCompressed() && !meta.isColumnar() ) {
           data.outputStream =
             new DataOutputStream( new BufferedOutputStream( new GZIPOutputStream( data.clientSocket
               .getOutputStream() ), bufferSize ) );
@@ -69,6 +71,16 @@ public class SocketWriter extends BaseStep implements StepInterface {
         }
 
         data.flushInterval = Const.toInt( environmentSubstitute( meta.getFlushInterval() ), 4000 );
+
+        if ( meta.isColumnar() ) {
+          data.columnarWriter = new ColumnarRowWriter( data.clientSocket.getInputStream(), data.outputStream,
+            Const.toInt( getVariable( Const.KETTLE_COLUMNAR_SOCKET_BLOCK_SIZE ), ColumnarRowWriter.DEFAULT_BLOCK_SIZE ),
+            meta.isCompressed(), this );
+          data.columnarWriter.readHandshake();
+
+          // Don't wait for credits forever when the transformation is stopped
+          data.clientSocket.setSoTimeout( 1000 );
+        }
       }
     } catch ( Exception e ) {
       logError( "Error accepting from socket : " + e.toString() );
@@ -95,6 +107,13 @@ public class SocketWriter extends BaseStep implements StepInterface {
     // Input rowMeta is automatically set, available when needed
 
     if ( r == null ) { // no more input to be expected...
+      if ( data.columnarWriter != null ) {
+        try {
+          data.columnarWriter.finish();
+        } catch ( IOException e ) {
+          throw new KettleException( "Error sending the last rows to the socket", e );
+        }
+      }
 
       setOutputDone();
       return false;
@@ -102,15 +121,29 @@ public class SocketWriter extends BaseStep implements StepInterface {
 
     try {
       if ( first ) {
-        getInputRowMeta().writeMeta( data.outputStream );
+        if ( data.columnarWriter != null ) {
+          data.columnarWriter.writeMeta( getInputRowMeta() );
+        } else {
+          getInputRowMeta().writeMeta( data.outputStream );
+        }
         first = false;
       }
-      getInputRowMeta().writeData( data.outputStream, r );
-      incrementLinesOutput();
+      if ( data.columnarWriter != null ) {
+        data.columnarWriter.putRow( r );
+        incrementLinesOutput();
 
-      // flush every X rows
-      if ( getLinesOutput() > 0 && data.flushInterval > 0 && ( getLinesOutput() % data.flushInterval ) == 0 ) {
-        data.outputStream.flush();
+        // The credits of the reader pace the blocks, send a partial block as soon as no more rows are waiting
+        if ( rowsetInputSize() == 0 ) {
+          data.columnarWriter.flush();
+        }
+      } else {
+        getInputRowMeta().writeData( data.outputStream, r );
+        incrementLinesOutput();
+
+        // flush every X rows
+        if ( getLinesOutput() > 0 && data.flushInterval > 0 && ( getLinesOutput() % data.flushInterval ) == 0 ) {
+          data.outputStream.flush();
+        }
       }
 
     } catch ( Exception e ) {
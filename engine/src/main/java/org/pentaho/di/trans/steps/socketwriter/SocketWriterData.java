@@ -17,6 +17,7 @@ import java.io.DataOutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
 
+import org.pentaho.di.trans.cluster.ColumnarRowWriter;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
@@ -31,6 +32,7 @@ public class SocketWriterData extends BaseStepData implements StepDataInterface
   public int flushInterval;
   public ServerSocket serverSocket;
   int serverSocketPort;
+  public ColumnarRowWriter columnarWriter;
 
   public SocketWriterData() {
     super();
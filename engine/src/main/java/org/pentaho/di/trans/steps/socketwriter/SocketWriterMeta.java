@@ -50,6 +50,7 @@ public class SocketWriterMeta extends BaseStepMeta implements StepMetaInterface
   private String bufferSize;
   private String flushInterval;
   private boolean compressed;
+  private boolean columnar;
 
   public SocketWriterMeta() {
     super(); // allocate BaseStepMeta
@@ -71,6 +72,7 @@ public class SocketWriterMeta extends BaseStepMeta implements StepMetaInterface
     xml.append( "     " + XMLHandler.addTagValue( "buffer_size", bufferSize ) );
     xml.append( "     " + XMLHandler.addTagValue( "flush_interval", flushInterval ) );
     xml.append( "     " + XMLHandler.addTagValue( "compressed", compressed ) );
+    xml.append( "     " + XMLHandler.addTagValue( "columnar", columnar ) );
 
     return xml.toString();
   }
@@ -80,12 +82,14 @@ public class SocketWriterMeta extends BaseStepMeta implements StepMetaInterface
     bufferSize = XMLHandler.getTagValue( stepnode, "buffer_size" );
     flushInterval = XMLHandler.getTagValue( stepnode, "flush_interval" );
     compressed = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "compressed" ) );
+    columnar = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "columnar" ) );
   }
 
   public void setDefault() {
     bufferSize = "2000";
     flushInterval = "5000";
     compressed = true;
+    columnar = false;
   }
 
   public void readRep( Repository rep, IMetaStore metaStore, ObjectId id_step, List<DatabaseMeta> databases ) throws KettleException {
@@ -93,6 +97,7 @@ public class SocketWriterMeta extends BaseStepMeta implements StepMetaInterface
     bufferSize = rep.getStepAttributeString( id_step, "buffer_size" );
     flushInterval = rep.getStepAttributeString( id_step, "flush_interval" );
     compressed = rep.getStepAttributeBoolean( id_step, "compressed" );
+    columnar = rep.getStepAttributeBoolean( id_step, "columnar" );
   }
 
   public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
@@ -100,6 +105,7 @@ public class SocketWriterMeta extends BaseStepMeta implements StepMetaInterface
     rep.saveStepAttribute( id_transformation, id_step, "buffer_size", bufferSize );
     rep.saveStepAttribute( id_transformation, id_step, "flush_interval", flushInterval );
     rep.saveStepAttribute( id_transformation, id_step, "compressed", compressed );
+    rep.saveStepAttribute( id_transformation, id_step, "columnar", columnar );
   }
 
   @Override
@@ -193,4 +199,19 @@ public class SocketWriterMeta extends BaseStepMeta implements StepMetaInterface
     this.compressed = compressed;
   }
 
+  /**
+   * @return true if the rows are exchanged in compressed column blocks with credit based flow control
+   */
+  public boolean isColumnar() {
+    return columnar;
+  }
+
+  /**
+   * @param columnar
+   *          true to exchange the rows in compressed column blocks, the socket writer and reader need the same setting
+   */
+  public void setColumnar( boolean columnar ) {
+    this.columnar = columnar;
+  }
+
 }
@@ -0,0 +1,187 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.NormalizedKey;
+
+/**
+ * Sorts a buffer of rows, optionally on several threads.
+ * <p>
+ * If the first sort key supports it, every row is paired with its normalized key prefix (see {@link NormalizedKey})
+ * so that most comparisons are done on a long instead of through the row metadata. The buffer is sorted with a stable
+ * merge sort: chunks are sorted in parallel on the fork-join pool and then merged pairwise, also in parallel.
+ *
+ * @since 11.1
+ */
+class ParallelRowSorter {
+
+  /** Chunks smaller than this are not split any further */
+  static final int MIN_CHUNK_SIZE = 8192;
+
+  private final Comparator<Object[]> rowComparator;
+  private final ValueMetaInterface prefixMeta;
+  private final int prefixIndex;
+  private final ForkJoinPool pool;
+
+  /**
+   * @param rowComparator
+   *          the full row comparator
+   * @param firstKeyMeta
+   *          the metadata of the first sort key, null if there are no sort keys
+   * @param firstKeyIndex
+   *          the index of the first sort key in the row
+   * @param pool
+   *          the pool to sort on, null to sort on the calling thread
+   */
+  ParallelRowSorter( Comparator<Object[]> rowComparator, ValueMetaInterface firstKeyMeta, int firstKeyIndex,
+    ForkJoinPool pool ) {
+    this.rowComparator = rowComparator;
+    this.prefixMeta = NormalizedKey.isSupported( firstKeyMeta ) ? firstKeyMeta : null;
+    this.prefixIndex = firstKeyIndex;
+    this.pool = pool;
+  }
+
+  boolean isUsingPrefixes() {
+    return prefixMeta != null;
+  }
+
+  /**
+   * Sort the rows in place.
+   *
+   * @param rows
+   *          the rows to sort
+   * @throws KettleValueException
+   *           in case a key can't be converted to its type
+   */
+  void sort( List<Object[]> rows ) throws KettleValueException {
+    int size = rows.size();
+    if ( size < 2 ) {
+      return;
+    }
+
+    if ( prefixMeta == null ) {
+      Object[][] array = rows.toArray( new Object[size][] );
+      sort( array, rowComparator );
+      for ( int i = 0; i < size; i++ ) {
+        rows.set( i, array[i] );
+      }
+      return;
+    }
+
+    PrefixedRow[] array = new PrefixedRow[size];
+    for ( int i = 0; i < size; i++ ) {
+      Object[] row = rows.get( i );
+      array[i] = new PrefixedRow( NormalizedKey.getPrefix( prefixMeta, row[prefixIndex] ), row );
+    }
+    sort( array, new Comparator<PrefixedRow>() {
+      @Override
+      public int compare( PrefixedRow o1, PrefixedRow o2 ) {
+        if ( o1.prefix != o2.prefix ) {
+          return o1.prefix < o2.prefix ? -1 : 1;
+        }
+        return rowComparator.compare( o1.row, o2.row );
+      }
+    } );
+    for ( int i = 0; i < size; i++ ) {
+      rows.set( i, array[i].row );
+    }
+  }
+
+  private <T> void sort( T[] array, Comparator<? super T> comparator ) {
+    if ( pool == null || array.length <= MIN_CHUNK_SIZE ) {
+      Arrays.sort( array, comparator );
+      return;
+    }
+    int chunkSize = Math.max( MIN_CHUNK_SIZE, array.length / ( pool.getParallelism() * 4 ) );
+    MergeSortTask<T> task = new MergeSortTask<T>( array, array.clone(), 0, array.length, comparator, chunkSize );
+    if ( ForkJoinTask.getPool() == pool ) {
+      task.invoke();
+    } else {
+      pool.invoke( task );
+    }
+  }
+
+  private static final class PrefixedRow {
+    private final long prefix;
+    private final Object[] row;
+
+    private PrefixedRow( long prefix, Object[] row ) {
+      this.prefix = prefix;
+      this.row = row;
+    }
+  }
+
+  /**
+   * Stable merge sort of array[from, to), using the same range of buffer as scratch space.
+   */
+  private static final class MergeSortTask<T> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final T[] array;
+    private final T[] buffer;
+    private final int from;
+    private final int to;
+    private final Comparator<? super T> comparator;
+    private final int chunkSize;
+
+    private MergeSortTask( T[] array, T[] buffer, int from, int to, Comparator<? super T> comparator, int chunkSize ) {
+      this.array = array;
+      this.buffer = buffer;
+      this.from = from;
+      this.to = to;
+      this.comparator = comparator;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    protected void compute() {
+      if ( to - from <= chunkSize ) {
+        Arrays.sort( array, from, to, comparator );
+        return;
+      }
+      int middle = ( from + to ) >>> 1;
+      invokeAll( new MergeSortTask<T>( array, buffer, from, middle, comparator, chunkSize ),
+        new MergeSortTask<T>( array, buffer, middle, to, comparator, chunkSize ) );
+
+      // Already in order?
+      if ( comparator.compare( array[middle - 1], array[middle] ) <= 0 ) {
+        return;
+      }
+
+      int left = from;
+      int right = middle;
+      int target = from;
+      while ( left < middle && right < to ) {
+        // Take from the left on equal keys to keep the sort stable
+        buffer[target++] = comparator.compare( array[right], array[left] ) < 0 ? array[right++] : array[left++];
+      }
+      while ( left < middle ) {
+        buffer[target++] = array[left++];
+      }
+      while ( right < to ) {
+        buffer[target++] = array[right++];
+      }
+      System.arraycopy( buffer, from, array, from, to - from );
+    }
+  }
+}
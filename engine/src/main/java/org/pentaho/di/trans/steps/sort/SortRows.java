@@ -25,17 +25,25 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.codegen.RowKeyComparatorCompiler;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.memory.MemoryManager;
+import org.pentaho.di.core.row.OffHeapRowArena;
+import org.pentaho.di.core.row.RowKeyComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.RowStore;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.LoserTree;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -75,9 +83,37 @@ public class SortRows extends BaseStep implements StepInterface {
       }
     }
 
+    if ( data.arena != null ) {
+      addToArena( r );
+      return;
+    }
+
     // Save row
     data.buffer.add( r );
 
+    if ( data.memoryGrant != null ) {
+      // The memory manager of the transformation decides when to dump to disk, not the free memory.
+      // The row is kept either way, it goes to disk right away when there's no room for it.
+      //
+      long rowSize = MemoryManager.estimateRowSize( r );
+      boolean full = !data.memoryGrant.reserve( rowSize );
+      boolean minimum = data.buffer.size() < data.minSortSize;
+      if ( full && minimum ) {
+        // Other consumers used up the memory: keep a minimum buffer anyway instead of writing tiny temp files.
+        // Forcing the reservation asks them to make room.
+        //
+        data.memoryGrant.forceReserve( rowSize );
+        full = false;
+      }
+      if ( !full ) {
+        data.bufferBytes += rowSize;
+      }
+      if ( full || ( data.memoryGrant.isSpillRequested() && !minimum ) || data.buffer.size() == data.sortSize ) {
+        sortExternalRows();
+      }
+      return;
+    }
+
     // Check the free memory every 1000 rows...
     //
     data.freeCounter++;
@@ -111,28 +147,146 @@ public class SortRows extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Save a row in the off-heap buffer. The budget of the transformation decides when to dump to disk, not the free heap
+   * memory.
+   */
+  private void addToArena( Object[] r ) throws KettleException {
+    if ( !data.arena.add( r ) ) {
+      // The off-heap budget is used up: sort & dump to disk to make room
+      sortExternalRows();
+      if ( !data.arena.add( r ) ) {
+        // The buffer handed off to the sort threads still holds on to its memory
+        waitForPendingSpill();
+        if ( !data.arena.add( r ) ) {
+          throw new KettleException( BaseMessages.getString( PKG, "SortRows.Exception.RowDoesNotFitOffHeapBudget" ) );
+        }
+      }
+    }
+    if ( data.arena.size() == data.sortSize ) {
+      sortExternalRows();
+    }
+  }
+
+  private OffHeapRowArena createArena() {
+    OffHeapRowArena arena = createOffHeapRowArena( data.outputRowMeta );
+    if ( arena != null && data.fieldnrs.length > 0 ) {
+      arena.setPrefixField( data.fieldnrs[0] );
+    }
+    return arena;
+  }
+
   // dump sorted rows from in-memory buffer to fs file
   // clean current buffer
   void sortExternalRows() throws KettleException {
     // we just recently dump buffer - but there is no new rows came.
-    if ( data.buffer.isEmpty() ) {
+    if ( data.arena != null ? data.arena.isEmpty() : data.buffer.isEmpty() ) {
       return;
     }
 
-    // First sort the rows in buffer[]
-    quickSort( data.buffer );
+    final FileObject fileObject;
+    try {
+      fileObject =
+          KettleVFS.getInstance( getTransMeta().getBowl() )
+            .createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ), getTransMeta() );
+    } catch ( Exception e ) {
+      throw new KettleException( "Error processing temp-file!", e );
+    }
+    data.files.add( fileObject ); // Remember the files!
 
-    // Then write them to disk...
+    int bufferSize = data.arena != null ? data.arena.size() : data.buffer.size();
+    if ( data.arena != null ) {
+      if ( data.sortPool != null ) {
+        // Same as below: sort and write in the background, continue with a new arena
+        //
+        waitForPendingSpill();
+        final OffHeapRowArena rows = data.arena;
+        data.arena = createArena();
+        data.pendingSpill = data.sortPool.submit( () -> {
+          try {
+            rows.sort( data.rowComparator );
+            return writeTempFile( fileObject, rows );
+          } finally {
+            rows.close();
+          }
+        } );
+      } else {
+        data.arena.sort( data.rowComparator );
+        data.bufferSizes.add( writeTempFile( fileObject, data.arena ) );
+        data.arena.clear();
+      }
+    } else if ( data.sortPool != null ) {
+      // Sort and write the buffer in the background while we keep reading rows into a new buffer.
+      // Only one buffer is handed off at a time to keep memory usage in check.
+      //
+      waitForPendingSpill();
+      final List<Object[]> rows = data.buffer;
+      final long rowsBytes = data.bufferBytes;
+      data.buffer = new ArrayList<Object[]>( bufferSize );
+      data.bufferBytes = 0;
+      data.pendingSpill = data.sortPool.submit( () -> {
+        try {
+          quickSort( rows );
+          int written = writeTempFile( fileObject, rows );
+          rows.clear();
+          return written;
+        } finally {
+          releaseBufferMemory( rowsBytes );
+        }
+      } );
+    } else {
+      // First sort the rows in buffer[]
+      quickSort( data.buffer );
+
+      // Then write them to disk...
+      data.bufferSizes.add( writeTempFile( fileObject, data.buffer ) );
+
+      // Clear the list
+      data.buffer.clear();
+      releaseBufferMemory( data.bufferBytes );
+      data.bufferBytes = 0;
+    }
+    if ( data.memoryGrant != null ) {
+      data.memoryGrant.spilled();
+    }
+
+    if ( data.sortSize < 0 && data.memoryGrant == null ) {
+      if ( bufferSize > data.minSortSize ) {
+        data.minSortSize = bufferSize; // if we did it once, we can do
+                                       // it again.
+
+        // Memory usage goes up over time, even with garbage collection
+        // We need pointers, file handles, etc.
+        // As such, we're going to lower the min sort size a bit
+        //
+        data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
+      }
+    }
+
+    // How much memory do we have left?
+    //
+    data.freeMemoryPct = Const.getPercentageFreeMemory();
+    data.freeCounter = 0;
+    if ( data.sortSize <= 0 ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
+      }
+    }
+
+    data.getBufferIndex = 0;
+  }
+
+  /**
+   * Write sorted rows to a temporary file. Can be called from a sort thread.
+   *
+   * @return the number of rows written
+   */
+  private int writeTempFile( FileObject fileObject, List<Object[]> rows ) throws KettleException {
     DataOutputStream dos;
     GZIPOutputStream gzos;
     int p;
 
     try {
-      FileObject fileObject =
-          KettleVFS.getInstance( getTransMeta().getBowl() )
-            .createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ), getTransMeta() );
-
-      data.files.add( fileObject ); // Remember the files!
       OutputStream outputStream = KettleVFS.getInstance( getTransMeta().getBowl() )
         .getOutputStream( fileObject, false );
       if ( data.compressFiles ) {
@@ -148,10 +302,10 @@ public class SortRows extends BaseStep implements StepInterface {
       Object[] previousRow = null;
       if ( meta.isOnlyPassingUniqueRows() ) {
         int index = 0;
-        while ( index < data.buffer.size() ) {
-          Object[] row = data.buffer.get( index );
+        while ( index < rows.size() ) {
+          Object[] row = rows.get( index );
           if ( previousRow != null ) {
-            int result = data.outputRowMeta.compare( row, previousRow, data.fieldnrs );
+            int result = data.keyComparator.compare( row, previousRow );
             if ( result == 0 ) {
               duplicates.add( index );
               if ( log.isRowLevel() ) {
@@ -165,11 +319,8 @@ public class SortRows extends BaseStep implements StepInterface {
         }
       }
 
-      // How many records do we have left?
-      data.bufferSizes.add( data.buffer.size() - duplicates.size() );
-
       int duplicatesIndex = 0;
-      for ( p = 0; p < data.buffer.size(); p++ ) {
+      for ( p = 0; p < rows.size(); p++ ) {
         boolean skip = false;
         if ( duplicatesIndex < duplicates.size() ) {
           if ( p == duplicates.get( duplicatesIndex ) ) {
@@ -178,26 +329,10 @@ public class SortRows extends BaseStep implements StepInterface {
           }
         }
         if ( !skip ) {
-          data.outputRowMeta.writeData( dos, data.buffer.get( p ) );
-        }
-      }
-
-      if ( data.sortSize < 0 ) {
-        if ( data.buffer.size() > data.minSortSize ) {
-          data.minSortSize = data.buffer.size(); // if we did it once, we can do
-                                                 // it again.
-
-          // Memory usage goes up over time, even with garbage collection
-          // We need pointers, file handles, etc.
-          // As such, we're going to lower the min sort size a bit
-          //
-          data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
+          data.outputRowMeta.writeData( dos, rows.get( p ) );
         }
       }
 
-      // Clear the list
-      data.buffer.clear();
-
       // Close temp-file
       dos.close(); // close data stream
       if ( gzos != null ) {
@@ -205,21 +340,84 @@ public class SortRows extends BaseStep implements StepInterface {
       }
       outputStream.close(); // close file stream
 
-      // How much memory do we have left?
-      //
-      data.freeMemoryPct = Const.getPercentageFreeMemory();
-      data.freeCounter = 0;
-      if ( data.sortSize <= 0 ) {
-        if ( log.isDetailed() ) {
-          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
+      // How many records do we have left?
+      return rows.size() - duplicates.size();
+    } catch ( Exception e ) {
+      throw new KettleException( "Error processing temp-file!", e );
+    }
+  }
+
+  /**
+   * Write sorted rows from the off-heap buffer to a temporary file. The rows are copied in their serialized form, they
+   * are only read back to skip duplicates. Can be called from a sort thread.
+   *
+   * @return the number of rows written
+   */
+  private int writeTempFile( FileObject fileObject, RowStore rows ) throws KettleException {
+    try {
+      OutputStream outputStream = KettleVFS.getInstance( getTransMeta().getBowl() )
+        .getOutputStream( fileObject, false );
+      DataOutputStream dos;
+      if ( data.compressFiles ) {
+        dos = new DataOutputStream( new GZIPOutputStream( new BufferedOutputStream( outputStream ) ) );
+      } else {
+        dos = new DataOutputStream( new BufferedOutputStream( outputStream, 500000 ) );
+      }
+
+      int written = 0;
+      Object[] previousRow = null;
+      for ( int p = 0; p < rows.size(); p++ ) {
+        if ( meta.isOnlyPassingUniqueRows() ) {
+          Object[] row = rows.get( p );
+          boolean duplicate =
+            previousRow != null && data.keyComparator.compare( row, previousRow ) == 0;
+          previousRow = row;
+          if ( duplicate ) {
+            if ( log.isRowLevel() ) {
+              logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.DuplicateRowRemoved", data.outputRowMeta
+                .getString( row ) ) );
+            }
+            continue;
+          }
         }
+        rows.writeRow( p, dos );
+        written++;
       }
 
+      // Close temp-file, this closes the underlying streams as well
+      dos.close();
+      return written;
     } catch ( Exception e ) {
       throw new KettleException( "Error processing temp-file!", e );
     }
+  }
 
-    data.getBufferIndex = 0;
+  /**
+   * Give back the memory of rows that left the buffer. Can be called from a sort thread.
+   */
+  private void releaseBufferMemory( long bytes ) {
+    if ( data.memoryGrant != null ) {
+      data.memoryGrant.release( bytes );
+    }
+  }
+
+  /**
+   * Wait until the buffer handed off to the sort threads is written to disk.
+   */
+  void waitForPendingSpill() throws KettleException {
+    if ( data.pendingSpill == null ) {
+      return;
+    }
+    try {
+      data.bufferSizes.add( data.pendingSpill.get() );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( "Error processing temp-file!", e );
+    } catch ( ExecutionException e ) {
+      throw new KettleException( "Error processing temp-file!", e.getCause() );
+    } finally {
+      data.pendingSpill = null;
+    }
   }
 
   private DataInputStream getDataInputStream( GZIPInputStream gzipInputStream ) {
@@ -235,12 +433,13 @@ public class SortRows extends BaseStep implements StepInterface {
     Object[] retval;
 
     // Open all files at once and read one row from each file...
-    if ( data.files.size() > 0 && ( data.dis.size() == 0 || data.fis.size() == 0 ) ) {
+    if ( data.files.size() > 0 && data.merger == null ) {
       if ( log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", data.files.size() ) );
       }
 
       try {
+        List<RowTempFile> heads = new ArrayList<RowTempFile>( data.files.size() );
         for ( int f = 0; f < data.files.size() && !isStopped(); f++ ) {
           FileObject fileObject = data.files.get( f );
           String filename = KettleVFS.getFilename( fileObject );
@@ -267,22 +466,28 @@ public class SortRows extends BaseStep implements StepInterface {
 
           if ( buffersize > 0 ) {
             Object[] row = data.outputRowMeta.readData( di );
-            data.rowbuffer.add( row ); // new row from input stream
-            data.tempRows.add( new RowTempFile( row, f ) );
+            heads.add( new RowTempFile( row, f ) ); // new row from input stream
+          } else {
+            heads.add( null );
           }
         }
 
-        // Sort the data row buffer
-        Collections.sort( data.tempRows, data.comparator );
+        // Merge the files with a tournament tree: one comparison per level to find the next smallest row
+        data.merger = new LoserTree<RowTempFile>( heads, data.comparator );
       } catch ( Exception e ) {
         logError( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
+        setErrors( 1 );
+        stopAll();
+        return null;
       }
     }
 
     if ( data.files.size() == 0 ) {
       // read from in-memory processing
 
-      if ( data.getBufferIndex < data.buffer.size() ) {
+      if ( data.arena != null ) {
+        retval = data.getBufferIndex < data.arena.size() ? data.arena.get( data.getBufferIndex++ ) : null;
+      } else if ( data.getBufferIndex < data.buffer.size() ) {
         retval = data.buffer.get( data.getBufferIndex );
         data.getBufferIndex++;
       } else {
@@ -291,22 +496,14 @@ public class SortRows extends BaseStep implements StepInterface {
     } else {
       // read from disk processing
 
-      if ( data.rowbuffer.size() == 0 ) {
+      if ( data.merger.isEmpty() ) {
         retval = null;
       } else {
-        // We now have "filenr" rows waiting: which one is the smallest?
+        // The winner of the tournament is the smallest row
         //
-        if ( log.isRowLevel() ) {
-          for ( int i = 0; i < data.rowbuffer.size() && !isStopped(); i++ ) {
-            Object[] b = data.rowbuffer.get( i );
-            logRowlevel( BaseMessages
-                .getString( PKG, "SortRows.RowLevel.PrintRow", i, data.outputRowMeta.getString( b ) ) );
-          }
-        }
-
-        RowTempFile rowTempFile = data.tempRows.remove( 0 );
+        int smallest = data.merger.getWinner();
+        RowTempFile rowTempFile = data.merger.peek();
         retval = rowTempFile.row;
-        int smallest = rowTempFile.fileNumber;
 
         // now get another Row for position smallest
 
@@ -315,16 +512,11 @@ public class SortRows extends BaseStep implements StepInterface {
         InputStream fi = data.fis.get( smallest );
 
         try {
-          Object[] row2 = data.outputRowMeta.readData( di );
-          RowTempFile extra = new RowTempFile( row2, smallest );
-
-          int index = Collections.binarySearch( data.tempRows, extra, data.comparator );
-          if ( index < 0 ) {
-            data.tempRows.add( index * ( -1 ) - 1, extra );
-          } else {
-            data.tempRows.add( index, extra );
-          }
+          rowTempFile.row = data.outputRowMeta.readData( di );
+          data.merger.replaceWinner( rowTempFile );
         } catch ( KettleFileException fe ) { // empty file or EOF mostly
+          data.merger.replaceWinner( null );
+
           GZIPInputStream gzfi = ( data.compressFiles ) ? data.gzis.get( smallest ) : null;
           try {
             di.close();
@@ -340,21 +532,14 @@ public class SortRows extends BaseStep implements StepInterface {
             return null;
           }
 
-          data.files.remove( smallest );
-          data.dis.remove( smallest );
-          data.fis.remove( smallest );
+          // Keep the positions of the other files, the tree refers to them by number
+          //
+          data.files.set( smallest, null );
+          data.dis.set( smallest, null );
+          data.fis.set( smallest, null );
 
           if ( gzfi != null ) {
-            data.gzis.remove( smallest );
-          }
-
-          // Also update all file numbers in in data.tempRows if they are larger
-          // than smallest.
-          //
-          for ( RowTempFile rtf : data.tempRows ) {
-            if ( rtf.fileNumber > smallest ) {
-              rtf.fileNumber--;
-            }
+            data.gzis.set( smallest, null );
           }
         } catch ( SocketTimeoutException e ) {
           throw new KettleValueException( e ); // should never happen on local files
@@ -401,6 +586,7 @@ public class SortRows extends BaseStep implements StepInterface {
             return false;
           }
         }
+        data.groupComparator = RowKeyComparatorCompiler.create( this, log, inputRowMeta, data.groupnrs );
       }
 
       String[] fieldNames = meta.getFieldName();
@@ -411,8 +597,6 @@ public class SortRows extends BaseStep implements StepInterface {
       data.outputRowMeta = inputRowMeta.clone();
       meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
         metaStore );
-      data.comparator = new RowTemapFileComparator( data.outputRowMeta, data.fieldnrs );
-
       for ( int i = 0; i < fieldNames.length; i++ ) {
         data.fieldnrs[i] = inputRowMeta.indexOfValue( fieldNames[i] );
         if ( data.fieldnrs[i] < 0 ) {
@@ -430,7 +614,13 @@ public class SortRows extends BaseStep implements StepInterface {
         data.convertKeysToNative[i] = in;
         i++;
       }
-      data.rowComparator = new RowObjectArrayComparator( data.outputRowMeta, data.fieldnrs );
+      data.keyComparator = RowKeyComparatorCompiler.create( this, log, data.outputRowMeta, data.fieldnrs );
+      data.comparator = new RowTemapFileComparator( data.keyComparator );
+      data.rowComparator = new RowObjectArrayComparator( data.keyComparator );
+      data.sorter = new ParallelRowSorter( data.rowComparator,
+        data.fieldnrs.length > 0 ? data.outputRowMeta.getValueMeta( data.fieldnrs[0] ) : null,
+        data.fieldnrs.length > 0 ? data.fieldnrs[0] : -1, data.sortPool );
+      data.arena = createArena();
     } // end if first
 
     // it is not first row and it is null
@@ -510,7 +700,7 @@ public class SortRows extends BaseStep implements StepInterface {
           // See if this row is the same as the previous one as far as the keys
           // are concerned.
           // If so, we don't put forward this row.
-          int result = data.outputRowMeta.compare( r, previousRow, data.fieldnrs );
+          int result = data.keyComparator.compare( r, previousRow );
           if ( result != 0 ) {
             putRow( data.outputRowMeta, r ); // copy row to possible alternate
                                              // rowset(s).
@@ -573,12 +763,37 @@ public class SortRows extends BaseStep implements StepInterface {
 
     data.minSortSize = 5000;
 
+    // When the transformation has a memory limit, the rows in the buffer are accounted for instead
+    //
+    data.memoryGrant = getMemoryGrant( true );
+
+    int sortThreads = Const.toInt( environmentSubstitute( meta.getSortThreads() ), 1 );
+    if ( sortThreads > 1 ) {
+      data.sortPool = new ForkJoinPool( sortThreads );
+    }
+
     return true;
   }
 
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    if ( data.pendingSpill != null ) {
+      // Let the sort threads finish with the temporary file before removing it
+      try {
+        waitForPendingSpill();
+      } catch ( KettleException e ) {
+        logError( e.getLocalizedMessage(), e );
+      }
+    }
     clearBuffers();
+    if ( data.arena != null ) {
+      data.arena.close();
+      data.arena = null;
+    }
+    if ( data.sortPool != null ) {
+      data.sortPool.shutdownNow();
+      data.sortPool = null;
+    }
     super.dispose( smi, sdi );
   }
 
@@ -586,6 +801,11 @@ public class SortRows extends BaseStep implements StepInterface {
 
     // Clean out the sort buffer
     data.buffer.clear();
+    releaseBufferMemory( data.bufferBytes );
+    data.bufferBytes = 0;
+    if ( data.arena != null ) {
+      data.arena.clear();
+    }
     data.getBufferIndex = 0;
     data.rowbuffer.clear();
 
@@ -612,6 +832,14 @@ public class SortRows extends BaseStep implements StepInterface {
         logError( e.getLocalizedMessage(), e );
       }
     }
+
+    // Start the next batch with a clean slate
+    data.files.clear();
+    data.dis.clear();
+    data.fis.clear();
+    data.gzis.clear();
+    data.bufferSizes.clear();
+    data.merger = null;
   }
 
   /**
@@ -619,7 +847,11 @@ public class SortRows extends BaseStep implements StepInterface {
    */
   void quickSort( List<Object[]> elements ) throws KettleException {
     if ( elements.size() > 0 ) {
-      Collections.sort( elements, data.rowComparator );
+      if ( data.sorter != null ) {
+        data.sorter.sort( elements );
+      } else {
+        Collections.sort( elements, data.rowComparator );
+      }
 
       long nrConversions = 0L;
       for ( ValueMetaInterface valueMeta : data.outputRowMeta.getValueMetaList() ) {
@@ -647,6 +879,10 @@ public class SortRows extends BaseStep implements StepInterface {
     if ( data.files.size() > 0 ) {
       // dump to dist and then read from disk
       sortExternalRows();
+      waitForPendingSpill();
+    } else if ( data.arena != null ) {
+      // sort off-heap
+      data.arena.sort( data.rowComparator );
     } else {
       // sort in memory
       quickSort( data.buffer );
@@ -661,7 +897,7 @@ public class SortRows extends BaseStep implements StepInterface {
     if ( r == null ) {
       return false;
     }
-    return getInputRowMeta().compare( previous, r, data.groupnrs ) == 0;
+    return data.groupComparator.compare( previous, r ) == 0;
   }
 
   private void setPrevious( Object[] r ) throws KettleException {
@@ -671,24 +907,22 @@ public class SortRows extends BaseStep implements StepInterface {
   }
 
   private class SortRowsComparator {
-    protected RowMetaInterface rowMeta;
-    protected int[] fieldNrs;
+    protected RowKeyComparator keyComparator;
 
-    SortRowsComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
-      this.rowMeta = rowMeta;
-      this.fieldNrs = fieldNrs;
+    SortRowsComparator( RowKeyComparator keyComparator ) {
+      this.keyComparator = keyComparator;
     }
   }
 
   private class RowTemapFileComparator extends SortRowsComparator implements Comparator<RowTempFile> {
-    RowTemapFileComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
-      super( rowMeta, fieldNrs );
+    RowTemapFileComparator( RowKeyComparator keyComparator ) {
+      super( keyComparator );
     }
 
     @Override
     public int compare( RowTempFile o1, RowTempFile o2 ) {
       try {
-        return rowMeta.compare( o1.row, o2.row, fieldNrs );
+        return keyComparator.compare( o1.row, o2.row );
       } catch ( KettleValueException e ) {
         logError( "Error comparing rows: " + e.toString() );
         return 0;
@@ -697,14 +931,14 @@ public class SortRows extends BaseStep implements StepInterface {
   }
 
   private class RowObjectArrayComparator extends SortRowsComparator implements Comparator<Object[]> {
-    RowObjectArrayComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
-      super( rowMeta, fieldNrs );
+    RowObjectArrayComparator( RowKeyComparator keyComparator ) {
+      super( keyComparator );
     }
 
     @Override
     public int compare( Object[] o1, Object[] o2 ) {
       try {
-        return rowMeta.compare( o1, o2, fieldNrs );
+        return keyComparator.compare( o1, o2 );
       } catch ( KettleValueException e ) {
         logError( "Error comparing rows: " + e.toString() );
         return 0;
@@ -18,10 +18,16 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.memory.MemoryGrant;
+import org.pentaho.di.core.row.OffHeapRowArena;
+import org.pentaho.di.core.row.RowKeyComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.LoserTree;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
@@ -37,12 +43,19 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public List<InputStream> fis;
   public List<GZIPInputStream> gzis;
   public List<DataInputStream> dis;
+  /** @deprecated no longer used, the merge keeps the current row of every file in {@link #merger} */
+  @Deprecated
   public List<Object[]> rowbuffer;
   public List<Integer> bufferSizes;
 
   // To store rows and file references
+  /** @deprecated no longer used, the merge keeps the current row of every file in {@link #merger} */
+  @Deprecated
   public List<RowTempFile> tempRows;
 
+  /** Merges the temporary files, one entry per file */
+  LoserTree<RowTempFile> merger;
+
   public int[] fieldnrs; // the corresponding field numbers;
   public FileObject fil;
   public RowMetaInterface outputRowMeta;
@@ -51,8 +64,23 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int[] convertKeysToNative;
   public boolean convertAnyKeysToNative;
 
+  /** Compares the sort keys of two rows */
+  RowKeyComparator keyComparator;
   Comparator<RowTempFile> comparator;
   Comparator<Object[]> rowComparator;
+  ParallelRowSorter sorter;
+
+  /** The off-heap buffer used instead of {@link #buffer} when the transformation has an off-heap budget */
+  OffHeapRowArena arena;
+
+  /** The threads to sort with, null to sort on the step thread */
+  ForkJoinPool sortPool;
+  /** The buffer being sorted and written to a temporary file in the background, returns the number of rows written */
+  Future<Integer> pendingSpill;
+
+  /** The memory reserved for the rows in the buffer, null if the free memory decides when to dump to disk */
+  MemoryGrant memoryGrant;
+  long bufferBytes;
 
   public int freeCounter;
   public int freeMemoryPct;
@@ -65,6 +93,7 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
    */
   public Object[] previous;
   public int[] groupnrs;
+  RowKeyComparator groupComparator;
   public boolean newBatch;
 
   public SortRowsData() {
@@ -95,6 +95,10 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
   @Injection( name = "SORT_SIZE_ROWS" )
   private String sortSize;
 
+  /** The number of threads to sort and write temporary files with, 1 or less sorts on the step thread */
+  @Injection( name = "SORT_THREADS" )
+  private String sortThreads;
+
   /** The free memory limit in percentages in case we don't use the sort size */
   @Injection( name = "FREE_MEMORY_TRESHOLD" )
   private String freeMemoryLimit;
@@ -215,6 +219,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
       prefix = XMLHandler.getTagValue( stepnode, "prefix" );
       sortSize = XMLHandler.getTagValue( stepnode, "sort_size" );
       freeMemoryLimit = XMLHandler.getTagValue( stepnode, "free_memory" );
+      sortThreads = XMLHandler.getTagValue( stepnode, "sort_threads" );
       compressFiles = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "compress" ) );
       compressFilesVariable = XMLHandler.getTagValue( stepnode, "compress_variable" );
       onlyPassingUniqueRows = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "unique_rows" ) );
@@ -251,6 +256,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
     prefix = "out";
     sortSize = "1000000";
     freeMemoryLimit = null;
+    sortThreads = "1";
     compressFiles = false;
     compressFilesVariable = null;
     onlyPassingUniqueRows = false;
@@ -281,6 +287,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
     retval.append( "      " ).append( XMLHandler.addTagValue( "prefix", prefix ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "sort_size", sortSize ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "free_memory", freeMemoryLimit ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "sort_threads", sortThreads ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "compress", compressFiles ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "compress_variable", compressFilesVariable ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "unique_rows", onlyPassingUniqueRows ) );
@@ -309,6 +316,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
       prefix = rep.getStepAttributeString( id_step, "prefix" );
       sortSize = rep.getStepAttributeString( id_step, "sort_size" );
       freeMemoryLimit = rep.getStepAttributeString( id_step, "free_memory" );
+      sortThreads = rep.getStepAttributeString( id_step, "sort_threads" );
 
       compressFiles = rep.getStepAttributeBoolean( id_step, "compress" );
       compressFilesVariable = rep.getStepAttributeString( id_step, "compress_variable" );
@@ -363,6 +371,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
       rep.saveStepAttribute( id_transformation, id_step, "prefix", prefix );
       rep.saveStepAttribute( id_transformation, id_step, "sort_size", sortSize );
       rep.saveStepAttribute( id_transformation, id_step, "free_memory", freeMemoryLimit );
+      rep.saveStepAttribute( id_transformation, id_step, "sort_threads", sortThreads );
       rep.saveStepAttribute( id_transformation, id_step, "compress", compressFiles );
       rep.saveStepAttribute( id_transformation, id_step, "compress_variable", compressFilesVariable );
       rep.saveStepAttribute( id_transformation, id_step, "unique_rows", onlyPassingUniqueRows );
@@ -634,6 +643,21 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
     this.freeMemoryLimit = freeMemoryLimit;
   }
 
+  /**
+   * @return the number of threads to sort with
+   */
+  public String getSortThreads() {
+    return sortThreads;
+  }
+
+  /**
+   * @param sortThreads
+   *          the number of threads to sort with, 1 or less to sort on the step thread
+   */
+  public void setSortThreads( String sortThreads ) {
+    this.sortThreads = sortThreads;
+  }
+
   /**
    * @return the preSortedField
    */
@@ -19,6 +19,7 @@ import java.util.Comparator;
 import java.util.List;
 
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.codegen.RowKeyComparatorCompiler;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
@@ -111,22 +112,27 @@ public class SortedMerge extends BaseStep implements StepInterface {
             }
           }
         }
+      }
 
-        data.comparator = new Comparator<RowSetRow>() {
+      // Compare on the sort fields in the sort order of the step, the same for all inputs
+      //
+      if ( data.rowMeta != null ) {
+        data.keyComparator = RowKeyComparatorCompiler.create( this, log, data.rowMeta, data.fieldIndices );
+      }
+      data.comparator = new Comparator<RowSetRow>() {
 
-          public int compare( RowSetRow o1, RowSetRow o2 ) {
-            try {
-              return o1.getRowMeta().compare( o1.getRowData(), o2.getRowData(), data.fieldIndices );
-            } catch ( KettleValueException e ) {
-              return 0; // TODO see if we should fire off alarms over here... Perhaps throw a RuntimeException.
-            }
+        public int compare( RowSetRow o1, RowSetRow o2 ) {
+          try {
+            return data.keyComparator.compare( o1.getRowData(), o2.getRowData() );
+          } catch ( KettleValueException e ) {
+            return 0; // TODO see if we should fire off alarms over here... Perhaps throw a RuntimeException.
           }
-        };
+        }
+      };
 
-        // Now sort the sortedBuffer for the first time.
-        //
-        Collections.sort( data.sortedBuffer, data.comparator );
-      }
+      // Now sort the sortedBuffer for the first time.
+      //
+      Collections.sort( data.sortedBuffer, data.comparator );
     }
 
     // If our sorted buffer is empty, it means we're done...
@@ -16,6 +16,7 @@ package org.pentaho.di.trans.steps.sortedmerge;
 import java.util.Comparator;
 import java.util.List;
 
+import org.pentaho.di.core.row.RowKeyComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -31,6 +32,7 @@ public class SortedMergeData extends BaseStepData implements StepDataInterface {
   public RowMetaInterface rowMeta;
   public List<RowSetRow> sortedBuffer;
   public Comparator<RowSetRow> comparator;
+  public RowKeyComparator keyComparator;
 
   public SortedMergeData() {
     super();
@@ -13,12 +13,16 @@
 
 package org.pentaho.di.trans.steps.streamlookup;
 
-import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.codegen.RowKeyComparatorCompiler;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
+import org.pentaho.di.core.hash.CompositeKeyHashIndex;
+import org.pentaho.di.core.hash.LongObjectHashIndex;
+import org.pentaho.di.core.memory.MemoryGrant;
+import org.pentaho.di.core.memory.MemoryManager;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -189,6 +193,7 @@ public class StreamLookup extends BaseStep implements StepInterface {
 
         data.cacheKeyMeta = cacheKeyMeta;
         data.cacheValueMeta = cacheValueMeta;
+        data.keyComparator = RowKeyComparatorCompiler.create( this, log, cacheKeyMeta, null );
       }
 
       Object[] keyData = new Object[keyNrs.length];
@@ -233,7 +238,12 @@ public class StreamLookup extends BaseStep implements StepInterface {
 
     // Copy value references to lookup table.
     //
-    Object[] lu = new Object[data.keynrs.length];
+    // The key is only used for the lookup itself, so the array can be reused for every row.
+    //
+    if ( data.lookupKey == null ) {
+      data.lookupKey = new Object[data.keynrs.length];
+    }
+    Object[] lu = data.lookupKey;
     for ( int i = 0; i < data.keynrs.length; i++ ) {
       // If the input is binary storage data, we convert it to normal storage.
       //
@@ -285,6 +295,12 @@ public class StreamLookup extends BaseStep implements StepInterface {
 
   private void addToCache( RowMetaInterface keyMeta, Object[] keyData, RowMetaInterface valueMeta,
     Object[] valueData ) throws KettleValueException {
+    MemoryGrant memoryGrant = getMemoryGrant( false );
+    if ( memoryGrant != null ) {
+      // The lookup table can't be spilled, account for it so that the other steps make room
+      memoryGrant.forceReserve( MemoryManager.estimateRowSize( keyData ) + MemoryManager.estimateRowSize( valueData ) );
+    }
+
     if ( meta.isMemoryPreservationActive() ) {
       if ( meta.isUsingSortedList() ) {
         KeyValue keyValue = new KeyValue( keyData, valueData );
@@ -320,10 +336,47 @@ public class StreamLookup extends BaseStep implements StepInterface {
         }
       }
     } else {
-      // We can't just put Object[] in the map The compare function is not in it.
-      // We need to wrap in and use that. Let's use RowMetaAndData for this one.
-      data.look.put( new RowMetaAndData( keyMeta, keyData ), valueData );
+      // A single integer or date key is kept as a primitive long, any other key goes into a composite key index.
+      // Neither needs a wrapper object per key.
+      //
+      if ( data.longKeyIndex == null && data.compositeKeyIndex == null ) {
+        if ( isLongKey( keyMeta ) ) {
+          data.longKeyIndex = new LongObjectHashIndex<Object[]>();
+        } else {
+          data.compositeKeyIndex = new CompositeKeyHashIndex<Object[]>( keyMeta, data.keyComparator );
+        }
+      }
+
+      if ( data.longKeyIndex != null ) {
+        if ( keyData[0] == null ) {
+          data.nullKeyValue = valueData;
+        } else {
+          data.longKeyIndex.put( getLongKey( keyMeta.getValueMeta( 0 ), keyData[0] ), valueData );
+        }
+      } else {
+        data.compositeKeyIndex.put( keyData, valueData );
+      }
+    }
+  }
+
+  private static boolean isLongKey( RowMetaInterface keyMeta ) {
+    if ( keyMeta.size() != 1 ) {
+      return false;
+    }
+    ValueMetaInterface valueMeta = keyMeta.getValueMeta( 0 );
+    return valueMeta.getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL
+      && ( valueMeta.getType() == ValueMetaInterface.TYPE_INTEGER
+      || valueMeta.getType() == ValueMetaInterface.TYPE_DATE );
+  }
+
+  /**
+   * Dates are compared on their milliseconds, so that's what the key becomes.
+   */
+  private static long getLongKey( ValueMetaInterface keyMeta, Object keyData ) throws KettleValueException {
+    if ( keyMeta.getType() == ValueMetaInterface.TYPE_DATE ) {
+      return keyMeta.getDate( keyData ).getTime();
     }
+    return keyMeta.getInteger( keyData );
   }
 
   private Object[] getFromCache( RowMetaInterface keyMeta, Object[] keyData ) throws KettleValueException {
@@ -358,7 +411,16 @@ public class StreamLookup extends BaseStep implements StepInterface {
         }
       }
     } else {
-      return data.look.get( new RowMetaAndData( keyMeta, keyData ) );
+      if ( data.longKeyIndex != null ) {
+        if ( keyData[0] == null ) {
+          return data.nullKeyValue;
+        }
+        return data.longKeyIndex.get( getLongKey( keyMeta.getValueMeta( 0 ), keyData[0] ) );
+      }
+      if ( data.compositeKeyIndex != null ) {
+        return data.compositeKeyIndex.get( keyData );
+      }
+      return null;
     }
   }
 
@@ -471,6 +533,9 @@ public class StreamLookup extends BaseStep implements StepInterface {
     // Recover memory immediately, allow in-memory data to be garbage collected
     //
     data.look = null;
+    data.longKeyIndex = null;
+    data.nullKeyValue = null;
+    data.compositeKeyIndex = null;
     data.list = null;
     data.hashIndex = null;
     data.longIndex = null;
@@ -22,7 +22,10 @@ import java.util.Map;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
+import org.pentaho.di.core.hash.CompositeKeyHashIndex;
 import org.pentaho.di.core.hash.LongHashIndex;
+import org.pentaho.di.core.hash.LongObjectHashIndex;
+import org.pentaho.di.core.row.RowKeyComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -33,9 +36,26 @@ import org.pentaho.di.trans.step.errorhandling.StreamInterface;
  * @since 24-jan-2005
  */
 public class StreamLookupData extends BaseStepData implements StepDataInterface {
-  /** used to store values in used to look up things */
+  /**
+   * used to store values in used to look up things
+   *
+   * @deprecated the lookup values are now kept in {@link #longKeyIndex} or {@link #compositeKeyIndex}
+   */
+  @Deprecated
   public Map<RowMetaAndData, Object[]> look;
 
+  /** The lookup values by single integer or date key, kept as a primitive long */
+  public LongObjectHashIndex<Object[]> longKeyIndex;
+
+  /** The lookup values for a null single integer or date key */
+  public Object[] nullKeyValue;
+
+  /** The lookup values by any other key */
+  public CompositeKeyHashIndex<Object[]> compositeKeyIndex;
+
+  /** The key values of the current input row, reused for every lookup */
+  public Object[] lookupKey;
+
   public List<KeyValue> list;
 
   /** nrs of keys-values in row. */
@@ -62,6 +82,9 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
 
   public Comparator<KeyValue> comparator;
 
+  /** Compares and hashes the keys of the lookup rows, null to go through the key metadata */
+  public RowKeyComparator keyComparator;
+
   public ByteArrayHashIndex hashIndex;
   public LongHashIndex longIndex;
 
@@ -93,6 +116,9 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
     comparator = new Comparator<KeyValue>() {
       public int compare( KeyValue k1, KeyValue k2 ) {
         try {
+          if ( keyComparator != null ) {
+            return keyComparator.compare( k1.getKey(), k2.getKey() );
+          }
           return cacheKeyMeta.compare( k1.getKey(), k2.getKey() );
         } catch ( KettleValueException e ) {
           throw new RuntimeException( "Stream Lookup comparator error", e );
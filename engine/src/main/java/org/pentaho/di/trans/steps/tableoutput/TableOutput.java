@@ -19,10 +19,13 @@ import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.SQLStatement;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseInterface;
+import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseBatchException;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.ColumnVector;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -33,14 +36,20 @@ import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.*;
+import org.pentaho.di.trans.steps.tableoutput.TableOutputData.PipelineSlot;
 
+import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Writes rows to a database table.
@@ -53,6 +62,12 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
   public static final String DETAILS = "details";
   public static final String TABLE_OUTPUT_STEP = "Table Output Step";
   public static final String CONNECTION = "connection";
+
+  /** Step metrics: the number of JDBC batches executed, their rows, approximate bytes and total time */
+  public static final String METRIC_BATCHES = "batches";
+  public static final String METRIC_BATCH_ROWS = "batchRows";
+  public static final String METRIC_BATCH_BYTES = "batchBytes";
+  public static final String METRIC_BATCH_MILLIS = "batchMillis";
   private static Class<?> PKG = TableOutputMeta.class; // for i18n purposes, needed by Translator2!!
 
   private TableOutputMeta meta;
@@ -67,6 +82,10 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     meta = (TableOutputMeta) smi;
     data = (TableOutputData) sdi;
 
+    if ( isRowBatchEnabled() ) {
+      return processRowBatch();
+    }
+
     Object[] r = getRow(); // this also waits for a previous step to be finished.
     if ( r == null ) { // no more input to be expected...
       // truncate the table if there are no rows at all coming into this step
@@ -78,54 +97,132 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
 
     if ( first ) {
       first = false;
-      if ( meta.truncateTable() ) {
-        truncateTable();
-      }
-      data.outputRowMeta = getInputRowMeta().clone();
-      meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
-        metaStore );
+      initOutput();
+    }
 
-      if ( !meta.specifyFields() ) {
-        // Just take the input row
-        data.insertRowMeta = getInputRowMeta().clone();
+    try {
+      if ( data.pipelined ) {
+        addToPipeline( getInsertRowData( r ), r );
       } else {
+        Object[] outputRowData = writeToTable( getInputRowMeta(), r );
+        if ( outputRowData != null ) {
+          putRow( data.outputRowMeta, outputRowData ); // in case we want it go further...
+          incrementLinesOutput();
+        }
+      }
 
-        data.insertRowMeta = new RowMeta();
+      if ( checkFeedback( getLinesRead() ) ) {
+        if ( log.isBasic() ) {
+          logBasic( "linenr " + getLinesRead() );
+        }
+      }
+    } catch ( KettleException e ) {
+      logError( "Because of an error, this step can't continue: ", e );
+      setErrors( 1 );
+      stopAll();
+      setOutputDone(); // signal end to receiver(s)
+      return false;
+    }
 
-        //
-        // Cache the position of the compare fields in Row row
-        //
-        data.valuenrs = new int[meta.getFieldDatabase().length];
-        for ( int i = 0; i < meta.getFieldDatabase().length; i++ ) {
-          data.valuenrs[i] = getInputRowMeta().indexOfValue( meta.getFieldStream()[i] );
-          if ( data.valuenrs[i] < 0 ) {
-            throw new KettleStepException( BaseMessages.getString(
-              PKG, "TableOutput.Exception.FieldRequired", meta.getFieldStream()[i] ) );
-          }
+    return true;
+  }
+
+  /**
+   * Truncates the table if needed and determines the output and insert row metadata.
+   */
+  private void initOutput() throws KettleException {
+    if ( meta.truncateTable() ) {
+      truncateTable();
+    }
+    data.outputRowMeta = getInputRowMeta().clone();
+    meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
+      metaStore );
+
+    if ( !meta.specifyFields() ) {
+      // Just take the input row
+      data.insertRowMeta = getInputRowMeta().clone();
+    } else {
+
+      data.insertRowMeta = new RowMeta();
+
+      //
+      // Cache the position of the compare fields in Row row
+      //
+      data.valuenrs = new int[meta.getFieldDatabase().length];
+      for ( int i = 0; i < meta.getFieldDatabase().length; i++ ) {
+        data.valuenrs[i] = getInputRowMeta().indexOfValue( meta.getFieldStream()[i] );
+        if ( data.valuenrs[i] < 0 ) {
+          throw new KettleStepException( BaseMessages.getString(
+            PKG, "TableOutput.Exception.FieldRequired", meta.getFieldStream()[i] ) );
         }
+      }
 
-        for ( int i = 0; i < meta.getFieldDatabase().length; i++ ) {
-          ValueMetaInterface insValue = getInputRowMeta().searchValueMeta( meta.getFieldStream()[i] );
-          if ( insValue != null ) {
-            ValueMetaInterface insertValue = insValue.clone();
-            insertValue.setName( meta.getFieldDatabase()[i] );
-            data.insertRowMeta.addValueMeta( insertValue );
-          } else {
-            throw new KettleStepException( BaseMessages.getString(
-              PKG, "TableOutput.Exception.FailedToFindField", meta.getFieldStream()[i] ) );
-          }
+      for ( int i = 0; i < meta.getFieldDatabase().length; i++ ) {
+        ValueMetaInterface insValue = getInputRowMeta().searchValueMeta( meta.getFieldStream()[i] );
+        if ( insValue != null ) {
+          ValueMetaInterface insertValue = insValue.clone();
+          insertValue.setName( meta.getFieldDatabase()[i] );
+          data.insertRowMeta.addValueMeta( insertValue );
+        } else {
+          throw new KettleStepException( BaseMessages.getString(
+            PKG, "TableOutput.Exception.FailedToFindField", meta.getFieldStream()[i] ) );
         }
       }
     }
 
+    data.pipelined = meta.isPipelinedCommit() && isPlainBatchInsert();
+    if ( data.pipelined ) {
+      startPipeline();
+    }
+  }
+
+  /**
+   * @return true if the rows are added to a JDBC batch for a single table, without any row by row error handling
+   */
+  private boolean isPlainBatchInsert() throws KettleException {
+    return data.batchMode && data.db.getUseBatchInsert( data.batchMode ) && !meta.isTableNameInField()
+      && !meta.isPartitioningEnabled() && !meta.ignoreErrors() && !getStepMeta().isDoingErrorHandling();
+  }
+
+  private boolean processRowBatch() throws KettleException {
+    RowBatch batch = getRowBatch(); // this also waits for a previous step to be finished.
+    if ( batch == null ) { // no more input to be expected...
+      // truncate the table if there are no rows at all coming into this step
+      if ( first && meta.truncateTable() ) {
+        truncateTable();
+      }
+      return false;
+    }
+
+    if ( first ) {
+      first = false;
+      initOutput();
+
+      // Binding straight from the columns is only done for plain JDBC batch inserts into a single table.
+      // Everything else needs the row by row logic of writeToTable()
+      //
+      data.rowBatchInsert = !data.pipelined && isPlainBatchInsert();
+    }
+
     try {
-      Object[] outputRowData = writeToTable( getInputRowMeta(), r );
-      if ( outputRowData != null ) {
-        putRow( data.outputRowMeta, outputRowData ); // in case we want it go further...
-        incrementLinesOutput();
+      if ( data.pipelined ) {
+        for ( int i = 0; i < batch.size(); i++ ) {
+          Object[] row = batch.getRow( i );
+          addToPipeline( getInsertRowData( row ), row );
+        }
+      } else if ( data.rowBatchInsert ) {
+        insertRowBatch( batch );
+      } else {
+        for ( int i = 0; i < batch.size(); i++ ) {
+          Object[] outputRowData = writeToTable( batch.getRowMeta(), batch.getRow( i ) );
+          if ( outputRowData != null ) {
+            putRow( data.outputRowMeta, outputRowData ); // in case we want it go further...
+            incrementLinesOutput();
+          }
+        }
       }
 
-      if ( checkFeedback( getLinesRead() ) ) {
+      if ( checkFeedback( getLinesRead(), batch.size() ) ) {
         if ( log.isBasic() ) {
           logBasic( "linenr " + getLinesRead() );
         }
@@ -141,6 +238,108 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Adds a whole batch of rows to the JDBC batch of the insert statement. The values are bound straight from the column
+   * vectors through a single reused array. Just like in writeToTable(), rows are only passed on once they are committed.
+   */
+  private void insertRowBatch( RowBatch batch ) throws KettleException {
+    String tableName = data.tableName;
+    if ( Utils.isEmpty( tableName ) ) {
+      throw new KettleStepException( "The tablename is not defined (empty)" );
+    }
+    PreparedStatement insertStatement = getInsertStatement( tableName );
+
+    int nrValues = data.insertRowMeta.size();
+    ColumnVector[] columns = new ColumnVector[nrValues];
+    for ( int c = 0; c < nrValues; c++ ) {
+      columns[c] = batch.getColumn( meta.specifyFields() ? data.valuenrs[c] : c );
+    }
+    if ( data.insertRowData == null || data.insertRowData.length != nrValues ) {
+      data.insertRowData = new Object[nrValues];
+    }
+    Object[] insertRowData = data.insertRowData;
+
+    Integer counter = data.commitCounterMap.get( tableName );
+    int commitCounter = counter == null ? 0 : counter.intValue();
+    try {
+      for ( int i = 0; i < batch.size(); i++ ) {
+        for ( int c = 0; c < nrValues; c++ ) {
+          insertRowData[c] = columns[c].getObject( i );
+        }
+        data.db.setValues( data.insertRowMeta, insertRowData, insertStatement );
+        data.db.insertRow( insertStatement, data.batchMode, false ); // false: no commit, it is handled below
+        if ( isRowLevel() ) {
+          logRowlevel( "Written row: " + data.insertRowMeta.getString( insertRowData ) );
+        }
+        data.batchBuffer.add( batch.getRow( i ) );
+        data.batchBytes += getValuesSize( insertRowData );
+        commitCounter++;
+
+        if ( ( commitCounter % data.commitSize ) == 0 ) {
+          long start = System.nanoTime();
+          try {
+            insertStatement.executeBatch();
+            data.db.commit();
+            insertStatement.clearBatch();
+          } catch ( SQLException ex ) {
+            throw Database.createKettleDatabaseBatchException( "Error updating batch", ex );
+          } catch ( Exception ex ) {
+            throw new KettleDatabaseException( "Unexpected error inserting row", ex );
+          }
+          data.addBatchMetrics( commitCounter, data.batchBytes, System.nanoTime() - start );
+          data.batchBytes = 0;
+          commitCounter = 0;
+
+          // The rows are all safe now
+          for ( Object[] row : data.batchBuffer ) {
+            putRow( data.outputRowMeta, row );
+            incrementLinesOutput();
+          }
+          data.batchBuffer.clear();
+        }
+      }
+    } catch ( KettleDatabaseBatchException be ) {
+      data.db.clearBatch( insertStatement );
+      data.db.rollback();
+      throw new KettleException( getBatchErrorMessage( tableName, be ), be );
+    } catch ( KettleDatabaseException dbe ) {
+      setErrors( getErrors() + 1 );
+      data.db.rollback();
+      throw new KettleException( "Error inserting row into table ["
+        + tableName + "] with values: " + data.insertRowMeta.getString( insertRowData ), dbe );
+    } finally {
+      data.commitCounterMap.put( tableName, Integer.valueOf( commitCounter ) );
+    }
+  }
+
+  private PreparedStatement getInsertStatement( String tableName ) throws KettleException {
+    PreparedStatement insertStatement = data.preparedStatements.get( tableName );
+    if ( insertStatement == null ) {
+      String sql =
+        data.db
+          .getInsertStatement( environmentSubstitute( meta.getSchemaName() ), tableName, data.insertRowMeta );
+      if ( log.isDetailed() ) {
+        logDetailed( "Prepared statement : " + sql );
+      }
+      insertStatement = data.db.prepareSQL( sql, meta.isReturningGeneratedKeys() );
+      data.preparedStatements.put( tableName, insertStatement );
+    }
+    return insertStatement;
+  }
+
+  private String getBatchErrorMessage( String tableName, KettleDatabaseBatchException be ) {
+    StringBuilder msg = new StringBuilder( "Error batch inserting rows into table [" + tableName + "]." );
+    msg.append( Const.CR );
+    msg.append( "Errors encountered (first 10):" ).append( Const.CR );
+    for ( int x = 0; x < be.getExceptionsList().size() && x < 10; x++ ) {
+      Exception exception = be.getExceptionsList().get( x );
+      if ( exception.getMessage() != null ) {
+        msg.append( exception.getMessage() ).append( Const.CR );
+      }
+    }
+    return msg.toString();
+  }
+
   protected Object[] writeToTable( RowMetaInterface rowMeta, Object[] r ) throws KettleException {
 
     if ( r == null ) { // Stop: last line or error encountered
@@ -236,17 +435,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       throw new KettleStepException( "The tablename is not defined (empty)" );
     }
 
-    insertStatement = data.preparedStatements.get( tableName );
-    if ( insertStatement == null ) {
-      String sql =
-        data.db
-          .getInsertStatement( environmentSubstitute( meta.getSchemaName() ), tableName, data.insertRowMeta );
-      if ( log.isDetailed() ) {
-        logDetailed( "Prepared statement : " + sql );
-      }
-      insertStatement = data.db.prepareSQL( sql, meta.isReturningGeneratedKeys() );
-      data.preparedStatements.put( tableName, insertStatement );
-    }
+    insertStatement = getInsertStatement( tableName );
 
     try {
       // For PG & GP, we add a savepoint before the row.
@@ -260,6 +449,9 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       if ( isRowLevel() ) {
         logRowlevel( "Written row: " + data.insertRowMeta.getString( insertRowData ) );
       }
+      if ( data.batchMode ) {
+        data.batchBytes += getValuesSize( insertRowData );
+      }
 
       // Get a commit counter per prepared statement to keep track of separate tables, etc.
       //
@@ -284,6 +476,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
 
       if ( ( data.commitSize > 0 ) && ( ( commitCounter % data.commitSize ) == 0 ) ) {
         if ( data.db.getUseBatchInsert( data.batchMode ) ) {
+          long start = System.nanoTime();
           try {
             insertStatement.executeBatch();
             data.db.commit();
@@ -293,6 +486,8 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
           } catch ( Exception ex ) {
             throw new KettleDatabaseException( "Unexpected error inserting row", ex );
           }
+          data.addBatchMetrics( commitCounter, data.batchBytes, System.nanoTime() - start );
+          data.batchBytes = 0;
         } else {
           // insertRow normal commit
           data.db.commit();
@@ -333,16 +528,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       } else {
         data.db.clearBatch( insertStatement );
         data.db.rollback();
-        StringBuilder msg = new StringBuilder( "Error batch inserting rows into table [" + tableName + "]." );
-        msg.append( Const.CR );
-        msg.append( "Errors encountered (first 10):" ).append( Const.CR );
-        for ( int x = 0; x < be.getExceptionsList().size() && x < 10; x++ ) {
-          Exception exception = be.getExceptionsList().get( x );
-          if ( exception.getMessage() != null ) {
-            msg.append( exception.getMessage() ).append( Const.CR );
-          }
-        }
-        throw new KettleException( msg.toString(), be );
+        throw new KettleException( getBatchErrorMessage( tableName, be ), be );
       }
     } catch ( KettleDatabaseException dbe ) {
       if ( getStepMeta().isDoingErrorHandling() ) {
@@ -424,6 +610,222 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     return outputRowData;
   }
 
+  /**
+   * @return the values to insert for the given input row, the array is reused for every row
+   */
+  private Object[] getInsertRowData( Object[] r ) {
+    if ( !meta.specifyFields() ) {
+      return r;
+    }
+    if ( data.insertRowData == null || data.insertRowData.length != data.valuenrs.length ) {
+      data.insertRowData = new Object[data.valuenrs.length];
+    }
+    for ( int idx = 0; idx < data.valuenrs.length; idx++ ) {
+      data.insertRowData[idx] = r[data.valuenrs[idx]];
+    }
+    return data.insertRowData;
+  }
+
+  /**
+   * Open a second connection and prepare the insert statement on both connections. While the batch of one connection
+   * is executed and committed in the background, the batch of the other connection is filled by the step. The batches
+   * are committed one at a time, in the order they were filled.
+   */
+  private void startPipeline() throws KettleException {
+    if ( Utils.isEmpty( data.tableName ) ) {
+      throw new KettleStepException( "The tablename is not defined (empty)" );
+    }
+    Database commitDb = getDatabase( meta.getDatabaseMeta() );
+    commitDb.shareVariablesWith( this );
+    commitDb.setCommitSize( data.commitSize );
+    commitDb.connect( getPartitionID() );
+    commitDb.setAutoCommit();
+
+    data.pipelineSlots = new PipelineSlot[] { new PipelineSlot( data.db ), new PipelineSlot( commitDb ) };
+    data.pipelineSlot = 0;
+
+    String sql =
+      data.db.getInsertStatement( environmentSubstitute( meta.getSchemaName() ), data.tableName, data.insertRowMeta );
+    if ( log.isDetailed() ) {
+      logDetailed( "Prepared statement : " + sql );
+    }
+    for ( PipelineSlot slot : data.pipelineSlots ) {
+      slot.insertStatement = slot.db.prepareSQL( sql );
+    }
+
+    final String threadName = getStepname() + "." + getCopy() + " commit";
+    data.pipelineExecutor = Executors.newSingleThreadExecutor( runnable -> {
+      Thread thread = new Thread( runnable, threadName );
+      thread.setDaemon( true );
+      return thread;
+    } );
+  }
+
+  /*
+   * this method is required in order to
+   * provide ability for unit tests to
+   * mock the second database connection of the pipelined commit
+   */
+  Database getDatabase( DatabaseMeta databaseMeta ) {
+    return new Database( this, databaseMeta );
+  }
+
+  /**
+   * Add a row to the batch that is being filled. Once the batch is full it's handed over to be committed in the
+   * background and the step continues with the other connection, as soon as its previous batch is committed.
+   */
+  private void addToPipeline( Object[] insertRowData, Object[] outputRowData ) throws KettleException {
+    PipelineSlot slot = data.pipelineSlots[data.pipelineSlot];
+    try {
+      slot.db.setValues( data.insertRowMeta, insertRowData, slot.insertStatement );
+      slot.db.insertRow( slot.insertStatement, true, false ); // false: no commit, it is done in the background
+    } catch ( KettleDatabaseException dbe ) {
+      setErrors( getErrors() + 1 );
+      throw new KettleException( "Error inserting row into table ["
+        + data.tableName + "] with values: " + data.insertRowMeta.getString( insertRowData ), dbe );
+    }
+    if ( isRowLevel() ) {
+      logRowlevel( "Written row: " + data.insertRowMeta.getString( insertRowData ) );
+    }
+    slot.rows.add( outputRowData );
+    slot.bytes += getValuesSize( insertRowData );
+
+    if ( slot.rows.size() >= data.commitSize ) {
+      commitInBackground( slot );
+      data.pipelineSlot = ( data.pipelineSlot + 1 ) % data.pipelineSlots.length;
+      waitForCommit( data.pipelineSlots[data.pipelineSlot] );
+    }
+  }
+
+  private void commitInBackground( final PipelineSlot slot ) {
+    final TableOutputData stepData = data;
+    final int nrRows = slot.rows.size();
+    final long bytes = slot.bytes;
+    slot.commit = data.pipelineExecutor.submit( () -> {
+      long start = System.nanoTime();
+      try {
+        slot.insertStatement.executeBatch();
+        slot.db.commit();
+        slot.insertStatement.clearBatch();
+      } catch ( SQLException ex ) {
+        throw Database.createKettleDatabaseBatchException( "Error updating batch", ex );
+      }
+      stepData.addBatchMetrics( nrRows, bytes, System.nanoTime() - start );
+      return null;
+    } );
+  }
+
+  /**
+   * Wait until the batch of a slot is committed and pass its rows on, they are all safe now.
+   */
+  private void waitForCommit( PipelineSlot slot ) throws KettleException {
+    Future<?> commit = slot.commit;
+    if ( commit == null ) {
+      return;
+    }
+    try {
+      commit.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( "Interrupted while waiting for a batch to be committed into table ["
+        + data.tableName + "]", e );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof KettleDatabaseBatchException ) {
+        KettleDatabaseBatchException be = (KettleDatabaseBatchException) e.getCause();
+        throw new KettleException( getBatchErrorMessage( data.tableName, be ), be );
+      }
+      throw new KettleException( "Unexpected error committing a batch into table [" + data.tableName + "]",
+        e.getCause() );
+    } finally {
+      slot.commit = null;
+    }
+
+    for ( Object[] row : slot.rows ) {
+      putRow( data.outputRowMeta, row );
+      incrementLinesOutput();
+    }
+    slot.rows.clear();
+    slot.bytes = 0;
+  }
+
+  /**
+   * Commit the last batch and wait for all batches to be committed, in the order they were filled.
+   */
+  private void finishPipeline() throws KettleException {
+    PipelineSlot current = data.pipelineSlots[data.pipelineSlot];
+    if ( !current.rows.isEmpty() ) {
+      commitInBackground( current );
+    }
+    for ( int i = 1; i <= data.pipelineSlots.length; i++ ) {
+      waitForCommit( data.pipelineSlots[( data.pipelineSlot + i ) % data.pipelineSlots.length] );
+    }
+  }
+
+  /**
+   * Wait for the background work to stop, roll back what isn't committed yet and close the second connection.
+   */
+  private void closePipeline( boolean rollback ) {
+    for ( PipelineSlot slot : data.pipelineSlots ) {
+      if ( slot.commit != null ) {
+        try {
+          slot.commit.get();
+        } catch ( Exception e ) {
+          // Already reported or not relevant anymore, we're rolling back
+        }
+        slot.commit = null;
+      }
+      try {
+        if ( rollback ) {
+          slot.db.clearBatch( slot.insertStatement );
+          slot.db.rollback();
+        }
+        slot.db.closePreparedStatement( slot.insertStatement );
+      } catch ( KettleDatabaseException e ) {
+        logError( "Unexpected error closing the pipelined connection.", e );
+      }
+      slot.rows.clear();
+    }
+    data.pipelineExecutor.shutdownNow();
+    data.pipelineSlots[1].db.close();
+    data.pipelineSlots = null;
+    data.pipelineExecutor = null;
+  }
+
+  /**
+   * @return the approximate number of bytes needed to send the values to the database
+   */
+  static long getValuesSize( Object[] values ) {
+    long size = 0;
+    for ( Object value : values ) {
+      if ( value == null ) {
+        size++;
+      } else if ( value instanceof String ) {
+        size += ( (String) value ).length();
+      } else if ( value instanceof byte[] ) {
+        size += ( (byte[]) value ).length;
+      } else if ( value instanceof BigDecimal ) {
+        size += ( (BigDecimal) value ).precision() / 2 + 4;
+      } else {
+        size += 8;
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public Map<String, Long> getStepMetrics() {
+    TableOutputData stepData = data;
+    if ( stepData == null || stepData.getNrBatches() == 0 ) {
+      return super.getStepMetrics();
+    }
+    Map<String, Long> metrics = new LinkedHashMap<String, Long>( super.getStepMetrics() );
+    metrics.put( METRIC_BATCHES, stepData.getNrBatches() );
+    metrics.put( METRIC_BATCH_ROWS, stepData.getNrBatchRows() );
+    metrics.put( METRIC_BATCH_BYTES, stepData.getNrBatchBytes() );
+    metrics.put( METRIC_BATCH_MILLIS, stepData.getBatchNanos() / 1000000L );
+    return metrics;
+  }
+
   public boolean isRowLevel() {
     return log.isRowLevel();
   }
@@ -554,6 +956,9 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
 
     if ( data.db != null ) {
       try {
+        if ( data.pipelineSlots != null && getErrors() == 0 ) {
+          finishPipeline();
+        }
         for ( String schemaTable : data.preparedStatements.keySet() ) {
           // Get a commit counter per prepared statement to keep track of separate tables, etc.
           //
@@ -597,6 +1002,9 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       } finally {
         setOutputDone();
 
+        if ( data.pipelineSlots != null ) {
+          closePipeline( getErrors() > 0 );
+        }
         if ( getErrors() > 0 ) {
           try {
             data.db.rollback();
@@ -21,6 +21,9 @@ import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
@@ -69,6 +72,51 @@ public class TableOutputData extends BaseDatabaseStepData implements StepDataInt
 
   public int commitSize;
 
+  /** Bind the values of row batches straight from the columns */
+  public boolean rowBatchInsert;
+
+  /** The insert values of the current row, reused for all the rows of a batch */
+  public Object[] insertRowData;
+
+  /** Execute and commit the batches in the background while the next batch is filled */
+  public boolean pipelined;
+
+  /** The connections used in pipelined mode: one is being filled while the other one is being committed */
+  public PipelineSlot[] pipelineSlots;
+
+  /** The index of the pipeline slot that is being filled */
+  public int pipelineSlot;
+
+  /** Executes and commits the batches of the pipeline slots, one at a time */
+  public ExecutorService pipelineExecutor;
+
+  /** The approximate size of the values added to the current batch */
+  public long batchBytes;
+
+  private final LongAdder nrBatches = new LongAdder();
+  private final LongAdder nrBatchRows = new LongAdder();
+  private final LongAdder nrBatchBytes = new LongAdder();
+  private final LongAdder batchNanos = new LongAdder();
+
+  /**
+   * A connection with its own insert statement and the batch of rows added to it.
+   */
+  public static class PipelineSlot {
+    public final Database db;
+    public PreparedStatement insertStatement;
+
+    /** The rows in the batch, passed on once the batch is committed */
+    public final List<Object[]> rows = new ArrayList<Object[]>();
+    public long bytes;
+
+    /** The background execution of the batch, null if the slot is free */
+    public Future<?> commit;
+
+    public PipelineSlot( Database db ) {
+      this.db = db;
+    }
+  }
+
   public TableOutputData() {
     super();
 
@@ -86,4 +134,37 @@ public class TableOutputData extends BaseDatabaseStepData implements StepDataInt
 
     releaseSavepoint = true;
   }
+
+  /**
+   * Record the execution of a batch. This can be called from the thread committing in the background.
+   *
+   * @param rows
+   *          the number of rows in the batch
+   * @param bytes
+   *          the approximate size of the values in the batch
+   * @param nanos
+   *          the time it took to execute and commit the batch
+   */
+  public void addBatchMetrics( long rows, long bytes, long nanos ) {
+    nrBatches.increment();
+    nrBatchRows.add( rows );
+    nrBatchBytes.add( bytes );
+    batchNanos.add( nanos );
+  }
+
+  public long getNrBatches() {
+    return nrBatches.sum();
+  }
+
+  public long getNrBatchRows() {
+    return nrBatchRows.sum();
+  }
+
+  public long getNrBatchBytes() {
+    return nrBatchBytes.sum();
+  }
+
+  public long getBatchNanos() {
+    return batchNanos.sum();
+  }
 }
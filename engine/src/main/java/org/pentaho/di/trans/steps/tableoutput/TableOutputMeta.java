@@ -37,6 +37,7 @@ import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.lineage.FieldnameLineage;
 import org.pentaho.di.repository.ObjectId;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.DatabaseImpact;
@@ -58,7 +59,8 @@ import java.util.List;
  * @since 2-jun-2003
  */
 @InjectionSupported( localizationPrefix = "TableOutputMeta.Injection.", groups = { "DATABASE_FIELDS" } )
-public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInterface, ProvidesModelerMeta {
+public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInterface, ProvidesModelerMeta,
+  FieldUsageInterface, RowBatchCapable {
   private static Class<?> PKG = TableOutputMeta.class; // for i18n purposes, needed by Translator2!!
 
   private DatabaseMeta databaseMeta;
@@ -99,6 +101,14 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
   }
   private boolean useBatchUpdate;
 
+  /**
+   * Execute and commit the batches on a second connection while the next batch is being filled
+   */
+  @Injection( name = "PIPELINED_COMMIT" )
+  public void metaSetPipelinedCommit( String value ) {
+    setPipelinedCommit( "Y".equalsIgnoreCase( value ) );
+  }
+  private boolean pipelinedCommit;
 
   @Injection( name = "PARTITION_OVER_TABLES" )
   public void metaSetPartitionOverTables( String value ) {
@@ -438,6 +448,20 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     return useBatchUpdate;
   }
 
+  /**
+   * @param pipelinedCommit true to execute and commit batches in the background on a second connection
+   */
+  public void setPipelinedCommit( boolean pipelinedCommit ) {
+    this.pipelinedCommit = pipelinedCommit;
+  }
+
+  /**
+   * @return true if batches are executed and committed in the background on a second connection
+   */
+  public boolean isPipelinedCommit() {
+    return pipelinedCommit;
+  }
+
   private void readData( Node stepnode, List<DatabaseMeta> databases ) throws KettleXMLException {
     try {
       String con = XMLHandler.getTagValue( stepnode, "connection" );
@@ -448,6 +472,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       truncateTable = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "truncate" ) );
       ignoreErrors = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "ignore_errors" ) );
       useBatchUpdate = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "use_batch" ) );
+      pipelinedCommit = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "pipelined_commit" ) );
 
       // If not present it will be false to be compatible with pre-v3.2
       specifyFields = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "specify_fields" ) );
@@ -506,6 +531,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     retval.append( "    " + XMLHandler.addTagValue( "truncate", truncateTable ) );
     retval.append( "    " + XMLHandler.addTagValue( "ignore_errors", ignoreErrors ) );
     retval.append( "    " + XMLHandler.addTagValue( "use_batch", useBatchUpdate ) );
+    retval.append( "    " + XMLHandler.addTagValue( "pipelined_commit", pipelinedCommit ) );
     retval.append( "    " + XMLHandler.addTagValue( "specify_fields", specifyFields ) );
 
     retval.append( "    " + XMLHandler.addTagValue( "partitioning_enabled", partitioningEnabled ) );
@@ -543,6 +569,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       truncateTable = rep.getStepAttributeBoolean( id_step, "truncate" );
       ignoreErrors = rep.getStepAttributeBoolean( id_step, "ignore_errors" );
       useBatchUpdate = rep.getStepAttributeBoolean( id_step, "use_batch" );
+      pipelinedCommit = rep.getStepAttributeBoolean( id_step, "pipelined_commit" );
       specifyFields = rep.getStepAttributeBoolean( id_step, "specify_fields" );
 
       partitioningEnabled = rep.getStepAttributeBoolean( id_step, "partitioning_enabled" );
@@ -582,6 +609,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       rep.saveStepAttribute( id_transformation, id_step, "truncate", truncateTable );
       rep.saveStepAttribute( id_transformation, id_step, "ignore_errors", ignoreErrors );
       rep.saveStepAttribute( id_transformation, id_step, "use_batch", useBatchUpdate );
+      rep.saveStepAttribute( id_transformation, id_step, "pipelined_commit", pipelinedCommit );
       rep.saveStepAttribute( id_transformation, id_step, "specify_fields", specifyFields );
 
       rep.saveStepAttribute( id_transformation, id_step, "partitioning_enabled", partitioningEnabled );
@@ -1029,4 +1057,37 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     return new TableOutputHelper();
   }
 
+  @Override
+  public int getFieldUsage( String fieldName, VariableSpace space ) {
+    if ( !specifyFields() || Const.indexOfString( fieldName, fieldStream ) >= 0 ) {
+      return USAGE_READ;
+    }
+    if ( isTableNameInField() && fieldName.equalsIgnoreCase( getTableNameField() ) ) {
+      return USAGE_READ;
+    }
+    if ( isPartitioningEnabled() && fieldName.equalsIgnoreCase( getPartitioningField() ) ) {
+      return USAGE_READ;
+    }
+    return USAGE_NONE;
+  }
+
+  @Override
+  public boolean isPassingInputFields() {
+    return true;
+  }
+
+  @Override
+  public List<FieldnameLineage> getFieldnameLineage() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public boolean isReadingRowBatches() {
+    return true;
+  }
+
+  @Override
+  public boolean isWritingRowBatches() {
+    return false;
+  }
 }
@@ -913,6 +913,8 @@ public class TextFileInput extends BaseStep implements StepInterface {
       // Create convert meta-data objects that will contain Date & Number formatters
       //
       data.convertRowMeta = data.outputRowMeta.cloneToType( ValueMetaInterface.TYPE_STRING );
+      applyFastValueConversion( data.outputRowMeta );
+      applyFastValueConversion( data.convertRowMeta );
 
       handleMissingFiles();
 
@@ -1412,7 +1414,8 @@ public class TextFileInput extends BaseStep implements StepInterface {
       CompressionProvider provider =
           CompressionProviderFactory.getInstance().getCompressionProviderByName( meta.getFileCompression() );
 
-      data.in = provider.createInputStream( KettleVFS.getInputStream( data.file ) );
+      data.in = CompressionProviderFactory.getInstance().createInputStream( provider,
+        KettleVFS.getInputStream( data.file ), data.decompressionThreads );
       data.dataErrorLineHandler.handleFile( data.file );
       data.in.nextEntry();
 
@@ -1564,6 +1567,8 @@ public class TextFileInput extends BaseStep implements StepInterface {
       // calculate the file type in advance CSV or Fixed?
       data.fileType = meta.getFileTypeNr();
 
+      data.decompressionThreads = Const.toInt( getVariable( Const.KETTLE_DECOMPRESSION_THREADS ), 0 );
+
       // Handle the possibility of a variable substitution
       data.separator = environmentSubstitute( meta.getSeparator() );
       data.enclosure = environmentSubstitute( meta.getEnclosure() );
@@ -126,6 +126,9 @@ public class TextFileInputData extends BaseStepData implements StepDataInterface
 
   public EncodingType encodingType;
 
+  /** The number of threads to decompress the files on, 0 to decompress on the step thread */
+  public int decompressionThreads;
+
   public Map<String, Boolean> rejectedFiles;
 
   public TextFileInputData() {
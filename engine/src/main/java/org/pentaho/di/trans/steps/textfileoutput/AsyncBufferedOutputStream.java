@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Future;
+
+/**
+ * A buffered output stream that writes its full buffers to the underlying stream on the thread of an
+ * {@link AsyncFileWriter}. It swaps the full buffer for a spare one from the writer, so the step thread can keep on
+ * filling the next buffer while the previous one is compressed and written.
+ * <p>
+ * The underlying streams must only be used by the writer thread until {@link #sync()} returns. Write errors are
+ * reported by the next call to write, flush or sync.
+ *
+ * @since 11.1
+ */
+public class AsyncBufferedOutputStream extends BufferedOutputStream {
+
+  private final AsyncFileWriter writer;
+  private Future<?> lastWrite;
+
+  public AsyncBufferedOutputStream( OutputStream out, AsyncFileWriter writer ) {
+    super( out, AsyncFileWriter.BUFFER_SIZE );
+    this.writer = writer;
+  }
+
+  @Override
+  public void write( int b ) throws IOException {
+    if ( count >= buf.length ) {
+      handOver();
+    }
+    buf[count++] = (byte) b;
+  }
+
+  @Override
+  public void write( byte[] b, int off, int len ) throws IOException {
+    while ( len > 0 ) {
+      if ( count >= buf.length ) {
+        handOver();
+      }
+      int n = Math.min( len, buf.length - count );
+      System.arraycopy( b, off, buf, count, n );
+      count += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  private void handOver() throws IOException {
+    writer.checkFailure();
+    if ( count == 0 ) {
+      return;
+    }
+    byte[] full = buf;
+    int length = count;
+    buf = writer.takeBuffer();
+    count = 0;
+    lastWrite = writer.write( ( buffer, size ) -> out.write( buffer, 0, size ), full, length );
+  }
+
+  /**
+   * Hand over the buffered data and wait until the writer thread wrote and flushed it.
+   */
+  @Override
+  public void flush() throws IOException {
+    handOver();
+    lastWrite = writer.submit( out::flush );
+    sync();
+  }
+
+  /**
+   * Wait for the writer thread to finish the writes that were handed over so far. Data that is still buffered is not
+   * written.
+   */
+  public void sync() throws IOException {
+    Future<?> write = lastWrite;
+    lastWrite = null;
+    writer.await( write );
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The writer thread of a Text file output step running in asynchronous mode.
+ * <p>
+ * The step thread formats rows into byte buffers and hands full buffers to this writer, which writes them to the
+ * compression and file streams on its own thread. Compression and disk I/O therefore no longer hold up the formatting
+ * of the next rows. All the files of the step share the single writer thread and a bounded pool of spare buffers: the
+ * step thread only waits when the writer is a full pool of buffers behind.
+ *
+ * @since 11.1
+ */
+public class AsyncFileWriter {
+
+  /**
+   * The size of the buffers handed to the writer thread. Every open file keeps one buffer of its own, so this is the
+   * size the step always used for its buffered file streams: many files can be open at once.
+   */
+  public static final int BUFFER_SIZE = 5000;
+
+  private final ExecutorService executor;
+  private final BlockingQueue<byte[]> freeBuffers;
+
+  private volatile IOException failure;
+
+  /**
+   * @param name
+   *          the name of the writer thread
+   * @param nrBuffers
+   *          the number of buffers to swap between the step thread and the writer thread, at least 2
+   */
+  public AsyncFileWriter( String name, int nrBuffers ) {
+    int spareBuffers = Math.max( 1, nrBuffers - 1 );
+    freeBuffers = new ArrayBlockingQueue<>( spareBuffers );
+    for ( int i = 0; i < spareBuffers; i++ ) {
+      freeBuffers.add( new byte[BUFFER_SIZE] );
+    }
+    executor = Executors.newSingleThreadExecutor( runnable -> {
+      Thread thread = new Thread( runnable, name );
+      thread.setDaemon( true );
+      return thread;
+    } );
+  }
+
+  /**
+   * Take a spare buffer, wait for the writer thread to release one if there is none.
+   */
+  byte[] takeBuffer() throws IOException {
+    try {
+      return freeBuffers.take();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while waiting for the file writer" );
+    }
+  }
+
+  /**
+   * Write a buffer on the writer thread. The buffer returns to the pool of spare buffers once it is written.
+   */
+  Future<?> write( OutputStreamWriteTask task, byte[] buffer, int length ) {
+    return executor.submit( () -> {
+      try {
+        if ( failure == null ) {
+          task.write( buffer, length );
+        }
+      } catch ( IOException e ) {
+        failure = e;
+      } finally {
+        freeBuffers.offer( buffer );
+      }
+    } );
+  }
+
+  /**
+   * Run an operation on the writer thread after all the writes that were handed over before it.
+   */
+  Future<?> submit( OutputStreamTask task ) {
+    return executor.submit( () -> {
+      try {
+        if ( failure == null ) {
+          task.run();
+        }
+      } catch ( IOException e ) {
+        failure = e;
+      }
+    } );
+  }
+
+  /**
+   * Wait for a write or operation to complete, then report any error the writer thread ran into.
+   */
+  void await( Future<?> future ) throws IOException {
+    if ( future != null ) {
+      try {
+        future.get();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException( "Interrupted while waiting for the file writer" );
+      } catch ( ExecutionException e ) {
+        throw new IOException( "Unexpected error in the file writer", e.getCause() );
+      }
+    }
+    checkFailure();
+  }
+
+  /**
+   * Throw the first error the writer thread ran into, if any.
+   *
+   * @throws IOException
+   *           the error writing one of the files
+   */
+  public void checkFailure() throws IOException {
+    IOException e = failure;
+    if ( e != null ) {
+      throw new IOException( "Error writing to file: " + e.getMessage(), e );
+    }
+  }
+
+  /**
+   * Stop the writer thread once it wrote all the buffers that were handed over.
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  interface OutputStreamWriteTask {
+    void write( byte[] buffer, int length ) throws IOException;
+  }
+
+  interface OutputStreamTask {
+    void run() throws IOException;
+  }
+}
@@ -0,0 +1,166 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.FastDateConverter;
+import org.pentaho.di.core.row.value.FastNumberConverter;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.util.Utils;
+
+/**
+ * Formats the values of one field of a Text file output step without the intermediate String and byte[] of
+ * {@link ValueMetaInterface#getBinaryString(Object)}.
+ * <p>
+ * Integers, numbers and dates are formatted straight into a reusable byte buffer with the fast converters of the value
+ * metadata, when fast value conversion is switched on (see KETTLE_FAST_VALUE_CONVERSION) and the value is written in
+ * an ASCII compatible encoding like UTF-8 or ISO-8859-1. Lazy converted strings are passed through as they are when
+ * they were read in the same encoding as they are written in. Everything else goes through the value metadata.
+ *
+ * @since 11.1
+ */
+public class FastFieldFormatter {
+
+  private static final byte[] ASCII = new byte[128];
+
+  static {
+    for ( int i = 0; i < ASCII.length; i++ ) {
+      ASCII[i] = (byte) i;
+    }
+  }
+
+  private final int type;
+  private final boolean passThrough;
+  private final FastNumberConverter numberConverter;
+  private final FastDateConverter dateConverter;
+
+  private FastFieldFormatter( int type, boolean passThrough, FastNumberConverter numberConverter,
+                              FastDateConverter dateConverter ) {
+    this.type = type;
+    this.passThrough = passThrough;
+    this.numberConverter = numberConverter;
+    this.dateConverter = dateConverter;
+  }
+
+  /**
+   * Create a formatter for the values of a field.
+   *
+   * @param valueMeta
+   *          the value metadata of the field, with the field options of the step applied
+   * @param encoding
+   *          the encoding of the file, empty for the default encoding
+   * @return the formatter or null if the values of this field always go through the value metadata
+   */
+  public static FastFieldFormatter create( ValueMetaInterface valueMeta, String encoding ) {
+    if ( valueMeta == null ) {
+      return null;
+    }
+    if ( valueMeta.isString() ) {
+      ValueMetaInterface storageMeta = valueMeta.getStorageMetadata();
+      Charset storageCharset = storageMeta == null ? null : getCharset( storageMeta.getStringEncoding() );
+      boolean passThrough = valueMeta.isStorageBinaryString()
+        && valueMeta.getTrimType() == ValueMetaInterface.TRIM_TYPE_NONE
+        && valueMeta.getLength() < 0
+        && storageCharset != null
+        && storageCharset.equals( getCharset( encoding ) );
+      return passThrough ? new FastFieldFormatter( valueMeta.getType(), true, null, null ) : null;
+    }
+
+    if ( valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL
+      || !( valueMeta instanceof ValueMetaBase ) || !( (ValueMetaBase) valueMeta ).isFastConversion()
+      || !isAsciiCompatible( getCharset( valueMeta.getStringEncoding() ) ) ) {
+      return null;
+    }
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return new FastFieldFormatter( valueMeta.getType(), false,
+          new FastNumberConverter( valueMeta.getDecimalFormat( false ) ), null );
+      case ValueMetaInterface.TYPE_NUMBER:
+        // The value metadata formats with all fraction digits when converting from a storage type with another mask
+        ValueMetaInterface storageMeta = valueMeta.getStorageMetadata();
+        if ( valueMeta.getConversionMask() != null && storageMeta != null
+          && !valueMeta.getConversionMask().equals( storageMeta.getConversionMask() ) ) {
+          return null;
+        }
+        return new FastFieldFormatter( valueMeta.getType(), false,
+          new FastNumberConverter( valueMeta.getDecimalFormat( false ) ), null );
+      case ValueMetaInterface.TYPE_DATE:
+        FastDateConverter dateConverter = new FastDateConverter( valueMeta.getDateFormat() );
+        return dateConverter.isSupported()
+          ? new FastFieldFormatter( valueMeta.getType(), false, null, dateConverter ) : null;
+      default:
+        return null;
+    }
+  }
+
+  private static Charset getCharset( String encoding ) {
+    try {
+      return Utils.isEmpty( encoding ) ? Charset.defaultCharset() : Charset.forName( encoding );
+    } catch ( Exception e ) {
+      // Unknown encodings are reported by the value metadata
+      return null;
+    }
+  }
+
+  private static boolean isAsciiCompatible( Charset charset ) {
+    if ( charset == null || !charset.canEncode() ) {
+      return false;
+    }
+    return Arrays.equals( ASCII, new String( ASCII, StandardCharsets.US_ASCII ).getBytes( charset ) );
+  }
+
+  /**
+   * @return true if lazy converted strings of this field can be written as they are
+   */
+  public boolean isPassThrough() {
+    return passThrough;
+  }
+
+  /**
+   * @return the size of the buffer needed to format the values of this field
+   */
+  public int getMaxLength() {
+    return dateConverter != null ? dateConverter.getLength() : FastNumberConverter.MAX_FORMATTED_LENGTH;
+  }
+
+  /**
+   * Format a value into the given buffer, starting at the beginning.
+   *
+   * @param value
+   *          the value in normal storage
+   * @param buffer
+   *          the buffer to format into, at least {@link #getMaxLength()} bytes
+   * @return the number of bytes written or -1 if the value has to be formatted by the value metadata
+   */
+  public int format( Object value, byte[] buffer ) {
+    if ( value == null || passThrough ) {
+      return -1;
+    }
+    switch ( type ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return numberConverter.formatInteger( (Long) value, buffer, 0 );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return numberConverter.formatNumber( (Double) value, buffer, 0 );
+      case ValueMetaInterface.TYPE_DATE:
+        return dateConverter.format( (Date) value, buffer, 0 );
+      default:
+        return -1;
+    }
+  }
+}
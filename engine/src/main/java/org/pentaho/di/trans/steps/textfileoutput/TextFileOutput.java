@@ -18,11 +18,16 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
 import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.provider.local.LocalFile;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.WriterOutputStream;
@@ -174,8 +179,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
             logDetailed( "Opening output stream using provider: " + compressionProvider.getName() );
           }
 
-          OutputStream fileOutputStream =
-            getOutputStream( filename, getTransMeta(), !isZipFile && appendToExistingFile );
+          OutputStream fileOutputStream = openOutputStream( filename, !isZipFile && appendToExistingFile );
           CompressionOutputStream compressionOutputStream = compressionProvider.createOutputStream( fileOutputStream );
 
           // The compression output stream may also archive entries. For this we create the filename
@@ -191,7 +195,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
             }
           }
 
-          BufferedOutputStream bufferedOutputStream = new BufferedOutputStream( compressionOutputStream, 5000 );
+          BufferedOutputStream bufferedOutputStream = createBufferedOutputStream( compressionOutputStream );
 
           fileStreams = data.new FileStream( fileOutputStream, compressionOutputStream, bufferedOutputStream );
 
@@ -207,11 +211,11 @@ public class TextFileOutput extends BaseStep implements StepInterface {
             data.getFileStreamsCollection().closeOldestOpenFile( false );
           }
 
-          OutputStream fileOutputStream = getOutputStream( filename, getTransMeta(), true );
+          OutputStream fileOutputStream = openOutputStream( filename, true );
           CompressionProvider compressionProvider = getCompressionProvider();
           CompressionOutputStream compressionOutputStream = compressionProvider.createOutputStream( fileOutputStream );
           compressionOutputStream.addEntry( filename, environmentSubstitute( meta.getExtension() ) );
-          BufferedOutputStream bufferedOutputStream = new BufferedOutputStream( compressionOutputStream, 5000 );
+          BufferedOutputStream bufferedOutputStream = createBufferedOutputStream( compressionOutputStream );
 
           fileStreams.setFileOutputStream( fileOutputStream );
           fileStreams.setCompressedOutputStream( compressionOutputStream );
@@ -237,6 +241,24 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     }
   }
 
+  private OutputStream openOutputStream( String filename, boolean append ) throws KettleException, IOException {
+    if ( data.directWrite ) {
+      FileObject fileObject = getFileObject( filename, getTransMeta() );
+      if ( fileObject instanceof LocalFile ) {
+        return Channels.newOutputStream( FileChannel.open( fileObject.getPath(), StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING ) );
+      }
+    }
+    return getOutputStream( filename, getTransMeta(), append );
+  }
+
+  private BufferedOutputStream createBufferedOutputStream( OutputStream out ) {
+    if ( data.asyncWriter != null ) {
+      return new AsyncBufferedOutputStream( out, data.asyncWriter );
+    }
+    return new BufferedOutputStream( out, 5000 );
+  }
+
   public String getOutputFileName( Object[] row ) throws KettleException {
     String filename = null;
     if ( row == null ) {
@@ -422,6 +444,9 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
   public void flushOpenFiles( boolean closeAfterFlush ) throws IOException {
     data.getFileStreamsCollection().flushOpenFiles( true );
+    if ( data.asyncWriter != null ) {
+      data.asyncWriter.checkFailure();
+    }
   }
 
   public synchronized boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
@@ -448,7 +473,10 @@ public class TextFileOutput extends BaseStep implements StepInterface {
           meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
             metaStore );
         }
+        // Before the field options are applied to copies of the value metadata
+        applyFastValueConversion( data.outputRowMeta );
         meta.calcMetaWithFieldOptions( data );
+        initFieldFormatters();
       }
     }
 
@@ -479,7 +507,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
           // no special null value default was specified since no fields are specified at all
           // As such, we pass null
           //
-          writeField( v, valueData, null );
+          writeField( v, valueData, null, getFieldFormatter( i ) );
         }
       } else {
         /*
@@ -492,7 +520,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
           ValueMetaInterface v = meta.getMetaWithFieldOptions()[ i ];
           Object valueData = r[ data.fieldnrs[ i ] ];
-          writeField( v, valueData, data.binaryNullValue[ i ] );
+          writeField( v, valueData, data.binaryNullValue[ i ], getFieldFormatter( i ) );
         }
       }
 
@@ -505,10 +533,29 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     }
   }
 
-  private byte[] formatField( ValueMetaInterface v, Object valueData ) throws KettleValueException {
+  private FastFieldFormatter getFieldFormatter( int index ) {
+    return data.fieldFormatters != null && index < data.fieldFormatters.length ? data.fieldFormatters[index] : null;
+  }
+
+  private void initFieldFormatters() {
+    ValueMetaInterface[] valueMetas = Utils.isEmpty( meta.getOutputFields() )
+      ? data.outputRowMeta.getValueMetaList().toArray( new ValueMetaInterface[0] ) : meta.getMetaWithFieldOptions();
+    data.fieldFormatters = new FastFieldFormatter[valueMetas.length];
+    int bufferSize = 0;
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      data.fieldFormatters[i] = FastFieldFormatter.create( valueMetas[i], meta.getEncoding() );
+      if ( data.fieldFormatters[i] != null ) {
+        bufferSize = Math.max( bufferSize, data.fieldFormatters[i].getMaxLength() );
+      }
+    }
+    data.fieldBuffer = new byte[bufferSize];
+  }
+
+  private byte[] formatField( ValueMetaInterface v, Object valueData, FastFieldFormatter formatter )
+    throws KettleValueException {
     if ( v.isString() ) {
       if ( v.isStorageBinaryString() && v.getTrimType() == ValueMetaInterface.TRIM_TYPE_NONE && v.getLength() < 0
-          && Utils.isEmpty( v.getStringEncoding() ) ) {
+          && ( Utils.isEmpty( v.getStringEncoding() ) || ( formatter != null && formatter.isPassThrough() ) ) ) {
         return (byte[]) valueData;
       } else {
         String svalue = ( valueData instanceof String ) ? (String) valueData : v.getString( valueData );
@@ -600,7 +647,8 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     }
   }
 
-  private void writeField( ValueMetaInterface v, Object valueData, byte[] nullString ) throws KettleStepException {
+  private void writeField( ValueMetaInterface v, Object valueData, byte[] nullString, FastFieldFormatter formatter )
+    throws KettleStepException {
     try {
       byte[] str;
 
@@ -617,7 +665,13 @@ public class TextFileOutput extends BaseStep implements StepInterface {
             str = getBinaryString( ( valueData == null ) ? "" : valueData.toString() );
           }
         } else {
-          str = formatField( v, valueData );
+          int length = formatter == null ? -1 : formatter.format( valueData, data.fieldBuffer );
+          if ( length >= 0 && !isWriteEnclosureForWriteField( data.fieldBuffer, length ) ) {
+            // Formatted straight into the field buffer and nothing to enclose
+            data.writer.write( data.fieldBuffer, 0, length );
+            return;
+          }
+          str = length >= 0 ? Arrays.copyOf( data.fieldBuffer, length ) : formatField( v, valueData, formatter );
         }
       }
 
@@ -813,6 +867,18 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
     if ( super.init( smi, sdi ) ) {
       data.splitnr = 0;
+
+      // Format rows on the step thread, compress and write them on a separate writer thread
+      int asyncBuffers = Const.toInt( getVariable( Const.KETTLE_FILE_OUTPUT_ASYNC_BUFFERS ), 0 );
+      if ( asyncBuffers > 0 && !meta.isServletOutput() ) {
+        asyncBuffers = Math.max( 2, asyncBuffers );
+        data.asyncWriter = new AsyncFileWriter( getStepname() + " writer", asyncBuffers );
+        data.directWrite = "Y".equalsIgnoreCase( getVariable( Const.KETTLE_FILE_OUTPUT_DIRECT_WRITE ) );
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "TextFileOutput.Log.AsyncOutput", String.valueOf( asyncBuffers ) ) );
+        }
+      }
+
       // In case user want to create file at first row
       // In that case, DO NOT create file at Init
       if ( !meta.isDoNotOpenNewFileInit() && !meta.isFileNameInField() ) {
@@ -920,6 +986,10 @@ public class TextFileOutput extends BaseStep implements StepInterface {
       logError( "Unexpected error closing file", e );
       setErrors( 1 );
     }
+    if ( data.asyncWriter != null ) {
+      data.asyncWriter.shutdown();
+      data.asyncWriter = null;
+    }
     data.writer = null;
     data.out = null;
     data.fos = null;
@@ -928,6 +998,10 @@ public class TextFileOutput extends BaseStep implements StepInterface {
   }
 
   public boolean containsSeparatorOrEnclosure( byte[] source, byte[] separator, byte[] enclosure ) {
+    return containsSeparatorOrEnclosure( source, source.length, separator, enclosure );
+  }
+
+  boolean containsSeparatorOrEnclosure( byte[] source, int length, byte[] separator, byte[] enclosure ) {
     boolean result = false;
 
     boolean enclosureExists = enclosure != null && enclosure.length > 0;
@@ -937,11 +1011,11 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     if ( separatorExists || enclosureExists ) {
 
       // Search for the first occurrence of the separator or enclosure
-      for ( int index = 0; !result && index < source.length; index++ ) {
+      for ( int index = 0; !result && index < length; index++ ) {
         if ( enclosureExists && source[index] == enclosure[0] ) {
 
           // Potential match found, make sure there are enough bytes to support a full match
-          if ( index + enclosure.length <= source.length ) {
+          if ( index + enclosure.length <= length ) {
             // First byte of enclosure found
             result = true; // Assume match
             for ( int i = 1; i < enclosure.length; i++ ) {
@@ -956,7 +1030,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
         } else if ( separatorExists && source[index] == separator[0] ) {
 
           // Potential match found, make sure there are enough bytes to support a full match
-          if ( index + separator.length <= source.length ) {
+          if ( index + separator.length <= length ) {
             // First byte of separator found
             result = true; // Assume match
             for ( int i = 1; i < separator.length; i++ ) {
@@ -1041,6 +1115,15 @@ public class TextFileOutput extends BaseStep implements StepInterface {
             || isEnclosureFixDisabledAndContainsSeparatorOrEnclosure( str );
   }
 
+  /**
+   * @return writeEnclosure based on the first length bytes of valueData
+   */
+  boolean isWriteEnclosureForWriteField( byte[] str, int length ) {
+    return ( meta.isEnclosureForced() && !meta.isPadded() )
+            || ( !meta.isEnclosureFixDisabled()
+              && containsSeparatorOrEnclosure( str, length, data.binarySeparator, data.binaryEnclosure ) );
+  }
+
   /**
    * @return writeEnclosure based on TextFileOutputMeta, TextFileOutputData and ValueMetaInterface values
    */
@@ -115,12 +115,24 @@ public class TextFileOutputData extends BaseStepData implements StepDataInterfac
     }
 
     public void close() throws IOException {
+      IOException writeError = null;
+      if ( bufferedOutputStream instanceof AsyncBufferedOutputStream ) {
+        // The writer thread must be done with the streams before they are closed
+        try {
+          ( (AsyncBufferedOutputStream) bufferedOutputStream ).sync();
+        } catch ( IOException e ) {
+          writeError = e;
+        }
+      }
       setBufferedOutputStream( null );
       getCompressedOutputStream().close();
       setCompressedOutputStream( null );
       getFileOutputStream().close();
       setFileOutputStream( null );
       isDirty = false;
+      if ( writeError != null ) {
+        throw writeError;
+      }
     }
 
     public boolean isOpen() {
@@ -424,6 +436,17 @@ public class TextFileOutputData extends BaseStepData implements StepDataInterfac
 
   public int splitEvery;
 
+  /** Formats the values of the written fields straight into fieldBuffer, null for fields that can't be */
+  public FastFieldFormatter[] fieldFormatters;
+
+  public byte[] fieldBuffer;
+
+  /** The writer thread in asynchronous mode, null when the files are written on the step thread */
+  public AsyncFileWriter asyncWriter;
+
+  /** Write local files through a file channel instead of through VFS */
+  public boolean directWrite;
+
   public TextFileOutputData() {
     super();
 
@@ -32,12 +32,14 @@ import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.lineage.FieldnameLineage;
 import org.pentaho.di.repository.ObjectId;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.resource.ResourceDefinition;
 import org.pentaho.di.resource.ResourceNamingInterface;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.FieldUsageInterface;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepHelperInterface;
 import org.pentaho.di.trans.step.StepInjectionMetaEntry;
@@ -48,6 +50,7 @@ import org.pentaho.di.trans.steps.file.BaseFileOutputMeta;
 import org.pentaho.metastore.api.IMetaStore;
 import org.w3c.dom.Node;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -57,7 +60,7 @@ import java.util.Map;
  *
  */
 @InjectionSupported( localizationPrefix = "TextFileOutput.Injection.", groups = { "OUTPUT_FIELDS" } )
-public class TextFileOutputMeta extends BaseFileOutputMeta implements StepMetaInterface {
+public class TextFileOutputMeta extends BaseFileOutputMeta implements StepMetaInterface, FieldUsageInterface {
   private static Class<?> PKG = TextFileOutputMeta.class; // for i18n purposes, needed by Translator2!!
 
   // Strings used in XML
@@ -1191,6 +1194,35 @@ public class TextFileOutputMeta extends BaseFileOutputMeta implements StepMetaIn
     }
   }
 
+  /**
+   * The written fields are only copied to the file, a lazy converted binary string is formatted just as well.
+   */
+  @Override
+  public int getFieldUsage( String fieldName, VariableSpace space ) {
+    if ( isFileNameInField() && fieldName.equalsIgnoreCase( getFileNameField() ) ) {
+      return USAGE_READ;
+    }
+    if ( outputFields == null || outputFields.length == 0 ) {
+      return USAGE_COPY;
+    }
+    for ( TextFileField field : outputFields ) {
+      if ( fieldName.equalsIgnoreCase( field.getName() ) ) {
+        return USAGE_COPY;
+      }
+    }
+    return USAGE_NONE;
+  }
+
+  @Override
+  public boolean isPassingInputFields() {
+    return true;
+  }
+
+  @Override
+  public List<FieldnameLineage> getFieldnameLineage() {
+    return Collections.emptyList();
+  }
+
   protected synchronized ValueMetaInterface[] getMetaWithFieldOptions() {
     if ( null == metaWithFieldOptions ) {
       metaWithFieldOptions = new ValueMetaInterface[ 0 ];
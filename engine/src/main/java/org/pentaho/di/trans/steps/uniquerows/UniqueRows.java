@@ -13,6 +13,7 @@
 
 package org.pentaho.di.trans.steps.uniquerows;
 
+import org.pentaho.di.core.codegen.RowKeyComparatorCompiler;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -98,6 +99,10 @@ public class UniqueRows extends BaseStep implements StepInterface {
       if ( data.sendDuplicateRows && !Utils.isEmpty( meta.getErrorDescription() ) ) {
         data.realErrorDescription = environmentSubstitute( meta.getErrorDescription() );
       }
+
+      // Compare the complete row when there are no compare fields
+      data.keyComparator = RowKeyComparatorCompiler.create( this, log, data.outputRowMeta,
+        data.fieldnrs.length == 0 ? null : data.fieldnrs );
     }
 
     // Emptied in a previous batch in single threading mode.
@@ -106,14 +111,7 @@ public class UniqueRows extends BaseStep implements StepInterface {
       data.previous = data.inputRowMeta.cloneRow( r );
     }
 
-    boolean isEqual = false;
-
-    if ( meta.getCompareFields() == null || meta.getCompareFields().length == 0 ) {
-      // Compare the complete row...
-      isEqual = data.outputRowMeta.compare( r, data.previous ) == 0;
-    } else {
-      isEqual = data.outputRowMeta.compare( r, data.previous, data.fieldnrs ) == 0;
-    }
+    boolean isEqual = data.keyComparator.compare( r, data.previous ) == 0;
     if ( !isEqual ) {
       Object[] outputRow = addCounter( data.outputRowMeta, data.previous, data.counter );
       putRow( data.outputRowMeta, outputRow ); // copy row to possible alternate
@@ -13,6 +13,7 @@
 
 package org.pentaho.di.trans.steps.uniquerows;
 
+import org.pentaho.di.core.row.RowKeyComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -28,6 +29,7 @@ public class UniqueRowsData extends BaseStepData implements StepDataInterface {
   public long counter;
   public Object[] previous;
   public int[] fieldnrs;
+  public RowKeyComparator keyComparator;
   public String compareFields;
   public String realErrorDescription;
   public boolean sendDuplicateRows;
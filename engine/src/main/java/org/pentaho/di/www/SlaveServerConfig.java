@@ -26,6 +26,7 @@ import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.logging.LoggingObjectType;
 import org.pentaho.di.core.logging.SimpleLoggingObject;
+import org.pentaho.di.core.memory.MemoryManager;
 import org.pentaho.di.core.plugins.PluginRegistry;
 import org.pentaho.di.core.plugins.RepositoryPluginType;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -74,6 +75,11 @@ public class SlaveServerConfig {
 
   private int objectTimeoutMinutes;
 
+  /** The heap memory in MB the transformations running on this server can reserve together, 0 means no limit */
+  private int memoryLimitMB;
+
+  private MemoryManager memoryManager;
+
   private String filename;
 
   private List<DatabaseMeta> databases;
@@ -143,6 +149,9 @@ public class SlaveServerConfig {
     XMLHandler.addTagValue( "max_log_lines", maxLogLines );
     XMLHandler.addTagValue( "max_log_timeout_minutes", maxLogTimeoutMinutes );
     XMLHandler.addTagValue( "object_timeout_minutes", objectTimeoutMinutes );
+    if ( memoryLimitMB > 0 ) {
+      xml.append( XMLHandler.addTagValue( "memory_limit_mb", memoryLimitMB ) );
+    }
 
     xml.append( XMLHandler.openTag( XML_TAG_SEQUENCES ) );
     for ( SlaveSequence slaveSequence : slaveSequences ) {
@@ -197,6 +206,7 @@ public class SlaveServerConfig {
     maxLogLines = Const.toInt( XMLHandler.getTagValue( node, "max_log_lines" ), 0 );
     maxLogTimeoutMinutes = Const.toInt( XMLHandler.getTagValue( node, "max_log_timeout_minutes" ), 0 );
     objectTimeoutMinutes = Const.toInt( XMLHandler.getTagValue( node, "object_timeout_minutes" ), 0 );
+    memoryLimitMB = Const.toInt( XMLHandler.getTagValue( node, "memory_limit_mb" ), 0 );
 
     // Read sequence information
     //
@@ -435,6 +445,35 @@ public class SlaveServerConfig {
     this.joining = joining;
   }
 
+  /**
+   * @return the heap memory in MB the transformations running on this server can reserve together, 0 means no limit
+   */
+  public int getMemoryLimitMB() {
+    return memoryLimitMB;
+  }
+
+  /**
+   * @param memoryLimitMB
+   *          the heap memory in MB the transformations running on this server can reserve together, 0 means no limit
+   */
+  public synchronized void setMemoryLimitMB( int memoryLimitMB ) {
+    this.memoryLimitMB = memoryLimitMB;
+    this.memoryManager = null;
+  }
+
+  /**
+   * Get the memory manager shared by the transformations running on this server. The memory managers of the
+   * transformations reserve memory from it, so that transformations sharing this server don't overcommit together.
+   *
+   * @return the memory manager or null if there is no memory limit
+   */
+  public synchronized MemoryManager getMemoryManager() {
+    if ( memoryManager == null && memoryLimitMB > 0 ) {
+      memoryManager = new MemoryManager( "Carte", memoryLimitMB * 1024L * 1024L );
+    }
+    return memoryManager;
+  }
+
   /**
    * @return the maxLogLines
    */
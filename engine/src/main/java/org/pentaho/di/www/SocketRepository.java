@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.Map;
 
 import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.trans.cluster.MultiplexedTransport;
 
 /**
  * This singleton keeps a repository of all the server sockets.
@@ -38,6 +39,8 @@ public class SocketRepository {
 
   private LogChannelInterface log;
 
+  private MultiplexedTransport multiplexedTransport;
+
   public SocketRepository( LogChannelInterface log ) {
     this.log = log;
     socketMap = new HashMap<Integer, SocketRepositoryEntry>();
@@ -132,6 +135,16 @@ public class SocketRepository {
     entry.setInUse( false );
   }
 
+  /**
+   * @return the transport shared by all the multiplexed remote step streams of this server, created on first use
+   */
+  public synchronized MultiplexedTransport getMultiplexedTransport() {
+    if ( multiplexedTransport == null ) {
+      multiplexedTransport = new MultiplexedTransport( log );
+    }
+    return multiplexedTransport;
+  }
+
   /**
    * @return the socketMap
    */
@@ -168,6 +181,10 @@ public class SocketRepository {
         log.logError( "Carte socket repository : Failed to close socket during shutdown", e );
       }
     }
+    if ( multiplexedTransport != null ) {
+      multiplexedTransport.close();
+      multiplexedTransport = null;
+    }
   }
 
   protected void finalize() throws Throwable {
@@ -217,6 +217,7 @@ public class StartTransServlet extends BaseHttpServlet implements CartePluginInt
           trans.setReplayDate( executionConfiguration.getReplayDate() );
           trans.setSafeModeEnabled( executionConfiguration.isSafeModeEnabled() );
           trans.setGatheringMetrics( executionConfiguration.isGatheringMetrics() );
+          trans.setUsingVirtualThreads( executionConfiguration.isUsingVirtualThreads() );
           trans.injectVariables( executionConfiguration.getVariables() );
           trans.setPreviousResult( executionConfiguration.getPreviousResult() );
         }
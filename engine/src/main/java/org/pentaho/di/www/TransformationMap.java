@@ -64,12 +64,23 @@ public class TransformationMap {
     TransConfiguration transConfiguration ) {
     CarteObjectEntry entry = new CarteObjectEntry( transformationName, containerObjectId );
     transMap.put( entry, new TransData( trans, transConfiguration ) );
+    setParentMemoryManager( trans );
   }
 
   public void registerTransformation( Trans trans, TransConfiguration transConfiguration ) {
     trans.setContainerObjectId( UUID.randomUUID().toString() );
     CarteObjectEntry entry = new CarteObjectEntry( trans.getTransMeta().getName(), trans.getContainerObjectId() );
     transMap.put( entry, new TransData( trans, transConfiguration ) );
+    setParentMemoryManager( trans );
+  }
+
+  /**
+   * Let the steps of the transformation reserve their memory from the memory manager of this server as well.
+   */
+  private void setParentMemoryManager( Trans trans ) {
+    if ( slaveServerConfig != null && trans != null ) {
+      trans.setParentMemoryManager( slaveServerConfig.getMemoryManager() );
+    }
   }
 
   /**
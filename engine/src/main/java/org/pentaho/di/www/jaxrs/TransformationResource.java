@@ -132,6 +132,7 @@ public class TransformationResource {
       trans.setReplayDate( executionConfiguration.getReplayDate() );
       trans.setSafeModeEnabled( executionConfiguration.isSafeModeEnabled() );
       trans.setGatheringMetrics( executionConfiguration.isGatheringMetrics() );
+      trans.setUsingVirtualThreads( executionConfiguration.isUsingVirtualThreads() );
       trans.injectVariables( executionConfiguration.getVariables() );
       trans.setPreviousResult( executionConfiguration.getPreviousResult() );
 
@@ -0,0 +1,127 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.codegen;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowKeyComparator;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.RowMetaKeyComparator;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * Compares sorting and hashing rows on three key fields through the row metadata and with a compiled comparator, the
+ * way the Sort rows, Merge join and Stream lookup steps do. This is not a unit test, run it with the main method or
+ * through the JMH runner.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 2 )
+public class RowKeyComparatorBenchmark {
+
+  @Param( { "rowMeta", "compiled" } )
+  public String comparatorType;
+
+  @Param( { "100000" } )
+  public int nrRows;
+
+  private RowKeyComparator comparator;
+  private Comparator<Object[]> rowComparator;
+  private Object[][] rows;
+  private Object[][] sortedRows;
+
+  @Setup( Level.Trial )
+  public void setUpTrial() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "comment" ) );
+    int[] keys = { 0, 1, 2 };
+
+    if ( "compiled".equals( comparatorType ) ) {
+      comparator = RowKeyComparatorCompiler.compile( rowMeta, keys, rowMeta, keys );
+    } else {
+      comparator = new RowMetaKeyComparator( rowMeta, keys );
+    }
+    rowComparator = new Comparator<Object[]>() {
+      @Override
+      public int compare( Object[] row1, Object[] row2 ) {
+        try {
+          return comparator.compare( row1, row2 );
+        } catch ( KettleValueException e ) {
+          throw new RuntimeException( e );
+        }
+      }
+    };
+
+    Random random = new Random( 1234 );
+    rows = new Object[nrRows][];
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows[i] = new Object[] {
+        "customer-" + random.nextInt( 100 ), Long.valueOf( random.nextInt( 1000 ) ),
+        Double.valueOf( random.nextInt( 100 ) / 4.0 ), "some comment", };
+    }
+  }
+
+  @Setup( Level.Invocation )
+  public void setUpInvocation() {
+    sortedRows = rows.clone();
+  }
+
+  @Benchmark
+  public Object[][] sort() {
+    Arrays.sort( sortedRows, rowComparator );
+    return sortedRows;
+  }
+
+  @Benchmark
+  public int hash() throws KettleValueException {
+    int hash = 0;
+    for ( Object[] row : rows ) {
+      hash += comparator.hashCode( row );
+    }
+    return hash;
+  }
+
+  public static void main( String[] args ) throws RunnerException {
+    new Runner( new OptionsBuilder().include( RowKeyComparatorBenchmark.class.getSimpleName() ).build() ).run();
+  }
+}
@@ -0,0 +1,179 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.codegen;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowKeyComparator;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.RowMetaKeyComparator;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.variables.Variables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class RowKeyComparatorCompilerTest {
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    ValueMetaInterface code = new ValueMetaString( "code" );
+    code.setCaseInsensitive( true );
+    code.setSortedDescending( true );
+    rowMeta.addValueMeta( code );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    ValueMetaInterface date = new ValueMetaDate( "date" );
+    date.setSortedDescending( true );
+    rowMeta.addValueMeta( date );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "flag" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "big" ) );
+    ValueMetaInterface trimmed = new ValueMetaString( "trimmed" );
+    trimmed.setTrimType( ValueMetaInterface.TRIM_TYPE_BOTH );
+    rowMeta.addValueMeta( trimmed );
+    return rowMeta;
+  }
+
+  private static Object[] createRow( Random random ) {
+    String[] strings = { null, "", "a", "A", "b", " b ", "abc", "ABD" };
+    return new Object[] {
+      random.nextInt( 5 ) == 0 ? null : Long.valueOf( random.nextInt( 3 ) ),
+      strings[random.nextInt( strings.length )],
+      strings[random.nextInt( strings.length )],
+      random.nextInt( 5 ) == 0 ? null : Double.valueOf( random.nextInt( 3 ) / 2.0 ),
+      random.nextInt( 5 ) == 0 ? null : new Date( random.nextInt( 3 ) * 1000L ),
+      random.nextInt( 5 ) == 0 ? null : Boolean.valueOf( random.nextBoolean() ),
+      random.nextInt( 5 ) == 0 ? null : BigDecimal.valueOf( random.nextInt( 3 ) ),
+      strings[random.nextInt( strings.length )], };
+  }
+
+  @Test
+  public void testSameResultsAsRowMeta() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    int[][] keySets = { null, { 0 }, { 1, 2 }, { 2, 0, 3 }, { 4, 5, 6, 7 }, { 7, 6, 5, 4, 3, 2, 1, 0 } };
+    Random random = new Random( 1234 );
+    for ( int[] keys : keySets ) {
+      RowKeyComparator compiled = RowKeyComparatorCompiler.compile( rowMeta, keys, rowMeta, keys );
+      assertTrue( compiled instanceof CompiledRowKeyComparator );
+      RowKeyComparator expected = new RowMetaKeyComparator( rowMeta, keys );
+      int[] fieldnrs = keys != null ? keys : RowMetaKeyComparator.allFields( rowMeta );
+      for ( int i = 0; i < 2000; i++ ) {
+        Object[] row1 = createRow( random );
+        Object[] row2 = createRow( random );
+        String message = Arrays.toString( keys ) + " " + Arrays.toString( row1 ) + " " + Arrays.toString( row2 );
+        assertEquals( message, Integer.signum( expected.compare( row1, row2 ) ),
+          Integer.signum( compiled.compare( row1, row2 ) ) );
+        assertEquals( message, expected.hashCode( row1 ), compiled.hashCode( row1 ) );
+
+        Object[] keyValues = new Object[fieldnrs.length];
+        for ( int k = 0; k < fieldnrs.length; k++ ) {
+          keyValues[k] = row1[fieldnrs[k]];
+        }
+        assertEquals( message, Arrays.deepHashCode( keyValues ), compiled.hashCode( row1 ) );
+      }
+    }
+  }
+
+  @Test
+  public void testTwoLayouts() throws Exception {
+    RowMetaInterface rowMeta1 = new RowMeta();
+    rowMeta1.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta1.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowMetaInterface rowMeta2 = new RowMeta();
+    rowMeta2.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta2.addValueMeta( new ValueMetaString( "other" ) );
+    rowMeta2.addValueMeta( new ValueMetaString( "name" ) );
+    int[] keys1 = { 1, 0 };
+    int[] keys2 = { 0, 2 };
+
+    RowKeyComparator compiled = RowKeyComparatorCompiler.compile( rowMeta1, keys1, rowMeta2, keys2 );
+    RowKeyComparator expected = new RowMetaKeyComparator( rowMeta1, keys1, rowMeta2, keys2 );
+    Object[][] rows1 = { { "a", 1L }, { "b", 1L }, { null, 2L }, { "a", null } };
+    Object[][] rows2 = { { 1L, "x", "a" }, { 1L, "x", "c" }, { 2L, "x", null }, { null, "x", "a" } };
+    for ( Object[] row1 : rows1 ) {
+      for ( Object[] row2 : rows2 ) {
+        assertEquals( Integer.signum( expected.compare( row1, row2 ) ),
+          Integer.signum( compiled.compare( row1, row2 ) ) );
+      }
+    }
+
+    // A key of another type in the second rows goes through the data conversion
+    RowMetaInterface rowMeta3 = new RowMeta();
+    rowMeta3.addValueMeta( new ValueMetaString( "id" ) );
+    compiled = RowKeyComparatorCompiler.compile( rowMeta1, new int[] { 1 }, rowMeta3, new int[] { 0 } );
+    assertEquals( 0, compiled.compare( new Object[] { "a", 12L }, new Object[] { "12" } ) );
+    assertTrue( compiled.compare( new Object[] { "a", 12L }, new Object[] { "13" } ) < 0 );
+  }
+
+  @Test
+  public void testCompareWithOffset() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    RowKeyComparator compiled = RowKeyComparatorCompiler.compile( rowMeta, null, rowMeta, null );
+
+    Object[] data = { 1L, "a", 1L, "b", 1L, "a" };
+    assertTrue( compiled.compare( data, 0, data, 2 ) < 0 );
+    assertEquals( 0, compiled.compare( data, 0, data, 4 ) );
+    assertTrue( compiled.compare( data, 2, new Object[] { 1L, "a" }, 0 ) > 0 );
+  }
+
+  @Test
+  public void testClassIsCachedPerShape() throws Exception {
+    RowMetaInterface rowMeta1 = new RowMeta();
+    rowMeta1.addValueMeta( new ValueMetaInteger( "a" ) );
+    rowMeta1.addValueMeta( new ValueMetaString( "b" ) );
+    RowMetaInterface rowMeta2 = new RowMeta();
+    rowMeta2.addValueMeta( new ValueMetaInteger( "c" ) );
+    rowMeta2.addValueMeta( new ValueMetaString( "d" ) );
+
+    RowKeyComparator comparator1 = RowKeyComparatorCompiler.compile( rowMeta1, null, rowMeta1, null );
+    RowKeyComparator comparator2 = RowKeyComparatorCompiler.compile( rowMeta2, null, rowMeta2, null );
+    assertSame( comparator1.getClass(), comparator2.getClass() );
+
+    rowMeta2.getValueMeta( 0 ).setSortedDescending( true );
+    RowKeyComparator comparator3 = RowKeyComparatorCompiler.compile( rowMeta2, null, rowMeta2, null );
+    assertTrue( comparator1.getClass() != comparator3.getClass() );
+    assertTrue( comparator3.compare( new Object[] { 1L, "a" }, new Object[] { 2L, "a" } ) > 0 );
+  }
+
+  @Test
+  public void testCreate() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    LogChannelInterface log = mock( LogChannelInterface.class );
+
+    Variables variables = new Variables();
+    assertTrue( RowKeyComparatorCompiler.create( variables, log, rowMeta, null ) instanceof RowMetaKeyComparator );
+
+    variables.setVariable( Const.KETTLE_COMPILED_ROW_COMPARATORS, "Y" );
+    assertTrue( RowKeyComparatorCompiler.create( variables, log, rowMeta, null ) instanceof CompiledRowKeyComparator );
+  }
+}
@@ -27,10 +27,12 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.pentaho.di.core.compress.bzip2.BZip2CompressionProvider;
 import org.pentaho.di.core.compress.gzip.GZIPCompressionProvider;
 import org.pentaho.di.core.compress.hadoopsnappy.HadoopSnappyCompressionProvider;
 import org.pentaho.di.core.compress.snappy.SnappyCompressionProvider;
 import org.pentaho.di.core.compress.zip.ZIPCompressionProvider;
+import org.pentaho.di.core.compress.zstd.ZstdCompressionProvider;
 import org.pentaho.di.core.plugins.PluginRegistry;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 
@@ -94,6 +96,18 @@ public class CompressionProviderFactoryTest {
     assertTrue( provider.getClass().isAssignableFrom( HadoopSnappyCompressionProvider.class ) );
     assertEquals( "Hadoop-snappy", provider.getName() );
     assertEquals( "Hadoop Snappy compression", provider.getDescription() );
+
+    provider = factory.createCompressionProviderInstance( "BZip2" );
+    assertNotNull( provider );
+    assertTrue( provider.getClass().isAssignableFrom( BZip2CompressionProvider.class ) );
+    assertEquals( "BZip2", provider.getName() );
+    assertEquals( "BZip2 compression", provider.getDescription() );
+
+    provider = factory.createCompressionProviderInstance( "Zstd" );
+    assertNotNull( provider );
+    assertTrue( provider.getClass().isAssignableFrom( ZstdCompressionProvider.class ) );
+    assertEquals( "Zstd", provider.getName() );
+    assertEquals( "Zstandard compression", provider.getDescription() );
   }
 
   /**
@@ -109,6 +123,8 @@ public class CompressionProviderFactoryTest {
         put( "GZip", false );
         put( "Snappy", false );
         put( "Hadoop-snappy", false );
+        put( "BZip2", false );
+        put( "Zstd", false );
       }
     };
 
@@ -140,6 +156,8 @@ public class CompressionProviderFactoryTest {
         put( "GZip", false );
         put( "Snappy", false );
         put( "Hadoop-snappy", false );
+        put( "BZip2", false );
+        put( "Zstd", false );
       }
     };
 
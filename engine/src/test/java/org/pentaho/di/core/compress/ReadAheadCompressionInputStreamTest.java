@@ -0,0 +1,147 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReadAheadCompressionInputStreamTest {
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+    assertTrue( executor.awaitTermination( 10, TimeUnit.SECONDS ) );
+  }
+
+  @Test
+  public void testDataIsReadInOrder() throws Exception {
+    byte[] data = createData( 3 * ReadAheadCompressionInputStream.BUFFER_SIZE + 12345 );
+    ReadAheadCompressionInputStream in = new ReadAheadCompressionInputStream( new ByteArrayInputStream( data ),
+      new NoneCompressionProvider(), executor, 2 );
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write( in.read() );
+    byte[] buffer = new byte[7919];
+    int n;
+    while ( ( n = in.read( buffer ) ) >= 0 ) {
+      out.write( buffer, 0, n );
+    }
+    assertEquals( -1, in.read() );
+    in.close();
+    assertArrayEquals( data, out.toByteArray() );
+  }
+
+  @Test
+  public void testErrorReachesTheReader() throws Exception {
+    InputStream failing = new InputStream() {
+      private int left = ReadAheadCompressionInputStream.BUFFER_SIZE + 10;
+
+      @Override
+      public int read() throws IOException {
+        if ( left <= 0 ) {
+          throw new IOException( "Corrupt data" );
+        }
+        left--;
+        return 'a';
+      }
+    };
+    ReadAheadCompressionInputStream in =
+      new ReadAheadCompressionInputStream( failing, new NoneCompressionProvider(), executor, 2 );
+
+    byte[] buffer = new byte[1000];
+    long total = 0;
+    try {
+      int n;
+      while ( ( n = in.read( buffer ) ) >= 0 ) {
+        total += n;
+      }
+      fail( "The error of the wrapped stream was not passed on" );
+    } catch ( IOException e ) {
+      assertEquals( "Corrupt data", e.getMessage() );
+    }
+    // The buffers filled before the error are still handed out
+    assertEquals( ReadAheadCompressionInputStream.BUFFER_SIZE, total );
+    in.close();
+  }
+
+  @Test( timeout = 10000 )
+  public void testCloseWhileReadingAhead() throws Exception {
+    EndlessInputStream endless = new EndlessInputStream();
+    ReadAheadCompressionInputStream in =
+      new ReadAheadCompressionInputStream( endless, new NoneCompressionProvider(), executor, 4 );
+    assertEquals( 0, in.read() );
+
+    // The background thread is still filling buffers, it has to let go of the stream before it is closed
+    in.close();
+    assertTrue( endless.closed );
+    long bytesRead = endless.bytesRead.get();
+    Thread.sleep( 50 );
+    assertEquals( "The stream was read after it was closed", bytesRead, endless.bytesRead.get() );
+    assertEquals( -1, in.read() );
+  }
+
+  private static byte[] createData( int size ) {
+    byte[] data = new byte[size];
+    new Random( size ).nextBytes( data );
+    return data;
+  }
+
+  private static class EndlessInputStream extends InputStream {
+    private final AtomicLong bytesRead = new AtomicLong();
+    private volatile boolean closed;
+
+    @Override
+    public int read() {
+      bytesRead.incrementAndGet();
+      return 0;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException {
+      if ( closed ) {
+        throw new IOException( "Stream closed" );
+      }
+      bytesRead.addAndGet( len );
+      return len;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.gzip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import org.pentaho.di.core.compress.CompressionInputStream;
+import org.pentaho.di.core.compress.CompressionProviderFactory;
+
+public class ParallelGZIPCompressionInputStreamTest {
+
+  private static final int BLOCK_SIZE = 60000;
+
+  private final GZIPCompressionProvider provider = new GZIPCompressionProvider();
+
+  @Test
+  public void testBlockGzipIsDecompressedInOrder() throws Exception {
+    byte[] data = createData( 1000000 );
+    byte[] compressed = blockGzip( data );
+
+    CompressionInputStream in =
+      CompressionProviderFactory.getInstance().createInputStream( provider, new ByteArrayInputStream( compressed ), 4 );
+    assertTrue( in instanceof ParallelGZIPCompressionInputStream );
+    assertArrayEquals( data, readAll( in ) );
+  }
+
+  @Test
+  public void testPlainGzipFallsBack() throws Exception {
+    byte[] data = createData( 500000 );
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try ( GZIPOutputStream out = new GZIPOutputStream( compressed ) ) {
+      out.write( data );
+    }
+
+    CompressionInputStream in = CompressionProviderFactory.getInstance().createInputStream( provider,
+      new ByteArrayInputStream( compressed.toByteArray() ), 4 );
+    assertArrayEquals( data, readAll( in ) );
+  }
+
+  @Test
+  public void testPlainGzipAfterBlockGzip() throws Exception {
+    byte[] first = createData( 200000 );
+    byte[] second = createData( 300000 );
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    compressed.write( blockGzip( first ) );
+    try ( GZIPOutputStream out = new GZIPOutputStream( compressed ) ) {
+      out.write( second );
+    }
+
+    CompressionInputStream in = CompressionProviderFactory.getInstance().createInputStream( provider,
+      new ByteArrayInputStream( compressed.toByteArray() ), 2 );
+    byte[] expected = new byte[first.length + second.length];
+    System.arraycopy( first, 0, expected, 0, first.length );
+    System.arraycopy( second, 0, expected, first.length, second.length );
+    assertArrayEquals( expected, readAll( in ) );
+  }
+
+  @Test( expected = IOException.class )
+  public void testCorruptBlockFails() throws Exception {
+    byte[] compressed = blockGzip( createData( 200000 ) );
+    // Flip a bit in the CRC of the first block
+    int bsize = ( compressed[16] & 0xFF ) | ( compressed[17] & 0xFF ) << 8;
+    compressed[bsize - 7] ^= 1;
+
+    CompressionInputStream in = CompressionProviderFactory.getInstance().createInputStream( provider,
+      new ByteArrayInputStream( compressed ), 2 );
+    readAll( in );
+  }
+
+  private static byte[] createData( int size ) {
+    byte[] data = new byte[size];
+    Random random = new Random( size );
+    for ( int i = 0; i < size; i++ ) {
+      // Somewhat compressible text-like data
+      data[i] = (byte) ( 'a' + random.nextInt( 8 ) );
+    }
+    return data;
+  }
+
+  /**
+   * Compress the data the way bgzip does: a series of gzip members of at most 64KB each, with the size of the member
+   * in the BC extra field, followed by an empty end-of-file member.
+   */
+  private static byte[] blockGzip( byte[] data ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for ( int offset = 0; offset < data.length; offset += BLOCK_SIZE ) {
+      writeMember( out, data, offset, Math.min( BLOCK_SIZE, data.length - offset ) );
+    }
+    writeMember( out, data, 0, 0 );
+    return out.toByteArray();
+  }
+
+  private static void writeMember( ByteArrayOutputStream out, byte[] data, int offset, int length ) {
+    Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+    deflater.setInput( data, offset, length );
+    deflater.finish();
+    byte[] body = new byte[length + 1024];
+    int bodyLength = deflater.deflate( body );
+    deflater.end();
+
+    CRC32 crc = new CRC32();
+    crc.update( data, offset, length );
+
+    int bsize = 18 + bodyLength + 8 - 1;
+    out.write( new byte[] { 31, (byte) 139, 8, 4, 0, 0, 0, 0, 0, (byte) 255, 6, 0, 'B', 'C', 2, 0,
+      (byte) bsize, (byte) ( bsize >>> 8 ) }, 0, 18 );
+    out.write( body, 0, bodyLength );
+    writeInt( out, (int) crc.getValue() );
+    writeInt( out, length );
+  }
+
+  private static void writeInt( ByteArrayOutputStream out, int value ) {
+    out.write( value );
+    out.write( value >>> 8 );
+    out.write( value >>> 16 );
+    out.write( value >>> 24 );
+  }
+
+  private static byte[] readAll( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      byte[] buffer = new byte[7919];
+      int n;
+      while ( ( n = in.read( buffer ) ) >= 0 ) {
+        out.write( buffer, 0, n );
+      }
+    } finally {
+      in.close();
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,195 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.zstd;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.compress.CompressionInputStream;
+
+public class ParallelZstdCompressionInputStreamTest {
+
+  private static final int FRAME_SIZE = 100000;
+
+  private final ZstdCompressionProvider provider = new ZstdCompressionProvider();
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+    assertTrue( executor.awaitTermination( 10, TimeUnit.SECONDS ) );
+  }
+
+  @Test
+  public void testFramesAreDecompressedInOrder() throws Exception {
+    byte[] data = createData( 1000000 );
+
+    assertArrayEquals( data, readAll( createInputStream( frames( data ), 4 ) ) );
+  }
+
+  @Test
+  public void testSkippableFramesAreSkipped() throws Exception {
+    byte[] first = createData( 150000 );
+    byte[] second = createData( 250000 );
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    compressed.write( frames( first ) );
+    // A skippable frame with 5 bytes of user data
+    compressed.write( new byte[] { 0x50, 0x2A, 0x4D, 0x18, 5, 0, 0, 0, 1, 2, 3, 4, 5 } );
+    compressed.write( frames( second ) );
+
+    assertArrayEquals( concat( first, second ), readAll( createInputStream( compressed.toByteArray(), 2 ) ) );
+  }
+
+  @Test
+  public void testFrameWithoutContentSizeFallsBack() throws Exception {
+    byte[] first = createData( 300000 );
+    byte[] second = createData( 400000 );
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    compressed.write( frames( first ) );
+    // A streaming compressor doesn't know the size of the data up front
+    try ( ZstdOutputStream out = new ZstdOutputStream( compressed ) ) {
+      out.write( second );
+    }
+    compressed.write( frames( first ) );
+
+    assertArrayEquals( concat( first, second, first ), readAll( createInputStream( compressed.toByteArray(), 2 ) ) );
+  }
+
+  @Test( expected = IOException.class )
+  public void testTruncatedInputFails() throws Exception {
+    byte[] compressed = frames( createData( 500000 ) );
+
+    readAll( createInputStream( Arrays.copyOf( compressed, compressed.length - 100 ), 2 ) );
+  }
+
+  @Test( expected = IOException.class )
+  public void testTruncatedStreamingFrameFails() throws Exception {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try ( ZstdOutputStream out = new ZstdOutputStream( compressed ) ) {
+      out.write( createData( 500000 ) );
+    }
+
+    readAll( createInputStream( Arrays.copyOf( compressed.toByteArray(), compressed.size() - 100 ), 2 ) );
+  }
+
+  @Test( timeout = 10000 )
+  public void testCloseWhileDecompressing() throws Exception {
+    ClosingInputStream compressed = new ClosingInputStream( frames( createData( 2000000 ) ) );
+    CompressionInputStream in = provider.createParallelInputStream( compressed, executor, 4 );
+    byte[] buffer = new byte[1000];
+    assertEquals( buffer.length, in.read( buffer ) );
+
+    in.close();
+    assertTrue( compressed.closed );
+  }
+
+  @Test( timeout = 10000 )
+  public void testCloseWhileReadingTheRestAhead() throws Exception {
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    try ( ZstdOutputStream out = new ZstdOutputStream( data ) ) {
+      out.write( createData( 2000000 ) );
+    }
+    ClosingInputStream compressed = new ClosingInputStream( data.toByteArray() );
+    CompressionInputStream in = provider.createParallelInputStream( compressed, executor, 4 );
+    byte[] buffer = new byte[1000];
+    assertEquals( buffer.length, in.read( buffer ) );
+
+    in.close();
+    assertTrue( compressed.closed );
+  }
+
+  private CompressionInputStream createInputStream( byte[] compressed, int threads ) {
+    CompressionInputStream in =
+      provider.createParallelInputStream( new ByteArrayInputStream( compressed ), executor, threads );
+    assertTrue( in instanceof ParallelZstdCompressionInputStream );
+    return in;
+  }
+
+  private static byte[] createData( int size ) {
+    byte[] data = new byte[size];
+    Random random = new Random( size );
+    for ( int i = 0; i < size; i++ ) {
+      // Somewhat compressible text-like data
+      data[i] = (byte) ( 'a' + random.nextInt( 8 ) );
+    }
+    return data;
+  }
+
+  /**
+   * Compress the data the way a multi-threaded compressor does: a series of frames that record their content size.
+   */
+  private static byte[] frames( byte[] data ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for ( int offset = 0; offset < data.length; offset += FRAME_SIZE ) {
+      out.write( Zstd.compress( Arrays.copyOfRange( data, offset, Math.min( data.length, offset + FRAME_SIZE ) ) ) );
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] concat( byte[]... parts ) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for ( byte[] part : parts ) {
+      out.write( part, 0, part.length );
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] readAll( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      byte[] buffer = new byte[7919];
+      int n;
+      while ( ( n = in.read( buffer ) ) >= 0 ) {
+        out.write( buffer, 0, n );
+      }
+    } finally {
+      in.close();
+    }
+    return out.toByteArray();
+  }
+
+  private static class ClosingInputStream extends ByteArrayInputStream {
+    private volatile boolean closed;
+
+    ClosingInputStream( byte[] data ) {
+      super( data );
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.zstd;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.compress.CompressionInputStream;
+import org.pentaho.di.core.compress.CompressionOutputStream;
+import org.pentaho.di.core.compress.CompressionPluginType;
+import org.pentaho.di.core.compress.CompressionProviderFactory;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+
+public class ZstdCompressionProviderTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  public static final String PROVIDER_NAME = "Zstd";
+
+  public CompressionProviderFactory factory = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    PluginRegistry.addPluginType( CompressionPluginType.getInstance() );
+    PluginRegistry.init( false );
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    factory = CompressionProviderFactory.getInstance();
+  }
+
+  @Test
+  public void testGetName() {
+    ZstdCompressionProvider provider =
+      (ZstdCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    assertNotNull( provider );
+    assertEquals( PROVIDER_NAME, provider.getName() );
+  }
+
+  @Test
+  public void testGetProviderAttributes() {
+    ZstdCompressionProvider provider =
+      (ZstdCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    assertEquals( "Zstandard compression", provider.getDescription() );
+    assertTrue( provider.supportsInput() );
+    assertTrue( provider.supportsOutput() );
+    assertEquals( "zst", provider.getDefaultExtension() );
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    ZstdCompressionProvider provider = new ZstdCompressionProvider();
+    byte[] data = createData( 500000 );
+
+    assertArrayEquals( data, readAll( provider.createInputStream( new ByteArrayInputStream( compress( data ) ) ) ) );
+  }
+
+  @Test
+  public void testParallelRoundTrip() throws IOException {
+    ZstdCompressionProvider provider = new ZstdCompressionProvider();
+    byte[] data = createData( 1000000 );
+
+    CompressionInputStream in = factory.createInputStream( provider, new ByteArrayInputStream( compress( data ) ), 2 );
+    assertTrue( in instanceof ParallelZstdCompressionInputStream );
+    assertArrayEquals( data, readAll( in ) );
+  }
+
+  @Test( expected = IOException.class )
+  public void testTruncatedInputFails() throws IOException {
+    ZstdCompressionProvider provider = new ZstdCompressionProvider();
+    byte[] compressed = compress( createData( 500000 ) );
+
+    readAll( provider.createInputStream(
+      new ByteArrayInputStream( Arrays.copyOf( compressed, compressed.length - 100 ) ) ) );
+  }
+
+  private static byte[] compress( byte[] data ) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try ( CompressionOutputStream out = new ZstdCompressionProvider().createOutputStream( compressed ) ) {
+      out.write( data );
+    }
+    return compressed.toByteArray();
+  }
+
+  private static byte[] createData( int size ) {
+    byte[] data = new byte[size];
+    Random random = new Random( size );
+    for ( int i = 0; i < size; i++ ) {
+      // Somewhat compressible text-like data
+      data[i] = (byte) ( 'a' + random.nextInt( 8 ) );
+    }
+    return data;
+  }
+
+  private static byte[] readAll( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      byte[] buffer = new byte[7919];
+      int n;
+      while ( ( n = in.read( buffer ) ) >= 0 ) {
+        out.write( buffer, 0, n );
+      }
+    } finally {
+      in.close();
+    }
+    return out.toByteArray();
+  }
+}
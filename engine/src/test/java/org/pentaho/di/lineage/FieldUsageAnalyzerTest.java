@@ -0,0 +1,210 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.lineage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.trans.ModPartitioner;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.FieldUsageInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.step.StepPartitioningMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.filterrows.FilterRowsMeta;
+import org.pentaho.di.trans.steps.selectvalues.SelectMetadataChange;
+import org.pentaho.di.trans.steps.selectvalues.SelectValuesMeta;
+import org.pentaho.di.trans.steps.textfileoutput.TextFileField;
+import org.pentaho.di.trans.steps.textfileoutput.TextFileOutputMeta;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class FieldUsageAnalyzerTest {
+
+  private TransMeta transMeta;
+  private StepMeta input;
+
+  @Before
+  public void setUp() throws Exception {
+    transMeta = mock( TransMeta.class );
+    input = step( "input", mock( StepMetaInterface.class ) );
+
+    RowMetaInterface fields = new RowMeta();
+    fields.addValueMeta( new ValueMetaInteger( "id" ) );
+    fields.addValueMeta( new ValueMetaString( "name" ) );
+    fields.addValueMeta( new ValueMetaNumber( "amount" ) );
+    fields.addValueMeta( new ValueMetaString( "note" ) );
+    fields.addValueMeta( new ValueMetaString( "unused" ) );
+    when( transMeta.getStepFields( input ) ).thenReturn( fields );
+  }
+
+  private StepMeta step( String name, StepMetaInterface meta ) {
+    StepMeta stepMeta = mock( StepMeta.class );
+    when( stepMeta.getName() ).thenReturn( name );
+    when( stepMeta.getStepMetaInterface() ).thenReturn( meta );
+    when( transMeta.findNextSteps( stepMeta ) ).thenReturn( Collections.<StepMeta>emptyList() );
+    return stepMeta;
+  }
+
+  /**
+   * @return a step that doesn't pass its input fields on, like an aggregation, and doesn't look at any of them
+   */
+  private StepMeta sink( String name ) {
+    StepMetaInterface meta =
+      mock( StepMetaInterface.class, withSettings().extraInterfaces( FieldUsageInterface.class ) );
+    when( ( (FieldUsageInterface) meta ).getFieldUsage( anyString(), any( VariableSpace.class ) ) )
+      .thenReturn( FieldUsageInterface.USAGE_NONE );
+    when( ( (FieldUsageInterface) meta ).isPassingInputFields() ).thenReturn( false );
+    return step( name, meta );
+  }
+
+  private void hops( StepMeta from, StepMeta... to ) {
+    when( transMeta.findNextSteps( from ) ).thenReturn( Arrays.asList( to ) );
+  }
+
+  private Map<String, Integer> analyze() throws Exception {
+    return new FieldUsageAnalyzer( transMeta, new Variables() ).getDownstreamFieldUsage( input );
+  }
+
+  @Test
+  public void testUsageIsFollowedThroughRenames() throws Exception {
+    FilterRowsMeta filterMeta = new FilterRowsMeta();
+    filterMeta.setCondition( new Condition( "amount", Condition.FUNC_NOT_NULL, null, null ) );
+    StepMeta filter = step( "filter", filterMeta );
+
+    SelectValuesMeta selectMeta = new SelectValuesMeta();
+    selectMeta.allocate( 2, 0, 1 );
+    selectMeta.setSelectName( new String[] { "name", "id" } );
+    selectMeta.setSelectRename( new String[] { "customer", null } );
+    SelectMetadataChange change = new SelectMetadataChange( selectMeta );
+    change.setName( "id" );
+    selectMeta.setMeta( new SelectMetadataChange[] { change } );
+    StepMeta select = step( "select", selectMeta );
+
+    TextFileOutputMeta outputMeta = new TextFileOutputMeta();
+    TextFileField customer = new TextFileField();
+    customer.setName( "customer" );
+    TextFileField note = new TextFileField();
+    note.setName( "note" );
+    outputMeta.setOutputFields( new TextFileField[] { customer, note } );
+    StepMeta output = step( "output", outputMeta );
+
+    hops( input, filter );
+    hops( filter, select );
+    hops( select, output );
+    hops( output, sink( "end" ) );
+
+    Map<String, Integer> usage = analyze();
+    assertEquals( FieldUsageInterface.USAGE_READ, (int) usage.get( "id" ) );
+    assertEquals( FieldUsageInterface.USAGE_COPY, (int) usage.get( "name" ) );
+    assertEquals( FieldUsageInterface.USAGE_READ, (int) usage.get( "amount" ) );
+    assertEquals( FieldUsageInterface.USAGE_COPY, (int) usage.get( "note" ) );
+    assertEquals( FieldUsageInterface.USAGE_NONE, (int) usage.get( "unused" ) );
+  }
+
+  @Test
+  public void testHighestUsageOfAllBranchesCounts() throws Exception {
+    TextFileOutputMeta outputMeta = new TextFileOutputMeta();
+    outputMeta.setOutputFields( new TextFileField[0] );
+    StepMeta output = step( "output", outputMeta );
+
+    FilterRowsMeta filterMeta = new FilterRowsMeta();
+    filterMeta.setCondition( new Condition( "note", Condition.FUNC_NOT_NULL, null, null ) );
+    StepMeta filter = step( "filter", filterMeta );
+
+    StepMeta dummy = step( "dummy", new DummyTransMeta() );
+    hops( input, output, dummy );
+    hops( output, filter );
+    hops( filter, sink( "end" ) );
+    hops( dummy, sink( "other end" ) );
+
+    Map<String, Integer> usage = analyze();
+    assertEquals( FieldUsageInterface.USAGE_COPY, (int) usage.get( "id" ) );
+    assertEquals( FieldUsageInterface.USAGE_READ, (int) usage.get( "note" ) );
+  }
+
+  @Test
+  public void testAllFieldsAreReadWithoutNextSteps() throws Exception {
+    for ( Integer usage : analyze().values() ) {
+      assertEquals( FieldUsageInterface.USAGE_READ, (int) usage );
+    }
+  }
+
+  @Test
+  public void testAllFieldsAreReadByTerminalStepsAfterTheStep() throws Exception {
+    StepMeta dummy = step( "Output", new DummyTransMeta() );
+    hops( input, dummy );
+
+    for ( Integer usage : analyze().values() ) {
+      assertEquals( FieldUsageInterface.USAGE_READ, (int) usage );
+    }
+
+    SelectValuesMeta selectMeta = new SelectValuesMeta();
+    selectMeta.allocate( 0, 0, 0 );
+    StepMeta select = step( "select", selectMeta );
+    hops( input, select );
+    hops( select, dummy );
+
+    for ( Integer usage : analyze().values() ) {
+      assertEquals( FieldUsageInterface.USAGE_READ, (int) usage );
+    }
+  }
+
+  @Test
+  public void testPartitioningFieldIsRead() throws Exception {
+    StepMeta dummy = step( "dummy", new DummyTransMeta() );
+    ModPartitioner partitioner = new ModPartitioner();
+    partitioner.setFieldName( "${PARTITION_FIELD}" );
+    StepPartitioningMeta partitioningMeta = new StepPartitioningMeta();
+    partitioningMeta.setMethodType( StepPartitioningMeta.PARTITIONING_METHOD_SPECIAL );
+    partitioningMeta.setPartitioner( partitioner );
+    when( dummy.getStepPartitioningMeta() ).thenReturn( partitioningMeta );
+    hops( input, dummy );
+    hops( dummy, sink( "end" ) );
+
+    Variables space = new Variables();
+    space.setVariable( "PARTITION_FIELD", "unused" );
+    Map<String, Integer> usage = new FieldUsageAnalyzer( transMeta, space ).getDownstreamFieldUsage( input );
+    assertEquals( FieldUsageInterface.USAGE_READ, (int) usage.get( "unused" ) );
+    assertEquals( FieldUsageInterface.USAGE_NONE, (int) usage.get( "note" ) );
+  }
+
+  @Test
+  public void testUnknownStepReadsAllFields() throws Exception {
+    StepMeta dummy = step( "dummy", new DummyTransMeta() );
+    hops( input, dummy );
+    hops( dummy, step( "unknown", mock( StepMetaInterface.class ) ) );
+
+    for ( Integer usage : analyze().values() ) {
+      assertEquals( FieldUsageInterface.USAGE_READ, (int) usage );
+    }
+  }
+}
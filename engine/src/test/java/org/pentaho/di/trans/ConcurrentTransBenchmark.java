@@ -0,0 +1,157 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.rowgenerator.RowGeneratorMeta;
+import org.pentaho.di.www.TransformationMap;
+
+/**
+ * Runs 500 small transformations side by side the way a Carte server does, with the step copies on platform threads
+ * or on virtual threads, see {@link Trans#setUsingVirtualThreads(boolean)}. Every invocation reports the time it took
+ * to run all transformations, the rows read by the last steps, the peak number of live threads and the heap in use
+ * once everything was started. Virtual threads need Java 21 or later, older versions fall back to platform threads.
+ * Add "-prof gc" to compare the allocation rates. This is not a unit test, run it with the main method or through the
+ * JMH runner.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 10 )
+@Fork( value = 2, jvmArgsAppend = { "-Xmx2g" } )
+public class ConcurrentTransBenchmark {
+
+  private static final String OUTPUT_STEPNAME = "Output";
+
+  @Param( { "platform", "virtual" } )
+  public String threadType;
+
+  @Param( { "500" } )
+  public int nrTransformations;
+
+  @Param( { "10000" } )
+  public int nrRows;
+
+  private TransMeta transMeta;
+
+  @State( Scope.Thread )
+  @AuxCounters( AuxCounters.Type.EVENTS )
+  public static class Footprint {
+    public long rows;
+    public long peakThreads;
+    public long heapMegabytes;
+  }
+
+  @Setup( Level.Trial )
+  public void setUp() throws KettleException {
+    KettleEnvironment.init( false );
+
+    // Generate rows -> 2 copies of a dummy step -> dummy step
+    //
+    RowGeneratorMeta generatorMeta = new RowGeneratorMeta();
+    generatorMeta.allocate( 1 );
+    generatorMeta.setFieldName( new String[] { "id" } );
+    generatorMeta.setFieldType( new String[] { "Integer" } );
+    generatorMeta.setValue( new String[] { "1" } );
+    generatorMeta.setFieldLength( new int[] { -1 } );
+    generatorMeta.setFieldPrecision( new int[] { -1 } );
+    generatorMeta.setRowLimit( Integer.toString( nrRows ) );
+
+    transMeta = new TransMeta();
+    transMeta.setName( "small" );
+    StepMeta input = createStep( "Input", generatorMeta );
+    StepMeta work = createStep( "Work", new DummyTransMeta() );
+    work.setCopies( 2 );
+    StepMeta output = createStep( OUTPUT_STEPNAME, new DummyTransMeta() );
+    transMeta.addTransHop( new TransHopMeta( input, work ) );
+    transMeta.addTransHop( new TransHopMeta( work, output ) );
+  }
+
+  private StepMeta createStep( String name, StepMetaInterface stepMetaInterface ) {
+    String id = PluginRegistry.getInstance().getPluginId( StepPluginType.class, stepMetaInterface );
+    StepMeta stepMeta = new StepMeta( id, name, stepMetaInterface );
+    transMeta.addStep( stepMeta );
+    return stepMeta;
+  }
+
+  @Benchmark
+  public long runConcurrently( Footprint footprint ) throws KettleException {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    threads.resetPeakThreadCount();
+
+    TransExecutionConfiguration executionConfiguration = new TransExecutionConfiguration();
+    executionConfiguration.setUsingVirtualThreads( "virtual".equals( threadType ) );
+
+    TransformationMap transformationMap = new TransformationMap();
+    List<Trans> running = new ArrayList<Trans>( nrTransformations );
+    for ( int i = 0; i < nrTransformations; i++ ) {
+      Trans trans = new Trans( transMeta );
+      trans.setUsingVirtualThreads( executionConfiguration.isUsingVirtualThreads() );
+      transformationMap.registerTransformation( trans, new TransConfiguration( transMeta, executionConfiguration ) );
+      trans.prepareExecution( null );
+      trans.startThreads();
+      running.add( trans );
+    }
+
+    Runtime runtime = Runtime.getRuntime();
+    long heapMegabytes = ( runtime.totalMemory() - runtime.freeMemory() ) >> 20;
+
+    long rows = 0;
+    for ( Trans trans : running ) {
+      trans.waitUntilFinished();
+      if ( trans.getErrors() > 0 ) {
+        throw new KettleException( "The transformation failed" );
+      }
+      rows += trans.findRunThread( OUTPUT_STEPNAME ).getLinesRead();
+    }
+
+    footprint.rows += rows;
+    footprint.peakThreads += threads.getPeakThreadCount();
+    footprint.heapMegabytes += heapMegabytes;
+    return rows;
+  }
+
+  public static void main( String[] args ) throws RunnerException {
+    new Runner( new OptionsBuilder().include( ConcurrentTransBenchmark.class.getSimpleName() ).build() ).run();
+  }
+}
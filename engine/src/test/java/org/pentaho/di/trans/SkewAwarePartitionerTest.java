@@ -0,0 +1,142 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.repository.StringObjectId;
+import org.pentaho.di.trans.steps.loadsave.validator.FieldLoadSaveValidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SkewAwarePartitionerTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Test
+  public void testSerialization() throws KettleException {
+    List<String> attributes = Arrays.asList( "FieldName", "SampleSize", "SkewThreshold" );
+    // Settings of 0 or less fall back to the defaults when they are loaded from a repository
+    //
+    FieldLoadSaveValidator<Integer> positive = new FieldLoadSaveValidator<Integer>() {
+      @Override
+      public Integer getTestObject() {
+        return 1 + new Random().nextInt( 100000 );
+      }
+
+      @Override
+      public boolean validateTestObject( Integer original, Object actual ) {
+        return original.equals( actual );
+      }
+    };
+    Map<String, FieldLoadSaveValidator<?>> validators = new HashMap<String, FieldLoadSaveValidator<?>>();
+    validators.put( "SampleSize", positive );
+    validators.put( "SkewThreshold", positive );
+    LoadSaveTester<SkewAwarePartitioner> tester =
+      new LoadSaveTester<SkewAwarePartitioner>( SkewAwarePartitioner.class, attributes, new ArrayList<String>(),
+        new ArrayList<String>(), new HashMap<String, String>(), new HashMap<String, String>(), validators,
+        new HashMap<String, FieldLoadSaveValidator<?>>() );
+
+    tester.testSerialization();
+  }
+
+  @Test
+  public void testLoadRepFallsBackToTheDefaults() throws KettleException {
+    Repository rep = mock( Repository.class );
+    ObjectId stepId = new StringObjectId( "step" );
+    when( rep.getStepAttributeInteger( stepId, "PARTITIONING_SAMPLE_SIZE" ) ).thenReturn( 0L );
+    when( rep.getStepAttributeInteger( stepId, "PARTITIONING_SKEW_THRESHOLD" ) ).thenReturn( -1L );
+
+    SkewAwarePartitioner partitioner = new SkewAwarePartitioner();
+    partitioner.setSampleSize( 50 );
+    partitioner.setSkewThreshold( 200 );
+    partitioner.loadRep( rep, stepId );
+    assertEquals( SkewAwarePartitioner.DEFAULT_SAMPLE_SIZE, partitioner.getSampleSize() );
+    assertEquals( SkewAwarePartitioner.DEFAULT_SKEW_THRESHOLD, partitioner.getSkewThreshold() );
+  }
+
+  @Test
+  public void testHotKeyIsSpread() throws KettleException {
+    SkewAwarePartitioner partitioner = createPartitioner( 4, 100 );
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+
+    // Half of the sample is key 5, the other keys are unique
+    for ( long i = 0; i < 100; i++ ) {
+      long key = i % 2 == 0 ? 5L : 1000L + i;
+      assertEquals( key % 4, partitioner.getPartition( rowMeta, new Object[] { key } ) );
+    }
+    assertEquals( 1, partitioner.getNrHotKeys() );
+
+    // 50 rows in the sample is twice the fair share of 25
+    int[] rows = new int[4];
+    for ( int i = 0; i < 100; i++ ) {
+      rows[partitioner.getPartition( rowMeta, new Object[] { 5L } )]++;
+    }
+    assertEquals( 0, rows[0] );
+    assertEquals( 50, rows[1] );
+    assertEquals( 50, rows[2] );
+    assertEquals( 0, rows[3] );
+
+    // Other keys keep their partition
+    assertEquals( 3, partitioner.getPartition( rowMeta, new Object[] { 7L } ) );
+  }
+
+  @Test
+  public void testUniformKeysAreNotSpread() throws KettleException {
+    SkewAwarePartitioner partitioner = createPartitioner( 3, 300 );
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+
+    for ( long i = 0; i < 1000; i++ ) {
+      assertEquals( ( i % 10 ) % 3, partitioner.getPartition( rowMeta, new Object[] { i % 10 } ) );
+    }
+    assertEquals( 0, partitioner.getNrHotKeys() );
+  }
+
+  @Test
+  public void testClone() {
+    SkewAwarePartitioner partitioner = createPartitioner( 2, 50 );
+    partitioner.setSkewThreshold( 200 );
+    SkewAwarePartitioner clone = partitioner.clone();
+    assertEquals( "key", clone.getFieldName() );
+    assertEquals( 50, clone.getSampleSize() );
+    assertEquals( 200, clone.getSkewThreshold() );
+    assertTrue( clone.getDescription().startsWith( "Skew aware partitioner" ) );
+  }
+
+  private static SkewAwarePartitioner createPartitioner( int nrPartitions, int sampleSize ) {
+    SkewAwarePartitioner partitioner = new SkewAwarePartitioner();
+    partitioner.setFieldName( "key" );
+    partitioner.setNrPartitions( nrPartitions );
+    partitioner.setSampleSize( sampleSize );
+    return partitioner;
+  }
+}
@@ -124,6 +124,17 @@ public class TransTest {
   }
 
   @Ignore("DisplayName is not persisted, making this fail")
+  @Test
+  public void testVirtualThreadsFollowTheVariable() {
+    assertFalse( trans.isUsingVirtualThreads() );
+    trans.setVariable( Const.KETTLE_VIRTUAL_STEP_THREADS, "Y" );
+    assertTrue( trans.isUsingVirtualThreads() );
+    trans.setVariable( Const.KETTLE_VIRTUAL_STEP_THREADS, "N" );
+    assertFalse( trans.isUsingVirtualThreads() );
+    trans.setUsingVirtualThreads( true );
+    assertTrue( trans.isUsingVirtualThreads() );
+  }
+
   @Test
   public void testFindDatabaseWithEncodedConnectionName() throws Exception {
     DatabaseMeta dbMeta1 =
@@ -0,0 +1,153 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ColumnBlockCodecTest {
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "country" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "comment" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "flag" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "big" ) );
+    rowMeta.addValueMeta( new ValueMetaBinary( "bytes" ) );
+    return rowMeta;
+  }
+
+  private static Object[][] roundTrip( RowMetaInterface rowMeta, Object[][] rows ) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ColumnBlockCodec.writeBlock( rowMeta, rows, rows.length, new DataOutputStream( bytes ) );
+    DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+    Object[][] result = ColumnBlockCodec.readBlock( rowMeta, rows.length, in );
+    assertEquals( -1, in.read() );
+    return result;
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    Object[][] rows = new Object[100][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[i] = new Object[] {
+        i % 7 == 0 ? null : Long.valueOf( i % 2 == 0 ? Long.MIN_VALUE + i : Long.MAX_VALUE - i ),
+        i % 5 == 0 ? null : Double.valueOf( i / 3.0 ),
+        new String[] { "BE", "NL", "FR", null, "" }[i % 5],
+        "comment é " + i,
+        i % 11 == 0 ? null : new Date( 1700000000000L + i * 1000L ),
+        i % 3 == 0 ? null : Boolean.valueOf( i % 2 == 0 ),
+        i % 4 == 0 ? null : new BigDecimal( "-12345678901234567890.0" + i ),
+        i % 6 == 0 ? null : new byte[] { (byte) i, 1, 2 }, };
+    }
+
+    Object[][] result = roundTrip( rowMeta, rows );
+    for ( int i = 0; i < rows.length; i++ ) {
+      for ( int c = 0; c < rowMeta.size() - 1; c++ ) {
+        assertEquals( "row " + i + " column " + c, rows[i][c], result[i][c] );
+      }
+      assertArrayEquals( (byte[]) rows[i][7], (byte[]) result[i][7] );
+    }
+  }
+
+  @Test
+  public void testEncodings() {
+    RowMetaInterface rowMeta = createRowMeta();
+    boolean[] nulls = new boolean[4];
+    Object[][] rows = {
+      { 1L, 1.0, "a", "a", new Date( 0L ), true, BigDecimal.ONE, null },
+      { 2L, 2.0, "a", "b", new Date( 0L ), false, BigDecimal.TEN, null },
+      { 3L, 3.0, "b", "c", new Date( 0L ), true, BigDecimal.ONE, null },
+      { 4L, 4.0, "b", "d", new Date( 0L ), true, BigDecimal.ONE, null }, };
+
+    assertEquals( ColumnBlockCodec.ENCODING_LONG_DELTA, ColumnBlockCodec.getEncoding( rowMeta.getValueMeta( 0 ), rows,
+      4, 0, nulls ) );
+    assertEquals( ColumnBlockCodec.ENCODING_DOUBLE, ColumnBlockCodec.getEncoding( rowMeta.getValueMeta( 1 ), rows, 4,
+      1, nulls ) );
+    assertEquals( ColumnBlockCodec.ENCODING_STRING_DICTIONARY, ColumnBlockCodec.getEncoding( rowMeta.getValueMeta( 2 ),
+      rows, 4, 2, nulls ) );
+    assertEquals( ColumnBlockCodec.ENCODING_STRING_PLAIN, ColumnBlockCodec.getEncoding( rowMeta.getValueMeta( 3 ), rows,
+      4, 3, nulls ) );
+    assertEquals( ColumnBlockCodec.ENCODING_DATE_DELTA, ColumnBlockCodec.getEncoding( rowMeta.getValueMeta( 4 ), rows,
+      4, 4, nulls ) );
+    assertEquals( ColumnBlockCodec.ENCODING_BOOLEAN, ColumnBlockCodec.getEncoding( rowMeta.getValueMeta( 5 ), rows, 4,
+      5, nulls ) );
+    assertEquals( ColumnBlockCodec.ENCODING_BIG_NUMBER, ColumnBlockCodec.getEncoding( rowMeta.getValueMeta( 6 ), rows,
+      4, 6, nulls ) );
+
+    // An integer field with a value of another class goes through the value metadata
+    rows[1][0] = "2";
+    assertEquals( ColumnBlockCodec.ENCODING_VALUE_META, ColumnBlockCodec.getEncoding( rowMeta.getValueMeta( 0 ), rows,
+      4, 0, nulls ) );
+
+    ValueMetaInterface lazy = new ValueMetaString( "lazy" );
+    lazy.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    assertEquals( ColumnBlockCodec.ENCODING_VALUE_META, ColumnBlockCodec.getEncoding( lazy, rows, 4, 2, nulls ) );
+  }
+
+  @Test
+  public void testShortRowsAndTimestamps() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    Timestamp timestamp = new Timestamp( 1000L );
+    timestamp.setNanos( 123456789 );
+    Object[][] rows = { { 1L }, { 2L, timestamp } };
+
+    Object[][] result = roundTrip( rowMeta, rows );
+    assertEquals( 1L, result[0][0] );
+    assertNull( result[0][1] );
+    // Just like the row by row stream, only the milliseconds come through
+    assertEquals( new Date( timestamp.getTime() ), result[1][1] );
+  }
+
+  @Test
+  public void testVarLong() throws Exception {
+    long[] values = { 0L, 1L, -1L, 63L, -64L, 64L, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE };
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream( bytes );
+    for ( long value : values ) {
+      ColumnBlockCodec.writeVarLong( out, ColumnBlockCodec.zigZag( value ) );
+    }
+    DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+    for ( long value : values ) {
+      assertEquals( value, ColumnBlockCodec.unZigZag( ColumnBlockCodec.readVarLong( in ) ) );
+    }
+  }
+}
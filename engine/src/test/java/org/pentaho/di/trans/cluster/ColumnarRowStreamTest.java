@@ -0,0 +1,138 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.step.StepInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class ColumnarRowStreamTest {
+
+  private ExecutorService executor;
+  private ServerSocket serverSocket;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    executor = Executors.newSingleThreadExecutor();
+    serverSocket = new ServerSocket( 0, 1, InetAddress.getLoopbackAddress() );
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+    serverSocket.close();
+  }
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    return rowMeta;
+  }
+
+  /**
+   * Send the rows from another thread, with a small block size so that the writer runs out of credits.
+   */
+  private Future<Integer> startWriter( final int nrRows, final boolean compress ) {
+    return executor.submit( () -> {
+      try ( Socket socket = serverSocket.accept() ) {
+        DataOutputStream out = new DataOutputStream( socket.getOutputStream() );
+        ColumnarRowWriter writer =
+          new ColumnarRowWriter( socket.getInputStream(), out, 10, compress, mock( StepInterface.class ) );
+        writer.readHandshake();
+        if ( nrRows > 0 ) {
+          writer.writeMeta( createRowMeta() );
+        }
+        for ( int i = 0; i < nrRows; i++ ) {
+          writer.putRow( new Object[] { Long.valueOf( i ), "name " + ( i % 3 ) } );
+        }
+        writer.finish();
+        socket.shutdownOutput();
+        return writer.getCodec();
+      }
+    } );
+  }
+
+  private void readAll( int nrRows, boolean compress, int expectedCodec ) throws Exception {
+    Future<Integer> writer = startWriter( nrRows, compress );
+    try ( Socket socket = new Socket( serverSocket.getInetAddress(), serverSocket.getLocalPort() ) ) {
+      ColumnarRowReader reader =
+        new ColumnarRowReader( new DataInputStream( socket.getInputStream() ), socket.getOutputStream(), 1 );
+      reader.writeHandshake( true );
+
+      RowMetaInterface rowMeta = reader.readMeta();
+      assertEquals( 2, rowMeta.size() );
+      for ( int i = 0; i < nrRows; i++ ) {
+        Object[] row = reader.getRow();
+        assertEquals( Long.valueOf( i ), row[0] );
+        assertEquals( "name " + ( i % 3 ), row[1] );
+      }
+      try {
+        reader.getRow();
+        fail( "All rows should have been read" );
+      } catch ( KettleEOFException e ) {
+        // expected
+      }
+    }
+    assertEquals( expectedCodec, writer.get( 10, TimeUnit.SECONDS ).intValue() );
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    readAll( 95, false, ColumnarRowWriter.CODEC_NONE );
+  }
+
+  @Test
+  public void testRoundTripCompressed() throws Exception {
+    readAll( 1000, true, ColumnarRowWriter.CODEC_ZSTD );
+  }
+
+  @Test( expected = KettleEOFException.class )
+  public void testNoRows() throws Exception {
+    startWriter( 0, false );
+    try ( Socket socket = new Socket( serverSocket.getInetAddress(), serverSocket.getLocalPort() ) ) {
+      ColumnarRowReader reader =
+        new ColumnarRowReader( new DataInputStream( socket.getInputStream() ), socket.getOutputStream(), 1 );
+      reader.writeHandshake( false );
+      reader.readMeta();
+    }
+  }
+}
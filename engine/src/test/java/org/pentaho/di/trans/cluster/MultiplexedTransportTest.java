@@ -0,0 +1,170 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.cluster;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.step.BaseStep;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class MultiplexedTransportTest {
+
+  private MultiplexedTransport server;
+  private MultiplexedTransport client;
+  private int port;
+  private BaseStep writingStep;
+  private BaseStep readingStep;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    server = new MultiplexedTransport( mock( LogChannelInterface.class ) );
+    client = new MultiplexedTransport( mock( LogChannelInterface.class ) );
+    try ( ServerSocket serverSocket = new ServerSocket( 0, 1, InetAddress.getLoopbackAddress() ) ) {
+      port = serverSocket.getLocalPort();
+    }
+    server.listen( port );
+
+    writingStep = mock( BaseStep.class );
+    readingStep = mock( BaseStep.class );
+    doAnswer( invocation -> {
+      RowSet rowSet = invocation.getArgument( 2 );
+      while ( !rowSet.putRow( invocation.getArgument( 0 ), invocation.getArgument( 1 ) ) ) {
+        // wait for room
+      }
+      return null;
+    } ).when( readingStep ).putRowTo( any(), any(), any() );
+  }
+
+  @After
+  public void tearDown() {
+    server.release( port );
+    server.close();
+    client.close();
+  }
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    return rowMeta;
+  }
+
+  private static Thread startWriting( final RowSet rowSet, final int nrRows ) {
+    final RowMetaInterface rowMeta = createRowMeta();
+    Thread thread = new Thread( () -> {
+      for ( int i = 0; i < nrRows; i++ ) {
+        Object[] row = new Object[] { Long.valueOf( i ), "name " + ( i % 3 ) };
+        while ( !rowSet.putRow( rowMeta, row ) ) {
+          // wait for room
+        }
+      }
+      rowSet.setDone();
+    } );
+    thread.start();
+    return thread;
+  }
+
+  private static void readAll( RowSet rowSet, int nrRows ) {
+    long deadline = System.currentTimeMillis() + 30000;
+    int i = 0;
+    while ( System.currentTimeMillis() < deadline ) {
+      Object[] row = rowSet.getRowWait( 10, TimeUnit.MILLISECONDS );
+      if ( row == null ) {
+        if ( rowSet.isDone() && rowSet.size() == 0 ) {
+          assertEquals( nrRows, i );
+          return;
+        }
+        continue;
+      }
+      assertEquals( Long.valueOf( i ), row[0] );
+      assertEquals( "name " + ( i % 3 ), row[1] );
+      i++;
+    }
+    fail( "Timed out after " + i + " rows" );
+  }
+
+  @Test
+  public void testStreamsShareOneConnection() throws Exception {
+    int nrRows = 5000;
+    RowSet[] output = new RowSet[3];
+    RowSet[] input = new RowSet[output.length];
+    for ( int s = 0; s < output.length; s++ ) {
+      output[s] = new BlockingRowSet( 100 );
+      input[s] = new BlockingRowSet( 100 );
+    }
+
+    // The first stream is opened by the reading side before the writing side knows about it
+    //
+    client.openInputStream( "localhost", port, 1000, input[0], readingStep, 100 );
+    for ( int s = 0; s < output.length; s++ ) {
+      server.openOutputStream( port, 1000 + s, output[s], writingStep, s == 1, 64 );
+    }
+    for ( int s = 1; s < input.length; s++ ) {
+      client.openInputStream( "localhost", port, 1000 + s, input[s], readingStep, 100 );
+    }
+    assertEquals( 1, client.getClientConnectionCount() );
+
+    for ( int s = 0; s < output.length; s++ ) {
+      startWriting( output[s], nrRows );
+    }
+    for ( int s = 0; s < input.length; s++ ) {
+      readAll( input[s], nrRows );
+    }
+
+    // The connection is closed once all its streams are done
+    //
+    long deadline = System.currentTimeMillis() + 10000;
+    while ( client.getClientConnectionCount() > 0 && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 10 );
+    }
+    assertEquals( 0, client.getClientConnectionCount() );
+  }
+
+  @Test
+  public void testNoRows() throws Exception {
+    RowSet output = new BlockingRowSet( 10 );
+    RowSet input = new BlockingRowSet( 10 );
+    server.openOutputStream( port, 2000, output, writingStep, false, 10 );
+    output.setDone();
+    client.openInputStream( "localhost", port, 2000, input, readingStep, 10 );
+
+    readAll( input, 0 );
+    assertTrue( input.isDone() );
+  }
+}
@@ -14,10 +14,16 @@
 package org.pentaho.di.trans.cluster;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -28,6 +34,7 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.pentaho.di.cluster.ClusterSchema;
 import org.pentaho.di.cluster.SlaveServer;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.logging.LogChannelInterface;
@@ -35,15 +42,21 @@ import org.pentaho.di.core.logging.LogChannelInterfaceFactory;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.TransHopMeta;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.TransMetaFactory;
 import org.pentaho.di.trans.TransMetaFactoryImpl;
+import org.pentaho.di.trans.step.RemoteStep;
 import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
 import org.w3c.dom.Node;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TransSplitterTest {
   private LogChannelInterfaceFactory oldLogChannelInterfaceFactory;
@@ -107,4 +120,79 @@ public class TransSplitterTest {
     }
 
   }
+
+  @Test
+  public void testMultiplexedStreamsOnlyAllocateOnePortPerWritingServer() throws Exception {
+    SlaveServer master =
+      spy( new SlaveServer( "master", "127.0.0.1", "8585", "cluster", "cluster", null, null, null, true ) );
+    AtomicInteger allocations = new AtomicInteger();
+    doAnswer( invocation -> 40000 + allocations.getAndIncrement() ).when( master ).allocateServerSocket( anyString(),
+      anyInt(), anyString(), anyString(), anyString(), anyString(), anyString(), anyString(), anyString(),
+      anyString() );
+
+    ClusterSchema clusterSchema = new ClusterSchema();
+    clusterSchema.setName( "cluster" );
+    clusterSchema.setBasePort( "40000" );
+    clusterSchema.getSlaveServers().add( master );
+    clusterSchema.getSlaveServers().add(
+      new SlaveServer( "slave1", "127.0.0.1", "8586", "cluster", "cluster", null, null, null, false ) );
+    clusterSchema.getSlaveServers().add(
+      new SlaveServer( "slave2", "127.0.0.1", "8587", "cluster", "cluster", null, null, null, false ) );
+
+    // Generate (master) -> Work (clustered) -> Output (master)
+    //
+    TransMeta clustered = new TransMeta();
+    clustered.setName( "multiplexed" );
+    clustered.getClusterSchemas().add( clusterSchema );
+    StepMeta generate = new StepMeta( "Generate", new DummyTransMeta() );
+    generate.setLocation( 50, 50 );
+    StepMeta work = new StepMeta( "Work", new DummyTransMeta() );
+    work.setLocation( 150, 50 );
+    work.setClusterSchema( clusterSchema );
+    StepMeta output = new StepMeta( "Output", new DummyTransMeta() );
+    output.setLocation( 250, 50 );
+    clustered.addStep( generate );
+    clustered.addStep( work );
+    clustered.addStep( output );
+    clustered.addTransHop( new TransHopMeta( generate, work ) );
+    clustered.addTransHop( new TransHopMeta( work, output ) );
+
+    TransMeta transMeta = new TransMeta();
+    transMeta.setVariable( Const.KETTLE_MULTIPLEXED_SOCKET_STREAMS, "Y" );
+    TransMetaFactory factory = mock( TransMetaFactory.class );
+    when( factory.create( any(), any() ) ).thenReturn( clustered );
+
+    TransSplitter transSplitter = new TransSplitter( transMeta, factory );
+    transSplitter.splitOriginalTransformation();
+
+    // The master and both slaves write rows, each of them gets a single port for its multiplexed connections
+    //
+    assertEquals( 3, allocations.get() );
+
+    Set<String> masterStreams = new HashSet<>();
+    for ( StepMeta stepMeta : transSplitter.getMaster().getSteps() ) {
+      collectStreams( stepMeta, masterStreams );
+    }
+    Set<String> slaveStreams = new HashSet<>();
+    for ( TransMeta slave : transSplitter.getSlaves() ) {
+      for ( StepMeta stepMeta : slave.getSteps() ) {
+        collectStreams( stepMeta, slaveStreams );
+      }
+    }
+    assertEquals( 4, masterStreams.size() );
+    assertEquals( masterStreams, slaveStreams );
+  }
+
+  private void collectStreams( StepMeta stepMeta, Set<String> streams ) {
+    List<RemoteStep> remoteSteps = new ArrayList<>( stepMeta.getRemoteInputSteps() );
+    remoteSteps.addAll( stepMeta.getRemoteOutputSteps() );
+    for ( RemoteStep remoteStep : remoteSteps ) {
+      // The stream id isn't a port from the range of the cluster, only the multiplexed port is
+      //
+      assertFalse( remoteStep.getMultiplexedPort().isEmpty() );
+      assertTrue( Integer.parseInt( remoteStep.getMultiplexedPort() ) >= 40000 );
+      assertTrue( Integer.parseInt( remoteStep.getPort() ) < 40000 );
+      streams.add( remoteStep.getSourceSlaveServerName() + "/" + remoteStep.getPort() );
+    }
+  }
 }
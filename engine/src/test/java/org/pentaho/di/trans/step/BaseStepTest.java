@@ -21,10 +21,13 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.RowBatchRowSet;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.RowSetSignal;
 import org.pentaho.di.core.SingleRowRowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -32,12 +35,15 @@ import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.fileinput.NonAccessibleFileObject;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.FrozenRowMeta;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.util.VirtualThreads;
 import org.pentaho.di.trans.BasePartitioner;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.steps.mock.StepMockHelper;
@@ -52,17 +58,23 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -509,4 +521,221 @@ public class BaseStepTest {
     baseStepSpy.getRow();
     verify( mockHelper.transMeta, times( 1 ) ).checkRowMixingStatically( any( StepMeta.class ), any() );
   }
+
+  @Test
+  public void testGetRowFreezesInputRowMeta() throws KettleException {
+    Trans transMock = mock( Trans.class );
+    BaseStep baseStepSpy =
+      spy( new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface,
+        0, mockHelper.transMeta, transMock ) );
+    doNothing().when( baseStepSpy ).waitUntilTransformationIsStarted();
+    doNothing().when( baseStepSpy ).openRemoteInputStepSocketsOnce();
+    baseStepSpy.setVariable( Const.KETTLE_FREEZE_ROW_META, "Y" );
+
+    BlockingRowSet rowSet = new BlockingRowSet( 2 );
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.setValueMetaList( Arrays.asList( new ValueMetaInteger( "x" ), new ValueMetaString( "a" ) ) );
+    rowSet.putRow( rowMeta, new Object[] { 1L, "a" } );
+    rowSet.putRow( rowMeta, new Object[] { 2L, "b" } );
+
+    baseStepSpy.setInputRowSets( List.of( rowSet ) );
+    doReturn( rowSet ).when( baseStepSpy ).currentInputStream();
+
+    baseStepSpy.getRow();
+    RowMetaInterface inputRowMeta = baseStepSpy.getInputRowMeta();
+    assertTrue( inputRowMeta instanceof FrozenRowMeta );
+    assertEquals( 1, inputRowMeta.indexOfValue( "a" ) );
+
+    baseStepSpy.getRow();
+    assertSame( inputRowMeta, baseStepSpy.getInputRowMeta() );
+  }
+
+  @Test
+  public void testFrozenRowMetaFollowsTheLastInstanceOfTheRowSet() throws KettleException {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setVariable( Const.KETTLE_FREEZE_ROW_META, "Y" );
+
+    BlockingRowSet rowSet = new BlockingRowSet( 2 );
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "x" ) );
+    rowSet.setRowMeta( rowMeta );
+    RowMetaInterface frozen = baseStep.freezeRowMeta( rowSet );
+    assertTrue( frozen instanceof FrozenRowMeta );
+    assertSame( frozen, baseStep.freezeRowMeta( rowSet ) );
+
+    RowMeta otherRowMeta = new RowMeta();
+    otherRowMeta.addValueMeta( new ValueMetaString( "a" ) );
+    rowSet.setRowMeta( otherRowMeta );
+    RowMetaInterface otherFrozen = baseStep.freezeRowMeta( rowSet );
+    assertNotSame( frozen, otherFrozen );
+    assertEquals( 0, otherFrozen.indexOfValue( "a" ) );
+    assertSame( otherFrozen, baseStep.freezeRowMeta( rowSet ) );
+
+    // only the last instance is kept: going back to the first one makes a new copy
+    rowSet.setRowMeta( rowMeta );
+    assertNotSame( frozen, baseStep.freezeRowMeta( rowSet ) );
+  }
+
+  @Test
+  public void testRowBatchesGoOverBatchRowSets() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowBatch batch = new RowBatch( rowMeta, 10 );
+    batch.addRow( new Object[] { 1L } );
+    batch.addRow( new Object[] { 2L } );
+    RowBatchRowSet inputRowSet = new RowBatchRowSet( 10 );
+    inputRowSet.putRowBatch( rowMeta, batch );
+    inputRowSet.setDone();
+    RowBatchRowSet outputRowSet = new RowBatchRowSet( 10 );
+    baseStep.addRowSetToInputRowSets( inputRowSet );
+    baseStep.addRowSetToOutputRowSets( outputRowSet );
+
+    List<Object> read = new ArrayList<>();
+    List<Object> written = new ArrayList<>();
+    baseStep.addRowListener( new RowAdapter() {
+      @Override public void rowReadEvent( RowMetaInterface rowMeta, Object[] row ) {
+        read.add( row[ 0 ] );
+      }
+
+      @Override public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) {
+        written.add( row[ 0 ] );
+      }
+    } );
+
+    RowBatch received = baseStep.getRowBatch();
+    assertSame( batch, received );
+    assertSame( rowMeta, baseStep.getInputRowMeta() );
+    baseStep.putRowBatch( baseStep.getInputRowMeta(), received );
+    assertNull( baseStep.getRowBatch() );
+    assertTrue( baseStep.getInputRowSets().isEmpty() );
+
+    assertSame( batch, outputRowSet.getRowBatchImmediate() );
+    assertEquals( Arrays.asList( 1L, 2L ), read );
+    assertEquals( Arrays.asList( 1L, 2L ), written );
+    assertEquals( 2, baseStep.getLinesRead() );
+    assertEquals( 2, baseStep.getLinesWritten() );
+  }
+
+  @Test( timeout = 10000 )
+  public void testGetRowParksUntilAnyInputRowSetReceivesARow() throws Exception {
+    // Only a step on a virtual thread parks on the signal of its input row sets
+    assumeTrue( VirtualThreads.isSupported() );
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    AtomicInteger polls = new AtomicInteger();
+    AtomicInteger registrations = new AtomicInteger();
+    RowSet first = new PollCountingRowSet( polls, registrations );
+    RowSet second = new PollCountingRowSet( polls, registrations );
+    baseStep.addRowSetToInputRowSets( first );
+    baseStep.addRowSetToInputRowSets( second );
+
+    AtomicReference<Object[]> row = new AtomicReference<>();
+    AtomicReference<Exception> failure = new AtomicReference<>();
+    Thread consumer = VirtualThreads.newThread( () -> {
+      try {
+        row.set( baseStep.getRow() );
+      } catch ( Exception e ) {
+        failure.set( e );
+      }
+    } );
+    consumer.start();
+    putRowLater( second );
+    consumer.join();
+
+    assertNull( failure.get() );
+    assertEquals( 1L, row.get()[ 0 ] );
+    assertTrue( registrations.get() > 0 );
+    // Polling both row sets every millisecond would take hundreds of tries
+    assertTrue( "Polled " + polls.get() + " times", polls.get() < 50 );
+  }
+
+  @Test( timeout = 10000 )
+  public void testGetRowPollsOnAPlatformThread() throws Exception {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    AtomicInteger polls = new AtomicInteger();
+    AtomicInteger registrations = new AtomicInteger();
+    RowSet first = new PollCountingRowSet( polls, registrations );
+    RowSet second = new PollCountingRowSet( polls, registrations );
+    baseStep.addRowSetToInputRowSets( first );
+    baseStep.addRowSetToInputRowSets( second );
+
+    putRowLater( second );
+    Object[] row = baseStep.getRow();
+
+    assertEquals( 1L, row[ 0 ] );
+    assertEquals( 0, registrations.get() );
+    assertTrue( "Polled " + polls.get() + " times", polls.get() > 10 );
+  }
+
+  /**
+   * Put a row with value 1 in the row set after 300ms, on another thread.
+   */
+  private static void putRowLater( RowSet rowSet ) {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "x" ) );
+    new Thread( () -> {
+      try {
+        Thread.sleep( 300 );
+      } catch ( InterruptedException e ) {
+        return;
+      }
+      rowSet.putRow( rowMeta, new Object[] { 1L } );
+    } ).start();
+  }
+
+  @Test
+  public void testDefaultRowBatchIsReadRowByRow() throws KettleException {
+    StepInterface step = mock( StepInterface.class, CALLS_REAL_METHODS );
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowSet rowSet = mock( RowSet.class );
+    when( rowSet.getRowMeta() ).thenReturn( rowMeta );
+    doReturn( Collections.singletonList( rowSet ) ).when( step ).getInputRowSets();
+    doReturn( 0 ).when( step ).getCurrentInputRowSetNr();
+    doReturn( new Object[] { 1L }, new Object[] { 2L }, null ).when( step ).getRow();
+
+    RowBatch batch = step.getRowBatch();
+    assertEquals( 1, batch.size() );
+    assertSame( rowMeta, batch.getRowMeta() );
+    assertEquals( 1L, batch.getRow( 0 )[ 0 ] );
+    assertEquals( 2L, step.getRowBatch().getRow( 0 )[ 0 ] );
+    assertNull( step.getRowBatch() );
+  }
+
+  private static class PollCountingRowSet extends BlockingRowSet {
+    private final AtomicInteger polls;
+    private final AtomicInteger registrations;
+
+    PollCountingRowSet( AtomicInteger polls, AtomicInteger registrations ) {
+      super( 10 );
+      this.polls = polls;
+      this.registrations = registrations;
+    }
+
+    @Override
+    public boolean setConsumerSignal( RowSetSignal signal ) {
+      registrations.incrementAndGet();
+      return super.setConsumerSignal( signal );
+    }
+
+    @Override
+    public Object[] getRowImmediate() {
+      polls.incrementAndGet();
+      return super.getRowImmediate();
+    }
+
+    @Override
+    public Object[] getRowWait( long timeout, TimeUnit tu ) {
+      polls.incrementAndGet();
+      return super.getRowWait( timeout, tu );
+    }
+  }
 }
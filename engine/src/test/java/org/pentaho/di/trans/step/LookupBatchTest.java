@@ -0,0 +1,144 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.variables.Variables;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LookupBatchTest {
+
+  @Test
+  public void testCreateFromVariables() {
+    Variables space = new Variables();
+    assertNull( LookupBatch.create( space ) );
+
+    space.setVariable( Const.KETTLE_LOOKUP_BATCH_SIZE, "1" );
+    assertNull( LookupBatch.create( space ) );
+
+    space.setVariable( Const.KETTLE_LOOKUP_BATCH_SIZE, "500" );
+    LookupBatch batch = LookupBatch.create( space );
+    assertNotNull( batch );
+    assertEquals( 500, batch.getSize() );
+    assertEquals( LookupBatch.DEFAULT_MAX_LATENCY, batch.getMaxLatency() );
+
+    space.setVariable( Const.KETTLE_LOOKUP_BATCH_MAX_LATENCY, "5" );
+    assertEquals( 5L, LookupBatch.create( space ).getMaxLatency() );
+  }
+
+  @Test
+  public void testDueWhenFull() {
+    LookupBatch batch = new LookupBatch( 2, 60000L );
+    List<RowSet> waiting = Collections.singletonList( rowSetWithRows( 10 ) );
+
+    assertFalse( batch.isDue( waiting ) );
+    batch.add( new Object[] { 1L } );
+    assertFalse( batch.isDue( waiting ) );
+    batch.add( new Object[] { 2L } );
+    assertTrue( batch.isDue( waiting ) );
+
+    batch.clear();
+    assertTrue( batch.isEmpty() );
+    assertFalse( batch.isDue( waiting ) );
+  }
+
+  @Test
+  public void testDueWhenNoInputIsWaiting() {
+    LookupBatch batch = new LookupBatch( 100, 60000L );
+    batch.add( new Object[] { 1L } );
+
+    assertFalse( batch.isDue( Arrays.asList( rowSetWithRows( 0 ), rowSetWithRows( 3 ) ) ) );
+    assertTrue( batch.isDue( Arrays.asList( rowSetWithRows( 0 ), rowSetWithRows( 0 ) ) ) );
+  }
+
+  @Test
+  public void testDueAfterMaxLatency() {
+    LookupBatch batch = new LookupBatch( 100, 0L );
+    batch.add( new Object[] { 1L } );
+    assertTrue( batch.isDue( Collections.singletonList( rowSetWithRows( 10 ) ) ) );
+  }
+
+  @Test
+  public void testKeysInQuery() {
+    assertEquals( 1, LookupBatch.getKeysInQuery( 1, 1 ) );
+    assertEquals( 4, LookupBatch.getKeysInQuery( 3, 1 ) );
+    assertEquals( 64, LookupBatch.getKeysInQuery( 64, 1 ) );
+    assertEquals( 128, LookupBatch.getKeysInQuery( 65, 1 ) );
+    assertEquals( LookupBatch.MAX_PARAMETERS, LookupBatch.getKeysInQuery( 5000, 1 ) );
+    // Never more parameters than a query can take, also when rounding up
+    assertEquals( 333, LookupBatch.getKeysInQuery( 300, 3 ) );
+    assertEquals( 333, LookupBatch.getKeysInQuery( 5000, 3 ) );
+  }
+
+  @Test
+  public void testKeyConditionSingleField() {
+    StringBuilder sql = new StringBuilder( "SELECT * FROM t WHERE " );
+    LookupBatch.appendKeyCondition( sql, quotingDatabaseMeta(), new String[] { "id" }, 3 );
+    assertEquals( "SELECT * FROM t WHERE \"id\" IN ( ?, ?, ? )", sql.toString() );
+  }
+
+  @Test
+  public void testKeyConditionMultipleFields() {
+    StringBuilder sql = new StringBuilder();
+    LookupBatch.appendKeyCondition( sql, quotingDatabaseMeta(), new String[] { "a", "b" }, 2 );
+    assertEquals( "( ( \"a\" = ? AND \"b\" = ? ) OR ( \"a\" = ? AND \"b\" = ? ) )", sql.toString() );
+  }
+
+  @Test
+  public void testParameters() {
+    RowMetaInterface keyMeta = new RowMeta();
+    keyMeta.addValueMeta( new ValueMetaInteger( "a" ) );
+    keyMeta.addValueMeta( new ValueMetaString( "b" ) );
+
+    RowMetaInterface parameterMeta = LookupBatch.getParameterMeta( keyMeta, 3 );
+    assertEquals( 6, parameterMeta.size() );
+    assertEquals( "b", parameterMeta.getValueMeta( 5 ).getName() );
+
+    List<Object[]> keys = Arrays.asList( new Object[] { 1L, "x" }, new Object[] { 2L, "y" }, new Object[] { 3L, "z" } );
+    assertArrayEquals( new Object[] { 2L, "y", 3L, "z", 3L, "z", 3L, "z" },
+      LookupBatch.getParameterData( keys, 1, 4, 2 ) );
+  }
+
+  private static RowSet rowSetWithRows( int size ) {
+    RowSet rowSet = mock( RowSet.class );
+    when( rowSet.size() ).thenReturn( size );
+    return rowSet;
+  }
+
+  private static DatabaseMeta quotingDatabaseMeta() {
+    DatabaseMeta databaseMeta = mock( DatabaseMeta.class );
+    when( databaseMeta.quoteField( anyString() ) ).thenAnswer( invocation -> "\"" + invocation.getArgument( 0 ) + "\"" );
+    return databaseMeta;
+  }
+}
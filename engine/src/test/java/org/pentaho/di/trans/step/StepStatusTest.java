@@ -12,9 +12,16 @@
 
 package org.pentaho.di.trans.step;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.junit.Test;
+import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class StepStatusTest {
 
@@ -25,4 +32,35 @@ public class StepStatusTest {
     String[] overrides = status.getTransLogFields( "Override" );
     assertEquals( "Override", overrides[10] );
   }
+
+  @Test
+  public void testStepMetricsAreAddedUpAndSerialized() throws Exception {
+    Map<String, Long> metrics = new LinkedHashMap<>();
+    metrics.put( "batches", 2L );
+    metrics.put( "batchRows", 2000L );
+
+    StepInterface step = mock( StepInterface.class );
+    when( step.getStepname() ).thenReturn( "step" );
+    when( step.getStatus() ).thenReturn( StepExecutionStatus.STATUS_FINISHED );
+    when( step.getStepMetrics() ).thenReturn( metrics );
+
+    StepStatus status = new StepStatus( step );
+    status.updateAll( step );
+    assertEquals( Long.valueOf( 4 ), status.getStepMetrics().get( "batches" ) );
+    assertEquals( Long.valueOf( 4000 ), status.getStepMetrics().get( "batchRows" ) );
+
+    StepStatus copy = new StepStatus().fromXML( status.getXML() );
+    assertEquals( status.getStepMetrics(), copy.getStepMetrics() );
+  }
+
+  @Test
+  public void testPartitionRows() {
+    StepStatus status = new StepStatus();
+    assertArrayEquals( new long[0], status.getPartitionRows() );
+
+    status.getStepMetrics().put( BaseStep.METRIC_MEMORY_PEAK, 1024L );
+    status.getStepMetrics().put( BaseStep.METRIC_PARTITION_ROWS + "2", 30L );
+    status.getStepMetrics().put( BaseStep.METRIC_PARTITION_ROWS + "0", 10L );
+    assertArrayEquals( new long[] { 10L, 0L, 30L }, status.getPartitionRows() );
+  }
 }
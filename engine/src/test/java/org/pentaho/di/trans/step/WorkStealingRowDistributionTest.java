@@ -0,0 +1,55 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.SharedQueueRowSet;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WorkStealingRowDistributionTest {
+
+  @Test
+  public void testRowsGoToTheRowSetsWithRoom() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    List<RowSet> rowSets = new ArrayList<RowSet>( SharedQueueRowSet.createGroup( 2, 4 ) );
+
+    StepInterface step = mock( StepInterface.class );
+    when( step.getOutputRowSets() ).thenReturn( rowSets );
+    when( step.getLinesWritten() ).thenReturn( 0L, 1L, 2L, 3L );
+
+    WorkStealingRowDistribution distribution = new WorkStealingRowDistribution();
+    for ( long i = 0; i < 4; i++ ) {
+      distribution.distributeRow( rowMeta, new Object[] { i }, step );
+    }
+    assertEquals( 4, rowSets.get( 0 ).size() );
+
+    // A single copy can take all the rows
+    for ( long i = 0; i < 4; i++ ) {
+      assertEquals( i, rowSets.get( 1 ).getRowImmediate()[0] );
+    }
+    assertEquals( 4, ( (SharedQueueRowSet) rowSets.get( 1 ) ).getRowsTaken() );
+    assertEquals( 0, ( (SharedQueueRowSet) rowSets.get( 0 ) ).getRowsTaken() );
+  }
+}
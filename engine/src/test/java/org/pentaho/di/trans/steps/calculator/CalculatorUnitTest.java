@@ -211,6 +211,49 @@ public class CalculatorUnitTest {
     }
   }
 
+  @Test
+  public void testRowBatchArithmetic() throws KettleException {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "A" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "B" ) );
+
+    RowSet inputRowSet = smh.getMockInputRowSet( new Object[][] { { 3L, 4L }, { null, 5L } } );
+    inputRowSet.setRowMeta( inputRowMeta );
+
+    Calculator calculator = new Calculator( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
+    calculator.addRowSetToInputRowSets( inputRowSet );
+    calculator.setInputRowMeta( inputRowMeta );
+    calculator.init( smh.initStepMetaInterface, smh.initStepDataInterface );
+    calculator.setVariable( Const.KETTLE_ROW_BATCH_SIZE, "100" );
+
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.setCalculation( new CalculatorMetaFunction[] {
+      new CalculatorMetaFunction( "sum", CalculatorMetaFunction.CALC_ADD, "A", "B", null,
+        ValueMetaInterface.TYPE_INTEGER, 0, 0, false, "", "", "", "" ),
+      new CalculatorMetaFunction( "product", CalculatorMetaFunction.CALC_MULTIPLY, "A", "B", null,
+        ValueMetaInterface.TYPE_INTEGER, 0, 0, true, "", "", "", "" ),
+      new CalculatorMetaFunction( "copy", CalculatorMetaFunction.CALC_COPY_OF_FIELD, "product", null, null,
+        ValueMetaInterface.TYPE_INTEGER, 0, 0, false, "", "", "", "" ) } );
+
+    final List<Object[]> written = new ArrayList<>();
+    calculator.addRowListener( new RowAdapter() {
+      @Override public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) {
+        assertEquals( 4, rowMeta.size() );
+        written.add( row );
+      }
+    } );
+    CalculatorData data = new CalculatorData();
+    while ( calculator.processRow( meta, data ) ) {
+      // keep going until the input is exhausted
+    }
+
+    assertEquals( 2, written.size() );
+    assertEquals( 7L, written.get( 0 )[ 2 ] );
+    assertEquals( 12L, written.get( 0 )[ 3 ] );
+    assertEquals( null, written.get( 1 )[ 2 ] );
+    assertEquals( null, written.get( 1 )[ 3 ] );
+  }
+
   @Test
   public void calculatorShouldClearDataInstance() throws Exception {
     RowMeta inputRowMeta = new RowMeta();
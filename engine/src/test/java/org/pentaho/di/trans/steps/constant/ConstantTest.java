@@ -13,21 +13,30 @@
 
 package org.pentaho.di.trans.steps.constant;
 
+import java.util.ArrayList;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowBatchRowSet;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettlePluginException;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaPluginType;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 import org.pentaho.di.trans.steps.mock.StepMockHelper;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
@@ -88,4 +97,51 @@ public class ConstantTest {
     boolean success = constantSpy.processRow( constantMeta, constantData );
     assertFalse( success );
   }
+
+  @Test
+  public void testProcessRowBatch() throws Exception {
+    ConstantMeta meta = new ConstantMeta();
+    meta.allocate( 1 );
+    meta.getFieldName()[0] = "constant";
+    meta.getFieldType()[0] = "String";
+    meta.getValue()[0] = "value";
+    meta.getFieldLength()[0] = -1;
+    meta.getFieldPrecision()[0] = -1;
+    assertTrue( meta.isReadingRowBatches() );
+    assertTrue( meta.isWritingRowBatches() );
+    when( mockHelper.stepMeta.getStepMetaInterface() ).thenReturn( meta );
+
+    ConstantData data = new ConstantData();
+    data.firstRow = true;
+    data.constants = Constant.buildRow( meta, data, new ArrayList<>() );
+    Constant constant = new Constant( mockHelper.stepMeta, data, 0, mockHelper.transMeta, mockHelper.trans );
+    constant.setVariable( Const.KETTLE_ROW_BATCH_SIZE, "10" );
+
+    RowMetaInterface inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowBatch input = new RowBatch( inputRowMeta, 10 );
+    input.addRow( new Object[] { 1L } );
+    input.addRow( new Object[] { 2L } );
+    RowBatchRowSet inputRowSet = new RowBatchRowSet( 10 );
+    inputRowSet.putRowBatch( inputRowMeta, input );
+    inputRowSet.setDone();
+    RowBatchRowSet outputRowSet = new RowBatchRowSet( 10 );
+    constant.addRowSetToInputRowSets( inputRowSet );
+    constant.addRowSetToOutputRowSets( outputRowSet );
+
+    assertTrue( constant.processRow( meta, data ) );
+    assertFalse( constant.processRow( meta, data ) );
+
+    // The input column is shared, the constant is a single repeating value
+    RowBatch output = outputRowSet.getRowBatchImmediate();
+    assertEquals( 2, output.size() );
+    assertSame( input.getColumn( 0 ), output.getColumn( 0 ) );
+    assertTrue( output.getColumn( 1 ).isRepeating() );
+    assertEquals( 2L, output.getRow( 1 )[0] );
+    assertEquals( "value", output.getRow( 1 )[1] );
+    assertEquals( 2, outputRowSet.getRowMeta().size() );
+    assertTrue( outputRowSet.isDone() );
+    assertEquals( 2, constant.getLinesRead() );
+    assertEquals( 2, constant.getLinesWritten() );
+  }
 }
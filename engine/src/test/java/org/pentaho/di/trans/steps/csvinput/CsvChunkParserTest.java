@@ -0,0 +1,136 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CsvChunkParserTest {
+
+  private final CsvChunkParser parser = new CsvChunkParser( (byte) ',', new byte[] { '"' }, 3 );
+
+  private static ByteBuffer buffer( String data ) {
+    return ByteBuffer.wrap( data.getBytes( StandardCharsets.UTF_8 ) ).order( ByteOrder.LITTLE_ENDIAN );
+  }
+
+  private static String string( byte[] field ) {
+    return field == null ? null : new String( field, StandardCharsets.UTF_8 );
+  }
+
+  private static void assertFields( byte[][] fields, String... expected ) {
+    for ( int i = 0; i < expected.length; i++ ) {
+      assertEquals( "field " + i, expected[i], string( fields[i] ) );
+    }
+  }
+
+  @Test
+  public void testSupportedFormats() {
+    assertTrue( CsvChunkParser.isSupported( new byte[] { ';' }, null, 1 ) );
+    assertTrue( CsvChunkParser.isSupported( new byte[] { ';' }, new byte[] { '"' }, 1 ) );
+    assertFalse( CsvChunkParser.isSupported( new byte[] { '|', '|' }, null, 1 ) );
+    assertFalse( CsvChunkParser.isSupported( new byte[] { ';' }, new byte[] { '"', '!' }, 1 ) );
+    assertFalse( CsvChunkParser.isSupported( new byte[] { 0, ';' }, null, 2 ) );
+  }
+
+  @Test
+  public void testIndexOfFindsFirstMatchInEveryPosition() {
+    long comma = 0x2C2C2C2C2C2C2C2CL;
+    for ( int i = 0; i < 20; i++ ) {
+      StringBuilder data = new StringBuilder();
+      for ( int j = 0; j < 20; j++ ) {
+        data.append( j == i || j == 17 ? ',' : 'x' );
+      }
+      assertEquals( Math.min( i, 17 ), CsvChunkParser.indexOf( buffer( data.toString() ), 0, 20, comma, comma, comma ) );
+    }
+    assertEquals( 5, CsvChunkParser.indexOf( buffer( "xxxxx" ), 0, 5, comma, comma, comma ) );
+  }
+
+  @Test
+  public void testRows() {
+    ByteBuffer buffer = buffer( "a,bb,ccc\ndddd,,\r\n" );
+    byte[][] fields = new byte[3][];
+
+    int next = parser.parseRow( buffer, 0, buffer.limit(), true, fields );
+    assertEquals( 9, next );
+    assertFields( fields, "a", "bb", "ccc" );
+
+    assertEquals( buffer.limit(), parser.parseRow( buffer, next, buffer.limit(), true, fields ) );
+    assertFields( fields, "dddd", "", "" );
+  }
+
+  @Test
+  public void testMissingAndExtraFields() {
+    ByteBuffer buffer = buffer( "a\nb,c,d,e,f\n\n\ng," );
+    byte[][] fields = new byte[3][];
+
+    int next = parser.parseRow( buffer, 0, buffer.limit(), true, fields );
+    assertFields( fields, "a", null, null );
+
+    // The extra fields and the empty lines after them are skipped
+    next = parser.parseRow( buffer, next, buffer.limit(), true, fields );
+    assertFields( fields, "b", "c", "d" );
+    assertEquals( 14, next );
+
+    assertEquals( buffer.limit(), parser.parseRow( buffer, next, buffer.limit(), true, fields ) );
+    assertFields( fields, "g", null, null );
+  }
+
+  @Test
+  public void testEnclosures() {
+    ByteBuffer buffer = buffer( "\"a,\"\"b\"\"\nc\",d\"e,\"f\"x\n" );
+    byte[][] fields = new byte[3][];
+
+    assertEquals( buffer.limit(), parser.parseRow( buffer, 0, buffer.limit(), true, fields ) );
+    assertFields( fields, "a,\"b\"\nc", "d\"e", "f\"" );
+  }
+
+  @Test
+  public void testIncompleteRow() {
+    ByteBuffer buffer = buffer( "a,\"b\nc\",d\r\n" );
+    byte[][] fields = new byte[3][];
+
+    assertEquals( CsvChunkParser.INCOMPLETE, parser.parseRow( buffer, 0, 5, false, fields ) );
+    assertEquals( CsvChunkParser.INCOMPLETE, parser.parseRow( buffer, 0, 10, false, fields ) );
+    assertEquals( 11, parser.parseRow( buffer, 0, 11, false, fields ) );
+    assertFields( fields, "a", "b\nc", "d" );
+  }
+
+  @Test
+  public void testSkipLine() {
+    ByteBuffer buffer = buffer( "abc\r\ndef\rg" );
+    assertEquals( 5, parser.skipLine( buffer, 0, buffer.limit(), false ) );
+    assertEquals( 9, parser.skipLine( buffer, 5, buffer.limit(), false ) );
+    assertEquals( CsvChunkParser.INCOMPLETE, parser.skipLine( buffer, 9, buffer.limit(), false ) );
+    assertEquals( buffer.limit(), parser.skipLine( buffer, 9, buffer.limit(), true ) );
+  }
+
+  @Test
+  public void testWithoutEnclosure() {
+    CsvChunkParser plain = new CsvChunkParser( (byte) ';', null, 2 );
+    ByteBuffer buffer = buffer( "\"a;b\"\n" );
+    byte[][] fields = new byte[2][];
+
+    assertEquals( buffer.limit(), plain.parseRow( buffer, 0, buffer.limit(), true, fields ) );
+    assertArrayEquals( "\"a".getBytes( StandardCharsets.UTF_8 ), fields[0] );
+    assertEquals( "b\"", string( fields[1] ) );
+  }
+}
@@ -15,6 +15,7 @@ package org.pentaho.di.trans.steps.csvinput;
 
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 import org.pentaho.di.trans.steps.textfileinput.TextFileInputField;
@@ -38,6 +39,20 @@ public class CsvInputContentParsingTest extends BaseCsvParsingTest {
     check( new Object[][] { { "first", "1", "1.1" }, { "second", "2", "2.2" }, { "third", "3", "3.3" } } );
   }
 
+  @Test
+  public void testDefaultOptionsOnScanThreads() throws Exception {
+    init( "default.csv" );
+    step.setVariable( Const.KETTLE_CSV_INPUT_SCAN_THREADS, "2" );
+    step.setVariable( Const.KETTLE_CSV_INPUT_SCAN_CHUNK_SIZE, "7" );
+
+    setFields( new TextFileInputField( "Field 1", -1, -1 ), new TextFileInputField( "Field 2", -1, -1 ),
+        new TextFileInputField( "Field 3", -1, -1 ) );
+
+    process();
+
+    check( new Object[][] { { "first", "1", "1.1" }, { "second", "2", "2.2" }, { "third", "3", "3.3" } } );
+  }
+
   @Test
   public void testColumnNameWithSpaces() throws Exception {
     init( "column_name_with_spaces.csv" );
@@ -22,13 +22,18 @@ import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.FieldUsageInterface;
+import org.pentaho.di.trans.step.RowAdapter;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.steps.StepMockUtil;
 import org.pentaho.di.trans.steps.mock.StepMockHelper;
 import org.pentaho.di.trans.steps.textfileinput.TextFileInputField;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -94,6 +99,59 @@ public class CsvInputTest extends CsvInputUnitTestBase {
     assertFalse( tmpFile.exists() );
   }
 
+  @Test
+  public void testFieldsAreSkippedOrKeptBinaryAsTheNextStepsUseThem() throws Exception {
+    RowSet output = processWithFieldUsage( false );
+
+    Object[] row = output.getRow();
+    assertNull( row[0] );
+    assertTrue( output.getRowMeta().getValueMeta( 1 ).isStorageBinaryString() );
+    assertArrayEquals( "b".getBytes( ENCODING ), (byte[]) row[1] );
+    assertEquals( "b", output.getRowMeta().getString( row, 1 ) );
+    assertEquals( "c", row[2] );
+    assertNull( output.getRow() );
+  }
+
+  @Test
+  public void testFieldUsageIsIgnoredWithRowListeners() throws Exception {
+    RowSet output = processWithFieldUsage( true );
+
+    Object[] row = output.getRow();
+    assertEquals( "a", row[0] );
+    assertFalse( output.getRowMeta().getValueMeta( 1 ).isStorageBinaryString() );
+    assertEquals( "b", row[1] );
+    assertEquals( "c", row[2] );
+  }
+
+  /**
+   * Read a line with 3 fields: the next steps don't use the first one, only copy the second one and read the third.
+   */
+  private RowSet processWithFieldUsage( boolean withRowListener ) throws Exception {
+    Map<String, Integer> usage = new HashMap<>();
+    usage.put( "f1", FieldUsageInterface.USAGE_NONE );
+    usage.put( "f2", FieldUsageInterface.USAGE_COPY );
+    usage.put( "f3", FieldUsageInterface.USAGE_READ );
+    when( stepMockHelper.trans.getDownstreamFieldUsage( any() ) ).thenReturn( usage );
+
+    File tmpFile = createTestFile( ENCODING, "a" + DELIMITER + "b" + DELIMITER + "c" );
+    CsvInputMeta meta = createMeta( tmpFile, createInputFileFields( "f1", "f2", "f3" ) );
+    CsvInputData data = new CsvInputData();
+    RowSet output = new QueueRowSet();
+    CsvInput csvInput =
+      new CsvInput( stepMockHelper.stepMeta, stepMockHelper.stepDataInterface, 0, stepMockHelper.transMeta,
+        stepMockHelper.trans );
+    csvInput.init( meta, data );
+    csvInput.addRowSetToOutputRowSets( output );
+    if ( withRowListener ) {
+      csvInput.addRowListener( new RowAdapter() );
+    }
+    while ( csvInput.processRow( meta, data ) ) {
+      // read the whole file
+    }
+    csvInput.dispose( meta, data );
+    return output;
+  }
+
   @Test
   public void testFilenameValidatorForInputFilesConnectedToRep() {
     CsvInput csvInput = mock( CsvInput.class );
@@ -0,0 +1,154 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MappedCsvReaderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool( 3 );
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private File file( String content ) throws Exception {
+    File file = folder.newFile();
+    Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+    return file;
+  }
+
+  private List<String> read( File file, int nrFields, boolean header, long dataStart, long chunkSize )
+    throws Exception {
+    List<String> rows = new ArrayList<>();
+    try ( MappedCsvReader reader = new MappedCsvReader( file.getPath(), dataStart, header,
+      new CsvChunkParser( (byte) ',', new byte[] { '"' }, nrFields ), UnnamedFieldsMapping.mapping( nrFields ), null,
+      nrFields, executor, 3, chunkSize ) ) {
+      for ( Object[] row = reader.nextRow(); row != null; row = reader.nextRow() ) {
+        StringBuilder line = new StringBuilder();
+        for ( int i = 0; i < nrFields; i++ ) {
+          line.append( i > 0 ? "|" : "" ).append( row[i] == null ? "null" : new String( (byte[]) row[i],
+            StandardCharsets.UTF_8 ) );
+        }
+        rows.add( line.toString() );
+      }
+    }
+    return rows;
+  }
+
+  @Test
+  public void testSameRowsForEveryChunkSize() throws Exception {
+    StringBuilder content = new StringBuilder( "id,name\n" );
+    for ( int i = 0; i < 200; i++ ) {
+      content.append( i ).append( ",\"name " ).append( i ).append( i % 7 == 0 ? "\nsecond line\"" : "\"" );
+      content.append( i % 5 == 0 ? "\r\n" : "\n" );
+    }
+    File file = file( content.toString() );
+
+    List<String> expected = read( file, 2, true, 0, MappedCsvReader.DEFAULT_CHUNK_SIZE );
+    assertEquals( 200, expected.size() );
+    assertEquals( "0|name 0\nsecond line", expected.get( 0 ) );
+    assertEquals( "1|name 1", expected.get( 1 ) );
+
+    for ( long chunkSize = 1; chunkSize < 64; chunkSize += 3 ) {
+      assertEquals( "chunk size " + chunkSize, expected, read( file, 2, true, 0, chunkSize ) );
+    }
+  }
+
+  @Test
+  public void testLineEndInFieldIsParsedAgain() throws Exception {
+    File file = file( "a,\"b\nc,d\ne\"\nf,g\n" );
+    try ( MappedCsvReader reader = new MappedCsvReader( file.getPath(), 0, false,
+      new CsvChunkParser( (byte) ',', new byte[] { '"' }, 2 ), UnnamedFieldsMapping.mapping( 2 ), null, 2, executor,
+      3, 6 ) ) {
+      assertEquals( "b\nc,d\ne", new String( (byte[]) reader.nextRow()[1], StandardCharsets.UTF_8 ) );
+      assertEquals( "f", new String( (byte[]) reader.nextRow()[0], StandardCharsets.UTF_8 ) );
+      assertNull( reader.nextRow() );
+      assertTrue( reader.getChunksParsedAgain() > 0 );
+    }
+  }
+
+  @Test
+  public void testDataStartAndEmptyFile() throws Exception {
+    File file = file( "\uFEFFa,b\n" );
+    List<String> rows = read( file, 2, false, 3, 2 );
+    assertEquals( 1, rows.size() );
+    assertEquals( "a|b", rows.get( 0 ) );
+
+    assertTrue( read( file( "" ), 2, false, 0, 2 ).isEmpty() );
+    assertTrue( read( file( "header\n" ), 2, true, 0, 2 ).isEmpty() );
+  }
+
+  @Test
+  public void testConversionErrors() throws Exception {
+    ValueMetaInterface valueMeta = mock( ValueMetaInterface.class );
+    when( valueMeta.convertBinaryStringToNativeType( any( byte[].class ) ) ).thenAnswer( invocation -> {
+      String value = new String( (byte[]) invocation.getArgument( 0 ), StandardCharsets.UTF_8 );
+      if ( !value.matches( "[0-9]+" ) ) {
+        throw new KettleValueException( "Not a number: " + value );
+      }
+      return Long.valueOf( value );
+    } );
+    RowMetaInterface convertRowMeta = mock( RowMetaInterface.class );
+    when( convertRowMeta.clone() ).thenReturn( convertRowMeta );
+    when( convertRowMeta.getValueMeta( 0 ) ).thenReturn( valueMeta );
+
+    File file = file( "1\nx\n3\n" );
+    try ( MappedCsvReader reader = new MappedCsvReader( file.getPath(), 0, false,
+      new CsvChunkParser( (byte) ',', null, 1 ), UnnamedFieldsMapping.mapping( 1 ), convertRowMeta, 1, executor, 3,
+      2 ) ) {
+      assertEquals( 1L, reader.nextRow()[0] );
+      assertNull( reader.getConversionErrors() );
+
+      assertNull( reader.nextRow()[0] );
+      assertEquals( 1, reader.getConversionErrors().size() );
+      assertEquals( valueMeta, reader.getConversionErrorFields().get( 0 ) );
+
+      assertEquals( 3L, reader.nextRow()[0] );
+      assertNull( reader.getConversionErrors() );
+      assertNull( reader.nextRow() );
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.memory.MemoryGrant;
+import org.pentaho.di.core.memory.MemoryManager;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentLookupCacheTest {
+
+  private static final RowMetaInterface KEY_META = new RowMeta();
+
+  static {
+    KEY_META.addValueMeta( new ValueMetaInteger( "id" ) );
+  }
+
+  private static RowMetaAndData key( long id ) {
+    return new RowMetaAndData( KEY_META, new Object[] { id } );
+  }
+
+  @Test
+  public void testGetAndPut() {
+    ConcurrentLookupCache cache = new ConcurrentLookupCache( 10, null );
+    assertNull( cache.get( key( 1L ) ) );
+
+    assertEquals( 0, cache.put( key( 1L ), new Object[] { "one" } ) );
+    assertArrayEquals( new Object[] { "one" }, cache.get( key( 1L ) ) );
+
+    // The first row stored for a key is kept
+    assertEquals( 0, cache.put( key( 1L ), new Object[] { "other" } ) );
+    assertArrayEquals( new Object[] { "one" }, cache.get( key( 1L ) ) );
+    assertEquals( 1, cache.size() );
+  }
+
+  @Test
+  public void testSizeIsBounded() {
+    ConcurrentLookupCache cache = new ConcurrentLookupCache( 100, null );
+    int evicted = 0;
+    for ( long i = 0; i < 1000; i++ ) {
+      evicted += cache.put( key( i ), new Object[] { i } );
+    }
+    assertEquals( 100, cache.size() );
+    assertEquals( 900, evicted );
+  }
+
+  @Test
+  public void testNoLimit() {
+    ConcurrentLookupCache cache = new ConcurrentLookupCache( 0, null );
+    for ( long i = 0; i < 1000; i++ ) {
+      assertEquals( 0, cache.put( key( i ), new Object[] { i } ) );
+    }
+    assertEquals( 1000, cache.size() );
+  }
+
+  @Test
+  public void testFrequentKeysSurviveScan() {
+    ConcurrentLookupCache cache = new ConcurrentLookupCache( 100, null );
+    long scanKey = 1000000L;
+    int hotHits = 0;
+    int hotLookups = 0;
+    for ( int i = 0; i < 20000; i++ ) {
+      // Two keys that are only used once for every lookup of one of 50 frequent keys: a plain LRU cache of 100 entries
+      // never has a frequent key left by the time it is used again.
+      for ( int j = 0; j < 2; j++ ) {
+        RowMetaAndData once = key( scanKey++ );
+        if ( cache.get( once ) == null ) {
+          cache.put( once, new Object[] { "once" } );
+        }
+      }
+      RowMetaAndData hot = key( i % 50 );
+      hotLookups++;
+      if ( cache.get( hot ) != null ) {
+        hotHits++;
+      } else {
+        cache.put( hot, new Object[] { "hot" } );
+      }
+    }
+    assertTrue( "Hit ratio of the frequent keys too low: " + hotHits + "/" + hotLookups, hotHits > hotLookups * 0.9 );
+    assertEquals( 100, cache.size() );
+  }
+
+  @Test
+  public void testMemoryIsReservedAndReleased() {
+    MemoryManager memoryManager = new MemoryManager( "test", Long.MAX_VALUE );
+    MemoryGrant grant = memoryManager.createGrant( "cache", true );
+    ConcurrentLookupCache cache = new ConcurrentLookupCache( 10, grant );
+    for ( long i = 0; i < 10; i++ ) {
+      cache.put( key( i ), new Object[] { i } );
+    }
+    long full = grant.getReserved();
+    assertTrue( full > 0 );
+
+    // Evictions give back the memory of the removed entries
+    for ( long i = 10; i < 100; i++ ) {
+      cache.put( key( i ), new Object[] { i } );
+    }
+    assertEquals( full, grant.getReserved() );
+
+    cache.close();
+    assertEquals( 0, cache.size() );
+    assertEquals( 0L, grant.getReserved() );
+    assertEquals( 0L, memoryManager.getReserved() );
+  }
+
+  @Test
+  public void testRefusedMemory() {
+    long entrySize = MemoryManager.estimateRowSize( new Object[] { 1L } ) * 2;
+    MemoryManager memoryManager = new MemoryManager( "test", entrySize * 5 );
+    ConcurrentLookupCache cache = new ConcurrentLookupCache( 100, memoryManager.createGrant( "cache", true ) );
+    for ( long i = 0; i < 10; i++ ) {
+      cache.put( key( i ), new Object[] { i } );
+    }
+    assertEquals( 5, cache.size() );
+  }
+
+  @Test( timeout = 60000 )
+  public void testConcurrentLookups() throws Exception {
+    final ConcurrentLookupCache cache = new ConcurrentLookupCache( 500, null );
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Thread> threads = new ArrayList<>();
+    for ( int t = 0; t < 4; t++ ) {
+      final Random random = new Random( t );
+      Thread thread = new Thread( () -> {
+        try {
+          for ( int i = 0; i < 200000; i++ ) {
+            long id = (long) Math.abs( random.nextGaussian() * 1000 );
+            Object[] row = cache.get( key( id ) );
+            if ( row == null ) {
+              cache.put( key( id ), new Object[] { id } );
+            } else if ( !Long.valueOf( id ).equals( row[0] ) ) {
+              throw new AssertionError( "Wrong row for key " + id );
+            }
+          }
+        } catch ( Throwable e ) {
+          failure.set( e );
+        }
+      } );
+      threads.add( thread );
+      thread.start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+    assertNull( failure.get() );
+    assertEquals( 500, cache.size() );
+  }
+}
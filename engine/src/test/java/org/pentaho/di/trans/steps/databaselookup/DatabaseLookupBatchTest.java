@@ -0,0 +1,249 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.OngoingStubbing;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.ProgressMonitorListener;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.MySQLDatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.step.LookupBatch;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.steps.StepMockUtil;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Looks up the keys of a batch of rows with one query, see {@link LookupBatch}.
+ */
+public class DatabaseLookupBatchTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "DatabaseLookupBatchTest";
+
+  private StepMockHelper<DatabaseLookupMeta, StepDataInterface> helper;
+  private DatabaseLookupMeta meta;
+  private DatabaseLookupData data;
+  private DatabaseLookup step;
+  private Database db;
+  private RowMetaInterface inputRowMeta;
+  private RowMetaInterface foundRowMeta;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    helper = StepMockUtil.getStepMockHelper( DatabaseLookupMeta.class, STEP_NAME );
+
+    MySQLDatabaseMeta mysql = new MySQLDatabaseMeta();
+    mysql.setName( "MySQL" );
+    DatabaseMeta dbMeta = new DatabaseMeta();
+    dbMeta.setDatabaseInterface( mysql );
+
+    meta = new DatabaseLookupMeta();
+    meta.setDatabaseMeta( dbMeta );
+    meta.setTablename( "lookup" );
+    meta.setTableKeyField( new String[] { "id" } );
+    meta.setKeyCondition( new String[] { "=" } );
+    meta.setStreamKeyField1( new String[] { "id" } );
+    meta.setStreamKeyField2( new String[] { null } );
+    meta.setReturnValueField( new String[] { "name" } );
+    meta.setReturnValueNewName( new String[] { "name" } );
+    meta.setReturnValueDefault( new String[] { null } );
+    meta.setReturnValueDefaultType( new int[] { ValueMetaInterface.TYPE_STRING } );
+
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    foundRowMeta = new RowMeta();
+    foundRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    foundRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    db = mock( Database.class );
+    when( db.getReturnRowMeta() ).thenReturn( foundRowMeta );
+
+    data = new DatabaseLookupData();
+    data.db = db;
+    data.keynrs = new int[] { 0 };
+    data.keynrs2 = new int[] { -1 };
+    data.conditions = new int[] { DatabaseLookupMeta.CONDITION_EQ };
+    data.nullif = new Object[] { null };
+    data.lookupMeta = new RowMeta();
+    data.lookupMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    data.returnMeta = new RowMeta();
+    data.returnMeta.addValueMeta( new ValueMetaString( "name" ) );
+    data.outputRowMeta = foundRowMeta.clone();
+  }
+
+  @After
+  public void cleanUp() {
+    helper.cleanUp();
+  }
+
+  @Test
+  public void testRowsKeepTheirOrderWithinABatch() throws Exception {
+    // The database returns the keys in another order than the rows ask for them
+    whenRowsAreQueried().thenReturn( Arrays.asList(
+      new Object[] { 1L, "one" }, new Object[] { 2L, "two" }, new Object[] { 3L, "three" } ) );
+
+    RowSet output = runStep( 10, 3L, 1L, 4L, 2L, 1L );
+
+    assertOutput( output, new Object[] { 3L, "three" }, new Object[] { 1L, "one" }, new Object[] { 4L, null },
+      new Object[] { 2L, "two" }, new Object[] { 1L, "one" } );
+    verify( db, times( 1 ) ).getRows( anyString(), any( RowMetaInterface.class ), any( Object[].class ), anyInt(),
+      anyBoolean(), anyInt(), nullable( ProgressMonitorListener.class ) );
+    verify( db, never() ).getLookup( anyBoolean() );
+  }
+
+  @Test
+  public void testFirstRowCountsWhenNotFailingOnMultipleResults() throws Exception {
+    whenRowsAreQueried().thenReturn( Arrays.asList(
+      new Object[] { 1L, "first" }, new Object[] { 1L, "second" }, new Object[] { 2L, "two" } ) );
+
+    RowSet output = runStep( 10, 1L, 2L );
+
+    assertOutput( output, new Object[] { 1L, "first" }, new Object[] { 2L, "two" } );
+  }
+
+  @Test
+  public void testMultipleResultsFailTheRowThatLooksThemUp() throws Exception {
+    meta.setFailingOnMultipleResults( true );
+    whenRowsAreQueried().thenReturn( Arrays.asList(
+      new Object[] { 2L, "two" }, new Object[] { 1L, "first" }, new Object[] { 1L, "second" } ) );
+
+    RowSet output = runStep( 10, 2L, 1L, 2L );
+
+    // The row before the failing one is passed on, the step stops at the failing one
+    assertOutput( output, new Object[] { 2L, "two" } );
+    assertEquals( 1, step.getErrors() );
+    assertTrue( output.isDone() );
+  }
+
+  @Test
+  public void testFallsBackToSingleRowLookups() throws Exception {
+    whenRowsAreQueried().thenThrow( new KettleDatabaseException( "Too many parameters" ) );
+    RowMetaInterface returnRowMeta = data.returnMeta.clone();
+    when( db.getReturnRowMeta() ).thenReturn( returnRowMeta );
+    when( db.getLookup( anyBoolean() ) ).thenReturn( new Object[] { "two" }, new Object[] { "one" } );
+
+    RowSet output = runStep( 10, 2L, 1L );
+
+    assertOutput( output, new Object[] { 2L, "two" }, new Object[] { 1L, "one" } );
+    verify( db, times( 2 ) ).getLookup( anyBoolean() );
+  }
+
+  @Test
+  public void testKeysArePaddedToAPowerOfTwoUpToTheParameterLimit() throws Exception {
+    int nrKeys = LookupBatch.MAX_PARAMETERS + 3;
+    whenRowsAreQueried().thenReturn( new ArrayList<Object[]>() );
+    Long[] ids = new Long[ nrKeys ];
+    for ( int i = 0; i < nrKeys; i++ ) {
+      ids[ i ] = (long) i;
+    }
+
+    RowSet output = runStep( nrKeys, ids );
+
+    assertEquals( nrKeys, output.size() );
+    ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+    ArgumentCaptor<Object[]> parameters = ArgumentCaptor.forClass( Object[].class );
+    verify( db, times( 2 ) ).getRows( sql.capture(), any( RowMetaInterface.class ), parameters.capture(), anyInt(),
+      anyBoolean(), anyInt(), nullable( ProgressMonitorListener.class ) );
+
+    // A full query, then the 3 keys left padded to 4 by repeating the last one
+    assertEquals( LookupBatch.MAX_PARAMETERS, parameters.getAllValues().get( 0 ).length );
+    assertEquals( LookupBatch.MAX_PARAMETERS, countParameters( sql.getAllValues().get( 0 ) ) );
+    Object[] padded = parameters.getAllValues().get( 1 );
+    assertEquals( 4, padded.length );
+    assertEquals( 4, countParameters( sql.getAllValues().get( 1 ) ) );
+    assertEquals( (long) nrKeys - 1, padded[ 2 ] );
+    assertEquals( (long) nrKeys - 1, padded[ 3 ] );
+  }
+
+  private OngoingStubbing<List<Object[]>> whenRowsAreQueried() throws Exception {
+    return when( db.getRows( anyString(), any( RowMetaInterface.class ), any( Object[].class ), anyInt(),
+      anyBoolean(), anyInt(), nullable( ProgressMonitorListener.class ) ) );
+  }
+
+  /**
+   * Run the step over rows with the given ids with a batch of the given size.
+   *
+   * @return the output of the step
+   */
+  private RowSet runStep( int batchSize, Long... ids ) throws Exception {
+    RowSet input = new BlockingRowSet( ids.length );
+    for ( Long id : ids ) {
+      input.putRow( inputRowMeta, new Object[] { id } );
+    }
+    input.setDone();
+    RowSet output = new BlockingRowSet( ids.length );
+
+    step = new DatabaseLookup( helper.stepMeta, helper.stepDataInterface, 0, helper.transMeta, helper.trans );
+    step.addRowSetToInputRowSets( input );
+    step.addRowSetToOutputRowSets( output );
+    step.first = false;
+    data.lookupBatch = new LookupBatch( batchSize, Long.MAX_VALUE );
+    while ( step.processRow( meta, data ) ) {
+      // keep going until the input is exhausted
+    }
+    return output;
+  }
+
+  private static void assertOutput( RowSet output, Object[]... expected ) {
+    for ( Object[] row : expected ) {
+      Object[] outputRow = output.getRowImmediate();
+      assertEquals( row[ 0 ], outputRow[ 0 ] );
+      assertEquals( row[ 1 ], outputRow[ 1 ] );
+    }
+    assertNull( output.getRowImmediate() );
+  }
+
+  private static int countParameters( String sql ) {
+    return sql.length() - sql.replace( "?", "" ).length();
+  }
+}
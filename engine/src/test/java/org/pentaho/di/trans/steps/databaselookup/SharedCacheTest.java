@@ -0,0 +1,72 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.trans.Trans;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SharedCacheTest {
+
+  @Test
+  public void testCopiesShareTheCache() throws Exception {
+    Map<String, Object> extensionData = new HashMap<>();
+    Trans trans = mock( Trans.class );
+    when( trans.getExtensionDataMap() ).thenReturn( extensionData );
+
+    DatabaseLookupData data1 = new DatabaseLookupData();
+    DatabaseLookupData data2 = new DatabaseLookupData();
+    SharedCache cache1 = SharedCache.acquire( trans, "lookup", data1, 2 );
+    SharedCache cache2 = SharedCache.acquire( trans, "lookup", data2, 2 );
+    SharedCache other = SharedCache.acquire( trans, "other lookup", new DatabaseLookupData(), 2 );
+    assertSame( cache1.getSharedCache(), cache2.getSharedCache() );
+    assertTrue( cache1.getSharedCache() != other.getSharedCache() );
+
+    RowMetaInterface lookupMeta1 = new RowMeta();
+    lookupMeta1.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowMetaInterface lookupMeta2 = lookupMeta1.clone();
+    DatabaseLookupMeta meta = mock( DatabaseLookupMeta.class );
+
+    cache1.storeRowInCache( meta, lookupMeta1, new Object[] { 1L }, new Object[] { "one" } );
+    assertArrayEquals( new Object[] { "one" }, cache2.getRowFromCache( lookupMeta2, new Object[] { 1L } ) );
+    assertNull( other.getRowFromCache( lookupMeta2, new Object[] { 1L } ) );
+
+    // Evictions are counted for the copy that stored the row
+    cache2.storeRowInCache( meta, lookupMeta2, new Object[] { 2L }, new Object[] { "two" } );
+    cache2.storeRowInCache( meta, lookupMeta2, new Object[] { 3L }, new Object[] { "three" } );
+    assertEquals( 0L, data1.cacheEvictions );
+    assertEquals( 1L, data2.cacheEvictions );
+
+    cache1.release( trans, "lookup" );
+    assertTrue( extensionData.containsKey( SharedCache.EXTENSION_DATA_KEY_PREFIX + "lookup" ) );
+    assertArrayEquals( new Object[] { "one" }, cache2.getRowFromCache( lookupMeta2, new Object[] { 1L } ) );
+    cache2.release( trans, "lookup" );
+    assertNull( extensionData.get( SharedCache.EXTENSION_DATA_KEY_PREFIX + "lookup" ) );
+    assertEquals( 0, cache2.getSharedCache().size() );
+    assertTrue( extensionData.containsKey( SharedCache.EXTENSION_DATA_KEY_PREFIX + "other lookup" ) );
+  }
+}
@@ -0,0 +1,242 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.dimensionlookup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.OngoingStubbing;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.ProgressMonitorListener;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.MySQLDatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.step.LookupBatch;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.steps.StepMockUtil;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Looks up the versions of the natural keys of a batch of rows with one query, see {@link LookupBatch}.
+ */
+public class DimensionLookupBatchTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "DimensionLookupBatchTest";
+  private static final Long NOT_FOUND_TK = 0L;
+
+  private StepMockHelper<DimensionLookupMeta, StepDataInterface> helper;
+  private DimensionLookupMeta meta;
+  private DimensionLookupData data;
+  private Database db;
+  private RowMetaInterface inputRowMeta;
+  private RowMetaInterface versionRowMeta;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    helper = StepMockUtil.getStepMockHelper( DimensionLookupMeta.class, STEP_NAME );
+
+    MySQLDatabaseMeta mysql = new MySQLDatabaseMeta();
+    mysql.setName( "MySQL" );
+    DatabaseMeta dbMeta = new DatabaseMeta();
+    dbMeta.setDatabaseInterface( mysql );
+
+    meta = new DimensionLookupMeta();
+    meta.setDatabaseMeta( dbMeta );
+    meta.setTableName( "dim" );
+    meta.setUpdate( false );
+    meta.setCacheSize( -1 );
+    meta.setKeyStream( new String[] { "id" } );
+    meta.setKeyLookup( new String[] { "natural_key" } );
+    meta.setKeyField( "tk" );
+    meta.setVersionField( "version" );
+    meta.setDateField( "date" );
+    meta.setDateFrom( "date_from" );
+    meta.setDateTo( "date_to" );
+
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    inputRowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+
+    // tk, version, date range and natural key, the way the batch query selects them
+    versionRowMeta = new RowMeta();
+    versionRowMeta.addValueMeta( new ValueMetaInteger( "tk" ) );
+    versionRowMeta.addValueMeta( new ValueMetaInteger( "version" ) );
+    versionRowMeta.addValueMeta( new ValueMetaDate( "date_from" ) );
+    versionRowMeta.addValueMeta( new ValueMetaDate( "date_to" ) );
+    versionRowMeta.addValueMeta( new ValueMetaInteger( "natural_key" ) );
+
+    db = mock( Database.class );
+    when( db.getReturnRowMeta() ).thenReturn( versionRowMeta );
+
+    data = new DimensionLookupData();
+    data.db = db;
+    data.inputRowMeta = inputRowMeta;
+    data.outputRowMeta = inputRowMeta.clone();
+    data.outputRowMeta.addValueMeta( new ValueMetaInteger( "tk" ) );
+    data.lazyList = new ArrayList<>();
+    data.keynrs = new int[] { 0 };
+    data.fieldnrs = new int[ 0 ];
+    data.datefieldnr = 1;
+    data.notFoundTk = NOT_FOUND_TK;
+    data.lookupRowMeta = new RowMeta();
+    data.lookupRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    data.lookupRowMeta.addValueMeta( new ValueMetaDate( "date_from" ) );
+    data.lookupRowMeta.addValueMeta( new ValueMetaDate( "date_to" ) );
+    data.batchKeyMeta = new RowMeta();
+    data.batchKeyMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    data.batchSelect = "SELECT tk, version, date_from, date_to, natural_key FROM dim WHERE ";
+    data.lookupColumnCount = 2;
+    data.lookupNullStartDate = false;
+  }
+
+  @After
+  public void cleanUp() {
+    helper.cleanUp();
+  }
+
+  @Test
+  public void testVersionValidAtTheDateOfEachRowIsPicked() throws Exception {
+    whenVersionsAreQueried().thenReturn( Arrays.asList(
+      new Object[] { 11L, 2L, year( 2010 ), year( 2200 ), 1L },
+      new Object[] { 10L, 1L, year( 2000 ), year( 2010 ), 1L },
+      new Object[] { 20L, 1L, year( 2000 ), year( 2200 ), 2L } ) );
+
+    RowSet output = runStep( 10,
+      new Object[] { 1L, year( 2015 ) },
+      new Object[] { 2L, year( 2005 ) },
+      new Object[] { 1L, year( 2005 ) },
+      new Object[] { 3L, year( 2005 ) },
+      new Object[] { 1L, year( 1990 ) },
+      new Object[] { 1L, year( 2010 ) } );
+
+    // Rows keep their order, a row without a valid version gets the unknown key
+    assertTechnicalKeys( output, 11L, 20L, 10L, NOT_FOUND_TK, NOT_FOUND_TK, 11L );
+    verify( db, times( 1 ) ).getRows( anyString(), any( RowMetaInterface.class ), any( Object[].class ), anyInt(),
+      anyBoolean(), anyInt(), nullable( ProgressMonitorListener.class ) );
+    verify( db, never() ).getLookup( nullable( PreparedStatement.class ) );
+  }
+
+  @Test
+  public void testFallsBackToSingleRowLookups() throws Exception {
+    whenVersionsAreQueried().thenThrow( new KettleDatabaseException( "Too many parameters" ) );
+    RowMetaInterface returnRowMeta = new RowMeta();
+    returnRowMeta.addValueMeta( new ValueMetaInteger( "tk" ) );
+    returnRowMeta.addValueMeta( new ValueMetaInteger( "version" ) );
+    when( db.getReturnRowMeta() ).thenReturn( returnRowMeta );
+    when( db.getLookup( nullable( PreparedStatement.class ) ) )
+      .thenReturn( new Object[] { 20L, 1L } ).thenReturn( null );
+
+    RowSet output = runStep( 10, new Object[] { 2L, year( 2005 ) }, new Object[] { 3L, year( 2005 ) } );
+
+    assertTechnicalKeys( output, 20L, NOT_FOUND_TK );
+    verify( db, times( 2 ) ).getLookup( nullable( PreparedStatement.class ) );
+  }
+
+  @Test
+  public void testKeysArePaddedToAPowerOfTwoUpToTheParameterLimit() throws Exception {
+    int nrKeys = LookupBatch.MAX_PARAMETERS + 3;
+    whenVersionsAreQueried().thenReturn( new ArrayList<Object[]>() );
+    Object[][] rows = new Object[ nrKeys ][];
+    for ( int i = 0; i < nrKeys; i++ ) {
+      rows[ i ] = new Object[] { (long) i, year( 2005 ) };
+    }
+
+    RowSet output = runStep( nrKeys, rows );
+
+    assertEquals( nrKeys, output.size() );
+    ArgumentCaptor<Object[]> parameters = ArgumentCaptor.forClass( Object[].class );
+    verify( db, times( 2 ) ).getRows( anyString(), any( RowMetaInterface.class ), parameters.capture(), anyInt(),
+      anyBoolean(), anyInt(), nullable( ProgressMonitorListener.class ) );
+    assertEquals( LookupBatch.MAX_PARAMETERS, parameters.getAllValues().get( 0 ).length );
+    assertEquals( Arrays.asList( 1000L, 1001L, 1002L, 1002L ), Arrays.asList( parameters.getAllValues().get( 1 ) ) );
+  }
+
+  private OngoingStubbing<List<Object[]>> whenVersionsAreQueried() throws Exception {
+    return when( db.getRows( anyString(), any( RowMetaInterface.class ), any( Object[].class ), anyInt(),
+      anyBoolean(), anyInt(), nullable( ProgressMonitorListener.class ) ) );
+  }
+
+  /**
+   * Run the step over the given rows with a batch of the given size.
+   *
+   * @return the output of the step
+   */
+  private RowSet runStep( int batchSize, Object[]... rows ) throws Exception {
+    RowSet input = new BlockingRowSet( rows.length );
+    for ( Object[] row : rows ) {
+      input.putRow( inputRowMeta, row );
+    }
+    input.setDone();
+    RowSet output = new BlockingRowSet( rows.length );
+
+    DimensionLookup step =
+      new DimensionLookup( helper.stepMeta, helper.stepDataInterface, 0, helper.transMeta, helper.trans );
+    step.addRowSetToInputRowSets( input );
+    step.addRowSetToOutputRowSets( output );
+    step.first = false;
+    data.lookupBatch = new LookupBatch( batchSize, Long.MAX_VALUE );
+    while ( step.processRow( meta, data ) ) {
+      // keep going until the input is exhausted
+    }
+    return output;
+  }
+
+  private static void assertTechnicalKeys( RowSet output, Long... expected ) {
+    for ( Long technicalKey : expected ) {
+      assertEquals( technicalKey, output.getRowImmediate()[ 2 ] );
+    }
+    assertNull( output.getRowImmediate() );
+  }
+
+  private static Date year( int year ) {
+    return new GregorianCalendar( year, 0, 1 ).getTime();
+  }
+}
@@ -0,0 +1,146 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.filterrows;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowBatchRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.row.RowBatch;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.StepMockUtil;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FilterRowsTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "FilterRowsTest";
+
+  private StepMockHelper<FilterRowsMeta, StepDataInterface> helper;
+  private RowMetaInterface inputRowMeta;
+  private FilterRowsMeta meta;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    helper = StepMockUtil.getStepMockHelper( FilterRowsMeta.class, STEP_NAME );
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+
+    meta = new FilterRowsMeta();
+    meta.setCondition( new Condition( "id", Condition.FUNC_LARGER, null,
+      new ValueMetaAndData( new ValueMetaInteger( "constant" ), 1L ) ) );
+  }
+
+  @After
+  public void cleanUp() {
+    helper.cleanUp();
+  }
+
+  private FilterRows createStep() {
+    FilterRows step = new FilterRows( helper.stepMeta, helper.stepDataInterface, 0, helper.transMeta, helper.trans );
+    step.setVariable( Const.KETTLE_ROW_BATCH_SIZE, "100" );
+    return step;
+  }
+
+  @Test
+  public void testRowBatchIsFilteredInPlace() throws Exception {
+    assertTrue( meta.isReadingRowBatches() );
+    assertTrue( meta.isWritingRowBatches() );
+
+    RowBatch input = new RowBatch( inputRowMeta, 100 );
+    for ( long id = 0; id < 4; id++ ) {
+      input.addRow( new Object[] { id } );
+    }
+    RowBatchRowSet inputRowSet = new RowBatchRowSet( 100 );
+    inputRowSet.putRowBatch( inputRowMeta, input );
+    inputRowSet.setDone();
+    RowBatchRowSet outputRowSet = new RowBatchRowSet( 100 );
+
+    FilterRows step = createStep();
+    step.addRowSetToInputRowSets( inputRowSet );
+    step.addRowSetToOutputRowSets( outputRowSet );
+    FilterRowsData data = new FilterRowsData();
+    assertTrue( step.processRow( meta, data ) );
+    assertFalse( step.processRow( meta, data ) );
+
+    // The filtered batch itself goes to the next step
+    RowBatch output = outputRowSet.getRowBatchImmediate();
+    assertSame( input, output );
+    assertEquals( 2, output.size() );
+    assertEquals( 2L, output.getRow( 0 )[0] );
+    assertEquals( 3L, output.getRow( 1 )[0] );
+    assertNull( outputRowSet.getRowBatchImmediate() );
+    assertTrue( outputRowSet.isDone() );
+    assertEquals( 4, step.getLinesRead() );
+    assertEquals( 2, step.getLinesWritten() );
+  }
+
+  @Test
+  public void testRowBatchIsSentToTargetSteps() throws Exception {
+    meta.getStepIOMeta().getTargetStreams().get( 0 ).setStepMeta( new StepMeta( "true", null ) );
+    meta.getStepIOMeta().getTargetStreams().get( 1 ).setStepMeta( new StepMeta( "false", null ) );
+    assertFalse( meta.isWritingRowBatches() );
+
+    RowSet inputRowSet = new BlockingRowSet( 100 );
+    for ( long id = 0; id < 4; id++ ) {
+      inputRowSet.putRow( inputRowMeta, new Object[] { id } );
+    }
+    inputRowSet.setDone();
+    RowSet trueRowSet = new BlockingRowSet( 100 );
+    trueRowSet.setThreadNameFromToCopy( STEP_NAME, 0, "true", 0 );
+    RowSet falseRowSet = new BlockingRowSet( 100 );
+    falseRowSet.setThreadNameFromToCopy( STEP_NAME, 0, "false", 0 );
+
+    FilterRows step = createStep();
+    step.addRowSetToInputRowSets( inputRowSet );
+    step.addRowSetToOutputRowSets( trueRowSet );
+    step.addRowSetToOutputRowSets( falseRowSet );
+    FilterRowsData data = new FilterRowsData();
+    data.chosesTargetSteps = true;
+    while ( step.processRow( meta, data ) ) {
+      // keep going until the input is exhausted
+    }
+
+    assertEquals( 2, trueRowSet.size() );
+    assertEquals( 2L, trueRowSet.getRow()[0] );
+    assertEquals( 3L, trueRowSet.getRow()[0] );
+    assertEquals( 2, falseRowSet.size() );
+    assertEquals( 0L, falseRowSet.getRow()[0] );
+    assertEquals( 1L, falseRowSet.getRow()[0] );
+  }
+}
@@ -18,11 +18,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.plugins.PluginRegistry;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 import org.pentaho.di.trans.step.StepMetaInterface;
@@ -46,7 +51,7 @@ public class GroupByMetaTest implements InitializerInterface<StepMetaInterface>
     List<String> attributes =
         Arrays.asList( "passAllRows", "directory", "prefix", "aggregateIgnored", "aggregateIgnoredField", "addingLineNrInGroup",
             "lineNrInGroupField", "alwaysGivingBackOneRow", "groupField", "aggregateField", "subjectField",
-            "aggregateType", "valueField" );
+            "aggregateType", "valueField", "combiningPartialAggregates" );
 
     Map<String, String> getterMap = new HashMap<String, String>() {
       {
@@ -86,4 +91,33 @@ public class GroupByMetaTest implements InitializerInterface<StepMetaInterface>
   public void testSerialization() throws KettleException {
     loadSaveTester.testSerialization();
   }
+
+  @Test
+  public void testCreateCombiningMeta() throws KettleException {
+    GroupByMeta meta = new GroupByMeta();
+    meta.setDefault();
+    meta.allocate( 1, 3 );
+    meta.getGroupField()[0] = "key";
+    meta.setAggregateField( new String[] { "total", "rows", "highest" } );
+    meta.setSubjectField( new String[] { "amount", "amount", "amount" } );
+    meta.setAggregateType( new int[] {
+      GroupByMeta.TYPE_GROUP_SUM, GroupByMeta.TYPE_GROUP_COUNT_ALL, GroupByMeta.TYPE_GROUP_MAX } );
+    meta.setCombiningPartialAggregates( true );
+
+    GroupByMeta combining = meta.createCombiningMeta();
+    assertFalse( combining.isCombiningPartialAggregates() );
+    assertArrayEquals( new String[] { "total", "rows", "highest" }, combining.getSubjectField() );
+    assertArrayEquals( new int[] {
+      GroupByMeta.TYPE_GROUP_SUM, GroupByMeta.TYPE_GROUP_SUM, GroupByMeta.TYPE_GROUP_MAX },
+      combining.getAggregateType() );
+    assertArrayEquals( new String[] { "amount", "amount", "amount" }, meta.getSubjectField() );
+
+    meta.getAggregateType()[1] = GroupByMeta.TYPE_GROUP_AVERAGE;
+    try {
+      meta.createCombiningMeta();
+      fail( "Averages cannot be combined" );
+    } catch ( KettleStepException e ) {
+      // expected
+    }
+  }
 }
@@ -0,0 +1,72 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.injection.BaseMetadataInjectionTest;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+
+public class HashJoinMetaInjectionTest extends BaseMetadataInjectionTest<HashJoinMeta> {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+  @Before
+  public void setup() {
+    setup( new HashJoinMeta() );
+  }
+
+  @Test
+  public void test() throws Exception {
+    check( "JOIN_TYPE", new StringGetter() {
+      public String get() {
+        return meta.getJoinType();
+      }
+    } );
+    check( "KEY_FIELD1", new StringGetter() {
+      public String get() {
+        return meta.getKeyFields1()[0];
+      }
+    } );
+    check( "KEY_FIELD2", new StringGetter() {
+      public String get() {
+        return meta.getKeyFields2()[0];
+      }
+    } );
+    check( "BUILD_SIDE", new StringGetter() {
+      public String get() {
+        return meta.getBuildSide();
+      }
+    } );
+    check( "SPILL_TO_DISK", new BooleanGetter() {
+      public boolean get() {
+        return meta.isSpillingToDisk();
+      }
+    } );
+    check( "MAX_BUILD_ROWS", new StringGetter() {
+      public String get() {
+        return meta.getMaxBuildRows();
+      }
+    } );
+    check( "SPILL_DIRECTORY", new StringGetter() {
+      public String get() {
+        return meta.getDirectory();
+      }
+    } );
+    check( "SPILL_FILE_PREFIX", new StringGetter() {
+      public String get() {
+        return meta.getPrefix();
+      }
+    } );
+  }
+}
@@ -0,0 +1,81 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.steps.loadsave.LoadSaveTester;
+import org.pentaho.di.trans.steps.loadsave.validator.FieldLoadSaveValidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashJoinMetaTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Test
+  public void testSerialization() throws KettleException {
+    List<String> attributes = Arrays.asList( "joinType", "keyFields1", "keyFields2", "buildSide", "spillingToDisk",
+      "maxBuildRows", "directory", "prefix" );
+
+    Map<String, String> getterMap = new HashMap<String, String>();
+    getterMap.put( "spillingToDisk", "isSpillingToDisk" );
+
+    LoadSaveTester loadSaveTester = new LoadSaveTester( HashJoinMeta.class, attributes, getterMap,
+      new HashMap<String, String>(), new HashMap<String, FieldLoadSaveValidator<?>>(),
+      new HashMap<String, FieldLoadSaveValidator<?>>() );
+    loadSaveTester.testSerialization();
+  }
+
+  @Test
+  public void testDefaults() {
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+    assertEquals( "INNER", meta.getJoinType() );
+    assertEquals( HashJoinMeta.BUILD_SIDE_SECOND, meta.getBuildSide() );
+    assertFalse( meta.isBuildingFirst() );
+    assertFalse( meta.isSpillingToDisk() );
+    assertEquals( HashJoinMeta.DEFAULT_MAX_BUILD_ROWS, meta.getMaxBuildRows() );
+  }
+
+  @Test
+  public void cloneTest() throws Exception {
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+    meta.setKeyFields1( new String[] { "kf1-1", "kf1-2" } );
+    meta.setKeyFields2( new String[] { "kf2-1", "kf2-2" } );
+    meta.setBuildSide( HashJoinMeta.BUILD_SIDE_FIRST );
+    HashJoinMeta aClone = (HashJoinMeta) meta.clone();
+    assertFalse( aClone == meta );
+    assertTrue( Arrays.equals( meta.getKeyFields1(), aClone.getKeyFields1() ) );
+    assertTrue( Arrays.equals( meta.getKeyFields2(), aClone.getKeyFields2() ) );
+    assertTrue( aClone.isBuildingFirst() );
+
+    List<StreamInterface> infoStreams = meta.getStepIOMeta().getInfoStreams();
+    List<StreamInterface> cloneInfoStreams = aClone.getStepIOMeta().getInfoStreams();
+    assertEquals( infoStreams.size(), cloneInfoStreams.size() );
+    for ( int i = 0; i < infoStreams.size(); i++ ) {
+      assertFalse( infoStreams.get( i ) == cloneInfoStreams.get( i ) );
+    }
+  }
+}
@@ -0,0 +1,239 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.QueueRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+
+public class HashJoinTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static final String FIRST = "first";
+  private static final String SECOND = "second";
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Test
+  public void testInnerJoin() throws Exception {
+    assertJoin( false, false );
+  }
+
+  @Test
+  public void testLeftOuterJoin() throws Exception {
+    assertJoin( true, false );
+  }
+
+  @Test
+  public void testRightOuterJoin() throws Exception {
+    assertJoin( false, true );
+  }
+
+  @Test
+  public void testFullOuterJoin() throws Exception {
+    assertJoin( true, true );
+  }
+
+  @Test
+  public void testEmptyBuildSide() throws Exception {
+    List<Object[]> probeRows = Collections.singletonList( new Object[] { 1L, "b" } );
+    List<Object[]> rows = runStep( Collections.<Object[]>emptyList(), probeRows, true, true, true, 0 );
+    assertEquals( 1, rows.size() );
+    assertEquals( Arrays.asList( null, null, 1L, "b" ), Arrays.asList( rows.get( 0 ) ) );
+  }
+
+  @Test
+  public void testSpillPartitionsUseDifferentBitsPerLevel() {
+    Set<Integer> partitions = new HashSet<>();
+    for ( int level = 0; level < HashJoin.MAX_SPILL_LEVEL; level++ ) {
+      int partition = HashJoin.getSpillPartition( 0x12345678, level );
+      assertTrue( partition >= 0 && partition < HashJoin.SPILL_PARTITIONS );
+      partitions.add( partition );
+    }
+    assertTrue( partitions.size() > 1 );
+  }
+
+  /**
+   * Run every combination of build side and memory budget and compare with a nested loop join.
+   */
+  private void assertJoin( boolean keepFirst, boolean keepSecond ) throws Exception {
+    List<Object[]> firstRows = createRows( 300, 50, 100, "a" );
+    List<Object[]> secondRows = createRows( 200, 40, 200, "b" );
+    List<String> expected = nestedLoopJoin( firstRows, secondRows, keepFirst, keepSecond );
+    assertFalse( expected.isEmpty() );
+
+    // In memory, spilled once and spilled recursively
+    for ( long maxBuildRows : new long[] { 0L, 100L, 1L } ) {
+      for ( boolean buildFirst : new boolean[] { false, true } ) {
+        List<Object[]> rows = runStep( firstRows, secondRows, buildFirst, keepFirst, keepSecond, maxBuildRows );
+        assertEquals( "buildFirst=" + buildFirst + ", maxBuildRows=" + maxBuildRows, expected, toSortedStrings( rows ) );
+      }
+    }
+  }
+
+  /**
+   * Keys are repeated to get many-to-many matches, there are a few unique keys that don't match and a null key.
+   */
+  private List<Object[]> createRows( int nrRows, int nrKeys, long uniqueKeyOffset, String prefix ) {
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows.add( new Object[] { (long) ( i % nrKeys ), prefix + i } );
+    }
+    for ( int i = 0; i < 5; i++ ) {
+      rows.add( new Object[] { uniqueKeyOffset + i, prefix + "-unique" + i } );
+    }
+    rows.add( new Object[] { null, prefix + "-null" } );
+    return rows;
+  }
+
+  private List<String> nestedLoopJoin( List<Object[]> firstRows, List<Object[]> secondRows, boolean keepFirst,
+    boolean keepSecond ) {
+    List<String> result = new ArrayList<>();
+    boolean[] secondMatched = new boolean[secondRows.size()];
+    for ( Object[] first : firstRows ) {
+      boolean matched = false;
+      for ( int j = 0; j < secondRows.size(); j++ ) {
+        Object[] second = secondRows.get( j );
+        if ( Objects.equals( first[0], second[0] ) ) {
+          result.add( Arrays.asList( first[0], first[1], second[0], second[1] ).toString() );
+          matched = true;
+          secondMatched[j] = true;
+        }
+      }
+      if ( !matched && keepFirst ) {
+        result.add( Arrays.asList( first[0], first[1], null, null ).toString() );
+      }
+    }
+    if ( keepSecond ) {
+      for ( int j = 0; j < secondRows.size(); j++ ) {
+        if ( !secondMatched[j] ) {
+          Object[] second = secondRows.get( j );
+          result.add( Arrays.asList( null, null, second[0], second[1] ).toString() );
+        }
+      }
+    }
+    Collections.sort( result );
+    return result;
+  }
+
+  private List<String> toSortedStrings( List<Object[]> rows ) {
+    List<String> result = new ArrayList<>();
+    for ( Object[] row : rows ) {
+      result.add( Arrays.asList( row ).subList( 0, 4 ).toString() );
+    }
+    Collections.sort( result );
+    return result;
+  }
+
+  private RowSet createRowSet( RowMetaInterface rowMeta, List<Object[]> rows ) {
+    RowSet rowSet = new QueueRowSet();
+    for ( Object[] row : rows ) {
+      rowSet.putRow( rowMeta, row );
+    }
+    rowSet.setRowMeta( rowMeta );
+    rowSet.setDone();
+    return rowSet;
+  }
+
+  private List<Object[]> runStep( List<Object[]> firstRows, List<Object[]> secondRows, boolean buildFirst,
+    boolean keepFirst, boolean keepSecond, long maxBuildRows ) throws Exception {
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+    meta.setKeyFields1( new String[] { "id1" } );
+    meta.setKeyFields2( new String[] { "id2" } );
+    meta.setDirectory( tempFolder.getRoot().getAbsolutePath() );
+    meta.getStepIOMeta().getInfoStreams().get( 0 ).setStepMeta( new StepMeta( FIRST, new DummyTransMeta() ) );
+    meta.getStepIOMeta().getInfoStreams().get( 1 ).setStepMeta( new StepMeta( SECOND, new DummyTransMeta() ) );
+
+    RowMetaInterface firstMeta = new RowMeta();
+    firstMeta.addValueMeta( new ValueMetaInteger( "id1" ) );
+    firstMeta.addValueMeta( new ValueMetaString( "a" ) );
+    RowMetaInterface secondMeta = new RowMeta();
+    secondMeta.addValueMeta( new ValueMetaInteger( "id2" ) );
+    secondMeta.addValueMeta( new ValueMetaString( "b" ) );
+
+    TransMeta transMeta = mock( TransMeta.class );
+    when( transMeta.getBowl() ).thenReturn( DefaultBowl.getInstance() );
+    when( transMeta.getStepFields( FIRST ) ).thenReturn( firstMeta );
+    when( transMeta.getStepFields( SECOND ) ).thenReturn( secondMeta );
+    StepMeta stepMeta = new StepMeta( "join", meta );
+    when( transMeta.findStep( "join" ) ).thenReturn( stepMeta );
+
+    HashJoinData data = new HashJoinData();
+    data.buildFirst = buildFirst;
+    data.buildOuter = buildFirst ? keepFirst : keepSecond;
+    data.probeOuter = buildFirst ? keepSecond : keepFirst;
+    data.maxBuildRows = maxBuildRows;
+
+    HashJoin step = spy( new HashJoin( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    RowSet firstRowSet = createRowSet( firstMeta, firstRows );
+    RowSet secondRowSet = createRowSet( secondMeta, secondRows );
+    doAnswer( invocation -> FIRST.equals( invocation.getArgument( 0 ) ) ? firstRowSet : secondRowSet )
+      .when( step ).findInputRowSet( anyString() );
+    doAnswer( invocation -> ( (RowSet) invocation.getArgument( 0 ) ).getRowImmediate() )
+      .when( step ).getRowFrom( any( RowSet.class ) );
+    List<Object[]> output = new ArrayList<>();
+    doAnswer( invocation -> output.add( invocation.getArgument( 1 ) ) ).when( step ).putRow( any(), any() );
+    doNothing().when( step ).setOutputDone();
+
+    while ( step.processRow( meta, data ) ) {
+      // keep going
+    }
+    step.dispose( meta, data );
+
+    // All temporary files are cleaned up
+    assertEquals( 0, tempFolder.getRoot().list().length );
+    return output;
+  }
+}
@@ -63,5 +63,35 @@ public class MemoryGroupByMetaInjectionTest extends BaseMetadataInjectionTest<Me
           return meta.isAlwaysGivingBackOneRow();
         }
       } );
+    check( "SPILL_TO_DISK", new BooleanGetter() {
+      @Override
+      public boolean get() {
+        return meta.isSpillingToDisk();
+      }
+    } );
+    check( "MAX_GROUPS_IN_MEMORY", new StringGetter() {
+      @Override
+      public String get() {
+        return meta.getMaxGroupsInMemory();
+      }
+    } );
+    check( "SPILL_DIRECTORY", new StringGetter() {
+      @Override
+      public String get() {
+        return meta.getDirectory();
+      }
+    } );
+    check( "SPILL_FILE_PREFIX", new StringGetter() {
+      @Override
+      public String get() {
+        return meta.getPrefix();
+      }
+    } );
+    check( "COMBINE_PARTIAL_AGGREGATES", new BooleanGetter() {
+      @Override
+      public boolean get() {
+        return meta.isCombiningPartialAggregates();
+      }
+    } );
   }
 }
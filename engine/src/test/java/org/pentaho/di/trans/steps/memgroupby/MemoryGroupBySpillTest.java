@@ -0,0 +1,164 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+public class MemoryGroupBySpillTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static final String STEP_NAME = "testStep";
+  private static final int NR_ROWS = 5000;
+  private static final int NR_GROUPS = 97;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Test
+  public void testInMemory() throws Exception {
+    assertGroups( runStep( false, "1" ) );
+  }
+
+  @Test
+  public void testSpillToDisk() throws Exception {
+    assertGroups( runStep( true, "10" ) );
+  }
+
+  @Test
+  public void testSpillToDiskRecursively() throws Exception {
+    // A single group in memory forces the partitions to be split up again
+    assertGroups( runStep( true, "1" ) );
+  }
+
+  @Test
+  public void testSpillPartitionsUseDifferentBitsPerLevel() {
+    Set<Integer> partitions = new HashSet<>();
+    for ( int level = 0; level < MemoryGroupBy.MAX_SPILL_LEVEL; level++ ) {
+      int partition = MemoryGroupBy.getSpillPartition( 0x12345678, level );
+      assertTrue( partition >= 0 && partition < MemoryGroupBy.SPILL_PARTITIONS );
+      partitions.add( partition );
+    }
+    assertTrue( partitions.size() > 1 );
+  }
+
+  private void assertGroups( List<Object[]> rows ) {
+    assertEquals( NR_GROUPS, rows.size() );
+
+    Map<String, Object[]> groups = new HashMap<>();
+    for ( Object[] row : rows ) {
+      assertFalse( "Duplicate group " + row[0], groups.containsKey( row[0] ) );
+      groups.put( (String) row[0], row );
+    }
+    for ( int g = 0; g < NR_GROUPS; g++ ) {
+      long sum = 0;
+      long count = 0;
+      for ( long i = g; i < NR_ROWS; i += NR_GROUPS ) {
+        sum += i;
+        count++;
+      }
+      Object[] row = groups.get( "group-" + g );
+      assertEquals( sum, row[1] );
+      assertEquals( (long) g, row[2] );
+      assertEquals( (long) ( NR_ROWS - 1 - ( NR_ROWS - 1 - g ) % NR_GROUPS ), row[3] );
+      assertEquals( count, row[4] );
+    }
+  }
+
+  private List<Object[]> runStep( boolean spill, String maxGroups ) throws Exception {
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.setDefault();
+    meta.allocate( 1, 4 );
+    meta.getGroupField()[0] = "group";
+    int[] types = { MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_FIRST,
+      MemoryGroupByMeta.TYPE_GROUP_LAST, MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY };
+    String[] names = { "sum", "first", "last", "count" };
+    for ( int i = 0; i < types.length; i++ ) {
+      meta.getAggregateField()[i] = names[i];
+      meta.getSubjectField()[i] = "value";
+      meta.getAggregateType()[i] = types[i];
+    }
+    meta.setSpillingToDisk( spill );
+    meta.setMaxGroupsInMemory( maxGroups );
+    meta.setDirectory( tempFolder.getRoot().getAbsolutePath() );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "group" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    TransMeta transMeta = mock( TransMeta.class );
+    when( transMeta.getBowl() ).thenReturn( DefaultBowl.getInstance() );
+    StepMeta stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+
+    MemoryGroupByData data = new MemoryGroupByData();
+    MemoryGroupBy step = spy( new MemoryGroupBy( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    data.map = new HashMap<>();
+    doNothing().when( step ).putRow( any(), any() );
+    doNothing().when( step ).setOutputDone();
+    doReturn( rowMeta ).when( step ).getInputRowMeta();
+
+    for ( long i = 0; i < NR_ROWS; i++ ) {
+      doReturn( new Object[] { "group-" + ( i % NR_GROUPS ), i } ).when( step ).getRow();
+      assertTrue( step.processRow( meta, data ) );
+    }
+    doReturn( null ).when( step ).getRow();
+    assertFalse( step.processRow( meta, data ) );
+    step.dispose( meta, data );
+
+    // All temporary files are cleaned up
+    assertEquals( 0, tempFolder.getRoot().list().length );
+
+    ArgumentCaptor<Object[]> rowCaptor = ArgumentCaptor.forClass( Object[].class );
+    verify( step, atLeast( 1 ) ).putRow( any(), rowCaptor.capture() );
+    return rowCaptor.getAllValues();
+  }
+}
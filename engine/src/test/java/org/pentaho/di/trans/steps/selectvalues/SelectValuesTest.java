@@ -26,9 +26,11 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowBatchRowSet;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleConversionException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -47,6 +49,8 @@ import org.pentaho.di.trans.steps.mock.StepMockHelper;
 import org.pentaho.di.trans.steps.selectvalues.SelectValuesMeta.SelectField;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -327,6 +331,63 @@ public class SelectValuesTest {
     assertTrue( properException );
   }
 
+  @Test
+  public void testRowBatchSelectsColumns() throws Exception {
+    when( helper.stepMeta.isDoingErrorHandling() ).thenReturn( false );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "note" ) );
+    RowBatch input = new RowBatch( rowMeta, 10 );
+    input.addRow( new Object[] { 1L, "one", "first" } );
+    input.addRow( new Object[] { 2L, "two", "second" } );
+    RowBatchRowSet inputRowSet = new RowBatchRowSet( 10 );
+    inputRowSet.putRowBatch( rowMeta, input );
+    inputRowSet.setDone();
+    RowBatchRowSet outputRowSet = new RowBatchRowSet( 10 );
+
+    SelectValuesMeta stepMeta = new SelectValuesMeta();
+    stepMeta.allocate( 2, 0, 0 );
+    stepMeta.getSelectFields()[ 0 ].setName( "name" );
+    stepMeta.getSelectFields()[ 1 ].setName( "id" );
+    assertTrue( stepMeta.isReadingRowBatches() );
+    assertTrue( stepMeta.isWritingRowBatches() );
+
+    SelectValuesData stepData = new SelectValuesData();
+    stepData.select = true;
+    stepData.firstselect = true;
+    stepData.firstdeselect = true;
+    stepData.firstmetadata = true;
+
+    SelectValues batchStep =
+      new SelectValues( helper.stepMeta, helper.stepDataInterface, 1, helper.transMeta, helper.trans );
+    batchStep.setVariable( Const.KETTLE_ROW_BATCH_SIZE, "10" );
+    batchStep.addRowSetToInputRowSets( inputRowSet );
+    batchStep.addRowSetToOutputRowSets( outputRowSet );
+    assertTrue( batchStep.processRow( stepMeta, stepData ) );
+    assertFalse( batchStep.processRow( stepMeta, stepData ) );
+
+    // The selected columns are handed over as they are, nothing is copied
+    RowBatch output = outputRowSet.getRowBatchImmediate();
+    assertEquals( 2, output.getColumnCount() );
+    assertSame( input.getColumn( 1 ), output.getColumn( 0 ) );
+    assertSame( input.getColumn( 0 ), output.getColumn( 1 ) );
+    assertEquals( "two", output.getRow( 1 )[ 0 ] );
+    assertEquals( 2L, output.getRow( 1 )[ 1 ] );
+    assertEquals( "name", outputRowSet.getRowMeta().getValueMeta( 0 ).getName() );
+    assertTrue( outputRowSet.isDone() );
+    assertEquals( 2, batchStep.getLinesWritten() );
+  }
+
+  @Test
+  public void testMetadataChangesAreNotDoneOnRowBatches() {
+    SelectValuesMeta stepMeta = new SelectValuesMeta();
+    stepMeta.allocate( 0, 0, 1 );
+    assertFalse( stepMeta.isReadingRowBatches() );
+    assertFalse( stepMeta.isWritingRowBatches() );
+  }
+
   public static class SelectValuesHandler extends SelectValues {
     private RowMetaInterface rowMeta;
     private RowSet rowset;
@@ -27,7 +27,7 @@ public class SocketReaderMetaTest {
 
   @Test
   public void testLoadSave() throws KettleException {
-    List<String> attributes = Arrays.asList( "Hostname", "Port", "BufferSize", "Compressed" );
+    List<String> attributes = Arrays.asList( "Hostname", "Port", "BufferSize", "Compressed", "Columnar" );
 
     LoadSaveTester loadSaveTester = new LoadSaveTester( SocketReaderMeta.class, attributes );
 
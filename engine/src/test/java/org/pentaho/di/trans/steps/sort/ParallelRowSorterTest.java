@@ -0,0 +1,117 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelRowSorterTest {
+  private static final int NR_ROWS = ParallelRowSorter.MIN_CHUNK_SIZE * 6 + 123;
+
+  private ForkJoinPool pool;
+  private RowMetaInterface rowMeta;
+
+  @Before
+  public void setUp() {
+    pool = new ForkJoinPool( 4 );
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "seq" ) );
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testSortOnStringAndInteger() throws Exception {
+    rowMeta.getValueMeta( 1 ).setSortedDescending( true );
+    assertSortedLikeCollectionsSort( new int[] { 0, 1 }, true, pool );
+  }
+
+  @Test
+  public void testSortOnInteger() throws Exception {
+    assertSortedLikeCollectionsSort( new int[] { 1 }, true, pool );
+  }
+
+  @Test
+  public void testSortWithoutPrefixes() throws Exception {
+    assertSortedLikeCollectionsSort( new int[] { 2, 1 }, false, pool );
+  }
+
+  @Test
+  public void testSortOnTheCallingThread() throws Exception {
+    assertSortedLikeCollectionsSort( new int[] { 0 }, true, null );
+  }
+
+  private void assertSortedLikeCollectionsSort( final int[] keys, boolean prefixes, ForkJoinPool pool )
+    throws KettleValueException {
+    Random random = new Random( 123 );
+    List<Object[]> rows = new ArrayList<>( NR_ROWS );
+    for ( int i = 0; i < NR_ROWS; i++ ) {
+      // Few distinct keys, lots of ties to check the sort is stable
+      String name = random.nextInt( 20 ) == 0 ? null : "name" + random.nextInt( 100 );
+      Long id = random.nextInt( 20 ) == 0 ? null : Long.valueOf( random.nextInt( 50 ) - 25 );
+      rows.add( new Object[] { name, id, new BigDecimal( random.nextInt( 30 ) ), Long.valueOf( i ) } );
+    }
+
+    Comparator<Object[]> comparator = new Comparator<Object[]>() {
+      @Override
+      public int compare( Object[] o1, Object[] o2 ) {
+        try {
+          return rowMeta.compare( o1, o2, keys );
+        } catch ( KettleValueException e ) {
+          throw new RuntimeException( e );
+        }
+      }
+    };
+
+    List<Object[]> expected = new ArrayList<>( rows );
+    Collections.sort( expected, comparator );
+
+    ParallelRowSorter sorter = new ParallelRowSorter( comparator, rowMeta.getValueMeta( keys[0] ), keys[0], pool );
+    if ( prefixes ) {
+      assertTrue( sorter.isUsingPrefixes() );
+    } else {
+      assertFalse( sorter.isUsingPrefixes() );
+    }
+    sorter.sort( rows );
+
+    for ( int i = 0; i < NR_ROWS; i++ ) {
+      assertSame( "row " + i, expected.get( i ), rows.get( i ) );
+    }
+  }
+}
@@ -52,6 +52,12 @@ public class SortRowsMetaInjectionTest extends BaseMetadataInjectionTest<SortRow
         return meta.getFreeMemoryLimit();
       }
     } );
+    check( "SORT_THREADS", new StringGetter() {
+      @Override
+      public String get() {
+        return meta.getSortThreads();
+      }
+    } );
     check( "ONLY_PASS_UNIQUE_ROWS", new BooleanGetter() {
       @Override
       public boolean get() {
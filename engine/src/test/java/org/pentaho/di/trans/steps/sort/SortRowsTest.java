@@ -0,0 +1,118 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.memory.MemoryGrant;
+import org.pentaho.di.core.memory.MemoryManager;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.steps.StepMockUtil;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+public class SortRowsTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private StepMockHelper<SortRowsMeta, StepDataInterface> helper;
+  private SortRowsData data;
+  private SortRows sortRows;
+  private List<Integer> spills;
+
+  @Before
+  public void setUp() throws Exception {
+    helper = StepMockUtil.getStepMockHelper( SortRowsMeta.class, "SortRowsTest" );
+    data = new SortRowsData();
+    data.buffer = new ArrayList<>();
+    data.sortSize = -1;
+    data.minSortSize = 4;
+
+    sortRows = spy( new SortRows( helper.stepMeta, data, 0, helper.transMeta, helper.trans ) );
+
+    // Only record the size of every dump to disk and give back the memory, like sortExternalRows() does
+    spills = new ArrayList<>();
+    doAnswer( invocation -> {
+      spills.add( data.buffer.size() );
+      data.buffer.clear();
+      data.memoryGrant.release( data.bufferBytes );
+      data.bufferBytes = 0;
+      data.memoryGrant.spilled();
+      return null;
+    } ).when( sortRows ).sortExternalRows();
+  }
+
+  @After
+  public void cleanUp() {
+    helper.cleanUp();
+  }
+
+  @Test
+  public void testMinimumBufferWhenMemoryIsRefusedFromTheStart() throws Exception {
+    // A lookup table that can't be spilled takes all the memory there is
+    MemoryManager manager = new MemoryManager( "test", 1000L );
+    manager.createGrant( "lookup", false ).forceReserve( 5000L );
+    data.memoryGrant = manager.createGrant( "sort", true );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    for ( long i = 0; i < 10; i++ ) {
+      sortRows.addBuffer( rowMeta, new Object[] { i } );
+    }
+
+    // Every dump holds the minimum number of rows instead of a single row
+    assertEquals( 2, spills.size() );
+    assertEquals( Integer.valueOf( 4 ), spills.get( 0 ) );
+    assertEquals( Integer.valueOf( 4 ), spills.get( 1 ) );
+    assertEquals( 2, data.buffer.size() );
+
+    // The rows in the buffer are accounted for
+    MemoryGrant grant = data.memoryGrant;
+    assertTrue( grant.getReserved() > 0 );
+    assertEquals( data.bufferBytes, grant.getReserved() );
+  }
+
+  @Test
+  public void testSpillRequestWaitsForMinimumBuffer() throws Exception {
+    MemoryManager manager = new MemoryManager( "test", 1000L );
+    data.memoryGrant = manager.createGrant( "sort", true );
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    sortRows.addBuffer( rowMeta, new Object[] { 0L } );
+
+    // Another consumer needs more than there is: the sort is asked to make room
+    assertFalse( manager.createGrant( "other", true ).reserve( 2000L ) );
+    assertTrue( data.memoryGrant.isSpillRequested() );
+
+    sortRows.addBuffer( rowMeta, new Object[] { 1L } );
+    sortRows.addBuffer( rowMeta, new Object[] { 2L } );
+    assertTrue( spills.isEmpty() );
+    sortRows.addBuffer( rowMeta, new Object[] { 3L } );
+    assertEquals( 1, spills.size() );
+    assertEquals( Integer.valueOf( 4 ), spills.get( 0 ) );
+  }
+}
@@ -15,21 +15,32 @@ package org.pentaho.di.trans.steps.tableoutput;
 
 import java.lang.reflect.Method;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.json.simple.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.stubbing.Answer;
 import org.pentaho.di.core.SQLStatement;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseInterface;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -37,14 +48,17 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepPartitioningMeta;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -222,6 +236,220 @@ public class TableOutputTest {
   }
 
 
+  @Test
+  public void testGetValuesSize() {
+    assertEquals( 0, TableOutput.getValuesSize( new Object[0] ) );
+    assertEquals( 3 + 8 + 1 + 2, TableOutput.getValuesSize( new Object[] { "abc", 1L, null, new byte[2] } ) );
+  }
+
+  @Test
+  public void testStepMetrics() {
+    TableOutputData data = new TableOutputData();
+    tableOutput.setData( data );
+    assertTrue( tableOutput.getStepMetrics().isEmpty() );
+
+    data.addBatchMetrics( 1000, 20000, 3000000L );
+    data.addBatchMetrics( 500, 10000, 2000000L );
+
+    Map<String, Long> metrics = tableOutput.getStepMetrics();
+    assertEquals( Long.valueOf( 2 ), metrics.get( TableOutput.METRIC_BATCHES ) );
+    assertEquals( Long.valueOf( 1500 ), metrics.get( TableOutput.METRIC_BATCH_ROWS ) );
+    assertEquals( Long.valueOf( 30000 ), metrics.get( TableOutput.METRIC_BATCH_BYTES ) );
+    assertEquals( Long.valueOf( 5 ), metrics.get( TableOutput.METRIC_BATCH_MILLIS ) );
+  }
+
+  private RowBatch createRowBatch() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    RowBatch batch = new RowBatch( rowMeta, 10 );
+    batch.addRow( new Object[] { 1L, "one" } );
+    batch.addRow( new Object[] { 2L, "two" } );
+    batch.addRow( new Object[] { 3L, "three" } );
+    return batch;
+  }
+
+  @Test
+  public void testProcessRowBatch_bindsFromColumns() throws Exception {
+    assertTrue( new TableOutputMeta().isReadingRowBatches() );
+    assertFalse( new TableOutputMeta().isWritingRowBatches() );
+
+    RowBatch batch = createRowBatch();
+    TableOutputData data = new TableOutputData();
+    data.db = db;
+    data.tableName = "sas";
+    data.batchMode = true;
+    data.commitSize = 2;
+    PreparedStatement insertStatement = mock( PreparedStatement.class );
+    data.preparedStatements.put( "sas", insertStatement );
+    doReturn( true ).when( db ).getUseBatchInsert( true );
+
+    when( tableOutputMeta.specifyFields() ).thenReturn( true );
+    when( tableOutputMeta.getFieldDatabase() ).thenReturn( new String[] { "db_name", "db_id" } );
+    when( tableOutputMeta.getFieldStream() ).thenReturn( new String[] { "name", "id" } );
+    doReturn( true ).when( tableOutputSpy ).isRowBatchEnabled();
+    doReturn( batch.getRowMeta() ).when( tableOutputSpy ).getInputRowMeta();
+    doReturn( batch ).when( tableOutputSpy ).getRowBatch();
+    doNothing().when( tableOutputSpy ).putRow( any(), any() );
+
+    List<Object[]> bound = new ArrayList<>();
+    doAnswer( invocation -> bound.add( ( (Object[]) invocation.getArgument( 1 ) ).clone() ) )
+      .when( db ).setValues( any( RowMetaInterface.class ), any( Object[].class ), any( PreparedStatement.class ) );
+
+    assertTrue( tableOutputSpy.processRow( tableOutputMeta, data ) );
+
+    // The values are bound in the order of the database fields, row after row
+    assertEquals( 3, bound.size() );
+    assertArrayEquals( new Object[] { "one", 1L }, bound.get( 0 ) );
+    assertArrayEquals( new Object[] { "two", 2L }, bound.get( 1 ) );
+    assertArrayEquals( new Object[] { "three", 3L }, bound.get( 2 ) );
+    verify( db, times( 3 ) ).insertRow( insertStatement, true, false );
+
+    // The first two rows were committed and passed on, the last one waits for the next commit
+    verify( insertStatement, times( 1 ) ).executeBatch();
+    verify( tableOutputSpy, times( 2 ) ).putRow( any(), any() );
+    assertEquals( 1, data.batchBuffer.size() );
+    assertEquals( 3L, data.batchBuffer.get( 0 )[0] );
+    assertEquals( Integer.valueOf( 1 ), data.commitCounterMap.get( "sas" ) );
+  }
+
+  @Test
+  public void testProcessRowBatch_fallsBackToRows() throws Exception {
+    RowBatch batch = createRowBatch();
+    TableOutputData data = new TableOutputData();
+    data.db = db;
+    data.tableName = "sas";
+    data.batchMode = true;
+    doReturn( true ).when( db ).getUseBatchInsert( true );
+
+    // Table names in a field need the row by row logic
+    when( tableOutputMeta.isTableNameInField() ).thenReturn( true );
+    doReturn( true ).when( tableOutputSpy ).isRowBatchEnabled();
+    doReturn( batch.getRowMeta() ).when( tableOutputSpy ).getInputRowMeta();
+    doReturn( batch ).when( tableOutputSpy ).getRowBatch();
+    List<Object> written = new ArrayList<>();
+    doAnswer( invocation -> {
+      written.add( ( (Object[]) invocation.getArgument( 1 ) )[0] );
+      return null;
+    } ).when( tableOutputSpy ).writeToTable( any( RowMetaInterface.class ), any( Object[].class ) );
+
+    assertTrue( tableOutputSpy.processRow( tableOutputMeta, data ) );
+
+    assertFalse( data.rowBatchInsert );
+    assertEquals( Arrays.asList( 1L, 2L, 3L ), written );
+    verify( db, never() ).setValues( any( RowMetaInterface.class ), any( Object[].class ),
+      any( PreparedStatement.class ) );
+  }
+
+  @Test( timeout = 10000 )
+  public void testPipelinedCommit_alternatesSlotsAndPassesRowsOnAfterTheirCommit() throws Exception {
+    Database commitDb = mock( Database.class );
+    PreparedStatement first = mock( PreparedStatement.class );
+    PreparedStatement second = mock( PreparedStatement.class );
+    TableOutputData data = preparePipeline( commitDb, first, second, 5 );
+
+    List<String> inserts = Collections.synchronizedList( new ArrayList<>() );
+    Answer<Boolean> insert = invocation -> inserts.add( invocation.getArgument( 0 ) == first ? "first" : "second" );
+    doAnswer( insert ).when( db ).insertRow( any( PreparedStatement.class ), anyBoolean(), anyBoolean() );
+    doAnswer( insert ).when( commitDb ).insertRow( any( PreparedStatement.class ), anyBoolean(), anyBoolean() );
+    AtomicInteger commits = new AtomicInteger();
+    doAnswer( invocation -> commits.incrementAndGet() ).when( db ).commit();
+    doAnswer( invocation -> commits.incrementAndGet() ).when( commitDb ).commit();
+
+    // Rows 1 and 2 are in the first batch, rows 3 and 4 in the second and row 5 in the third
+    //
+    Thread stepThread = Thread.currentThread();
+    List<Long> passedOn = new ArrayList<>();
+    List<String> problems = new ArrayList<>();
+    doAnswer( invocation -> {
+      long id = (Long) ( (Object[]) invocation.getArgument( 1 ) )[0];
+      if ( commits.get() < ( id + 1 ) / 2 ) {
+        problems.add( "Row " + id + " was passed on before its batch was committed" );
+      }
+      if ( Thread.currentThread() != stepThread ) {
+        problems.add( "Row " + id + " was passed on by another thread" );
+      }
+      passedOn.add( id );
+      return null;
+    } ).when( tableOutputSpy ).putRow( any(), any() );
+
+    while ( tableOutputSpy.processRow( tableOutputMeta, data ) ) {
+      // Next row
+    }
+    // The step waited for the first batch to fill the first slot again, the second batch can still be committing
+    assertEquals( Arrays.asList( 1L, 2L ), passedOn );
+
+    tableOutputSpy.dispose( tableOutputMeta, data );
+
+    assertEquals( Arrays.asList( "first", "first", "second", "second", "first" ), inserts );
+    verify( first, times( 2 ) ).executeBatch();
+    verify( second, times( 1 ) ).executeBatch();
+    verify( db, times( 2 ) ).commit();
+    verify( commitDb, times( 1 ) ).commit();
+    assertEquals( Arrays.asList( 1L, 2L, 3L, 4L, 5L ), passedOn );
+    assertTrue( problems.toString(), problems.isEmpty() );
+    assertEquals( 0, tableOutputSpy.getErrors() );
+    verify( commitDb ).close();
+  }
+
+  @Test( timeout = 10000 )
+  public void testPipelinedCommit_reportsAFailedBackgroundCommitOnTheStepThread() throws Exception {
+    Database commitDb = mock( Database.class );
+    PreparedStatement first = mock( PreparedStatement.class );
+    PreparedStatement second = mock( PreparedStatement.class );
+    TableOutputData data = preparePipeline( commitDb, first, second, 4 );
+    doThrow( new SQLException( "Duplicate key" ) ).when( first ).executeBatch();
+    doNothing().when( tableOutputSpy ).putRow( any(), any() );
+    doNothing().when( tableOutputSpy ).logError( anyString(), any( Throwable.class ) );
+
+    // The first batch fails in the background, the step finds out when it needs the first slot again
+    //
+    assertTrue( tableOutputSpy.processRow( tableOutputMeta, data ) );
+    assertTrue( tableOutputSpy.processRow( tableOutputMeta, data ) );
+    assertTrue( tableOutputSpy.processRow( tableOutputMeta, data ) );
+    assertFalse( tableOutputSpy.processRow( tableOutputMeta, data ) );
+    assertEquals( 1, tableOutputSpy.getErrors() );
+    verify( tableOutputSpy ).logError( anyString(), any( KettleException.class ) );
+    verify( db, never() ).commit();
+
+    tableOutputSpy.dispose( tableOutputMeta, data );
+
+    verify( tableOutputSpy, never() ).putRow( any(), any() );
+    verify( commitDb ).rollback();
+    verify( commitDb ).close();
+  }
+
+  /**
+   * Let the step read rows with ids 1 to nrRows and commit its batches of 2 rows in the background, on the step's
+   * connection with the first statement and on the second connection with the second statement.
+   */
+  private TableOutputData preparePipeline( Database commitDb, PreparedStatement first, PreparedStatement second,
+    long nrRows ) throws Exception {
+    TableOutputData data = new TableOutputData();
+    data.db = db;
+    data.tableName = "sas";
+    data.batchMode = true;
+    data.commitSize = 2;
+    doReturn( true ).when( db ).getUseBatchInsert( true );
+    when( tableOutputMeta.isPipelinedCommit() ).thenReturn( true );
+    doReturn( commitDb ).when( tableOutputSpy ).getDatabase( databaseMeta );
+    doReturn( "INSERT" ).when( db ).getInsertStatement( any(), anyString(), any( RowMetaInterface.class ) );
+    doReturn( first ).when( db ).prepareSQL( "INSERT" );
+    doReturn( second ).when( commitDb ).prepareSQL( "INSERT" );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    List<Object[]> rows = new ArrayList<>();
+    for ( long id = 1; id <= nrRows; id++ ) {
+      rows.add( new Object[] { id } );
+    }
+    Iterator<Object[]> input = rows.iterator();
+    doReturn( false ).when( tableOutputSpy ).isRowBatchEnabled();
+    doReturn( rowMeta ).when( tableOutputSpy ).getInputRowMeta();
+    doAnswer( invocation -> input.hasNext() ? input.next() : null ).when( tableOutputSpy ).getRow();
+    return data;
+  }
+
   private RowMetaInterface createRowMeta( String[] args, boolean hasEmptyFields ) {
     RowMetaInterface result = new RowMeta();
     if ( hasEmptyFields ) {
@@ -0,0 +1,125 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncBufferedOutputStreamTest {
+
+  private AsyncFileWriter writer;
+
+  @Before
+  public void setUp() {
+    writer = new AsyncFileWriter( "test writer", 2 );
+  }
+
+  @After
+  public void tearDown() {
+    writer.shutdown();
+  }
+
+  @Test
+  public void testWritesInOrderAcrossStreams() throws Exception {
+    ThreadRecordingOutputStream target1 = new ThreadRecordingOutputStream();
+    ThreadRecordingOutputStream target2 = new ThreadRecordingOutputStream();
+    AsyncBufferedOutputStream out1 = new AsyncBufferedOutputStream( target1, writer );
+    AsyncBufferedOutputStream out2 = new AsyncBufferedOutputStream( target2, writer );
+
+    ByteArrayOutputStream expected1 = new ByteArrayOutputStream();
+    ByteArrayOutputStream expected2 = new ByteArrayOutputStream();
+    for ( int i = 0; i < 100000; i++ ) {
+      byte[] line = ( "line " + i + "\n" ).getBytes( "UTF-8" );
+      if ( i % 3 == 0 ) {
+        out2.write( line );
+        expected2.write( line );
+      } else {
+        out1.write( line, 0, line.length );
+        out1.write( ';' );
+        expected1.write( line );
+        expected1.write( ';' );
+      }
+    }
+    out1.flush();
+    out2.close();
+
+    assertArrayEquals( expected1.toByteArray(), target1.toByteArray() );
+    assertArrayEquals( expected2.toByteArray(), target2.toByteArray() );
+    assertEquals( 1, target1.flushes );
+    assertNotEquals( Thread.currentThread(), target1.writingThread );
+  }
+
+  @Test
+  public void testSyncOnlyWaitsForHandedOverData() throws Exception {
+    ThreadRecordingOutputStream target = new ThreadRecordingOutputStream();
+    AsyncBufferedOutputStream out = new AsyncBufferedOutputStream( target, writer );
+
+    out.write( new byte[AsyncFileWriter.BUFFER_SIZE + 10] );
+    out.sync();
+
+    assertEquals( AsyncFileWriter.BUFFER_SIZE, target.size() );
+    assertEquals( 0, target.flushes );
+  }
+
+  @Test
+  public void testWriteErrorIsReported() throws Exception {
+    OutputStream failing = new OutputStream() {
+      @Override
+      public void write( int b ) throws IOException {
+        throw new IOException( "disk full" );
+      }
+    };
+    AsyncBufferedOutputStream out = new AsyncBufferedOutputStream( failing, writer );
+
+    out.write( new byte[AsyncFileWriter.BUFFER_SIZE * 2] );
+    try {
+      out.flush();
+      fail( "The write error should have been reported" );
+    } catch ( IOException e ) {
+      assertEquals( "disk full", e.getCause().getMessage() );
+    }
+    try {
+      writer.checkFailure();
+      fail( "The write error should be reported for all streams of the writer" );
+    } catch ( IOException e ) {
+      // expected
+    }
+  }
+
+  private static class ThreadRecordingOutputStream extends ByteArrayOutputStream {
+    private volatile Thread writingThread;
+    private volatile int flushes;
+
+    @Override
+    public synchronized void write( byte[] b, int off, int len ) {
+      writingThread = Thread.currentThread();
+      super.write( b, off, len );
+    }
+
+    @Override
+    public void flush() {
+      flushes++;
+    }
+  }
+}
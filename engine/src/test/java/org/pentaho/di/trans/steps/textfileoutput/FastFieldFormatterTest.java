@@ -0,0 +1,87 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class FastFieldFormatterTest {
+
+  private static <T extends ValueMetaBase> T fast( T valueMeta, String mask ) {
+    valueMeta.setConversionMask( mask );
+    valueMeta.setFastConversion( true );
+    return valueMeta;
+  }
+
+  private static void assertSameAsValueMeta( ValueMetaInterface valueMeta, Object value ) throws Exception {
+    FastFieldFormatter formatter = FastFieldFormatter.create( valueMeta, "UTF-8" );
+    assertNotNull( formatter );
+    byte[] buffer = new byte[formatter.getMaxLength()];
+    int length = formatter.format( value, buffer );
+    assertTrue( valueMeta + " " + value, length >= 0 );
+    assertArrayEquals( valueMeta.getBinaryString( value ), Arrays.copyOf( buffer, length ) );
+  }
+
+  @Test
+  public void testFormatsLikeTheValueMeta() throws Exception {
+    assertSameAsValueMeta( fast( new ValueMetaInteger( "i" ), "#" ), -1234567L );
+    assertSameAsValueMeta( fast( new ValueMetaNumber( "n" ), "0.00" ), 12.5 );
+    assertSameAsValueMeta( fast( new ValueMetaDate( "d" ), "yyyy-MM-dd HH:mm:ss" ), new Date( 1234567890000L ) );
+  }
+
+  @Test
+  public void testLeavesTheRestToTheValueMeta() throws Exception {
+    assertNull( FastFieldFormatter.create( new ValueMetaInteger( "slow" ), "UTF-8" ) );
+    ValueMetaInteger utf16 = fast( new ValueMetaInteger( "i" ), "#" );
+    utf16.setStringEncoding( "UTF-16" );
+    assertNull( FastFieldFormatter.create( utf16, "UTF-16" ) );
+    assertNull( FastFieldFormatter.create( fast( new ValueMetaString( "s" ), null ), "UTF-8" ) );
+
+    FastFieldFormatter formatter = FastFieldFormatter.create( fast( new ValueMetaNumber( "n" ), "0.00" ), "UTF-8" );
+    byte[] buffer = new byte[formatter.getMaxLength()];
+    assertEquals( -1, formatter.format( 0.125, buffer ) );
+    assertEquals( -1, formatter.format( null, buffer ) );
+  }
+
+  @Test
+  public void testPassesThroughLazyStringsInTheSameEncoding() {
+    ValueMetaString storage = new ValueMetaString( "s" );
+    storage.setStringEncoding( "UTF-8" );
+    ValueMetaString valueMeta = new ValueMetaString( "s" );
+    valueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    valueMeta.setStorageMetadata( storage );
+
+    FastFieldFormatter formatter = FastFieldFormatter.create( valueMeta, "UTF-8" );
+    assertNotNull( formatter );
+    assertTrue( formatter.isPassThrough() );
+    assertNull( FastFieldFormatter.create( valueMeta, "ISO-8859-1" ) );
+
+    valueMeta.setTrimType( ValueMetaInterface.TRIM_TYPE_BOTH );
+    assertNull( FastFieldFormatter.create( valueMeta, "UTF-8" ) );
+  }
+}
@@ -36,6 +36,7 @@ import static org.mockito.Mockito.when;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -601,6 +602,117 @@ public class TextFileOutputTest {
     assertEquals( 1, textFileOutputSpy.getResultFiles().size() );
   }
 
+  @Test
+  public void testAsyncOutputWithSplitEvery() throws Exception {
+    when( stepMockHelper.processRowsStepMetaInterface.getSplitEvery( any( VariableSpace.class ) ) ).thenReturn( 1000 );
+    String syncPath = createRamPath();
+    String asyncPath = createRamPath();
+
+    doAsyncOutput( createRows( 2500, null, 0 ), syncPath, false );
+    doAsyncOutput( createRows( 2500, null, 0 ), asyncPath, true );
+
+    for ( int splitnr = 0; splitnr < 3; splitnr++ ) {
+      String expected = readFile( syncPath + "_" + splitnr + TEXT_FILE_OUTPUT_EXTENSION );
+      assertEquals( splitnr < 2 ? 1000 : 500, expected.split( "\n" ).length );
+      assertEquals( expected, readFile( asyncPath + "_" + splitnr + TEXT_FILE_OUTPUT_EXTENSION ) );
+    }
+    assertFalse( TestUtils.getFileObject( asyncPath + "_3" + TEXT_FILE_OUTPUT_EXTENSION ).exists() );
+  }
+
+  @Test
+  public void testAsyncOutputWithFileNameInField() throws Exception {
+    when( stepMockHelper.processRowsStepMetaInterface.isFileNameInField() ).thenReturn( true );
+    when( stepMockHelper.processRowsStepMetaInterface.getFileNameField() ).thenReturn( "File" );
+    // Fewer open files than files, so files are closed and reopened for append in between
+    when( stepMockHelper.transMeta.getVariable( "KETTLE_FILE_OUTPUT_MAX_STREAM_COUNT" ) ).thenReturn( "2" );
+    String syncPath = createRamPath();
+    String asyncPath = createRamPath();
+
+    doAsyncOutput( createRows( 3000, syncPath, 3 ), syncPath, false );
+    doAsyncOutput( createRows( 3000, asyncPath, 3 ), asyncPath, true );
+
+    for ( int file = 0; file < 3; file++ ) {
+      String expected = readFile( syncPath + "_" + file + TEXT_FILE_OUTPUT_EXTENSION );
+      assertEquals( 1000, expected.split( "\n" ).length );
+      assertEquals( expected, readFile( asyncPath + "_" + file + TEXT_FILE_OUTPUT_EXTENSION ) );
+    }
+  }
+
+  /**
+   * Writes the rows with KETTLE_FILE_OUTPUT_ASYNC_BUFFERS set or not. The files are named after the path (or the file
+   * name field) followed by the split number.
+   */
+  private void doAsyncOutput( List<Object[]> rows, String path, boolean async ) throws Exception {
+    TextFileOutputMeta meta = stepMockHelper.processRowsStepMetaInterface;
+    TextFileOutputData outputData = new TextFileOutputData();
+    TextFileOutputTestHandler step =
+      new TextFileOutputTestHandler( stepMockHelper.stepMeta, outputData, 0, stepMockHelper.transMeta,
+        stepMockHelper.trans ) {
+        @Override
+        public String buildFilename( String filename, boolean ziparchive ) {
+          return this.meta.isFileNameInField() ? filename + TEXT_FILE_OUTPUT_EXTENSION
+            : filename + "_" + this.data.splitnr + TEXT_FILE_OUTPUT_EXTENSION;
+        }
+      };
+    step.setVariable( Const.KETTLE_FILE_OUTPUT_ASYNC_BUFFERS, async ? "2" : "0" );
+
+    when( meta.getFileName() ).thenReturn( path );
+    when( meta.getOutputFields() ).thenReturn( textFileFields );
+    when( meta.isFastDump() ).thenReturn( true );
+    doCallRealMethod().when( meta ).calcMetaWithFieldOptions( any( TextFileOutputData.class ) );
+    when( meta.getMetaWithFieldOptions() ).thenCallRealMethod();
+    meta.metaWithFieldOptions = null;
+
+    assertTrue( step.init( meta, outputData ) );
+
+    RowSet rowSet = stepMockHelper.getMockInputRowSet( rows );
+    RowMetaInterface inputRowMeta = mock( RowMetaInterface.class );
+    when( rowSet.getRowMeta() ).thenReturn( inputRowMeta );
+    when( inputRowMeta.clone() ).thenReturn( inputRowMeta );
+    String[] names = { textFileField.getName(), textFileField2.getName(), "File" };
+    for ( int i = 0; i < names.length; i++ ) {
+      when( inputRowMeta.getValueMeta( i ) ).thenReturn( new ValueMetaString( names[i] ) );
+      when( inputRowMeta.indexOfValue( names[i] ) ).thenReturn( i );
+    }
+    step.setInputRowMeta( inputRowMeta );
+    step.addRowSetToInputRowSets( rowSet );
+
+    for ( Object[] row : rows ) {
+      step.setRow( row );
+      step.processRow( meta, outputData );
+      assertEquals( async, outputData.writer instanceof AsyncBufferedOutputStream );
+    }
+    step.setRow( null );
+    step.processRow( meta, outputData );
+    step.dispose( meta, outputData );
+    assertTrue( step.errors.toString(), step.errors.isEmpty() );
+  }
+
+  /**
+   * Rows with a name, a surname and a file name that changes every 100 rows, if there is a path.
+   */
+  private static List<Object[]> createRows( int count, String path, int nrFiles ) {
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < count; i++ ) {
+      String fileName = path == null ? null : path + "_" + ( i / 100 ) % nrFiles;
+      rows.add( new Object[] { "name " + i, "surname " + i, fileName } );
+    }
+    return rows;
+  }
+
+  private String createRamPath() throws IOException {
+    FileObject folder =
+      TestUtils.getFileObject( "ram:///" + getClass().getSimpleName() + "/async" + new Random().nextLong() );
+    folder.createFolder();
+    return folder.getName().getURI() + "/out";
+  }
+
+  private static String readFile( String path ) throws IOException {
+    try ( InputStream in = TestUtils.getFileObject( path ).getContent().getInputStream() ) {
+      return IOUtils.toString( in, StandardCharsets.UTF_8 );
+    }
+  }
+
   /**
    * Test for PDI-13987
    */
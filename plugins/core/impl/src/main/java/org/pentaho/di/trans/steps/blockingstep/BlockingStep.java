@@ -29,6 +29,7 @@ import org.apache.commons.vfs2.FileSystemException;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
@@ -57,6 +58,10 @@ public class BlockingStep extends BaseStep implements StepInterface {
   }
 
   private boolean addBuffer( RowMetaInterface rowMeta, Object[] r ) {
+    if ( data.arena != null ) {
+      return addToArena( rowMeta, r );
+    }
+
     if ( r != null ) {
       data.buffer.add( r ); // Save row
     }
@@ -65,28 +70,72 @@ public class BlockingStep extends BaseStep implements StepInterface {
     if ( data.buffer.size() == meta.getCacheSize() // Buffer is full: dump to disk
         || ( data.files.size() > 0 && r == null && data.buffer.size() > 0 ) // No more records: join from disk
     ) {
-      // Then write them to disk...
-      DataOutputStream dos;
-      GZIPOutputStream gzos;
-      int p;
+      return writeToDisk( rowMeta );
+    }
 
-      try {
-        FileObject fileObject =
-            KettleVFS.getInstance( getTransMeta().getBowl() )
-              .createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ),
-              getTransMeta() );
-
-        data.files.add( fileObject ); // Remember the files!
-        OutputStream outputStream = KettleVFS.getInstance( getTransMeta().getBowl() )
-          .getOutputStream( fileObject, false );
-        if ( meta.getCompress() ) {
-          gzos = new GZIPOutputStream( new BufferedOutputStream( outputStream ) );
-          dos = new DataOutputStream( gzos );
-        } else {
-          dos = new DataOutputStream( outputStream );
-          gzos = null;
+    return true;
+  }
+
+  private boolean addToArena( RowMetaInterface rowMeta, Object[] r ) {
+    try {
+      if ( r != null && !data.arena.add( r ) ) {
+        // The off-heap budget is used up: dump to disk to make room
+        if ( !data.arena.isEmpty() && !writeToDisk( rowMeta ) ) {
+          return false;
+        }
+        if ( !data.arena.add( r ) ) {
+          logError( BaseMessages.getString( PKG, "BlockingStep.Exception.RowDoesNotFitOffHeapBudget" ) );
+          return false;
         }
+      }
+    } catch ( KettleValueException e ) {
+      logError( "Error buffering row: " + e.toString() );
+      return false;
+    }
+
+    if ( data.arena.size() == meta.getCacheSize() // Buffer is full: dump to disk
+        || ( data.files.size() > 0 && r == null && data.arena.size() > 0 ) // No more records: join from disk
+    ) {
+      return writeToDisk( rowMeta );
+    }
+
+    return true;
+  }
+
+  /**
+   * Write the buffered rows to a new temporary file and empty the buffer.
+   */
+  private boolean writeToDisk( RowMetaInterface rowMeta ) {
+    DataOutputStream dos;
+    GZIPOutputStream gzos;
+    int p;
+
+    try {
+      FileObject fileObject =
+          KettleVFS.getInstance( getTransMeta().getBowl() )
+            .createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ),
+            getTransMeta() );
+
+      data.files.add( fileObject ); // Remember the files!
+      OutputStream outputStream = KettleVFS.getInstance( getTransMeta().getBowl() )
+        .getOutputStream( fileObject, false );
+      if ( meta.getCompress() ) {
+        gzos = new GZIPOutputStream( new BufferedOutputStream( outputStream ) );
+        dos = new DataOutputStream( gzos );
+      } else {
+        dos = new DataOutputStream( outputStream );
+        gzos = null;
+      }
+
+      if ( data.arena != null ) {
+        // How many records do we have?
+        dos.writeInt( data.arena.size() );
 
+        for ( p = 0; p < data.arena.size(); p++ ) {
+          // The rows are already serialized, copy them as-is
+          data.arena.writeRow( p, dos );
+        }
+      } else {
         // How many records do we have?
         dos.writeInt( data.buffer.size() );
 
@@ -94,17 +143,21 @@ public class BlockingStep extends BaseStep implements StepInterface {
           // Just write the data, nothing else
           rowMeta.writeData( dos, data.buffer.get( p ) );
         }
-        // Close temp-file
-        dos.close(); // close data stream
-        if ( gzos != null ) {
-          gzos.close(); // close gzip stream
-        }
-        outputStream.close(); // close file stream
-      } catch ( Exception e ) {
-        logError( "Error processing tmp-file: " + e.toString() );
-        return false;
       }
+      // Close temp-file
+      dos.close(); // close data stream
+      if ( gzos != null ) {
+        gzos.close(); // close gzip stream
+      }
+      outputStream.close(); // close file stream
+    } catch ( Exception e ) {
+      logError( "Error processing tmp-file: " + e.toString() );
+      return false;
+    }
 
+    if ( data.arena != null ) {
+      data.arena.clear();
+    } else {
       data.buffer.clear();
     }
 
@@ -159,7 +212,20 @@ public class BlockingStep extends BaseStep implements StepInterface {
     }
 
     if ( data.files.size() == 0 ) {
-      if ( data.buffer.size() > 0 ) {
+      if ( data.arena != null ) {
+        if ( data.arenaIndex < data.arena.size() ) {
+          try {
+            retval = data.arena.get( data.arenaIndex++ );
+          } catch ( KettleValueException e ) {
+            logError( BaseMessages.getString( PKG, "System.Log.UnexpectedError" ) + " : " + e.toString() );
+            setErrors( 1 );
+            stopAll();
+            return null;
+          }
+        } else {
+          retval = null;
+        }
+      } else if ( data.buffer.size() > 0 ) {
         retval = data.buffer.get( 0 );
         data.buffer.remove( 0 );
       } else {
@@ -215,6 +281,10 @@ public class BlockingStep extends BaseStep implements StepInterface {
   }
 
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    if ( data.arena != null ) {
+      data.arena.close();
+      data.arena = null;
+    }
     if ( ( data.dis != null ) && ( data.dis.size() > 0 ) ) {
       for ( DataInputStream is : data.dis ) {
         BaseStep.closeQuietly( is );
@@ -259,6 +329,9 @@ public class BlockingStep extends BaseStep implements StepInterface {
     if ( first && r != null ) {
       first = false;
       data.outputRowMeta = getInputRowMeta().clone();
+      if ( meta.isPassAllRows() ) {
+        data.arena = createOffHeapRowArena( data.outputRowMeta );
+      }
     }
 
     if ( !meta.isPassAllRows() ) {
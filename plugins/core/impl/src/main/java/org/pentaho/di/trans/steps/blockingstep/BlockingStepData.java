@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.row.OffHeapRowArena;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -32,6 +33,11 @@ public class BlockingStepData extends BaseStepData implements StepDataInterface
   public List<DataInputStream> dis;
   public List<Object[]> rowbuffer;
 
+  /** Used instead of the buffer when the transformation has an off-heap budget, null otherwise */
+  public OffHeapRowArena arena;
+  /** The next row to read from the arena */
+  public int arenaIndex;
+
   public RowMetaInterface outputRowMeta;
 
   public int[] fieldnrs; // the corresponding field numbers;
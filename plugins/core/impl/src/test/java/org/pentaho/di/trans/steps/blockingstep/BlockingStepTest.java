@@ -0,0 +1,117 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.blockingstep;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.OffHeapMemoryBudget;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+public class BlockingStepTest {
+  private StepMockHelper<BlockingStepMeta, BlockingStepData> mockHelper;
+
+  @Before
+  public void setUp() {
+    mockHelper =
+        new StepMockHelper<BlockingStepMeta, BlockingStepData>( "BlockingStep", BlockingStepMeta.class,
+            BlockingStepData.class );
+    when( mockHelper.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) )
+        .thenReturn( mockHelper.logChannelInterface );
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    when( mockHelper.processRowsStepMetaInterface.isPassAllRows() ).thenReturn( true );
+    when( mockHelper.processRowsStepMetaInterface.getCacheSize() ).thenReturn( BlockingStepMeta.CACHE_SIZE );
+  }
+
+  @After
+  public void cleanUp() {
+    mockHelper.cleanUp();
+  }
+
+  private List<Object[]> runStep( BlockingStepData data, int nrRows ) throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    BlockingStep step =
+        spy( new BlockingStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta,
+            mockHelper.trans ) );
+    step.init( mockHelper.processRowsStepMetaInterface, data );
+    step.setInputRowMeta( rowMeta );
+
+    // The rows, followed by null to signal the end of the input
+    Object[] input = new Object[nrRows + 1];
+    for ( int i = 0; i < nrRows; i++ ) {
+      input[i] = new Object[] { (long) i, "row " + i };
+    }
+    doReturn( input[0], Arrays.copyOfRange( input, 1, input.length ) ).when( step ).getRow();
+    List<Object[]> output = new ArrayList<>();
+    doAnswer( invocation -> {
+      output.add( (Object[]) invocation.getArguments()[1] );
+      return null;
+    } ).when( step ).putRow( any( RowMetaInterface.class ), any( Object[].class ) );
+
+    while ( step.processRow( mockHelper.processRowsStepMetaInterface, data ) ) {
+      assertTrue( output.isEmpty() ); // nothing goes out before the last row came in
+    }
+    step.dispose( mockHelper.processRowsStepMetaInterface, data );
+    return output;
+  }
+
+  private void assertRows( int nrRows, List<Object[]> output ) {
+    assertEquals( nrRows, output.size() );
+    for ( int i = 0; i < nrRows; i++ ) {
+      assertArrayEquals( new Object[] { (long) i, "row " + i }, output.get( i ) );
+    }
+  }
+
+  @Test
+  public void passAllRowsOnHeap() throws Exception {
+    BlockingStepData data = new BlockingStepData();
+    assertRows( 100, runStep( data, 100 ) );
+    assertNull( data.arena );
+  }
+
+  @Test
+  public void passAllRowsOffHeap() throws Exception {
+    OffHeapMemoryBudget budget = new OffHeapMemoryBudget( 64L * 1024 * 1024 );
+    when( mockHelper.trans.getOffHeapMemoryBudget() ).thenReturn( budget );
+
+    BlockingStepData data = new BlockingStepData();
+    List<Object[]> output = runStep( data, 1000 );
+
+    assertRows( 1000, output );
+    assertNull( data.arena );
+    assertEquals( 0, budget.getUsed() );
+  }
+}
@@ -22,7 +22,6 @@ package org.pentaho.di.trans.steps.pgbulkloader;
 //
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.nio.charset.Charset;
 import java.sql.Connection;
 import java.sql.ResultSet;
@@ -36,7 +35,6 @@ import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.row.RowMetaInterface;
-import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -66,6 +64,7 @@ public class PGBulkLoader extends BaseStep implements StepInterface {
   private PGBulkLoaderMeta meta;
   private PGBulkLoaderData data;
   private PGCopyOutputStream pgCopyOut;
+  private PGCopyRowEncoder encoder;
 
   public PGBulkLoader( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
     Trans trans ) {
@@ -277,147 +276,17 @@ public class PGBulkLoader extends BaseStep implements StepInterface {
   void writeRowToPostgres( RowMetaInterface rowMeta, Object[] r ) throws KettleException {
 
     try {
-      // So, we have this output stream to which we can write CSV data to.
-      // Basically, what we need to do is write the binary data (from strings to it as part of this proof of concept)
+      // The client encoding is only known once the connection is made, so create the encoder on the first row.
       //
-      // Let's assume the data is in the correct format here too.
-      //
-      for ( int i = 0; i < data.keynrs.length; i++ ) {
-        if ( i > 0 ) {
-          // Write a separator
-          //
-          pgCopyOut.write( data.separator );
-        }
-
-        int index = data.keynrs[i];
-        ValueMetaInterface valueMeta = rowMeta.getValueMeta( index );
-        Object valueData = r[index];
-
-        if ( valueData != null ) {
-          switch ( valueMeta.getType() ) {
-            case ValueMetaInterface.TYPE_STRING:
-              pgCopyOut.write( data.quote );
-
-              // No longer dump the bytes for a Lazy Conversion;
-              // We need to escape the quote characters in every string
-              String quoteStr = new String( data.quote );
-              String escapedString = valueMeta.getString( valueData ).replace( quoteStr, quoteStr + quoteStr );
-              pgCopyOut.write( escapedString.getBytes( clientEncoding ) );
-
-              pgCopyOut.write( data.quote );
-              break;
-            case ValueMetaInterface.TYPE_INTEGER:
-            case ValueMetaInterface.TYPE_BOOLEAN:
-              if ( valueMeta.isStorageBinaryString() ) {
-                pgCopyOut.write( (byte[]) valueData );
-              } else {
-                pgCopyOut.write( Long.toString( valueMeta.getInteger( valueData ) ).getBytes( clientEncoding ) );
-              }
-              break;
-            case ValueMetaInterface.TYPE_DATE:
-              // Format the date in the right format.
-              //
-              switch ( data.dateFormatChoices[i] ) {
-              // Pass the data along in the format chosen by the user OR in binary format...
-              //
-                case PGBulkLoaderMeta.NR_DATE_MASK_PASS_THROUGH:
-                  if ( valueMeta.isStorageBinaryString() ) {
-                    pgCopyOut.write( (byte[]) valueData );
-                  } else {
-                    String dateString = valueMeta.getString( valueData );
-                    if ( dateString != null ) {
-                      pgCopyOut.write( dateString.getBytes( clientEncoding ) );
-                    }
-                  }
-                  break;
-
-                // Convert to a "YYYY-MM-DD" format
-                //
-                case PGBulkLoaderMeta.NR_DATE_MASK_DATE:
-                  String dateString = data.dateMeta.getString( valueMeta.getDate( valueData ) );
-                  if ( dateString != null ) {
-                    pgCopyOut.write( dateString.getBytes( clientEncoding ) );
-                  }
-                  break;
-
-                // Convert to a "YYYY-MM-DD HH:MM:SS.mmm" format
-                //
-                case PGBulkLoaderMeta.NR_DATE_MASK_DATETIME:
-                  String dateTimeString = data.dateTimeMeta.getString( valueMeta.getDate( valueData ) );
-                  if ( dateTimeString != null ) {
-                    pgCopyOut.write( dateTimeString.getBytes( clientEncoding ) );
-                  }
-                  break;
-
-                default:
-                  throw new KettleException( "PGBulkLoader doesn't know how to handle date (neither passthrough, nor date or datetime for field " + valueMeta.getName() );
-              }
-              break;
-            case ValueMetaInterface.TYPE_TIMESTAMP:
-              // Format the date in the right format.
-              //
-              switch ( data.dateFormatChoices[i] ) {
-              // Pass the data along in the format chosen by the user OR in binary format...
-              //
-                case PGBulkLoaderMeta.NR_DATE_MASK_PASS_THROUGH:
-                  if ( valueMeta.isStorageBinaryString() ) {
-                    pgCopyOut.write( (byte[]) valueData );
-                  } else {
-                    String dateString = valueMeta.getString( valueData );
-                    if ( dateString != null ) {
-                      pgCopyOut.write( dateString.getBytes( clientEncoding ) );
-                    }
-                  }
-                  break;
-
-                // Convert to a "YYYY-MM-DD" format
-                //
-                case PGBulkLoaderMeta.NR_DATE_MASK_DATE:
-                  String dateString = data.dateMeta.getString( valueMeta.getDate( valueData ) );
-                  if ( dateString != null ) {
-                    pgCopyOut.write( dateString.getBytes( clientEncoding ) );
-                  }
-                  break;
-
-                // Convert to a "YYYY-MM-DD HH:MM:SS.mmm" format
-                //
-                case PGBulkLoaderMeta.NR_DATE_MASK_DATETIME:
-                  String dateTimeString = data.dateTimeMeta.getString( valueMeta.getDate( valueData ) );
-                  if ( dateTimeString != null ) {
-                    pgCopyOut.write( dateTimeString.getBytes( clientEncoding ) );
-                  }
-                  break;
-
-                default:
-                  throw new KettleException( "PGBulkLoader doesn't know how to handle timestamp (neither passthrough, nor date or datetime for field " + valueMeta.getName() );
-              }
-              break;
-            case ValueMetaInterface.TYPE_NUMBER:
-              if ( valueMeta.isStorageBinaryString() ) {
-                pgCopyOut.write( (byte[]) valueData );
-              } else {
-                pgCopyOut.write( Double.toString( valueMeta.getNumber( valueData ) ).getBytes( clientEncoding ) );
-              }
-              break;
-            case ValueMetaInterface.TYPE_BIGNUMBER:
-              if ( valueMeta.isStorageBinaryString() ) {
-                pgCopyOut.write( (byte[]) valueData );
-              } else {
-                BigDecimal big = valueMeta.getBigNumber( valueData );
-                if ( big != null ) {
-                  pgCopyOut.write( big.toString().getBytes( clientEncoding ) );
-                }
-              }
-              break;
-            default:
-              throw new KettleException( "PGBulkLoader doesn't handle the type " + valueMeta.getTypeDesc() );
-          }
-        }
+      if ( encoder == null ) {
+        encoder = new PGCopyRowEncoder( clientEncoding, data.quote, data.separator, data.newline,
+          data.dateFormatChoices, data.dateMeta, data.dateTimeMeta );
       }
 
-      // Now write a newline
+      // Encode the complete row in CSV format and hand it to the COPY stream in a single write.
       //
-      pgCopyOut.write( data.newline );
+      encoder.encodeRow( rowMeta, r, data.keynrs );
+      encoder.writeTo( pgCopyOut );
     } catch ( Exception e ) {
       throw new KettleException( "Error serializing rows of data to the COPY command", e );
     }
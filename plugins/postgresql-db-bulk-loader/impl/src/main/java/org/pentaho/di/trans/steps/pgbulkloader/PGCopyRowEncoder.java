@@ -0,0 +1,315 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.pgbulkloader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Encodes rows in the CSV format of the PostgreSQL COPY command into a reusable byte buffer, so that every row is
+ * handed to the COPY stream with a single write.
+ * <p>
+ * Integers are written digit by digit and strings consisting of ASCII characters only are copied char by char,
+ * doubling the quote character on the fly. That way most values don't need an intermediate String or byte array.
+ * Everything else is converted through the value metadata, the same way as before.
+ *
+ * @since 11.1
+ */
+public class PGCopyRowEncoder {
+  private final Charset charset;
+  private final byte[] quote;
+  private final byte[] separator;
+  private final byte[] newline;
+  private final int[] dateFormatChoices;
+  private final ValueMetaInterface dateMeta;
+  private final ValueMetaInterface dateTimeMeta;
+
+  /** The quote as a string, used to escape strings that aren't plain ASCII */
+  private final String quoteString;
+
+  /** The single ASCII quote character, -1 if there is no quote, -2 if the quote isn't a single ASCII character */
+  private final int quoteChar;
+
+  /** True if the charset encodes ASCII characters as the same single bytes */
+  private final boolean asciiCompatible;
+
+  private byte[] buffer;
+  private int size;
+
+  /**
+   * @param charset
+   *          the client encoding of the connection
+   * @param quote
+   *          the bytes to enclose strings with
+   * @param separator
+   *          the bytes to separate the fields with
+   * @param newline
+   *          the bytes to end a row with
+   * @param dateFormatChoices
+   *          how to format the dates of every field, one of the PGBulkLoaderMeta.NR_DATE_MASK_ constants
+   * @param dateMeta
+   *          the metadata to format dates with
+   * @param dateTimeMeta
+   *          the metadata to format timestamps with
+   */
+  public PGCopyRowEncoder( Charset charset, byte[] quote, byte[] separator, byte[] newline, int[] dateFormatChoices,
+    ValueMetaInterface dateMeta, ValueMetaInterface dateTimeMeta ) {
+    this.charset = charset;
+    this.quote = quote;
+    this.separator = separator;
+    this.newline = newline;
+    this.dateFormatChoices = dateFormatChoices;
+    this.dateMeta = dateMeta;
+    this.dateTimeMeta = dateTimeMeta;
+
+    this.quoteString = new String( quote );
+    this.asciiCompatible =
+      StandardCharsets.UTF_8.equals( charset ) || StandardCharsets.US_ASCII.equals( charset )
+        || StandardCharsets.ISO_8859_1.equals( charset );
+    if ( quote.length == 0 ) {
+      quoteChar = -1;
+    } else if ( quote.length == 1 && quote[0] >= 0 && quoteString.length() == 1 ) {
+      quoteChar = quote[0];
+    } else {
+      quoteChar = -2;
+    }
+    buffer = new byte[1024];
+  }
+
+  /**
+   * Append a row to the buffer.
+   *
+   * @param rowMeta
+   *          the description of the row
+   * @param r
+   *          the row data
+   * @param fieldNrs
+   *          the indexes of the fields to load, in the order of the columns of the COPY command
+   * @throws KettleException
+   *           in case a value can't be converted
+   */
+  public void encodeRow( RowMetaInterface rowMeta, Object[] r, int[] fieldNrs ) throws KettleException {
+    for ( int i = 0; i < fieldNrs.length; i++ ) {
+      if ( i > 0 ) {
+        append( separator );
+      }
+
+      int index = fieldNrs[i];
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( index );
+      Object valueData = r[index];
+      if ( valueData == null ) {
+        continue;
+      }
+
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_STRING:
+          appendQuoted( valueMeta.getString( valueData ) );
+          break;
+        case ValueMetaInterface.TYPE_INTEGER:
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          if ( valueMeta.isStorageBinaryString() ) {
+            append( (byte[]) valueData );
+          } else {
+            appendLong( valueMeta.getInteger( valueData ) );
+          }
+          break;
+        case ValueMetaInterface.TYPE_DATE:
+        case ValueMetaInterface.TYPE_TIMESTAMP:
+          appendDate( valueMeta, valueData, dateFormatChoices[i] );
+          break;
+        case ValueMetaInterface.TYPE_NUMBER:
+          if ( valueMeta.isStorageBinaryString() ) {
+            append( (byte[]) valueData );
+          } else {
+            appendAscii( Double.toString( valueMeta.getNumber( valueData ) ) );
+          }
+          break;
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+          if ( valueMeta.isStorageBinaryString() ) {
+            append( (byte[]) valueData );
+          } else {
+            BigDecimal big = valueMeta.getBigNumber( valueData );
+            if ( big != null ) {
+              appendAscii( big.toString() );
+            }
+          }
+          break;
+        default:
+          throw new KettleException( "PGBulkLoader doesn't handle the type " + valueMeta.getTypeDesc() );
+      }
+    }
+    append( newline );
+  }
+
+  private void appendDate( ValueMetaInterface valueMeta, Object valueData, int dateFormatChoice )
+    throws KettleException {
+    String dateString;
+    switch ( dateFormatChoice ) {
+      // Pass the data along in the format chosen by the user OR in binary format...
+      //
+      case PGBulkLoaderMeta.NR_DATE_MASK_PASS_THROUGH:
+        if ( valueMeta.isStorageBinaryString() ) {
+          append( (byte[]) valueData );
+          return;
+        }
+        dateString = valueMeta.getString( valueData );
+        break;
+
+      // Convert to a "YYYY-MM-DD" format
+      //
+      case PGBulkLoaderMeta.NR_DATE_MASK_DATE:
+        dateString = dateMeta.getString( valueMeta.getDate( valueData ) );
+        break;
+
+      // Convert to a "YYYY-MM-DD HH:MM:SS.mmm" format
+      //
+      case PGBulkLoaderMeta.NR_DATE_MASK_DATETIME:
+        dateString = dateTimeMeta.getString( valueMeta.getDate( valueData ) );
+        break;
+
+      default:
+        throw new KettleException( "PGBulkLoader doesn't know how to handle "
+          + ( valueMeta.getType() == ValueMetaInterface.TYPE_DATE ? "date" : "timestamp" )
+          + " (neither passthrough, nor date or datetime for field " + valueMeta.getName() );
+    }
+    if ( dateString != null ) {
+      append( dateString.getBytes( charset ) );
+    }
+  }
+
+  /**
+   * Append a string between quotes, doubling the quotes in the string.
+   */
+  private void appendQuoted( String string ) {
+    append( quote );
+    if ( string != null ) {
+      if ( !asciiCompatible || quoteChar == -2 || !appendAsciiEscaped( string ) ) {
+        append( string.replace( quoteString, quoteString + quoteString ).getBytes( charset ) );
+      }
+    }
+    append( quote );
+  }
+
+  /**
+   * Copy a string consisting of ASCII characters only, doubling the quote character.
+   *
+   * @return false if the string contains other characters, nothing is appended in that case
+   */
+  private boolean appendAsciiEscaped( String string ) {
+    int length = string.length();
+    ensureCapacity( size + 2 * length );
+    int pos = size;
+    for ( int i = 0; i < length; i++ ) {
+      char c = string.charAt( i );
+      if ( c >= 0x80 ) {
+        return false;
+      }
+      buffer[pos++] = (byte) c;
+      if ( c == quoteChar ) {
+        buffer[pos++] = (byte) c;
+      }
+    }
+    size = pos;
+    return true;
+  }
+
+  /**
+   * Append a string that only contains ASCII characters, like a formatted number.
+   */
+  private void appendAscii( String string ) {
+    if ( !asciiCompatible ) {
+      append( string.getBytes( charset ) );
+      return;
+    }
+    int length = string.length();
+    ensureCapacity( size + length );
+    for ( int i = 0; i < length; i++ ) {
+      buffer[size++] = (byte) string.charAt( i );
+    }
+  }
+
+  private void appendLong( long value ) {
+    if ( !asciiCompatible || value == Long.MIN_VALUE ) {
+      appendAscii( Long.toString( value ) );
+      return;
+    }
+    ensureCapacity( size + 20 );
+    long v = value;
+    if ( v < 0 ) {
+      buffer[size++] = '-';
+      v = -v;
+    }
+    int start = size;
+    do {
+      buffer[size++] = (byte) ( '0' + ( v % 10 ) );
+      v /= 10;
+    } while ( v != 0 );
+
+    // The digits were written from the least significant one
+    for ( int i = start, j = size - 1; i < j; i++, j-- ) {
+      byte b = buffer[i];
+      buffer[i] = buffer[j];
+      buffer[j] = b;
+    }
+  }
+
+  private void append( byte[] bytes ) {
+    ensureCapacity( size + bytes.length );
+    System.arraycopy( bytes, 0, buffer, size, bytes.length );
+    size += bytes.length;
+  }
+
+  private void ensureCapacity( int capacity ) {
+    if ( capacity > buffer.length ) {
+      buffer = Arrays.copyOf( buffer, Math.max( capacity, buffer.length * 2 ) );
+    }
+  }
+
+  /**
+   * Write the encoded rows to a stream and empty the buffer.
+   *
+   * @param outputStream
+   *          the stream to write to
+   * @throws IOException
+   *           in case of a write error
+   */
+  public void writeTo( OutputStream outputStream ) throws IOException {
+    if ( size > 0 ) {
+      outputStream.write( buffer, 0, size );
+      size = 0;
+    }
+  }
+
+  /**
+   * @return the number of bytes encoded since the last write
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the encoded bytes since the last write
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOf( buffer, size );
+  }
+}
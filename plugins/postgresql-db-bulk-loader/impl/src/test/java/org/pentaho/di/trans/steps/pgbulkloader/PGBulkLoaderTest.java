@@ -42,6 +42,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -201,6 +202,11 @@ public class PGBulkLoaderTest {
       out.write( (byte[]) invocation.getArguments()[0] );
       return null;
     } ).when( pgCopy ).write( any() );
+    doAnswer( invocation -> {
+      out.write( (byte[]) invocation.getArguments()[0], (int) invocation.getArguments()[1],
+        (int) invocation.getArguments()[2] );
+      return null;
+    } ).when( pgCopy ).write( any(), anyInt(), anyInt() );
     final Field pgCopyOut = pgBulkLoader.getClass().getDeclaredField( "pgCopyOut" );
     pgCopyOut.setAccessible( true );
     pgCopyOut.set( pgBulkLoader, pgCopy );
@@ -0,0 +1,140 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.pgbulkloader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * Measures how fast rows are serialized for the COPY command: the row encoder against writing value by value to the
+ * stream, the way the bulk loader used to do it. Only the client side is measured, the stream discards the bytes.
+ * This is not a unit test, run it with the main method or through the JMH runner.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 2 )
+public class PGCopyRowEncoderBenchmark {
+
+  private final Charset charset = StandardCharsets.UTF_8;
+  private PGBulkLoaderData data;
+  private RowMetaInterface rowMeta;
+  private Object[] row;
+  private PGCopyRowEncoder encoder;
+  private OutputStream out;
+
+  @Setup( Level.Trial )
+  public void setUp( Blackhole blackhole ) {
+    data = new PGBulkLoaderData();
+    data.quote = "\"".getBytes( charset );
+    data.separator = ";".getBytes( charset );
+    data.newline = "\n".getBytes( charset );
+    data.keynrs = new int[] { 0, 1, 2, 3, 4 };
+    data.dateFormatChoices = new int[] { 0, 0, 0, 0, PGBulkLoaderMeta.NR_DATE_MASK_DATETIME };
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "comment" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "created" ) );
+    row = new Object[] { 1234567L, "customer name", "a \"quoted\" comment", 12.5, new Date() };
+
+    encoder = new PGCopyRowEncoder( charset, data.quote, data.separator, data.newline, data.dateFormatChoices,
+      data.dateMeta, data.dateTimeMeta );
+    out = new OutputStream() {
+      @Override
+      public void write( int b ) {
+        blackhole.consume( b );
+      }
+
+      @Override
+      public void write( byte[] b, int off, int len ) {
+        blackhole.consume( b );
+      }
+    };
+  }
+
+  @Benchmark
+  public void encoder() throws Exception {
+    encoder.encodeRow( rowMeta, row, data.keynrs );
+    encoder.writeTo( out );
+  }
+
+  @Benchmark
+  public void valueByValue() throws Exception {
+    for ( int i = 0; i < data.keynrs.length; i++ ) {
+      if ( i > 0 ) {
+        out.write( data.separator );
+      }
+      int index = data.keynrs[i];
+      writeValue( rowMeta.getValueMeta( index ), row[index] );
+    }
+    out.write( data.newline );
+  }
+
+  private void writeValue( ValueMetaInterface valueMeta, Object valueData ) throws KettleException, IOException {
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        out.write( data.quote );
+        String quoteStr = new String( data.quote );
+        out.write( valueMeta.getString( valueData ).replace( quoteStr, quoteStr + quoteStr ).getBytes( charset ) );
+        out.write( data.quote );
+        break;
+      case ValueMetaInterface.TYPE_INTEGER:
+        out.write( Long.toString( valueMeta.getInteger( valueData ) ).getBytes( charset ) );
+        break;
+      case ValueMetaInterface.TYPE_NUMBER:
+        out.write( Double.toString( valueMeta.getNumber( valueData ) ).getBytes( charset ) );
+        break;
+      default:
+        out.write( data.dateTimeMeta.getString( valueMeta.getDate( valueData ) ).getBytes( charset ) );
+        break;
+    }
+  }
+
+  public static void main( String[] args ) throws RunnerException {
+    new Runner( new OptionsBuilder().include( PGCopyRowEncoderBenchmark.class.getSimpleName() ).build() ).run();
+  }
+}
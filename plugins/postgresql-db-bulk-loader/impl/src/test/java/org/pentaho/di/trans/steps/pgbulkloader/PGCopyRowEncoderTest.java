@@ -0,0 +1,148 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.pgbulkloader;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PGCopyRowEncoderTest {
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleClientEnvironment.init();
+  }
+
+  private static PGCopyRowEncoder createEncoder( Charset charset, String quote, int... dateFormatChoices ) {
+    PGBulkLoaderData data = new PGBulkLoaderData();
+    return new PGCopyRowEncoder( charset, quote.getBytes( charset ), ";".getBytes( charset ),
+      "\n".getBytes( charset ), dateFormatChoices, data.dateMeta, data.dateTimeMeta );
+  }
+
+  private static RowMetaInterface rowMeta( ValueMetaInterface... valueMetas ) {
+    RowMetaInterface rowMeta = new RowMeta();
+    for ( ValueMetaInterface valueMeta : valueMetas ) {
+      rowMeta.addValueMeta( valueMeta );
+    }
+    return rowMeta;
+  }
+
+  private static String encode( PGCopyRowEncoder encoder, Charset charset, RowMetaInterface rowMeta, Object[] row,
+    int[] fieldNrs ) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encoder.encodeRow( rowMeta, row, fieldNrs );
+    encoder.writeTo( out );
+    assertEquals( 0, encoder.size() );
+    return new String( out.toByteArray(), charset );
+  }
+
+  @Test
+  public void testStringsAreQuotedAndEscaped() throws Exception {
+    PGCopyRowEncoder encoder = createEncoder( StandardCharsets.UTF_8, "\"", 0, 0, 0 );
+    RowMetaInterface rowMeta =
+      rowMeta( new ValueMetaString( "a" ), new ValueMetaString( "b" ), new ValueMetaString( "c" ) );
+
+    assertEquals( "\"plain\";\"say \"\"hi\"\"\";\"\"\"\"\n", encode( encoder, StandardCharsets.UTF_8, rowMeta,
+      new Object[] { "plain", "say \"hi\"", "\"" }, new int[] { 0, 1, 2 } ) );
+  }
+
+  @Test
+  public void testNonAsciiStrings() throws Exception {
+    for ( Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1 } ) {
+      PGCopyRowEncoder encoder = createEncoder( charset, "'", 0 );
+      RowMetaInterface rowMeta = rowMeta( new ValueMetaString( "a" ) );
+
+      assertEquals( charset.name(), "'café ''s'\n",
+        encode( encoder, charset, rowMeta, new Object[] { "café 's" }, new int[] { 0 } ) );
+    }
+  }
+
+  @Test
+  public void testIntegers() throws Exception {
+    PGCopyRowEncoder encoder = createEncoder( StandardCharsets.UTF_8, "\"", 0, 0, 0, 0, 0 );
+    RowMetaInterface rowMeta =
+      rowMeta( new ValueMetaInteger( "a" ), new ValueMetaInteger( "b" ), new ValueMetaInteger( "c" ),
+        new ValueMetaInteger( "d" ), new ValueMetaInteger( "e" ) );
+
+    assertEquals( "0;-42;1234567890;" + Long.MAX_VALUE + ";" + Long.MIN_VALUE + "\n",
+      encode( encoder, StandardCharsets.UTF_8, rowMeta,
+        new Object[] { 0L, -42L, 1234567890L, Long.MAX_VALUE, Long.MIN_VALUE }, new int[] { 0, 1, 2, 3, 4 } ) );
+  }
+
+  @Test
+  public void testNullsBooleansAndNumbers() throws Exception {
+    PGCopyRowEncoder encoder = createEncoder( StandardCharsets.UTF_8, "\"", 0, 0, 0, 0, 0 );
+    RowMetaInterface rowMeta =
+      rowMeta( new ValueMetaString( "a" ), new ValueMetaBoolean( "b" ), new ValueMetaBoolean( "c" ),
+        new ValueMetaNumber( "d" ), new ValueMetaBigNumber( "e" ) );
+
+    assertEquals( ";1;0;1.5;12.345\n", encode( encoder, StandardCharsets.UTF_8, rowMeta,
+      new Object[] { null, true, false, 1.5, new BigDecimal( "12.345" ) }, new int[] { 0, 1, 2, 3, 4 } ) );
+  }
+
+  @Test
+  public void testFieldSelectionAndBinaryStorage() throws Exception {
+    PGCopyRowEncoder encoder = createEncoder( StandardCharsets.UTF_8, "\"", 0, 0 );
+    ValueMetaInteger lazy = new ValueMetaInteger( "lazy" );
+    lazy.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    lazy.setStorageMetadata( new ValueMetaString( "lazy" ) );
+    RowMetaInterface rowMeta = rowMeta( new ValueMetaString( "skipped" ), lazy, new ValueMetaInteger( "id" ) );
+
+    assertEquals( "7;0042\n", encode( encoder, StandardCharsets.UTF_8, rowMeta,
+      new Object[] { "skipped", "0042".getBytes( StandardCharsets.UTF_8 ), 7L }, new int[] { 2, 1 } ) );
+  }
+
+  @Test
+  public void testDateMasks() throws Exception {
+    PGCopyRowEncoder encoder = createEncoder( StandardCharsets.UTF_8, "\"", PGBulkLoaderMeta.NR_DATE_MASK_DATE,
+      PGBulkLoaderMeta.NR_DATE_MASK_DATETIME );
+    RowMetaInterface rowMeta = rowMeta( new ValueMetaDate( "a" ), new ValueMetaDate( "b" ) );
+    Date date = new SimpleDateFormat( "yyyy-MM-dd HH:mm:ss.SSS" ).parse( "2024-02-29 13:14:15.016" );
+
+    assertEquals( "2024-02-29;2024-02-29 13:14:15.016\n",
+      encode( encoder, StandardCharsets.UTF_8, rowMeta, new Object[] { date, date }, new int[] { 0, 1 } ) );
+  }
+
+  @Test
+  public void testRowsAccumulateUntilWritten() throws Exception {
+    PGCopyRowEncoder encoder = createEncoder( StandardCharsets.UTF_8, "\"", 0 );
+    RowMetaInterface rowMeta = rowMeta( new ValueMetaString( "a" ) );
+    StringBuilder expected = new StringBuilder();
+    for ( int i = 0; i < 1000; i++ ) {
+      encoder.encodeRow( rowMeta, new Object[] { "row " + i }, new int[] { 0 } );
+      expected.append( "\"row " ).append( i ).append( "\"\n" );
+    }
+
+    assertArrayEquals( expected.toString().getBytes( StandardCharsets.UTF_8 ), encoder.toByteArray() );
+  }
+}
@@ -43,6 +43,8 @@ import java.util.List;
 public class TransExecutionConfigurationDialog extends ConfigurationDialog {
   private static Class<?> PKG = TransExecutionConfigurationDialog.class; // for i18n purposes, needed by Translator2!!
 
+  private Button wVirtualThreads;
+
   public TransExecutionConfigurationDialog( Shell parent, TransExecutionConfiguration configuration,
     TransMeta transMeta ) {
     super( parent, configuration, transMeta );
@@ -79,9 +81,19 @@ public class TransExecutionConfigurationDialog extends ConfigurationDialog {
     FormData fdGatherMetrics = new FormData();
     fdGatherMetrics.top = new FormAttachment( wSafeMode, 7 );
     fdGatherMetrics.left = new FormAttachment( 0, 10 );
-    fdGatherMetrics.bottom = new FormAttachment( 100, -10 );
     wGatherMetrics.setLayoutData( fdGatherMetrics );
 
+    wVirtualThreads = new Button( gDetails, SWT.CHECK );
+    wVirtualThreads.setText( BaseMessages.getString( PKG, "TransExecutionConfigurationDialog.VirtualThreads.Label" ) );
+    wVirtualThreads.setToolTipText( BaseMessages.getString( PKG,
+        "TransExecutionConfigurationDialog.VirtualThreads.Tooltip" ) );
+    props.setLook( wVirtualThreads );
+    FormData fdVirtualThreads = new FormData();
+    fdVirtualThreads.top = new FormAttachment( wGatherMetrics, 7 );
+    fdVirtualThreads.left = new FormAttachment( 0, 10 );
+    fdVirtualThreads.bottom = new FormAttachment( 100, -10 );
+    wVirtualThreads.setLayoutData( fdVirtualThreads );
+
     wlLogLevel = new Label( gDetails, SWT.NONE );
     props.setLook( wlLogLevel );
     wlLogLevel.setText( BaseMessages.getString( PKG, "TransExecutionConfigurationDialog.LogLevel.Label" ) );
@@ -150,6 +162,7 @@ public class TransExecutionConfigurationDialog extends ConfigurationDialog {
     wSafeMode.setSelection( configuration.isSafeModeEnabled() );
     wClearLog.setSelection( configuration.isClearingLog() );
     wGatherMetrics.setSelection( configuration.isGatheringMetrics() );
+    wVirtualThreads.setSelection( getConfiguration().isUsingVirtualThreads() );
 
     List<String> runConfigurations = new ArrayList<>();
     try {
@@ -184,6 +197,7 @@ public class TransExecutionConfigurationDialog extends ConfigurationDialog {
       configuration.setClearingLog( wClearLog.getSelection() );
       configuration.setLogLevel( LogLevel.values()[wLogLevel.getSelectionIndex()] );
       configuration.setGatheringMetrics( wGatherMetrics.getSelection() );
+      getConfiguration().setUsingVirtualThreads( wVirtualThreads.getSelection() );
 
       // The lower part of the dialog...
       getInfoParameters();
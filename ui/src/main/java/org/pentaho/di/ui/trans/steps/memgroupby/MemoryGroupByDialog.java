@@ -49,8 +49,12 @@ import org.pentaho.di.trans.step.StepDialogInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
 import org.pentaho.di.ui.core.dialog.ErrorDialog;
+import org.pentaho.di.ui.core.events.dialog.SelectionAdapterFileDialogTextVar;
+import org.pentaho.di.ui.core.events.dialog.SelectionAdapterOptions;
+import org.pentaho.di.ui.core.events.dialog.SelectionOperation;
 import org.pentaho.di.ui.core.widget.ColumnInfo;
 import org.pentaho.di.ui.core.widget.TableView;
+import org.pentaho.di.ui.core.widget.TextVar;
 import org.pentaho.di.ui.trans.step.BaseStepDialog;
 
 public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInterface {
@@ -68,6 +72,23 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
   private Button wAlwaysAddResult;
   private FormData fdlAlwaysAddResult, fdAlwaysAddResult;
 
+  private Label wlSpillToDisk;
+  private Button wSpillToDisk;
+  private FormData fdlSpillToDisk, fdSpillToDisk;
+
+  private Label wlMaxGroups;
+  private TextVar wMaxGroups;
+  private FormData fdlMaxGroups, fdMaxGroups;
+
+  private Label wlSpillDir;
+  private Button wbSpillDir;
+  private TextVar wSpillDir;
+  private FormData fdlSpillDir, fdbSpillDir, fdSpillDir;
+
+  private Label wlPrefix;
+  private Text wPrefix;
+  private FormData fdlPrefix, fdPrefix;
+
   private Button wGet, wGetAgg;
   private FormData fdGet, fdGetAgg;
   private Listener lsGet, lsGetAgg;
@@ -159,12 +180,108 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     wAlwaysAddResult.setLayoutData( fdAlwaysAddResult );
     wAlwaysAddResult.addSelectionListener( lsSel );
 
+    // Write the groups that don't fit in memory to temporary files
+    //
+    wlSpillToDisk = new Label( shell, SWT.RIGHT );
+    wlSpillToDisk.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.SpillToDisk.Label" ) );
+    wlSpillToDisk.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.SpillToDisk.ToolTip" ) );
+    props.setLook( wlSpillToDisk );
+    fdlSpillToDisk = new FormData();
+    fdlSpillToDisk.left = new FormAttachment( 0, 0 );
+    fdlSpillToDisk.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdlSpillToDisk.right = new FormAttachment( middle, -margin );
+    wlSpillToDisk.setLayoutData( fdlSpillToDisk );
+    wSpillToDisk = new Button( shell, SWT.CHECK );
+    wSpillToDisk.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.SpillToDisk.ToolTip" ) );
+    props.setLook( wSpillToDisk );
+    fdSpillToDisk = new FormData();
+    fdSpillToDisk.left = new FormAttachment( middle, 0 );
+    fdSpillToDisk.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdSpillToDisk.right = new FormAttachment( 100, 0 );
+    wSpillToDisk.setLayoutData( fdSpillToDisk );
+    wSpillToDisk.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+        setFlags();
+      }
+    } );
+
+    // Maximum number of groups to keep in memory
+    //
+    wlMaxGroups = new Label( shell, SWT.RIGHT );
+    wlMaxGroups.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.MaxGroups.Label" ) );
+    props.setLook( wlMaxGroups );
+    fdlMaxGroups = new FormData();
+    fdlMaxGroups.left = new FormAttachment( 0, 0 );
+    fdlMaxGroups.right = new FormAttachment( middle, -margin );
+    fdlMaxGroups.top = new FormAttachment( wSpillToDisk, margin );
+    wlMaxGroups.setLayoutData( fdlMaxGroups );
+    wMaxGroups = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wMaxGroups );
+    wMaxGroups.addModifyListener( lsMod );
+    fdMaxGroups = new FormData();
+    fdMaxGroups.left = new FormAttachment( middle, 0 );
+    fdMaxGroups.top = new FormAttachment( wSpillToDisk, margin );
+    fdMaxGroups.right = new FormAttachment( 100, 0 );
+    wMaxGroups.setLayoutData( fdMaxGroups );
+
+    // Temporary files directory
+    //
+    wlSpillDir = new Label( shell, SWT.RIGHT );
+    wlSpillDir.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.TempDir.Label" ) );
+    props.setLook( wlSpillDir );
+    fdlSpillDir = new FormData();
+    fdlSpillDir.left = new FormAttachment( 0, 0 );
+    fdlSpillDir.right = new FormAttachment( middle, -margin );
+    fdlSpillDir.top = new FormAttachment( wMaxGroups, margin );
+    wlSpillDir.setLayoutData( fdlSpillDir );
+
+    wbSpillDir = new Button( shell, SWT.PUSH | SWT.CENTER );
+    props.setLook( wbSpillDir );
+    wbSpillDir.setText( BaseMessages.getString( PKG, "System.Button.Browse" ) );
+    fdbSpillDir = new FormData();
+    fdbSpillDir.right = new FormAttachment( 100, 0 );
+    fdbSpillDir.top = new FormAttachment( wMaxGroups, margin );
+    wbSpillDir.setLayoutData( fdbSpillDir );
+
+    wSpillDir = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wSpillDir );
+    wSpillDir.addModifyListener( lsMod );
+    fdSpillDir = new FormData();
+    fdSpillDir.left = new FormAttachment( middle, 0 );
+    fdSpillDir.top = new FormAttachment( wMaxGroups, margin );
+    fdSpillDir.right = new FormAttachment( wbSpillDir, -margin );
+    wSpillDir.setLayoutData( fdSpillDir );
+
+    wbSpillDir.addSelectionListener( new SelectionAdapterFileDialogTextVar( log, wSpillDir, transMeta,
+      new SelectionAdapterOptions( transMeta.getBowl(), SelectionOperation.FOLDER ) ) );
+
+    // Prefix of the temporary files
+    //
+    wlPrefix = new Label( shell, SWT.RIGHT );
+    wlPrefix.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.FilePrefix.Label" ) );
+    props.setLook( wlPrefix );
+    fdlPrefix = new FormData();
+    fdlPrefix.left = new FormAttachment( 0, 0 );
+    fdlPrefix.right = new FormAttachment( middle, -margin );
+    fdlPrefix.top = new FormAttachment( wbSpillDir, margin );
+    wlPrefix.setLayoutData( fdlPrefix );
+    wPrefix = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wPrefix );
+    wPrefix.addModifyListener( lsMod );
+    fdPrefix = new FormData();
+    fdPrefix.left = new FormAttachment( middle, 0 );
+    fdPrefix.top = new FormAttachment( wbSpillDir, margin );
+    fdPrefix.right = new FormAttachment( 100, 0 );
+    wPrefix.setLayoutData( fdPrefix );
+
     wlGroup = new Label( shell, SWT.NONE );
     wlGroup.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.Group.Label" ) );
     props.setLook( wlGroup );
     fdlGroup = new FormData();
     fdlGroup.left = new FormAttachment( 0, 0 );
-    fdlGroup.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdlGroup.top = new FormAttachment( wPrefix, margin );
     wlGroup.setLayoutData( fdlGroup );
 
     int nrKeyCols = 1;
@@ -366,6 +483,11 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     logDebug( BaseMessages.getString( PKG, "MemoryGroupByDialog.Log.GettingKeyInfo" ) );
 
     wAlwaysAddResult.setSelection( input.isAlwaysGivingBackOneRow() );
+    wSpillToDisk.setSelection( input.isSpillingToDisk() );
+    wMaxGroups.setText( Const.NVL( input.getMaxGroupsInMemory(), "" ) );
+    wSpillDir.setText( Const.NVL( input.getDirectory(), "" ) );
+    wPrefix.setText( Const.NVL( input.getPrefix(), "" ) );
+    setFlags();
 
     if ( input.getGroupField() != null ) {
       for ( int i = 0; i < input.getGroupField().length; i++ ) {
@@ -401,6 +523,17 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     wStepname.setFocus();
   }
 
+  private void setFlags() {
+    boolean spilling = wSpillToDisk.getSelection();
+    wlMaxGroups.setEnabled( spilling );
+    wMaxGroups.setEnabled( spilling );
+    wlSpillDir.setEnabled( spilling );
+    wSpillDir.setEnabled( spilling );
+    wbSpillDir.setEnabled( spilling );
+    wlPrefix.setEnabled( spilling );
+    wPrefix.setEnabled( spilling );
+  }
+
   private void cancel() {
     stepname = null;
     input.setChanged( backupChanged );
@@ -416,6 +549,10 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     int nrfields = wAgg.nrNonEmpty();
 
     input.setAlwaysGivingBackOneRow( wAlwaysAddResult.getSelection() );
+    input.setSpillingToDisk( wSpillToDisk.getSelection() );
+    input.setMaxGroupsInMemory( wMaxGroups.getText() );
+    input.setDirectory( wSpillDir.getText() );
+    input.setPrefix( wPrefix.getText() );
 
     input.allocate( sizegroup, nrfields );
 
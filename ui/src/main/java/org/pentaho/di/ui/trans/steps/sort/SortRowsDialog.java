@@ -82,6 +82,10 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
   private TextVar wFreeMemory;
   private FormData fdlFreeMemory, fdFreeMemory;
 
+  private Label wlSortThreads;
+  private TextVar wSortThreads;
+  private FormData fdlSortThreads, fdSortThreads;
+
   private Label wlCompress;
   private CheckBoxVar wCompress;
   private FormData fdlCompress, fdCompress;
@@ -246,6 +250,26 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     fdFreeMemory.right = new FormAttachment( 100, 0 );
     wFreeMemory.setLayoutData( fdFreeMemory );
 
+    // Number of threads to sort with
+    wlSortThreads = new Label( shell, SWT.RIGHT );
+    wlSortThreads.setText( BaseMessages.getString( PKG, "SortRowsDialog.SortThreads.Label" ) );
+    wlSortThreads.setToolTipText( BaseMessages.getString( PKG, "SortRowsDialog.SortThreads.ToolTip" ) );
+    props.setLook( wlSortThreads );
+    fdlSortThreads = new FormData();
+    fdlSortThreads.left = new FormAttachment( 0, 0 );
+    fdlSortThreads.right = new FormAttachment( middle, -margin );
+    fdlSortThreads.top = new FormAttachment( wFreeMemory, margin * 2 );
+    wlSortThreads.setLayoutData( fdlSortThreads );
+    wSortThreads = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wSortThreads.setToolTipText( BaseMessages.getString( PKG, "SortRowsDialog.SortThreads.ToolTip" ) );
+    props.setLook( wSortThreads );
+    wSortThreads.addModifyListener( lsMod );
+    fdSortThreads = new FormData();
+    fdSortThreads.left = new FormAttachment( middle, 0 );
+    fdSortThreads.top = new FormAttachment( wFreeMemory, margin * 2 );
+    fdSortThreads.right = new FormAttachment( 100, 0 );
+    wSortThreads.setLayoutData( fdSortThreads );
+
     // Using compression for temporary files?
     wlCompress = new Label( shell, SWT.RIGHT );
     wlCompress.setText( BaseMessages.getString( PKG, "SortRowsDialog.Compress.Label" ) );
@@ -253,13 +277,13 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     fdlCompress = new FormData();
     fdlCompress.left = new FormAttachment( 0, 0 );
     fdlCompress.right = new FormAttachment( middle, -margin );
-    fdlCompress.top = new FormAttachment( wFreeMemory, margin * 2 );
+    fdlCompress.top = new FormAttachment( wSortThreads, margin * 2 );
     wlCompress.setLayoutData( fdlCompress );
     wCompress = new CheckBoxVar( transMeta, shell, SWT.CHECK, "" );
     props.setLook( wCompress );
     fdCompress = new FormData();
     fdCompress.left = new FormAttachment( middle, 0 );
-    fdCompress.top = new FormAttachment( wFreeMemory, margin * 2 );
+    fdCompress.top = new FormAttachment( wSortThreads, margin * 2 );
     fdCompress.right = new FormAttachment( 100, 0 );
     wCompress.setLayoutData( fdCompress );
     wCompress.addSelectionListener( new SelectionAdapter() {
@@ -413,6 +437,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     wPrefix.addSelectionListener( lsDef );
     wSortSize.addSelectionListener( lsDef );
     wFreeMemory.addSelectionListener( lsDef );
+    wSortThreads.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
     shell.addShellListener( new ShellAdapter() {
@@ -477,6 +502,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     }
     wSortSize.setText( Const.NVL( input.getSortSize(), "" ) );
     wFreeMemory.setText( Const.NVL( input.getFreeMemoryLimit(), "" ) );
+    wSortThreads.setText( Const.NVL( input.getSortThreads(), "" ) );
     wCompress.setSelection( input.getCompressFiles() );
     wCompress.setVariableName( input.getCompressFilesVariable() );
     wUniqueRows.setSelection( input.isOnlyPassingUniqueRows() );
@@ -526,6 +552,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     input.setDirectory( wSortDir.getText() );
     input.setSortSize( wSortSize.getText() );
     input.setFreeMemoryLimit( wFreeMemory.getText() );
+    input.setSortThreads( wSortThreads.getText() );
     log.logDetailed( "Sort rows", "Compression is set to " + wCompress.getSelection() );
     input.setCompressFiles( wCompress.getSelection() );
     input.setCompressFilesVariable( wCompress.getVariableName() );
@@ -126,6 +126,10 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
   private Button wBatch;
   private FormData fdlBatch, fdBatch;
 
+  private Label wlPipelinedCommit;
+  private Button wPipelinedCommit;
+  private FormData fdlPipelinedCommit, fdPipelinedCommit;
+
   private Label wlUsePart;
   private Button wUsePart;
   private FormData fdlUsePart, fdUsePart;
@@ -557,20 +561,39 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
       }
     } );
 
+    // Pipelined commit
+    wlPipelinedCommit = new Label( wMainComp, SWT.RIGHT );
+    wlPipelinedCommit.setText( BaseMessages.getString( PKG, "TableOutputDialog.PipelinedCommit.Label" ) );
+    wlPipelinedCommit.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.PipelinedCommit.Tooltip" ) );
+    props.setLook( wlPipelinedCommit );
+    fdlPipelinedCommit = new FormData();
+    fdlPipelinedCommit.left = new FormAttachment( 0, 0 );
+    fdlPipelinedCommit.top = new FormAttachment( wBatch, margin );
+    fdlPipelinedCommit.right = new FormAttachment( middle, -margin );
+    wlPipelinedCommit.setLayoutData( fdlPipelinedCommit );
+    wPipelinedCommit = new Button( wMainComp, SWT.CHECK );
+    props.setLook( wPipelinedCommit );
+    fdPipelinedCommit = new FormData();
+    fdPipelinedCommit.left = new FormAttachment( middle, 0 );
+    fdPipelinedCommit.top = new FormAttachment( wBatch, margin );
+    fdPipelinedCommit.right = new FormAttachment( 100, 0 );
+    wPipelinedCommit.setLayoutData( fdPipelinedCommit );
+    wPipelinedCommit.addSelectionListener( lsSelMod );
+
     // NameInField
     wlNameInField = new Label( wMainComp, SWT.RIGHT );
     wlNameInField.setText( BaseMessages.getString( PKG, "TableOutputDialog.NameInField.Label" ) );
     props.setLook( wlNameInField );
     fdlNameInField = new FormData();
     fdlNameInField.left = new FormAttachment( 0, 0 );
-    fdlNameInField.top = new FormAttachment( wBatch, margin * 5 );
+    fdlNameInField.top = new FormAttachment( wPipelinedCommit, margin * 5 );
     fdlNameInField.right = new FormAttachment( middle, -margin );
     wlNameInField.setLayoutData( fdlNameInField );
     wNameInField = new Button( wMainComp, SWT.CHECK );
     props.setLook( wNameInField );
     fdNameInField = new FormData();
     fdNameInField.left = new FormAttachment( middle, 0 );
-    fdNameInField.top = new FormAttachment( wBatch, margin * 5 );
+    fdNameInField.top = new FormAttachment( wPipelinedCommit, margin * 5 );
     fdNameInField.right = new FormAttachment( 100, 0 );
     wNameInField.setLayoutData( fdNameInField );
     wNameInField.addSelectionListener( new SelectionAdapter() {
@@ -1235,6 +1258,10 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wlBatch.setEnabled( enableBatch );
     wBatch.setEnabled( enableBatch );
 
+    // Background commits only apply to batch inserts
+    wlPipelinedCommit.setEnabled( enableBatch && useBatch );
+    wPipelinedCommit.setEnabled( enableBatch && useBatch );
+
     boolean specifyFields = wSpecifyFields.getSelection();
     wFields.setEnabled( specifyFields );
     wGetFields.setEnabled( specifyFields );
@@ -1280,6 +1307,7 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wTruncate.setSelection( input.truncateTable() );
     wIgnore.setSelection( input.ignoreErrors() );
     wBatch.setSelection( input.useBatchUpdate() );
+    wPipelinedCommit.setSelection( input.isPipelinedCommit() );
 
     wCommit.setText( input.getCommitSize() );
 
@@ -1333,6 +1361,7 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     info.setTruncateTable( wTruncate.getSelection() );
     info.setIgnoreErrors( wIgnore.getSelection() );
     info.setUseBatchUpdate( wBatch.getSelection() );
+    info.setPipelinedCommit( wPipelinedCommit.getSelection() );
     info.setPartitioningEnabled( wUsePart.getSelection() );
     info.setPartitioningField( wPartField.getText() );
     info.setPartitioningDaily( wPartDaily.getSelection() );